@@ -0,0 +1,107 @@
+/*
+ 
+    Copyright IBM Corp. 2016
+    This file is part of Anomaly Detection Engine for Linux Logs (ADE).
+
+    ADE is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    ADE is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with ADE.  If not, see <http://www.gnu.org/licenses/>.
+ 
+*/
+package org.openmainframe.ade.benchmarks;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Access to the syslog baseline logs shipped in ade-assembly/src/main/baseline, which are
+ * packaged as class path resources of the benchmarks.
+ */
+public final class BaselineLogs {
+
+    private static final String RESOURCE_ROOT = "/ade/baseline/syslog/";
+
+    /** The logs the baseline model is trained on */
+    public static final String[] UPLOAD_LOGS = {
+        "upload/UploadSyslog_20151122_20151129.log.gz",
+    };
+
+    /** The logs the baseline regression test analyzes */
+    public static final String[] ANALYZE_LOGS = {
+        "analyze/AnalyzeSyslog_20151130_20151206.log.gz",
+        "analyze/AnalyzeSyslog_20151208_20151213.log.gz",
+    };
+
+    /** The year the baseline logs were written in. Their RFC 3164 time stamps carry no year. */
+    public static final int YEAR = 2015;
+
+    private BaselineLogs() {
+        // utility class
+    }
+
+    /**
+     * Reads up to maxLines lines of a baseline log.
+     *
+     * @param name name of the log, relative to the syslog baseline directory, e.g. one of {@link #ANALYZE_LOGS}.
+     * @param maxLines maximal number of lines to read. Non positive means all the lines.
+     */
+    public static List<String> readLines(String name, int maxLines) throws IOException {
+        final List<String> res = new ArrayList<String>();
+        final BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(open(name)), StandardCharsets.UTF_8));
+        try {
+            String line;
+            while ((maxLines <= 0 || res.size() < maxLines) && (line = reader.readLine()) != null) {
+                res.add(line);
+            }
+        } finally {
+            reader.close();
+        }
+        return res;
+    }
+
+    /** Copies a baseline log, still compressed, to the given file. */
+    public static void copyTo(String name, File target) throws IOException {
+        final InputStream in = open(name);
+        try {
+            final OutputStream out = new FileOutputStream(target);
+            try {
+                final byte[] buf = new byte[64 * 1024];
+                int n;
+                while ((n = in.read(buf)) > 0) {
+                    out.write(buf, 0, n);
+                }
+            } finally {
+                out.close();
+            }
+        } finally {
+            in.close();
+        }
+    }
+
+    private static InputStream open(String name) throws IOException {
+        final InputStream in = BaselineLogs.class.getResourceAsStream(RESOURCE_ROOT + name);
+        if (in == null) {
+            throw new IOException("Baseline log not found on the class path: " + name);
+        }
+        return in;
+    }
+}
@@ -0,0 +1,295 @@
+/*
+ 
+    Copyright IBM Corp. 2016
+    This file is part of Anomaly Detection Engine for Linux Logs (ADE).
+
+    ADE is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    ADE is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with ADE.  If not, see <http://www.gnu.org/licenses/>.
+ 
+*/
+package org.openmainframe.ade.benchmarks;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.ProcessBuilder.Redirect;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+import org.openmainframe.ade.Ade;
+import org.openmainframe.ade.data.ISource;
+import org.openmainframe.ade.dataStore.IDataStoreSources;
+import org.openmainframe.ade.exceptions.AdeException;
+import org.openmainframe.ade.ext.AdeExt;
+import org.openmainframe.ade.ext.data.GroupsQueryImpl;
+import org.openmainframe.ade.ext.os.parser.LinuxSyslogMessageReader;
+
+/**
+ * The ADE installation the benchmarks run against.
+ *
+ * <p>The environment lives in a home directory (the system property {@value #HOME_PROPERTY}, by default
+ * ade-benchmarks under the temporary directory). It holds a copy of the configuration shipped with the
+ * assembly, a setup.props pointing at an embedded Derby database in the same directory, and the database
+ * itself. The database is created, and optionally filled by uploading the syslog baseline logs and training
+ * a model on them, by running the regular ADE main programs in a child JVM. This is done once; later
+ * benchmark runs reuse the existing home directory. Delete it to rebuild the fixture.
+ *
+ * <p>The child JVMs keep the preparation out of the benchmark JVM, so the only ADE singletons a
+ * benchmark sees are the ones created by {@link #open(boolean)}.
+ */
+public final class BenchmarkEnvironment {
+
+    /** System property overriding the home directory of the benchmark environment */
+    public static final String HOME_PROPERTY = "benchmark.home";
+
+    private static final String CONF_RESOURCE_ROOT = "/ade/conf/";
+    private static final String[] CONF_FILES = {
+        "setup.props",
+        "criticalWords.txt",
+        "xml/AdeCoreIntervalV2.xsd",
+        "xml/AdeCoreIntervalV2.xsl",
+        "xml/AdeCorePlexV2.xsd",
+        "xml/AdeCorePlexV2.xsl",
+        "xml/AnalyzedInterval.xsd",
+        "xml/AnalyzedInterval.xsl",
+        "xml/FlowLayout.xml",
+        "xml/FlowLayout.xsd",
+        "xml/FlowLayoutSpark.xml",
+        "xml/FlowLayoutSpark.xsd",
+        "xml/global.css",
+    };
+    private static final String GROUPS_RESOURCE = "/ade/samples/analysisgroups.json";
+
+    private static final String CREATED_MARKER = ".created";
+    private static final String TRAINED_MARKER = ".trained";
+
+    private static File s_openedHome = null;
+
+    private BenchmarkEnvironment() {
+        // utility class
+    }
+
+    /** @return the home directory of the benchmark environment */
+    public static File getHome() {
+        final String home = System.getProperty(HOME_PROPERTY);
+        if (home != null && !home.isEmpty()) {
+            return new File(home).getAbsoluteFile();
+        }
+        return new File(System.getProperty("java.io.tmpdir"), "ade-benchmarks").getAbsoluteFile();
+    }
+
+    /**
+     * Prepares the environment if needed, and creates the Ade and AdeExt singletons of this JVM on it.
+     * The singletons stay open until the JVM exits, as JMH runs each trial in a JVM of its own.
+     *
+     * @param trained if true, the database must contain the uploaded syslog baseline and a model trained on it.
+     *     Otherwise an empty database is enough.
+     */
+    public static synchronized void open(boolean trained) throws IOException, AdeException {
+        open(getHome(), trained);
+    }
+
+    /**
+     * Same as {@link #open(boolean)}, in the given home directory rather than the default one, for benchmarks
+     * whose database content must not be seen by the others.
+     */
+    public static synchronized void open(File home, boolean trained) throws IOException, AdeException {
+        if (s_openedHome != null && !s_openedHome.equals(home)) {
+            throw new IllegalStateException("The benchmark environment was opened in " + s_openedHome);
+        }
+        if (s_openedHome != null) {
+            if (trained && !new File(s_openedHome, TRAINED_MARKER).exists()) {
+                throw new IllegalStateException("The benchmark environment was opened without a trained model");
+            }
+            return;
+        }
+        prepare(home, trained);
+
+        Ade.create(getSetupFile(home).getPath());
+        // recorded in the meta data of models, as by ControlProgram
+        Ade.getAde().setCommandLineArguments(new String[0]);
+        AdeExt.create(Ade.getAde());
+        Ade.getAde().getDataStore();
+        s_openedHome = home;
+    }
+
+    /**
+     * Returns the given source, adding it to the database with its analysis group as the syslog reader does.
+     * Sources without an analysis group would make training of all groups fail.
+     */
+    public static ISource getOrAddSource(String sourceId) throws AdeException {
+        final IDataStoreSources dataStoreSources = Ade.getAde().getDataStore().sources();
+        dataStoreSources.addSourceAndAnalysisGroup(sourceId, LinuxSyslogMessageReader.UNASSIGNED_ANALYSIS_GROUP_ID);
+        final ISource source = dataStoreSources.getOrAddSource(sourceId);
+        GroupsQueryImpl.updateSourcesAnalysisGroup(sourceId);
+        return source;
+    }
+
+    private static File getSetupFile(File home) {
+        return new File(home, "conf/setup.props");
+    }
+
+    private static void prepare(File home, boolean trained) throws IOException {
+        if (!new File(home, CREATED_MARKER).exists()) {
+            System.out.println("Creating ADE benchmark environment in " + home);
+            deleteRecursively(home);
+            if (!new File(home, "conf/xml").mkdirs()) {
+                throw new IOException("Failed creating " + home);
+            }
+            for (String name : CONF_FILES) {
+                copyResource(CONF_RESOURCE_ROOT + name, new File(home, "conf/" + name));
+            }
+            copyResource(GROUPS_RESOURCE, new File(home, "conf/analysisgroups.json"));
+            writeSetupProperties(home);
+
+            runAde(home, "org.openmainframe.ade.ext.main.ControlDB", "create");
+            runAde(home, "org.openmainframe.ade.ext.main.UpdateGroups",
+                    "-j", new File(home, "conf/analysisgroups.json").getPath());
+            touch(new File(home, CREATED_MARKER));
+        }
+        if (trained && !new File(home, TRAINED_MARKER).exists()) {
+            System.out.println("Uploading the syslog baseline and training a model in " + home
+                    + ". This takes a few minutes, and is done once.");
+            final File logs = new File(home, "logs");
+            if (!logs.isDirectory() && !logs.mkdirs()) {
+                throw new IOException("Failed creating " + logs);
+            }
+            for (String name : BaselineLogs.UPLOAD_LOGS) {
+                final File log = new File(logs, new File(name).getName());
+                BaselineLogs.copyTo(name, log);
+                runAde(home, "org.openmainframe.ade.ext.main.Upload", "-f", log.getPath(),
+                        "-years", String.valueOf(BaselineLogs.YEAR));
+            }
+            runAde(home, "org.openmainframe.ade.ext.main.Train", "all");
+            touch(new File(home, TRAINED_MARKER));
+        }
+    }
+
+    /**
+     * Writes setup.props: the configuration shipped with the assembly, with all paths made absolute,
+     * syslog (rather than spark) input, and an embedded Derby database in the home directory.
+     */
+    private static void writeSetupProperties(File home) throws IOException {
+        final File setupFile = getSetupFile(home);
+        final Properties props = new Properties();
+        final InputStream in = new FileInputStream(setupFile);
+        try {
+            props.load(in);
+        } finally {
+            in.close();
+        }
+        for (String key : props.stringPropertyNames()) {
+            final String value = props.getProperty(key);
+            if (value.startsWith("conf/") || value.startsWith("output")) {
+                props.setProperty(key, new File(home, value).getPath());
+            }
+        }
+        props.setProperty("ade.useSparkLogs", "false");
+        props.setProperty("adeext.useSparkLogs", "false");
+        props.setProperty("ade.databaseUrl", "jdbc:derby:" + new File(home, "db").getPath());
+        props.setProperty("ade.databaseDriver", "org.apache.derby.jdbc.EmbeddedDriver");
+        props.setProperty("ade.databaseUser", "");
+        props.setProperty("ade.databasePassword", "");
+
+        final OutputStream out = new FileOutputStream(setupFile);
+        try {
+            props.store(out, "ADE benchmark environment");
+        } finally {
+            out.close();
+        }
+    }
+
+    /** @return the class path of this JVM, valid in any working directory */
+    private static String getAbsoluteClassPath() {
+        final StringBuilder res = new StringBuilder();
+        for (String entry : System.getProperty("java.class.path").split(File.pathSeparator)) {
+            if (res.length() > 0) {
+                res.append(File.pathSeparator);
+            }
+            res.append(new File(entry).getAbsolutePath());
+        }
+        return res.toString();
+    }
+
+    /** Runs an ADE main program in a child JVM, with the class path of this JVM. */
+    private static void runAde(File home, String mainClass, String... args) throws IOException {
+        final List<String> command = new ArrayList<String>();
+        command.add(new File(System.getProperty("java.home"), "bin/java").getPath());
+        command.add("-cp");
+        command.add(getAbsoluteClassPath());
+        command.add("-D" + Ade.ADE_SETUP_FILE_PATH_PROPERTY + "=" + getSetupFile(home).getPath());
+        command.add("-Dorg.slf4j.simpleLogger.defaultLogLevel=warn");
+        command.add(mainClass);
+        command.addAll(Arrays.asList(args));
+
+        final File log = new File(home, "prepare.log");
+        final Process process = new ProcessBuilder(command)
+                .directory(home)
+                .redirectErrorStream(true)
+                .redirectOutput(Redirect.appendTo(log))
+                .start();
+        final int rc;
+        try {
+            rc = process.waitFor();
+        } catch (InterruptedException e) {
+            process.destroy();
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while running " + mainClass, e);
+        }
+        if (rc != 0) {
+            throw new IOException(mainClass + " failed with return code " + rc + ". See " + log);
+        }
+    }
+
+    private static void copyResource(String resource, File target) throws IOException {
+        final InputStream in = BenchmarkEnvironment.class.getResourceAsStream(resource);
+        if (in == null) {
+            throw new IOException("Resource not found on the class path: " + resource);
+        }
+        try {
+            final OutputStream out = new FileOutputStream(target);
+            try {
+                final byte[] buf = new byte[8192];
+                int n;
+                while ((n = in.read(buf)) > 0) {
+                    out.write(buf, 0, n);
+                }
+            } finally {
+                out.close();
+            }
+        } finally {
+            in.close();
+        }
+    }
+
+    private static void touch(File file) throws IOException {
+        new FileOutputStream(file).close();
+    }
+
+    private static void deleteRecursively(File file) throws IOException {
+        final File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        if (file.exists() && !file.delete()) {
+            throw new IOException("Failed deleting " + file);
+        }
+    }
+}
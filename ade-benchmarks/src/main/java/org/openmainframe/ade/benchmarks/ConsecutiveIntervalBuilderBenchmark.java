@@ -0,0 +1,154 @@
+/*
+ 
+    Copyright IBM Corp. 2016
+    This file is part of Anomaly Detection Engine for Linux Logs (ADE).
+
+    ADE is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    ADE is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with ADE.  If not, see <http://www.gnu.org/licenses/>.
+ 
+*/
+package org.openmainframe.ade.benchmarks;
+
+import java.util.Date;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openmainframe.ade.Ade;
+import org.openmainframe.ade.data.IDataFactory;
+import org.openmainframe.ade.data.IInterval;
+import org.openmainframe.ade.data.IMessageInstance;
+import org.openmainframe.ade.data.IMessageInstance.Severity;
+import org.openmainframe.ade.data.ISource;
+import org.openmainframe.ade.exceptions.AdeException;
+import org.openmainframe.ade.flow.IFrameableTarget;
+import org.openmainframe.ade.impl.data.IntervalClassificationEnum;
+import org.openmainframe.ade.impl.data.TimeSeparator;
+import org.openmainframe.ade.impl.flow.factory.jaxb.FramingFlowType;
+import org.openmainframe.ade.impl.flow.modules.ConsecutiveIntervalBuilder;
+import org.openmainframe.ade.impl.flow.modules.IntervalSeparator;
+import org.openmainframe.ade.summary.SummarizationProperties;
+
+/**
+ * Measures {@link ConsecutiveIntervalBuilder}, which summarizes the parsed messages of a source into
+ * ten minute intervals during upload. Each invocation streams {@value #MESSAGES} messages, a few seconds
+ * apart, through a new builder with the interval separators the framer would send; the score is per message.
+ *
+ * <p>The summarization properties are those of upload, or of analysis which also summarizes message texts.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dorg.slf4j.simpleLogger.defaultLogLevel=warn")
+public class ConsecutiveIntervalBuilderBenchmark {
+
+    static final int MESSAGES = 20000;
+
+    private static final String FRAMING_FLOW = "tenMinutesTrain";
+
+    @Param({ "24" })
+    public int templates;
+
+    @Param({ "upload", "analyze" })
+    public String summarization;
+
+    private ISource m_source;
+    private FramingFlowType m_framingFlow;
+    private SummarizationProperties m_sumProps;
+    private IMessageInstance[] m_messages;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        BenchmarkEnvironment.open(false);
+
+        m_source = BenchmarkEnvironment.getOrAddSource(SyntheticSyslog.HOST);
+        m_framingFlow = Ade.getAde().getFlowFactory().getAllFramingFlows().get(FRAMING_FLOW);
+        if (m_framingFlow == null) {
+            throw new IllegalStateException("Framing flow " + FRAMING_FLOW + " not found in the flow layout");
+        }
+        m_sumProps = "analyze".equals(summarization)
+                ? new SummarizationProperties(true, true, true)
+                : new SummarizationProperties(false, true, true);
+
+        final IDataFactory factory = Ade.getAde().getDataFactory();
+        final SyntheticSyslog generator = new SyntheticSyslog(5, templates, new Date(0));
+        final Random random = new Random(6);
+        long time = 0;
+        m_messages = new IMessageInstance[MESSAGES];
+        for (int i = 0; i < MESSAGES; ++i) {
+            final int template = random.nextInt(templates);
+            final String component = SyntheticSyslog.component(template);
+            time += 1000L * (1 + random.nextInt(5));
+            // one message id per template, as the text clustering would assign
+            m_messages[i] = factory.newMessageInstance(SyntheticSyslog.HOST, new Date(time),
+                    component + "_" + template, generator.messageText(template), component, Severity.INFO);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MESSAGES)
+    public void buildIntervals(final Blackhole bh) throws AdeException {
+        final ConsecutiveIntervalBuilder builder = new ConsecutiveIntervalBuilder(m_source, m_sumProps,
+                m_framingFlow, IntervalClassificationEnum.REGULAR, null);
+        builder.addTarget(new IFrameableTarget<IInterval, TimeSeparator>() {
+            @Override
+            public void beginOfStream() {
+                // nothing to do
+            }
+
+            @Override
+            public void incomingObject(IInterval interval) {
+                bh.consume(interval);
+            }
+
+            @Override
+            public void endOfStream() {
+                // nothing to do
+            }
+
+            @Override
+            public void incomingSeparator(TimeSeparator sep) {
+                bh.consume(sep);
+            }
+        });
+
+        final long duration = m_framingFlow.getDuration();
+        long intervalEnd = Long.MIN_VALUE;
+        builder.beginOfStream();
+        for (IMessageInstance msg : m_messages) {
+            final long time = msg.getDateTime().getTime();
+            if (time >= intervalEnd) {
+                final long intervalStart = time - time % duration;
+                builder.incomingSeparator(new IntervalSeparator(intervalStart));
+                intervalEnd = intervalStart + duration;
+            }
+            builder.incomingObject(msg);
+        }
+        builder.endOfStream();
+    }
+}
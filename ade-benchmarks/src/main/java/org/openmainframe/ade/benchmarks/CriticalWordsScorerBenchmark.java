@@ -0,0 +1,87 @@
+/*
+ 
+    Copyright IBM Corp. 2016
+    This file is part of Anomaly Detection Engine for Linux Logs (ADE).
+
+    ADE is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    ADE is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with ADE.  If not, see <http://www.gnu.org/licenses/>.
+ 
+*/
+package org.openmainframe.ade.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openmainframe.ade.exceptions.AdeException;
+import org.openmainframe.ade.impl.summary.CriticalWordsScorer;
+
+/**
+ * Measures the critical words score of a message text, which the interval summarization computes
+ * for every message, with the critical words shipped in the ade-assembly configuration.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CriticalWordsScorerBenchmark {
+
+    private static final int TEXTS = 1024;
+
+    private static final String[] CRITICAL_WORDS = {
+        "ABEND", "ABORT", "ABNORMAL", "ABNORMALLY", "CRASH", "DEADLOCK", "EXIT", "ERROR", "EXPIRE",
+        "FATAL", "FAILED", "FAILURE", "UNAVAILABLE", "CORRUPT", "CORRUPTED", "SEVERE", "UNRECOVERABLE",
+    };
+
+    private CriticalWordsScorer m_scorer;
+    private String[] m_texts;
+    private int m_next = 0;
+
+    @Setup
+    public void setup() throws IOException, AdeException {
+        final File file = File.createTempFile("criticalWords", ".txt");
+        try {
+            Files.write(file.toPath(), Arrays.asList(CRITICAL_WORDS), StandardCharsets.UTF_8);
+            m_scorer = new CriticalWordsScorer(file.getPath());
+        } finally {
+            file.delete();
+        }
+        final SyntheticSyslog generator = new SyntheticSyslog(1, SyntheticSyslog.MAX_TEMPLATES, new Date(0));
+        m_texts = new String[TEXTS];
+        for (int i = 0; i < TEXTS; ++i) {
+            m_texts[i] = generator.messageText(i % SyntheticSyslog.MAX_TEMPLATES);
+        }
+    }
+
+    @Benchmark
+    public int calcScore() {
+        m_next = (m_next + 1) & (TEXTS - 1);
+        return m_scorer.calcScore(m_texts[m_next]);
+    }
+}
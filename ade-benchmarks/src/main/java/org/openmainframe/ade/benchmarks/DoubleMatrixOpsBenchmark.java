@@ -0,0 +1,115 @@
+/*
+ 
+    Copyright IBM Corp. 2016
+    This file is part of Anomaly Detection Engine for Linux Logs (ADE).
+
+    ADE is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    ADE is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with ADE.  If not, see <http://www.gnu.org/licenses/>.
+ 
+*/
+package org.openmainframe.ade.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openmainframe.ade.core.matrix.DoubleMatrix;
+import org.openmainframe.ade.core.matrix.DoubleMatrixOps;
+import org.openmainframe.ade.core.matrix.DoubleVectorOps;
+import org.openmainframe.ade.core.matrix.IDoubleMatrix;
+import org.openmainframe.ade.core.matrix.SymmetricDoubleMatrix;
+
+/**
+ * Measures the dense kernels of the core.matrix library on square matrices, and a scan of the
+ * lower triangle of a symmetric matrix as done by the mutual information training.
+ * {@link #multiplyByCellDotProducts} is the multiplication as it was done before the kernels,
+ * for reference.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DoubleMatrixOpsBenchmark {
+
+    @Param({ "64", "256", "512" })
+    private int size;
+
+    private DoubleMatrix m_a;
+    private DoubleMatrix m_b;
+    private DoubleMatrix m_res;
+    private SymmetricDoubleMatrix m_symmetric;
+
+    @Setup
+    public void setup() {
+        final Random random = new Random(1);
+        m_a = new DoubleMatrix(size, size);
+        m_b = new DoubleMatrix(size, size);
+        m_res = new DoubleMatrix(size, size);
+        m_symmetric = new SymmetricDoubleMatrix(size);
+        for (int i = 0; i < size; ++i) {
+            for (int j = 0; j < size; ++j) {
+                m_a.set(i, j, random.nextDouble());
+                m_b.set(i, j, random.nextDouble());
+                m_symmetric.set(i, j, random.nextDouble());
+            }
+        }
+    }
+
+    @Benchmark
+    public IDoubleMatrix multiply() {
+        return DoubleMatrixOps.multiply(m_a, m_b, m_res);
+    }
+
+    @Benchmark
+    public IDoubleMatrix multiplyTransposed() {
+        return DoubleMatrixOps.multiplyTransposed(m_a, m_b, m_res);
+    }
+
+    @Benchmark
+    public IDoubleMatrix multiplyByCellDotProducts() {
+        for (int i = 0; i < size; ++i) {
+            for (int j = 0; j < size; ++j) {
+                m_res.set(i, j, DoubleVectorOps.dotProduct(m_a.getRow(i), m_b.getCol(j)));
+            }
+        }
+        return m_res;
+    }
+
+    @Benchmark
+    public IDoubleMatrix transpose() {
+        return DoubleMatrixOps.transpose(m_a);
+    }
+
+    @Benchmark
+    public double symmetricLowerTriangleScan() {
+        double sum = 0;
+        for (int i = 0; i < size; ++i) {
+            for (int j = 0; j <= i; ++j) {
+                sum += m_symmetric.get(i, j);
+            }
+        }
+        return sum;
+    }
+}
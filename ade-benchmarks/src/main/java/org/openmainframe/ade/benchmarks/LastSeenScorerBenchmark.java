@@ -0,0 +1,207 @@
+/*
+ 
+    Copyright IBM Corp. 2016
+    This file is part of Anomaly Detection Engine for Linux Logs (ADE).
+
+    ADE is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    ADE is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with ADE.  If not, see <http://www.gnu.org/licenses/>.
+ 
+*/
+package org.openmainframe.ade.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openmainframe.ade.data.IAnalyzedMessageSummary;
+import org.openmainframe.ade.data.IMessageInstance.Severity;
+import org.openmainframe.ade.data.IMessageSummary;
+import org.openmainframe.ade.exceptions.AdeException;
+import org.openmainframe.ade.impl.actions.AnalyzedIntervalImpl;
+import org.openmainframe.ade.scores.LastSeenLoggingScorerContinuous;
+import org.openmainframe.ade.scores.LastSeenScorer;
+import org.openmainframe.ade.scoringApi.StatisticsChart;
+
+/**
+ * Measures {@link LastSeenScorer}, which scores the time since the previous instance of each message
+ * of an interval, as computed by {@link LastSeenLoggingScorerContinuous}. Scoring is measured per
+ * interval of {@value #MESSAGE_IDS} message summaries, and training per interval trained on.
+ *
+ * <p>The deltas are synthetic: each message id recurs with a period of its own, between seconds and
+ * ten minutes, with some jitter and an occasional missed instance. The model is trained on a week of
+ * ten minute intervals.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dorg.slf4j.simpleLogger.defaultLogLevel=warn")
+public class LastSeenScorerBenchmark {
+
+    static final int MESSAGE_IDS = 64;
+    static final int TRAINING_INTERVALS = 7 * 24 * 6;
+
+    private static final int SCORED_INTERVALS = 64;
+    private static final int MAX_DELTAS = 16;
+    private static final long INTERVAL_MILLIS = 10 * 60 * 1000L;
+    private static final String DELTAS_STAT = LastSeenLoggingScorerContinuous.class.getSimpleName() + ".res";
+
+    private final List<AnalyzedIntervalImpl> m_trainingIntervals = new ArrayList<AnalyzedIntervalImpl>();
+    private final List<AnalyzedIntervalImpl> m_scoredIntervals = new ArrayList<AnalyzedIntervalImpl>();
+    private LastSeenScorer m_scorer;
+    private int m_next = 0;
+
+    @Setup(Level.Trial)
+    public void setup() throws AdeException {
+        final Random random = new Random(7);
+        for (int i = 0; i < TRAINING_INTERVALS; ++i) {
+            m_trainingIntervals.add(newInterval(i, random));
+        }
+        for (int i = 0; i < SCORED_INTERVALS; ++i) {
+            m_scoredIntervals.add(newInterval(TRAINING_INTERVALS + i, random));
+        }
+        m_scorer = train();
+    }
+
+    private static AnalyzedIntervalImpl newInterval(int serialNum, Random random) throws AdeException {
+        final long start = serialNum * INTERVAL_MILLIS;
+        final AnalyzedIntervalImpl interval = new AnalyzedIntervalImpl(serialNum, start,
+                start + INTERVAL_MILLIS, 0, MESSAGE_IDS, 0, null);
+        for (int id = 0; id < MESSAGE_IDS; ++id) {
+            final int period = 5 + id * 9;
+            final int jitter = period / 10;
+            final int numDeltas = Math.max(1, Math.min(MAX_DELTAS, 600 / period));
+            final List<Long> deltas = new ArrayList<Long>();
+            for (int i = 0; i < numDeltas; ++i) {
+                long delta = period + random.nextInt(2 * jitter + 1) - jitter;
+                if (random.nextInt(50) == 0) {
+                    delta *= 2 + random.nextInt(4);
+                }
+                deltas.add(delta);
+            }
+            final StatisticsChart statistics = new StatisticsChart();
+            statistics.setStat(DELTAS_STAT, deltas.toString());
+            interval.addMessage(new DeltasSummary("msg_" + id, statistics));
+        }
+        return interval;
+    }
+
+    private LastSeenScorer train() throws AdeException {
+        final LastSeenScorer scorer = new LastSeenScorer();
+        scorer.startIteration();
+        scorer.beginOfStream();
+        for (AnalyzedIntervalImpl interval : m_trainingIntervals) {
+            scorer.incomingObject(interval);
+        }
+        scorer.endOfStream();
+        return scorer;
+    }
+
+    @Benchmark
+    public void score(Blackhole bh) throws AdeException {
+        m_next = (m_next + 1) % SCORED_INTERVALS;
+        final AnalyzedIntervalImpl interval = m_scoredIntervals.get(m_next);
+        for (IAnalyzedMessageSummary summary : interval.getAnalyzedMessages()) {
+            bh.consume(m_scorer.getScore(summary, interval));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TRAINING_INTERVALS)
+    public LastSeenScorer trainModel() throws AdeException {
+        return train();
+    }
+
+    /**
+     * A message summary with only the statistics the scorer reads.
+     */
+    private static final class DeltasSummary implements IAnalyzedMessageSummary {
+        private final String m_messageId;
+        private final StatisticsChart m_statistics;
+
+        DeltasSummary(String messageId, StatisticsChart statistics) {
+            m_messageId = messageId;
+            m_statistics = statistics;
+        }
+
+        @Override
+        public IMessageSummary getMessageSummary() {
+            return null;
+        }
+
+        @Override
+        public String getMessageId() {
+            return m_messageId;
+        }
+
+        @Override
+        public int getNumberOfAppearances() {
+            return 0;
+        }
+
+        @Override
+        public int getNumberOfFailedAppearances() {
+            return 0;
+        }
+
+        @Override
+        public short[] getTimeLine() {
+            return null;
+        }
+
+        @Override
+        public String getTextSample() {
+            return null;
+        }
+
+        @Override
+        public String getTextSummary() {
+            return null;
+        }
+
+        @Override
+        public int getCriticalWordsScore() {
+            return 0;
+        }
+
+        @Override
+        public StatisticsChart getStatistics() {
+            return m_statistics;
+        }
+
+        @Override
+        public double getFinalAnomaly() {
+            return 0;
+        }
+
+        @Override
+        public Severity getSeverity() {
+            return Severity.UNKNOWN;
+        }
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ 
+    Copyright IBM Corp. 2016
+    This file is part of Anomaly Detection Engine for Linux Logs (ADE).
+
+    ADE is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    ADE is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with ADE.  If not, see <http://www.gnu.org/licenses/>.
+ 
+*/
+package org.openmainframe.ade.benchmarks;
+
+import java.util.Date;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openmainframe.ade.impl.summary.LevenshteinTextSummary;
+import org.openmainframe.ade.impl.summary.Word;
+
+/**
+ * Measures the word level edit distance and summarization of message texts, which the text clustering
+ * performs for every parsed message against the cluster representatives of its component.
+ *
+ * <p>With sameTemplate pairs both texts come from the same message template, so they differ only in
+ * their variable fields, as when a message matches its cluster. Otherwise the templates are random, as
+ * when a message is compared with the other clusters of its component.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LevenshteinTextSummaryBenchmark {
+
+    private static final int PAIRS = 1024;
+
+    @Param({ "true", "false" })
+    public boolean sameTemplate;
+
+    private String[] m_first;
+    private String[] m_second;
+    private Word[][] m_firstWords;
+    private Word[][] m_secondWords;
+    private int m_next = 0;
+
+    @Setup
+    public void setup() {
+        final SyntheticSyslog generator = new SyntheticSyslog(1, SyntheticSyslog.MAX_TEMPLATES, new Date(0));
+        final Random random = new Random(2);
+        m_first = new String[PAIRS];
+        m_second = new String[PAIRS];
+        m_firstWords = new Word[PAIRS][];
+        m_secondWords = new Word[PAIRS][];
+        for (int i = 0; i < PAIRS; ++i) {
+            final int template = random.nextInt(SyntheticSyslog.MAX_TEMPLATES);
+            final int otherTemplate = sameTemplate ? template : random.nextInt(SyntheticSyslog.MAX_TEMPLATES);
+            m_first[i] = generator.messageText(template);
+            m_second[i] = generator.messageText(otherTemplate);
+            m_firstWords[i] = LevenshteinTextSummary.prepareString(m_first[i]);
+            m_secondWords[i] = LevenshteinTextSummary.prepareString(m_second[i]);
+        }
+    }
+
+    private int next() {
+        m_next = (m_next + 1) & (PAIRS - 1);
+        return m_next;
+    }
+
+    @Benchmark
+    public int calcDistance() {
+        final int i = next();
+        return LevenshteinTextSummary.calcDistance(m_first[i], m_second[i]);
+    }
+
+    @Benchmark
+    public int calcDistancePreparedWords() {
+        final int i = next();
+        return LevenshteinTextSummary.calcDistance(m_firstWords[i], m_secondWords[i]);
+    }
+
+    @Benchmark
+    public Word[] prepareString() {
+        return LevenshteinTextSummary.prepareString(m_first[next()]);
+    }
+
+    @Benchmark
+    public String summarizeStrings() {
+        final int i = next();
+        return LevenshteinTextSummary.summarizeStrings(m_first[i], m_second[i]);
+    }
+}
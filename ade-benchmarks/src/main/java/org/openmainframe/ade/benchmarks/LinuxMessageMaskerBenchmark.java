@@ -0,0 +1,109 @@
+/*
+ 
+    Copyright IBM Corp. 2016
+    This file is part of Anomaly Detection Engine for Linux Logs (ADE).
+
+    ADE is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    ADE is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with ADE.  If not, see <http://www.gnu.org/licenses/>.
+ 
+*/
+package org.openmainframe.ade.benchmarks;
+
+import java.io.IOException;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openmainframe.ade.ext.os.parser.LinuxMessageMasker;
+
+/**
+ * Measures the masking of message texts by the Linux message text preprocessor, done once for every
+ * parsed message, in a single scan and by the chain of regular expressions it replaces.
+ *
+ * <p>The baseline texts are the message parts of the first baseline analyze log lines, the synthetic texts
+ * are generated from the synthetic syslog templates. The setup fails if the two maskings differ.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LinuxMessageMaskerBenchmark {
+
+    private static final int TEXTS = 4096;
+
+    @Param({ "baseline", "synthetic" })
+    public String texts;
+
+    private String[] m_texts;
+    private int m_next = 0;
+
+    @Setup
+    public void setup() throws IOException {
+        m_texts = new String[TEXTS];
+        if ("baseline".equals(texts)) {
+            final List<String> lines = BaselineLogs.readLines(BaselineLogs.ANALYZE_LOGS[0], TEXTS);
+            for (int i = 0; i < TEXTS; ++i) {
+                m_texts[i] = messageText(lines.get(i % lines.size()));
+            }
+        } else {
+            final SyntheticSyslog generator = new SyntheticSyslog(1, SyntheticSyslog.MAX_TEMPLATES, new Date(0));
+            for (int i = 0; i < TEXTS; ++i) {
+                m_texts[i] = generator.messageText(i % SyntheticSyslog.MAX_TEMPLATES);
+            }
+        }
+        for (String text : m_texts) {
+            final String expected = LinuxMessageMasker.maskWithPatterns(text);
+            final String actual = LinuxMessageMasker.mask(text);
+            if (!expected.equals(actual)) {
+                throw new IllegalStateException("Maskings of \"" + text + "\" differ: \"" + expected
+                        + "\" and \"" + actual + "\"");
+            }
+        }
+    }
+
+    /**
+     * @return the text after the RFC 3164 header and the component, or the whole line if there is none.
+     */
+    private static String messageText(String line) {
+        final int colon = line.indexOf(": ", 16);
+        return colon < 0 ? line : line.substring(colon + 2);
+    }
+
+    private int next() {
+        m_next = (m_next + 1) & (TEXTS - 1);
+        return m_next;
+    }
+
+    @Benchmark
+    public String mask() {
+        return LinuxMessageMasker.mask(m_texts[next()]);
+    }
+
+    @Benchmark
+    public String maskWithPatterns() {
+        return LinuxMessageMasker.maskWithPatterns(m_texts[next()]);
+    }
+}
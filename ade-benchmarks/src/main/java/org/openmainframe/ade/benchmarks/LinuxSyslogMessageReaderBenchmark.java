@@ -0,0 +1,109 @@
+/*
+ 
+    Copyright IBM Corp. 2016
+    This file is part of Anomaly Detection Engine for Linux Logs (ADE).
+
+    ADE is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    ADE is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with ADE.  If not, see <http://www.gnu.org/licenses/>.
+ 
+*/
+package org.openmainframe.ade.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Date;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openmainframe.ade.AdeInputStream;
+import org.openmainframe.ade.data.IMessageInstance;
+import org.openmainframe.ade.exceptions.AdeException;
+import org.openmainframe.ade.ext.main.helper.AdeExtRequestType;
+import org.openmainframe.ade.ext.os.LinuxAdeExtProperties;
+import org.openmainframe.ade.ext.os.parser.LinuxSyslogMessageReader;
+
+/**
+ * Measures {@link LinuxSyslogMessageReader#readMessageInstance()}: parsing syslog lines, assigning them
+ * message ids by text clustering, and registering their sources. Each invocation reads a whole log of
+ * {@value #LINES} lines with a new reader, as Upload and Analyze do for each input file; the score is
+ * per line.
+ *
+ * <p>The log is either generated by {@link SyntheticSyslog} or the head of the first analyze baseline log.
+ * The first invocations add the clusters and sources to the database; in the steady state all lines match
+ * existing clusters.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dorg.slf4j.simpleLogger.defaultLogLevel=warn")
+public class LinuxSyslogMessageReaderBenchmark {
+
+    static final int LINES = 10000;
+
+    @Param({ "synthetic", "baseline" })
+    public String log;
+
+    private byte[] m_log;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException, AdeException {
+        BenchmarkEnvironment.open(false);
+
+        final List<String> lines;
+        if ("baseline".equals(log)) {
+            lines = BaselineLogs.readLines(BaselineLogs.ANALYZE_LOGS[0], LINES);
+        } else {
+            lines = new SyntheticSyslog(4, SyntheticSyslog.MAX_TEMPLATES, new Date(0)).nextLines(LINES);
+        }
+        if (lines.size() != LINES) {
+            throw new IllegalStateException("Expected " + LINES + " lines, got " + lines.size());
+        }
+        m_log = SyntheticSyslog.toLog(lines);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LINES)
+    public void readMessageInstance(Blackhole bh) throws IOException, AdeException {
+        final LinuxAdeExtProperties props = new LinuxAdeExtProperties();
+        props.setRequestType(AdeExtRequestType.UPLOAD);
+        props.setYear(BaselineLogs.YEAR);
+
+        final AdeInputStream stream = new AdeInputStream(new ByteArrayInputStream(m_log), new Properties());
+        final LinuxSyslogMessageReader reader = new LinuxSyslogMessageReader(stream, "benchmark", props);
+        try {
+            IMessageInstance msg;
+            while ((msg = reader.readMessageInstance()) != null) {
+                bh.consume(msg);
+            }
+        } finally {
+            reader.close();
+        }
+    }
+}
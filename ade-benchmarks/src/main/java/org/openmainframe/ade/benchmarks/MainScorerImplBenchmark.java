@@ -0,0 +1,110 @@
+/*
+ 
+    Copyright IBM Corp. 2016
+    This file is part of Anomaly Detection Engine for Linux Logs (ADE).
+
+    ADE is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    ADE is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with ADE.  If not, see <http://www.gnu.org/licenses/>.
+ 
+*/
+package org.openmainframe.ade.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openmainframe.ade.Ade;
+import org.openmainframe.ade.data.IAnalyzedInterval;
+import org.openmainframe.ade.data.IInterval;
+import org.openmainframe.ade.data.IPeriod;
+import org.openmainframe.ade.data.ISource;
+import org.openmainframe.ade.dataStore.IDataStore;
+import org.openmainframe.ade.exceptions.AdeException;
+import org.openmainframe.ade.flow.IAdeIterator;
+import org.openmainframe.ade.scoringApi.IMainScorer;
+
+/**
+ * Measures {@link IMainScorer#analyze(IInterval)}, which runs all the scorers of a trained model on an
+ * interval and produces the anomaly scores reported by Analyze.
+ *
+ * <p>The model is trained once on the upload baseline log, and the intervals analyzed are the
+ * uploaded intervals themselves, taken round robin.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dorg.slf4j.simpleLogger.defaultLogLevel=warn")
+public class MainScorerImplBenchmark {
+
+    private final List<IMainScorer> m_scorers = new ArrayList<IMainScorer>();
+    private final List<IInterval> m_intervals = new ArrayList<IInterval>();
+    private int m_next = 0;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        BenchmarkEnvironment.open(true);
+
+        final IDataStore dataStore = Ade.getAde().getDataStore();
+        for (ISource source : dataStore.sources().getAllSources()) {
+            // only the uploaded sources have periods, and an analysis group with a model
+            final Collection<IPeriod> periods = dataStore.periods().getAllPeriods(source, null, null);
+            if (periods.isEmpty()) {
+                continue;
+            }
+            final IMainScorer scorer = dataStore.models().loadDefaultModel(
+                    dataStore.sources().getAnalysisGroup(source.getSourceId()));
+            if (scorer == null) {
+                continue;
+            }
+            for (IPeriod period : periods) {
+                final IAdeIterator<IInterval> it =
+                        dataStore.periods().getPeriodIntervals(period, scorer.getRequiredIntervalFramer());
+                try {
+                    it.open();
+                    IInterval interval;
+                    while ((interval = it.getNext()) != null) {
+                        m_scorers.add(scorer);
+                        m_intervals.add(interval);
+                    }
+                    it.close();
+                } finally {
+                    it.quietCleanup();
+                }
+            }
+        }
+        if (m_intervals.isEmpty()) {
+            throw new IllegalStateException("No trained model with uploaded intervals in "
+                    + BenchmarkEnvironment.getHome());
+        }
+    }
+
+    @Benchmark
+    public IAnalyzedInterval analyze() throws AdeException {
+        m_next = (m_next + 1) % m_intervals.size();
+        return m_scorers.get(m_next).analyze(m_intervals.get(m_next));
+    }
+}
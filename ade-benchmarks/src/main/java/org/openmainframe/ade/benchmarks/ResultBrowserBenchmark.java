@@ -0,0 +1,208 @@
+/*
+ 
+    Copyright IBM Corp. 2016
+    This file is part of Anomaly Detection Engine for Linux Logs (ADE).
+
+    ADE is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    ADE is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with ADE.  If not, see <http://www.gnu.org/licenses/>.
+ 
+*/
+package org.openmainframe.ade.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openmainframe.ade.Ade;
+import org.openmainframe.ade.data.IAnalyzedInterval;
+import org.openmainframe.ade.exceptions.AdeException;
+import org.openmainframe.ade.impl.dbUtils.MyJDBCConnection;
+import org.openmainframe.ade.impl.flow.factory.jaxb.FramingFlowType;
+import org.openmainframe.ade.resultBrowser.ResultBrowser;
+
+/**
+ * Measures the queries of the result browser, which dashboards poll, on a database holding a year of
+ * analysis results of ten minute intervals for {@value #SOURCES} sources, over a million intervals.
+ *
+ * <p>The results are generated directly into the tables of a database of their own, in the "results"
+ * subdirectory of the benchmark home, once. Their scores are exponentially distributed with a mean of
+ * 10, so that about 1% of the intervals score {@value #ANOMALOUS_SCORE} or more.
+ *
+ * <p>{@code intervalsPerPeriod} reads a window of days one period at a time, as was needed before the
+ * range query; {@code intervalsInRange} and {@code anomalousIntervalsInRange} read it with a single query.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResultBrowserBenchmark {
+
+    static final int SOURCES = 20;
+    static final double ANOMALOUS_SCORE = 46;
+
+    private static final int DAYS = 366;
+    private static final long DAY = 24 * 60 * 60 * 1000L;
+    private static final long FIRST_DAY = 1420070400000L;
+    private static final String FRAMING_FLOW = "tenMinutesTrain";
+    private static final String SOURCE_PREFIX = "results";
+    private static final String POPULATED_MARKER = ".populated";
+
+    @Param({ "1", "7" })
+    public int days;
+
+    private ResultBrowser m_resultBrowser;
+    private FramingFlowType m_framingFlow;
+    private int[] m_sourceInternalIds;
+    private final Random m_random = new Random(7);
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        final File home = new File(BenchmarkEnvironment.getHome(), "results");
+        BenchmarkEnvironment.open(home, false);
+
+        m_framingFlow = Ade.getAde().getFlowFactory().getAllFramingFlows().get(FRAMING_FLOW);
+        if (m_framingFlow == null) {
+            throw new IllegalStateException("Framing flow " + FRAMING_FLOW + " not found in the flow layout");
+        }
+        m_sourceInternalIds = new int[SOURCES];
+        for (int i = 0; i < SOURCES; ++i) {
+            m_sourceInternalIds[i] = BenchmarkEnvironment.getOrAddSource(SOURCE_PREFIX + i + ".bench").getSourceInternalId();
+        }
+        final File marker = new File(home, POPULATED_MARKER);
+        if (!marker.exists()) {
+            populate();
+            if (!marker.createNewFile()) {
+                throw new IOException("Failed creating " + marker);
+            }
+        }
+        m_resultBrowser = ResultBrowser.create(MyJDBCConnection.getConnection());
+    }
+
+    private void populate() throws AdeException, SQLException {
+        System.out.println("Generating " + SOURCES * DAYS * (DAY / m_framingFlow.getDuration())
+                + " analysis results. This is done once.");
+        final Connection con = MyJDBCConnection.getConnection();
+        final boolean autoCommit = con.getAutoCommit();
+        con.setAutoCommit(false);
+        final PreparedStatement periods = con.prepareStatement("insert into PERIODS (SOURCE_INTERNAL_ID, START_TIME, END_TIME) "
+                + "values (?,?,?)", Statement.RETURN_GENERATED_KEYS);
+        final PreparedStatement summaries = con.prepareStatement("insert into PERIOD_SUMMARIES (PERIOD_INTERNAL_ID, "
+                + "SUMMARY_TYPE_INTERNAL_ID) values (?,?)");
+        final PreparedStatement results = con.prepareStatement("insert into ANALYSIS_RESULTS (PERIOD_INTERNAL_ID, START_TIME, "
+                + "INTERVAL_SERIAL_NUM, INTERVAL_SCORE, NUM_UNIQUE_MESSAGE_IDS, ADE_VERSION, MODEL_INTERNAL_ID) values (?,?,?,?,?,?,?)");
+        final Random random = new Random(8);
+        final int intervalsPerDay = (int) (DAY / m_framingFlow.getDuration());
+        for (int day = 0; day < DAYS; ++day) {
+            final long dayStart = FIRST_DAY + day * DAY;
+            for (int sourceInternalId : m_sourceInternalIds) {
+                periods.setInt(1, sourceInternalId);
+                periods.setTimestamp(2, new Timestamp(dayStart));
+                periods.setTimestamp(3, new Timestamp(dayStart + DAY));
+                periods.executeUpdate();
+                final ResultSet keys = periods.getGeneratedKeys();
+                keys.next();
+                final int periodInternalId = keys.getInt(1);
+                keys.close();
+
+                summaries.setInt(1, periodInternalId);
+                summaries.setInt(2, m_framingFlow.getDatabaseId());
+                summaries.executeUpdate();
+
+                for (int serialNum = 0; serialNum < intervalsPerDay; ++serialNum) {
+                    int pos = 1;
+                    results.setInt(pos++, periodInternalId);
+                    results.setLong(pos++, dayStart + serialNum * m_framingFlow.getDuration());
+                    results.setInt(pos++, serialNum);
+                    results.setDouble(pos++, -10 * Math.log(1 - random.nextDouble()));
+                    results.setInt(pos++, 1 + random.nextInt(50));
+                    results.setString(pos++, "1.0.4");
+                    results.setInt(pos++, 1);
+                    results.addBatch();
+                }
+                results.executeBatch();
+            }
+            con.commit();
+        }
+        periods.close();
+        summaries.close();
+        results.close();
+        con.setAutoCommit(autoCommit);
+    }
+
+    private int nextSource() {
+        return m_sourceInternalIds[m_random.nextInt(SOURCES)];
+    }
+
+    private long nextWindowStart() {
+        return FIRST_DAY + m_random.nextInt(DAYS - days + 1) * DAY;
+    }
+
+    @Benchmark
+    public Date lastPeriodForSource() throws AdeException {
+        return m_resultBrowser.getLastPeriodForSource(nextSource());
+    }
+
+    @Benchmark
+    public Set<String> allAnalyzedSources() throws AdeException {
+        return m_resultBrowser.getAllAnalyzedSources();
+    }
+
+    @Benchmark
+    public int intervalsPerPeriod() throws AdeException {
+        final int source = nextSource();
+        final long start = nextWindowStart();
+        int count = 0;
+        for (int day = 0; day < days; ++day) {
+            count += m_resultBrowser.getAnalyzedIntervals(source, new Date(start + day * DAY), m_framingFlow).size();
+        }
+        return count;
+    }
+
+    @Benchmark
+    public List<IAnalyzedInterval> intervalsInRange() throws AdeException {
+        final long start = nextWindowStart();
+        return m_resultBrowser.getAnalyzedIntervals(nextSource(), new Date(start), new Date(start + days * DAY),
+                Double.NEGATIVE_INFINITY, m_framingFlow);
+    }
+
+    @Benchmark
+    public List<IAnalyzedInterval> anomalousIntervalsInRange() throws AdeException {
+        final long start = nextWindowStart();
+        return m_resultBrowser.getAnalyzedIntervals(nextSource(), new Date(start), new Date(start + days * DAY),
+                ANOMALOUS_SCORE, m_framingFlow);
+    }
+}
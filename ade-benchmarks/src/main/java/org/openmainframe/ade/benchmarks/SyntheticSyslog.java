@@ -0,0 +1,229 @@
+/*
+ 
+    Copyright IBM Corp. 2016
+    This file is part of Anomaly Detection Engine for Linux Logs (ADE).
+
+    ADE is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    ADE is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with ADE.  If not, see <http://www.gnu.org/licenses/>.
+ 
+*/
+package org.openmainframe.ade.benchmarks;
+
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.TimeZone;
+
+/**
+ * A deterministic generator of RFC 3164 syslog lines.
+ *
+ * <p>Each generated message is an instance of one of a fixed set of templates, with its variable
+ * fields (process ids, addresses, user names, ports, hex ids, paths and numbers) filled at random.
+ * The number of templates in use controls how many distinct message ids ADE is expected to find.
+ * The same seed always produces the same lines.
+ */
+public final class SyntheticSyslog {
+
+    /** The host name used in the generated lines */
+    public static final String HOST = "bench1.openmainframe.org";
+
+    /** Components of the templates, aligned with {@link #TEMPLATES} */
+    private static final String[] COMPONENTS = {
+        "sshd", "sshd", "sshd", "sshd",
+        "kernel", "kernel", "kernel", "kernel",
+        "/usr/sbin/cron", "/usr/sbin/cron",
+        "sudo", "sudo",
+        "postfix/smtpd", "postfix/smtpd", "postfix/qmgr",
+        "systemd", "systemd", "systemd",
+        "dhclient", "dhclient",
+        "ntpd", "ntpd",
+        "su", "auditd",
+    };
+
+    /**
+     * Message templates. Placeholders are replaced as follows:
+     * %u user, %i IPv4 address, %p port, %h hex id, %n number, %f path, %d device, %s service.
+     */
+    private static final String[] TEMPLATES = {
+        "Accepted publickey for %u from %i port %p ssh2",
+        "pam_unix2(sshd:session): session opened for user %u by (uid=%n)",
+        "Received disconnect from %i: 11: disconnected by user",
+        "Failed password for invalid user %u from %i port %p ssh2",
+        "EXT3-fs: mounted filesystem with ordered data mode on %d.",
+        "%d: Write Protect is off",
+        "device %d entered promiscuous mode",
+        "Out of memory: Killed process %n (%s) total-vm:%nkB, anon-rss:%nkB",
+        "pam_unix2(crond:session): session finished for user %u: service=crond, tty=cron",
+        "(%u) CMD (%f > /dev/null 2>&1)",
+        "%u : TTY=pts/%n ; PWD=%f ; USER=root ; COMMAND=%f",
+        "pam_unix2(sudo:session): session opened for user root",
+        "connect from unknown[%i]",
+        "lost connection after CONNECT from unknown[%i]",
+        "%h: from=<%u@openmainframe.org>, size=%n, nrcpt=1 (queue active)",
+        "Started Session %n of user %u.",
+        "Starting %s...",
+        "%s.service: main process exited, code=exited, status=%n/FAILURE",
+        "DHCPREQUEST on %d to %i port %p",
+        "bound to %i -- renewal in %n seconds.",
+        "synchronized to %i, stratum %n",
+        "time reset +%n.%n s",
+        "(to root) %u on /dev/pts/%n",
+        "audit(%n.%n:%n): audit_pid=%n old=%n by auid=%n",
+    };
+
+    private static final String[] USERS = {
+        "root", "support", "admin", "oracle", "db2inst1", "nobody", "backup", "www", "jenkins", "monitor",
+    };
+
+    private static final String[] SERVICES = {
+        "httpd", "sshd", "postfix", "crond", "ntpd", "rsyslog", "java", "db2sysc",
+    };
+
+    private static final String[] DEVICES = {
+        "sda1", "sdb", "dasda", "eth0", "eth1", "hsi0", "vswitch0", "loop0",
+    };
+
+    /** Number of templates available */
+    public static final int MAX_TEMPLATES = TEMPLATES.length;
+
+    private final Random m_random;
+    private final int m_templateCount;
+    private final SimpleDateFormat m_dateFormat;
+    private long m_time;
+
+    /**
+     * @param seed seed of the random generator.
+     * @param templateCount the number of templates to draw messages from, at most {@link #MAX_TEMPLATES}.
+     * @param startTime time stamp of the first generated line.
+     */
+    public SyntheticSyslog(long seed, int templateCount, Date startTime) {
+        if (templateCount <= 0 || templateCount > MAX_TEMPLATES) {
+            throw new IllegalArgumentException("templateCount must be between 1 and " + MAX_TEMPLATES);
+        }
+        m_random = new Random(seed);
+        m_templateCount = templateCount;
+        m_time = startTime.getTime();
+        m_dateFormat = new SimpleDateFormat("MMM dd HH:mm:ss", Locale.US);
+        m_dateFormat.setTimeZone(TimeZone.getTimeZone("GMT"));
+    }
+
+    /**
+     * Generates the text of the next message, without the syslog header.
+     * The component of the message is returned in component[0], if not null.
+     */
+    public String nextMessageText(String[] component) {
+        final int template = m_random.nextInt(m_templateCount);
+        if (component != null) {
+            component[0] = COMPONENTS[template];
+        }
+        return messageText(template);
+    }
+
+    /** Generates the text of a message of the given template, without the syslog header. */
+    public String messageText(int template) {
+        return fill(TEMPLATES[template]);
+    }
+
+    /** @return the component that issues messages of the given template */
+    public static String component(int template) {
+        return COMPONENTS[template];
+    }
+
+    /** Generates the next syslog line. Consecutive lines are a few seconds apart. */
+    public String nextLine() {
+        final String[] component = new String[1];
+        final String text = nextMessageText(component);
+        m_time += 1000L * (1 + m_random.nextInt(5));
+        final StringBuilder sb = new StringBuilder(128);
+        sb.append(m_dateFormat.format(new Date(m_time))).append(' ').append(HOST).append(' ').append(component[0]);
+        if (!"kernel".equals(component[0])) {
+            sb.append('[').append(1000 + m_random.nextInt(30000)).append(']');
+        }
+        sb.append(": ").append(text);
+        return sb.toString();
+    }
+
+    /** @return the time stamp of the last generated line */
+    public long getTime() {
+        return m_time;
+    }
+
+    /** Generates the given number of syslog lines. */
+    public List<String> nextLines(int count) {
+        final List<String> res = new ArrayList<String>(count);
+        for (int i = 0; i < count; ++i) {
+            res.add(nextLine());
+        }
+        return res;
+    }
+
+    /** Joins the given lines into the bytes of a log file. */
+    public static byte[] toLog(List<String> lines) {
+        final StringBuilder sb = new StringBuilder(lines.size() * 128);
+        for (String line : lines) {
+            sb.append(line).append('\n');
+        }
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private String fill(String template) {
+        final StringBuilder sb = new StringBuilder(template.length() + 32);
+        for (int i = 0; i < template.length(); ++i) {
+            final char c = template.charAt(i);
+            if (c != '%' || i + 1 == template.length()) {
+                sb.append(c);
+                continue;
+            }
+            final char field = template.charAt(++i);
+            switch (field) {
+                case 'u':
+                    sb.append(pick(USERS));
+                    break;
+                case 'i':
+                    sb.append(10 + m_random.nextInt(200)).append('.').append(m_random.nextInt(256)).append('.')
+                            .append(m_random.nextInt(256)).append('.').append(1 + m_random.nextInt(254));
+                    break;
+                case 'p':
+                    sb.append(1024 + m_random.nextInt(64000));
+                    break;
+                case 'h':
+                    sb.append(Long.toHexString(m_random.nextLong() & 0xFFFFFFFFFFL).toUpperCase(Locale.US));
+                    break;
+                case 'n':
+                    sb.append(m_random.nextInt(100000));
+                    break;
+                case 'f':
+                    sb.append("/opt/").append(pick(SERVICES)).append("/bin/").append(pick(USERS)).append(".sh");
+                    break;
+                case 'd':
+                    sb.append(pick(DEVICES));
+                    break;
+                case 's':
+                    sb.append(pick(SERVICES));
+                    break;
+                default:
+                    sb.append('%').append(field);
+                    break;
+            }
+        }
+        return sb.toString();
+    }
+
+    private String pick(String[] values) {
+        return values[m_random.nextInt(values.length)];
+    }
+}
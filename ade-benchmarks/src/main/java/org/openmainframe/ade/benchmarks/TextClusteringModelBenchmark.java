@@ -0,0 +1,100 @@
+/*
+ 
+    Copyright IBM Corp. 2016
+    This file is part of Anomaly Detection Engine for Linux Logs (ADE).
+
+    ADE is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    ADE is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with ADE.  If not, see <http://www.gnu.org/licenses/>.
+ 
+*/
+package org.openmainframe.ade.benchmarks;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openmainframe.ade.Ade;
+import org.openmainframe.ade.exceptions.AdeException;
+import org.openmainframe.ade.ext.os.parser.LinuxMessageTextPreprocessor;
+import org.openmainframe.ade.impl.data.TextClusterData;
+import org.openmainframe.ade.impl.data.TextClusteringComponentModel;
+import org.openmainframe.ade.impl.data.TextClusteringModel;
+
+/**
+ * Measures {@link TextClusteringModel#getOrAddCluster(String, Date)}, which assigns a message id to
+ * every parsed message, with the Linux message text preprocessor the syslog reader uses.
+ *
+ * <p>All messages go to a single component, so the number of templates is the number of clusters the
+ * model ends up with. When updateDataStore is true the model is linked to the database as during upload:
+ * new clusters and last observed times are written to the TEXT_CLUSTERS table.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dorg.slf4j.simpleLogger.defaultLogLevel=warn")
+public class TextClusteringModelBenchmark {
+
+    private static final int MESSAGES = 4096;
+
+    @Param({ "4", "24" })
+    public int templates;
+
+    @Param({ "false", "true" })
+    public boolean updateDataStore;
+
+    private TextClusteringModel m_model;
+    private String[] m_texts;
+    private long m_time;
+    private int m_next = 0;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        BenchmarkEnvironment.open(false);
+
+        final TextClusteringComponentModel componentModel =
+                Ade.getAde().getActionsFactory().getTextClusteringModel(updateDataStore);
+        componentModel.setMessageTextPreprocessor(new LinuxMessageTextPreprocessor());
+        // a component of its own for each trial, so clusters of earlier runs are not reused
+        final String component = "bench" + templates + "_" + System.currentTimeMillis();
+        m_model = componentModel.getTextClusteringModel(component,
+                new TextClusteringComponentModel.SimpleThresholdSetter());
+
+        final SyntheticSyslog generator = new SyntheticSyslog(3, templates, new Date(0));
+        m_texts = new String[MESSAGES];
+        for (int i = 0; i < MESSAGES; ++i) {
+            m_texts[i] = generator.nextMessageText(null);
+        }
+        m_time = System.currentTimeMillis();
+    }
+
+    @Benchmark
+    public TextClusterData getOrAddCluster() throws AdeException {
+        m_next = (m_next + 1) & (MESSAGES - 1);
+        // advancing time stamps, so last observed times are updated as in a real upload
+        m_time += 1000;
+        return m_model.getOrAddCluster(m_texts[m_next], new Date(m_time));
+    }
+}
@@ -23,6 +23,8 @@ import java.io.File;
 import java.sql.Connection;
 
 import org.openmainframe.ade.actions.IActionsFactory;
+import org.openmainframe.ade.core.statistics.MetricsRegistry;
+import org.openmainframe.ade.core.statistics.MetricsReporter;
 import org.openmainframe.ade.data.IDataFactory;
 import org.openmainframe.ade.dataStore.IDataStore;
 import org.openmainframe.ade.exceptions.AdeException;
@@ -96,6 +98,17 @@ public class AdeInternal extends Ade {
                 m_configProps.getOutputPath(), m_configProps.getAnalysisOutputPath(), m_configProps.getTempPath());
 
         m_userSpecifications = createUserSpecifications(m_configProps);
+        startMetrics(m_configProps.metrics());
+    }
+
+    private static void startMetrics(IAdeConfigProperties.IMetricsParameters metricsParams) {
+        MetricsRegistry.setEnabled(metricsParams.isMetricsEnabled());
+        if (metricsParams.isMetricsEnabled()) {
+            MetricsReporter.start(metricsParams.getMetricsDumpFile(), metricsParams.getMetricsDumpPeriod(),
+                    metricsParams.isMetricsJmxEnabled());
+        } else {
+            MetricsReporter.stop();
+        }
     }
 
     private final UserSpecifications createUserSpecifications(IAdeConfigProperties configProps) throws AdeException {
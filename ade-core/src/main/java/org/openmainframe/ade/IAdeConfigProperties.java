@@ -169,6 +169,16 @@ public interface IAdeConfigProperties {
 
         String getDatabaseSchema();
 
+        /** Returns the maximal number of pooled database connections lent out at once */
+        int getConnectionPoolSize();
+
+        /** Returns the maximal number of idle prepared statements cached per pooled connection */
+        int getStatementCacheSize();
+
+        /** Returns the maximal time, in milli-seconds, an update of the last observed time of a text cluster
+         * is buffered before it is written to the database */
+        long getTextClusterFlushPeriod();
+
         void setDatabasePassword(String password) throws AdeUsageException;
     }
 
@@ -192,9 +202,28 @@ public interface IAdeConfigProperties {
 
     }
 
+    /** An interface for controlling collection of runtime metrics */
+    interface IMetricsParameters {
+
+        /** Should runtime metrics (counters, latencies and per source gauges) be collected */
+        boolean isMetricsEnabled();
+
+        /** Returns the file metrics are periodically dumped to, or null for no dump */
+        File getMetricsDumpFile();
+
+        /** Returns the time between metrics dumps, in milliseconds */
+        long getMetricsDumpPeriod();
+
+        /** Should the metrics be exposed through JMX */
+        boolean isMetricsJmxEnabled();
+    }
+
     /** @return An interface for defining summary */
     ILogProcessingParameters logProcessing();
 
+    /** @return An interface for runtime metrics parameters */
+    IMetricsParameters metrics();
+
     /** @return An interface for scoring algorithms parameters */
     IScoringParameters scoring();
 
@@ -210,6 +239,36 @@ public interface IAdeConfigProperties {
      */
     int getMinimalRequieredTrainPeriod();
 
+    /**
+     * @return true if scorers that support it are trained by merging training statistics kept
+     * per period, rather than by reading all their training intervals.
+     */
+    boolean getUsePeriodTrainingStatistics();
+
+    /**
+     * @return the age in days after which periods are deleted by the retention, or 0 to
+     * keep all periods.
+     */
+    int getRetentionPurgeAfterDays();
+
+    /**
+     * @return the age in days after which the message summaries of periods are compacted by
+     * the retention, or 0 to never compact them.
+     */
+    int getRetentionCompactAfterDays();
+
+    /**
+     * @return the path to export periods to before the retention deletes them, or null to
+     * delete them without exporting.
+     */
+    String getRetentionArchivePath();
+
+    /**
+     * @return the number of intervals whose message summaries the retention deletes or
+     * compacts in each transaction.
+     */
+    int getRetentionBatchIntervals();
+
     /**
      * @return the possibly user provided class instantiation for generating
      * output file names
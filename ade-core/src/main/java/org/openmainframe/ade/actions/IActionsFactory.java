@@ -90,4 +90,16 @@ public interface IActionsFactory {
      */
     TextClusteringComponentModel getTextClusteringModel(boolean updateDataStore);
 
+    /**
+     * Sets whether the {@link TextClusteringComponentModel} linked to the datastore is kept between calls
+     * to {@link #getTextClusteringModel(boolean)}. A long running process sets this, so that the clusters
+     * of each component are read from the datastore once rather than for every input stream. The kept model
+     * still picks up clusters added to the datastore by other processes. The model is kept per thread, so
+     * that threads processing input streams concurrently do not share it.
+     * 
+     * @param retain true to return the same linked model from every call of a thread, false to create a new
+     *     one each time.
+     */
+    void setRetainTextClusteringModel(boolean retain);
+
 }
@@ -0,0 +1,206 @@
+/*
+ 
+    Copyright IBM Corp. 2016
+    This file is part of Anomaly Detection Engine for Linux Logs (ADE).
+
+    ADE is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    ADE is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with ADE.  If not, see <http://www.gnu.org/licenses/>.
+ 
+*/
+package org.openmainframe.ade.core;
+
+import java.util.Arrays;
+
+/**
+ * Counts pairs of non negative int indices, e.g. co-occurrences of dense message
+ * indices, without boxing.
+ * <p>
+ * The counts are kept in an open addressing table keyed by the pair packed in a long.
+ * The columns of each row are also listed in the order they were first counted, so
+ * that a row can be traversed without scanning the table, as in a sparse row matrix.
+ */
+public class IntPairCounter {
+
+    private static final long EMPTY = -1L;
+    private static final int MIN_CAPACITY = 16;
+    private static final long HASH_MULTIPLIER = 0x9E3779B97F4A7C15L;
+
+    private long[] mKeys;
+    private int[] mCounts;
+    private int mSize;
+    private int mShift;
+
+    private int[][] mRowColumns = new int[0][];
+    private int[] mRowSizes = new int[0];
+
+    public IntPairCounter() {
+        this(MIN_CAPACITY);
+    }
+
+    /**
+     * @param expectedPairs the number of distinct pairs expected, to avoid rehashing.
+     */
+    public IntPairCounter(int expectedPairs) {
+        int capacity = MIN_CAPACITY;
+        while (capacity < expectedPairs * 2 && capacity < (1 << 30)) {
+            capacity <<= 1;
+        }
+        allocate(capacity);
+    }
+
+    /**
+     * Increments the count of a pair.
+     * @return the new count of the pair.
+     */
+    public final int add(int row, int column) {
+        return add(row, column, 1);
+    }
+
+    /**
+     * Adds to the count of a pair.
+     * @return the new count of the pair.
+     */
+    public final int add(int row, int column, int count) {
+        if (row < 0 || column < 0) {
+            throw new IllegalArgumentException("Negative index (" + row + "," + column + ")");
+        }
+        final long key = pack(row, column);
+        int slot = slot(key);
+        while (true) {
+            final long current = mKeys[slot];
+            if (current == key) {
+                mCounts[slot] += count;
+                return mCounts[slot];
+            }
+            if (current == EMPTY) {
+                break;
+            }
+            slot = (slot + 1) & (mKeys.length - 1);
+        }
+        mKeys[slot] = key;
+        mCounts[slot] = count;
+        addToRow(row, column);
+        if (++mSize * 2 > mKeys.length) {
+            rehash();
+        }
+        return count;
+    }
+
+    /**
+     * @return the count of a pair, 0 if it was never counted.
+     */
+    public final int get(int row, int column) {
+        if (row < 0 || column < 0) {
+            return 0;
+        }
+        final long key = pack(row, column);
+        int slot = slot(key);
+        while (true) {
+            final long current = mKeys[slot];
+            if (current == key) {
+                return mCounts[slot];
+            }
+            if (current == EMPTY) {
+                return 0;
+            }
+            slot = (slot + 1) & (mKeys.length - 1);
+        }
+    }
+
+    /**
+     * @return the number of distinct pairs counted.
+     */
+    public final int size() {
+        return mSize;
+    }
+
+    /**
+     * @return one more than the highest row counted.
+     */
+    public final int getRowCount() {
+        return mRowSizes.length;
+    }
+
+    /**
+     * @return the number of distinct columns counted in the given row.
+     */
+    public final int getRowSize(int row) {
+        return row < mRowSizes.length ? mRowSizes[row] : 0;
+    }
+
+    /**
+     * @return the columns counted in the given row, in the order they were first counted.
+     */
+    public final int[] getRowColumns(int row) {
+        if (row >= mRowSizes.length || mRowSizes[row] == 0) {
+            return new int[0];
+        }
+        return Arrays.copyOf(mRowColumns[row], mRowSizes[row]);
+    }
+
+    public final void clear() {
+        Arrays.fill(mKeys, EMPTY);
+        mSize = 0;
+        mRowColumns = new int[0][];
+        mRowSizes = new int[0];
+    }
+
+    private void addToRow(int row, int column) {
+        if (row >= mRowSizes.length) {
+            final int rows = Math.max(row + 1, mRowSizes.length * 2);
+            mRowColumns = Arrays.copyOf(mRowColumns, rows);
+            mRowSizes = Arrays.copyOf(mRowSizes, rows);
+        }
+        int[] columns = mRowColumns[row];
+        if (columns == null) {
+            columns = new int[4];
+            mRowColumns[row] = columns;
+        } else if (mRowSizes[row] == columns.length) {
+            columns = Arrays.copyOf(columns, columns.length * 2);
+            mRowColumns[row] = columns;
+        }
+        columns[mRowSizes[row]++] = column;
+    }
+
+    private void allocate(int capacity) {
+        mKeys = new long[capacity];
+        Arrays.fill(mKeys, EMPTY);
+        mCounts = new int[capacity];
+        mShift = Long.numberOfLeadingZeros(capacity - 1);
+    }
+
+    private void rehash() {
+        final long[] keys = mKeys;
+        final int[] counts = mCounts;
+        allocate(keys.length * 2);
+        for (int i = 0; i < keys.length; ++i) {
+            if (keys[i] == EMPTY) {
+                continue;
+            }
+            int slot = slot(keys[i]);
+            while (mKeys[slot] != EMPTY) {
+                slot = (slot + 1) & (mKeys.length - 1);
+            }
+            mKeys[slot] = keys[i];
+            mCounts[slot] = counts[i];
+        }
+    }
+
+    private int slot(long key) {
+        return (int) ((key * HASH_MULTIPLIER) >>> mShift);
+    }
+
+    private static long pack(int row, int column) {
+        return ((long) row << 32) | column;
+    }
+}
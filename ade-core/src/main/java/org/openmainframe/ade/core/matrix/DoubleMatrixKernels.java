@@ -0,0 +1,139 @@
+/*
+ 
+    Copyright IBM Corp. 2016
+    This file is part of Anomaly Detection Engine for Linux Logs (ADE).
+
+    ADE is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    ADE is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with ADE.  If not, see <http://www.gnu.org/licenses/>.
+ 
+*/
+package org.openmainframe.ade.core.matrix;
+
+import java.util.Arrays;
+
+/**
+ * Cache-blocked kernels on the double[][] storage of matrices.
+ * <p>
+ * The kernels add the products of each cell in increasing order of the inner index, as a
+ * plain dot product does, so their results are identical to those of the naive loops.
+ * Blocking only changes the order in which the cells are computed: the loops are tiled
+ * so that the part of the right hand matrix being read stays in cache while it is used
+ * for all the rows of the left hand one.
+ */
+final class DoubleMatrixKernels {
+
+    /** Rows of the right hand matrix in a block of {@link #multiply}. */
+    static final int INNER_BLOCK = 64;
+    /** Columns of the right hand matrix in a block of {@link #multiply}. */
+    static final int COLUMN_BLOCK = 256;
+    /** Rows of each matrix in a block of {@link #multiplyTransposed} and {@link #transpose}. */
+    static final int ROW_BLOCK = 32;
+
+    private DoubleMatrixKernels() {
+        // Private constructor to hide the implicit public one.
+    }
+
+    /**
+     * Computes res = a * b, where a is n x k and b is k x m. res must be n x m, and must
+     * not share rows with a or b.
+     */
+    static void multiply(double[][] a, double[][] b, double[][] res, int n, int k, int m) {
+        for (int i = 0; i < n; ++i) {
+            Arrays.fill(res[i], 0, m, 0);
+        }
+        for (int jj = 0; jj < m; jj += COLUMN_BLOCK) {
+            final int jEnd = Math.min(jj + COLUMN_BLOCK, m);
+            for (int kk = 0; kk < k; kk += INNER_BLOCK) {
+                final int kEnd = Math.min(kk + INNER_BLOCK, k);
+                for (int i = 0; i < n; ++i) {
+                    final double[] ai = a[i];
+                    final double[] ri = res[i];
+                    for (int p = kk; p < kEnd; ++p) {
+                        final double aip = ai[p];
+                        final double[] bp = b[p];
+                        for (int j = jj; j < jEnd; ++j) {
+                            ri[j] += aip * bp[j];
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Computes res = a * b', where a is n x k and b is m x k, i.e. the dot products of the
+     * rows of a with the rows of b. Both are read along their rows. res must be n x m, and
+     * must not share rows with a or b.
+     */
+    static void multiplyTransposed(double[][] a, double[][] b, double[][] res, int n, int k, int m) {
+        for (int ii = 0; ii < n; ii += ROW_BLOCK) {
+            final int iEnd = Math.min(ii + ROW_BLOCK, n);
+            for (int jj = 0; jj < m; jj += ROW_BLOCK) {
+                final int jEnd = Math.min(jj + ROW_BLOCK, m);
+                for (int i = ii; i < iEnd; ++i) {
+                    final double[] ai = a[i];
+                    final double[] ri = res[i];
+                    int j = jj;
+                    // four dot products at a time, as each one alone is a chain of dependent additions
+                    for (; j + 3 < jEnd; j += 4) {
+                        final double[] b0 = b[j];
+                        final double[] b1 = b[j + 1];
+                        final double[] b2 = b[j + 2];
+                        final double[] b3 = b[j + 3];
+                        double sum0 = 0;
+                        double sum1 = 0;
+                        double sum2 = 0;
+                        double sum3 = 0;
+                        for (int p = 0; p < k; ++p) {
+                            final double aip = ai[p];
+                            sum0 += aip * b0[p];
+                            sum1 += aip * b1[p];
+                            sum2 += aip * b2[p];
+                            sum3 += aip * b3[p];
+                        }
+                        ri[j] = sum0;
+                        ri[j + 1] = sum1;
+                        ri[j + 2] = sum2;
+                        ri[j + 3] = sum3;
+                    }
+                    for (; j < jEnd; ++j) {
+                        final double[] bj = b[j];
+                        double sum = 0;
+                        for (int p = 0; p < k; ++p) {
+                            sum += ai[p] * bj[p];
+                        }
+                        ri[j] = sum;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Computes res = a', where a is n x m. res must be m x n.
+     */
+    static void transpose(double[][] a, double[][] res, int n, int m) {
+        for (int ii = 0; ii < n; ii += ROW_BLOCK) {
+            final int iEnd = Math.min(ii + ROW_BLOCK, n);
+            for (int jj = 0; jj < m; jj += ROW_BLOCK) {
+                final int jEnd = Math.min(jj + ROW_BLOCK, m);
+                for (int i = ii; i < iEnd; ++i) {
+                    final double[] ai = a[i];
+                    for (int j = jj; j < jEnd; ++j) {
+                        res[j][i] = ai[j];
+                    }
+                }
+            }
+        }
+    }
+}
@@ -122,44 +122,92 @@ public final class DoubleMatrixOps implements Serializable {
         return multiply(mat1, mat2, null);
     }
 
+    /**
+     * Computes mat1 * mat2 into res, or into a new matrix if res is null.
+     * The product is computed by {@link DoubleMatrixKernels} on the 2d-arrays of the matrices,
+     * and written directly to the storage of res if it is a {@link DoubleMatrix}.
+     */
     public static IDoubleMatrix multiply(IDoubleMatrix mat1, IDoubleMatrix mat2, IDoubleMatrix res) {
         if (mat1.getColNum() != mat2.getRowNum()) {
             throw new AdeCoreIllegalArgumentException(String.format("mat1 column count %d != mat2 row count %d", mat1.getColNum(), mat2.getRowNum()));
         }
+        final int n = mat1.getRowNum();
+        final int k = mat1.getColNum();
+        final int m = mat2.getColNum();
+        res = resultMatrix(res, n, m);
+        final double[][] m1 = mat1.get2dArray();
+        final double[][] m2 = mat2.get2dArray();
+        final double[][] r = resultStorage(res, m1, m2);
+        DoubleMatrixKernels.multiply(m1, m2, r, n, k, m);
+        return copyToResult(r, res);
+    }
+
+    /**
+     * Same as {@link #multiply(IDoubleMatrix, IDoubleMatrix, IDoubleMatrix)}.
+     */
+    public static IDoubleMatrix multiply2(IDoubleMatrix mat1, IDoubleMatrix mat2, IDoubleMatrix res) {
+        return multiply(mat1, mat2, res);
+    }
+
+    public static IDoubleMatrix multiplyTransposed(IDoubleMatrix mat1, IDoubleMatrix mat2) {
+        return multiplyTransposed(mat1, mat2, null);
+    }
+
+    /**
+     * Computes mat1 * mat2' into res, or into a new matrix if res is null, without
+     * transposing mat2: each cell is the dot product of a row of mat1 with a row of mat2.
+     * This is e.g. the Gram matrix of the rows of mat1 when mat2 is mat1.
+     */
+    public static IDoubleMatrix multiplyTransposed(IDoubleMatrix mat1, IDoubleMatrix mat2, IDoubleMatrix res) {
+        if (mat1.getColNum() != mat2.getColNum()) {
+            throw new AdeCoreIllegalArgumentException(String.format("mat1 column count %d != mat2 column count %d", mat1.getColNum(), mat2.getColNum()));
+        }
+        final int n = mat1.getRowNum();
+        final int k = mat1.getColNum();
+        final int m = mat2.getRowNum();
+        res = resultMatrix(res, n, m);
+        final double[][] m1 = mat1.get2dArray();
+        final double[][] m2 = mat2 == mat1 ? m1 : mat2.get2dArray();
+        final double[][] r = resultStorage(res, m1, m2);
+        DoubleMatrixKernels.multiplyTransposed(m1, m2, r, n, k, m);
+        return copyToResult(r, res);
+    }
+
+    /**
+     * @return res, or a new matrix of n rows and m columns if it is null.
+     */
+    private static IDoubleMatrix resultMatrix(IDoubleMatrix res, int n, int m) {
         if (res == null) {
-            res = new DoubleMatrix(mat1.getRowNum(), mat2.getColNum());
+            return new DoubleMatrix(n, m);
         }
-        for (int i = 0; i < res.getRowNum(); ++i) {
-            for (int j = 0; j < res.getColNum(); ++j) {
-                res.set(i, j, DoubleVectorOps.dotProduct(mat1.getRow(i), mat2.getCol(j)));
-            }
+        if (res.getRowNum() != n || res.getColNum() != m) {
+            throw new AdeCoreIllegalArgumentException(String.format("Expected a %d x %d result matrix. Matrix size is %d x %d", n, m, res.getRowNum(), res.getColNum()));
         }
         return res;
     }
 
-    public static IDoubleMatrix multiply2(IDoubleMatrix mat1, IDoubleMatrix mat2, IDoubleMatrix res) {
-        if (mat1.getColNum() != mat2.getRowNum()) {
-            throw new AdeCoreIllegalArgumentException(String.format("mat1 column count %d != mat2 row count %d", mat1.getColNum(), mat2.getRowNum()));
-        }
-        final int N = mat1.getRowNum();
-        final int K = mat1.getColNum();
-        final int M = mat2.getColNum();
-        if (res == null) {
-            res = new DoubleMatrix(N, M);
+    /**
+     * @return the storage of res if a kernel can write to it directly, i.e. if it is a
+     *     {@link DoubleMatrix} that is not one of the operands, otherwise a new array.
+     */
+    private static double[][] resultStorage(IDoubleMatrix res, double[][] m1, double[][] m2) {
+        if (res instanceof DoubleMatrix) {
+            final double[][] r = res.get2dArray();
+            if (r != m1 && r != m2) {
+                return r;
+            }
         }
+        return new double[res.getRowNum()][res.getColNum()];
+    }
 
-        final double[][] r = res.get2dArray();
-        final double[][] m1 = mat1.get2dArray();
-        final double[][] m2 = mat2.get2dArray();
-        for (int i = 0; i < N; ++i) {
-            final double[] v1 = m1[i];
+    private static IDoubleMatrix copyToResult(double[][] r, IDoubleMatrix res) {
+        if (res instanceof DoubleMatrix && res.get2dArray() == r) {
+            return res;
+        }
+        for (int i = 0; i < r.length; ++i) {
             final double[] ri = r[i];
-            for (int j = 0; j < M; ++j) {
-                double sum = 0;
-                for (int k = 0; k < K; k++) {
-                    sum += v1[k] * m2[k][j];
-                }
-                ri[j] = sum;
+            for (int j = 0; j < ri.length; ++j) {
+                res.set(i, j, ri[j]);
             }
         }
         return res;
@@ -212,12 +260,8 @@ public final class DoubleMatrixOps implements Serializable {
     public static IDoubleMatrix transpose(IDoubleMatrix mat) {
         final int n = mat.getRowNum();
         final int m = mat.getColNum();
-        final IDoubleMatrix res = new DoubleMatrix(m, n);
-        for (int i = 0; i < n; ++i) {
-            for (int j = 0; j < m; ++j) {
-                res.set(j, i, mat.get(i, j));
-            }
-        }
+        final DoubleMatrix res = new DoubleMatrix(m, n);
+        DoubleMatrixKernels.transpose(mat.get2dArray(), res.get2dArray(), n, m);
         return res;
     }
 }
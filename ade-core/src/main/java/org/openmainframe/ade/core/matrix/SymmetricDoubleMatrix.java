@@ -23,6 +23,10 @@ import java.util.Arrays;
 
 /**
  * An implementation of a symmetric matrix.
+ * <p>
+ * Only the lower triangle is stored, one array per row, which takes n*(n+1)/2 values.
+ * A single packed array takes the same space, but scanning the lower triangle row by row,
+ * as the mutual information training does, is several times slower on it.
  */
 public class SymmetricDoubleMatrix extends AbstractDoubleMatrix {
     private double[][] mValues;
@@ -78,4 +82,21 @@ public class SymmetricDoubleMatrix extends AbstractDoubleMatrix {
     public final int getColNum() {
         return mNumRows;
     }
+
+    /**
+     * Returns a new full 2d-array with the values of the matrix, copied from the stored
+     * rows rather than cell by cell.
+     */
+    @Override
+    public final double[][] get2dArray() {
+        final double[][] res = new double[mNumRows][mNumRows];
+        for (int i = 0; i < mNumRows; ++i) {
+            final double[] row = mValues[i];
+            System.arraycopy(row, 0, res[i], 0, i + 1);
+            for (int j = 0; j < i; ++j) {
+                res[j][i] = row[j];
+            }
+        }
+        return res;
+    }
 }
@@ -0,0 +1,68 @@
+/*
+ 
+    Copyright IBM Corp. 2016
+    This file is part of Anomaly Detection Engine for Linux Logs (ADE).
+
+    ADE is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    ADE is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with ADE.  If not, see <http://www.gnu.org/licenses/>.
+ 
+*/
+package org.openmainframe.ade.core.statistics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A named, thread safe event counter of the {@link MetricsRegistry}.
+ * Updates are lock free, and are ignored while metrics are disabled.
+ */
+public final class Counter {
+
+    private final String mName;
+    private final AtomicLong mCount = new AtomicLong();
+
+    Counter(String name) {
+        mName = name;
+    }
+
+    public String getName() {
+        return mName;
+    }
+
+    /** Counts one event */
+    public void increment() {
+        if (MetricsRegistry.isEnabled()) {
+            mCount.incrementAndGet();
+        }
+    }
+
+    /** Counts the given number of events */
+    public void add(long delta) {
+        if (MetricsRegistry.isEnabled()) {
+            mCount.addAndGet(delta);
+        }
+    }
+
+    /** @return the number of events counted */
+    public long get() {
+        return mCount.get();
+    }
+
+    void reset() {
+        mCount.set(0);
+    }
+
+    @Override
+    public String toString() {
+        return mName + "=" + get();
+    }
+}
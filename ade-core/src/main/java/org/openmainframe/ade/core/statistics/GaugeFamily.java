@@ -0,0 +1,96 @@
+/*
+ 
+    Copyright IBM Corp. 2016
+    This file is part of Anomaly Detection Engine for Linux Logs (ADE).
+
+    ADE is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    ADE is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with ADE.  If not, see <http://www.gnu.org/licenses/>.
+ 
+*/
+package org.openmainframe.ade.core.statistics;
+
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A named family of gauges of the {@link MetricsRegistry}, one per key, typically per source.
+ * Updates are thread safe and lock free once the gauge of a key exists, and are ignored while metrics
+ * are disabled.
+ */
+public final class GaugeFamily {
+
+    private final String mName;
+    private final ConcurrentMap<String, AtomicLong> mGauges = new ConcurrentHashMap<String, AtomicLong>();
+
+    GaugeFamily(String name) {
+        mName = name;
+    }
+
+    public String getName() {
+        return mName;
+    }
+
+    /** Sets the gauge of the given key */
+    public void set(String key, long value) {
+        if (MetricsRegistry.isEnabled()) {
+            getOrAdd(key).set(value);
+        }
+    }
+
+    /** Adds the given delta to the gauge of the given key */
+    public void add(String key, long delta) {
+        if (MetricsRegistry.isEnabled()) {
+            getOrAdd(key).addAndGet(delta);
+        }
+    }
+
+    /** @return the gauge of the given key, or 0 if it was never set */
+    public long get(String key) {
+        final AtomicLong gauge = mGauges.get(key);
+        return gauge == null ? 0 : gauge.get();
+    }
+
+    /** @return the current values of all gauges, sorted by key */
+    public SortedMap<String, Long> getValues() {
+        final SortedMap<String, Long> res = new TreeMap<String, Long>();
+        for (Map.Entry<String, AtomicLong> entry : mGauges.entrySet()) {
+            res.put(entry.getKey(), entry.getValue().get());
+        }
+        return res;
+    }
+
+    void reset() {
+        mGauges.clear();
+    }
+
+    private AtomicLong getOrAdd(String key) {
+        AtomicLong gauge = mGauges.get(key);
+        if (gauge == null) {
+            final AtomicLong newGauge = new AtomicLong();
+            gauge = mGauges.putIfAbsent(key, newGauge);
+            if (gauge == null) {
+                gauge = newGauge;
+            }
+        }
+        return gauge;
+    }
+
+    @Override
+    public String toString() {
+        return mName + getValues();
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ 
+    Copyright IBM Corp. 2016
+    This file is part of Anomaly Detection Engine for Linux Logs (ADE).
+
+    ADE is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    ADE is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with ADE.  If not, see <http://www.gnu.org/licenses/>.
+ 
+*/
+package org.openmainframe.ade.core.statistics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A named, thread safe histogram of latencies in nanoseconds, part of the {@link MetricsRegistry}.
+ *
+ * <p>Like an HDR histogram, buckets are log-linear: values below {@value #SUB_BUCKETS} have a bucket each,
+ * and every power of two above is split into {@value #HALF_SUB_BUCKETS} equal buckets. Any latency is
+ * therefore recorded with a relative error below 1/{@value #HALF_SUB_BUCKETS}, in a fixed array of counters.
+ * Recording is lock free, and is ignored while metrics are disabled.
+ *
+ * <p>Usage example:
+ * <pre>
+ * final long start = MetricsRegistry.startTimer();
+ * .... some code ....
+ * histogram.recordSince(start);
+ * </pre>
+ */
+public final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int HALF_SUB_BUCKETS = SUB_BUCKETS / 2;
+    /** Enough buckets for any positive long */
+    private static final int BUCKETS = SUB_BUCKETS + (Long.SIZE - SUB_BUCKET_BITS) * HALF_SUB_BUCKETS;
+
+    private final String mName;
+    private final AtomicLongArray mBuckets = new AtomicLongArray(BUCKETS);
+    private final AtomicLong mCount = new AtomicLong();
+    private final AtomicLong mSum = new AtomicLong();
+    private final AtomicLong mMax = new AtomicLong();
+
+    LatencyHistogram(String name) {
+        mName = name;
+    }
+
+    public String getName() {
+        return mName;
+    }
+
+    /**
+     * Records the time elapsed since the given start.
+     * @param startNanos a value returned by {@link MetricsRegistry#startTimer()}. Nothing is recorded
+     *     if metrics were disabled when it was taken.
+     */
+    public void recordSince(long startNanos) {
+        if (startNanos != MetricsRegistry.NOT_TIMED) {
+            record(System.nanoTime() - startNanos);
+        }
+    }
+
+    /** Records the given latency, in nanoseconds. Negative values are recorded as 0. */
+    public void record(long nanos) {
+        if (!MetricsRegistry.isEnabled()) {
+            return;
+        }
+        final long value = Math.max(nanos, 0);
+        mBuckets.incrementAndGet(bucketOf(value));
+        mCount.incrementAndGet();
+        mSum.addAndGet(value);
+        long max = mMax.get();
+        while (value > max && !mMax.compareAndSet(max, value)) {
+            max = mMax.get();
+        }
+    }
+
+    /** @return the number of latencies recorded */
+    public long getCount() {
+        return mCount.get();
+    }
+
+    /** @return the sum of the latencies recorded, in nanoseconds */
+    public long getSum() {
+        return mSum.get();
+    }
+
+    /** @return the largest latency recorded, in nanoseconds */
+    public long getMax() {
+        return mMax.get();
+    }
+
+    /** @return the mean latency, in nanoseconds, or 0 if nothing was recorded */
+    public double getMean() {
+        final long count = getCount();
+        return count == 0 ? 0 : (double) getSum() / count;
+    }
+
+    /**
+     * Returns an upper bound of the given percentile of the recorded latencies, accurate up to the
+     * bucket resolution.
+     * @param percentile between 0 and 100.
+     * @return the latency in nanoseconds, or 0 if nothing was recorded.
+     */
+    public long getPercentile(double percentile) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("Percentile must be between 0 and 100: " + percentile);
+        }
+        // the bucket counts are read one by one, so their sum may differ from mCount while recording
+        long total = 0;
+        final long[] counts = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; ++i) {
+            counts[i] = mBuckets.get(i);
+            total += counts[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        final long rank = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; ++i) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(bucketUpperBound(i), getMax());
+            }
+        }
+        return getMax();
+    }
+
+    void reset() {
+        for (int i = 0; i < BUCKETS; ++i) {
+            mBuckets.set(i, 0);
+        }
+        mCount.set(0);
+        mSum.set(0);
+        mMax.set(0);
+    }
+
+    static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        final int msb = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+        final int shift = msb - (SUB_BUCKET_BITS - 1);
+        final int top = (int) (value >>> shift);
+        return SUB_BUCKETS + (shift - 1) * HALF_SUB_BUCKETS + (top - HALF_SUB_BUCKETS);
+    }
+
+    static long bucketUpperBound(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        final int offset = bucket - SUB_BUCKETS;
+        final int shift = offset / HALF_SUB_BUCKETS + 1;
+        final long top = offset % HALF_SUB_BUCKETS + HALF_SUB_BUCKETS;
+        return ((top + 1) << shift) - 1;
+    }
+
+    @Override
+    public String toString() {
+        return mName + " count " + getCount() + " mean " + (long) getMean() + "ns max " + getMax() + "ns";
+    }
+}
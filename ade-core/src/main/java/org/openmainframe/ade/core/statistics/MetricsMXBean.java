@@ -0,0 +1,48 @@
+/*
+ 
+    Copyright IBM Corp. 2016
+    This file is part of Anomaly Detection Engine for Linux Logs (ADE).
+
+    ADE is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    ADE is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with ADE.  If not, see <http://www.gnu.org/licenses/>.
+ 
+*/
+package org.openmainframe.ade.core.statistics;
+
+import java.util.Map;
+
+/**
+ * JMX view of the {@link MetricsRegistry}, registered by {@link MetricsReporter}
+ * as {@value MetricsReporter#OBJECT_NAME}.
+ */
+public interface MetricsMXBean {
+
+    boolean isEnabled();
+
+    void setEnabled(boolean enabled);
+
+    /** @return the current values of all counters */
+    Map<String, Long> getCounters();
+
+    /** @return the current values of all gauges, named with their key in brackets */
+    Map<String, Long> getGauges();
+
+    /** @return for each histogram, its 99th percentile latency in microseconds */
+    Map<String, Double> getLatencyP99();
+
+    /** @return the full report of {@link MetricsRegistry#printSummary(java.io.PrintStream)} */
+    String getSummary();
+
+    /** Clears the values of all metrics */
+    void reset();
+}
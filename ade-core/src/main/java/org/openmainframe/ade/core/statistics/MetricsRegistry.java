@@ -0,0 +1,200 @@
+/*
+ 
+    Copyright IBM Corp. 2016
+    This file is part of Anomaly Detection Engine for Linux Logs (ADE).
+
+    ADE is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    ADE is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with ADE.  If not, see <http://www.gnu.org/licenses/>.
+ 
+*/
+package org.openmainframe.ade.core.statistics;
+
+import java.io.PrintStream;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A registry of runtime metrics: {@link Counter}s, {@link LatencyHistogram}s and per source
+ * {@link GaugeFamily}s, looked up by name.
+ *
+ * <p>Metrics are disabled by default. While disabled, updates cost a single volatile read, so the
+ * instrumented code keeps the metrics it updates in static fields and updates them unconditionally.
+ * Usage example:
+ * <pre>
+ * private static final LatencyHistogram s_analyzeTime = MetricsRegistry.histogram("scorer.analyze");
+ * ...
+ * final long start = MetricsRegistry.startTimer();
+ * .... some code ....
+ * s_analyzeTime.recordSince(start);
+ * </pre>
+ *
+ * The metrics are reported by {@link #printSummary(PrintStream)}, and periodically to a file or JMX by
+ * {@link MetricsReporter}. Measures of {@link TimingStatistics} are also recorded here, as histograms
+ * named {@value #TIMING_PREFIX}&lt;measure name&gt;.
+ */
+public final class MetricsRegistry {
+
+    /** Returned by {@link #startTimer()} while metrics are disabled */
+    public static final long NOT_TIMED = Long.MIN_VALUE;
+
+    /** Prefix of the histograms recording the measures of {@link TimingStatistics} */
+    public static final String TIMING_PREFIX = "timing.";
+
+    private static final double NANOS_PER_MICRO = 1000.0;
+
+    private static volatile boolean sEnabled = false;
+
+    private static final ConcurrentMap<String, Counter> sCounters = new ConcurrentHashMap<String, Counter>();
+    private static final ConcurrentMap<String, LatencyHistogram> sHistograms =
+            new ConcurrentHashMap<String, LatencyHistogram>();
+    private static final ConcurrentMap<String, GaugeFamily> sGauges = new ConcurrentHashMap<String, GaugeFamily>();
+
+    private MetricsRegistry() {
+        // Private constructor to hide the implicit public one.
+    }
+
+    static String copyright() {
+        return Copyright.IBM_COPYRIGHT;
+    }
+
+    /** @return true if metrics are collected */
+    public static boolean isEnabled() {
+        return sEnabled;
+    }
+
+    /** Starts or stops collecting metrics. Values collected so far are kept. */
+    public static void setEnabled(boolean enabled) {
+        sEnabled = enabled;
+    }
+
+    /**
+     * @return the current time in nanoseconds, to be passed to {@link LatencyHistogram#recordSince(long)},
+     *     or {@link #NOT_TIMED} if metrics are disabled.
+     */
+    public static long startTimer() {
+        return sEnabled ? System.nanoTime() : NOT_TIMED;
+    }
+
+    /** @return the counter of the given name, created if needed */
+    public static Counter counter(String name) {
+        Counter res = sCounters.get(name);
+        if (res == null) {
+            final Counter counter = new Counter(name);
+            res = sCounters.putIfAbsent(name, counter);
+            if (res == null) {
+                res = counter;
+            }
+        }
+        return res;
+    }
+
+    /** @return the latency histogram of the given name, created if needed */
+    public static LatencyHistogram histogram(String name) {
+        LatencyHistogram res = sHistograms.get(name);
+        if (res == null) {
+            final LatencyHistogram histogram = new LatencyHistogram(name);
+            res = sHistograms.putIfAbsent(name, histogram);
+            if (res == null) {
+                res = histogram;
+            }
+        }
+        return res;
+    }
+
+    /** @return the gauge family of the given name, created if needed */
+    public static GaugeFamily gauges(String name) {
+        GaugeFamily res = sGauges.get(name);
+        if (res == null) {
+            final GaugeFamily gauges = new GaugeFamily(name);
+            res = sGauges.putIfAbsent(name, gauges);
+            if (res == null) {
+                res = gauges;
+            }
+        }
+        return res;
+    }
+
+    /** @return the current values of all counters, sorted by name */
+    public static SortedMap<String, Long> getCounterValues() {
+        final SortedMap<String, Long> res = new TreeMap<String, Long>();
+        for (Counter counter : sCounters.values()) {
+            res.put(counter.getName(), counter.get());
+        }
+        return res;
+    }
+
+    /** @return the current values of all gauges, sorted by name, with the key in brackets */
+    public static SortedMap<String, Long> getGaugeValues() {
+        final SortedMap<String, Long> res = new TreeMap<String, Long>();
+        for (GaugeFamily gauges : sGauges.values()) {
+            for (Map.Entry<String, Long> entry : gauges.getValues().entrySet()) {
+                res.put(gauges.getName() + "[" + entry.getKey() + "]", entry.getValue());
+            }
+        }
+        return res;
+    }
+
+    /** @return all histograms, sorted by name */
+    public static SortedMap<String, LatencyHistogram> getHistograms() {
+        return new TreeMap<String, LatencyHistogram>(sHistograms);
+    }
+
+    /** Clears the values of all metrics. The metrics themselves stay registered. */
+    public static void reset() {
+        for (Counter counter : sCounters.values()) {
+            counter.reset();
+        }
+        for (LatencyHistogram histogram : sHistograms.values()) {
+            histogram.reset();
+        }
+        for (GaugeFamily gauges : sGauges.values()) {
+            gauges.reset();
+        }
+    }
+
+    /**
+     * Prints all metrics to the given stream, tab separated. Metrics never updated are omitted.
+     * Latencies are in microseconds.
+     */
+    public static void printSummary(PrintStream out) {
+        out.println("Counters:");
+        out.println("Name\tCount");
+        for (Map.Entry<String, Long> entry : getCounterValues().entrySet()) {
+            if (entry.getValue() != 0) {
+                out.println(entry.getKey() + "\t" + entry.getValue());
+            }
+        }
+        out.println();
+        out.println("Latencies: (microseconds)");
+        out.println("Name\tCount\tMean\tP50\tP90\tP99\tMax");
+        for (LatencyHistogram histogram : getHistograms().values()) {
+            if (histogram.getCount() != 0) {
+                out.printf("%s\t%d\t%.1f\t%.1f\t%.1f\t%.1f\t%.1f%n", histogram.getName(), histogram.getCount(),
+                        histogram.getMean() / NANOS_PER_MICRO,
+                        histogram.getPercentile(50) / NANOS_PER_MICRO,
+                        histogram.getPercentile(90) / NANOS_PER_MICRO,
+                        histogram.getPercentile(99) / NANOS_PER_MICRO,
+                        histogram.getMax() / NANOS_PER_MICRO);
+            }
+        }
+        out.println();
+        out.println("Gauges:");
+        out.println("Name\tValue");
+        for (Map.Entry<String, Long> entry : getGaugeValues().entrySet()) {
+            out.println(entry.getKey() + "\t" + entry.getValue());
+        }
+    }
+}
@@ -0,0 +1,230 @@
+/*
+ 
+    Copyright IBM Corp. 2016
+    This file is part of Anomaly Detection Engine for Linux Logs (ADE).
+
+    ADE is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    ADE is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with ADE.  If not, see <http://www.gnu.org/licenses/>.
+ 
+*/
+package org.openmainframe.ade.core.statistics;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UnsupportedEncodingException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Publishes the {@link MetricsRegistry}: periodically dumps it to a file, and exposes it through JMX
+ * as a {@link MetricsMXBean}.
+ *
+ * <p>The dump file is rewritten as a whole on every dump, and once more when the JVM exits.
+ * It is written to a temporary file first and then renamed, so readers never see a partial dump.
+ */
+public final class MetricsReporter {
+
+    private static final Logger logger = LoggerFactory.getLogger(MetricsReporter.class);
+
+    /** The JMX object name of the {@link MetricsMXBean} */
+    public static final String OBJECT_NAME = "org.openmainframe.ade:type=Metrics";
+
+    private static ScheduledExecutorService sScheduler = null;
+    private static Thread sShutdownHook = null;
+    private static ObjectName sRegisteredName = null;
+
+    private MetricsReporter() {
+        // Private constructor to hide the implicit public one.
+    }
+
+    static String copyright() {
+        return Copyright.IBM_COPYRIGHT;
+    }
+
+    /**
+     * Starts publishing the metrics. Any previous publishing is stopped first.
+     * @param dumpFile the file to dump the metrics to, or null for no dump.
+     * @param periodMillis the time between dumps.
+     * @param registerJmx whether to register the {@link MetricsMXBean} with the platform MBean server.
+     */
+    public static synchronized void start(final File dumpFile, long periodMillis, boolean registerJmx) {
+        stop();
+        if (dumpFile != null) {
+            if (periodMillis <= 0) {
+                throw new IllegalArgumentException("Metrics dump period must be positive: " + periodMillis);
+            }
+            final Runnable dump = new Runnable() {
+                @Override
+                public void run() {
+                    dumpQuietly(dumpFile);
+                }
+            };
+            sScheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    final Thread thread = new Thread(r, "ade-metrics-reporter");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            sScheduler.scheduleAtFixedRate(dump, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+            sShutdownHook = new Thread(dump, "ade-metrics-final-dump");
+            Runtime.getRuntime().addShutdownHook(sShutdownHook);
+            logger.info("Dumping metrics to " + dumpFile.getPath() + " every " + periodMillis + "ms");
+        }
+        if (registerJmx) {
+            registerMXBean();
+        }
+    }
+
+    /** Stops publishing the metrics */
+    public static synchronized void stop() {
+        if (sScheduler != null) {
+            sScheduler.shutdownNow();
+            sScheduler = null;
+        }
+        if (sShutdownHook != null) {
+            try {
+                Runtime.getRuntime().removeShutdownHook(sShutdownHook);
+            } catch (IllegalStateException e) {
+                // already shutting down, the hook will run
+                logger.trace("JVM is shutting down", e);
+            }
+            sShutdownHook = null;
+        }
+        if (sRegisteredName != null) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(sRegisteredName);
+            } catch (JMException e) {
+                logger.warn("Failed unregistering " + sRegisteredName, e);
+            }
+            sRegisteredName = null;
+        }
+    }
+
+    /**
+     * Writes the metrics to the given file, replacing its content.
+     * @throws IOException if the file cannot be written.
+     */
+    public static void dump(File file) throws IOException {
+        final File tmpFile = new File(file.getPath() + ".tmp");
+        final PrintStream out = new PrintStream(tmpFile, StandardCharsets.UTF_8.name());
+        try {
+            MetricsRegistry.printSummary(out);
+        } finally {
+            out.close();
+        }
+        if (out.checkError()) {
+            throw new IOException("Failed writing metrics to " + tmpFile.getPath());
+        }
+        if (file.exists() && !file.delete()) {
+            throw new IOException("Failed deleting " + file.getPath());
+        }
+        if (!tmpFile.renameTo(file)) {
+            throw new IOException("Failed renaming " + tmpFile.getPath() + " to " + file.getPath());
+        }
+    }
+
+    /** @return the metrics report of {@link MetricsRegistry#printSummary(PrintStream)} as a String */
+    public static String getSummary() {
+        final ByteArrayOutputStream bo = new ByteArrayOutputStream();
+        try {
+            final PrintStream out = new PrintStream(bo, false, StandardCharsets.UTF_8.name());
+            MetricsRegistry.printSummary(out);
+            out.close();
+            return bo.toString(StandardCharsets.UTF_8.name());
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException("UTF-8 encoding is not supported", e);
+        }
+    }
+
+    private static void dumpQuietly(File file) {
+        try {
+            dump(file);
+        } catch (IOException e) {
+            logger.warn("Failed dumping metrics", e);
+        }
+    }
+
+    private static void registerMXBean() {
+        try {
+            final ObjectName name = new ObjectName(OBJECT_NAME);
+            final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+            server.registerMBean(new Metrics(), name);
+            sRegisteredName = name;
+        } catch (JMException e) {
+            logger.warn("Failed registering metrics with JMX", e);
+        }
+    }
+
+    private static final class Metrics implements MetricsMXBean {
+
+        @Override
+        public boolean isEnabled() {
+            return MetricsRegistry.isEnabled();
+        }
+
+        @Override
+        public void setEnabled(boolean enabled) {
+            MetricsRegistry.setEnabled(enabled);
+        }
+
+        @Override
+        public Map<String, Long> getCounters() {
+            return MetricsRegistry.getCounterValues();
+        }
+
+        @Override
+        public Map<String, Long> getGauges() {
+            return MetricsRegistry.getGaugeValues();
+        }
+
+        @Override
+        public Map<String, Double> getLatencyP99() {
+            final SortedMap<String, Double> res = new TreeMap<String, Double>();
+            for (LatencyHistogram histogram : MetricsRegistry.getHistograms().values()) {
+                res.put(histogram.getName(), histogram.getPercentile(99) / 1000.0);
+            }
+            return res;
+        }
+
+        @Override
+        public String getSummary() {
+            return MetricsReporter.getSummary();
+        }
+
+        @Override
+        public void reset() {
+            MetricsRegistry.reset();
+        }
+    }
+}
@@ -33,6 +33,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.math3.util.Pair;
 import org.openmainframe.ade.exceptions.AdeInternalException;
@@ -50,6 +51,9 @@ import org.openmainframe.ade.exceptions.AdeInternalException;
  * Which will print for each measure name:
  *    number of start/end
  *    mean/min/max/std of elapsed time between each start and end pair 
+ *
+ * When the {@link MetricsRegistry} is enabled, each elapsed time is also recorded in its histogram
+ * of the measure.
  */
 public class TimingStatistics {
     static String copyright() {
@@ -281,7 +285,11 @@ public class TimingStatistics {
         if (measure == null) {
             return;
         }
-        measure.close(System.currentTimeMillis() - lastTime);
+        final long elapsed = System.currentTimeMillis() - lastTime;
+        measure.close(elapsed);
+        if (MetricsRegistry.isEnabled()) {
+            MetricsRegistry.histogram(MetricsRegistry.TIMING_PREFIX + name).record(TimeUnit.MILLISECONDS.toNanos(elapsed));
+        }
     }
 
     /** Clear all internal data collected */
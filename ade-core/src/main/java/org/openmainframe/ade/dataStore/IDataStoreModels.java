@@ -131,6 +131,15 @@ public interface IDataStoreModels<T> {
     void deleteModel(int modelInternalId, boolean deleteFromFileSystem)
             throws AdeException;
 
+    /**
+     * Drops the given model from the models kept in memory, if kept. The model
+     * itself is not changed, and is read again if loaded later.
+     * 
+     * @param modelInternalId
+     *	Id of model to be dropped
+     */
+    void evictModel(int modelInternalId);
+
     /**
      * Sets the given model as the default model for this analysis group
      * 
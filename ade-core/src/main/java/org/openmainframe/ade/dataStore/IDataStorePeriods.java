@@ -64,8 +64,8 @@ public interface IDataStorePeriods {
     /** Returns an iterator that iterates over configurations of given periods */
     IAdeIterator<IConfigurationData> getPeriodConfigurations(Collection<PeriodImpl> periods);
 
-    /** Reads the data associated with the given period and stores it in a file in JSon format
-     * Data includes summary data and analysis results
+    /** Reads the data associated with the given period and stores it in a file with a JSon header
+     * Data includes summary data and the text clusters it refers to, but not analysis results
      * Used for importing/exporting period data from/to the datastore.
      * @param period The period to be read
      * @param fileName The name of the file to be created
@@ -29,6 +29,7 @@ import java.sql.Types;
 import java.util.Date;
 
 import org.openmainframe.ade.exceptions.AdeInternalException;
+import org.openmainframe.ade.impl.dbUtils.MyJDBCConnection;
 
 /** A thin wrapper over a PreparedStatement object 
  * */
@@ -40,14 +41,23 @@ public class PreparedStatementWrapper {
     /** The sql of this prepared statement */
     private String m_sql;
 
+    /** The connection the statement was prepared on, if it came from the statement cache */
+    private Connection m_cachedOn;
+
+    /** The result set of the last query, closed before the statement is returned to the cache */
+    private ResultSet m_lastResultSet;
+
     private int m_batchCount = 0;
 
     private static final int MAX_BATCH_COUNT = 5000;
 
-    /** Create a prepared statement with given sql */
+    /** Create a prepared statement with given sql.
+     * If the connection is pooled, the statement is taken from its statement cache.
+     */
     PreparedStatementWrapper(Connection con, String sql) throws SQLException {
         m_sql = sql;
-        m_ps = con.prepareStatement(m_sql);
+        m_ps = MyJDBCConnection.prepareStatement(con, m_sql);
+        m_cachedOn = con;
     }
 
     /**
@@ -67,10 +77,18 @@ public class PreparedStatementWrapper {
         return m_ps;
     }
 
-    /** Closes this statement */
+    /** Closes this statement, or returns it to the statement cache it was taken from */
     public final void close() throws SQLException {
+        if (m_lastResultSet != null) {
+            m_lastResultSet.close();
+            m_lastResultSet = null;
+        }
         if (m_ps != null) {
-            m_ps.close();
+            if (m_cachedOn != null) {
+                MyJDBCConnection.releaseStatement(m_cachedOn, m_sql, m_ps);
+            } else {
+                m_ps.close();
+            }
         }
         m_ps = null;
     }
@@ -129,7 +147,8 @@ public class PreparedStatementWrapper {
      * @throws SQLException
      */
     public final ResultSet executeQuery() throws SQLException {
-        return m_ps.executeQuery();
+        m_lastResultSet = m_ps.executeQuery();
+        return m_lastResultSet;
     }
 
     /** Execute a dml statement.
@@ -42,6 +42,8 @@ import org.openmainframe.ade.impl.PropertyAnnotation.ClassPropertyFactory;
 import org.openmainframe.ade.impl.PropertyAnnotation.MissingPropertyException;
 import org.openmainframe.ade.impl.PropertyAnnotation.Property;
 import org.openmainframe.ade.impl.PropertyAnnotation.PropertyFactoryByString;
+import org.openmainframe.ade.impl.dataStore.TextClusterTimeStampWriter;
+import org.openmainframe.ade.impl.dbUtils.ConnectionPool;
 import org.openmainframe.ade.impl.utils.DateTimeUtils;
 import org.openmainframe.ade.impl.utils.FileUtils;
 import org.openmainframe.ade.output.OutputFilenameGenerator;
@@ -139,6 +141,36 @@ public class AdeConfigPropertiesImpl implements IAdeConfigProperties {
             help = "Schema of DB. Useful when schema differs from database user name")
     private String m_dbSchema = null;
 
+    @Property(key = ADE_PREFIX + "database.connectionPoolSize", required = false,
+            help = "Maximal number of database connections lent out at once")
+    private int m_connectionPoolSize = ConnectionPool.DEFAULT_MAX_SIZE;
+
+    @Property(key = ADE_PREFIX + "database.statementCacheSize", required = false,
+            help = "Maximal number of idle prepared statements cached per database connection. 0 disables caching")
+    private int m_statementCacheSize = ConnectionPool.DEFAULT_STATEMENT_CACHE_SIZE;
+
+    @Property(key = ADE_PREFIX + "database.textClusterFlushPeriod", required = false,
+            help = "Maximal time, in milli-seconds, updates of the last observed time of text clusters are buffered"
+                    + " before they are written in one batch. 0 writes them after each message")
+    private int m_textClusterFlushPeriod = TextClusterTimeStampWriter.DEFAULT_FLUSH_PERIOD;
+
+    /***************** Metrics ********************/
+    @Property(key = ADE_PREFIX + "metrics.enabled", required = false,
+            help = "Collect runtime metrics: counters, latencies and per source gauges")
+    private boolean m_metricsEnabled = false;
+
+    @Property(key = ADE_PREFIX + "metrics.dumpFile", required = false,
+            help = "File the runtime metrics are periodically dumped to. No dump if not set")
+    private File m_metricsDumpFile = null;
+
+    @Property(key = ADE_PREFIX + "metrics.dumpPeriod", required = false,
+            help = "Time between dumps of the runtime metrics, in milli-seconds")
+    private int m_metricsDumpPeriod = 60 * 1000;
+
+    @Property(key = ADE_PREFIX + "metrics.jmx", required = false,
+            help = "Expose the runtime metrics through JMX")
+    private boolean m_metricsJmxEnabled = false;
+
     /***************** Debug ********************/
     @Property(key = ADE_DEBUG_PREFIX + "parserCodes", required = false, help = "?")
     private boolean m_debugParserCodes = false;
@@ -167,6 +199,29 @@ public class AdeConfigPropertiesImpl implements IAdeConfigProperties {
     @Property(key = ADE_PREFIX + "training.minimalRequieredTrainPeriod", required = false, help = "?")
     private int m_minimalRequieredTrainPeriod = 0;
 
+    @Property(key = ADE_PREFIX + "training.usePeriodStatistics", required = false,
+            help = "Train scorers that support it by merging training statistics kept per period, rather than "
+                    + "by reading all the training intervals. Set to false to always read the intervals")
+    private boolean m_usePeriodTrainingStatistics = true;
+
+    @Property(key = ADE_PREFIX + "retention.purgeAfterDays", required = false,
+            help = "Periods that ended more than this number of days ago are deleted by 'controldb retention', "
+                    + "0 to keep all periods")
+    private int m_retentionPurgeAfterDays = 0;
+
+    @Property(key = ADE_PREFIX + "retention.compactAfterDays", required = false,
+            help = "The message summaries of periods that ended more than this number of days ago are compacted by "
+                    + "'controldb retention', dropping their texts but keeping what training reads. 0 to never compact")
+    private int m_retentionCompactAfterDays = 0;
+
+    @Property(key = ADE_PREFIX + "retention.archivePath", required = false,
+            help = "Optional path to export periods to before they are deleted")
+    private String m_retentionArchivePath = null;
+
+    @Property(key = ADE_PREFIX + "retention.batchIntervals", required = false,
+            help = "The number of intervals whose message summaries are deleted or compacted in each transaction")
+    private int m_retentionBatchIntervals = 12;
+
     @Property(key = ADE_PREFIX + "inputTimeZone", required = false, factory = TimeZoneFactory.class, help = "?")
     private TimeZone m_inputTimeZone = TimeZone.getDefault();
 
@@ -217,6 +272,7 @@ public class AdeConfigPropertiesImpl implements IAdeConfigProperties {
     private IScoringParameters m_scoringParameters;
     private IDatabaseParameters m_databaseParameters;
     private ILogProcessingParameters m_logProcessingParamters;
+    private IMetricsParameters m_metricsParameters;
     private OutputFilenameGenerator m_outputFilenameGenerator;
 
     public AdeConfigPropertiesImpl(Properties configProps, Properties systemProps) throws AdeException {
@@ -254,6 +310,7 @@ public class AdeConfigPropertiesImpl implements IAdeConfigProperties {
         m_debugParameters = new DebugParametersImpl();
         m_scoringParameters = new ScoringParametersImpl();
         m_logProcessingParamters = new LogProcessingParametersImpl();
+        m_metricsParameters = new MetricsParametersImpl();
         try {
             m_outputFilenameGenerator = m_outputFilenameGeneratorClass.newInstance();
         } catch (IllegalAccessException e) {
@@ -376,11 +433,41 @@ public class AdeConfigPropertiesImpl implements IAdeConfigProperties {
         return m_logProcessingParamters;
     }
 
+    @Override
+    public final IMetricsParameters metrics() {
+        return m_metricsParameters;
+    }
+
     @Override
     public final int getMinimalRequieredTrainPeriod() {
         return m_minimalRequieredTrainPeriod;
     }
 
+    @Override
+    public final boolean getUsePeriodTrainingStatistics() {
+        return m_usePeriodTrainingStatistics;
+    }
+
+    @Override
+    public final int getRetentionPurgeAfterDays() {
+        return m_retentionPurgeAfterDays;
+    }
+
+    @Override
+    public final int getRetentionCompactAfterDays() {
+        return m_retentionCompactAfterDays;
+    }
+
+    @Override
+    public final String getRetentionArchivePath() {
+        return m_retentionArchivePath;
+    }
+
+    @Override
+    public final int getRetentionBatchIntervals() {
+        return m_retentionBatchIntervals;
+    }
+
     @Override
     public final Class<? extends AnalysisGroupToFlowNameMapper> getAnalysisGroupToFlowNameMapper() {
         if (m_useSparkLogs){
@@ -539,6 +626,21 @@ public class AdeConfigPropertiesImpl implements IAdeConfigProperties {
         public String getDatabaseSchema() {
             return m_dbSchema;
         }
+
+        @Override
+        public int getConnectionPoolSize() {
+            return m_connectionPoolSize;
+        }
+
+        @Override
+        public int getStatementCacheSize() {
+            return m_statementCacheSize;
+        }
+
+        @Override
+        public long getTextClusterFlushPeriod() {
+            return m_textClusterFlushPeriod;
+        }
     }
 
     private class DebugParametersImpl implements IDebugParameters {
@@ -618,4 +720,27 @@ public class AdeConfigPropertiesImpl implements IAdeConfigProperties {
         }
 
     }
+
+    private class MetricsParametersImpl implements IMetricsParameters {
+
+        @Override
+        public boolean isMetricsEnabled() {
+            return m_metricsEnabled;
+        }
+
+        @Override
+        public File getMetricsDumpFile() {
+            return m_metricsDumpFile;
+        }
+
+        @Override
+        public long getMetricsDumpPeriod() {
+            return m_metricsDumpPeriod;
+        }
+
+        @Override
+        public boolean isMetricsJmxEnabled() {
+            return m_metricsJmxEnabled;
+        }
+    }
 }
@@ -26,14 +26,39 @@ import org.openmainframe.ade.impl.data.TextClusteringComponentModel;
 
 public class ActionsFactoryImpl implements IActionsFactory {
 
+    /**
+     * The text clustering model linked to the datastore, kept between calls while m_retainTextClusteringModel is set.
+     * The model is not thread safe, so each thread keeps its own.
+     */
+    private ThreadLocal<TextClusteringComponentModel> m_retainedTextClusteringModel =
+            new ThreadLocal<TextClusteringComponentModel>();
+
+    private boolean m_retainTextClusteringModel = false;
+
     @Override
     public final IParsingQualityReporter createParsingQualityReporter() {
         return new ParsingQualityReporterImpl();
     }
 
     @Override
-    public final TextClusteringComponentModel getTextClusteringModel(boolean updateDataStore) {
-        return new TextClusteringComponentModel(updateDataStore);
+    public final synchronized TextClusteringComponentModel getTextClusteringModel(boolean updateDataStore) {
+        if (!updateDataStore || !m_retainTextClusteringModel) {
+            return new TextClusteringComponentModel(updateDataStore);
+        }
+        TextClusteringComponentModel model = m_retainedTextClusteringModel.get();
+        if (model == null) {
+            model = new TextClusteringComponentModel(true);
+            m_retainedTextClusteringModel.set(model);
+        }
+        return model;
+    }
+
+    @Override
+    public final synchronized void setRetainTextClusteringModel(boolean retain) {
+        m_retainTextClusteringModel = retain;
+        if (!retain) {
+            m_retainedTextClusteringModel = new ThreadLocal<TextClusteringComponentModel>();
+        }
     }
 
     @Override
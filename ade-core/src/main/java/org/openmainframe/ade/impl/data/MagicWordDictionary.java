@@ -0,0 +1,156 @@
+/*
+ 
+    Copyright IBM Corp. 2016
+    This file is part of Anomaly Detection Engine for Linux Logs (ADE).
+
+    ADE is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    ADE is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with ADE.  If not, see <http://www.gnu.org/licenses/>.
+ 
+*/
+package org.openmainframe.ade.impl.data;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import org.openmainframe.ade.exceptions.AdeException;
+import org.openmainframe.ade.exceptions.AdeUsageException;
+
+/**
+ * An immutable dictionary of magic words. When comparing two messages, if one message contains a
+ * magic word that does not exist in the other message, these two messages are considered as different.
+ *
+ * Words are matched as a whole, ignoring ASCII case, like a case insensitive regular expression
+ * would. The words are kept in a trie, so a lookup neither allocates nor depends on the number of words.
+ * The dictionary is thread safe and is shared by all message text preprocessors.
+ */
+public final class MagicWordDictionary {
+
+    /**
+     * A trie node. Words are made of ASCII characters, stored lower case.
+     */
+    private static final class Node {
+        private Node[] m_children;
+        private boolean m_isWord;
+
+        private Node child(char c) {
+            return m_children == null ? null : m_children[c];
+        }
+
+        private Node addChild(char c) {
+            if (m_children == null) {
+                m_children = new Node[ASCII_SIZE];
+            }
+            if (m_children[c] == null) {
+                m_children[c] = new Node();
+            }
+            return m_children[c];
+        }
+    }
+
+    private static final int ASCII_SIZE = 128;
+
+    private final Node m_root = new Node();
+    private final List<String> m_words;
+    private final int m_maxLength;
+
+    /**
+     * @param words the magic words. Only ASCII words are supported.
+     * @throws AdeUsageException if a word is empty or not ASCII.
+     */
+    public MagicWordDictionary(Collection<String> words) throws AdeUsageException {
+        final List<String> wordList = new ArrayList<String>(words.size());
+        int maxLength = 0;
+        for (String word : words) {
+            if (word.isEmpty()) {
+                throw new AdeUsageException("Empty magic word");
+            }
+            Node node = m_root;
+            for (int i = 0; i < word.length(); ++i) {
+                final char c = word.charAt(i);
+                if (c >= ASCII_SIZE) {
+                    throw new AdeUsageException("Magic word is not ASCII: " + word);
+                }
+                node = node.addChild(toLowerCase(c));
+            }
+            if (!node.m_isWord) {
+                node.m_isWord = true;
+                wordList.add(word);
+                maxLength = Math.max(maxLength, word.length());
+            }
+        }
+        m_words = Collections.unmodifiableList(wordList);
+        m_maxLength = maxLength;
+    }
+
+    /**
+     * Reads a dictionary from a UTF-8 text file with one magic word per line. Blank lines and lines
+     * starting with # are ignored, and words are trimmed.
+     * @param file the magic words file.
+     * @return the dictionary.
+     * @throws AdeException if the file could not be read or contains an unsupported word.
+     */
+    public static MagicWordDictionary load(File file) throws AdeException {
+        final List<String> words = new ArrayList<String>();
+        try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                final String word = line.trim();
+                if (!word.isEmpty() && !word.startsWith("#")) {
+                    words.add(word);
+                }
+            }
+        } catch (IOException e) {
+            throw new AdeUsageException("Failed reading magic words file " + file.getPath(), e);
+        }
+        return new MagicWordDictionary(words);
+    }
+
+    /**
+     * Determines whether a word is a magic word, ignoring ASCII case.
+     * @param word the word.
+     * @return true if the word is in the dictionary.
+     */
+    public boolean contains(String word) {
+        final int length = word.length();
+        if (length == 0 || length > m_maxLength) {
+            return false;
+        }
+        Node node = m_root;
+        for (int i = 0; i < length && node != null; ++i) {
+            final char c = word.charAt(i);
+            if (c >= ASCII_SIZE) {
+                return false;
+            }
+            node = node.child(toLowerCase(c));
+        }
+        return node != null && node.m_isWord;
+    }
+
+    /**
+     * @return the magic words, in the order they were given, duplicates ignoring case removed.
+     */
+    public List<String> getWords() {
+        return m_words;
+    }
+
+    private static char toLowerCase(char c) {
+        return (c >= 'A' && c <= 'Z') ? (char) (c + ('a' - 'A')) : c;
+    }
+}
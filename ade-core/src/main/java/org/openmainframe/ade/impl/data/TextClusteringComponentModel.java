@@ -26,6 +26,7 @@ import org.openmainframe.ade.AdeInternal;
 import org.openmainframe.ade.data.IMessageTextPreprprocessor;
 import org.openmainframe.ade.exceptions.AdeException;
 import org.openmainframe.ade.impl.dataStore.SQL;
+import org.openmainframe.ade.impl.dataStore.TextClusterTimeStampWriter;
 import org.openmainframe.ade.impl.dbUtils.DbDictionary;
 
 /**
@@ -156,6 +157,20 @@ public class TextClusteringComponentModel {
         return ++m_maxClusterId;
     }
 
+    /**
+     * Writes the pending updates of the last observed time of the clusters to the database, e.g. at the end
+     * of the input, and logs how many round trips their coalescing saved.
+     * 
+     * @throws AdeException if the updates could not be written
+     */
+    public final void flushTimeStamps() throws AdeException {
+        if (m_updateDataStore) {
+            final TextClusterTimeStampWriter timeStampWriter = TextClusterTimeStampWriter.getInstance();
+            timeStampWriter.flush();
+            timeStampWriter.logStatistics();
+        }
+    }
+
     /**
      * Get the clusters map.
      * 
@@ -19,10 +19,10 @@
 */
 package org.openmainframe.ade.impl.data;
 
-import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 import java.util.Iterator;
 import java.util.LinkedList;
@@ -30,12 +30,14 @@ import java.util.List;
 
 import org.openmainframe.ade.Ade;
 import org.openmainframe.ade.AdeInternal;
+import org.openmainframe.ade.core.statistics.LatencyHistogram;
+import org.openmainframe.ade.core.statistics.MetricsRegistry;
 import org.openmainframe.ade.data.IMessageTextPreprprocessor;
-import org.openmainframe.ade.dbUtils.ConnectionWrapper;
 import org.openmainframe.ade.exceptions.AdeException;
 import org.openmainframe.ade.exceptions.AdeInternalException;
 import org.openmainframe.ade.impl.dataStore.DataStoreTextClusteringModelsImpl;
 import org.openmainframe.ade.impl.dataStore.SQL;
+import org.openmainframe.ade.impl.dataStore.TextClusterTimeStampWriter;
 import org.openmainframe.ade.impl.summary.LevenshteinTextSummary;
 import org.openmainframe.ade.impl.summary.Word;
 import org.slf4j.Logger;
@@ -70,12 +72,20 @@ public class TextClusteringModel {
 
     private DataStoreTextClusteringModelsImpl m_dsTextClustering;
 
+    /** Buffers the updates of the last observed time of the clusters, if the model is linked to the database */
+    private TextClusterTimeStampWriter m_timeStampWriter;
+
     private IThresholdSetter m_thresholdSetter;
 
     private IMessageTextPreprprocessor m_messageTextPreprocessor = null;
     
     private static final Logger logger = LoggerFactory.getLogger(TextClusteringModel.class);
 
+    /** Time to find the cluster of a message that matches an existing cluster */
+    private static final LatencyHistogram s_lookupTime = MetricsRegistry.histogram("textClustering.lookup");
+    /** Time to find that a message matches no cluster and add a new cluster */
+    private static final LatencyHistogram s_addTime = MetricsRegistry.histogram("textClustering.add");
+
     /**
      * Creates a new text clustering model which is associated with the given component.
      *   
@@ -90,14 +100,27 @@ public class TextClusteringModel {
     public TextClusteringModel(String component, boolean updateDataStore,
             TextClusteringComponentModel textClusteringComponentModel,
             IThresholdSetter thresholdSetter) throws AdeException {
+        this(component, AdeInternal.getAdeImpl().getDictionaries().getComponentIdDictionary().addWord(component),
+                updateDataStore, textClusteringComponentModel, AdeInternal.getAdeImpl().getDataStore().textClustering(),
+                updateDataStore ? TextClusterTimeStampWriter.getInstance() : null, thresholdSetter);
+    }
+
+    /**
+     * Creates a new text clustering model of a component already in the component dictionary.
+     */
+    TextClusteringModel(String component, int componentId, boolean updateDataStore,
+            TextClusteringComponentModel textClusteringComponentModel,
+            DataStoreTextClusteringModelsImpl dsTextClustering, TextClusterTimeStampWriter timeStampWriter,
+            IThresholdSetter thresholdSetter) throws AdeException {
         m_componentName = component;
-        m_componentId = AdeInternal.getAdeImpl().getDictionaries().getComponentIdDictionary().addWord(component);
+        m_componentId = componentId;
 
         m_updateDataStore = updateDataStore;
 
         m_clustersData = new LinkedList<TextClusterData>();
         m_parentModel = textClusteringComponentModel;
-        m_dsTextClustering = AdeInternal.getAdeImpl().getDataStore().textClustering();
+        m_dsTextClustering = dsTextClustering;
+        m_timeStampWriter = timeStampWriter;
         m_maxClusterId = m_dsTextClustering.refreshClustersFromDataStore(m_componentId, m_maxClusterId, m_clustersData);
         m_parentModel.setMaxClusterId(m_maxClusterId);
         m_thresholdSetter = thresholdSetter;
@@ -140,23 +163,32 @@ public class TextClusteringModel {
         if (SQL.MAX_LEN_TEXT >= 0 && textHead.length() > SQL.MAX_LEN_TEXT) {
             textHead = textHead.substring(0, SQL.MAX_LEN_TEXT);
         }
-        final TextClusterData cluster = findCluster(textHead, timeStamp, true);
+        final long start = MetricsRegistry.startTimer();
+        TextClusterData cluster = findCluster(m_clustersData, textHead, timeStamp, true);
         if (cluster != null) {
-            return cluster;
+            s_lookupTime.recordSince(start);
+        } else {
+            cluster = safelyAddCluster(textHead, timeStamp);
+            s_addTime.recordSince(start);
         }
-        return safelyAddCluster(textHead, timeStamp);
+        if (m_updateDataStore) {
+            m_timeStampWriter.flushIfDue();
+        }
+        return cluster;
     }
 
     /**
-     * Find the first cluster that is close to the passed in text.
+     * Find the first cluster that is close to the passed in text, and move it to the head of the clusters.
      * 
+     * @param clusters the clusters to search, the clusters of this model or new clusters not added to them yet
      * @param text the text to search for in the clusters
      * @param timeStamp the time at which the text was observed
      * @return the first cluster that is close to the given text, or null if no cluster passed the 
      *         proximity threshold
      * @throws AdeException if an internal error occurred
      */
-    private TextClusterData findCluster(String text, Date timeStamp, boolean isTrace) throws AdeException {
+    private TextClusterData findCluster(List<TextClusterData> clusters, String text, Date timeStamp, boolean isTrace)
+            throws AdeException {
         boolean pathsAreOneToken = false;
         if (m_messageTextPreprocessor != null) {
             pathsAreOneToken = m_messageTextPreprocessor.treatPathsAsOneToken();
@@ -168,8 +200,9 @@ public class TextClusteringModel {
         } else {
             words = LevenshteinTextSummary.prepareString(text);
         }
-        
-        final Iterator<TextClusterData> e = m_clustersData.iterator();
+        final List<String> magicWords = magicWordsOf(words);
+
+        final Iterator<TextClusterData> e = clusters.iterator();
         while (e.hasNext()) {
          // this is needed from the first time on.
             final TextClusterData cluster = e.next();
@@ -181,7 +214,7 @@ public class TextClusteringModel {
                 clusterRepresentativeWords = LevenshteinTextSummary.prepareString(clusterRepresentative);
             }
             final int threshold = m_thresholdSetter.getThreshold(clusterRepresentativeWords.length, words.length);
-            final boolean areClose = areClose(clusterRepresentativeWords, words, threshold, isTrace);
+            final boolean areClose = areClose(clusterRepresentativeWords, words, magicWords, threshold, isTrace);
             boolean updatedLastObserved;
             if (areClose) {
                 updatedLastObserved = cluster.setLastObserved(timeStamp);
@@ -190,7 +223,7 @@ public class TextClusteringModel {
                 m_clustersData.push(cluster);
 
                 if (m_updateDataStore && updatedLastObserved) {
-                    m_dsTextClustering.updateTextClusterTimeStamp(cluster.getClusterId(), cluster.getLastObserved());
+                    m_timeStampWriter.update(cluster.getClusterId(), cluster.getLastObserved());
                 }
                 return cluster;
             }
@@ -207,14 +240,31 @@ public class TextClusteringModel {
         m_messageTextPreprocessor = messageTextPreprocessor;
     }
 
-    private boolean modelInSync() throws AdeException {
-        final int maxClusterId = m_dsTextClustering.getMaxClusterId(m_componentId);
-        if (Ade.getAde().getConfigProperties().debug().isDebugMessageIdGeneration() >= 0
-            && maxClusterId != m_maxClusterId) {
-            logger.info("   @@@@@@@@@@@@@@@@@@ MODELS ARE OUT OF SYNC -  REREADING  @@@@@@@@@@@@"
-                        + maxClusterId + "!=" + m_maxClusterId + "@@@@@@[" + m_componentName + "]");
+    /**
+     * Reads the clusters other models added to the data store since the last refresh, and finds the first
+     * of them that is close to the given text. Only the new clusters are searched, as the text is not close
+     * to the clusters of the model.
+     * 
+     * @return the new cluster close to the text, or null if there is none
+     */
+    private TextClusterData findNewCluster(String text, Date timeStamp) throws AdeException {
+        final List<TextClusterData> newClusters = new LinkedList<TextClusterData>();
+        final int maxClusterId = m_dsTextClustering.refreshClustersFromDataStore(m_componentId, m_maxClusterId,
+                newClusters);
+        if (newClusters.isEmpty()) {
+            return null;
         }
-        return maxClusterId == m_maxClusterId;
+        if (Ade.getAde().getConfigProperties().debug().isDebugMessageIdGeneration() >= 0) {
+            logger.info("   @@@@@@@@@@@@@@@@@@ MODELS ARE OUT OF SYNC -  READ " + newClusters.size()
+                        + " NEW CLUSTERS  @@@@@@@@@@@@" + maxClusterId + "!=" + m_maxClusterId
+                        + "@@@@@@[" + m_componentName + "]");
+        }
+        m_maxClusterId = maxClusterId;
+        m_parentModel.setMaxClusterId(m_maxClusterId);
+
+        final TextClusterData cluster = findCluster(newClusters, text, timeStamp, false);
+        m_clustersData.addAll(newClusters);
+        return cluster;
     }
 
     private TextClusterData safelyAddCluster(String text, Date timeStamp) throws AdeException {
@@ -230,39 +280,33 @@ public class TextClusteringModel {
                 logger.info("   ---------   adding new cluster for " + text + " on " + timeStamp + "   ["
                         + m_componentName + "]");
             }
-            final ConnectionWrapper cw = new ConnectionWrapper(AdeInternal.getDefaultConnection());
-            try {
-                cw.startTransaction();
-                cw.lockTableExclusive(SQL.TEXT_CLUSTERS);
-                if (!modelInSync()) {
-                    m_maxClusterId = m_dsTextClustering.refreshClustersFromDataStore(m_componentId,
-                            m_maxClusterId, m_clustersData);
-                    m_parentModel.setMaxClusterId(m_maxClusterId);
-
-                    cluster = findCluster(text, timeStamp, false);
-                    if (cluster != null) {
-                        if (debugMessageIdGeneration >= 0) {
-                            logger.info("=====================> found a matching cluster in the reread model =======["
-                                    + m_componentName + "]");
-                        }
-                        return cluster;
-                    }
-                }
 
-                clusterId = m_dsTextClustering.storeTextCluster(text, m_componentId, timeStamp);
-                // the new cluster should be maximal, but just in case we take max again.
-                if (clusterId != null) {
-                    m_maxClusterId = Math.max(clusterId, m_maxClusterId);
+            // optimistically, without locking: when several models see a new message at about the same time,
+            // the first one to add its cluster is usually found here by the others.
+            cluster = findNewCluster(text, timeStamp);
+            if (cluster != null) {
+                if (debugMessageIdGeneration >= 0) {
+                    logger.info("=====================> found a matching cluster in the reread model =======["
+                            + m_componentName + "]");
                 }
-            } catch (SQLException e) {
-                cw.failed(e);
-            } finally {
-                cw.quietCleanup();
+                return cluster;
+            }
+
+            // otherwise check again and add the cluster while holding the lock of the component, so that no
+            // other model adds a close cluster meanwhile. The addition is retried if the database rolls it back.
+            final ClusterAddition addition = new ClusterAddition(text, timeStamp, debugMessageIdGeneration >= 0);
+            // the cluster exists only once committed
+            clusterId = m_dsTextClustering.updateLockingComponent(m_componentId, addition);
+            cluster = addition.m_found;
+            if (cluster != null) {
+                return cluster;
             }
             if (clusterId == null) {
                 throw new AdeInternalException("clusterId not set for cluster=" + cluster
                         + ". Shuold have never reached this line");
             }
+            // the new cluster should be maximal, but just in case we take max again.
+            m_maxClusterId = Math.max(clusterId, m_maxClusterId);
             cluster = new TextClusterData(text, timeStamp, clusterId);
 
             m_clustersData.push(cluster);
@@ -278,6 +322,39 @@ public class TextClusteringModel {
 
     }
 
+    /**
+     * Adds a text cluster, unless a close one was added meanwhile. Run holding the lock of the component.
+     */
+    private final class ClusterAddition implements DataStoreTextClusteringModelsImpl.ComponentUpdate<Integer> {
+        private final String m_text;
+        private final Date m_timeStamp;
+        private final boolean m_debug;
+        /** The close cluster found in the data store, if any */
+        private TextClusterData m_found;
+
+        ClusterAddition(String text, Date timeStamp, boolean debug) {
+            m_text = text;
+            m_timeStamp = timeStamp;
+            m_debug = debug;
+        }
+
+        /**
+         * @return the id of the cluster added, or null if a close cluster was found.
+         */
+        @Override
+        public Integer run() throws AdeException {
+            m_found = findNewCluster(m_text, m_timeStamp);
+            if (m_found != null) {
+                if (m_debug) {
+                    logger.info("=====================> found a matching cluster in the reread model =======["
+                            + m_componentName + "]");
+                }
+                return null;
+            }
+            return m_dsTextClustering.storeTextCluster(m_text, m_componentId, m_timeStamp);
+        }
+    }
+
     /**
      * Determines whether the Levenshtein distance between two strings is smaller than a given threshold.
      * Calculates a thresholded Levenshtein distance between the strings, and if the distance is larger than the
@@ -285,19 +362,18 @@ public class TextClusteringModel {
      *    
      * @param strA first string
      * @param strB second string
+     * @param magicB the magic words of the second string
      * @param threshold maximal allowed edit distance between the two strings.
      * @return true if the distance between the two strings is smaller or equal to the given threshold.
      * @throws AdeException if an internal error occurred
      */
-    private boolean areClose(Word[] wordsA, Word[] wordsB, int threshold, boolean isTrace) throws AdeException {
-        final int oldThreshold = LevenshteinTextSummary.getThreshold();
-        LevenshteinTextSummary.setThreshold(threshold);
-        final int distance = LevenshteinTextSummary.calcDistance(wordsA, wordsB);
-        LevenshteinTextSummary.setThreshold(oldThreshold);
+    private boolean areClose(Word[] wordsA, Word[] wordsB, List<String> magicB, int threshold, boolean isTrace)
+            throws AdeException {
+        final int distance = LevenshteinTextSummary.calcDistance(wordsA, wordsB, threshold);
         boolean magicMatch = true;
      // this may be expensive, so only do this if we really need to
         if (distance <= threshold) {
-            magicMatch = doMagicWordsMatch(wordsA, wordsB);
+            magicMatch = doMagicWordsMatch(wordsA, magicB);
         }
         
         final int debugMessageIdGeneration =
@@ -320,31 +396,21 @@ public class TextClusteringModel {
     }
 
     /*
-     * Creates separate lists of the magic words in wordsA and wordsB and then compares the two.
+     * Creates the list of the magic words in wordsA and compares it with magicB, the magic words of the
+     * text being clustered, which are looked up once for all the clusters.
      * 
      * Returns true under the following conditions:
      *      if m_messageTextPreprocessor is null and thus does not have a list of magic words to compare to.
-     *      if the list of magic words in wordsA is equal to the list of magic words in wordsB.
-     *      if magic words were not found in both wordsA and wordsB.
+     *      if the list of magic words in wordsA is equal to magicB.
+     *      if magic words were not found in both wordsA and magicB.
      *
-     * Returns false if the list of magic words in wordsA is not equal to the list of magic words in wordsB.
+     * Returns false if the list of magic words in wordsA is not equal to magicB.
      */
-    private boolean doMagicWordsMatch(Word[] wordsA, Word[] wordsB) throws AdeException {
+    private boolean doMagicWordsMatch(Word[] wordsA, List<String> magicB) throws AdeException {
         if (m_messageTextPreprocessor == null) {
             return true;
         }
-        final List<String> magicA = new ArrayList<String>();
-        final List<String> magicB = new ArrayList<String>();
-        for (int i = 0; i < wordsA.length; ++i) {
-            if (m_messageTextPreprocessor.isMagicWord(wordsA[i].getStr())) {
-                magicA.add(wordsA[i].getStr());
-            }
-        }
-        for (int i = 0; i < wordsB.length; ++i) {
-            if (m_messageTextPreprocessor.isMagicWord(wordsB[i].getStr())) {
-                magicB.add(wordsB[i].getStr());
-            }
-        }
+        final List<String> magicA = magicWordsOf(wordsA);
         if (magicA.isEmpty() && magicB.isEmpty()) {
             return true;
         }
@@ -377,6 +443,26 @@ public class TextClusteringModel {
         return magicA.equals(magicB);
     }
 
+    /*
+     * Returns the magic words among the given words, in their order, or an empty list if
+     * m_messageTextPreprocessor is null.
+     */
+    private List<String> magicWordsOf(Word[] words) {
+        if (m_messageTextPreprocessor == null) {
+            return Collections.emptyList();
+        }
+        List<String> magicWords = Collections.emptyList();
+        for (int i = 0; i < words.length; ++i) {
+            if (m_messageTextPreprocessor.isMagicWord(words[i].getStr())) {
+                if (magicWords.isEmpty()) {
+                    magicWords = new ArrayList<String>();
+                }
+                magicWords.add(words[i].getStr());
+            }
+        }
+        return magicWords;
+    }
+
     public final Collection<TextClusterData> getClusters() {
         return m_clustersData;
     }
@@ -22,12 +22,11 @@ package org.openmainframe.ade.impl.dataStore;
 import java.io.File;
 import java.io.IOException;
 import java.sql.SQLException;
-import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
 
 import org.openmainframe.ade.AdeInternal;
 import org.openmainframe.ade.dataStore.IDataStoreModels;
@@ -46,23 +45,53 @@ public class DataStoreModelsImpl<T extends IModel> implements IDataStoreModels<T
     private final SQL m_modelsTable;
     private final ModelMetaDataLoader m_modelMetaDataLoader;
     private final IModelFileHandler<T> m_modelFileHandler;
-    private final Map<String, T> m_modelsCache;
-    private Map<String, Object> m_modelDataObject;
+    /* Deserialized models by internal id, weighted by the byte size of their model files */
+    private final LruCache<Integer, T> m_modelsCache;
+    private final LruCache.Loader<Integer, T> m_modelLoader = new LruCache.Loader<Integer, T>() {
+        @Override
+        public T load(Integer modelInternalId) throws AdeException {
+            return loadByMetaData(ModelRead.readMetaData(m_modelsTable, modelInternalId));
+        }
+    };
+    /* Runtime model data, which may be loaded by a background thread while being read */
+    private final Map<String, Object> m_modelDataObject;
     private static final int DEFAULT_MODELS_CACHE_SIZE = 100;
+    private static final long DEFAULT_MODELS_CACHE_MAX_BYTES = 1024L * 1024 * 1024;
+
+    private static final LruCache.Weigher<Object, IModel> MODEL_FILE_SIZE_WEIGHER = new LruCache.Weigher<Object, IModel>() {
+        @Override
+        public long weigh(Object key, IModel model) {
+            final File modelFile = model.getModelMetaData().getModelFileName();
+            return modelFile != null ? modelFile.length() : 0;
+        }
+    };
 
     /**
-     * Construct a new DataStoreModelsImpl specifying a model cache size.
+     * Construct a new DataStoreModelsImpl specifying the model cache bounds.
      * 
      * @param modelsTable the model table description
      * @param modelFileHandler the ModelFileHandler
-     * @param modelsCacheSize the cache size
+     * @param modelsCacheSize the maximum number of cached models
+     * @param modelsCacheMaxBytes the maximum total size of the model files of the cached models
      */
-    public DataStoreModelsImpl(SQL modelsTable, IModelFileHandler<T> modelFileHandler, int modelsCacheSize) {
+    public DataStoreModelsImpl(SQL modelsTable, IModelFileHandler<T> modelFileHandler, int modelsCacheSize,
+            long modelsCacheMaxBytes) {
         m_modelsTable = modelsTable;
         m_modelMetaDataLoader = new ModelMetaDataLoader(modelsTable);
         m_modelFileHandler = modelFileHandler;
-        m_modelsCache = Collections.synchronizedMap(new LruCachedMap<String, T>(modelsCacheSize));
-        m_modelDataObject = new TreeMap<String, Object>();
+        m_modelsCache = new LruCache<Integer, T>(modelsCacheSize, modelsCacheMaxBytes, MODEL_FILE_SIZE_WEIGHER);
+        m_modelDataObject = new ConcurrentSkipListMap<String, Object>();
+    }
+
+    /**
+     * Construct a new DataStoreModelsImpl specifying a model cache size.
+     * 
+     * @param modelsTable the model table description
+     * @param modelFileHandler the ModelFileHandler
+     * @param modelsCacheSize the cache size
+     */
+    public DataStoreModelsImpl(SQL modelsTable, IModelFileHandler<T> modelFileHandler, int modelsCacheSize) {
+        this(modelsTable, modelFileHandler, modelsCacheSize, DEFAULT_MODELS_CACHE_MAX_BYTES);
     }
 
     /**
@@ -82,19 +111,17 @@ public class DataStoreModelsImpl<T extends IModel> implements IDataStoreModels<T
 
     @Override
     public final T loadDefaultModel(String analysisGroup) throws AdeException {
-        T model = m_modelsCache.get(analysisGroup);
+        // the latest default model in DB, loaded only if not cached
         final IModelMetaData defaultModelMetaData = loadDefaultModelMetaData(analysisGroup);
-        if (model != null) {
-            // compare cached model with latest in DB
-            final int cachedModelId = model.getModelMetaData().getModelInternalId();
-            final int defaultModelId = defaultModelMetaData.getModelInternalId();
-            if (cachedModelId == defaultModelId) {
-                return model;
-            }
+        if (defaultModelMetaData == null) {
+            return null;
         }
-        model = loadByMetaData(loadDefaultModelMetaData(analysisGroup));
-        m_modelsCache.put(analysisGroup, model);
-        return model;
+        return m_modelsCache.get(defaultModelMetaData.getModelInternalId(), new LruCache.Loader<Integer, T>() {
+            @Override
+            public T load(Integer modelInternalId) throws AdeException {
+                return loadByMetaData(defaultModelMetaData);
+            }
+        });
     }
 
     @Override
@@ -146,7 +173,7 @@ public class DataStoreModelsImpl<T extends IModel> implements IDataStoreModels<T
 
     @Override
     public final T loadModel(int modelInternalId) throws AdeException {
-        return loadByMetaData(ModelRead.readMetaData(m_modelsTable, modelInternalId));
+        return m_modelsCache.get(modelInternalId, m_modelLoader);
     }
 
     @Override
@@ -174,6 +201,7 @@ public class DataStoreModelsImpl<T extends IModel> implements IDataStoreModels<T
             metaData = loadModelMetaData(modelInternalId);
         }
         ModelStore.deleteModelMetaData(m_modelsTable, modelInternalId);
+        m_modelsCache.invalidate(modelInternalId);
         if (metaData != null && deleteModelFile) {
             if (metaData.getModelFileName() == null) {
                 throw new AdeInternalException("Model " + modelInternalId
@@ -183,6 +211,11 @@ public class DataStoreModelsImpl<T extends IModel> implements IDataStoreModels<T
         }
     }
 
+    @Override
+    public final void evictModel(int modelInternalId) {
+        m_modelsCache.invalidate(modelInternalId);
+    }
+
     @Override
     public final void setAsDefault(int modelInternalId) throws AdeException {
         ModelStore.setAsDefault(m_modelsTable, modelInternalId);
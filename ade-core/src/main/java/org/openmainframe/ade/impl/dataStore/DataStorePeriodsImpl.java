@@ -19,6 +19,9 @@
 */
 package org.openmainframe.ade.impl.dataStore;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
@@ -38,9 +41,11 @@ import org.openmainframe.ade.dbUtils.ConnectionWrapper;
 import org.openmainframe.ade.dbUtils.PreparedStatementWrapper;
 import org.openmainframe.ade.exceptions.AdeException;
 import org.openmainframe.ade.exceptions.AdeInternalException;
+import org.openmainframe.ade.exceptions.AdeUsageException;
 import org.openmainframe.ade.flow.IAdeIterator;
 import org.openmainframe.ade.impl.data.IntervalImpl;
 import org.openmainframe.ade.impl.data.PeriodImpl;
+import org.openmainframe.ade.impl.data.SourceImpl;
 import org.openmainframe.ade.impl.dbUtils.DmlPreparedStatementExecuter;
 import org.openmainframe.ade.impl.dbUtils.QueryPreparedStatementExecuter;
 import org.openmainframe.ade.impl.dbUtils.TableGeneralUtils;
@@ -62,13 +67,26 @@ public class DataStorePeriodsImpl implements IDataStorePeriods {
 
     private static final Logger LOG = LoggerFactory.getLogger(DataStorePeriodsImpl.class);
 
+    private final PeriodCache m_periodCache;
+
     public DataStorePeriodsImpl() throws AdeException {
-        // Nothing to initialize
+        this(new PeriodCache());
+    }
+
+    DataStorePeriodsImpl(PeriodCache periodCache) {
+        m_periodCache = periodCache;
     }
 
+    /**
+     * @return the cache of periods read or added through this data store.
+     */
+    public final PeriodCache getPeriodCache() {
+        return m_periodCache;
+    }
 
     @Override
     public final void deletePeriod(IPeriod period) throws AdeException {
+        m_periodCache.remove(period);
         new PeriodDeleter(period).execute();
     }
 
@@ -77,10 +95,46 @@ public class DataStorePeriodsImpl implements IDataStorePeriods {
             Date maxTime) throws AdeException {
         final PeriodLister pl = new PeriodLister(source, minTime, maxTime);
         pl.executeQuery();
+        for (PeriodImpl period : pl.m_result) {
+            m_periodCache.put(period);
+        }
         return new ArrayList<IPeriod>(pl.m_result);
     }
 
+    /**
+     * Loads into the period cache all the periods, of all sources, that lie within the
+     * given time range.  Useful before uploading or analyzing a multi-day backfill, so
+     * that period resolution does not go to the database.
+     *
+     * @param minTime minimal period start time, or null for no lower bound.
+     * @param maxTime maximal period end time, or null for no upper bound.
+     * @return the number of periods loaded.
+     */
+    public final int preloadPeriods(Date minTime, Date maxTime) throws AdeException {
+        final PeriodLister pl = new PeriodLister(null, minTime, maxTime);
+        pl.executeQuery();
+        for (PeriodImpl period : pl.m_result) {
+            m_periodCache.put(period);
+        }
+        LOG.info("Preloaded " + pl.m_result.size() + " periods into the period cache");
+        return pl.m_result.size();
+    }
+
+    /**
+     * Returns the period of the given source and time range, adding it to the database if it does
+     * not exist. The first time a time range is missed, the periods of all sources in that range are
+     * preloaded, since the sources of the input, e.g. of a backfill, soon reach the same range.
+     */
     public final PeriodImpl getOrAddPeriod(ISource source, Date startTime, Date endTime) throws AdeException {
+        PeriodImpl cached = m_periodCache.get(source.getSourceInternalId(), startTime, endTime);
+        if (cached == null && m_periodCache.markPreloaded(startTime)) {
+            preloadPeriods(startTime, endTime);
+            cached = m_periodCache.get(source.getSourceInternalId(), startTime, endTime);
+        }
+        if (cached != null) {
+            return cached;
+        }
+
         final ConnectionWrapper cw = new ConnectionWrapper(AdeInternal.getDefaultConnection());
         PeriodImpl res = null;
         try {
@@ -92,6 +146,7 @@ public class DataStorePeriodsImpl implements IDataStorePeriods {
                 res = new PeriodImpl(cw.simpleQueries().getLastKey(), source, false, 0, null, startTime, endTime);
                 LOG.info("Created a new period " + res);
             }
+            m_periodCache.put(res);
             cw.endTransaction();
             cw.close();
         } catch (SQLException e) {
@@ -104,7 +159,19 @@ public class DataStorePeriodsImpl implements IDataStorePeriods {
 
     @Override
     public final void updatePeriodMetaData(IPeriod period) throws AdeException {
-        new PeriodUpdater(getPeriodImpl(period)).execute();
+        final PeriodImpl periodImpl = getPeriodImpl(period);
+        boolean updated = false;
+        try {
+            new PeriodUpdater(periodImpl).execute();
+            updated = true;
+        } finally {
+            // the caller may have changed a cached period before the failed update
+            if (updated) {
+                m_periodCache.put(periodImpl);
+            } else {
+                m_periodCache.remove(periodImpl);
+            }
+        }
     }
 
     public final PeriodImpl getPeriodImpl(IPeriod period) throws AdeException {
@@ -115,6 +182,11 @@ public class DataStorePeriodsImpl implements IDataStorePeriods {
     }
 
     public final PeriodImpl getPeriodImpl(ISource source, Date startTime, Date endTime) throws AdeException {
+        final PeriodImpl cached = m_periodCache.get(source.getSourceInternalId(), startTime, endTime);
+        if (cached != null) {
+            return cached;
+        }
+
         final PeriodLoader pl = new PeriodLoader(source, startTime, endTime);
         pl.executeQuery();
         if (pl.m_result.isEmpty()) {
@@ -125,6 +197,7 @@ public class DataStorePeriodsImpl implements IDataStorePeriods {
         if (pl.m_result.size() == 1 
                 && res.getStartTime().equals(startTime) 
                 && res.getEndTime().equals(endTime)) {
+            m_periodCache.put(res);
             return res;
         }
 
@@ -191,15 +264,40 @@ public class DataStorePeriodsImpl implements IDataStorePeriods {
         return new IntervalByPeriodsAndFramingFlowTypeDbIterator(periods, framingFlowType, verbose);
     }
 
+    /**
+     * Writes the period, with its period summaries, intervals, message summaries and the
+     * text clusters they refer to, in the {@link PeriodDataFile} format. The file is
+     * compressed if its name ends with ".gz".
+     */
     @Override
     public void exportPeriodToJsonFile(IPeriod period, String fileName)
             throws AdeException {
-        throw new AdeInternalException("Not Implemented");
+        final PeriodImpl periodImpl = getPeriodImpl(period);
+        if (periodImpl == null) {
+            throw new AdeUsageException("Period " + period + " is not in the data store");
+        }
+        final OutputStream out;
+        try {
+            out = PeriodDataFile.openOutput(fileName);
+        } catch (IOException e) {
+            throw new AdeUsageException("Failed creating " + fileName, e);
+        }
+        new PeriodExporter(periodImpl).export(out);
     }
 
+    /**
+     * Reads a file written by {@link #exportPeriodToJsonFile(IPeriod, String)}. The period
+     * summaries in the file replace the period summaries of the same type.
+     */
     @Override
     public void importPeriodFromJsonFile(String fileName) throws AdeException {
-        throw new AdeInternalException("not implemented");
+        final InputStream in;
+        try {
+            in = PeriodDataFile.openInput(fileName);
+        } catch (IOException e) {
+            throw new AdeUsageException("Failed opening " + fileName, e);
+        }
+        new PeriodImporter(this).importPeriod(in);
     }
 
     @Override
@@ -299,9 +397,11 @@ public class DataStorePeriodsImpl implements IDataStorePeriods {
 
         PeriodLister(ISource source, Date min, Date max) {
                        
-            super("select period_internal_id,exclude_from_training,status,comment,start_time,end_time from "
+            super("select period_internal_id,exclude_from_training,status,comment,start_time,end_time"
+                    + ",source_internal_id from "
                     + SQL.PERIODS
-                    + " where source_internal_id=? "
+                    + " where 1=1"
+                    + ((source != null) ? " and source_internal_id=?" : "")
                     + ((min != null) ? " and start_time>=?" : "")
                     + ((max != null) ? " and end_time<=?" : ""));
             
@@ -326,7 +426,9 @@ public class DataStorePeriodsImpl implements IDataStorePeriods {
         protected void setParameters(PreparedStatement stmt) throws SQLException,
                 AdeException {
             int pos = 1;
-            stmt.setInt(pos++, m_source.getSourceInternalId());
+            if (m_source != null) {
+                stmt.setInt(pos++, m_source.getSourceInternalId());
+            }
             if (m_min != null) {
                 TableGeneralUtils.setPreparedStatementTimestamp(stmt, pos++, m_min);
             }
@@ -351,9 +453,10 @@ public class DataStorePeriodsImpl implements IDataStorePeriods {
             if (rs.wasNull()) {
                 excludeFromTraining = false;
             }
+            final int sourceInternalId = rs.getInt(pos++);
             
             m_result.add(new PeriodImpl(periodInternalId
-                                        , m_source
+                                        , (m_source != null) ? m_source : new SourceImpl(sourceInternalId)
                                         , excludeFromTraining
                                         , status
                                         , comment
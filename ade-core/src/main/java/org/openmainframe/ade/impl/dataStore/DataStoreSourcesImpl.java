@@ -85,7 +85,7 @@ public class DataStoreSourcesImpl implements IDataStoreSources {
      *                             
      */
     @Override
-    public final ISource getOrAddSource(String sourceId) throws AdeException {
+    public final synchronized ISource getOrAddSource(String sourceId) throws AdeException {
         refreshDictionaryIfNeeded();
         final int sourceInternalId = m_dictionary.addWord(sourceId);
         return new SourceImpl(sourceInternalId);
@@ -111,7 +111,7 @@ public class DataStoreSourcesImpl implements IDataStoreSources {
      * @throws AdeException Throws a AdeException
      */
     @Override
-    public final ISource getSource(String sourceId) throws AdeException {
+    public final synchronized ISource getSource(String sourceId) throws AdeException {
         m_dictionary.refresh();
         m_src2AnalysisGrpMap.clear();
         final int sourceInternalId = m_dictionary.getWordId(sourceId);
@@ -127,8 +127,10 @@ public class DataStoreSourcesImpl implements IDataStoreSources {
      * @throws AdeException Throws a AdeException
      */
     @Override
-    public final void deleteSource(ISource source) throws AdeException {
+    public final synchronized void deleteSource(ISource source) throws AdeException {
         m_dictionary.delete(source.getSourceInternalId());
+        // the source's periods were deleted by cascade
+        AdeInternal.getAdeImpl().getDataStore().periods().getPeriodCache().removeSource(source.getSourceInternalId());
     }
 
     /**
@@ -138,7 +140,7 @@ public class DataStoreSourcesImpl implements IDataStoreSources {
      * @throws AdeException Throws a AdeException
      */
     @Override
-    public final Collection<ISource> getAllSources() throws AdeException {
+    public final synchronized Collection<ISource> getAllSources() throws AdeException {
         m_dictionary.refresh();
         m_src2AnalysisGrpMap.clear();
         final List<ISource> result = new ArrayList<ISource>();
@@ -170,7 +172,7 @@ public class DataStoreSourcesImpl implements IDataStoreSources {
      * @throws AdeException Throws a AdeException
      */
     @Override
-    public final void resetAnalysisGroup(String source, int analysisGroup) throws AdeException {
+    public final synchronized void resetAnalysisGroup(String source, int analysisGroup) throws AdeException {
         final ConnectionWrapper cw = new ConnectionWrapper(AdeInternal.getDefaultConnection());
         try {
             cw.startTransaction();
@@ -196,7 +198,7 @@ public class DataStoreSourcesImpl implements IDataStoreSources {
      * @throws AdeException Throws a AdeException 
      */
     @Override
-    public final void setSourceMetaData(ISource source, SourceMetaData sourceMetaData)
+    public final synchronized void setSourceMetaData(ISource source, SourceMetaData sourceMetaData)
             throws AdeException {
         final ConnectionWrapper cw = new ConnectionWrapper(AdeInternal.getDefaultConnection());
         try {
@@ -226,7 +228,7 @@ public class DataStoreSourcesImpl implements IDataStoreSources {
      *                                 the attempt to get metadata for a source.
      */
     @Override
-    public final SourceMetaData getSourceMetaData(ISource source) throws AdeException {
+    public final synchronized SourceMetaData getSourceMetaData(ISource source) throws AdeException {
         SourceMetaData smd = null;
         final ConnectionWrapper cw = new ConnectionWrapper(AdeInternal.getDefaultConnection());
         try {
@@ -258,7 +260,7 @@ public class DataStoreSourcesImpl implements IDataStoreSources {
      * @throws AdeException Throws a AdeException
      */
     @Override
-    public final boolean hasSource(String sourceId) throws AdeException {
+    public final synchronized boolean hasSource(String sourceId) throws AdeException {
         refreshDictionaryIfNeeded();
         return m_dictionary.getWordId(sourceId) != DbDictionary.InvalidID;
     }
@@ -273,7 +275,7 @@ public class DataStoreSourcesImpl implements IDataStoreSources {
      *                                  the datastore, the source does not exist.
      */
     @Override
-    public final String getAnalysisGroup(String source) throws AdeException {
+    public final synchronized String getAnalysisGroup(String source) throws AdeException {
         refreshDictionaryIfNeeded();
         String analysisGroup;
         analysisGroup = m_src2AnalysisGrpMap.get(source);
@@ -306,7 +308,7 @@ public class DataStoreSourcesImpl implements IDataStoreSources {
      * when a different one was already set for this source.
      */
     @Override
-    public final void setAnalysisGroup(String source, int analysisGroup) throws AdeException {
+    public final synchronized void setAnalysisGroup(String source, int analysisGroup) throws AdeException {
         String curAnalysisGroup = null;
         String groupName;        
         final ConnectionWrapper cw = new ConnectionWrapper(AdeInternal.getDefaultConnection());
@@ -383,7 +385,7 @@ public class DataStoreSourcesImpl implements IDataStoreSources {
      * @throws AdeException Throws a AdeException 
      */
     @Override
-    public final Set<Integer> getAllAnalysisGroups() throws AdeException {
+    public final synchronized Set<Integer> getAllAnalysisGroups() throws AdeException {
         final Set<Integer> analysisGroups = new TreeSet<Integer>();
 
         new QueryStatementExecuter("select distinct ANALYSIS_GROUP from " + SQL.SOURCES) {
@@ -406,7 +408,7 @@ public class DataStoreSourcesImpl implements IDataStoreSources {
      * @throws AdeException
      */
     @Override
-    public final Set<ISource> getSourcesForAnalysisGroup(int analysisGroup) throws AdeException {
+    public final synchronized Set<ISource> getSourcesForAnalysisGroup(int analysisGroup) throws AdeException {
         final Set<ISource> sources = new TreeSet<ISource>();
 
         new QueryStatementExecuter("select distinct SOURCE_INTERNAL_ID from " + SQL.SOURCES
@@ -429,7 +431,7 @@ public class DataStoreSourcesImpl implements IDataStoreSources {
      * @throws AdeException Throws a AdeException
      */
     @Override
-    public final void addSourceAndAnalysisGroup(String sourceId, int analysisGroup)
+    public final synchronized void addSourceAndAnalysisGroup(String sourceId, int analysisGroup)
             throws AdeException {
 
         if (!hasSource(sourceId)) {
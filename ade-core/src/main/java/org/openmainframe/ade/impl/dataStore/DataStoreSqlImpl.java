@@ -58,6 +58,7 @@ public class DataStoreSqlImpl implements IDataStore {
     private final DataStoreModelsImpl<IMainScorer> m_dataStoreModels;
     private final DataStoreUserImpl m_dataStoreUser;
     private final DataStoreTextClusteringModelsImpl m_dataStoreTextClustering;
+    private final DataStoreTrainingStatistics m_dataStoreTrainingStatistics = new DataStoreTrainingStatistics();
     private final Ade ade;
 
     public DataStoreSqlImpl(Ade ade, AdeDictionaries adeDictionaries, DataStoreSourcesImpl dataStoreSources,
@@ -197,6 +198,10 @@ public class DataStoreSqlImpl implements IDataStore {
         return m_dataStorePeriodSummaries;
     }
 
+    public DataStoreTrainingStatistics trainingStatistics() {
+        return m_dataStoreTrainingStatistics;
+    }
+
     @Override
     public DataStoreModelsImpl<IMainScorer> models() {
         return m_dataStoreModels;
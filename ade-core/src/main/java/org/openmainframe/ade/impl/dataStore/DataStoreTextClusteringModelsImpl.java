@@ -24,14 +24,21 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.Collection;
 import java.util.Date;
+import java.util.Map;
 
 import org.openmainframe.ade.AdeInternal;
+import org.openmainframe.ade.dbUtils.ConnectionWrapper;
+import org.openmainframe.ade.dbUtils.PreparedStatementWrapper;
 import org.openmainframe.ade.exceptions.AdeException;
+import org.openmainframe.ade.exceptions.AdeInternalException;
 import org.openmainframe.ade.impl.data.TextClusterData;
+import org.openmainframe.ade.impl.dbUtils.DmlPreparedStatementChunkExecuter;
 import org.openmainframe.ade.impl.dbUtils.DmlPreparedStatementExecuter;
-import org.openmainframe.ade.impl.dbUtils.QueryStatementExecuter;
+import org.openmainframe.ade.impl.dbUtils.QueryPreparedStatementExecuter;
 import org.openmainframe.ade.impl.dbUtils.SpecialSqlQueries;
 import org.openmainframe.ade.impl.dbUtils.TableGeneralUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * Provides access to @link{TextClusteringModel} in the datastore. Allows for loading the models in the
@@ -40,38 +47,162 @@ import org.openmainframe.ade.impl.dbUtils.TableGeneralUtils;
  */
 public class DataStoreTextClusteringModelsImpl {
 
+    private static final Logger logger = LoggerFactory.getLogger(DataStoreTextClusteringModelsImpl.class);
+
+    /** The attempts made to update the clusters of a component, when the database rolls the transaction back */
+    public static final int MAX_UPDATE_ATTEMPTS = 5;
+
+    /**
+     * An update of the text clusters of a component, run by {@link #updateLockingComponent}. The update is run
+     * again when the database rolls its transaction back, so it should not keep results of an earlier run.
+     *
+     * @param <T> the type of the result of the update
+     */
+    public interface ComponentUpdate<T> {
+        /**
+         * @return the result of the update, returned by {@link #updateLockingComponent} once committed.
+         */
+        T run() throws AdeException;
+    }
+
     /** Create the instance of the class.
      */
     public DataStoreTextClusteringModelsImpl() {
         //Purposefully empty constructor
     }
     /**
-     * Place a text cluster in the data store.
+     * Place a text cluster in the data store. The cluster id is allocated by the identity
+     * column of the table, and read back from the generated keys of the insert.
      * @param representativeText text that represents the cluster
      * @param componentInternalId the component internal id
      * @param timeStamp time it was last observed
-     * @return the last key of the data store
+     * @return the id of the new cluster
      * @throws AdeException
      */
     public final int storeTextCluster(final String representativeText, final int componentInternalId,
             final Date timeStamp) throws AdeException {
-        final DmlPreparedStatementExecuter clusterStorer = new DmlPreparedStatementExecuter(
-                "INSERT INTO " + SQL.TEXT_CLUSTERS + " "
-                        + "(COMPONENT_INTERNAL_ID, TEXT_REPRESENTATIVE, LAST_OBSERVED )"
-                        + " VALUES( ?, ?, ? ) ") {
+        final ConnectionWrapper cw = new ConnectionWrapper(AdeInternal.getDefaultConnection());
+        Integer clusterId = null;
+        try {
+            final PreparedStatementWrapper psw = cw.preparedStatement("INSERT INTO " + SQL.TEXT_CLUSTERS + " "
+                    + "(COMPONENT_INTERNAL_ID, TEXT_REPRESENTATIVE, LAST_OBSERVED )"
+                    + " VALUES( ?, ?, ? ) ", new String[] { "TEXT_CLUSTER_INTERNAL_ID" });
+            final PreparedStatement stmt = psw.getPreparedStatement();
+            int pos = 1;
+            stmt.setInt(pos++, componentInternalId);
+            stmt.setString(pos++, representativeText);
+            TableGeneralUtils.setPreparedStatementTimestamp(stmt, pos++, timeStamp);
+            stmt.executeUpdate();
+            final ResultSet generatedKeys = stmt.getGeneratedKeys();
+            try {
+                if (generatedKeys.next()) {
+                    clusterId = generatedKeys.getInt(1);
+                }
+            } finally {
+                generatedKeys.close();
+            }
+            cw.close();
+        } catch (SQLException e) {
+            cw.failed(e);
+        } finally {
+            cw.quietCleanup();
+        }
+        if (clusterId == null) {
+            throw new AdeInternalException("No cluster id generated for the text cluster of component "
+                    + componentInternalId);
+        }
+        return clusterId;
+    }
+
+    /**
+     * Lock the row of a component until the end of the current transaction of the default
+     * connection, to serialize the additions of clusters to that component. Unlike a lock
+     * of the TEXT_CLUSTERS table, it lets other components add clusters and lets the
+     * clusters be read and updated meanwhile.
+     * @param componentInternalId the component internal id
+     * @throws AdeException
+     */
+    public final void lockComponent(final int componentInternalId) throws AdeException {
+        final DmlPreparedStatementExecuter componentLocker = new DmlPreparedStatementExecuter(
+                "UPDATE   " + SQL.COMPONENT_IDS + " "
+                        + "SET      COMPONENT_ID = COMPONENT_ID "
+                        + "WHERE    COMPONENT_INTERNAL_ID = ? ") {
             @Override
             protected void setParameters(PreparedStatement stmt) throws SQLException,
                     AdeException {
-                int pos = 1;
-                stmt.setInt(pos++, componentInternalId);
-                stmt.setString(pos++, representativeText);
-                TableGeneralUtils.setPreparedStatementTimestamp(stmt, pos++, timeStamp);
-
+                stmt.setInt(1, componentInternalId);
             }
         };
 
-        clusterStorer.execute();
-        return SpecialSqlQueries.getLastKey();
+        componentLocker.execute();
+    }
+
+    /**
+     * Run an update of the clusters of a component in its own transaction, holding the lock of the component
+     * (see {@link #lockComponent(int)}), so that no other process adds a close cluster meanwhile. Other
+     * components are not blocked. A transaction rolled back by the database, e.g. on a deadlock or when an
+     * identity value could not be allocated in time, is retried up to {@link #MAX_UPDATE_ATTEMPTS} times, also
+     * when it is rolled back at commit.
+     * @param componentInternalId the component internal id
+     * @param update the update to run
+     * @return the result of the committed update
+     * @throws AdeException
+     */
+    public final <T> T updateLockingComponent(int componentInternalId, ComponentUpdate<T> update)
+            throws AdeException {
+        for (int attempt = 1;; ++attempt) {
+            final ConnectionWrapper cw = new ConnectionWrapper(AdeInternal.getDefaultConnection());
+            try {
+                cw.startTransaction();
+                lockComponent(componentInternalId);
+                final T result = update.run();
+                cw.close();
+                return result;
+            } catch (SQLException e) {
+                rollbackQuietly(cw);
+                if (attempt >= MAX_UPDATE_ATTEMPTS || !isTransactionRollback(e)) {
+                    cw.failed(e);
+                }
+                logRetry(componentInternalId, e);
+            } catch (AdeException e) {
+                rollbackQuietly(cw);
+                if (attempt >= MAX_UPDATE_ATTEMPTS || !isTransactionRollback(e)) {
+                    throw e;
+                }
+                logRetry(componentInternalId, e);
+            } finally {
+                cw.quietCleanup();
+            }
+        }
+    }
+
+    private static void logRetry(int componentInternalId, Exception e) {
+        logger.warn("Updating the text clusters of component " + componentInternalId
+                + " was rolled back by the database, retrying", e);
+    }
+
+    /**
+     * @return true if the exception was caused by the database rolling back the transaction, as indicated by
+     *     the SQL state class 40.
+     */
+    private static boolean isTransactionRollback(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException) {
+                final String sqlState = ((SQLException) cause).getSQLState();
+                if (sqlState != null && sqlState.startsWith("40")) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static void rollbackQuietly(ConnectionWrapper cw) {
+        try {
+            cw.rollback();
+        } catch (SQLException e) {
+            logger.error("Failed rolling back the update of text clusters", e);
+        }
     }
 
     /**
@@ -96,10 +227,11 @@ public class DataStoreTextClusteringModelsImpl {
     }
 
     /**
-     * Get the latest cluster data from the datastore.
+     * Get the latest cluster data from the datastore, i.e. the clusters with an id greater
+     * than the current maximum.
      * @param componentId the component id to refresh the data about
      * @param currentMaxClusterId the current maximum cluster ID
-     * @param clustersData a collection of clusters
+     * @param clustersData a collection of clusters, the new clusters are added to it
      * @return the updated max cluster id
      * @throws AdeException
      */
@@ -113,33 +245,43 @@ public class DataStoreTextClusteringModelsImpl {
     }
 
     /**
-     * Update the last observed time stamp for a given cluster.
-     * @param clusterId the cluster that needs to be updated
-     * @param timeStamp the new last observed time stamp
+     * Update the last observed time stamps of clusters, in one batched statement. A time stamp only
+     * moves forward: a cluster whose stored time stamp is already later is left as is, so that
+     * delayed or repeated updates are harmless.
+     * @param timeStamps the new last observed time stamps by cluster id. Rows are updated in the
+     *     order of the map, which should be sorted to avoid deadlocks between concurrent writers.
      * @throws AdeException
      */
-    public final void updateTextClusterTimeStamp(final int clusterId, final Date timeStamp) throws AdeException {
-        final DmlPreparedStatementExecuter timeStampUpdater = new DmlPreparedStatementExecuter(
+    public final void updateTextClusterTimeStamps(final Map<Integer, Date> timeStamps) throws AdeException {
+        if (timeStamps.isEmpty()) {
+            return;
+        }
+        final DmlPreparedStatementChunkExecuter timeStampUpdater = new DmlPreparedStatementChunkExecuter(
                 "UPDATE   " + SQL.TEXT_CLUSTERS + " "
                         + "SET      LAST_OBSERVED = ? "
-                        + "WHERE    TEXT_CLUSTER_INTERNAL_ID = ? ") {
+                        + "WHERE    TEXT_CLUSTER_INTERNAL_ID = ? "
+                        + "AND      LAST_OBSERVED < ? ") {
             @Override
-            protected void setParameters(PreparedStatement stmt) throws SQLException,
-                    AdeException {
-                int pos = 1;
-                TableGeneralUtils.setPreparedStatementTimestamp(stmt, pos++, timeStamp);
-                stmt.setInt(pos++, clusterId);
-
+            protected void setAllParameters(PreparedStatement stmt) throws SQLException, AdeException {
+                for (Map.Entry<Integer, Date> entry : timeStamps.entrySet()) {
+                    int pos = 1;
+                    TableGeneralUtils.setPreparedStatementTimestamp(stmt, pos++, entry.getValue());
+                    stmt.setInt(pos++, entry.getKey());
+                    TableGeneralUtils.setPreparedStatementTimestamp(stmt, pos++, entry.getValue());
+                    addBatch();
+                }
             }
         };
 
         timeStampUpdater.execute();
     }
-    
+
     /**
      * Private class to read new clusters from the datastore.
      */
-    private class TextClusterReader extends QueryStatementExecuter {
+    private class TextClusterReader extends QueryPreparedStatementExecuter {
+        private final int m_componentId;
+        private final int m_currentMaxClusterId;
         private Collection<TextClusterData> m_clustersData;
         private int m_maxClusterId;
 
@@ -153,12 +295,21 @@ public class DataStoreTextClusteringModelsImpl {
                 Collection<TextClusterData> clustersData) {
             super("SELECT   TEXT_CLUSTER_INTERNAL_ID, TEXT_REPRESENTATIVE, LAST_OBSERVED "
                     + "FROM     " + SQL.TEXT_CLUSTERS + " "
-                    + "WHERE    COMPONENT_INTERNAL_ID = " + componentId + " "
-                    + "AND      TEXT_CLUSTER_INTERNAL_ID > " + currentMaxClusterId);
+                    + "WHERE    COMPONENT_INTERNAL_ID = ? "
+                    + "AND      TEXT_CLUSTER_INTERNAL_ID > ? "
+                    + "ORDER BY TEXT_CLUSTER_INTERNAL_ID");
+            m_componentId = componentId;
+            m_currentMaxClusterId = currentMaxClusterId;
             m_clustersData = clustersData;
             m_maxClusterId = currentMaxClusterId;
         }
 
+        @Override
+        protected void setParameters(PreparedStatement stmt) throws SQLException, AdeException {
+            stmt.setInt(1, m_componentId);
+            stmt.setInt(2, m_currentMaxClusterId);
+        }
+
         @Override
         protected void handleResultSet(ResultSet rs) throws SQLException,
                 AdeException {
@@ -0,0 +1,174 @@
+/*
+ 
+    Copyright IBM Corp. 2016
+    This file is part of Anomaly Detection Engine for Linux Logs (ADE).
+
+    ADE is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    ADE is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with ADE.  If not, see <http://www.gnu.org/licenses/>.
+ 
+*/
+package org.openmainframe.ade.impl.dataStore;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.openmainframe.ade.exceptions.AdeException;
+import org.openmainframe.ade.exceptions.AdeInternalException;
+import org.openmainframe.ade.impl.data.PeriodSummary;
+import org.openmainframe.ade.impl.dbUtils.DmlPreparedStatementExecuter;
+import org.openmainframe.ade.impl.dbUtils.QueryPreparedStatementExecuter;
+import org.openmainframe.ade.impl.dbUtils.TableGeneralUtils;
+import org.openmainframe.ade.impl.scoringApi.PeriodTrainingStatistics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Provides methods to read/update the training statistics of period summaries in the data-store.
+ * The statistics of a period summary are keyed by the scorer and training framing they were collected
+ * for, and are deleted whenever intervals are uploaded to it, as they no longer reflect its intervals.
+ */
+public class DataStoreTrainingStatistics {
+
+    private static final Logger LOG = LoggerFactory.getLogger(DataStoreTrainingStatistics.class);
+
+    /** Whether the table exists, as it is missing from databases created by earlier versions */
+    private Boolean m_available = null;
+
+    DataStoreTrainingStatistics() {
+        // created by the data store
+    }
+
+    /**
+     * @return true if training statistics can be kept in the data store. Otherwise the other
+     *     methods must not be called. Run "controldb upgrade" to add the missing table.
+     * @throws AdeException when an error occurs accessing the data store
+     */
+    public final synchronized boolean isAvailable() throws AdeException {
+        if (m_available == null) {
+            m_available = TableManager.tableExists(SQL.PERIOD_TRAINING_STATISTICS);
+            if (!m_available) {
+                LOG.warn("Table " + SQL.PERIOD_TRAINING_STATISTICS + " is missing, so training statistics "
+                        + "are not kept per period. Create it with 'controldb upgrade'");
+            }
+        }
+        return m_available;
+    }
+
+    /**
+     * Reads the training statistics of a period summary. Statistics that cannot be read, e.g.
+     * because they were written by a different version of their class, are skipped.
+     *
+     * @param periodSummary the period summary to read the statistics of
+     * @return the statistics of the period summary, by their keys
+     * @throws AdeException when an error occurs accessing the data store
+     */
+    public final Map<String, PeriodTrainingStatistics> getStatistics(final PeriodSummary periodSummary)
+            throws AdeException {
+        final Map<String, PeriodTrainingStatistics> res = new TreeMap<String, PeriodTrainingStatistics>();
+        new QueryPreparedStatementExecuter("select statistics_key, statistics from "
+                + SQL.PERIOD_TRAINING_STATISTICS + " where period_summary_internal_id=?") {
+            @Override
+            protected void setParameters(PreparedStatement stmt) throws SQLException, AdeException {
+                stmt.setInt(1, periodSummary.getInternalId());
+            }
+
+            @Override
+            protected void handleResultSet(ResultSet rs) throws SQLException, AdeException {
+                final String key = rs.getString(1);
+                final InputStream in = rs.getBinaryStream(2);
+                try {
+                    final ObjectInputStream objectIn = new ObjectInputStream(in);
+                    res.put(key, (PeriodTrainingStatistics) objectIn.readObject());
+                    objectIn.close();
+                } catch (IOException e) {
+                    LOG.warn("Skipping unreadable training statistics " + key + " of " + periodSummary, e);
+                } catch (ClassNotFoundException e) {
+                    LOG.warn("Skipping unreadable training statistics " + key + " of " + periodSummary, e);
+                }
+            }
+        }.executeQuery();
+        return res;
+    }
+
+    /**
+     * Stores the training statistics of a period summary, replacing the statistics of the same key.
+     *
+     * @param periodSummary the period summary the statistics were collected from
+     * @param key the key of the statistics, identifying the scorer and framing they were collected for
+     * @param statistics the statistics
+     * @throws AdeException when an error occurs accessing the data store
+     */
+    public final void storeStatistics(final PeriodSummary periodSummary, final String key,
+            PeriodTrainingStatistics statistics) throws AdeException {
+        if (key.length() > SQL.MAX_LEN_STATISTICS_KEY) {
+            throw new AdeInternalException("Training statistics key too long: " + key);
+        }
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try {
+            final ObjectOutputStream out = new ObjectOutputStream(bytes);
+            out.writeObject(statistics);
+            out.close();
+        } catch (IOException e) {
+            throw new AdeInternalException("Failed serializing training statistics " + key, e);
+        }
+        final byte[] serialized = bytes.toByteArray();
+
+        TableGeneralUtils.startTransaction();
+        new DmlPreparedStatementExecuter("delete from " + SQL.PERIOD_TRAINING_STATISTICS
+                + " where period_summary_internal_id=? and statistics_key=?") {
+            @Override
+            protected void setParameters(PreparedStatement stmt) throws SQLException, AdeException {
+                stmt.setInt(1, periodSummary.getInternalId());
+                stmt.setString(2, key);
+            }
+        }.execute();
+        new DmlPreparedStatementExecuter("insert into " + SQL.PERIOD_TRAINING_STATISTICS
+                + " (period_summary_internal_id,statistics_key,statistics) values (?,?,?)") {
+            @Override
+            protected void setParameters(PreparedStatement stmt) throws SQLException, AdeException {
+                stmt.setInt(1, periodSummary.getInternalId());
+                stmt.setString(2, key);
+                stmt.setBinaryStream(3, new ByteArrayInputStream(serialized), serialized.length);
+            }
+        }.execute();
+        TableGeneralUtils.endTransaction();
+    }
+
+    /**
+     * Deletes all the training statistics of a period summary, e.g. when its intervals change.
+     *
+     * @param periodSummaryInternalId the internal id of the period summary
+     * @throws AdeException when an error occurs accessing the data store
+     */
+    public final void deleteStatistics(final int periodSummaryInternalId) throws AdeException {
+        if (!isAvailable()) {
+            return;
+        }
+        new DmlPreparedStatementExecuter("delete from " + SQL.PERIOD_TRAINING_STATISTICS
+                + " where period_summary_internal_id=?") {
+            @Override
+            protected void setParameters(PreparedStatement stmt) throws SQLException, AdeException {
+                stmt.setInt(1, periodSummaryInternalId);
+            }
+        }.execute();
+    }
+}
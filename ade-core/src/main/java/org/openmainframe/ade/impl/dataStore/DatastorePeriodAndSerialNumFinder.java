@@ -76,8 +76,10 @@ public class DatastorePeriodAndSerialNumFinder {
      * 
      * <p>
      * If the given time-stamp is in the same period as the previous call to setTime(),
-     * no database access is generated. Otherwise, if an existing period exists in the
-     * database, it is retrieved. Otherwise a new period is added to the database.
+     * no database access is generated. Otherwise, the period is looked up in the
+     * {@link PeriodCache} shared by all finders; if it is not cached, the periods of all
+     * sources in its time range are read from the database at once, unless they were already.
+     * If it still does not exist, a new period is added to the database.
      * 
      * @throws AdeException
      */
@@ -0,0 +1,317 @@
+/*
+ 
+    Copyright IBM Corp. 2016
+    This file is part of Anomaly Detection Engine for Linux Logs (ADE).
+
+    ADE is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    ADE is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with ADE.  If not, see <http://www.gnu.org/licenses/>.
+ 
+*/
+package org.openmainframe.ade.impl.dataStore;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+
+import org.openmainframe.ade.exceptions.AdeException;
+import org.openmainframe.ade.exceptions.AdeInternalException;
+
+/**
+ * A thread safe cache evicting its least recently used entries, bounded by a number of
+ * entries and by a total weight, e.g. the byte size of cached models.
+ * <p>
+ * Values missing from the cache are loaded by {@link #get(Object, Loader)}. Concurrent
+ * requests for the same missing key wait for a single load rather than each loading the
+ * value. The most recently used entry is kept even if it alone exceeds the weight bound,
+ * so that a large value is not loaded again on every request.
+ */
+public class LruCache<K, V> {
+
+    /**
+     * Loads the value of a key missing from the cache.
+     */
+    public interface Loader<K, V> {
+        /**
+         * @return the value, or null if there is none. Null values are not cached.
+         */
+        V load(K key) throws AdeException;
+    }
+
+    /**
+     * Computes the weight of an entry.
+     */
+    public interface Weigher<K, V> {
+        /**
+         * @return the weight of the entry, not negative.
+         */
+        long weigh(K key, V value);
+    }
+
+    private static final class Entry<V> {
+        private final V m_value;
+        private final long m_weight;
+
+        private Entry(V value, long weight) {
+            m_value = value;
+            m_weight = weight;
+        }
+    }
+
+    /**
+     * A load in progress, waited for by the other requests of its key.
+     */
+    private static final class PendingLoad<V> {
+        private final CountDownLatch m_done = new CountDownLatch(1);
+        private V m_value;
+        private AdeException m_exception;
+        private RuntimeException m_runtimeException;
+
+        private V await() throws AdeException {
+            try {
+                m_done.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new AdeInternalException("Interrupted while waiting for a cache entry to load", e);
+            }
+            if (m_exception != null) {
+                throw m_exception;
+            }
+            if (m_runtimeException != null) {
+                throw m_runtimeException;
+            }
+            return m_value;
+        }
+    }
+
+    private final int m_maxEntries;
+    private final long m_maxWeight;
+    private final Weigher<? super K, ? super V> m_weigher;
+
+    /* Access ordered, guarded by itself */
+    private final LinkedHashMap<K, Entry<V>> m_entries = new LinkedHashMap<K, Entry<V>>(16, 0.75f, true);
+    private long m_weight;
+
+    private final ConcurrentMap<K, PendingLoad<V>> m_pendingLoads = new ConcurrentHashMap<K, PendingLoad<V>>();
+
+    private long m_hitCount;
+    private long m_missCount;
+    private long m_loadCount;
+    private long m_evictionCount;
+
+    /**
+     * Construct a cache bounded by its number of entries only.
+     * 
+     * @param maxEntries the maximum number of entries.
+     */
+    public LruCache(int maxEntries) {
+        this(maxEntries, Long.MAX_VALUE, null);
+    }
+
+    /**
+     * Construct a cache bounded by its number of entries and their total weight.
+     * 
+     * @param maxEntries the maximum number of entries.
+     * @param maxWeight the maximum total weight of the entries.
+     * @param weigher computes the weight of an entry, or null if all entries weigh nothing.
+     */
+    public LruCache(int maxEntries, long maxWeight, Weigher<? super K, ? super V> weigher) {
+        if (maxEntries < 1 || maxWeight < 0) {
+            throw new IllegalArgumentException("Invalid cache bounds: " + maxEntries + " entries, weight " + maxWeight);
+        }
+        m_maxEntries = maxEntries;
+        m_maxWeight = maxWeight;
+        m_weigher = weigher;
+    }
+
+    /**
+     * @return the cached value of the key, or null if it is not cached.
+     */
+    public final V getIfPresent(K key) {
+        synchronized (m_entries) {
+            final Entry<V> entry = m_entries.get(key);
+            if (entry == null) {
+                ++m_missCount;
+                return null;
+            }
+            ++m_hitCount;
+            return entry.m_value;
+        }
+    }
+
+    /**
+     * Return the cached value of the key, loading and caching it if it is missing. If another
+     * thread is already loading the key, wait for its value instead.
+     * 
+     * @return the value, or null if the loader returned null.
+     * @throws AdeException the exception thrown by the loader.
+     */
+    public final V get(K key, Loader<? super K, ? extends V> loader) throws AdeException {
+        V value = getIfPresent(key);
+        if (value != null) {
+            return value;
+        }
+
+        final PendingLoad<V> pendingLoad = new PendingLoad<V>();
+        final PendingLoad<V> otherLoad = m_pendingLoads.putIfAbsent(key, pendingLoad);
+        if (otherLoad != null) {
+            return otherLoad.await();
+        }
+        try {
+            /* A load may have completed since the lookup above */
+            synchronized (m_entries) {
+                final Entry<V> entry = m_entries.get(key);
+                value = entry != null ? entry.m_value : null;
+            }
+            if (value == null) {
+                synchronized (m_entries) {
+                    ++m_loadCount;
+                }
+                value = loader.load(key);
+                if (value != null) {
+                    put(key, value);
+                }
+            }
+            pendingLoad.m_value = value;
+            return value;
+        } catch (AdeException e) {
+            pendingLoad.m_exception = e;
+            throw e;
+        } catch (RuntimeException e) {
+            pendingLoad.m_runtimeException = e;
+            throw e;
+        } finally {
+            /* Cached before being removed, so a request either waits for this load or finds its value */
+            m_pendingLoads.remove(key, pendingLoad);
+            pendingLoad.m_done.countDown();
+        }
+    }
+
+    /**
+     * Cache a value, replacing the value of the key if any, and evict the least recently used
+     * entries beyond the bounds.
+     */
+    public final void put(K key, V value) {
+        if (value == null) {
+            throw new IllegalArgumentException("Null values are not cached");
+        }
+        final long weight = m_weigher != null ? m_weigher.weigh(key, value) : 0;
+        if (weight < 0) {
+            throw new IllegalArgumentException("Negative weight " + weight + " for " + key);
+        }
+        synchronized (m_entries) {
+            final Entry<V> previous = m_entries.put(key, new Entry<V>(value, weight));
+            if (previous != null) {
+                m_weight -= previous.m_weight;
+            }
+            m_weight += weight;
+            evict();
+        }
+    }
+
+    /**
+     * Remove the value of a key from the cache, if any.
+     */
+    public final void invalidate(K key) {
+        synchronized (m_entries) {
+            final Entry<V> entry = m_entries.remove(key);
+            if (entry != null) {
+                m_weight -= entry.m_weight;
+            }
+        }
+    }
+
+    /**
+     * Remove all the values from the cache.
+     */
+    public final void invalidateAll() {
+        synchronized (m_entries) {
+            m_entries.clear();
+            m_weight = 0;
+        }
+    }
+
+    private void evict() {
+        final Iterator<Map.Entry<K, Entry<V>>> it = m_entries.entrySet().iterator();
+        while (m_entries.size() > 1 && (m_entries.size() > m_maxEntries || m_weight > m_maxWeight)) {
+            final Entry<V> eldest = it.next().getValue();
+            it.remove();
+            m_weight -= eldest.m_weight;
+            ++m_evictionCount;
+        }
+    }
+
+    /**
+     * @return the number of cached entries.
+     */
+    public final int size() {
+        synchronized (m_entries) {
+            return m_entries.size();
+        }
+    }
+
+    /**
+     * @return the total weight of the cached entries.
+     */
+    public final long getWeight() {
+        synchronized (m_entries) {
+            return m_weight;
+        }
+    }
+
+    /**
+     * @return the number of lookups that found their key cached.
+     */
+    public final long getHitCount() {
+        synchronized (m_entries) {
+            return m_hitCount;
+        }
+    }
+
+    /**
+     * @return the number of lookups that did not find their key cached.
+     */
+    public final long getMissCount() {
+        synchronized (m_entries) {
+            return m_missCount;
+        }
+    }
+
+    /**
+     * @return the number of values loaded.
+     */
+    public final long getLoadCount() {
+        synchronized (m_entries) {
+            return m_loadCount;
+        }
+    }
+
+    /**
+     * @return the number of entries evicted to respect the bounds.
+     */
+    public final long getEvictionCount() {
+        synchronized (m_entries) {
+            return m_evictionCount;
+        }
+    }
+
+    @Override
+    public final String toString() {
+        synchronized (m_entries) {
+            return "entries=" + m_entries.size() + " weight=" + m_weight + " hits=" + m_hitCount
+                    + " misses=" + m_missCount + " loads=" + m_loadCount + " evictions=" + m_evictionCount;
+        }
+    }
+}
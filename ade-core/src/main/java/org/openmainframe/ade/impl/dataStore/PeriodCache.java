@@ -0,0 +1,204 @@
+/*
+ 
+    Copyright IBM Corp. 2009, 2016
+    This file is part of Anomaly Detection Engine for Linux Logs (ADE).
+
+    ADE is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    ADE is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with ADE.  If not, see <http://www.gnu.org/licenses/>.
+ 
+*/
+package org.openmainframe.ade.impl.dataStore;
+
+import java.util.Date;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openmainframe.ade.data.IPeriod;
+import org.openmainframe.ade.impl.data.PeriodImpl;
+
+/**
+ * An in memory cache of the PERIODS table, keyed by (source internal id, period start time).
+ *
+ * <p>
+ * The cache is owned by {@link DataStorePeriodsImpl}, so all the period finders, uploaders and
+ * storers of the process share it. It is written through: every period read from or added to
+ * the database by {@link DataStorePeriodsImpl} is put in the cache, and deleted periods are removed.
+ * Since periods are never moved once created, a cached period stays valid until it is deleted.
+ *
+ * <p>
+ * The periods of all sources in a time range may be preloaded at once. The cache remembers which time
+ * ranges were preloaded, so that a range is read from the database once, and not again for each source.
+ *
+ * <p>
+ * Periods may also be deleted by another process, e.g. by the retention of controldb, which this
+ * cache is not told about. Cached periods and preloaded ranges therefore expire
+ * {@link #DEFAULT_EXPIRY_MILLIS} after they were put in the cache. Retention only deletes periods that
+ * ended before its purge time, which are not expected to be uploaded to any more, and evicts them from
+ * the cache of its own process.
+ *
+ * <p>
+ * The cache is bounded by {@link #MAX_ENTRIES}. When full, it is simply cleared, and
+ * repopulated on demand.
+ */
+public class PeriodCache {
+
+    /** Maximal number of cached periods. Roughly a year of daily periods for a thousand sources. */
+    static final int MAX_ENTRIES = 400000;
+
+    /** Default time a period stays in the cache. */
+    static final long DEFAULT_EXPIRY_MILLIS = TimeUnit.MINUTES.toMillis(10);
+
+    private final ConcurrentMap<Key, Entry> m_periods = new ConcurrentHashMap<Key, Entry>();
+
+    /** The start time of each time range whose periods were preloaded, and when they were. */
+    private final ConcurrentMap<Long, Long> m_preloadedRanges = new ConcurrentHashMap<Long, Long>();
+
+    private final long m_expiryMillis;
+
+    private final AtomicLong m_hits = new AtomicLong();
+    private final AtomicLong m_misses = new AtomicLong();
+
+    public PeriodCache() {
+        this(DEFAULT_EXPIRY_MILLIS);
+    }
+
+    /**
+     * @param expiryMillis time a period stays in the cache after it was put in it.
+     */
+    public PeriodCache(long expiryMillis) {
+        m_expiryMillis = expiryMillis;
+    }
+
+    /**
+     * Returns the cached period of the given source, starting and ending at the given times.
+     *
+     * @return the period, or null if not cached.
+     */
+    public PeriodImpl get(int sourceInternalId, Date startTime, Date endTime) {
+        final Key key = new Key(sourceInternalId, startTime.getTime());
+        final Entry entry = m_periods.get(key);
+        if (entry != null && System.currentTimeMillis() - entry.m_cachedAt > m_expiryMillis) {
+            m_periods.remove(key, entry);
+        } else if (entry != null && entry.m_period.getEndTime().getTime() == endTime.getTime()) {
+            m_hits.incrementAndGet();
+            return entry.m_period;
+        }
+        m_misses.incrementAndGet();
+        return null;
+    }
+
+    /** Adds the given period to the cache, replacing any cached period with the same source and start time. */
+    public void put(PeriodImpl period) {
+        if (m_periods.size() >= MAX_ENTRIES) {
+            clear();
+        }
+        m_periods.put(keyOf(period), new Entry(period, System.currentTimeMillis()));
+    }
+
+    /**
+     * Records that the periods of all sources starting at the given time are about to be preloaded.
+     *
+     * @return false if they were already preloaded and have not expired yet, so need not be read again.
+     */
+    public boolean markPreloaded(Date startTime) {
+        final long now = System.currentTimeMillis();
+        final Long loadedAt = m_preloadedRanges.get(startTime.getTime());
+        if (loadedAt != null && now - loadedAt <= m_expiryMillis) {
+            return false;
+        }
+        if (m_preloadedRanges.size() >= MAX_ENTRIES) {
+            m_preloadedRanges.clear();
+        }
+        m_preloadedRanges.put(startTime.getTime(), now);
+        return true;
+    }
+
+    /** Removes the given period from the cache. */
+    public void remove(IPeriod period) {
+        m_periods.remove(keyOf(period));
+    }
+
+    /** Removes all the periods of the given source from the cache. */
+    public void removeSource(int sourceInternalId) {
+        final Iterator<Key> it = m_periods.keySet().iterator();
+        while (it.hasNext()) {
+            if (it.next().m_sourceInternalId == sourceInternalId) {
+                it.remove();
+            }
+        }
+    }
+
+    /** Removes all the periods from the cache. */
+    public void clear() {
+        m_periods.clear();
+        m_preloadedRanges.clear();
+    }
+
+    public int size() {
+        return m_periods.size();
+    }
+
+    /** @return number of lookups answered by the cache */
+    public long getHitCount() {
+        return m_hits.get();
+    }
+
+    /** @return number of lookups that had to go to the database */
+    public long getMissCount() {
+        return m_misses.get();
+    }
+
+    private static Key keyOf(IPeriod period) {
+        return new Key(period.getSource().getSourceInternalId(), period.getStartTime().getTime());
+    }
+
+    private static final class Entry {
+        private final PeriodImpl m_period;
+        private final long m_cachedAt;
+
+        Entry(PeriodImpl period, long cachedAt) {
+            m_period = period;
+            m_cachedAt = cachedAt;
+        }
+    }
+
+    private static final class Key {
+        private final int m_sourceInternalId;
+        private final long m_startTime;
+
+        Key(int sourceInternalId, long startTime) {
+            m_sourceInternalId = sourceInternalId;
+            m_startTime = startTime;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * m_sourceInternalId + (int) (m_startTime ^ (m_startTime >>> 32));
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            final Key other = (Key) obj;
+            return m_sourceInternalId == other.m_sourceInternalId && m_startTime == other.m_startTime;
+        }
+    }
+}
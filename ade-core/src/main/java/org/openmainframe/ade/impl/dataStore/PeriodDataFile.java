@@ -0,0 +1,289 @@
+/*
+ 
+    Copyright IBM Corp. 2016
+    This file is part of Anomaly Detection Engine for Linux Logs (ADE).
+
+    ADE is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    ADE is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with ADE.  If not, see <http://www.gnu.org/licenses/>.
+ 
+*/
+package org.openmainframe.ade.impl.dataStore;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.wink.json4j.JSONException;
+import org.apache.wink.json4j.JSONObject;
+
+/**
+ * The file format used to move a period, with its period summaries, intervals and
+ * message summaries, from one ADE data store to another.
+ * <p>
+ * The file starts with a magic string, a format version and a JSON header describing
+ * the period and the dictionary entries its message summaries refer to. The header is
+ * followed by a stream of tagged binary records: each period summary record is followed
+ * by the interval records and then the message summary records of that summary, and the
+ * stream ends with an end record. Files whose name ends with ".gz" are compressed.
+ */
+final class PeriodDataFile {
+
+    static final String MAGIC = "ADE-PERIOD";
+    static final int FORMAT_VERSION = 1;
+
+    static final byte TAG_END = 0;
+    static final byte TAG_PERIOD_SUMMARY = 1;
+    static final byte TAG_INTERVAL = 2;
+    static final byte TAG_MESSAGE_SUMMARY = 3;
+
+    static final String HEADER_FORMAT_VERSION = "formatVersion";
+    static final String HEADER_DB_VERSION = "dbVersion";
+    static final String HEADER_SOURCE_ID = "sourceId";
+    static final String HEADER_PERIOD = "period";
+    static final String HEADER_START_TIME = "startTime";
+    static final String HEADER_END_TIME = "endTime";
+    static final String HEADER_EXCLUDE_FROM_TRAINING = "excludeFromTraining";
+    static final String HEADER_STATUS = "status";
+    static final String HEADER_COMMENT = "comment";
+    static final String HEADER_MESSAGE_IDS = "messageIds";
+    static final String HEADER_TEXT_CLUSTERS = "textClusters";
+    static final String HEADER_COMPONENT = "component";
+    static final String HEADER_CLUSTER_ID = "clusterId";
+    static final String HEADER_TEXT = "text";
+    static final String HEADER_LAST_OBSERVED = "lastObserved";
+
+    private static final String GZIP_SUFFIX = ".gz";
+    private static final int BUFFER_SIZE = 256 * 1024;
+
+    /* Flags of the nullable message summary columns. */
+    private static final int HAS_CRITICAL_WORDS_SCORE = 1;
+    private static final int HAS_TEXT_SUMMARY = 2;
+    private static final int HAS_TEXT_SAMPLE = 4;
+    private static final int HAS_ENCODED_TIME_VECTOR = 8;
+
+    private PeriodDataFile() {
+        // Not instantiated
+    }
+
+    static OutputStream openOutput(String fileName) throws IOException {
+        final OutputStream out = new FileOutputStream(fileName);
+        if (fileName.endsWith(GZIP_SUFFIX)) {
+            return new BufferedOutputStream(new GZIPOutputStream(out, BUFFER_SIZE), BUFFER_SIZE);
+        }
+        return new BufferedOutputStream(out, BUFFER_SIZE);
+    }
+
+    static InputStream openInput(String fileName) throws IOException {
+        final InputStream in = new FileInputStream(fileName);
+        if (fileName.endsWith(GZIP_SUFFIX)) {
+            return new BufferedInputStream(new GZIPInputStream(in, BUFFER_SIZE), BUFFER_SIZE);
+        }
+        return new BufferedInputStream(in, BUFFER_SIZE);
+    }
+
+    /**
+     * A row of the INTERVALS table, without its period summary.
+     */
+    static final class IntervalRecord {
+        int m_serialNum;
+        int m_numUniqueMessageIds;
+        long m_startTime;
+        int m_classification;
+        String m_adeVersion;
+        Double m_coverageFactor;
+    }
+
+    /**
+     * A row of the MESSAGE_SUMMARIES table, without its period summary.
+     */
+    static final class MessageSummaryRecord {
+        int m_serialNum;
+        int m_messageInternalId;
+        int m_numMessages;
+        int m_severity;
+        Integer m_criticalWordsScore;
+        String m_textSummary;
+        String m_textSample;
+        String m_encodedTimeVector;
+    }
+
+    /**
+     * Writes a period data file. The header is written on construction, and the end
+     * record by {@link #finish()}.
+     */
+    static final class Writer implements Closeable {
+        private final DataOutputStream m_out;
+
+        Writer(OutputStream out, JSONObject header) throws IOException {
+            m_out = new DataOutputStream(out);
+            m_out.write(MAGIC.getBytes(StandardCharsets.US_ASCII));
+            m_out.writeInt(FORMAT_VERSION);
+            final byte[] headerBytes = header.toString().getBytes(StandardCharsets.UTF_8);
+            m_out.writeInt(headerBytes.length);
+            m_out.write(headerBytes);
+        }
+
+        void writePeriodSummary(int summaryType) throws IOException {
+            m_out.writeByte(TAG_PERIOD_SUMMARY);
+            m_out.writeInt(summaryType);
+        }
+
+        void writeInterval(IntervalRecord interval) throws IOException {
+            m_out.writeByte(TAG_INTERVAL);
+            m_out.writeInt(interval.m_serialNum);
+            m_out.writeInt(interval.m_numUniqueMessageIds);
+            m_out.writeLong(interval.m_startTime);
+            m_out.writeShort(interval.m_classification);
+            m_out.writeUTF(interval.m_adeVersion);
+            m_out.writeBoolean(interval.m_coverageFactor != null);
+            if (interval.m_coverageFactor != null) {
+                m_out.writeDouble(interval.m_coverageFactor);
+            }
+        }
+
+        void writeMessageSummary(MessageSummaryRecord summary) throws IOException {
+            int flags = 0;
+            if (summary.m_criticalWordsScore != null) {
+                flags |= HAS_CRITICAL_WORDS_SCORE;
+            }
+            if (summary.m_textSummary != null) {
+                flags |= HAS_TEXT_SUMMARY;
+            }
+            if (summary.m_textSample != null) {
+                flags |= HAS_TEXT_SAMPLE;
+            }
+            if (summary.m_encodedTimeVector != null) {
+                flags |= HAS_ENCODED_TIME_VECTOR;
+            }
+            m_out.writeByte(TAG_MESSAGE_SUMMARY);
+            m_out.writeByte(flags);
+            m_out.writeInt(summary.m_serialNum);
+            m_out.writeInt(summary.m_messageInternalId);
+            m_out.writeInt(summary.m_numMessages);
+            m_out.writeInt(summary.m_severity);
+            if (summary.m_criticalWordsScore != null) {
+                m_out.writeInt(summary.m_criticalWordsScore);
+            }
+            if (summary.m_textSummary != null) {
+                m_out.writeUTF(summary.m_textSummary);
+            }
+            if (summary.m_textSample != null) {
+                m_out.writeUTF(summary.m_textSample);
+            }
+            if (summary.m_encodedTimeVector != null) {
+                m_out.writeUTF(summary.m_encodedTimeVector);
+            }
+        }
+
+        /**
+         * Writes the end record. A file closed without it is rejected by the reader.
+         */
+        void finish() throws IOException {
+            m_out.writeByte(TAG_END);
+            m_out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            m_out.close();
+        }
+    }
+
+    /**
+     * Reads a period data file. The header is read on construction, the records are
+     * then read by calling {@link #nextTag()} and the read method matching the tag.
+     */
+    static final class Reader implements Closeable {
+        private final DataInputStream m_in;
+        private final JSONObject m_header;
+
+        Reader(InputStream in) throws IOException {
+            m_in = new DataInputStream(in);
+            final byte[] magic = new byte[MAGIC.length()];
+            m_in.readFully(magic);
+            if (!MAGIC.equals(new String(magic, StandardCharsets.US_ASCII))) {
+                throw new IOException("Not an ADE period data file");
+            }
+            final int formatVersion = m_in.readInt();
+            if (formatVersion != FORMAT_VERSION) {
+                throw new IOException("Unsupported period data file format version " + formatVersion
+                        + ", expected " + FORMAT_VERSION);
+            }
+            final byte[] headerBytes = new byte[m_in.readInt()];
+            m_in.readFully(headerBytes);
+            try {
+                m_header = new JSONObject(new String(headerBytes, StandardCharsets.UTF_8));
+            } catch (JSONException e) {
+                throw new IOException("Invalid period data file header", e);
+            }
+        }
+
+        JSONObject getHeader() {
+            return m_header;
+        }
+
+        /**
+         * @return the tag of the next record, one of the TAG_ constants.
+         */
+        byte nextTag() throws IOException {
+            final byte tag = m_in.readByte();
+            if (tag < TAG_END || tag > TAG_MESSAGE_SUMMARY) {
+                throw new IOException("Invalid record tag " + tag);
+            }
+            return tag;
+        }
+
+        /**
+         * @return the summary type of a period summary record.
+         */
+        int readPeriodSummary() throws IOException {
+            return m_in.readInt();
+        }
+
+        void readInterval(IntervalRecord interval) throws IOException {
+            interval.m_serialNum = m_in.readInt();
+            interval.m_numUniqueMessageIds = m_in.readInt();
+            interval.m_startTime = m_in.readLong();
+            interval.m_classification = m_in.readShort();
+            interval.m_adeVersion = m_in.readUTF();
+            interval.m_coverageFactor = m_in.readBoolean() ? m_in.readDouble() : null;
+        }
+
+        void readMessageSummary(MessageSummaryRecord summary) throws IOException {
+            final int flags = m_in.readByte();
+            summary.m_serialNum = m_in.readInt();
+            summary.m_messageInternalId = m_in.readInt();
+            summary.m_numMessages = m_in.readInt();
+            summary.m_severity = m_in.readInt();
+            summary.m_criticalWordsScore = (flags & HAS_CRITICAL_WORDS_SCORE) != 0 ? m_in.readInt() : null;
+            summary.m_textSummary = (flags & HAS_TEXT_SUMMARY) != 0 ? m_in.readUTF() : null;
+            summary.m_textSample = (flags & HAS_TEXT_SAMPLE) != 0 ? m_in.readUTF() : null;
+            summary.m_encodedTimeVector = (flags & HAS_ENCODED_TIME_VECTOR) != 0 ? m_in.readUTF() : null;
+        }
+
+        @Override
+        public void close() throws IOException {
+            m_in.close();
+        }
+    }
+}
@@ -0,0 +1,279 @@
+/*
+ 
+    Copyright IBM Corp. 2016
+    This file is part of Anomaly Detection Engine for Linux Logs (ADE).
+
+    ADE is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    ADE is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with ADE.  If not, see <http://www.gnu.org/licenses/>.
+ 
+*/
+package org.openmainframe.ade.impl.dataStore;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.apache.wink.json4j.JSONArray;
+import org.apache.wink.json4j.JSONException;
+import org.apache.wink.json4j.JSONObject;
+import org.openmainframe.ade.AdeInternal;
+import org.openmainframe.ade.exceptions.AdeException;
+import org.openmainframe.ade.exceptions.AdeInternalException;
+import org.openmainframe.ade.impl.data.PeriodImpl;
+import org.openmainframe.ade.impl.data.TextClusterData;
+import org.openmainframe.ade.impl.dbUtils.DbDictionary;
+import org.openmainframe.ade.impl.dbUtils.QueryPreparedStatementExecuter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Writes a period, with all its period summaries, intervals and message summaries, to a
+ * {@link PeriodDataFile}.
+ * <p>
+ * The header carries the message ids of the message summaries, and the text clusters
+ * behind the message ids generated by text clustering, so that the importing data store
+ * can map them to its own internal ids. The intervals and message summaries are streamed
+ * from the result sets to the file, so the period is never held in memory.
+ */
+final class PeriodExporter {
+
+    private static final Logger LOG = LoggerFactory.getLogger(PeriodExporter.class);
+
+    private final PeriodImpl m_period;
+    private long m_intervalCount;
+    private long m_messageSummaryCount;
+
+    PeriodExporter(PeriodImpl period) {
+        m_period = period;
+    }
+
+    /**
+     * Writes the period to the given stream, which is closed when done.
+     */
+    void export(OutputStream out) throws AdeException {
+        final long startTime = System.currentTimeMillis();
+        final Map<Integer, Integer> periodSummaries = loadPeriodSummaries();
+        try (PeriodDataFile.Writer writer = new PeriodDataFile.Writer(out, buildHeader())) {
+            for (Map.Entry<Integer, Integer> entry : periodSummaries.entrySet()) {
+                writer.writePeriodSummary(entry.getValue());
+                new IntervalWriter(entry.getKey(), writer).executeQuery();
+                new MessageSummaryWriter(entry.getKey(), writer).executeQuery();
+            }
+            writer.finish();
+        } catch (IOException e) {
+            throw new AdeInternalException("Failed writing period " + m_period, e);
+        }
+        LOG.info("Exported period " + m_period + ": " + periodSummaries.size() + " period summaries, "
+                + m_intervalCount + " intervals, " + m_messageSummaryCount + " message summaries in "
+                + (System.currentTimeMillis() - startTime) + " ms");
+    }
+
+    /**
+     * @return the period summary types of the period, by period summary internal id.
+     */
+    private Map<Integer, Integer> loadPeriodSummaries() throws AdeException {
+        final Map<Integer, Integer> result = new TreeMap<Integer, Integer>();
+        new QueryPreparedStatementExecuter("select period_summary_internal_id,summary_type_internal_id from "
+                + SQL.PERIOD_SUMMARIES + " where period_internal_id=?") {
+            @Override
+            protected void setParameters(PreparedStatement stmt) throws SQLException, AdeException {
+                stmt.setInt(1, m_period.getInternalId());
+            }
+
+            @Override
+            protected void handleResultSet(ResultSet rs) throws SQLException, AdeException {
+                result.put(rs.getInt(1), rs.getInt(2));
+            }
+        }.executeQuery();
+        return result;
+    }
+
+    private JSONObject buildHeader() throws AdeException {
+        final DbDictionary messageIds = AdeInternal.getAdeImpl().getDictionaries().getMessageIdDictionary();
+        final DbDictionary componentIds = AdeInternal.getAdeImpl().getDictionaries().getComponentIdDictionary();
+
+        final List<Integer> messageInternalIds = new ArrayList<Integer>();
+        new QueryPreparedStatementExecuter("select distinct ms.message_internal_id from "
+                + SQL.MESSAGE_SUMMARIES + " ms, " + SQL.PERIOD_SUMMARIES + " ps"
+                + " where ms.period_summary_internal_id=ps.period_summary_internal_id"
+                + " and ps.period_internal_id=?") {
+            @Override
+            protected void setParameters(PreparedStatement stmt) throws SQLException, AdeException {
+                stmt.setInt(1, m_period.getInternalId());
+            }
+
+            @Override
+            protected void handleResultSet(ResultSet rs) throws SQLException, AdeException {
+                messageInternalIds.add(rs.getInt(1));
+            }
+        }.executeQuery();
+
+        try {
+            final JSONObject messageIdsJson = new JSONObject();
+            /* The cluster ids referenced by clustered message ids, by component internal id */
+            final Map<Integer, Set<Integer>> referencedClusters = new TreeMap<Integer, Set<Integer>>();
+            for (int messageInternalId : messageInternalIds) {
+                final String messageId = messageIds.getWordById(messageInternalId);
+                messageIdsJson.put(Integer.toString(messageInternalId), messageId);
+
+                final int separator = messageId.lastIndexOf('_');
+                if (separator <= 0) {
+                    continue;
+                }
+                final int componentInternalId = componentIds.getWordId(messageId.substring(0, separator));
+                if (componentInternalId == DbDictionary.InvalidID) {
+                    continue;
+                }
+                final int clusterId;
+                try {
+                    clusterId = Integer.parseInt(messageId.substring(separator + 1));
+                } catch (NumberFormatException e) {
+                    continue;
+                }
+                Set<Integer> clusters = referencedClusters.get(componentInternalId);
+                if (clusters == null) {
+                    clusters = new HashSet<Integer>();
+                    referencedClusters.put(componentInternalId, clusters);
+                }
+                clusters.add(clusterId);
+            }
+
+            final JSONArray textClustersJson = new JSONArray();
+            final DataStoreTextClusteringModelsImpl textClustering = AdeInternal.getAdeImpl().getDataStore()
+                    .textClustering();
+            for (Map.Entry<Integer, Set<Integer>> entry : referencedClusters.entrySet()) {
+                final String component = componentIds.getWordById(entry.getKey());
+                final List<TextClusterData> clusters = new ArrayList<TextClusterData>();
+                textClustering.refreshClustersFromDataStore(entry.getKey(), 0, clusters);
+                for (TextClusterData cluster : clusters) {
+                    if (!entry.getValue().contains(cluster.getClusterId())) {
+                        continue;
+                    }
+                    final JSONObject clusterJson = new JSONObject();
+                    clusterJson.put(PeriodDataFile.HEADER_COMPONENT, component);
+                    clusterJson.put(PeriodDataFile.HEADER_CLUSTER_ID, cluster.getClusterId());
+                    clusterJson.put(PeriodDataFile.HEADER_TEXT, cluster.getTextRepresentative());
+                    if (cluster.getLastObserved() != null) {
+                        clusterJson.put(PeriodDataFile.HEADER_LAST_OBSERVED, cluster.getLastObserved().getTime());
+                    }
+                    textClustersJson.add(clusterJson);
+                }
+            }
+
+            final JSONObject periodJson = new JSONObject();
+            periodJson.put(PeriodDataFile.HEADER_START_TIME, m_period.getStartTime().getTime());
+            periodJson.put(PeriodDataFile.HEADER_END_TIME, m_period.getEndTime().getTime());
+            periodJson.put(PeriodDataFile.HEADER_EXCLUDE_FROM_TRAINING, m_period.getExcludeFromTraining());
+            periodJson.put(PeriodDataFile.HEADER_STATUS, m_period.getStatus());
+            if (m_period.getComment() != null) {
+                periodJson.put(PeriodDataFile.HEADER_COMMENT, m_period.getComment());
+            }
+
+            final JSONObject header = new JSONObject();
+            header.put(PeriodDataFile.HEADER_FORMAT_VERSION, PeriodDataFile.FORMAT_VERSION);
+            header.put(PeriodDataFile.HEADER_DB_VERSION, AdeInternal.getAdeImpl().getDbVersion().toString());
+            header.put(PeriodDataFile.HEADER_SOURCE_ID, m_period.getSource().getSourceId());
+            header.put(PeriodDataFile.HEADER_PERIOD, periodJson);
+            header.put(PeriodDataFile.HEADER_MESSAGE_IDS, messageIdsJson);
+            header.put(PeriodDataFile.HEADER_TEXT_CLUSTERS, textClustersJson);
+            return header;
+        } catch (JSONException e) {
+            throw new AdeInternalException("Failed building the header of period " + m_period, e);
+        }
+    }
+
+    private class IntervalWriter extends QueryPreparedStatementExecuter {
+        private final int m_periodSummaryId;
+        private final PeriodDataFile.Writer m_writer;
+        private final PeriodDataFile.IntervalRecord m_record = new PeriodDataFile.IntervalRecord();
+
+        IntervalWriter(int periodSummaryId, PeriodDataFile.Writer writer) {
+            super("select interval_serial_num,num_unique_message_ids,interval_start_time,"
+                    + "classification_internal_id,ade_version,coverage_factor from " + SQL.INTERVALS
+                    + " where period_summary_internal_id=? order by interval_serial_num");
+            m_periodSummaryId = periodSummaryId;
+            m_writer = writer;
+        }
+
+        @Override
+        protected void setParameters(PreparedStatement stmt) throws SQLException, AdeException {
+            stmt.setInt(1, m_periodSummaryId);
+        }
+
+        @Override
+        protected void handleResultSet(ResultSet rs) throws SQLException, AdeException {
+            int pos = 1;
+            m_record.m_serialNum = rs.getInt(pos++);
+            m_record.m_numUniqueMessageIds = rs.getInt(pos++);
+            m_record.m_startTime = rs.getLong(pos++);
+            m_record.m_classification = rs.getInt(pos++);
+            m_record.m_adeVersion = rs.getString(pos++);
+            final double coverageFactor = rs.getDouble(pos++);
+            m_record.m_coverageFactor = rs.wasNull() ? null : coverageFactor;
+            try {
+                m_writer.writeInterval(m_record);
+            } catch (IOException e) {
+                throw new AdeInternalException("Failed writing interval " + m_record.m_serialNum, e);
+            }
+            m_intervalCount++;
+        }
+    }
+
+    private class MessageSummaryWriter extends QueryPreparedStatementExecuter {
+        private final int m_periodSummaryId;
+        private final PeriodDataFile.Writer m_writer;
+        private final PeriodDataFile.MessageSummaryRecord m_record = new PeriodDataFile.MessageSummaryRecord();
+
+        MessageSummaryWriter(int periodSummaryId, PeriodDataFile.Writer writer) {
+            super("select interval_serial_num,message_internal_id,num_messages,severity,critical_words_score,"
+                    + "text_summary,text_sample,encoded_time_vector from " + SQL.MESSAGE_SUMMARIES
+                    + " where period_summary_internal_id=? order by interval_serial_num");
+            m_periodSummaryId = periodSummaryId;
+            m_writer = writer;
+        }
+
+        @Override
+        protected void setParameters(PreparedStatement stmt) throws SQLException, AdeException {
+            stmt.setInt(1, m_periodSummaryId);
+        }
+
+        @Override
+        protected void handleResultSet(ResultSet rs) throws SQLException, AdeException {
+            int pos = 1;
+            m_record.m_serialNum = rs.getInt(pos++);
+            m_record.m_messageInternalId = rs.getInt(pos++);
+            m_record.m_numMessages = rs.getInt(pos++);
+            m_record.m_severity = rs.getInt(pos++);
+            final int criticalWordsScore = rs.getInt(pos++);
+            m_record.m_criticalWordsScore = rs.wasNull() ? null : criticalWordsScore;
+            m_record.m_textSummary = rs.getString(pos++);
+            m_record.m_textSample = rs.getString(pos++);
+            m_record.m_encodedTimeVector = rs.getString(pos++);
+            try {
+                m_writer.writeMessageSummary(m_record);
+            } catch (IOException e) {
+                throw new AdeInternalException("Failed writing a message summary of interval "
+                        + m_record.m_serialNum, e);
+            }
+            m_messageSummaryCount++;
+        }
+    }
+}
@@ -0,0 +1,383 @@
+/*
+ 
+    Copyright IBM Corp. 2016
+    This file is part of Anomaly Detection Engine for Linux Logs (ADE).
+
+    ADE is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    ADE is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with ADE.  If not, see <http://www.gnu.org/licenses/>.
+ 
+*/
+package org.openmainframe.ade.impl.dataStore;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.wink.json4j.JSONArray;
+import org.apache.wink.json4j.JSONException;
+import org.apache.wink.json4j.JSONObject;
+import org.openmainframe.ade.AdeInternal;
+import org.openmainframe.ade.data.ISource;
+import org.openmainframe.ade.dbUtils.ConnectionWrapper;
+import org.openmainframe.ade.exceptions.AdeException;
+import org.openmainframe.ade.exceptions.AdeInternalException;
+import org.openmainframe.ade.exceptions.AdeUsageException;
+import org.openmainframe.ade.impl.data.PeriodImpl;
+import org.openmainframe.ade.impl.data.TextClusterData;
+import org.openmainframe.ade.impl.dbUtils.DbDictionary;
+import org.openmainframe.ade.impl.dbUtils.DmlPreparedStatementChunkExecuter;
+import org.openmainframe.ade.impl.dbUtils.DmlPreparedStatementExecuter;
+import org.openmainframe.ade.impl.dbUtils.SpecialSqlQueries;
+import org.openmainframe.ade.impl.dbUtils.TableGeneralUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Loads a period written by {@link PeriodExporter} into the data store.
+ * <p>
+ * The source and the period are added if missing, and each period summary in the file
+ * replaces the period summary of the same type, with all its intervals and message
+ * summaries. Text clusters are matched to the clusters of the same component with the
+ * same representative text, and added if there is none, so that the clustered message
+ * ids of the file are translated to the message ids of this data store.
+ * <p>
+ * The intervals and message summaries are inserted in batches, committed every
+ * {@link DmlPreparedStatementChunkExecuter#INSERT_CHUNK_SIZE} rows. An import that
+ * fails half way should be rerun; it replaces whatever the failed run loaded.
+ */
+final class PeriodImporter {
+
+    private static final Logger LOG = LoggerFactory.getLogger(PeriodImporter.class);
+
+    private final DataStorePeriodsImpl m_periods;
+    private PeriodDataFile.Reader m_reader;
+    private byte m_tag;
+    private Map<Integer, Integer> m_messageInternalIds;
+    private long m_intervalCount;
+    private long m_messageSummaryCount;
+
+    PeriodImporter(DataStorePeriodsImpl periods) {
+        m_periods = periods;
+    }
+
+    /**
+     * Reads a period from the given stream, which is closed when done.
+     * @return the imported period.
+     */
+    PeriodImpl importPeriod(InputStream in) throws AdeException {
+        final long startTime = System.currentTimeMillis();
+        PeriodImpl period = null;
+        int periodSummaryCount = 0;
+        try (PeriodDataFile.Reader reader = new PeriodDataFile.Reader(in)) {
+            m_reader = reader;
+            final JSONObject header = reader.getHeader();
+            period = addPeriod(header);
+            m_messageInternalIds = mapMessageIds(header);
+
+            final ConnectionWrapper cw = new ConnectionWrapper(AdeInternal.getDefaultConnection());
+            try {
+                cw.startTransaction();
+                m_tag = reader.nextTag();
+                while (m_tag == PeriodDataFile.TAG_PERIOD_SUMMARY) {
+                    final int periodSummaryId = replacePeriodSummary(cw, period, reader.readPeriodSummary());
+                    ++periodSummaryCount;
+                    m_tag = reader.nextTag();
+                    new IntervalInserter(periodSummaryId).execute();
+                    new MessageSummaryInserter(periodSummaryId).execute();
+                }
+                if (m_tag != PeriodDataFile.TAG_END) {
+                    throw new IOException("Unexpected record tag " + m_tag);
+                }
+                cw.endTransaction();
+                cw.close();
+            } catch (SQLException e) {
+                rollback(cw);
+                cw.failed(e);
+            } catch (IOException | AdeException e) {
+                rollback(cw);
+                throw e;
+            } finally {
+                cw.quietCleanup();
+            }
+        } catch (IOException | JSONException e) {
+            throw new AdeUsageException("Failed reading period data" + (period != null ? " of " + period : ""), e);
+        }
+        LOG.info("Imported period " + period + ": " + periodSummaryCount + " period summaries, "
+                + m_intervalCount + " intervals, " + m_messageSummaryCount + " message summaries in "
+                + (System.currentTimeMillis() - startTime) + " ms");
+        return period;
+    }
+
+    private PeriodImpl addPeriod(JSONObject header) throws JSONException, AdeException {
+        final ISource source = AdeInternal.getAdeImpl().getDataStore().sources()
+                .getOrAddSource(header.getString(PeriodDataFile.HEADER_SOURCE_ID));
+        final JSONObject periodJson = header.getJSONObject(PeriodDataFile.HEADER_PERIOD);
+        final PeriodImpl period = m_periods.getOrAddPeriod(source,
+                new Date(periodJson.getLong(PeriodDataFile.HEADER_START_TIME)),
+                new Date(periodJson.getLong(PeriodDataFile.HEADER_END_TIME)));
+        period.setExcludeFromTraining(periodJson.getBoolean(PeriodDataFile.HEADER_EXCLUDE_FROM_TRAINING));
+        period.setStatus(periodJson.getInt(PeriodDataFile.HEADER_STATUS));
+        period.setComment(periodJson.optString(PeriodDataFile.HEADER_COMMENT, null));
+        m_periods.updatePeriodMetaData(period);
+        return period;
+    }
+
+    /**
+     * @return the message internal ids of this data store, by the message internal ids
+     *     of the file.
+     */
+    private Map<Integer, Integer> mapMessageIds(JSONObject header) throws JSONException, AdeException {
+        final Map<String, String> clusteredMessageIds = mapTextClusters(
+                header.getJSONArray(PeriodDataFile.HEADER_TEXT_CLUSTERS));
+        final DbDictionary messageIds = AdeInternal.getAdeImpl().getDictionaries().getMessageIdDictionary();
+        final JSONObject messageIdsJson = header.getJSONObject(PeriodDataFile.HEADER_MESSAGE_IDS);
+        final Map<Integer, Integer> result = new HashMap<Integer, Integer>();
+        for (Iterator<?> it = messageIdsJson.keys(); it.hasNext();) {
+            final String key = (String) it.next();
+            String messageId = messageIdsJson.getString(key);
+            if (clusteredMessageIds.containsKey(messageId)) {
+                messageId = clusteredMessageIds.get(messageId);
+            }
+            result.put(Integer.valueOf(key), messageIds.addWord(messageId));
+        }
+        return result;
+    }
+
+    /**
+     * Finds or adds the text clusters of the file in this data store.
+     * @return the message ids of this data store, by the clustered message ids of the file.
+     */
+    private Map<String, String> mapTextClusters(JSONArray clustersJson) throws JSONException, AdeException {
+        final Map<String, List<JSONObject>> clustersByComponent = new HashMap<String, List<JSONObject>>();
+        for (int i = 0; i < clustersJson.size(); ++i) {
+            final JSONObject clusterJson = clustersJson.getJSONObject(i);
+            final String component = clusterJson.getString(PeriodDataFile.HEADER_COMPONENT);
+            List<JSONObject> clusters = clustersByComponent.get(component);
+            if (clusters == null) {
+                clusters = new ArrayList<JSONObject>();
+                clustersByComponent.put(component, clusters);
+            }
+            clusters.add(clusterJson);
+        }
+
+        final Map<String, String> result = new HashMap<String, String>();
+        if (clustersByComponent.isEmpty()) {
+            return result;
+        }
+        final DbDictionary componentIds = AdeInternal.getAdeImpl().getDictionaries().getComponentIdDictionary();
+        final DataStoreTextClusteringModelsImpl textClustering = AdeInternal.getAdeImpl().getDataStore()
+                .textClustering();
+        int addedCount = 0;
+        for (Map.Entry<String, List<JSONObject>> entry : clustersByComponent.entrySet()) {
+            final String component = entry.getKey();
+            final int componentInternalId = componentIds.addWord(component);
+            // the clusters are added holding the lock of their component only, as uploads add them
+            final ClusterMapping mapping = new ClusterMapping(textClustering, componentInternalId,
+                    entry.getValue());
+            addedCount += textClustering.updateLockingComponent(componentInternalId, mapping);
+            for (JSONObject clusterJson : entry.getValue()) {
+                result.put(component + "_" + clusterJson.getInt(PeriodDataFile.HEADER_CLUSTER_ID),
+                        component + "_" + mapping.m_clusterIdsByText.get(clusterJson.getString(
+                                PeriodDataFile.HEADER_TEXT)));
+            }
+        }
+        LOG.info("Mapped " + result.size() + " text clusters, " + addedCount + " of them added");
+        return result;
+    }
+
+    /**
+     * Finds or adds the text clusters of the file of one component, by their texts.
+     */
+    private static final class ClusterMapping implements DataStoreTextClusteringModelsImpl.ComponentUpdate<Integer> {
+        private final DataStoreTextClusteringModelsImpl m_textClustering;
+        private final int m_componentInternalId;
+        private final List<JSONObject> m_clustersJson;
+        /** The cluster ids of this data store, by the texts of the clusters */
+        private Map<String, Integer> m_clusterIdsByText;
+
+        ClusterMapping(DataStoreTextClusteringModelsImpl textClustering, int componentInternalId,
+                List<JSONObject> clustersJson) {
+            m_textClustering = textClustering;
+            m_componentInternalId = componentInternalId;
+            m_clustersJson = clustersJson;
+        }
+
+        /**
+         * @return the number of clusters added.
+         */
+        @Override
+        public Integer run() throws AdeException {
+            final List<TextClusterData> existing = new ArrayList<TextClusterData>();
+            m_textClustering.refreshClustersFromDataStore(m_componentInternalId, 0, existing);
+            m_clusterIdsByText = new HashMap<String, Integer>();
+            for (TextClusterData cluster : existing) {
+                final Integer previous = m_clusterIdsByText.get(cluster.getTextRepresentative());
+                if (previous == null || previous > cluster.getClusterId()) {
+                    m_clusterIdsByText.put(cluster.getTextRepresentative(), cluster.getClusterId());
+                }
+            }
+
+            int added = 0;
+            try {
+                for (JSONObject clusterJson : m_clustersJson) {
+                    final String text = clusterJson.getString(PeriodDataFile.HEADER_TEXT);
+                    if (!m_clusterIdsByText.containsKey(text)) {
+                        final Date lastObserved = clusterJson.has(PeriodDataFile.HEADER_LAST_OBSERVED)
+                                ? new Date(clusterJson.getLong(PeriodDataFile.HEADER_LAST_OBSERVED)) : null;
+                        m_clusterIdsByText.put(text,
+                                m_textClustering.storeTextCluster(text, m_componentInternalId, lastObserved));
+                        ++added;
+                    }
+                }
+            } catch (JSONException e) {
+                throw new AdeUsageException("Failed reading the text clusters of the period data", e);
+            }
+            return added;
+        }
+    }
+
+    /**
+     * Deletes the period summary of the given type, if any, with all its intervals and
+     * message summaries, and adds an empty one.
+     * @return the internal id of the new period summary.
+     */
+    private static int replacePeriodSummary(ConnectionWrapper cw, final PeriodImpl period, final int summaryType)
+            throws SQLException, AdeException {
+        cw.lockTableExclusive(SQL.PERIOD_SUMMARIES);
+        new DmlPreparedStatementExecuter("delete from " + SQL.PERIOD_SUMMARIES
+                + " where period_internal_id=? and summary_type_internal_id=?") {
+            @Override
+            protected void setParameters(PreparedStatement stmt) throws SQLException, AdeException {
+                stmt.setInt(1, period.getInternalId());
+                stmt.setInt(2, summaryType);
+            }
+        }.execute();
+        new DmlPreparedStatementExecuter("insert into " + SQL.PERIOD_SUMMARIES
+                + "(period_internal_id,summary_type_internal_id) values (?,?)") {
+            @Override
+            protected void setParameters(PreparedStatement stmt) throws SQLException, AdeException {
+                stmt.setInt(1, period.getInternalId());
+                stmt.setInt(2, summaryType);
+            }
+        }.execute();
+        return SpecialSqlQueries.getLastKey();
+    }
+
+    private static void rollback(ConnectionWrapper cw) {
+        try {
+            cw.rollback();
+        } catch (SQLException e) {
+            LOG.error("Failed rolling back the period import", e);
+        }
+    }
+
+    /**
+     * Inserts the interval records that follow the current period summary record.
+     */
+    private class IntervalInserter extends DmlPreparedStatementChunkExecuter {
+        private final int m_periodSummaryId;
+        private final PeriodDataFile.IntervalRecord m_record = new PeriodDataFile.IntervalRecord();
+
+        IntervalInserter(int periodSummaryId) {
+            super("INSERT INTO " + SQL.INTERVALS
+                    + "(PERIOD_SUMMARY_INTERNAL_ID, INTERVAL_SERIAL_NUM, NUM_UNIQUE_MESSAGE_IDS,"
+                    + "INTERVAL_START_TIME,CLASSIFICATION_INTERNAL_ID,ADE_VERSION,COVERAGE_FACTOR) "
+                    + " VALUES(?,?,?,?,?,?,?)");
+            m_periodSummaryId = periodSummaryId;
+        }
+
+        @Override
+        protected void setAllParameters(PreparedStatement stmt) throws SQLException, AdeException {
+            try {
+                while (m_tag == PeriodDataFile.TAG_INTERVAL) {
+                    m_reader.readInterval(m_record);
+                    int pos = 0;
+                    stmt.setInt(++pos, m_periodSummaryId);
+                    stmt.setInt(++pos, m_record.m_serialNum);
+                    stmt.setInt(++pos, m_record.m_numUniqueMessageIds);
+                    stmt.setLong(++pos, m_record.m_startTime);
+                    stmt.setInt(++pos, m_record.m_classification);
+                    stmt.setString(++pos, m_record.m_adeVersion);
+                    if (m_record.m_coverageFactor == null) {
+                        stmt.setNull(++pos, Types.DOUBLE);
+                    } else {
+                        stmt.setDouble(++pos, m_record.m_coverageFactor);
+                    }
+                    addBatch();
+                    ++m_intervalCount;
+                    m_tag = m_reader.nextTag();
+                }
+            } catch (IOException e) {
+                throw new AdeInternalException("Failed reading the intervals of the period data", e);
+            }
+        }
+    }
+
+    /**
+     * Inserts the message summary records that follow the intervals of the current
+     * period summary, translating their message internal ids.
+     */
+    private class MessageSummaryInserter extends DmlPreparedStatementChunkExecuter {
+        private final int m_periodSummaryId;
+        private final PeriodDataFile.MessageSummaryRecord m_record = new PeriodDataFile.MessageSummaryRecord();
+
+        MessageSummaryInserter(int periodSummaryId) {
+            super("INSERT INTO " + SQL.MESSAGE_SUMMARIES
+                    + "(PERIOD_SUMMARY_INTERNAL_ID, INTERVAL_SERIAL_NUM, MESSAGE_INTERNAL_ID, "
+                    + "SEVERITY, NUM_MESSAGES, TEXT_SUMMARY, TEXT_SAMPLE, CRITICAL_WORDS_SCORE,"
+                    + "ENCODED_TIME_VECTOR)" + " VALUES(?,?,?,?,?,?,?,?,?)");
+            m_periodSummaryId = periodSummaryId;
+        }
+
+        @Override
+        protected void setAllParameters(PreparedStatement stmt) throws SQLException, AdeException {
+            try {
+                while (m_tag == PeriodDataFile.TAG_MESSAGE_SUMMARY) {
+                    m_reader.readMessageSummary(m_record);
+                    final Integer messageInternalId = m_messageInternalIds.get(m_record.m_messageInternalId);
+                    if (messageInternalId == null) {
+                        throw new AdeUsageException("Message internal id " + m_record.m_messageInternalId
+                                + " is missing from the period data header");
+                    }
+                    int pos = 0;
+                    stmt.setInt(++pos, m_periodSummaryId);
+                    stmt.setInt(++pos, m_record.m_serialNum);
+                    stmt.setInt(++pos, messageInternalId);
+                    stmt.setInt(++pos, m_record.m_severity);
+                    stmt.setInt(++pos, m_record.m_numMessages);
+                    TableGeneralUtils.setPreparedStatementString(stmt, ++pos, m_record.m_textSummary, -1);
+                    TableGeneralUtils.setPreparedStatementString(stmt, ++pos, m_record.m_textSample, -1);
+                    if (m_record.m_criticalWordsScore == null) {
+                        stmt.setNull(++pos, Types.INTEGER);
+                    } else {
+                        stmt.setInt(++pos, m_record.m_criticalWordsScore);
+                    }
+                    TableGeneralUtils.setPreparedStatementString(stmt, ++pos, m_record.m_encodedTimeVector, -1);
+                    addBatch();
+                    ++m_messageSummaryCount;
+                    m_tag = m_reader.nextTag();
+                }
+            } catch (IOException e) {
+                throw new AdeInternalException("Failed reading the message summaries of the period data", e);
+            }
+        }
+    }
+}
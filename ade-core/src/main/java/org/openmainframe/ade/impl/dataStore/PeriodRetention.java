@@ -0,0 +1,303 @@
+/*
+ 
+    Copyright IBM Corp. 2016
+    This file is part of Anomaly Detection Engine for Linux Logs (ADE).
+
+    ADE is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    ADE is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with ADE.  If not, see <http://www.gnu.org/licenses/>.
+ 
+*/
+package org.openmainframe.ade.impl.dataStore;
+
+import java.io.File;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.TimeZone;
+
+import org.openmainframe.ade.IAdeConfigProperties;
+import org.openmainframe.ade.data.IPeriod;
+import org.openmainframe.ade.exceptions.AdeException;
+import org.openmainframe.ade.exceptions.AdeUsageException;
+import org.openmainframe.ade.impl.data.PeriodImpl;
+import org.openmainframe.ade.impl.dbUtils.DmlPreparedStatementExecuter;
+import org.openmainframe.ade.impl.dbUtils.QueryPreparedStatementExecuter;
+import org.openmainframe.ade.impl.dbUtils.TableGeneralUtils;
+import org.openmainframe.ade.impl.utils.DateTimeUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Enforces the retention of uploaded periods, to keep the MESSAGE_SUMMARIES table, and the
+ * uploads, deletes and training reads that go through it, from growing without bound.
+ * <p>
+ * Periods that ended before the purge time are optionally exported to the archive path, in
+ * the {@link PeriodDataFile} format, and deleted. Periods that ended before the compaction time
+ * keep their intervals and message summaries, but the texts of the message summaries, which
+ * are only shown in analysis results, are dropped. Training still reads their counts,
+ * severities, critical word scores and time lines.
+ * <p>
+ * Message summaries and intervals are deleted or compacted a few intervals at a time, each
+ * batch in its own short transaction, so that uploads and analysis of other periods are
+ * not locked out, and a period is deleted only once its bulk is gone. The optimizer
+ * statistics of the tables are updated when done.
+ */
+public class PeriodRetention {
+
+    private static final Logger LOG = LoggerFactory.getLogger(PeriodRetention.class);
+
+    private static final String ARCHIVE_FILE_SUFFIX = ".json.gz";
+
+    private final DataStorePeriodsImpl m_periods;
+    private final Date m_purgeBefore;
+    private final Date m_compactBefore;
+    private final String m_archivePath;
+    private final int m_batchIntervals;
+
+    private int m_purgedPeriods = 0;
+    private int m_compactedPeriods = 0;
+    private long m_deletedMessageSummaries = 0;
+    private long m_compactedMessageSummaries = 0;
+
+    /**
+     * @param periods the periods data store
+     * @param purgeBefore periods that ended before this time are deleted, null to keep all periods
+     * @param compactBefore periods that ended before this time are compacted, null to compact none
+     * @param archivePath the path to export periods to before deleting them, null to not export them
+     * @param batchIntervals the number of intervals to delete or compact in each transaction
+     * @throws AdeUsageException if the batch size is not positive
+     */
+    public PeriodRetention(DataStorePeriodsImpl periods, Date purgeBefore, Date compactBefore,
+            String archivePath, int batchIntervals) throws AdeUsageException {
+        if (batchIntervals <= 0) {
+            throw new AdeUsageException("The retention batch size must be positive, not " + batchIntervals);
+        }
+        m_periods = periods;
+        m_purgeBefore = purgeBefore == null ? null : new Date(purgeBefore.getTime());
+        m_compactBefore = compactBefore == null ? null : new Date(compactBefore.getTime());
+        m_archivePath = archivePath;
+        m_batchIntervals = batchIntervals;
+    }
+
+    /**
+     * @return the retention configured in the Ade properties, with ages relative to the given time.
+     */
+    public static PeriodRetention fromConfiguration(DataStorePeriodsImpl periods, IAdeConfigProperties config,
+            Date now) throws AdeUsageException {
+        return new PeriodRetention(periods, daysBefore(now, config.getRetentionPurgeAfterDays()),
+                daysBefore(now, config.getRetentionCompactAfterDays()), config.getRetentionArchivePath(),
+                config.getRetentionBatchIntervals());
+    }
+
+    private static Date daysBefore(Date now, int days) throws AdeUsageException {
+        if (days < 0) {
+            throw new AdeUsageException("Retention ages must not be negative, not " + days);
+        }
+        return days == 0 ? null : new Date(now.getTime() - days * DateTimeUtils.MILLIS_IN_DAY);
+    }
+
+    /**
+     * Purges and compacts the periods, and updates the statistics of the tables if any changed.
+     */
+    public final void run() throws AdeException {
+        final long startTime = System.currentTimeMillis();
+        if (m_purgeBefore != null) {
+            for (IPeriod period : m_periods.getAllPeriods(null, null, m_purgeBefore)) {
+                purge(m_periods.getPeriodImpl(period));
+            }
+        }
+        if (m_compactBefore != null) {
+            for (IPeriod period : m_periods.getAllPeriods(null, null, m_compactBefore)) {
+                compact(m_periods.getPeriodImpl(period));
+            }
+        }
+        if (m_purgedPeriods > 0 || m_compactedPeriods > 0) {
+            for (SQL table : new SQL[] { SQL.MESSAGE_SUMMARIES, SQL.INTERVALS, SQL.PERIOD_SUMMARIES, SQL.PERIODS }) {
+                updateStatistics(table);
+            }
+        }
+        LOG.info("Retention deleted " + m_purgedPeriods + " periods with " + m_deletedMessageSummaries
+                + " message summaries, and compacted " + m_compactedMessageSummaries + " message summaries of "
+                + m_compactedPeriods + " periods in " + (System.currentTimeMillis() - startTime) + " ms");
+    }
+
+    public final int getPurgedPeriods() {
+        return m_purgedPeriods;
+    }
+
+    public final int getCompactedPeriods() {
+        return m_compactedPeriods;
+    }
+
+    public final long getDeletedMessageSummaries() {
+        return m_deletedMessageSummaries;
+    }
+
+    public final long getCompactedMessageSummaries() {
+        return m_compactedMessageSummaries;
+    }
+
+    private void purge(PeriodImpl period) throws AdeException {
+        if (m_archivePath != null) {
+            final File archiveFile = getArchiveFile(period);
+            m_periods.exportPeriodToJsonFile(period, archiveFile.getPath());
+            LOG.info("Archived period " + period + " to " + archiveFile);
+        }
+        for (int periodSummaryId : getPeriodSummaryIds(period)) {
+            final int[] range = getSerialNumRange(periodSummaryId, false);
+            if (range == null) {
+                continue;
+            }
+            for (int first = range[0]; first <= range[1]; first += m_batchIntervals) {
+                final int last = Math.min(range[1], first + m_batchIntervals - 1);
+                m_deletedMessageSummaries += new IntervalRangeUpdater("delete from " + SQL.MESSAGE_SUMMARIES,
+                        periodSummaryId, first, last).executeUpdate();
+                new IntervalRangeUpdater("delete from " + SQL.INTERVALS, periodSummaryId, first, last).executeUpdate();
+            }
+        }
+        // the period summaries, the remaining intervals, analysis results and training
+        // statistics are deleted with the period
+        m_periods.deletePeriod(period);
+        ++m_purgedPeriods;
+    }
+
+    private void compact(PeriodImpl period) throws AdeException {
+        long compacted = 0;
+        for (int periodSummaryId : getPeriodSummaryIds(period)) {
+            final int[] range = getSerialNumRange(periodSummaryId, true);
+            if (range == null) {
+                continue;
+            }
+            for (int first = range[0]; first <= range[1]; first += m_batchIntervals) {
+                final int last = Math.min(range[1], first + m_batchIntervals - 1);
+                compacted += new IntervalRangeUpdater("update " + SQL.MESSAGE_SUMMARIES
+                        + " set text_summary=null, text_sample=null", periodSummaryId, first, last).executeUpdate();
+            }
+        }
+        if (compacted > 0) {
+            m_compactedMessageSummaries += compacted;
+            ++m_compactedPeriods;
+        }
+    }
+
+    /**
+     * @return the file a period is archived to, named by its source and start time.
+     */
+    private File getArchiveFile(PeriodImpl period) throws AdeException {
+        final File dir = new File(m_archivePath);
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new AdeUsageException("Failed creating the retention archive path " + dir);
+        }
+        final SimpleDateFormat format = new SimpleDateFormat("yyyyMMdd'T'HHmmss'Z'");
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+        final String sourceId = period.getSource().getSourceId().replaceAll("[^A-Za-z0-9._-]", "_");
+        return new File(dir, sourceId + "_" + format.format(period.getStartTime()) + ARCHIVE_FILE_SUFFIX);
+    }
+
+    private static Collection<Integer> getPeriodSummaryIds(final PeriodImpl period) throws AdeException {
+        final List<Integer> res = new ArrayList<Integer>();
+        new QueryPreparedStatementExecuter("select period_summary_internal_id from " + SQL.PERIOD_SUMMARIES
+                + " where period_internal_id=?") {
+            @Override
+            protected void setParameters(PreparedStatement stmt) throws SQLException, AdeException {
+                stmt.setInt(1, period.getInternalId());
+            }
+
+            @Override
+            protected void handleResultSet(ResultSet rs) throws SQLException, AdeException {
+                res.add(rs.getInt(1));
+            }
+        }.executeQuery();
+        return res;
+    }
+
+    /**
+     * @param withTextOnly only consider message summaries that were not compacted yet
+     * @return the first and last interval serial numbers of the message summaries of a period
+     *     summary, null if it has none.
+     */
+    private static int[] getSerialNumRange(final int periodSummaryId, boolean withTextOnly) throws AdeException {
+        final int[][] res = new int[1][];
+        new QueryPreparedStatementExecuter("select min(interval_serial_num), max(interval_serial_num) from "
+                + SQL.MESSAGE_SUMMARIES + " where period_summary_internal_id=?"
+                + (withTextOnly ? " and (text_summary is not null or text_sample is not null)" : "")) {
+            @Override
+            protected void setParameters(PreparedStatement stmt) throws SQLException, AdeException {
+                stmt.setInt(1, periodSummaryId);
+            }
+
+            @Override
+            protected void handleResultSet(ResultSet rs) throws SQLException, AdeException {
+                final int first = rs.getInt(1);
+                if (!rs.wasNull()) {
+                    res[0] = new int[] { first, rs.getInt(2) };
+                }
+            }
+        }.executeQuery();
+        return res[0];
+    }
+
+    private static void updateStatistics(SQL table) {
+        try {
+            TableGeneralUtils.updateStatistics(table);
+        } catch (AdeException e) {
+            // the data was already deleted, the statistics will be updated on the next run
+            LOG.warn("Failed updating the statistics of " + table, e);
+        }
+    }
+
+    /**
+     * Deletes or updates the rows of a range of intervals of a period summary, in its own
+     * transaction when auto-commit is on, as it is outside explicit transactions.
+     */
+    private static class IntervalRangeUpdater extends DmlPreparedStatementExecuter {
+
+        private final int m_periodSummaryId;
+        private final int m_first;
+        private final int m_last;
+        private int m_updateCount = 0;
+
+        IntervalRangeUpdater(String statement, int periodSummaryId, int first, int last) {
+            super(statement + " where period_summary_internal_id=? and interval_serial_num between ? and ?");
+            m_periodSummaryId = periodSummaryId;
+            m_first = first;
+            m_last = last;
+        }
+
+        @Override
+        protected void setParameters(PreparedStatement stmt) throws SQLException, AdeException {
+            stmt.setInt(1, m_periodSummaryId);
+            stmt.setInt(2, m_first);
+            stmt.setInt(3, m_last);
+        }
+
+        @Override
+        protected void createAndExecute(String sqlString) throws SQLException, AdeException {
+            super.createAndExecute(sqlString);
+            m_updateCount = m_stmt.getUpdateCount();
+        }
+
+        /**
+         * @return the number of rows deleted or updated.
+         */
+        int executeUpdate() throws AdeException {
+            execute();
+            return m_updateCount;
+        }
+    }
+}
@@ -106,6 +106,15 @@ public enum SQL {
             + ",SUMMARY_TYPE_INTERNAL_ID   SMALLINT"
             + ",PRIMARY KEY (PERIOD_SUMMARY_INTERNAL_ID)"
             + ",FOREIGN KEY (PERIOD_INTERNAL_ID) REFERENCES  " + PERIODS + " (PERIOD_INTERNAL_ID) ON DELETE CASCADE ON UPDATE RESTRICT"),
+    /**
+     * Training statistics of the intervals of a period summary, by the scorer and framing they were
+     * collected for, so that training can merge them rather than read the intervals again
+     */
+    PERIOD_TRAINING_STATISTICS("PERIOD_SUMMARY_INTERNAL_ID  INTEGER       NOT NULL"
+            + ",STATISTICS_KEY             VARCHAR(" + SQL.MAX_LEN_STATISTICS_KEY + ") NOT NULL"
+            + ",STATISTICS                 BLOB          NOT NULL"
+            + ",PRIMARY KEY (PERIOD_SUMMARY_INTERNAL_ID,STATISTICS_KEY)"
+            + ",FOREIGN KEY (PERIOD_SUMMARY_INTERNAL_ID) REFERENCES " + PERIOD_SUMMARIES + " (PERIOD_SUMMARY_INTERNAL_ID) ON DELETE CASCADE ON UPDATE RESTRICT"),
     /**
      * Periods are divided into a set number intervals
      * Interval keeps information about each interval with a period for a message stream
@@ -184,6 +193,10 @@ public enum SQL {
      * Length of text string extracted from text stream
      */
     public final static int MAX_LEN_TEXT = 1000;
+    /**
+     * Length of the keys of training statistics
+     */
+    public final static int MAX_LEN_STATISTICS_KEY = 200;
 
     private final String m_create;
 
@@ -217,6 +230,8 @@ public enum SQL {
             (DriverType.parseDriverType(driver) == DriverType.MARIADB)) {
             createString = createString.replace("GENERATED ALWAYS AS IDENTITY NOT NULL", "NOT NULL AUTO_INCREMENT");
             createString = createString.replace("GENERATED ALWAYS AS IDENTITY (START WITH 1, INCREMENT BY 1)", "AUTO_INCREMENT");
+            // a BLOB is limited to 64KB
+            createString = createString.replace(" BLOB ", " LONGBLOB ");
         }
         return createString;
     }
@@ -19,10 +19,18 @@
 */
 package org.openmainframe.ade.impl.dataStore;
 
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.TreeMap;
+
 import org.openmainframe.ade.Ade;
 import org.openmainframe.ade.dbUtils.ConnectionWrapper;
 import org.openmainframe.ade.dbUtils.DriverType;
 import org.openmainframe.ade.exceptions.AdeException;
+import org.openmainframe.ade.exceptions.AdeInternalException;
+import org.openmainframe.ade.impl.dbUtils.MyJDBCConnection;
 import org.openmainframe.ade.impl.dbUtils.TableGeneralUtils;
 
 public class TableManager {
@@ -39,6 +47,7 @@ public class TableManager {
             SQL.SOURCES,
             SQL.PERIODS,
             SQL.PERIOD_SUMMARIES,
+            SQL.PERIOD_TRAINING_STATISTICS,
             SQL.ADE_VERSIONS,
             SQL.MODELS,
             SQL.TEXT_CLUSTERS,
@@ -47,6 +56,68 @@ public class TableManager {
             SQL.ANALYSIS_RESULTS
     };
 
+    /**
+     * Indexes created with the tables, besides the primary keys
+     */
+    private enum Index {
+        /** For reading, replacing and purging the message summaries of a range of intervals */
+        MESSAGE_SUMMARIES_BY_PERIOD_SUMMARY_AND_INTERVAL("message_summaries_by_period_summary_interval",
+                SQL.MESSAGE_SUMMARIES, "PERIOD_SUMMARY_INTERNAL_ID, INTERVAL_SERIAL_NUM"),
+        SOURCES_BY_ANALYSIS_GROUP("ANALYSIS_GROUP_INDEX", SQL.SOURCES, "ANALYSIS_GROUP"),
+        /** For finding the periods of a source in a time range */
+        PERIODS_BY_SOURCE_AND_START_TIME("periods_by_source_internal_id_start_time",
+                SQL.PERIODS, "SOURCE_INTERNAL_ID, START_TIME"),
+        /** For finding the analysis results of a period in a time range, with their scores */
+        ANALYSIS_RESULTS_BY_PERIOD_AND_START_TIME("analysis_results_by_period_internal_id_start_time",
+                SQL.ANALYSIS_RESULTS, "PERIOD_INTERNAL_ID, START_TIME, INTERVAL_SCORE"),
+        /** For reading the clusters of a component added since a given cluster id */
+        TEXT_CLUSTERS_BY_COMPONENT_AND_ID("text_clusters_by_component_internal_id_cluster_id",
+                SQL.TEXT_CLUSTERS, "COMPONENT_INTERNAL_ID, TEXT_CLUSTER_INTERNAL_ID");
+
+        private final String m_indexName;
+        private final SQL m_table;
+        private final String m_columns;
+
+        Index(String indexName, SQL table, String columns) {
+            m_indexName = indexName;
+            m_table = table;
+            m_columns = columns;
+        }
+
+        private void create() throws AdeException {
+            ConnectionWrapper.executeDmlDefaultCon("create index " + m_indexName + " on " + m_table + " (" + m_columns + ")");
+        }
+    }
+
+    /**
+     * Indexes created by earlier versions and replaced by one of the indexes above
+     */
+    private enum ObsoleteIndex {
+        /** Replaced by MESSAGE_SUMMARIES_BY_PERIOD_SUMMARY_AND_INTERVAL, which starts with the same column */
+        MESSAGE_SUMMARIES_BY_PERIOD_SUMMARY("message_summaries_by_period_summary_internal_id",
+                SQL.MESSAGE_SUMMARIES);
+
+        private final String m_indexName;
+        private final SQL m_table;
+
+        ObsoleteIndex(String indexName, SQL table) {
+            m_indexName = indexName;
+            m_table = table;
+        }
+
+        private void drop() throws AdeException {
+            switch (Ade.getAde().getConfigProperties().database().getDriverType()) {
+                case MY_SQL:
+                case MARIADB:
+                    ConnectionWrapper.executeDmlDefaultCon("drop index " + m_indexName + " on " + m_table);
+                    break;
+                default:
+                    ConnectionWrapper.executeDmlDefaultCon("drop index " + m_indexName);
+                    break;
+            }
+        }
+    }
+
     /**
      * Invokes methods to create tables, indexes, and set version of database definition
      * @param
@@ -100,7 +171,10 @@ public class TableManager {
             return;
         }
         for (SQL table : tables) {
-            TableGeneralUtils.deleteTable(table.toString());
+            // tables added since the database was created may be missing
+            if (tableExists(table)) {
+                TableGeneralUtils.deleteTable(table.toString());
+            }
         }
     }
 
@@ -135,8 +209,125 @@ public class TableManager {
      * @throws AdeException
      */
     private void createIndices() throws AdeException {
-        ConnectionWrapper.executeDmlDefaultCon("create index message_summaries_by_period_summary_internal_id on " + SQL.MESSAGE_SUMMARIES + " (PERIOD_SUMMARY_INTERNAL_ID)");
-        ConnectionWrapper.executeDmlDefaultCon("create index ANALYSIS_GROUP_INDEX on "+SQL.SOURCES+" (ANALYSIS_GROUP)");
+        for (Index index : Index.values()) {
+            index.create();
+        }
+    }
+
+    /**
+     * Creates the indices missing from an existing database, e.g. one created by
+     * an earlier version that did not define them. Indices do not change the
+     * database version, so no patch is needed for them.
+     * @return the number of indices created
+     * @throws AdeException
+     */
+    public final int createMissingIndices() throws AdeException {
+        int created = 0;
+        for (Index index : Index.values()) {
+            final Map<String, String> existing = getIndexColumns(index.m_table);
+            final String columns = index.m_columns.replace(" ", "").toUpperCase();
+            if (!existing.containsKey(index.m_indexName.toUpperCase()) && !existing.containsValue(columns)) {
+                index.create();
+                ++created;
+            }
+        }
+        return created;
+    }
+
+    /**
+     * Drops the indices of earlier versions that an index created by createMissingIndices()
+     * replaces, so that they are no longer maintained on every insert. Call it after
+     * createMissingIndices(). Derby does not create an index that duplicates the index of a
+     * constraint, so it usually has none of them.
+     * @return the number of indices dropped
+     * @throws AdeException
+     */
+    public final int dropObsoleteIndices() throws AdeException {
+        int dropped = 0;
+        for (ObsoleteIndex index : ObsoleteIndex.values()) {
+            if (getIndexColumns(index.m_table).containsKey(index.m_indexName.toUpperCase())) {
+                index.drop();
+                ++dropped;
+            }
+        }
+        return dropped;
+    }
+
+    /**
+     * Creates the tables missing from an existing database, e.g. tables of training
+     * statistics in one created by an earlier version. Like indices, they hold derived
+     * data only, so no patch is needed for them.
+     * @return the number of tables created
+     * @throws AdeException
+     */
+    public final int createMissingTables() throws AdeException {
+        int created = 0;
+        for (SQL table : ALL_TABLES) {
+            if (!tableExists(table)) {
+                createTables(table);
+                ++created;
+            }
+        }
+        return created;
+    }
+
+    /**
+     * @return true if the table exists in the database.
+     * @throws AdeException
+     */
+    public static boolean tableExists(SQL table) throws AdeException {
+        try {
+            final DatabaseMetaData metaData = MyJDBCConnection.getConnection().getMetaData();
+            final String schema = Ade.getAde().getConfigProperties().database().getDatabaseSchema();
+            for (String tableName : new String[] { table.name(), table.name().toLowerCase() }) {
+                final ResultSet rs = metaData.getTables(null, schema, tableName, null);
+                try {
+                    if (rs.next()) {
+                        return true;
+                    }
+                } finally {
+                    rs.close();
+                }
+            }
+        } catch (SQLException e) {
+            throw new AdeInternalException("Failed looking up table " + table, e);
+        }
+        return false;
+    }
+
+    /**
+     * Some databases, e.g. Derby, list an index that duplicates the index of a constraint
+     * under the name of the constraint only, so indices are also matched by their columns.
+     * @return the comma separated upper case columns of the indices of a table, by their
+     *     upper case names
+     */
+    private static Map<String, String> getIndexColumns(SQL table) throws AdeException {
+        final Map<String, String> res = new TreeMap<String, String>();
+        try {
+            final DatabaseMetaData metaData = MyJDBCConnection.getConnection().getMetaData();
+            final String schema = Ade.getAde().getConfigProperties().database().getDatabaseSchema();
+            for (String tableName : new String[] { table.name(), table.name().toLowerCase() }) {
+                final ResultSet rs = metaData.getIndexInfo(null, schema, tableName, false, true);
+                try {
+                    // the columns of each index are listed by their ordinal position
+                    while (rs.next()) {
+                        final String indexName = rs.getString("INDEX_NAME");
+                        final String columnName = rs.getString("COLUMN_NAME");
+                        if (indexName == null || columnName == null) {
+                            continue;
+                        }
+                        final String key = indexName.toUpperCase();
+                        final String columns = res.get(key);
+                        res.put(key, columns == null ? columnName.toUpperCase() : columns + "," + columnName.toUpperCase());
+                    }
+                } finally {
+                    rs.close();
+                }
+            }
+        } catch (SQLException e) {
+            throw new AdeInternalException("Failed listing the indices of " + table, e);
+        }
+        return res;
     }
 
     /**
@@ -0,0 +1,200 @@
+/*
+ 
+    Copyright IBM Corp. 2016
+    This file is part of Anomaly Detection Engine for Linux Logs (ADE).
+
+    ADE is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    ADE is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with ADE.  If not, see <http://www.gnu.org/licenses/>.
+ 
+*/
+package org.openmainframe.ade.impl.dataStore;
+
+import java.util.Date;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import org.openmainframe.ade.Ade;
+import org.openmainframe.ade.core.statistics.Counter;
+import org.openmainframe.ade.core.statistics.MetricsRegistry;
+import org.openmainframe.ade.exceptions.AdeException;
+import org.openmainframe.ade.impl.dbUtils.DmlPreparedStatementChunkExecuter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Write-behind buffer of the last observed time stamps of text clusters.
+ *
+ * <p>Rather than updating the row of a cluster whenever a message advances its last observed time, the
+ * updates are coalesced per cluster, keeping the latest time stamp, and written in one batched statement
+ * by {@link #flush()}. A flush happens:
+ * <ul>
+ * <li>when an interval is uploaded, so the clusters of a stored interval are never behind it,
+ * <li>when the oldest pending update is older than the flush period, or too many updates are pending.
+ *     This is checked by {@link #flushIfDue()} after each clustered message, outside of any transaction,
+ *     so no timer thread or connection of its own is needed,
+ * <li>at the end of the input stream, and when the JVM exits, by a shutdown hook.
+ * </ul>
+ *
+ * <p>Durability: an update is durable once flushed. If the process crashes, the updates of at most one
+ * flush period, none older than the last uploaded interval, are lost. The last observed time of those
+ * clusters then lags behind until they are observed again, e.g. when the logs are uploaded again.
+ * Since the update only moves a time stamp forward, a delayed flush never overrides a later time stamp
+ * written by another ADE process, and a failed flush is kept pending and retried by the next one.
+ * A flush period of 0 flushes after every clustered message, as the updates were written before.
+ */
+public final class TextClusterTimeStampWriter {
+
+    private static final Logger logger = LoggerFactory.getLogger(TextClusterTimeStampWriter.class);
+
+    /** Default maximal time an update is kept pending, in milli-seconds */
+    public static final int DEFAULT_FLUSH_PERIOD = 60 * 1000;
+
+    /** Number of pending updates that causes a flush, regardless of their age */
+    private static final int MAX_PENDING = DmlPreparedStatementChunkExecuter.INSERT_CHUNK_SIZE;
+
+    private static final Counter s_updates = MetricsRegistry.counter("textClustering.lastObserved.updates");
+    private static final Counter s_flushes = MetricsRegistry.counter("textClustering.lastObserved.flushes");
+    private static final Counter s_rowsWritten = MetricsRegistry.counter("textClustering.lastObserved.rowsWritten");
+
+    private static TextClusterTimeStampWriter s_instance = null;
+
+    private final DataStoreTextClusteringModelsImpl m_dataStore;
+    private final long m_flushPeriod;
+
+    /** Pending time stamps by cluster id, sorted so that rows are always locked in the same order */
+    private SortedMap<Integer, Date> m_pending = new TreeMap<Integer, Date>();
+    private long m_oldestPendingTime;
+
+    private long m_updates = 0;
+    private long m_flushes = 0;
+    private Thread m_shutdownHook = null;
+
+    /**
+     * @param dataStore the data store the time stamps are written to.
+     * @param flushPeriod the maximal time an update is kept pending, in milli-seconds.
+     */
+    public TextClusterTimeStampWriter(DataStoreTextClusteringModelsImpl dataStore, long flushPeriod) {
+        m_dataStore = dataStore;
+        m_flushPeriod = flushPeriod;
+    }
+
+    /**
+     * Returns the writer shared by the text clustering models of this process, with the flush period of
+     * the configuration.
+     * @throws AdeException
+     */
+    public static synchronized TextClusterTimeStampWriter getInstance() throws AdeException {
+        if (s_instance == null) {
+            s_instance = new TextClusterTimeStampWriter(new DataStoreTextClusteringModelsImpl(),
+                    Ade.getAde().getConfigProperties().database().getTextClusterFlushPeriod());
+        }
+        return s_instance;
+    }
+
+    /**
+     * Records a new last observed time stamp of a cluster, to be written by a later flush.
+     * @param clusterId the cluster that was observed
+     * @param lastObserved the new last observed time stamp
+     */
+    public synchronized void update(int clusterId, Date lastObserved) {
+        s_updates.increment();
+        ++m_updates;
+        if (m_pending.isEmpty()) {
+            m_oldestPendingTime = System.currentTimeMillis();
+            registerShutdownHook();
+        }
+        final Date pending = m_pending.get(clusterId);
+        if (pending == null || pending.before(lastObserved)) {
+            m_pending.put(clusterId, lastObserved);
+        }
+    }
+
+    /**
+     * Flushes the pending updates if the oldest of them is older than the flush period, or if too many
+     * are pending. Must not be called within a transaction, which the flush would commit.
+     * @throws AdeException
+     */
+    public synchronized void flushIfDue() throws AdeException {
+        if (!m_pending.isEmpty() && (m_pending.size() >= MAX_PENDING
+                || System.currentTimeMillis() - m_oldestPendingTime >= m_flushPeriod)) {
+            flush();
+        }
+    }
+
+    /**
+     * Writes all the pending updates in one batched statement. If the statement fails, the updates stay
+     * pending. Must not be called within a transaction, which the flush would commit.
+     * @throws AdeException
+     */
+    public synchronized void flush() throws AdeException {
+        if (m_pending.isEmpty()) {
+            return;
+        }
+        final SortedMap<Integer, Date> pending = m_pending;
+        m_dataStore.updateTextClusterTimeStamps(pending);
+        m_pending = new TreeMap<Integer, Date>();
+        s_flushes.increment();
+        s_rowsWritten.add(pending.size());
+        ++m_flushes;
+        if (logger.isDebugEnabled()) {
+            logger.debug("Wrote the last observed time stamps of " + pending.size() + " text clusters");
+        }
+    }
+
+    /** @return the number of clusters whose time stamp is pending */
+    public synchronized int getPendingCount() {
+        return m_pending.size();
+    }
+
+    /** @return the number of time stamp updates recorded */
+    public synchronized long getUpdateCount() {
+        return m_updates;
+    }
+
+    /** @return the number of batched statements that wrote them */
+    public synchronized long getFlushCount() {
+        return m_flushes;
+    }
+
+    /** Logs how many round trips to the database the coalescing of the updates saved */
+    public synchronized void logStatistics() {
+        logger.info("Wrote " + m_updates + " last observed time stamps of text clusters in " + m_flushes
+                + " batched statements, saving " + (m_updates - m_flushes) + " round trips");
+    }
+
+    /**
+     * Registers a shutdown hook flushing the updates still pending when the JVM exits, if not done yet.
+     * The hook is best effort: if the database is not reachable anymore, the updates are lost as in a crash.
+     */
+    private void registerShutdownHook() {
+        if (m_shutdownHook != null) {
+            return;
+        }
+        m_shutdownHook = new Thread("ade-text-cluster-time-stamps") {
+            @Override
+            public void run() {
+                try {
+                    flush();
+                } catch (AdeException e) {
+                    logger.warn("Failed writing the last observed time stamps of text clusters on exit", e);
+                }
+            }
+        };
+        try {
+            Runtime.getRuntime().addShutdownHook(m_shutdownHook);
+        } catch (IllegalStateException e) {
+            // already shutting down, the updates are flushed by the caller or lost
+            logger.trace("JVM is shutting down", e);
+        }
+    }
+}
@@ -0,0 +1,381 @@
+/*
+ 
+    Copyright IBM Corp. 2009, 2016
+    This file is part of Anomaly Detection Engine for Linux Logs (ADE).
+
+    ADE is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    ADE is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with ADE.  If not, see <http://www.gnu.org/licenses/>.
+ 
+*/
+package org.openmainframe.ade.impl.dbUtils;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A bounded pool of JDBC connections to a single database.
+ *
+ * At most maxSize connections are lent out at any time; further requests wait until
+ * a connection is returned, and fail after a timeout with an error naming the threads
+ * that hold the connections. Connections handed out by {@link #getConnection(boolean)}
+ * are logical handles: closing them returns the physical connection to the pool.
+ * Idle connections are validated before reuse, and each physical connection keeps
+ * an LRU cache of prepared statements (see {@link #prepareStatement(Connection, String)}).
+ *
+ * The pool keeps counters of its activity, which are reported by {@link #toString()}.
+ */
+public final class ConnectionPool {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConnectionPool.class);
+
+    /** Default maximal number of connections lent out at once */
+    public static final int DEFAULT_MAX_SIZE = 16;
+
+    /** Default maximal number of idle prepared statements cached per connection */
+    public static final int DEFAULT_STATEMENT_CACHE_SIZE = 64;
+
+    /** Default time to wait for a connection to be returned when the pool is exhausted */
+    private static final long DEFAULT_BORROW_TIMEOUT_MILLIS = TimeUnit.SECONDS.toMillis(60);
+
+    /** Connections idle for longer than this are validated with the database before reuse */
+    private static final long VALIDATE_AFTER_IDLE_MILLIS = 5000;
+
+    /** Number of seconds the jdbc driver is allowed for validating a connection */
+    private static final int VALIDATION_TIMEOUT_SECONDS = 5;
+
+    private final String m_url;
+    private final String m_user;
+    private final String m_password;
+    private final int m_maxSize;
+    private final int m_statementCacheSize;
+
+    private final Semaphore m_permits;
+    private final Deque<PooledConnection> m_idle = new ArrayDeque<PooledConnection>();
+    private final Deque<Long> m_idleSince = new ArrayDeque<Long>();
+    private volatile long m_generation = 0;
+    private volatile long m_borrowTimeoutMillis = DEFAULT_BORROW_TIMEOUT_MILLIS;
+
+    /** The thread that borrowed each connection currently lent out */
+    private final Map<PooledConnection, Thread> m_borrowers = new ConcurrentHashMap<PooledConnection, Thread>();
+
+    private final AtomicLong m_created = new AtomicLong();
+    private final AtomicLong m_borrowed = new AtomicLong();
+    private final AtomicLong m_reused = new AtomicLong();
+    private final AtomicLong m_waited = new AtomicLong();
+    private final AtomicLong m_validationFailures = new AtomicLong();
+    private final AtomicLong m_statementHits = new AtomicLong();
+    private final AtomicLong m_statementMisses = new AtomicLong();
+    private final AtomicLong m_statementEvictions = new AtomicLong();
+
+    /**
+     * @param url the JDBC url of the database.
+     * @param user the database user. If null or empty, no user is used.
+     * @param password the database password.
+     * @param maxSize maximal number of connections lent out at once.
+     * @param statementCacheSize maximal number of idle prepared statements cached per connection.
+     *     Zero disables statement caching.
+     */
+    public ConnectionPool(String url, String user, String password, int maxSize, int statementCacheSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("Connection pool size must be positive: " + maxSize);
+        }
+        m_url = url;
+        m_user = user;
+        m_password = password;
+        m_maxSize = maxSize;
+        m_statementCacheSize = Math.max(0, statementCacheSize);
+        m_permits = new Semaphore(maxSize, true);
+    }
+
+    /** @return true if this pool connects to the given database as the given user */
+    public boolean isFor(String url, String user) {
+        return m_url.equals(url) && (m_user == null ? user == null : m_user.equals(user));
+    }
+
+    /**
+     * Borrows a connection from the pool, opening a new one if no idle connection is available.
+     * The returned connection must be closed to return it to the pool.
+     *
+     * @param create - If true, and a new connection needs to be opened, ask the database to
+     *     create itself if necessary. Only supported on Derby; a no-op otherwise.
+     * @throws SQLException if no connection could be obtained.
+     */
+    public Connection getConnection(boolean create) throws SQLException {
+        if (!m_permits.tryAcquire()) {
+            m_waited.incrementAndGet();
+            try {
+                if (!m_permits.tryAcquire(m_borrowTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                    throw new SQLException("Connection pool exhausted: no connection was returned within "
+                            + m_borrowTimeoutMillis + " ms. Connections are held by threads "
+                            + getBorrowerNames() + ". " + this);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Interrupted while waiting for a database connection", e);
+            }
+        }
+
+        try {
+            PooledConnection pc = takeValidIdle();
+            if (pc == null) {
+                pc = open(create);
+            } else {
+                m_reused.incrementAndGet();
+            }
+            m_borrowed.incrementAndGet();
+            m_borrowers.put(pc, Thread.currentThread());
+            return pc.newHandle();
+        } catch (SQLException e) {
+            m_permits.release();
+            throw e;
+        } catch (RuntimeException e) {
+            m_permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns a prepared statement for the given sql. If the connection was obtained
+     * from a pool, the statement is taken from that connection's statement cache and
+     * must be handed back by {@link #releaseStatement(Connection, String, PreparedStatement)}.
+     * Otherwise a new statement is prepared.
+     */
+    public static PreparedStatement prepareStatement(Connection con, String sql) throws SQLException {
+        final PooledConnection pc = PooledConnection.fromHandle(con);
+        if (pc == null || !pc.isCurrentHandle(con)) {
+            return con.prepareStatement(sql);
+        }
+        return pc.statementCache().checkout(sql);
+    }
+
+    /**
+     * Releases a statement obtained by {@link #prepareStatement(Connection, String)}. It
+     * is returned to the statement cache if possible, and closed otherwise.
+     */
+    public static void releaseStatement(Connection con, String sql, PreparedStatement ps) throws SQLException {
+        if (ps == null) {
+            return;
+        }
+        final PooledConnection pc = PooledConnection.fromHandle(con);
+        if (pc == null || !pc.isCurrentHandle(con)) {
+            ps.close();
+            return;
+        }
+        pc.statementCache().checkin(sql, ps);
+    }
+
+    /**
+     * Marks all connections currently held by the pool as stale. Idle connections are
+     * closed immediately; lent out connections are closed when they are returned.
+     */
+    public void invalidateAll() {
+        final List<PooledConnection> stale;
+        synchronized (m_idle) {
+            ++m_generation;
+            stale = new ArrayList<PooledConnection>(m_idle);
+            m_idle.clear();
+            m_idleSince.clear();
+        }
+        for (PooledConnection pc : stale) {
+            pc.destroy();
+        }
+    }
+
+    /** Called by a logical handle when it is closed */
+    void release(PooledConnection pc) {
+        m_borrowers.remove(pc);
+        try {
+            boolean keep = pc.generation() == m_generation && !pc.physical().isClosed();
+            if (keep) {
+                try {
+                    pc.reset();
+                } catch (SQLException e) {
+                    logger.warn("Failed resetting connection, discarding it", e);
+                    keep = false;
+                }
+            }
+            if (keep) {
+                synchronized (m_idle) {
+                    if (pc.generation() == m_generation) {
+                        m_idle.addFirst(pc);
+                        m_idleSince.addFirst(System.currentTimeMillis());
+                        return;
+                    }
+                }
+            }
+            pc.destroy();
+        } catch (SQLException e) {
+            logger.warn("Failed checking returned connection, discarding it", e);
+            pc.destroy();
+        } finally {
+            m_permits.release();
+        }
+    }
+
+    private PooledConnection takeValidIdle() {
+        while (true) {
+            final PooledConnection pc;
+            final long idleSince;
+            synchronized (m_idle) {
+                pc = m_idle.pollFirst();
+                if (pc == null) {
+                    return null;
+                }
+                idleSince = m_idleSince.pollFirst();
+            }
+            if (isValid(pc, System.currentTimeMillis() - idleSince)) {
+                return pc;
+            }
+            m_validationFailures.incrementAndGet();
+            pc.destroy();
+        }
+    }
+
+    private static boolean isValid(PooledConnection pc, long idleMillis) {
+        try {
+            if (pc.physical().isClosed()) {
+                return false;
+            }
+            return idleMillis < VALIDATE_AFTER_IDLE_MILLIS || pc.physical().isValid(VALIDATION_TIMEOUT_SECONDS);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private PooledConnection open(boolean create) throws SQLException {
+        String url = m_url;
+        if (create && url.contains("jdbc:derby")) {
+            url += ";create=true";
+        }
+        final long generation = m_generation;
+        final Connection con;
+        if (m_user == null || m_user.isEmpty()) {
+            con = DriverManager.getConnection(url);
+        } else {
+            con = DriverManager.getConnection(url, m_user, m_password);
+        }
+        m_created.incrementAndGet();
+        final PreparedStatementCache cache = new PreparedStatementCache(con, m_statementCacheSize,
+                m_statementHits, m_statementMisses, m_statementEvictions);
+        return new PooledConnection(this, con, cache, generation);
+    }
+
+    /**
+     * Sets how long {@link #getConnection(boolean)} waits for a connection to be returned
+     * when the pool is exhausted, before failing.
+     */
+    public void setBorrowTimeout(long millis) {
+        m_borrowTimeoutMillis = millis;
+    }
+
+    /**
+     * @return the names of the threads holding the connections currently lent out. Threads
+     *     that ended without returning their connection are marked as dead.
+     */
+    public List<String> getBorrowerNames() {
+        final List<String> names = new ArrayList<String>();
+        for (Thread thread : m_borrowers.values()) {
+            names.add(thread.isAlive() ? thread.getName() : thread.getName() + " (dead)");
+        }
+        return names;
+    }
+
+    public int getMaxSize() {
+        return m_maxSize;
+    }
+
+    public int getStatementCacheSize() {
+        return m_statementCacheSize;
+    }
+
+    /** @return number of connections currently lent out */
+    public int getActiveCount() {
+        return m_maxSize - m_permits.availablePermits();
+    }
+
+    /** @return number of open connections waiting in the pool */
+    public int getIdleCount() {
+        synchronized (m_idle) {
+            return m_idle.size();
+        }
+    }
+
+    /** @return number of physical connections opened so far */
+    public long getCreatedCount() {
+        return m_created.get();
+    }
+
+    /** @return number of connections lent out so far */
+    public long getBorrowCount() {
+        return m_borrowed.get();
+    }
+
+    /** @return number of borrows served by an idle connection */
+    public long getReuseCount() {
+        return m_reused.get();
+    }
+
+    /** @return number of borrows that had to wait for a connection to be returned */
+    public long getWaitCount() {
+        return m_waited.get();
+    }
+
+    /** @return number of idle connections found invalid and discarded */
+    public long getValidationFailureCount() {
+        return m_validationFailures.get();
+    }
+
+    /** @return number of prepared statements served from a statement cache */
+    public long getStatementCacheHits() {
+        return m_statementHits.get();
+    }
+
+    /** @return number of prepared statements that had to be prepared */
+    public long getStatementCacheMisses() {
+        return m_statementMisses.get();
+    }
+
+    /** @return number of idle prepared statements closed to make room in a statement cache */
+    public long getStatementCacheEvictions() {
+        return m_statementEvictions.get();
+    }
+
+    @Override
+    public String toString() {
+        return "ConnectionPool[" + m_url
+                + " active=" + getActiveCount() + "/" + m_maxSize
+                + " idle=" + getIdleCount()
+                + " created=" + getCreatedCount()
+                + " borrowed=" + getBorrowCount()
+                + " reused=" + getReuseCount()
+                + " waited=" + getWaitCount()
+                + " invalid=" + getValidationFailureCount()
+                + " stmtHits=" + getStatementCacheHits()
+                + " stmtMisses=" + getStatementCacheMisses()
+                + " stmtEvictions=" + getStatementCacheEvictions() + "]";
+    }
+}
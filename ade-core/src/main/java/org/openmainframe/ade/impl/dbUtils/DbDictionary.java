@@ -62,7 +62,7 @@ public class DbDictionary {
         refresh();
     }
 
-    public int addWord(String word) throws AdeException {
+    public synchronized int addWord(String word) throws AdeException {
         if (word.length() > SQL.MAX_LEN_DICTIONARY) {
             throw new AdeInternalException("Word too long: " + word);
         }
@@ -79,15 +79,15 @@ public class DbDictionary {
         return id;
     }
 
-    public int getDictionarySize() {
+    public synchronized int getDictionarySize() {
         return m_nameIdMap.getMappingCount();
     }
 
-    public int getWordId(String message) {
+    public synchronized int getWordId(String message) {
         return m_nameIdMap.getIDFromString(message);
     }
 
-    public String getWordById(int id) throws AdeException {
+    public synchronized String getWordById(int id) throws AdeException {
         String res = m_nameIdMap.getStringFromID(id);
         if (res != null) {
             return res;
@@ -156,15 +156,15 @@ public class DbDictionary {
         return id;
     }
 
-    public Set<Integer> getIds() {
+    public synchronized Set<Integer> getIds() {
         return m_nameIdMap.getIds();
     }
 
-    public Set<String> getWords() {
+    public synchronized Set<String> getWords() {
         return m_nameIdMap.getWords();
     }
 
-    public void refresh() throws AdeException {
+    public synchronized void refresh() throws AdeException {
         m_nameIdMap = new NumStringMap(m_sqlStatements.getAllMap().entrySet());
         m_lastRefreashTime = System.currentTimeMillis();
     }
@@ -191,12 +191,12 @@ public class DbDictionary {
         return res.toString();
     }
 
-    public void delete(int id) throws AdeException {
+    public synchronized void delete(int id) throws AdeException {
         m_sqlStatements.deleteWord(id);
         m_nameIdMap.removeEntry(id);
     }
 
-    public void clear() {
+    public synchronized void clear() {
         m_nameIdMap.clear();
 
     }
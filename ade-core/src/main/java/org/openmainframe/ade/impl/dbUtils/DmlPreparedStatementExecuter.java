@@ -50,12 +50,20 @@ public abstract class DmlPreparedStatementExecuter extends DmlStatementExecuter
     }
 
     protected void createAndExecute(String sqlString) throws SQLException, AdeException {
-        final PreparedStatement ps = m_con.prepareStatement(sqlString);
+        final PreparedStatement ps = MyJDBCConnection.prepareStatement(m_con, sqlString);
         m_stmt = ps;
         setParameters(ps);
         ps.execute();
     }
 
+    /**
+     * Returns the statement to the connection's statement cache instead of closing it.
+     */
+    @Override
+    protected final void releaseStatement(String sqlString) throws SQLException {
+        MyJDBCConnection.releaseStatement(m_con, sqlString, (PreparedStatement) m_stmt);
+    }
+
     protected abstract void setParameters(PreparedStatement stmt) throws SQLException, AdeException;
 
 }
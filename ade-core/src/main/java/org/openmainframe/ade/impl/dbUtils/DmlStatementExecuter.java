@@ -68,7 +68,7 @@ public class DmlStatementExecuter {
             //Get a connection from the connection pool
             m_con = MyJDBCConnection.getConnection();
             createAndExecute(m_sqlString);
-            m_stmt.close();
+            releaseStatement(m_sqlString);
             m_stmt = null;
         } catch (SQLException e) {
             final SQLException e2 = e.getNextException();
@@ -105,6 +105,14 @@ public class DmlStatementExecuter {
         }
     }
 
+    /**
+     * Called after the statement was executed successfully, to dispose of it.
+     * The default implementation closes it.
+     */
+    protected void releaseStatement(String sqlString) throws SQLException {
+        m_stmt.close();
+    }
+
     protected void createAndExecute(String sqlString) throws SQLException, AdeException {
         m_stmt = m_con.createStatement();
         m_stmt.execute(sqlString);
@@ -20,9 +20,15 @@
 package org.openmainframe.ade.impl.dbUtils;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.lang.ref.WeakReference;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 
 import org.openmainframe.ade.Ade;
 import org.openmainframe.ade.IAdeConfigProperties;
@@ -33,6 +39,14 @@ import org.slf4j.LoggerFactory;
 
 /**
  * Class responsible for managing thread local Connection instances.
+ *
+ * Connections are borrowed from a bounded {@link ConnectionPool}; closing the thread's
+ * connection returns it to the pool. A thread that ends without closing its connection
+ * would hold a connection of the bounded pool forever, so the connections of ended
+ * threads are returned to the pool whenever a connection is borrowed. Prepared statements
+ * should be obtained through
+ * {@link #prepareStatement(Connection, String)} so they are served from the pooled
+ * connection's statement cache.
  */
 
 public final class MyJDBCConnection {
@@ -40,6 +54,9 @@ public final class MyJDBCConnection {
     private static String connectionUrl = null;
     private static String dbUser = null;
     private static String dbPassword = null;
+    private static int poolSize = ConnectionPool.DEFAULT_MAX_SIZE;
+    private static int statementCacheSize = ConnectionPool.DEFAULT_STATEMENT_CACHE_SIZE;
+    private static ConnectionPool pool = null;
 
     private static Long renewConnectionTime = 0L;
 
@@ -57,6 +74,13 @@ public final class MyJDBCConnection {
         }
     };
 
+    /**
+     * The thread each connection set by {@link #initConnection(boolean)} belongs to. The
+     * threads are weakly referenced, so that the registry does not keep ended threads alive.
+     */
+    private static final Map<Connection, WeakReference<Thread>> threadConnections =
+            new IdentityHashMap<Connection, WeakReference<Thread>>();
+
     private MyJDBCConnection() {
         // Prevent instantiation of utility class
     }
@@ -78,6 +102,26 @@ public final class MyJDBCConnection {
         MyJDBCConnection.dbPassword = dbPassword;
     }
 
+    /**
+     * Sets the size limits of the connection pool.  If not set explicitly, the
+     * limits are taken from the AdeConfigProperties together with the connection
+     * properties, or default to {@link ConnectionPool#DEFAULT_MAX_SIZE} and
+     * {@link ConnectionPool#DEFAULT_STATEMENT_CACHE_SIZE}.  The current pool, if any,
+     * is discarded; connections lent out by it are closed when they are returned.
+     *
+     * @param maxConnections - The maximal number of connections lent out at once.
+     * @param maxCachedStatements - The maximal number of idle prepared statements
+     *     cached per connection.  Zero disables statement caching.
+     */
+    public static synchronized void setPoolProperties(int maxConnections, int maxCachedStatements) {
+        MyJDBCConnection.poolSize = maxConnections;
+        MyJDBCConnection.statementCacheSize = maxCachedStatements;
+        if (pool != null) {
+            pool.invalidateAll();
+            pool = null;
+        }
+    }
+
     /**
      * Associate a database connection with the current thread.  Future calls
      * to getConnection() will return this connection, until it is requested
@@ -94,29 +138,20 @@ public final class MyJDBCConnection {
      * @throws AdeException if there was a problem initializing the connection.
      */
     public static void initConnection(boolean create) throws AdeException {
-        if (connectionUrl == null) {
-            final IAdeConfigProperties properties = Ade.getAde().getConfigProperties();
-            MyJDBCConnection.connectionUrl = properties.database().getDatabaseUrl();
-            MyJDBCConnection.dbUser = properties.database().getDatabaseUser();
-            MyJDBCConnection.dbPassword = properties.database().getDatabasePassword();
-        }
-
-        String url = connectionUrl;
-        if (create && connectionUrl !=null && connectionUrl.contains("jdbc:derby")) {
-            url += ";create=true";
-        }
+        final ConnectionPool connectionPool = getPool();
 
         logger.info("Connecting to database " + connectionUrl);
 
+        /* Return the current connection first, so that a thread re-initializing
+         * its connection never holds two connections of a bounded pool. */
+        setConnection(null);
+        reclaimEndedThreadConnections();
         try {
+            final Connection conn = connectionPool.getConnection(create);
             synchronized (MyJDBCConnection.class) {
-                if (dbUser == null || dbUser.isEmpty()) {
-                    setConnection(DriverManager.getConnection(url));
-                } else {
-                    setConnection(DriverManager.getConnection(url, dbUser, dbPassword));
-                }
-
+                projectCon.set(conn);
                 threadConnectionTime.set(renewConnectionTime);
+                threadConnections.put(conn, new WeakReference<Thread>(Thread.currentThread()));
             }
             logger.info("Thread " + Thread.currentThread().getName()
                     + " using Connection object " + projectCon.get());
@@ -125,6 +160,97 @@ public final class MyJDBCConnection {
         }
     }
 
+    /**
+     * Borrows a connection from the pool, independent of the connection associated
+     * with the current thread.  The caller is responsible for closing it, which
+     * returns it to the pool.
+     *
+     * @return a pooled connection.
+     *
+     * @throws AdeException if a Connection could not be obtained.
+     */
+    public static Connection borrowConnection() throws AdeException {
+        reclaimEndedThreadConnections();
+        try {
+            return getPool().getConnection(false);
+        } catch (SQLException e) {
+            throw new AdeInternalException("Failed obtaining connection", e);
+        }
+    }
+
+    /**
+     * Returns a prepared statement for the given sql on the given connection.  If the
+     * connection is pooled, the statement comes from its statement cache.  The statement
+     * must be released with {@link #releaseStatement(Connection, String, PreparedStatement)}
+     * rather than closed.
+     */
+    public static PreparedStatement prepareStatement(Connection con, String sql) throws SQLException {
+        return ConnectionPool.prepareStatement(con, sql);
+    }
+
+    /**
+     * Releases a statement obtained by {@link #prepareStatement(Connection, String)},
+     * returning it to the statement cache if possible, or closing it otherwise.
+     */
+    public static void releaseStatement(Connection con, String sql, PreparedStatement ps) throws SQLException {
+        ConnectionPool.releaseStatement(con, sql, ps);
+    }
+
+    /**
+     * Returns the connections of threads that ended without closing them to the pool.
+     */
+    static void reclaimEndedThreadConnections() {
+        final List<Connection> ended = new ArrayList<Connection>();
+        synchronized (MyJDBCConnection.class) {
+            final Iterator<Map.Entry<Connection, WeakReference<Thread>>> it = threadConnections.entrySet().iterator();
+            while (it.hasNext()) {
+                final Map.Entry<Connection, WeakReference<Thread>> entry = it.next();
+                final Thread thread = entry.getValue().get();
+                if (thread == null || !thread.isAlive()) {
+                    ended.add(entry.getKey());
+                    it.remove();
+                }
+            }
+        }
+        for (Connection conn : ended) {
+            logger.warn("Returning to the pool the connection of an ended thread: " + conn);
+            try {
+                conn.close();
+            } catch (SQLException e) {
+                logger.warn("Failed closing the connection of an ended thread", e);
+            }
+        }
+    }
+
+    /**
+     * @return the connection pool, or null if no connection was requested yet.
+     *     Useful for reporting the pool and statement cache statistics.
+     */
+    public static synchronized ConnectionPool getConnectionPool() {
+        return pool;
+    }
+
+    private static synchronized ConnectionPool getPool() throws AdeException {
+        if (connectionUrl == null) {
+            final IAdeConfigProperties properties = Ade.getAde().getConfigProperties();
+            MyJDBCConnection.connectionUrl = properties.database().getDatabaseUrl();
+            MyJDBCConnection.dbUser = properties.database().getDatabaseUser();
+            MyJDBCConnection.dbPassword = properties.database().getDatabasePassword();
+            MyJDBCConnection.poolSize = properties.database().getConnectionPoolSize();
+            MyJDBCConnection.statementCacheSize = properties.database().getStatementCacheSize();
+        }
+        if (connectionUrl == null) {
+            throw new AdeInternalException("No database url configured");
+        }
+        if (pool == null || !pool.isFor(connectionUrl, dbUser)) {
+            if (pool != null) {
+                pool.invalidateAll();
+            }
+            pool = new ConnectionPool(connectionUrl, dbUser, dbPassword, poolSize, statementCacheSize);
+        }
+        return pool;
+    }
+
     /**
      * Returns the connection associated with this thread.  If no connection is
      * associated with the current thread, a new connection is obtained and 
@@ -146,6 +272,7 @@ public final class MyJDBCConnection {
     /**
      * Close the current thread's Connection object and set it to null
      * so that a new instance will be created on the next request.
+     * A pooled connection is returned to the pool.
      *
      * @throws AdeInternalException if the Connection could not be closed.
      */
@@ -155,6 +282,7 @@ public final class MyJDBCConnection {
         }
 
         try {
+            forget(projectCon.get());
             projectCon.get().close();
             projectCon.set(null);
         } catch (SQLException e) {
@@ -174,11 +302,15 @@ public final class MyJDBCConnection {
          * and constructing another).
          */
         renewConnectionTime = new Date().getTime();
+        if (pool != null) {
+            pool.invalidateAll();
+        }
     }
 
     /**
      * Set the current thread's Connection object to the supplied object.
-     * Any current Connection object is closed first.
+     * Any current Connection object is closed first (a pooled connection
+     * is returned to the pool).
      * 
      * @param conn - the Connection to set
      * 
@@ -190,6 +322,7 @@ public final class MyJDBCConnection {
         if (current != null) {
             try {
                 logger.info("Closing Connection object " + current);
+                forget(current);
                 current.close();
             } catch (SQLException e) {
                 logger.error("Failed to close current Connection", e);
@@ -199,6 +332,10 @@ public final class MyJDBCConnection {
         projectCon.set(conn);
     }
 
+    private static synchronized void forget(Connection conn) {
+        threadConnections.remove(conn);
+    }
+
     private static synchronized boolean needsRenewed() {
         /* If the timestamp of the current thread's connection is before the
          * most recent renew connection timestamp, indicated that it needs
@@ -0,0 +1,168 @@
+/*
+ 
+    Copyright IBM Corp. 2009, 2016
+    This file is part of Anomaly Detection Engine for Linux Logs (ADE).
+
+    ADE is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    ADE is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with ADE.  If not, see <http://www.gnu.org/licenses/>.
+ 
+*/
+package org.openmainframe.ade.impl.dbUtils;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A physical connection owned by a {@link ConnectionPool}, together with its
+ * prepared statement cache.
+ *
+ * Each time the connection is borrowed, a new logical handle is created. The handle
+ * implements {@link Connection} by delegating to the physical connection, except that
+ * close() returns the physical connection to the pool. Once closed, the handle reports
+ * isClosed() and refuses any further calls, so a stale reference can not interfere
+ * with the next borrower.
+ */
+final class PooledConnection {
+
+    private static final Logger logger = LoggerFactory.getLogger(PooledConnection.class);
+
+    private final ConnectionPool m_pool;
+    private final Connection m_physical;
+    private final PreparedStatementCache m_statementCache;
+    private final long m_generation;
+    private final int m_defaultIsolation;
+    private Handle m_handle;
+
+    PooledConnection(ConnectionPool pool, Connection physical, PreparedStatementCache statementCache,
+            long generation) throws SQLException {
+        m_pool = pool;
+        m_physical = physical;
+        m_statementCache = statementCache;
+        m_generation = generation;
+        m_defaultIsolation = physical.getTransactionIsolation();
+    }
+
+    /**
+     * Returns the pooled connection behind the given logical handle, or null if
+     * the connection was not obtained from a {@link ConnectionPool}.
+     */
+    static PooledConnection fromHandle(Connection con) {
+        if (con == null || !Proxy.isProxyClass(con.getClass())) {
+            return null;
+        }
+        final InvocationHandler handler = Proxy.getInvocationHandler(con);
+        if (handler instanceof Handle) {
+            return ((Handle) handler).owner();
+        }
+        return null;
+    }
+
+    /** Creates a new logical handle for a borrower of this connection. */
+    Connection newHandle() {
+        m_handle = new Handle();
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[] { Connection.class }, m_handle);
+    }
+
+    /** @return true if the given handle is the one currently lent out */
+    boolean isCurrentHandle(Connection con) {
+        return con != null && Proxy.isProxyClass(con.getClass()) && Proxy.getInvocationHandler(con) == m_handle
+                && !m_handle.m_closed;
+    }
+
+    Connection physical() {
+        return m_physical;
+    }
+
+    PreparedStatementCache statementCache() {
+        return m_statementCache;
+    }
+
+    long generation() {
+        return m_generation;
+    }
+
+    /**
+     * Undo any session state changes made by the last borrower, so that the next
+     * borrower sees the connection as if it was freshly opened.
+     */
+    void reset() throws SQLException {
+        if (!m_physical.getAutoCommit()) {
+            m_physical.rollback();
+            m_physical.setAutoCommit(true);
+        }
+        if (m_physical.getTransactionIsolation() != m_defaultIsolation) {
+            m_physical.setTransactionIsolation(m_defaultIsolation);
+        }
+    }
+
+    /** Closes the cached statements and the physical connection. */
+    void destroy() {
+        m_statementCache.clear();
+        try {
+            if (!m_physical.isClosed()) {
+                m_physical.close();
+            }
+        } catch (SQLException e) {
+            logger.warn("Failed closing pooled connection " + m_physical, e);
+        }
+    }
+
+    /** The invocation handler behind the logical connection handed to borrowers. */
+    private final class Handle implements InvocationHandler {
+        private volatile boolean m_closed = false;
+
+        PooledConnection owner() {
+            return PooledConnection.this;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            final String name = method.getName();
+            if ("close".equals(name)) {
+                if (!m_closed) {
+                    m_closed = true;
+                    m_pool.release(PooledConnection.this);
+                }
+                return null;
+            }
+            if ("isClosed".equals(name)) {
+                return m_closed || m_physical.isClosed();
+            }
+            if ("equals".equals(name)) {
+                return proxy == args[0];
+            }
+            if ("hashCode".equals(name)) {
+                return System.identityHashCode(proxy);
+            }
+            if ("toString".equals(name)) {
+                return "Pooled[" + m_physical + "]";
+            }
+            if (m_closed) {
+                throw new SQLException("Connection has already been returned to the pool");
+            }
+            try {
+                return method.invoke(m_physical, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
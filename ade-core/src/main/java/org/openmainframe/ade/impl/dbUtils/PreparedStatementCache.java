@@ -0,0 +1,142 @@
+/*
+ 
+    Copyright IBM Corp. 2009, 2016
+    This file is part of Anomaly Detection Engine for Linux Logs (ADE).
+
+    ADE is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    ADE is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with ADE.  If not, see <http://www.gnu.org/licenses/>.
+ 
+*/
+package org.openmainframe.ade.impl.dbUtils;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A per-connection LRU cache of idle prepared statements, keyed by their sql.
+ *
+ * Statements are checked out of the cache while in use and checked back in when
+ * the caller is done with them, so a statement is never handed to two users at once
+ * (e.g. when the same query is executed while iterating its own result set).
+ *
+ * A cache belongs to a single physical connection, which in turn is used by a single
+ * thread at a time, so the cache itself is not synchronized. Only the hit/miss counters,
+ * which are shared with the owning {@link ConnectionPool}, are thread safe.
+ */
+final class PreparedStatementCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(PreparedStatementCache.class);
+
+    private final Connection m_connection;
+    private final int m_capacity;
+    private final LinkedHashMap<String, PreparedStatement> m_idle;
+
+    private final AtomicLong m_hits;
+    private final AtomicLong m_misses;
+    private final AtomicLong m_evictions;
+
+    /**
+     * @param connection the physical connection the statements are prepared on.
+     * @param capacity the maximal number of idle statements kept. Zero disables caching.
+     * @param hits counter incremented when a statement is reused.
+     * @param misses counter incremented when a statement has to be prepared.
+     * @param evictions counter incremented when an idle statement is closed to make room.
+     */
+    PreparedStatementCache(Connection connection, int capacity, AtomicLong hits, AtomicLong misses,
+            AtomicLong evictions) {
+        m_connection = connection;
+        m_capacity = capacity;
+        m_hits = hits;
+        m_misses = misses;
+        m_evictions = evictions;
+        m_idle = new LinkedHashMap<String, PreparedStatement>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+                if (size() <= m_capacity) {
+                    return false;
+                }
+                m_evictions.incrementAndGet();
+                quietClose(eldest.getValue());
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Returns an idle statement for the given sql, or prepares a new one.
+     * The statement must be returned with {@link #checkin(String, PreparedStatement)}
+     * or closed by the caller.
+     */
+    PreparedStatement checkout(String sql) throws SQLException {
+        final PreparedStatement ps = m_idle.remove(sql);
+        // callers that close the underlying statement after releasing its wrapper leave it closed in the cache
+        if (ps != null && !ps.isClosed()) {
+            m_hits.incrementAndGet();
+            return ps;
+        }
+        m_misses.incrementAndGet();
+        return m_connection.prepareStatement(sql);
+    }
+
+    /**
+     * Returns a statement previously obtained by {@link #checkout(String)} to the cache.
+     * If an idle statement for the same sql is already cached, the returned one is closed.
+     */
+    void checkin(String sql, PreparedStatement ps) throws SQLException {
+        if (m_capacity <= 0 || ps.isClosed() || m_idle.containsKey(sql)) {
+            ps.close();
+            return;
+        }
+        final ResultSet rs = ps.getResultSet();
+        if (rs != null) {
+            rs.close();
+        }
+        ps.clearParameters();
+        ps.clearBatch();
+        m_idle.put(sql, ps);
+    }
+
+    /** @return the number of idle statements currently cached */
+    int size() {
+        return m_idle.size();
+    }
+
+    /** Closes all idle statements. */
+    void clear() {
+        final List<PreparedStatement> idle = new ArrayList<PreparedStatement>(m_idle.values());
+        m_idle.clear();
+        for (PreparedStatement ps : idle) {
+            quietClose(ps);
+        }
+    }
+
+    private static void quietClose(PreparedStatement ps) {
+        try {
+            ps.close();
+        } catch (SQLException e) {
+            logger.warn("Failed closing cached prepared statement", e);
+        }
+    }
+}
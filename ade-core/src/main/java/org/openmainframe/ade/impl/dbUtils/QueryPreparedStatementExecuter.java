@@ -52,12 +52,21 @@ public abstract class QueryPreparedStatementExecuter extends QueryStatementExecu
 
     @Override
     protected final ResultSet obtainResultSet(Connection con) throws SQLException, AdeException {
-        m_ps = con.prepareStatement(m_queryString);
+        m_ps = MyJDBCConnection.prepareStatement(con, m_queryString);
         m_stmt = m_ps;
         setParameters(m_ps);
         return m_ps.executeQuery();
     }
 
+    /**
+     * Returns the statement to the connection's statement cache instead of closing it.
+     */
+    @Override
+    protected final void releaseStatement() throws SQLException {
+        MyJDBCConnection.releaseStatement(m_con, m_queryString, m_ps);
+        m_ps = null;
+    }
+
     protected abstract void setParameters(PreparedStatement stmt) throws SQLException, AdeException;
 
 }
@@ -84,7 +84,7 @@ public abstract class QueryStatementExecuter {
             }
             m_rs.close();
             m_rs = null;
-            m_stmt.close();
+            releaseStatement();
             m_stmt = null;
         } catch (AdeException e) {
             emergencyClean();
@@ -109,6 +109,14 @@ public abstract class QueryStatementExecuter {
         return m_stmt.executeQuery(m_queryString);
     }
 
+    /**
+     * Called after the result set was fully handled, to dispose of the statement.
+     * The default implementation closes it.
+     */
+    protected void releaseStatement() throws SQLException {
+        m_stmt.close();
+    }
+
     protected final int getRowNum() {
         return m_rowNum;
     }
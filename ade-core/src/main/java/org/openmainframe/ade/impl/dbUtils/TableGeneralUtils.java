@@ -169,6 +169,28 @@ public final class TableGeneralUtils {
 
     }
 
+    /**
+     * Updates the statistics the optimizer keeps of a table and its indices, e.g. after a
+     * large part of its rows were deleted.
+     */
+    public static void updateStatistics(SQL table) throws AdeException {
+        final String sql;
+        switch (Ade.getAde().getConfigProperties().database().getDriverType()) {
+            case DERBY:
+                final String schema = Ade.getAde().getConfigProperties().database().getDatabaseSchema();
+                sql = "call SYSCS_UTIL.SYSCS_UPDATE_STATISTICS(" + (schema == null ? "current schema" : "'" + schema + "'")
+                        + ", '" + table.name() + "', null)";
+                break;
+            case DB2:
+                sql = "call SYSPROC.ADMIN_CMD('runstats on table " + table + " and indexes all')";
+                break;
+            default:
+                sql = "analyze table " + table;
+                break;
+        }
+        executeDml(sql);
+    }
+
     public static void setPreparedStatementTimestamp(PreparedStatement statement, int pos,
             Date date) throws SQLException {
         if (date == null) {
@@ -19,6 +19,9 @@
 */
 package org.openmainframe.ade.impl.flow.hub;
 
+import org.openmainframe.ade.core.statistics.Counter;
+import org.openmainframe.ade.core.statistics.LatencyHistogram;
+import org.openmainframe.ade.core.statistics.MetricsRegistry;
 import org.openmainframe.ade.flow.IFrameableFramingBlock;
 import org.openmainframe.ade.flow.IFrameableTarget;
 import org.openmainframe.ade.flow.IStreamSource;
@@ -40,4 +43,23 @@ public abstract class HubFrameableFramingBlock<T, U, V, W>
         extends HubFramingBlock<T, V, W> implements
         IFrameableFramingBlock<T, U, V, W> {
 
+    /** Prefix of the names of the metrics of flow blocks, followed by the block class name */
+    public static final String METRICS_PREFIX = "flow.";
+
+    /**
+     * Number of objects received by all blocks of this class, in the {@link MetricsRegistry}.
+     * Subclasses count their incoming objects.
+     */
+    protected final Counter m_incomingObjectsCounter = MetricsRegistry.counter(metricsName("incomingObjects"));
+
+    /** Number of separators received by all blocks of this class, counted by subclasses */
+    protected final Counter m_incomingSeparatorsCounter = MetricsRegistry.counter(metricsName("incomingSeparators"));
+
+    /** Time it takes blocks of this class to build an outgoing frame, recorded by subclasses */
+    protected final LatencyHistogram m_frameBuildTime = MetricsRegistry.histogram(metricsName("frameBuildTime"));
+
+    private String metricsName(String metric) {
+        final String className = getClass().getSimpleName();
+        return METRICS_PREFIX + (className.isEmpty() ? getClass().getName() : className) + "." + metric;
+    }
 }
@@ -23,6 +23,7 @@ import java.util.SortedMap;
 import java.util.TreeMap;
 
 import org.openmainframe.ade.AdeInternal;
+import org.openmainframe.ade.core.statistics.MetricsRegistry;
 import org.openmainframe.ade.data.IIntervalClassification;
 import org.openmainframe.ade.data.IMessageInstance;
 import org.openmainframe.ade.data.IMessageSummary;
@@ -110,6 +111,7 @@ public class ConsecutiveIntervalBuilder extends IntervalBuilder {
     public final void incomingObject(IMessageInstance msg) throws AdeException {
         assertOpen();
         assertInInterval();
+        m_incomingObjectsCounter.increment();
 
         final long msgTime = msg.getDateTime().getTime();
         if (m_firstMsgTime == null) {
@@ -134,6 +136,7 @@ public class ConsecutiveIntervalBuilder extends IntervalBuilder {
     @Override
     public final void incomingSeparator(Separator sep) throws AdeException {
         assertOpen();
+        m_incomingSeparatorsCounter.increment();
 
         switch (sep.getType()) {
             case INTERVAL:
@@ -174,6 +177,7 @@ public class ConsecutiveIntervalBuilder extends IntervalBuilder {
 
     private void wrapInterval(boolean isLastInterval) throws AdeException {
         assertInInterval();
+        final long buildStart = MetricsRegistry.startTimer();
 
         double coverageFactor = 1d;
 
@@ -203,6 +207,7 @@ public class ConsecutiveIntervalBuilder extends IntervalBuilder {
             final IMessageSummary msgSummary = msgSummaryBuilder.getMessageSummary();
             interval.addMessageSummary(msgSummary);
         }
+        m_frameBuildTime.recordSince(buildStart);
         sendObject(interval);
 
         m_messageSummaryBuildersMap.clear();
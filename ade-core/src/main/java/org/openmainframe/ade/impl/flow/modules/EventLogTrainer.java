@@ -20,10 +20,12 @@
 package org.openmainframe.ade.impl.flow.modules;
 
 import java.io.File;
+import java.util.Collection;
 
 import org.openmainframe.ade.Ade;
 import org.openmainframe.ade.core.statistics.TimingStatistics;
 import org.openmainframe.ade.data.IInterval;
+import org.openmainframe.ade.data.IPeriod;
 import org.openmainframe.ade.exceptions.AdeException;
 import org.openmainframe.ade.exceptions.AdeFlowException;
 import org.openmainframe.ade.flow.IFrameableTarget;
@@ -92,6 +94,17 @@ public class EventLogTrainer implements IFrameableTarget<IInterval, TimeSeparato
         return m_mainScorer.getRequiredIntervalFramer();
     }
 
+    /**
+     * Performs the next iteration from the training statistics of the periods, if possible.
+     * 
+     * @param periods the training periods
+     * @return true if the iteration was performed, false if the intervals of the periods must be sent
+     * @see IMainScorer#trainIterationFromStatistics(Collection)
+     */
+    public final boolean trainIterationFromStatistics(Collection<IPeriod> periods) throws AdeException {
+        return m_mainScorer.trainIterationFromStatistics(periods);
+    }
+
     /**
      * Get the {@link IMainScorer} which is used for training.
      * 
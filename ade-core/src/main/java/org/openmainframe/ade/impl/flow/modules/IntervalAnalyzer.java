@@ -65,7 +65,12 @@ public class IntervalAnalyzer extends HubFrameableBlock<IInterval, TimeSeparator
             AdeFlowException {
         final IMainScorer ms = getModel();
         if (ms != null) {
-            final IAnalyzedInterval analyzedInterval = ms.analyze(interval);
+            final IAnalyzedInterval analyzedInterval;
+            // The scorers keep state between intervals, and the cached model of an analysis group may be
+            // shared by analyses of its sources running concurrently in the same process.
+            synchronized (ms) {
+                analyzedInterval = ms.analyze(interval);
+            }
             sendObject(analyzedInterval);
         }
     }
@@ -85,7 +90,9 @@ public class IntervalAnalyzer extends HubFrameableBlock<IInterval, TimeSeparator
             AdeFlowException {
         final IMainScorer ms = getModel();
         if (ms != null) {
-            ms.incomingSeparator(sep);
+            synchronized (ms) {
+                ms.incomingSeparator(sep);
+            }
         }
 
     }
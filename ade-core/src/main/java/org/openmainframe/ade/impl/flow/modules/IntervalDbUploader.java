@@ -23,6 +23,9 @@ import java.sql.PreparedStatement;
 import java.sql.SQLException;
 
 import org.openmainframe.ade.AdeInternal;
+import org.openmainframe.ade.core.statistics.Counter;
+import org.openmainframe.ade.core.statistics.LatencyHistogram;
+import org.openmainframe.ade.core.statistics.MetricsRegistry;
 import org.openmainframe.ade.data.IInterval;
 import org.openmainframe.ade.data.IMessageSummary;
 import org.openmainframe.ade.data.ISource;
@@ -34,6 +37,7 @@ import org.openmainframe.ade.impl.data.PeriodSummary;
 import org.openmainframe.ade.impl.dataStore.DataStorePeriodSummaries;
 import org.openmainframe.ade.impl.dataStore.DatastorePeriodAndSerialNumFinder;
 import org.openmainframe.ade.impl.dataStore.SQL;
+import org.openmainframe.ade.impl.dataStore.TextClusterTimeStampWriter;
 import org.openmainframe.ade.impl.dbUtils.DmlPreparedStatementChunkExecuter;
 import org.openmainframe.ade.impl.dbUtils.DmlPreparedStatementExecuter;
 import org.openmainframe.ade.impl.dbUtils.TableGeneralUtils;
@@ -48,6 +52,10 @@ import org.openmainframe.ade.summary.SummarizationProperties;
  */
 public class IntervalDbUploader implements IStreamTarget<IInterval> {
 
+    private static final LatencyHistogram s_uploadTime = MetricsRegistry.histogram("db.intervalUpload");
+    private static final Counter s_intervalsUploaded = MetricsRegistry.counter("db.intervalsUploaded");
+    private static final Counter s_messageSummariesUploaded = MetricsRegistry.counter("db.messageSummariesUploaded");
+
     private PeriodSummary m_curPeriodSummary;
     private FramingFlowType m_framingFlowType;
     private DatastorePeriodAndSerialNumFinder m_psFinder;
@@ -73,6 +81,9 @@ public class IntervalDbUploader implements IStreamTarget<IInterval> {
 
     @Override
     public final void incomingObject(IInterval interval) throws AdeException {
+        final long start = MetricsRegistry.startTimer();
+        // the clusters of the messages of the interval should not be behind it in the database
+        TextClusterTimeStampWriter.getInstance().flush();
         m_psFinder.setIntervalStartTime(interval.getIntervalStartTime());
 
         final PeriodImpl period = m_psFinder.getLastPeriod();
@@ -93,6 +104,10 @@ public class IntervalDbUploader implements IStreamTarget<IInterval> {
 
         // This will update the MESSAGE_SUMMARIES table.
         storeMessageSummaries(num, interval);
+
+        s_uploadTime.recordSince(start);
+        s_intervalsUploaded.increment();
+        s_messageSummariesUploaded.add(interval.getNumUniqueMessages());
     }
 
     private void storeIntervalRecord(int serialNum, IInterval interval) throws AdeException {
@@ -134,6 +149,9 @@ public class IntervalDbUploader implements IStreamTarget<IInterval> {
         }
 
         m_curPeriodSummary = m_dsPeriodSummaries.getOrAddPeriodSummary(period, m_framingFlowType);
+        // the training statistics of the period summary will not reflect the uploaded intervals
+        AdeInternal.getAdeImpl().getDataStore().trainingStatistics().deleteStatistics(
+                m_curPeriodSummary.getInternalId());
     }
 
     @Override
@@ -22,6 +22,7 @@ package org.openmainframe.ade.impl.flow.modules;
 import java.util.Vector;
 
 import org.openmainframe.ade.Ade;
+import org.openmainframe.ade.core.statistics.MetricsRegistry;
 import org.openmainframe.ade.data.IInterval;
 import org.openmainframe.ade.exceptions.AdeException;
 import org.openmainframe.ade.exceptions.AdeFlowException;
@@ -70,6 +71,7 @@ public class IntervalShiftAccumulator extends HubFrameableFramingBlock<IInterval
 
     @Override
     public final void incomingObject(IInterval interval) throws AdeException {
+        m_incomingObjectsCounter.increment();
         m_intervals.add(interval);
         if (m_intervals.size() == m_shiftDevider
                 || (!m_isSlidingWindow && (interval.getSerialNum() + 1) % m_shiftDevider == 0)) {
@@ -78,7 +80,7 @@ public class IntervalShiftAccumulator extends HubFrameableFramingBlock<IInterval
     }
 
     protected final void createAndSendInterval() throws AdeException {
-
+        final long buildStart = MetricsRegistry.startTimer();
         final IInterval top = m_intervals.firstElement();
         m_intervals.remove(0);
         for (IInterval i : m_intervals) {
@@ -90,6 +92,7 @@ public class IntervalShiftAccumulator extends HubFrameableFramingBlock<IInterval
             top.alignIntervalTimes();
             m_intervals.clear();
         }
+        m_frameBuildTime.recordSince(buildStart);
         sendObject(top);
     }
 
@@ -131,6 +134,7 @@ public class IntervalShiftAccumulator extends HubFrameableFramingBlock<IInterval
 
     @Override
     public final void incomingSeparator(TimeSeparator sep) throws AdeException {
+        m_incomingSeparatorsCounter.increment();
 
         while (!m_intervals.isEmpty()) {
             createAndSendInterval();
@@ -20,10 +20,12 @@
 package org.openmainframe.ade.impl.resultBrowser;
 
 import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Date;
 import java.util.List;
 
 import org.openmainframe.ade.data.IAnalyzedInterval;
@@ -31,7 +33,7 @@ import org.openmainframe.ade.data.IBasicInterval;
 import org.openmainframe.ade.exceptions.AdeException;
 import org.openmainframe.ade.impl.actions.AnalyzedIntervalImpl;
 import org.openmainframe.ade.impl.dataStore.SQL;
-import org.openmainframe.ade.impl.dbUtils.QueryStatementExecuter;
+import org.openmainframe.ade.impl.dbUtils.QueryPreparedStatementExecuter;
 import org.openmainframe.ade.impl.flow.factory.jaxb.FramingFlowType;
 import org.openmainframe.ade.utils.patches.Version;
 
@@ -48,24 +50,41 @@ public final class AnalyzedIntervalLoader {
         return bp.m_result;
     }
 
-    private static class ByPeriod extends QueryStatementExecuter {
+    /**
+     * Loads the analysis results of a source for the intervals starting in [start, end) with
+     * a score of at least minScore. The periods of the source overlapping the range are found
+     * first, through the index on the source and start time of the periods, and the results of
+     * each are then read with the same prepared statement, through the index on the period,
+     * start time and score of the results. Unlike a join of the two tables, whose plan is left
+     * to the optimizer, this never scans the results of other sources.
+     * @return the analysis results ordered by start time
+     */
+    public static List<IAnalyzedInterval> loadAnalyzedIntervalsByRange(int sourceInternalId, Date start, Date end,
+            double minScore, FramingFlowType framingFlowType, Connection con) throws AdeException {
+        final ByPeriodAndRange bpr = new ByPeriodAndRange(start, end, minScore, framingFlowType, con);
+        for (int periodInternalId : PeriodIdFinder.getPeriodInternalIdsInRange(sourceInternalId, start, end, framingFlowType, con)) {
+            bpr.m_periodInternalId = periodInternalId;
+            bpr.executeQuery();
+        }
+        return bpr.m_result;
+    }
 
-        private FramingFlowType m_framingFlowType;
+    private abstract static class Loader extends QueryPreparedStatementExecuter {
 
-        private ArrayList<IAnalyzedInterval> m_result = new ArrayList<IAnalyzedInterval>();
+        protected static final String COLUMNS = "AR.START_TIME, AR.INTERVAL_SCORE, AR.INTERVAL_SERIAL_NUM, "
+                + "AR.NUM_UNIQUE_MESSAGE_IDS, AR.ADE_VERSION, AR.MODEL_INTERNAL_ID";
 
-        public ByPeriod(int periodInternalId, FramingFlowType framingFlowType, Connection con) {
-            super("select START_TIME, INTERVAL_SCORE, INTERVAL_SERIAL_NUM, NUM_UNIQUE_MESSAGE_IDS, "
-                    + "ADE_VERSION, MODEL_INTERNAL_ID from " + SQL.ANALYSIS_RESULTS + " inner join "
-                    + SQL.PERIOD_SUMMARIES + " on " + SQL.ANALYSIS_RESULTS + ".PERIOD_INTERNAL_ID="
-                    + SQL.PERIOD_SUMMARIES + ".PERIOD_INTERNAL_ID where " + SQL.ANALYSIS_RESULTS
-                    + ".PERIOD_INTERNAL_ID=" + periodInternalId + " and " + SQL.PERIOD_SUMMARIES
-                    + ".SUMMARY_TYPE_INTERNAL_ID=" + framingFlowType.getDatabaseId(), con);
+        protected final FramingFlowType m_framingFlowType;
+
+        protected final ArrayList<IAnalyzedInterval> m_result = new ArrayList<IAnalyzedInterval>();
+
+        Loader(String query, FramingFlowType framingFlowType, Connection con) {
+            super(query, con);
             m_framingFlowType = framingFlowType;
         }
 
         @Override
-        protected void handleResultSet(ResultSet rs) throws SQLException,
+        protected final void handleResultSet(ResultSet rs) throws SQLException,
                 AdeException {
             int pos = 1;
             final long startDate = rs.getLong(pos++);
@@ -81,4 +100,58 @@ public final class AnalyzedIntervalLoader {
         }
 
     }
+
+    private static class ByPeriod extends Loader {
+
+        private final int m_periodInternalId;
+
+        public ByPeriod(int periodInternalId, FramingFlowType framingFlowType, Connection con) {
+            super("select " + COLUMNS + " from " + SQL.ANALYSIS_RESULTS + " as AR inner join "
+                    + SQL.PERIOD_SUMMARIES + " as PS on AR.PERIOD_INTERNAL_ID=PS.PERIOD_INTERNAL_ID"
+                    + " where AR.PERIOD_INTERNAL_ID=? and PS.SUMMARY_TYPE_INTERNAL_ID=?", framingFlowType, con);
+            m_periodInternalId = periodInternalId;
+        }
+
+        @Override
+        protected void setParameters(PreparedStatement stmt) throws SQLException,
+                AdeException {
+            int pos = 1;
+            stmt.setInt(pos++, m_periodInternalId);
+            stmt.setInt(pos++, m_framingFlowType.getDatabaseId());
+        }
+
+    }
+
+    /**
+     * Appends the results of one period to those already loaded, so that it can be executed
+     * for consecutive periods.
+     */
+    private static class ByPeriodAndRange extends Loader {
+
+        private int m_periodInternalId;
+        private final Date m_start;
+        private final Date m_end;
+        private final double m_minScore;
+
+        public ByPeriodAndRange(Date start, Date end, double minScore, FramingFlowType framingFlowType, Connection con) {
+            super("select " + COLUMNS + " from " + SQL.ANALYSIS_RESULTS + " as AR"
+                    + " where AR.PERIOD_INTERNAL_ID=? and AR.START_TIME>=? and AR.START_TIME<? and AR.INTERVAL_SCORE>=?"
+                    + " order by AR.START_TIME", framingFlowType, con);
+            m_start = start;
+            m_end = end;
+            // not all databases accept infinite parameters
+            m_minScore = Math.max(minScore, -Double.MAX_VALUE);
+        }
+
+        @Override
+        protected void setParameters(PreparedStatement stmt) throws SQLException,
+                AdeException {
+            int pos = 1;
+            stmt.setInt(pos++, m_periodInternalId);
+            stmt.setLong(pos++, m_start.getTime());
+            stmt.setLong(pos++, m_end.getTime());
+            stmt.setDouble(pos++, m_minScore);
+        }
+
+    }
 }
@@ -23,7 +23,9 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
 
 import org.openmainframe.ade.exceptions.AdeException;
 import org.openmainframe.ade.exceptions.AdeInternalException;
@@ -45,6 +47,55 @@ public final class PeriodIdFinder {
         return f.m_periodInternalId;
     }
 
+    /**
+     * @return the internal ids of the periods of the source that overlap [start, end) and have
+     *     a summary of the given framing flow type, ordered by start time
+     */
+    static List<Integer> getPeriodInternalIdsInRange(int sourceInternalId, Date start, Date end, FramingFlowType framingFlowType,
+            Connection con) throws AdeException {
+        final FindInRange f = new FindInRange(sourceInternalId, start, end, framingFlowType, con);
+        f.executeQuery();
+        return f.m_periodInternalIds;
+    }
+
+    private static class FindInRange extends QueryPreparedStatementExecuter {
+
+        private final int m_sourceInternalId;
+        private final Date m_start;
+        private final Date m_end;
+        private final FramingFlowType m_framingFlowType;
+        private final List<Integer> m_periodInternalIds = new ArrayList<Integer>();
+
+        FindInRange(int sourceInternalId, Date start, Date end, FramingFlowType framingFlowType, Connection con) {
+            super("select P.PERIOD_INTERNAL_ID from " + SQL.PERIODS + " as P"
+                    + " where P.SOURCE_INTERNAL_ID=? and P.START_TIME<? and P.END_TIME>?"
+                    + " and exists (select 1 from " + SQL.PERIOD_SUMMARIES + " as PS"
+                    + " where PS.PERIOD_INTERNAL_ID=P.PERIOD_INTERNAL_ID and PS.SUMMARY_TYPE_INTERNAL_ID=?)"
+                    + " order by P.START_TIME", con);
+            m_sourceInternalId = sourceInternalId;
+            m_start = start;
+            m_end = end;
+            m_framingFlowType = framingFlowType;
+        }
+
+        @Override
+        protected void setParameters(PreparedStatement stmt) throws SQLException,
+                AdeException {
+            int pos = 1;
+            stmt.setInt(pos++, m_sourceInternalId);
+            TableGeneralUtils.setPreparedStatementTimestamp(stmt, pos++, m_end);
+            TableGeneralUtils.setPreparedStatementTimestamp(stmt, pos++, m_start);
+            stmt.setInt(pos++, m_framingFlowType.getDatabaseId());
+        }
+
+        @Override
+        protected void handleResultSet(ResultSet rs) throws SQLException,
+                AdeException {
+            m_periodInternalIds.add(rs.getInt(1));
+        }
+
+    }
+
     private static class FindByStart extends QueryPreparedStatementExecuter {
 
         private Date m_start;
@@ -20,6 +20,7 @@
 package org.openmainframe.ade.impl.resultBrowser;
 
 import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
@@ -29,10 +30,12 @@ import java.util.Set;
 import java.util.TreeSet;
 
 import org.openmainframe.ade.data.IAnalyzedInterval;
+import org.openmainframe.ade.dbUtils.PreparedStatementWrapper;
 import org.openmainframe.ade.exceptions.AdeException;
+import org.openmainframe.ade.exceptions.AdeUsageException;
 import org.openmainframe.ade.impl.dataStore.SQL;
+import org.openmainframe.ade.impl.dbUtils.QueryPreparedStatementExecuter;
 import org.openmainframe.ade.impl.dbUtils.QueryStatementExecuter;
-import org.openmainframe.ade.impl.dbUtils.SpecialSqlQueries;
 import org.openmainframe.ade.impl.flow.factory.jaxb.FramingFlowType;
 import org.openmainframe.ade.resultBrowser.RawSourceMetaData;
 import org.openmainframe.ade.resultBrowser.ResultBrowser;
@@ -54,11 +57,47 @@ public class ResultBrowserImpl extends ResultBrowser {
         return AnalyzedIntervalLoader.loadAnalyzedIntervalsByPeriod(periodInternalId, framingFlowType, m_connection);
     }
 
+    @Override
+    public final List<IAnalyzedInterval> getAnalyzedIntervals(int sourceInternalId, Date start, Date end, double minScore,
+            FramingFlowType framingFlowType) throws AdeException {
+        if (start.after(end)) {
+            throw new AdeUsageException("Range start " + start + " is after its end " + end);
+        }
+        return AnalyzedIntervalLoader.loadAnalyzedIntervalsByRange(sourceInternalId, start, end, minScore, framingFlowType, m_connection);
+    }
+
     @Override
     public final Date getLastPeriodForSource(int sourceInternalId) throws AdeException {
-        // only retrieve periods with analyzed intervals
-        final String sql = "select max(P.start_time) from " + SQL.PERIODS + " as P join " + SQL.ANALYSIS_RESULTS + " as AR on P.PERIOD_INTERNAL_ID=AR.PERIOD_INTERNAL_ID where P.SOURCE_INTERNAL_ID=" + sourceInternalId;
-        return SpecialSqlQueries.executeTimestampQuery(sql, m_connection, false);
+        final LastPeriodGetter lpg = new LastPeriodGetter(sourceInternalId, m_connection);
+        lpg.executeQuery();
+        return lpg.m_lastPeriodStart;
+    }
+
+    /**
+     * Only periods with analyzed intervals are considered. The periods of the source are
+     * found through the index on their source and start time, and each is checked for
+     * results through the primary key of the results rather than joined with all of them.
+     */
+    private static class LastPeriodGetter extends QueryPreparedStatementExecuter {
+        private final int m_sourceInternalId;
+        private Date m_lastPeriodStart = null;
+
+        private LastPeriodGetter(int sourceInternalId, Connection conn) {
+            super("select max(P.START_TIME) from " + SQL.PERIODS + " as P where P.SOURCE_INTERNAL_ID=?"
+                    + " and exists (select 1 from " + SQL.ANALYSIS_RESULTS + " as AR"
+                    + " where AR.PERIOD_INTERNAL_ID=P.PERIOD_INTERNAL_ID)", conn, 0, 1);
+            m_sourceInternalId = sourceInternalId;
+        }
+
+        @Override
+        protected void setParameters(PreparedStatement stmt) throws SQLException, AdeException {
+            stmt.setInt(1, m_sourceInternalId);
+        }
+
+        @Override
+        protected void handleResultSet(ResultSet rs) throws SQLException, AdeException {
+            m_lastPeriodStart = PreparedStatementWrapper.getResultSetTimestamp(rs, 1);
+        }
     }
 
     @Override
@@ -68,15 +107,18 @@ public class ResultBrowserImpl extends ResultBrowser {
         return asg.m_analyzedSources;
     }
 
+    /**
+     * Lists each source once, rather than once per analyzed interval, by checking for
+     * analyzed periods of every source.
+     */
     private static class AnalyzedSourcesGetter extends QueryStatementExecuter {
         private Set<String> m_analyzedSources = new TreeSet<String>();
 
         private AnalyzedSourcesGetter(Connection conn) {
-            super("select " + SQL.SOURCES + ".SOURCE_ID from " + SQL.ANALYSIS_RESULTS 
-                    + " join " + SQL.PERIODS + " on " + SQL.ANALYSIS_RESULTS 
-                    + ".PERIOD_INTERNAL_ID=" + SQL.PERIODS + ".PERIOD_INTERNAL_ID " 
-                    + " join " + SQL.SOURCES + " on " + SQL.PERIODS + ".SOURCE_INTERNAL_ID=" 
-                    + SQL.SOURCES + ".SOURCE_INTERNAL_ID", conn);
+            super("select S.SOURCE_ID from " + SQL.SOURCES + " as S where exists (select 1 from "
+                    + SQL.PERIODS + " as P where P.SOURCE_INTERNAL_ID=S.SOURCE_INTERNAL_ID"
+                    + " and exists (select 1 from " + SQL.ANALYSIS_RESULTS + " as AR"
+                    + " where AR.PERIOD_INTERNAL_ID=P.PERIOD_INTERNAL_ID))", conn);
         }
 
         @Override
@@ -96,16 +138,21 @@ public class ResultBrowserImpl extends ResultBrowser {
         return fetcher.getRawSourceMetaData();
     }
 
-    private class RawSourceMetaDataFetcher extends QueryStatementExecuter {
+    private class RawSourceMetaDataFetcher extends QueryPreparedStatementExecuter {
 
         private String m_source;
         private RawSourceMetaData m_res = null;
 
         public RawSourceMetaDataFetcher(String source) {
-            super("select SOURCE_INTERNAL_ID, ANALYSIS_GROUP from " + SQL.SOURCES + " where SOURCE_ID='" + source + "'", m_connection);
+            super("select SOURCE_INTERNAL_ID, ANALYSIS_GROUP from " + SQL.SOURCES + " where SOURCE_ID=?", m_connection);
             m_source = source;
         }
 
+        @Override
+        protected void setParameters(PreparedStatement stmt) throws SQLException, AdeException {
+            stmt.setString(1, m_source);
+        }
+
         @Override
         protected void handleResultSet(ResultSet rs) throws SQLException, AdeException {
             int i = 1;
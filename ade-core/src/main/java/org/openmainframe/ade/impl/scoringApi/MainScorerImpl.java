@@ -31,7 +31,9 @@ import java.io.PrintStream;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -43,10 +45,15 @@ import java.util.TreeSet;
 import java.util.Vector;
 
 import org.openmainframe.ade.Ade;
+import org.openmainframe.ade.AdeInternal;
+import org.openmainframe.ade.core.statistics.Counter;
+import org.openmainframe.ade.core.statistics.LatencyHistogram;
+import org.openmainframe.ade.core.statistics.MetricsRegistry;
 import org.openmainframe.ade.data.IAnalyzedInterval;
 import org.openmainframe.ade.data.IAnalyzedMessageSummary;
 import org.openmainframe.ade.data.IInterval;
 import org.openmainframe.ade.data.IMessageSummary;
+import org.openmainframe.ade.data.IPeriod;
 import org.openmainframe.ade.dataStore.IModelFileHandler;
 import org.openmainframe.ade.exceptions.AdeException;
 import org.openmainframe.ade.exceptions.AdeFlowException;
@@ -54,17 +61,23 @@ import org.openmainframe.ade.exceptions.AdeInternalException;
 import org.openmainframe.ade.exceptions.AdeUsageException;
 import org.openmainframe.ade.flow.IFrameableTarget;
 import org.openmainframe.ade.impl.actions.AnalyzedIntervalImpl;
+import org.openmainframe.ade.impl.data.PeriodSummary;
 import org.openmainframe.ade.impl.data.TimeSeparator;
+import org.openmainframe.ade.impl.dataStore.DataStoreSqlImpl;
+import org.openmainframe.ade.impl.dataStore.DataStoreTrainingStatistics;
 import org.openmainframe.ade.impl.flow.factory.FlowFactory.FlowTemplateFactory;
 import org.openmainframe.ade.impl.flow.factory.jaxb.FramingFlowType;
 import org.openmainframe.ade.impl.flow.factory.jaxb.LinkType;
 import org.openmainframe.ade.impl.flow.factory.jaxb.ScoringSchemaType;
+import org.openmainframe.ade.impl.flow.modules.IntervalDbDownloader;
 import org.openmainframe.ade.impl.flow.modules.IntervalShiftAccumulator;
 import org.openmainframe.ade.impl.models.ModelMetaDataImpl;
 import org.openmainframe.ade.models.IModelMetaData;
 import org.openmainframe.ade.scoringApi.AbstractScorer;
 import org.openmainframe.ade.scoringApi.AbstractTrainer;
 import org.openmainframe.ade.scoringApi.IScorer;
+import org.openmainframe.ade.scoringApi.IStatisticsTrainable;
+import org.openmainframe.ade.scoringApi.ITrainingStatistics;
 import org.openmainframe.ade.scoringApi.IntervalAnomalyScorer;
 import org.openmainframe.ade.scoringApi.IMainScorer;
 import org.openmainframe.ade.scoringApi.MessageScorer;
@@ -82,6 +95,15 @@ public class MainScorerImpl extends AbstractTrainer<IInterval> implements IMainS
 
     private static final Logger s_logger = LoggerFactory.getLogger(MainScorerImpl.class);
 
+    /** Prefix of the names of the latency histograms of the scorers, followed by the scorer id */
+    public static final String SCORER_METRICS_PREFIX = "scorer.";
+
+    private static final LatencyHistogram s_analyzeTime = MetricsRegistry.histogram("scorer.analyze");
+    private static final Counter s_intervalsAnalyzed = MetricsRegistry.counter("scorer.intervalsAnalyzed");
+    private static final Counter s_periodStatisticsRead = MetricsRegistry.counter("training.periodStatistics.read");
+    private static final Counter s_periodStatisticsCollected =
+            MetricsRegistry.counter("training.periodStatistics.collected");
+
     public static final double HUGELOGPROB = 1001;
 
     private TreeMap<String, IScorer<?, IAnalyzedInterval>> m_trainedScorersMap;
@@ -464,6 +486,20 @@ public class MainScorerImpl extends AbstractTrainer<IInterval> implements IMainS
             //this will flush and held intervals.
             m_target.endOfStream();
         }
+        final String firstFlow = m_currentIterationScorers.keySet().iterator().next();
+        final Map<String, IScorer<?, IAnalyzedInterval>> scorers = m_currentIterationScorers.get(firstFlow);
+        for (IScorer<?, IAnalyzedInterval> scorer : scorers.values()) {
+            s_logger.info("eof scorer " + scorer.getName());
+            scorer.endOfStream();
+        }
+        endIteration();
+    }
+
+    /**
+     * Moves the scorers of the current iteration that were trained to the trained scorers, and
+     * sets the scorers of the next iteration.
+     */
+    private void endIteration() throws AdeException {
         final String firstFlow = m_currentIterationScorers.keySet().iterator().next();
         final Map<String, IScorer<?, IAnalyzedInterval>> scorers = m_currentIterationScorers.get(firstFlow);
         final Iterator<Entry<String, IScorer<?, IAnalyzedInterval>>> it = scorers.entrySet().iterator();
@@ -471,8 +507,6 @@ public class MainScorerImpl extends AbstractTrainer<IInterval> implements IMainS
             final Entry<String, IScorer<?, IAnalyzedInterval>> scorerEntry = it.next();
             final IScorer<?, IAnalyzedInterval> scorer = scorerEntry.getValue();
             final String scorerId = scorerEntry.getKey();
-            s_logger.info("eof scorer " + scorer.getName());
-            scorer.endOfStream();
             if (!scorer.needsAnotherIteration()) {
                 it.remove();
                 m_currentIterationScorerIds.remove(scorerId);
@@ -487,6 +521,151 @@ public class MainScorerImpl extends AbstractTrainer<IInterval> implements IMainS
         reset();
     }
 
+    @Override
+    public final boolean trainIterationFromStatistics(Collection<IPeriod> periods) throws AdeException {
+        if (!needsAnotherIteration() || !Ade.getAde().getConfigProperties().getUsePeriodTrainingStatistics()) {
+            return false;
+        }
+        final String firstFlow = m_currentIterationScorers.keySet().iterator().next();
+        final Map<String, IScorer<?, IAnalyzedInterval>> scorers = m_currentIterationScorers.get(firstFlow);
+        final Map<String, String> keys = getStatisticsKeys(scorers);
+        if (keys == null) {
+            return false;
+        }
+        final DataStoreSqlImpl dataStore = AdeInternal.getAdeImpl().getDataStore();
+        final DataStoreTrainingStatistics dataStoreStatistics = dataStore.trainingStatistics();
+        if (!dataStoreStatistics.isAvailable()) {
+            return false;
+        }
+        s_logger.info("training " + scorers.keySet() + " from the training statistics of " + periods.size()
+                + " periods");
+
+        final Map<String, ITrainingStatistics> merged = new TreeMap<String, ITrainingStatistics>();
+        for (Entry<String, IScorer<?, IAnalyzedInterval>> scorerEntry : scorers.entrySet()) {
+            merged.put(scorerEntry.getKey(), ((IStatisticsTrainable) scorerEntry.getValue()).newTrainingStatistics());
+        }
+        final Map<Integer, Long> lastPeriodStartTimes = getLastPeriodStartTimes(periods);
+        int read = 0;
+        for (IPeriod period : periods) {
+            final PeriodSummary periodSummary = dataStore.periodSummaries().getPeriodSummary(period, m_framingFlow);
+            if (periodSummary == null) {
+                continue;
+            }
+            final Map<String, PeriodTrainingStatistics> stored = dataStoreStatistics.getStatistics(periodSummary);
+            Map<String, PeriodTrainingStatistics> periodStatistics = new TreeMap<String, PeriodTrainingStatistics>();
+            for (Entry<String, String> key : keys.entrySet()) {
+                final PeriodTrainingStatistics statistics = stored.get(key.getValue());
+                if (statistics == null) {
+                    periodStatistics = null;
+                    break;
+                }
+                periodStatistics.put(key.getKey(), statistics);
+            }
+            if (periodStatistics != null) {
+                ++read;
+                s_periodStatisticsRead.increment();
+            } else {
+                periodStatistics = collectPeriodStatistics(period, scorers);
+                s_periodStatisticsCollected.increment();
+                // the last period of a source may still be uploaded to
+                final boolean complete = period.getStartTime().getTime()
+                        < lastPeriodStartTimes.get(period.getSource().getSourceInternalId());
+                for (Entry<String, String> key : keys.entrySet()) {
+                    if (complete && !stored.containsKey(key.getValue())) {
+                        dataStoreStatistics.storeStatistics(periodSummary, key.getValue(),
+                                periodStatistics.get(key.getKey()));
+                    }
+                }
+            }
+            for (Entry<String, PeriodTrainingStatistics> statistics : periodStatistics.entrySet()) {
+                merged.get(statistics.getKey()).merge(statistics.getValue().getStatistics());
+            }
+            // the time span of the intervals is the same for all the scorers
+            final PeriodTrainingStatistics first = periodStatistics.values().iterator().next();
+            if (first.getStartTime() != null) {
+                ModelMetaDataImpl.addTimeSpan((ModelMetaDataImpl) m_modelMetaData,
+                        new Date(first.getStartTime()), new Date(first.getEndTime()));
+            }
+        }
+        s_logger.info("read the training statistics of " + read + " periods");
+
+        for (Entry<String, IScorer<?, IAnalyzedInterval>> scorerEntry : scorers.entrySet()) {
+            s_logger.info("training scorer " + scorerEntry.getValue().getName() + " from statistics");
+            ((IStatisticsTrainable) scorerEntry.getValue()).train(merged.get(scorerEntry.getKey()));
+        }
+        endIteration();
+        return true;
+    }
+
+    /**
+     * The statistics of a scorer are kept per period if they only depend on the intervals of the period.
+     * This is the case if none of the scorers they are accumulated from is analyzed before training
+     * the scorer.
+     * @return the keys of the training statistics of the given scorers, by scorer id, or null if
+     *     the statistics of some of them cannot be kept per period.
+     */
+    private Map<String, String> getStatisticsKeys(Map<String, IScorer<?, IAnalyzedInterval>> scorers) {
+        final Set<String> analyzedScorerNames = new TreeSet<String>();
+        for (String scorerId : m_scorersByOrder) {
+            if (!m_omitFromAnalysis.contains(scorerId)) {
+                analyzedScorerNames.add(m_trainedScorersMap.get(scorerId).getName());
+            }
+        }
+        final Map<String, String> res = new TreeMap<String, String>();
+        for (Entry<String, IScorer<?, IAnalyzedInterval>> scorerEntry : scorers.entrySet()) {
+            final IScorer<?, IAnalyzedInterval> scorer = scorerEntry.getValue();
+            if (!(scorer instanceof IStatisticsTrainable)) {
+                return null;
+            }
+            for (String input : ((IStatisticsTrainable) scorer).getTrainingInputScorers()) {
+                if (analyzedScorerNames.contains(input)) {
+                    return null;
+                }
+            }
+            // the statistics depend on the kind of scorer, and on the training intervals
+            res.put(scorerEntry.getKey(), scorer.getClass().getName() + "/" + m_framingFlow.getName()
+                    + "*" + m_trainFrameFactor);
+        }
+        return res;
+    }
+
+    /**
+     * @return the start time of the last of the given periods of each source, by source internal id.
+     */
+    private static Map<Integer, Long> getLastPeriodStartTimes(Collection<IPeriod> periods) {
+        final Map<Integer, Long> res = new HashMap<Integer, Long>();
+        for (IPeriod period : periods) {
+            final Integer sourceId = period.getSource().getSourceInternalId();
+            final Long last = res.get(sourceId);
+            if (last == null || last < period.getStartTime().getTime()) {
+                res.put(sourceId, period.getStartTime().getTime());
+            }
+        }
+        return res;
+    }
+
+    /**
+     * Reads the training intervals of a period, framed as in training, and accumulates them into
+     * training statistics of the given scorers.
+     * @return the statistics, by scorer id.
+     */
+    private Map<String, PeriodTrainingStatistics> collectPeriodStatistics(IPeriod period,
+            Map<String, IScorer<?, IAnalyzedInterval>> scorers) throws AdeException {
+        final StatisticsCollector collector = new StatisticsCollector(scorers);
+        final IntervalDbDownloader intervalSource =
+                new IntervalDbDownloader(Collections.singletonList(period), m_framingFlow);
+        if (m_trainFrameFactor != 1) {
+            final IntervalShiftAccumulator frameAccumulator =
+                    new IntervalShiftAccumulator(m_framingFlow, false, m_trainFrameFactor, false);
+            frameAccumulator.addTarget(collector);
+            intervalSource.addTarget(frameAccumulator);
+        } else {
+            intervalSource.addTarget(collector);
+        }
+        intervalSource.run();
+        return collector.m_statistics;
+    }
+
     @Override
     public final FramingFlowType getRequiredIntervalFramer() throws AdeException {
         return m_framingFlow;
@@ -494,6 +673,7 @@ public class MainScorerImpl extends AbstractTrainer<IInterval> implements IMainS
 
     @Override
     public final IAnalyzedInterval analyze(IInterval interval) throws AdeException {
+        final long analyzeStart = MetricsRegistry.startTimer();
         final IAnalyzedInterval analyzedInterval = 
                 new AnalyzedIntervalImpl(interval, m_modelMetaData.getModelInternalId());
         for (String key : m_scorersByOrder) {
@@ -503,6 +683,7 @@ public class MainScorerImpl extends AbstractTrainer<IInterval> implements IMainS
             if (m_omitFromAnalysis != null && m_omitFromAnalysis.contains(scorerId)) {
                 continue;
             }
+            final long scorerStart = MetricsRegistry.startTimer();
             if (scorer instanceof MessageScorer) {
 
                 final MessageScorer messageScorer = (MessageScorer) scorer;
@@ -521,7 +702,12 @@ public class MainScorerImpl extends AbstractTrainer<IInterval> implements IMainS
                     setIntervalLogProbScore(analyzedInterval, intervalScorer);
                 }
             }
+            if (scorerStart != MetricsRegistry.NOT_TIMED) {
+                MetricsRegistry.histogram(SCORER_METRICS_PREFIX + scorerId).recordSince(scorerStart);
+            }
         }
+        s_analyzeTime.recordSince(analyzeStart);
+        s_intervalsAnalyzed.increment();
         return analyzedInterval;
     }
 
@@ -684,4 +870,47 @@ public class MainScorerImpl extends AbstractTrainer<IInterval> implements IMainS
         }
 
     }
+
+    /**
+     * Accumulates training intervals into training statistics of scorers. The scores of trained scorers
+     * are not needed, as the statistics do not depend on them.
+     */
+    private class StatisticsCollector implements IFrameableTarget<IInterval, TimeSeparator> {
+
+        private final Map<String, IScorer<?, IAnalyzedInterval>> m_scorers;
+        private final Map<String, PeriodTrainingStatistics> m_statistics =
+                new TreeMap<String, PeriodTrainingStatistics>();
+
+        StatisticsCollector(Map<String, IScorer<?, IAnalyzedInterval>> scorers) {
+            m_scorers = scorers;
+            for (Entry<String, IScorer<?, IAnalyzedInterval>> scorerEntry : scorers.entrySet()) {
+                m_statistics.put(scorerEntry.getKey(), new PeriodTrainingStatistics(
+                        ((IStatisticsTrainable) scorerEntry.getValue()).newTrainingStatistics()));
+            }
+        }
+
+        @Override
+        public void beginOfStream() throws AdeException {
+        }
+
+        @Override
+        public final void incomingObject(IInterval interval) throws AdeException {
+            final IAnalyzedInterval analyzedInterval =
+                    new AnalyzedIntervalImpl(interval, m_modelMetaData.getModelInternalId());
+            for (Entry<String, IScorer<?, IAnalyzedInterval>> scorerEntry : m_scorers.entrySet()) {
+                final PeriodTrainingStatistics statistics = m_statistics.get(scorerEntry.getKey());
+                ((IStatisticsTrainable) scorerEntry.getValue()).accumulate(statistics.getStatistics(),
+                        analyzedInterval);
+                statistics.addTimeSpan(interval.getIntervalStartTime(), interval.getIntervalEndTime());
+            }
+        }
+
+        @Override
+        public void incomingSeparator(TimeSeparator sep) throws AdeException {
+        }
+
+        @Override
+        public void endOfStream() throws AdeException {
+        }
+    }
 }
@@ -0,0 +1,67 @@
+/*
+ 
+    Copyright IBM Corp. 2016
+    This file is part of Anomaly Detection Engine for Linux Logs (ADE).
+
+    ADE is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    ADE is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with ADE.  If not, see <http://www.gnu.org/licenses/>.
+ 
+*/
+package org.openmainframe.ade.impl.scoringApi;
+
+import java.io.Serializable;
+
+import org.openmainframe.ade.scoringApi.ITrainingStatistics;
+
+/**
+ * The training statistics of a scorer over the training intervals of a period, with the time
+ * span of these intervals, which is added to the meta data of the model.
+ */
+public class PeriodTrainingStatistics implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final ITrainingStatistics m_statistics;
+    private Long m_startTime = null;
+    private Long m_endTime = null;
+
+    public PeriodTrainingStatistics(ITrainingStatistics statistics) {
+        m_statistics = statistics;
+    }
+
+    public final ITrainingStatistics getStatistics() {
+        return m_statistics;
+    }
+
+    /**
+     * Extends the time span to include that of a training interval.
+     */
+    public final void addTimeSpan(long startTime, long endTime) {
+        if (m_startTime == null || startTime < m_startTime) {
+            m_startTime = startTime;
+        }
+        if (m_endTime == null || endTime > m_endTime) {
+            m_endTime = endTime;
+        }
+    }
+
+    /** @return the start time of the first training interval, null if there are none */
+    public final Long getStartTime() {
+        return m_startTime;
+    }
+
+    /** @return the end time of the last training interval, null if there are none */
+    public final Long getEndTime() {
+        return m_endTime;
+    }
+}
@@ -56,11 +56,13 @@ class MessageInstanceStatsCollector extends HubFrameableFramingBlock<IMessageIns
 
     @Override
     public void incomingSeparator(TimeSeparator sep) throws AdeException, AdeFlowException {
+        m_incomingSeparatorsCounter.increment();
         sendSeparator(sep);
     }
 
     @Override
     public void incomingObject(IMessageInstance obj) throws AdeException, AdeFlowException {
+        m_incomingObjectsCounter.increment();
         sendObject(obj);
     }
 
@@ -25,33 +25,74 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
-import java.util.HashSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
 
 import org.openmainframe.ade.exceptions.AdeInternalException;
-import org.openmainframe.ade.impl.training.ClusteringPartition;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * Used for critical words feature in analysis.
- *
+ * <p>
+ * The score of a message is the number of its whitespace separated tokens that are
+ * critical words, compared case insensitively. A line of the critical words file
+ * with several words is a phrase, which scores once for every run of consecutive
+ * tokens matching its words.
+ * <p>
+ * The critical words are compiled into an Aho-Corasick automaton over the lower case
+ * characters of the words and a token separator symbol, so that a message is scored
+ * in a single pass over its text without splitting or lower casing it.
  */
 public class CriticalWordsScorer {
 
 	public static final int INIT_SIZE = 30;
-	private HashSet<String> m_criticalWordsSet = null;
+
+	/* Symbol of the characters that appear in no critical word. */
+	private static final int OTHER_SYMBOL = 0;
+	/* Symbol of a run of whitespace, and of the start and end of the text. */
+	private static final int SEPARATOR_SYMBOL = 1;
+	private static final int ASCII_SIZE = 128;
+
 	private File m_criticalWordsFile = null;
 	private static final Logger logger = LoggerFactory
 			.getLogger(CriticalWordsScorer.class);
-	
+
+	/* Symbols of the lower case ASCII characters, and of the other characters of the words. */
+	private int[] m_asciiSymbols;
+	private char[] m_nonAsciiChars;
+	private int[] m_nonAsciiSymbols;
+	private int m_numSymbols;
+
+	/* Transitions of the automaton, indexed by state * m_numSymbols + symbol. */
+	private int[] m_transitions;
+	/* Number of critical words and phrases ending at each state. */
+	private int[] m_matches;
+	private int m_initialState;
+
 	public CriticalWordsScorer(String criticalWordsFile)
 			throws AdeInternalException {
 		m_criticalWordsFile = new File(criticalWordsFile);
-		m_criticalWordsSet = new HashSet<String>(INIT_SIZE);
-		init();
+		compile(init());
+	}
+
+	/**
+	 * @param criticalWords
+	 *            - the critical words, or phrases of words separated by whitespace
+	 */
+	public CriticalWordsScorer(List<String> criticalWords) {
+		final List<String[]> patterns = new ArrayList<String[]>(INIT_SIZE);
+		for (String criticalWord : criticalWords) {
+			addPattern(patterns, criticalWord);
+		}
+		compile(patterns);
 	}
 
-	private void init() throws AdeInternalException {
+	private List<String[]> init() throws AdeInternalException {
+		final List<String[]> patterns = new ArrayList<String[]>(INIT_SIZE);
 		BufferedReader br = null;
 		FileInputStream fis = null;
 		String line = null;
@@ -65,13 +106,7 @@ public class CriticalWordsScorer {
 				if (line.startsWith("#")) {
 					continue;
 				}
-
-				String[] tokens = line.split("\\s+");
-				if (tokens.length != 1) {
-					throw new AdeInternalException(
-							"Multiple words in line not allowed: " + line);
-				}
-				m_criticalWordsSet.add(tokens[0].toLowerCase());
+				addPattern(patterns, line);
 			}
 		} catch (IOException e) {
 			throw new AdeInternalException(
@@ -88,6 +123,125 @@ public class CriticalWordsScorer {
 				logger.error("Error closing the file ",e);
 			}
 		}
+		return patterns;
+	}
+
+	private static void addPattern(List<String[]> patterns, String line) {
+		final String trimmed = line.trim();
+		if (trimmed.length() > 0) {
+			patterns.add(trimmed.split("\\s+"));
+		}
+	}
+
+	/**
+	 * Builds the automaton. Each pattern is spelled as a separator, its lower case
+	 * words joined by separators, and a final separator, so that it only matches whole
+	 * tokens. The failure links are then folded into a complete transition table.
+	 */
+	private void compile(List<String[]> patterns) {
+		final Set<String> spelledPatterns = new LinkedHashSet<String>();
+		final StringBuilder spelled = new StringBuilder();
+		for (String[] words : patterns) {
+			spelled.setLength(0);
+			for (String word : words) {
+				spelled.append(' ');
+				for (int i = 0; i < word.length(); ++i) {
+					spelled.append(Character.toLowerCase(word.charAt(i)));
+				}
+			}
+			spelledPatterns.add(spelled.append(' ').toString());
+		}
+
+		int maxStates = 1;
+		final StringBuilder nonAsciiChars = new StringBuilder();
+		m_asciiSymbols = new int[ASCII_SIZE];
+		m_numSymbols = SEPARATOR_SYMBOL + 1;
+		for (String pattern : spelledPatterns) {
+			maxStates += pattern.length();
+			for (int i = 0; i < pattern.length(); ++i) {
+				final char c = pattern.charAt(i);
+				if (c == ' ') {
+					continue;
+				}
+				if (c < ASCII_SIZE) {
+					if (m_asciiSymbols[c] == OTHER_SYMBOL) {
+						m_asciiSymbols[c] = m_numSymbols++;
+					}
+				} else if (nonAsciiChars.indexOf(String.valueOf(c)) < 0) {
+					nonAsciiChars.append(c);
+				}
+			}
+		}
+		m_nonAsciiChars = nonAsciiChars.toString().toCharArray();
+		Arrays.sort(m_nonAsciiChars);
+		m_nonAsciiSymbols = new int[m_nonAsciiChars.length];
+		for (int i = 0; i < m_nonAsciiSymbols.length; ++i) {
+			m_nonAsciiSymbols[i] = m_numSymbols++;
+		}
+
+		// Trie of the patterns, a transition of -1 is missing
+		final int[] trie = new int[maxStates * m_numSymbols];
+		Arrays.fill(trie, -1);
+		final boolean[] terminal = new boolean[maxStates];
+		int numStates = 1;
+		for (String pattern : spelledPatterns) {
+			int state = 0;
+			for (int i = 0; i < pattern.length(); ++i) {
+				final int symbol = pattern.charAt(i) == ' ' ? SEPARATOR_SYMBOL : symbolOf(pattern.charAt(i));
+				final int index = state * m_numSymbols + symbol;
+				if (trie[index] < 0) {
+					trie[index] = numStates++;
+				}
+				state = trie[index];
+			}
+			terminal[state] = true;
+		}
+
+		// Breadth first completion of the transitions through the failure links
+		m_transitions = Arrays.copyOf(trie, numStates * m_numSymbols);
+		m_matches = new int[numStates];
+		final int[] failure = new int[numStates];
+		final int[] queue = new int[numStates];
+		int head = 0;
+		int tail = 0;
+		for (int symbol = 0; symbol < m_numSymbols; ++symbol) {
+			final int next = m_transitions[symbol];
+			if (next < 0) {
+				m_transitions[symbol] = 0;
+			} else {
+				failure[next] = 0;
+				queue[tail++] = next;
+			}
+		}
+		while (head < tail) {
+			final int state = queue[head++];
+			m_matches[state] = m_matches[failure[state]] + (terminal[state] ? 1 : 0);
+			for (int symbol = 0; symbol < m_numSymbols; ++symbol) {
+				final int index = state * m_numSymbols + symbol;
+				final int next = m_transitions[index];
+				final int fallback = m_transitions[failure[state] * m_numSymbols + symbol];
+				if (next < 0) {
+					m_transitions[index] = fallback;
+				} else {
+					failure[next] = fallback;
+					queue[tail++] = next;
+				}
+			}
+		}
+		m_initialState = m_transitions[SEPARATOR_SYMBOL];
+	}
+
+	private int symbolOf(char lowerCase) {
+		if (lowerCase < ASCII_SIZE) {
+			return m_asciiSymbols[lowerCase];
+		}
+		final int pos = Arrays.binarySearch(m_nonAsciiChars, lowerCase);
+		return pos < 0 ? OTHER_SYMBOL : m_nonAsciiSymbols[pos];
+	}
+
+	/* The whitespace of the \\s regular expression class the tokens used to be split with. */
+	private static boolean isSeparator(char c) {
+		return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
 	}
 
 	/**
@@ -103,13 +257,26 @@ public class CriticalWordsScorer {
 		if (text == null || text.length() == 0) {
 			return score;
 		}
-		String[] tokens = text.split("\\s+");
-		for (int i = 0; i < tokens.length; i++) {
-			String word = tokens[i].toLowerCase();
-			if (m_criticalWordsSet.contains(word)) {
-				score++;
+		final int[] transitions = m_transitions;
+		final int numSymbols = m_numSymbols;
+		int state = m_initialState;
+		boolean inToken = false;
+		for (int i = 0; i < text.length(); i++) {
+			final char c = text.charAt(i);
+			if (isSeparator(c)) {
+				if (inToken) {
+					state = transitions[state * numSymbols + SEPARATOR_SYMBOL];
+					score += m_matches[state];
+					inToken = false;
+				}
+			} else {
+				state = transitions[state * numSymbols + symbolOf(Character.toLowerCase(c))];
+				inToken = true;
 			}
 		}
+		if (inToken) {
+			score += m_matches[transitions[state * numSymbols + SEPARATOR_SYMBOL]];
+		}
 		return score;
 	}
 
@@ -71,8 +71,13 @@ public final class LevenshteinTextSummary {
     // The asterisk ('*') is used to denote the wild-card symbol
     private static final String ASTERISK = "*";
 
-    // Matrix used for dynamic programming
-    private static int[][] algMat;
+    // Matrix used for dynamic programming, one per thread so that texts can be compared concurrently
+    private static final ThreadLocal<int[][]> s_algMat = new ThreadLocal<int[][]>() {
+        @Override
+        protected int[][] initialValue() {
+            return new int[MAX_NUM_WORDS + 1][MAX_NUM_WORDS + 1];
+        }
+    };
     
     private static int threshold = DEFAULT_THRESHOLD;
 
@@ -87,14 +92,6 @@ public final class LevenshteinTextSummary {
         LevenshteinTextSummary.threshold = threshold;
     }
 
-    /* Initialize once */
-    private static synchronized void initMatrix() {
-        if (algMat == null) {
-            algMat = new int[MAX_NUM_WORDS + 1][MAX_NUM_WORDS + 1];
-
-        }
-    }
-
     /**
      * Split the string into an array of words separated by whitespace or specific delimiters.
      * 
@@ -317,17 +314,14 @@ public final class LevenshteinTextSummary {
             toRet.add(new Word(ASTERISK, false));
             return toRet;
         }
-        // 1. initMatrix with zeros
-        initMatrix();
-
-        // 2. Calculate the matrix body.
-        if (!calcScoreMat(lenA, lenB, reference, newStrVec)) {
+        // 1. Calculate the matrix body.
+        if (!calcScoreMat(lenA, lenB, reference, newStrVec, threshold)) {
             final ArrayList<Word> toRet = new ArrayList<Word>();
             toRet.add(new Word(ASTERISK, false));
             return toRet;
         }
 
-        // 3. Creating the merge alignment using backtracking
+        // 2. Creating the merge alignment using backtracking
         final ArrayList<Word> merge = createAlignment(lenA, lenB, reference, newStrVec);
 
         // 4. reversing the alignment
@@ -356,6 +350,20 @@ public final class LevenshteinTextSummary {
      * @return the calculated distance
      */
     public static int calcDistance(Word[] wordsA, Word[] wordsB) {
+        return calcDistance(wordsA, wordsB, threshold);
+    }
+
+    /**
+     * Calculate the distance between two arrays of words, up to the given threshold rather than
+     * the one set by {@link #setThreshold(int)}, so that threads comparing with different
+     * thresholds do not interfere.
+     * 
+     * @param wordsA the first word array
+     * @param wordsB the second word array
+     * @param threshold the maximal distance of interest
+     * @return the calculated distance, or threshold+1 if it is larger than the threshold
+     */
+    public static int calcDistance(Word[] wordsA, Word[] wordsB, int threshold) {
         final int lenA = wordsA.length + 1;
         final int lenB = wordsB.length + 1;
         assert lenA <= MAX_NUM_WORDS + 1;
@@ -364,14 +372,11 @@ public final class LevenshteinTextSummary {
         if (Math.abs(lenA - lenB) > threshold) {
             return threshold + 1;
         }
-        // 1. initMatrix with zeros
-        initMatrix();
-
-        // 2. Calculate the matrix body.
-        if (!calcScoreMat(lenA, lenB, wordsA, wordsB)) {
+        // 1. Calculate the matrix body.
+        if (!calcScoreMat(lenA, lenB, wordsA, wordsB, threshold)) {
             return threshold + 1;
         }
-        return algMat[lenA - 1][lenB - 1];
+        return s_algMat.get()[lenA - 1][lenB - 1];
     }
 
     /*
@@ -384,10 +389,12 @@ public final class LevenshteinTextSummary {
      * @param lenB length of second sentence
      * @param one first sentence split into words
      * @param two second sentence split into words
+     * @param threshold the maximal distance of interest
      * @return true if the sentences are mostly similar, and false otherwise 
      * (i.e. result of summarization is a single *).
      */
-    private static boolean calcScoreMat(int lenA, int lenB, Word[] one, Word[] two) {
+    private static boolean calcScoreMat(int lenA, int lenB, Word[] one, Word[] two, int threshold) {
+        final int[][] algMat = s_algMat.get();
         // Boundary condition
         int minj = 0;
         int maxj = Math.min(threshold, lenB - 1);
@@ -457,6 +464,7 @@ public final class LevenshteinTextSummary {
     private static ArrayList<Word> createAlignment(int lenA, int lenB,
             Word[] one, Word[] two) {
 
+        final int[][] algMat = s_algMat.get();
         final ArrayList<Word> merge = new ArrayList<Word>();
         int i = lenA - 1;
         int j = lenB - 1;
@@ -68,6 +68,9 @@ public class TrainLogs extends Train {
         // train on logs iteratively
         final EventLogTrainer eventLogTrainer = new EventLogTrainer(analysisGroup);
         while (eventLogTrainer.requiresAnotherIteration()) {
+            if (eventLogTrainer.trainIterationFromStatistics(includedPeriods)) {
+                continue;
+            }
             final FramingFlowType requiredFlowType = eventLogTrainer.getRequiredIterationType();
             final IntervalDbDownloader intervalSource = new IntervalDbDownloader(includedPeriods, requiredFlowType);
             intervalSource.addTarget(eventLogTrainer);
@@ -93,7 +93,10 @@ public class AnalyzedIntervalXmlStorer extends AnalyzedIntervalOutputer {
         return s_xslResources;
     }
 
-    protected static Marshaller s_marshaller;
+    /**
+     * The marshaller object of each thread. A marshaller is not thread safe, and is kept only once fully set up.
+     */
+    protected static final ThreadLocal<Marshaller> s_marshaller = new ThreadLocal<Marshaller>();
     protected FramingFlowType m_framingFlowType;
     protected ISource m_source;
     @Property(key = "outputTimeZone", help = "Time zone used to output analysed intervals", required = false)
@@ -122,22 +125,23 @@ public class AnalyzedIntervalXmlStorer extends AnalyzedIntervalOutputer {
 
     @Override
     public void beginOfStream() throws AdeException, AdeFlowException {
-        if (s_marshaller == null) {
+        if (s_marshaller.get() == null) {
             JAXBContext jaxbContext;
             try {
                 jaxbContext = JAXBContext.newInstance(ADE_JAXB_CONTEXT);
             } catch (JAXBException e) {
                 throw new AdeInternalException("failed to create JAXBContext object for package " + ADE_JAXB_CONTEXT, e);
             }
+            final Marshaller marshaller;
             try {
-                s_marshaller = jaxbContext.createMarshaller();
+                marshaller = jaxbContext.createMarshaller();
             } catch (JAXBException e) {
                 throw new AdeInternalException("failed to create JAXB Marshaller object", e);
             }
             try {
-                s_marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, Boolean.TRUE);
-                s_marshaller.setProperty(Marshaller.JAXB_FRAGMENT, Boolean.TRUE);
-                s_marshaller.setProperty(Marshaller.JAXB_NO_NAMESPACE_SCHEMA_LOCATION,
+                marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, Boolean.TRUE);
+                marshaller.setProperty(Marshaller.JAXB_FRAGMENT, Boolean.TRUE);
+                marshaller.setProperty(Marshaller.JAXB_NO_NAMESPACE_SCHEMA_LOCATION,
                         "xslt/AnalyzedInterval.xsd");
 
             } catch (PropertyException e) {
@@ -154,7 +158,8 @@ public class AnalyzedIntervalXmlStorer extends AnalyzedIntervalOutputer {
             } catch (SAXException e) {
                 throw new AdeInternalException("failed to create XML Schemal for event log analysis results", e);
             }
-            s_marshaller.setSchema(schema);
+            marshaller.setSchema(schema);
+            s_marshaller.set(marshaller);
         }
     }
 
@@ -202,7 +207,7 @@ public class AnalyzedIntervalXmlStorer extends AnalyzedIntervalOutputer {
             jaxbMessageSummaries.add(jaxbMessageSummary);
         }
 
-        writeToXML(analyzedInterval, jaxbAnalyzedInterval, s_marshaller);
+        writeToXML(analyzedInterval, jaxbAnalyzedInterval, s_marshaller.get());
     }
 
     /**
@@ -47,6 +47,11 @@ public abstract class ResultBrowser {
     /** @return the analysis results for a period with the given start time and the given source */
     abstract public List<IAnalyzedInterval> getAnalyzedIntervals(int sourceInternalId, Date date, FramingFlowType framingFlowType) throws AdeException;
 
+    /** @return the analysis results of the given source for the intervals starting in [start, end)
+     * that scored at least minScore, ordered by start time. Spans as many periods as needed. */
+    abstract public List<IAnalyzedInterval> getAnalyzedIntervals(int sourceInternalId, Date start, Date end, double minScore,
+            FramingFlowType framingFlowType) throws AdeException;
+
     abstract public Set<String> getAllAnalyzedSources() throws AdeException;
 
     abstract public RawSourceMetaData getSourceMetaData(String sourceStr) throws AdeException;
@@ -26,6 +26,8 @@ import java.io.PrintWriter;
 import java.io.Serializable;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -308,6 +310,14 @@ public abstract class AbstractClusteringScorer extends MessageScorer implements
 
         private List<String> m_runsSummary;
 
+        /**
+         * The cluster of each internal message id, or -1, and the internal message ids that were seen,
+         * indexed by internal message id. Built from m_msgInternalIdToCluster and m_seenMsgIds on first
+         * use, so that the analysis of an interval looks up its messages without boxing.
+         */
+        private transient int[] m_clusterByInternalId;
+        private transient BitSet m_seenInternalIds;
+
         /**
          * Constructor for Model - use reset() instead.
          */
@@ -393,12 +403,64 @@ public abstract class AbstractClusteringScorer extends MessageScorer implements
                 m_clusterSizes[m_msgInternalIdToCluster.get(id)]++;
             }
             m_clusterNames = clusterNames;
+            m_clusterByInternalId = null;
+        }
+
+        /**
+         * Sets the message ids seen in training.
+         * @param seenIds mapping from message id to internal message id.
+         */
+        void setSeenMsgIds(SortedMap<String, Integer> seenIds) {
+            m_seenMsgIds = seenIds;
+            m_clusterByInternalId = null;
         }
 
         protected int getClusterSize(int i) {
             return m_clusterSizes[i];
         }
 
+        /**
+         * @return the cluster of an internal message id, or -1 if it is not clustered.
+         */
+        protected final int getClusterByInternalId(int internalId) {
+            final int[] clusterByInternalId = getClusterByInternalIdIndex();
+            return internalId >= 0 && internalId < clusterByInternalId.length
+                    ? clusterByInternalId[internalId] : -1;
+        }
+
+        /**
+         * @return true if an internal message id was seen in training.
+         */
+        protected final boolean isSeenInternalId(int internalId) {
+            getClusterByInternalIdIndex();
+            return internalId >= 0 && m_seenInternalIds.get(internalId);
+        }
+
+        private int[] getClusterByInternalIdIndex() {
+            if (m_clusterByInternalId == null) {
+                final BitSet seenInternalIds = new BitSet();
+                for (Integer internalId : m_seenMsgIds.values()) {
+                    if (internalId != null && internalId >= 0) {
+                        seenInternalIds.set(internalId);
+                    }
+                }
+                int maxInternalId = -1;
+                for (int internalId : m_msgInternalIdToCluster.keySet()) {
+                    maxInternalId = Math.max(maxInternalId, internalId);
+                }
+                final int[] clusterByInternalId = new int[maxInternalId + 1];
+                Arrays.fill(clusterByInternalId, -1);
+                for (Entry<Integer, Integer> entry : m_msgInternalIdToCluster.entrySet()) {
+                    if (entry.getKey() >= 0) {
+                        clusterByInternalId[entry.getKey()] = entry.getValue();
+                    }
+                }
+                m_seenInternalIds = seenInternalIds;
+                m_clusterByInternalId = clusterByInternalId;
+            }
+            return m_clusterByInternalId;
+        }
+
         /**
          * Prints the how messages ids have been assigned to a cluster.
          * @param out - output object
@@ -21,6 +21,8 @@ package org.openmainframe.ade.scores;
 
 import java.io.PrintStream;
 import java.io.Serializable;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Map.Entry;
 import java.util.SortedMap;
 import java.util.TreeMap;
@@ -32,11 +34,13 @@ import org.openmainframe.ade.exceptions.AdeException;
 import org.openmainframe.ade.exceptions.AdeFlowException;
 import org.openmainframe.ade.exceptions.AdeInternalException;
 import org.openmainframe.ade.impl.PropertyAnnotation.Property;
+import org.openmainframe.ade.scoringApi.IStatisticsTrainable;
+import org.openmainframe.ade.scoringApi.ITrainingStatistics;
 import org.openmainframe.ade.scoringApi.MessageScorer;
 import org.openmainframe.ade.scoringApi.StatisticsChart;
 import org.openmainframe.ade.utils.IStructuredOutputWriter;
 
-public class BernoulliScore extends MessageScorer {
+public class BernoulliScore extends MessageScorer implements IStatisticsTrainable {
 
     public static final String LOG_PROB = "logProb";
     public static final String PROBABILITY = "probability";
@@ -62,6 +66,9 @@ public class BernoulliScore extends MessageScorer {
     protected boolean m_trained = false;
     protected int m_totalIntervalCount = 0;
 
+    /** The statistics of the intervals of the current training iteration */
+    private transient ITrainingStatistics m_trainingStatistics = null;
+
     @Override
     protected void reset() {
         m_trained = false;
@@ -79,26 +86,70 @@ public class BernoulliScore extends MessageScorer {
         if (m_trained) {
             throw new AdeInternalException("Already trained");
         }
-        m_msgData = new TreeMap<String, MsgData>();
-        m_totalIntervalCount = 0;
+        m_trainingStatistics = newTrainingStatistics();
     }
 
     @Override
     public void incomingObject(IAnalyzedInterval analyzedInterval) throws AdeException {
+        accumulate(m_trainingStatistics, analyzedInterval);
+    }
+
+    @Override
+    public void endOfStream() throws AdeException {
+        train(m_trainingStatistics);
+        m_trainingStatistics = null;
+    }
+
+    /**
+     * The statistics are the number of intervals each message id appears in.
+     */
+    @Override
+    public ITrainingStatistics newTrainingStatistics() {
+        return new MessageCountStatistics(1);
+    }
+
+    @Override
+    public void accumulate(ITrainingStatistics statistics, IAnalyzedInterval analyzedInterval) throws AdeException {
+        final MessageCountStatistics stats = (MessageCountStatistics) statistics;
         for (IMessageSummary ms : analyzedInterval.getInterval().getMessageSummaries()) {
-            final String id = ms.getMessageId();
-            MsgData data = m_msgData.get(id);
-            if (data == null) {
-                data = new MsgData();
-                m_msgData.put(id, data);
-            }
-            ++data.m_count;
+            ++stats.getCounters(ms.getMessageId())[0];
         }
-        ++m_totalIntervalCount;
+        stats.addInterval();
     }
 
     @Override
-    public void endOfStream() throws AdeException {
+    public void train(ITrainingStatistics statistics) throws AdeException {
+        if (m_trained) {
+            throw new AdeInternalException("Already trained");
+        }
+        final MessageCountStatistics stats = (MessageCountStatistics) statistics;
+        m_msgData = new TreeMap<String, MsgData>();
+        for (Entry<String, int[]> entry : stats.getAllCounters().entrySet()) {
+            m_msgData.put(entry.getKey(), newMsgData(entry.getValue()));
+        }
+        m_totalIntervalCount = stats.getIntervalCount();
+        calcProbabilities();
+        m_trained = true;
+    }
+
+    @Override
+    public Collection<String> getTrainingInputScorers() {
+        return Collections.emptyList();
+    }
+
+    /**
+     * @return the data of a message id, with the counts of its training statistics.
+     */
+    protected MsgData newMsgData(int[] counters) {
+        final MsgData data = new MsgData();
+        data.m_count = counters[0];
+        return data;
+    }
+
+    /**
+     * Calculates the probabilities and scores of the message ids from their counts.
+     */
+    protected void calcProbabilities() {
         double minProb = 1;
         // to avoid dividing by zero if no intervals were trained on
         if (m_totalIntervalCount == 0) {
@@ -119,7 +170,6 @@ public class BernoulliScore extends MessageScorer {
                 data.m_score = 1;
             }
         }
-        m_trained = true;
     }
 
     @Override
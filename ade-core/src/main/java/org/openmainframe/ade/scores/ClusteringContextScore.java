@@ -19,10 +19,10 @@
 */
 package org.openmainframe.ade.scores;
 
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Map;
 import java.util.SortedMap;
-import java.util.SortedSet;
-import java.util.TreeSet;
 
 import org.openmainframe.ade.data.IAnalyzedInterval;
 import org.openmainframe.ade.data.IAnalyzedMessageSummary;
@@ -115,13 +115,14 @@ public class ClusteringContextScore extends AbstractClusteringScorer {
         m_config = new Configuration();
         m_model = new Model();
         m_model.setClusters(clusterMap, num);
-        m_model.m_seenMsgIds = seenIds;
+        m_model.setSeenMsgIds(seenIds);
     }
     /**
      * Main class that does the bulk of the logic for determining cluster status.
      */
     private class Analyzer extends AbstractClusteringScorer.Analyzer {
-        private transient SortedSet<Integer> m_contextGoodClusters;
+        private transient BitSet m_contextGoodClusters = new BitSet();
+        private transient int[] m_clusterSizeInInterval = new int[0];
         private transient IInterval m_cachedInterval;
         /**
          * First determine which clusters are spiking i.e. clusters where at least 20% of the
@@ -140,17 +141,12 @@ public class ClusteringContextScore extends AbstractClusteringScorer {
             setContext(analyzedInterval.getInterval());
             final int id = ams.getMessageSummary().getMessageInternalId();
             final StatisticsChart sc = new StatisticsChart();
-            Integer clusterId = m_model.m_msgInternalIdToCluster.get(id);
-            boolean spike = false;
-            if (clusterId == null) {
-                clusterId = -1;
-            } else {
-                spike = m_contextGoodClusters.contains(clusterId);
-            }
+            final int clusterId = m_model.getClusterByInternalId(id);
+            final boolean spike = clusterId != -1 && m_contextGoodClusters.get(clusterId);
             sc.setStat(CLUSTER_ID, clusterId);
 
             ClusteringContextScore.ClusterStatus status;
-            if (!m_model.m_seenMsgIds.containsKey(ams.getMessageId())) {
+            if (!m_model.isSeenInternalId(id)) {
                 status = ClusteringContextScore.ClusterStatus.NEW;
             } else if (clusterId == -1) {
                 status = ClusteringContextScore.ClusterStatus.UNCLUSTERED;
@@ -179,25 +175,28 @@ public class ClusteringContextScore extends AbstractClusteringScorer {
             }
             m_cachedInterval = interval;
 
-            final int[] clusterSizeInInterval = new int[m_model.m_actualClusters];
+            if (m_clusterSizeInInterval.length != m_model.m_actualClusters) {
+                m_clusterSizeInInterval = new int[m_model.m_actualClusters];
+            } else {
+                Arrays.fill(m_clusterSizeInInterval, 0);
+            }
             // first pass: calculate how many messages from each cluster appear in
             // interval
             for (IMessageSummary messageSummary : interval.getMessageSummaries()) {
-                final Integer clusterId = 
-                        m_model.m_msgInternalIdToCluster.get(messageSummary.getMessageInternalId());
-                if (clusterId != null) {
-                    clusterSizeInInterval[clusterId]++;
+                final int clusterId = m_model.getClusterByInternalId(messageSummary.getMessageInternalId());
+                if (clusterId != -1) {
+                    m_clusterSizeInInterval[clusterId]++;
                 }
             }
 
-            m_contextGoodClusters = new TreeSet<Integer>();
+            m_contextGoodClusters.clear();
             // second pass: find spiking clusters    
             for (int i = 0; i < m_model.m_actualClusters; ++i) {
-                if (clusterSizeInInterval[i] > 1) {
-                    final double fraction = (double) clusterSizeInInterval[i]
+                if (m_clusterSizeInInterval[i] > 1) {
+                    final double fraction = (double) m_clusterSizeInInterval[i]
                             / m_model.getClusterSize(i);
                     if (fraction >= m_config.m_clusterContextFraction) {
-                        m_contextGoodClusters.add(i);
+                        m_contextGoodClusters.set(i);
                     }
                 }
             }
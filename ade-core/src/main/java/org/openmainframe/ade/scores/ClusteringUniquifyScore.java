@@ -55,15 +55,12 @@ public class ClusteringUniquifyScore extends AbstractClusteringScorer {
         @Override
         public StatisticsChart getScore(IAnalyzedMessageSummary ams, IAnalyzedInterval analyzedInterval) throws AdeException {
             boolean representatitve = false;
-            Integer clusterId;
             setContext(analyzedInterval.getInterval());
             final int id = ams.getMessageSummary().getMessageInternalId();
             final StatisticsChart sc = new StatisticsChart();
-            clusterId = m_model.m_msgInternalIdToCluster.get(id);
+            final int clusterId = m_model.getClusterByInternalId(id);
             boolean spike = false;
-            if (clusterId == null) {
-                clusterId = -1;
-            } else {
+            if (clusterId != -1) {
                 spike = m_contextGoodClusters.contains(clusterId);
                 if (spike && !m_goodClustersRepresentative.contains(clusterId)) {
                     m_goodClustersRepresentative.add(clusterId);
@@ -73,7 +70,7 @@ public class ClusteringUniquifyScore extends AbstractClusteringScorer {
             sc.setStat(CLUSTER_ID, clusterId);
 
             ClusteringUniquifyScore.ClusterStatus status;
-            if (!m_model.m_seenMsgIds.containsKey(ams.getMessageId())) {
+            if (!m_model.isSeenInternalId(id)) {
                 status = AbstractClusteringScorer.ClusterStatus.NEW;
             } else if (clusterId == -1) {
                 status = AbstractClusteringScorer.ClusterStatus.UNCLUSTERED;
@@ -113,8 +110,8 @@ public class ClusteringUniquifyScore extends AbstractClusteringScorer {
             // first pass: calculate how many messages from each cluster appear in
             // interval
             for (IMessageSummary messageSummary : interval.getMessageSummaries()) {
-                final Integer clusterId = m_model.m_msgInternalIdToCluster.get(messageSummary.getMessageInternalId());
-                if (clusterId != null) {
+                final int clusterId = m_model.getClusterByInternalId(messageSummary.getMessageInternalId());
+                if (clusterId != -1) {
                     clusterSizeInInterval[clusterId]++;
                 }
             }
@@ -20,13 +20,15 @@
 package org.openmainframe.ade.scores;
 
 import java.io.PrintStream;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Map.Entry;
 
 import org.openmainframe.ade.data.IAnalyzedInterval;
 import org.openmainframe.ade.data.IAnalyzedMessageSummary;
-import org.openmainframe.ade.data.IMessageSummary;
 import org.openmainframe.ade.exceptions.AdeException;
 import org.openmainframe.ade.impl.PropertyAnnotation.Property;
+import org.openmainframe.ade.scoringApi.ITrainingStatistics;
 import org.openmainframe.ade.scoringApi.StatisticsChart;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -96,34 +98,51 @@ public class FullBernoulliClusterAwareScore extends BernoulliScore {
     }
     
     /**
-     * Extract all messages from an analyzed interval and retrieves each message's data (msg count, 
-     * probability, and score) During this operation, we increment the current count for this 
-     * particular message and we check if this message is in a cluster that is "IN CONTEXT"
-     * (ie. a cluster where a certain percentage of messages mapped to this cluster appear
+     * The statistics are the number of intervals each message id appears in, and the number of
+     * intervals it appears in out of its cluster.
+     */
+    @Override
+    public ITrainingStatistics newTrainingStatistics() {
+        return new MessageCountStatistics(2);
+    }
+
+    /**
+     * Extract all messages from an analyzed interval and count them. During this operation, we increment
+     * the current count for this particular message and we check if this message is in a cluster that is
+     * "IN CONTEXT" (ie. a cluster where a certain percentage of messages mapped to this cluster appear
      * in this interval) If it is a cluster that is NOT "IN CONTEXT" then we increment
      * the "outOfClusterCount".
+     * @param statistics the statistics to add the interval to.
      * @param analyzedInterval contains a summary of the interval i.e. information such as time, number 
      * of message ids, etc.
      */
     @Override
-    public void incomingObject(IAnalyzedInterval analyzedInterval) throws AdeException {
+    public void accumulate(ITrainingStatistics statistics, IAnalyzedInterval analyzedInterval) throws AdeException {
+        final MessageCountStatistics stats = (MessageCountStatistics) statistics;
         for (IAnalyzedMessageSummary ams : analyzedInterval.getAnalyzedMessages()) {
-            final IMessageSummary ms = ams.getMessageSummary();
-            final String id = ms.getMessageId();
-            FullBernoulliMsgData data = (FullBernoulliMsgData) m_msgData.get(id);
-            if (data == null) {
-                data = new FullBernoulliMsgData();
-                m_msgData.put(id, data);
-            }
-            ++data.m_count;
+            final int[] counters = stats.getCounters(ams.getMessageSummary().getMessageId());
+            ++counters[0];
             if (!AbstractClusteringScorer.ClusterStatus.IN_CONTEXT.name().equals(ams.getStatistics()
                     .getStringStat(m_clusteringScorer + "." + ClusteringContextScore.STATUS))) {
-                ++data.m_outOfClusterCount;
+                ++counters[1];
             }
         }
-        ++m_totalIntervalCount;
+        stats.addInterval();
     }
-    
+
+    @Override
+    public Collection<String> getTrainingInputScorers() {
+        return Collections.singletonList(m_clusteringScorer);
+    }
+
+    @Override
+    protected BernoulliScore.MsgData newMsgData(int[] counters) {
+        final FullBernoulliMsgData data = new FullBernoulliMsgData();
+        data.m_count = counters[0];
+        data.m_outOfClusterCount = counters[1];
+        return data;
+    }
+
     /**
      * Calculate the probabilities and scores for each message's data after going through all the
      * analyzed intervals. Message probability is calculated by dividing the total number of times
@@ -132,7 +151,7 @@ public class FullBernoulliClusterAwareScore extends BernoulliScore {
      * probability and out of context score are also calculated.
      */
     @Override
-    public void endOfStream() throws AdeException {
+    protected void calcProbabilities() {
         double minProb = 1;
         // to avoid dividing by zero if no intervals were trained on
         if (m_totalIntervalCount == 0) {
@@ -168,7 +187,6 @@ public class FullBernoulliClusterAwareScore extends BernoulliScore {
             }
 
         }
-        m_trained = true;
     }
 
     /**
@@ -20,14 +20,15 @@
 package org.openmainframe.ade.scores;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.GregorianCalendar;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Set;
 import java.util.TimeZone;
-import java.util.TreeMap;
-import java.util.TreeSet;
 
 import javax.xml.datatype.DatatypeConfigurationException;
 import javax.xml.datatype.DatatypeFactory;
@@ -78,9 +79,21 @@ public class LastSeenLoggingScorerContinuous extends FixedMessageScorer {
     protected transient GregorianCalendar m_gc = null;
 
     /**
-     * Maps message ID to the end time of the last interval it appeared in and the last tick in that interval. 
+     * Maps internal message ID to the times it appeared in the last interval it appeared in, and the time it
+     * appeared before that.
      */
-    private transient Map<String, TreeSet<Long>> m_prevIntervalTimelineMap = new TreeMap<String, TreeSet<Long>>();
+    private transient LastSeenTimelines m_prevIntervalTimelines = new LastSeenTimelines();
+
+    /**
+     * The timeline of the message being scored, in milliseconds from epoch time.
+     */
+    private transient long[] m_timeLine;
+    private transient int m_timeLineLength;
+
+    /**
+     * The start time of the interval at which the previous timelines were last evicted.
+     */
+    private transient long m_lastEvictionTime = Long.MIN_VALUE;
 
     @Property(key = "verbose", help = "print diffs to stdout", required = false)
     private boolean m_verbose = false;
@@ -90,6 +103,11 @@ public class LastSeenLoggingScorerContinuous extends FixedMessageScorer {
             + "diffrent sides of a gap", required = false)
     protected boolean m_flushMemoryOnGap = false;
 
+    @Property(key = "lookbackHorizonHours", help = "Forget the previous timeline of message ids that were not seen "
+            + "for this number of hours, so that their next delta is computed as for a new message. "
+            + "0 keeps them as long as the scorer runs", required = false)
+    private int m_lookbackHorizonHours = 0;
+
     /**
      * Keep track of all the messages that have been seen already. 
      */
@@ -120,9 +138,10 @@ public class LastSeenLoggingScorerContinuous extends FixedMessageScorer {
 
     /**
      * Creates variables used by this class for tracking last seen messages. 
-     * m_prevIntervalTimelineMap contains the previous timeline (milliseconds from epoch time)
+     * m_prevIntervalTimelines contains the previous timeline (milliseconds from epoch time)
      * for each message ID. m_alreadySeen contains the message IDs of those messages that were seen
-     * previously. 
+     * previously. The data object of the previous timelines keeps its original name, so that it
+     * is found in the runtime model data of earlier versions.
      * @throws AdeException
      */
     private final void createUsageVariables() throws AdeException {
@@ -146,6 +165,11 @@ public class LastSeenLoggingScorerContinuous extends FixedMessageScorer {
             final TimeZone outputTimeZone = Ade.getAde().getConfigProperties().getOutputTimeZone();
             m_gc = new GregorianCalendar(outputTimeZone);
         }
+
+        if (m_timeLine == null) {
+            m_timeLine = new long[LastSeenTimelines.MAX_TIMELINE_LENGTH];
+        }
+        m_lastEvictionTime = Long.MIN_VALUE;
     }
 
     /**
@@ -157,11 +181,14 @@ public class LastSeenLoggingScorerContinuous extends FixedMessageScorer {
     private void instantiateTimelineAndAlreadySeen(String dataObjectName, Object tmp) throws AdeException{ 
         if (dataObjectName.contains("m_prevIntervalTimelineMap")){
             
-            if (tmp instanceof Map<?, ?>) {
-                m_prevIntervalTimelineMap = (Map<String, TreeSet<Long>>) tmp;
+            if (tmp instanceof LastSeenTimelines) {
+                m_prevIntervalTimelines = (LastSeenTimelines) tmp;
             } else {
-                m_prevIntervalTimelineMap = new TreeMap<String, TreeSet<Long>>();
-                Ade.getAde().getDataStore().models().setModelDataObject(dataObjectName, m_prevIntervalTimelineMap);
+                m_prevIntervalTimelines = new LastSeenTimelines();
+                if (tmp instanceof Map<?, ?>) {
+                    addLegacyTimelines((Map<String, ? extends Collection<Long>>) tmp);
+                }
+                Ade.getAde().getDataStore().models().setModelDataObject(dataObjectName, m_prevIntervalTimelines);
             }
             
         } else if (dataObjectName.contains("m_alreadySeen")){
@@ -176,6 +203,28 @@ public class LastSeenLoggingScorerContinuous extends FixedMessageScorer {
         }         
     }
 
+    /**
+     * Adds the previous timelines kept by earlier versions, which mapped message ID to a set of times.
+     * Message IDs that are no longer in the dictionary are dropped.
+     * @param timelineMap the map read from the runtime model data.
+     * @throws AdeException
+     */
+    private void addLegacyTimelines(Map<String, ? extends Collection<Long>> timelineMap) throws AdeException {
+        final DbDictionary dict = AdeInternal.getAdeImpl().getDictionaries().getMessageIdDictionary();
+        for (Entry<String, ? extends Collection<Long>> entry : timelineMap.entrySet()) {
+            final int messageInternalId = dict.getWordId(entry.getKey());
+            if (messageInternalId == DbDictionary.InvalidID || entry.getValue().isEmpty()) {
+                continue;
+            }
+            final long[] times = new long[entry.getValue().size()];
+            int length = 0;
+            for (Long time : entry.getValue()) {
+                times[length++] = time;
+            }
+            m_prevIntervalTimelines.put(messageInternalId, times, length);
+        }
+    }
+
     /**
      * Create variables for this class after deserialization. 
      * @throws AdeException
@@ -202,7 +251,25 @@ public class LastSeenLoggingScorerContinuous extends FixedMessageScorer {
      * Removes all the mappings from the previous interval timeline map.
      */
     private void flushMemory() {
-        m_prevIntervalTimelineMap.clear();
+        m_prevIntervalTimelines.clear();
+    }
+
+    /**
+     * Removes the previous timelines of message ids that were not seen within the lookback horizon,
+     * once per interval.
+     * @param contextElement the interval being scored.
+     */
+    private void evictOldTimelines(IAnalyzedInterval contextElement) {
+        if (m_lookbackHorizonHours <= 0 || contextElement.getIntervalStartTime() == m_lastEvictionTime) {
+            return;
+        }
+        m_lastEvictionTime = contextElement.getIntervalStartTime();
+        final int evicted = m_prevIntervalTimelines.evictOlderThan(
+                m_lastEvictionTime - m_lookbackHorizonHours * DateTimeUtils.MILLIS_IN_HOUR);
+        if (evicted > 0 && logger.isDebugEnabled()) {
+            logger.debug("Evicted the previous timelines of " + evicted + " message ids, "
+                    + m_prevIntervalTimelines.size() + " remain");
+        }
     }
 
     /**
@@ -222,29 +289,31 @@ public class LastSeenLoggingScorerContinuous extends FixedMessageScorer {
     public StatisticsChart getScore(IAnalyzedMessageSummary scoredElement,
             IAnalyzedInterval contextElement) throws AdeException {
         final String messageID = scoredElement.getMessageId();
+        final int messageInternalId = scoredElement.getMessageSummary().getMessageInternalId();
         final short[] timeLine = scoredElement.getTimeLine();         
         final StatisticsChart sc = new StatisticsChart();
         
         sc.setStat(LOG_PROB, 0);
         sc.setStat(ANOMALY, 0);
        
+        evictOldTimelines(contextElement);
         processFirstMessage(contextElement,timeLine);
 
-        final TreeSet<Long> timeLineSet = new TreeSet<Long>();
+        m_timeLineLength = 0;
         
-        processPrevTimeLine(messageID, contextElement, sc, timeLineSet);
+        processPrevTimeLine(messageInternalId, contextElement, sc);
 
         if (!m_alreadySeen.contains(messageID)) {
             m_mainStat = MainStatVal.NEVER_SEEN_BEFORE;
             m_alreadySeen.add(messageID);
         }
 
-        timeLineSet.add(m_firstMsgTime);
+        addToTimeLine(m_firstMsgTime);
         
-        processCurrentTimeLine(timeLine, timeLineSet, contextElement);
+        processCurrentTimeLine(timeLine, contextElement);
         printLastSeenInfo(messageID);
         
-        m_prevIntervalTimelineMap.put(messageID, timeLineSet);
+        m_prevIntervalTimelines.put(messageInternalId, m_timeLine, m_timeLineLength);
         sc.setStat("res", m_deltasInSeconds.toString());
         sc.setStat(MAIN, m_mainStat.toString());
         return sc;
@@ -286,26 +355,24 @@ public class LastSeenLoggingScorerContinuous extends FixedMessageScorer {
     }
     /**
      * Processes the previous time line of the current message ID. 
-     * @param messageID String value that contains the message ID
+     * @param messageInternalId the internal ID of the message
      * @param contextElement AnalyzedInterval object that contains summary results of interval.
      * @param sc Contains statistics for message ID.
-     * @param timeLineSet time line of current message ID. 
      * @throws AdeInternalException
      */
-    public void processPrevTimeLine(String messageID, IAnalyzedInterval contextElement, StatisticsChart sc,
-            Set<Long> timeLineSet) throws AdeInternalException{ 
-        final TreeSet<Long> prevTimeLine = m_prevIntervalTimelineMap.get(messageID);
-        if (prevTimeLine == null) {
+    public void processPrevTimeLine(int messageInternalId, IAnalyzedInterval contextElement, StatisticsChart sc)
+            throws AdeInternalException{ 
+        if (!m_prevIntervalTimelines.contains(messageInternalId)) {
             m_mainStat = MainStatVal.NEW;
             m_deltasInSeconds.add((m_firstMsgTime-contextElement.getIntervalStartTime())/DateTimeUtils.MILLIS_IN_SECOND);
         } else {
-            final Long prevLastTime = prevTimeLine.lower(m_firstMsgTime);
-            if (prevLastTime != null) {
+            final long prevLastTime = m_prevIntervalTimelines.getLastTimeBefore(messageInternalId, m_firstMsgTime);
+            if (prevLastTime != LastSeenTimelines.NO_TIME) {
                 m_gc.setTimeInMillis(prevLastTime);
                 sc.setStat("LastTime", String.valueOf(m_dataTypeFactory.newXMLGregorianCalendar(m_gc)));
                 final long delta = (m_firstMsgTime - prevLastTime) / DateTimeUtils.MILLIS_IN_SECOND;
                 m_deltasInSeconds.add(delta);
-                timeLineSet.add(prevLastTime);
+                addToTimeLine(prevLastTime);
             }
         }
     }
@@ -313,12 +380,10 @@ public class LastSeenLoggingScorerContinuous extends FixedMessageScorer {
     /**
      * Processes the current time line. 
      * @param timeLine Array of Short values with the time line of the message.
-     * @param timeLineSet time line of current message ID. 
      * @param contextElement AnalyzedInterval object that contains summary results of interval.
-     * @param millisPerTick Long value with number of milliseconds per tick. 
      */
 
-    public void processCurrentTimeLine(short[] timeLine, Set<Long> timeLineSet, IAnalyzedInterval contextElement){
+    public void processCurrentTimeLine(short[] timeLine, IAnalyzedInterval contextElement){
         final boolean hasTimeline = !ArrayUtils.isEmpty(timeLine);
         final long millisPerTick = contextElement.getInterval().getIntervalSize() / 
                 SummarizationProperties.TIMELINE_RESOLUTION;
@@ -334,11 +399,22 @@ public class LastSeenLoggingScorerContinuous extends FixedMessageScorer {
                 m_deltasInSeconds.add(delta / DateTimeUtils.MILLIS_IN_SECOND);
                 prevPos = pos;
 
-                timeLineSet.add(contextElement.getIntervalStartTime() + pos * millisPerTick);
+                addToTimeLine(contextElement.getIntervalStartTime() + pos * millisPerTick);
             }
         }
     }
 
+    /**
+     * Adds a time to the timeline of the message being scored.
+     * @param time milliseconds from epoch time.
+     */
+    private void addToTimeLine(long time) {
+        if (m_timeLineLength == m_timeLine.length) {
+            m_timeLine = Arrays.copyOf(m_timeLine, m_timeLine.length * 2);
+        }
+        m_timeLine[m_timeLineLength++] = time;
+    }
+
     /**
      * Enum class to keep track of timeline status of messages. 
      */
@@ -19,14 +19,14 @@
 */
 package org.openmainframe.ade.scores;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.PrintStream;
 import java.io.Serializable;
 import java.util.Arrays;
-import java.util.List;
 import java.util.Map.Entry;
 import java.util.TreeMap;
 
-import org.apache.commons.lang3.StringUtils;
 import org.openmainframe.ade.data.IAnalyzedInterval;
 import org.openmainframe.ade.data.IAnalyzedMessageSummary;
 import org.openmainframe.ade.exceptions.AdeException;
@@ -56,6 +56,9 @@ public class LastSeenScorer extends MessageScorer {
     private static final long serialVersionUID = 1L;
     
     private static final double DEFAULT_FOR_NEW = 0d;
+    private static final String DELTAS_STAT = LastSeenLoggingScorerContinuous.class.getSimpleName() + ".res";
+    /** The most digits of a delta that cannot overflow a long */
+    private static final int MAX_PARSED_DIGITS = 18;
     @Property(key = "minimalValueForTallesBin", help = "Minimal count for most common bin.  Less than this and no model will be created.", required = false)
     private int m_minimalMax = 10;
     @Property(key = "minimalConcentration", help = "minimal required average points per bin", required = false)
@@ -69,6 +72,10 @@ public class LastSeenScorer extends MessageScorer {
      * a new point will be considered anomaly if there is a significant
      * difference between the probability in the training points and the
      * point in question.
+     * <p>
+     * The points are counted, and the scores kept, in sorted primitive arrays
+     * rather than in maps of boxed values, since every scored message summary
+     * looks up each of its points.
      */
     private class PerodicityBounder implements Serializable {
         
@@ -81,6 +88,11 @@ public class LastSeenScorer extends MessageScorer {
          */
         private static final long serialVersionUID = 1L;
 
+        /**
+         * The number of points buffered before they are counted, at least.
+         */
+        private static final int MIN_PENDING_POINTS = 256;
+
         /**
          * Threshold for the minimal points per cluster.
          */
@@ -91,19 +103,34 @@ public class LastSeenScorer extends MessageScorer {
         boolean mTrained;
 
         /**
-         * Maps the time difference in seconds from the most recently seen message instance since some message 
-         * instance x with the same message id to the number of times this time difference has been seen.
+         * The distinct time differences in seconds from the most recently seen message instance since some
+         * message instance x with the same message id, in ascending order, and the number of times each time
+         * difference has been seen. Only the first mDistinctPoints entries are used. Used during training only.
          */
-        TreeMap<Long, Integer> mPointDifferences;
+        transient long[] mPointDifferences;
+        transient int[] mPointCounts;
+        transient int mDistinctPoints;
+        /**
+         * Points added since they were last counted into mPointDifferences. Used during training only.
+         */
+        transient long[] mPendingPoints;
+        transient int mNumPendingPoints;
         /**
          * The total number of points we have added.
          */
         int mPoints;
 
         /**
-         * Maps point/delta/ values to its score where score is the log of the ratio between max value 
-         * and a point's value. (max is the time difference that occurs the most in mPointDifferences and a 
-         * point's value is the number of occurrences for this time difference/point).
+         * The point/delta/ values that have a score, in ascending order, and their scores, where score is the
+         * log of the ratio between max value and a point's value. (max is the time difference that occurs the
+         * most in mPointDifferences and a point's value is the number of occurrences for this
+         * time difference/point).
+         */
+        private long[] m_scoredPoints;
+        private double[] m_scores;
+        /**
+         * Maps point/delta/ values to their score in models serialized before the scores were kept in
+         * m_scoredPoints and m_scores. Converted to them by readObject, so it is always null otherwise.
          */
         private TreeMap<Long, Double> m_pointScores;
         /**
@@ -121,8 +148,13 @@ public class LastSeenScorer extends MessageScorer {
         public PerodicityBounder() {
             mMinimalPointsPerCluster = 10;
             mTrained = false;
-            mPointDifferences = new TreeMap<Long, Integer>();
-            m_pointScores = null;
+            mPointDifferences = new long[0];
+            mPointCounts = new int[0];
+            mDistinctPoints = 0;
+            mPendingPoints = new long[MIN_PENDING_POINTS];
+            mNumPendingPoints = 0;
+            m_scoredPoints = null;
+            m_scores = null;
             mPoints = 0;
         }
 
@@ -133,7 +165,7 @@ public class LastSeenScorer extends MessageScorer {
          * occurred at time T then the other message instance time is less than time T and is the 
          * MOST RECENTLY seen message instance with this message id.
          */
-        public void addPoints(Long[] deltas) {
+        public void addPoints(long[] deltas) {
             if (deltas != null) {
                 for (long delta : deltas) {
                     addPoint(delta);
@@ -149,21 +181,24 @@ public class LastSeenScorer extends MessageScorer {
          */
         public void train(String name) {
             assert mTrained == false;
-            assert mPointDifferences.size() > 0;
+            countPendingPoints();
+            assert mDistinctPoints > 0;
             if (mPoints >= mMinimalPointsPerCluster) {
                 if (m_debugPrint) {
                     if (name != null) {
                         logger.info("trainig last seen model for "
                                 + name);
                     }
-                    for (Entry<Long, Integer> pointDiff : mPointDifferences.entrySet()) {
-                        logger.info("  " + pointDiff.getKey() + ", "
-                                + pointDiff.getValue());
+                    for (int i = 0; i < mDistinctPoints; ++i) {
+                        logger.info("  " + mPointDifferences[i] + ", "
+                                + mPointCounts[i]);
                     }
                 }
                 computeScores();
             }
-            mPointDifferences = null; 
+            mPointDifferences = null;
+            mPointCounts = null;
+            mPendingPoints = null;
             mTrained = true;
         }
 
@@ -179,15 +214,20 @@ public class LastSeenScorer extends MessageScorer {
             m_lMax = Math.log(max);
             m_llMax = -Math.log((double) max / mPoints);
             if (max > m_minimalMax
-                    && ((double) mPoints) / mPointDifferences.size() > m_minimalConcentration) {
-                m_pointScores = new TreeMap<Long, Double>();
-                for (Entry<Long, Integer> entry : mPointDifferences
-                        .entrySet()) {
-                    final Integer v = entry.getValue();
+                    && ((double) mPoints) / mDistinctPoints > m_minimalConcentration) {
+                final long[] scoredPoints = new long[mDistinctPoints];
+                final double[] scores = new double[mDistinctPoints];
+                int numScored = 0;
+                for (int i = 0; i < mDistinctPoints; ++i) {
+                    final int v = mPointCounts[i];
                     if (v > 1) {
-                        m_pointScores.put(entry.getKey(), m_lMax - Math.log(v));
+                        scoredPoints[numScored] = mPointDifferences[i];
+                        scores[numScored] = m_lMax - Math.log(v);
+                        ++numScored;
                     }
                 }
+                m_scoredPoints = Arrays.copyOf(scoredPoints, numScored);
+                m_scores = Arrays.copyOf(scores, numScored);
             }
 
         }
@@ -198,8 +238,8 @@ public class LastSeenScorer extends MessageScorer {
          */
         private int getMaxValue() {
             int max = 0;
-            for (Entry<Long, Integer> e : mPointDifferences.entrySet()) {
-                final int v = e.getValue();
+            for (int i = 0; i < mDistinctPoints; ++i) {
+                final int v = mPointCounts[i];
                 if (v > max) {
                     max = v;
                 }
@@ -216,28 +256,37 @@ public class LastSeenScorer extends MessageScorer {
          * MOST RECENTLY seen message instance with this message id.
          * @return the scores for each delta.
          */
-        public double[] getScore(Long[] deltas) {
+        public double[] getScore(long[] deltas) {
             if (deltas == null) {
                 return new double[0];
             }
             assert (deltas.length > 0);
-            if (m_pointScores == null) {
+            if (m_scoredPoints == null) {
                 return new double[0];
             }
             final double[] scores = new double[deltas.length];
             for (int idx = 0; idx < deltas.length; ++idx) {
-                Double score = m_pointScores.get(deltas[idx]);
+                double score = getPointScore(deltas[idx]);
                 if (idx > 0) { // if we have one extra message, 
-                    final Double skipScore = m_pointScores.get(deltas[idx - 1] + deltas[idx]);
-                    if (score == null || (skipScore != null && skipScore < score)) {
+                    final double skipScore = getPointScore(deltas[idx - 1] + deltas[idx]);
+                    if (Double.isNaN(score) || skipScore < score) {
                         score = skipScore;
                     }
                 }
-                scores[idx] = (score != null) ? score : getNeverSeenScore();
+                scores[idx] = !Double.isNaN(score) ? score : getNeverSeenScore();
             }
             return scores;
 
         }
+
+        /**
+         * @return the score computed for a point/delta, or NaN if it has none.
+         */
+        private double getPointScore(long delta) {
+            final int idx = Arrays.binarySearch(m_scoredPoints, delta);
+            return idx >= 0 ? m_scores[idx] : Double.NaN;
+        }
+
         /**
          * Retrieve the m_llMax variable.
          * @return The log of the ratio between the max point and the total number of points.
@@ -247,7 +296,7 @@ public class LastSeenScorer extends MessageScorer {
         }
 
         /**
-         * The score for a delta value that isn't in m_pointScores.
+         * The score for a delta value that isn't in m_scoredPoints.
          * @return log(.5) subtracted from the log of the max delta/value.
          */
         public double getNeverSeenScore() {
@@ -257,20 +306,80 @@ public class LastSeenScorer extends MessageScorer {
         /**
          * Add a new point to the sequence. We add to m_PointDifferences the difference in seconds from the 
          * last point and the count for how many of this time difference we have seen between any two
-         * consecutive message instances.
+         * consecutive message instances. The points are buffered, and counted when the buffer is full.
          * @param distanceFromLastPoint The number of seconds distance from the last point. i.e. the last
          * time this message instance occurred.
          */
         private void addPoint(long distanceFromLastPoint) {
             assert distanceFromLastPoint >= 0;
-            Integer count = mPointDifferences.get(distanceFromLastPoint);
-            if (count == null) {
-                count = 0;
+            if (mNumPendingPoints == mPendingPoints.length) {
+                countPendingPoints();
             }
-            mPointDifferences.put(distanceFromLastPoint, count + 1);
+            mPendingPoints[mNumPendingPoints++] = distanceFromLastPoint;
             mPoints++;
         }
 
+        /**
+         * Count the buffered points into mPointDifferences and mPointCounts, by sorting them and merging
+         * them with the points counted so far. The buffer is kept at least as large as the number of
+         * distinct points, so that the cost of merging is amortized over the points buffered.
+         */
+        private void countPendingPoints() {
+            if (mNumPendingPoints == 0) {
+                return;
+            }
+            Arrays.sort(mPendingPoints, 0, mNumPendingPoints);
+            final long[] points = new long[mDistinctPoints + mNumPendingPoints];
+            final int[] counts = new int[points.length];
+            int numPoints = 0;
+            int counted = 0;
+            int pending = 0;
+            while (counted < mDistinctPoints || pending < mNumPendingPoints) {
+                final long point;
+                int count = 0;
+                if (pending == mNumPendingPoints
+                        || (counted < mDistinctPoints && mPointDifferences[counted] <= mPendingPoints[pending])) {
+                    point = mPointDifferences[counted];
+                    count = mPointCounts[counted++];
+                } else {
+                    point = mPendingPoints[pending];
+                }
+                while (pending < mNumPendingPoints && mPendingPoints[pending] == point) {
+                    ++count;
+                    ++pending;
+                }
+                points[numPoints] = point;
+                counts[numPoints] = count;
+                ++numPoints;
+            }
+            mPointDifferences = Arrays.copyOf(points, numPoints);
+            mPointCounts = Arrays.copyOf(counts, numPoints);
+            mDistinctPoints = numPoints;
+            mNumPendingPoints = 0;
+            if (mPendingPoints.length < mDistinctPoints) {
+                mPendingPoints = new long[Integer.highestOneBit(mDistinctPoints) << 1];
+            }
+        }
+
+        /**
+         * Convert the point scores of a model serialized by an earlier version, which kept them in
+         * a map, to the arrays used for scoring.
+         */
+        private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+            in.defaultReadObject();
+            if (m_pointScores != null) {
+                m_scoredPoints = new long[m_pointScores.size()];
+                m_scores = new double[m_pointScores.size()];
+                int i = 0;
+                for (Entry<Long, Double> pointScore : m_pointScores.entrySet()) {
+                    m_scoredPoints[i] = pointScore.getKey();
+                    m_scores[i] = pointScore.getValue();
+                    ++i;
+                }
+                m_pointScores = null;
+            }
+        }
+
         /**
          * Print out the object state for debugging purposes.
          * @param name the message id
@@ -281,10 +390,10 @@ public class LastSeenScorer extends MessageScorer {
             if (name != null) {
                 out.println("Last seen model for " + name + ": " + getLLMax());
             }
-            if (m_pointScores != null && !m_pointScores.isEmpty()) {
-                for (Entry<Long, Double> pointScore : m_pointScores.entrySet()) {
-                    out.println("  " + pointScore.getKey() + ", "
-                            + pointScore.getValue());
+            if (m_scoredPoints != null && m_scoredPoints.length > 0) {
+                for (int i = 0; i < m_scoredPoints.length; ++i) {
+                    out.println("  " + m_scoredPoints[i] + ", "
+                            + m_scores[i]);
                 }
                 out.println("  missing, "
                         + -m_logHalf);
@@ -381,7 +490,7 @@ public class LastSeenScorer extends MessageScorer {
             throws AdeException, AdeFlowException {
         for (IAnalyzedMessageSummary ms : analyzedInterval.getAnalyzedMessages()) {
             final String messageId = ms.getMessageId();
-            final Long[] delta = extractDelta(ms);
+            final long[] delta = extractDelta(ms);
             PerodicityBounder perodicityBounder = m_lastSeen.get(messageId);
             if (perodicityBounder == null) {
                 perodicityBounder = new PerodicityBounder();
@@ -393,27 +502,76 @@ public class LastSeenScorer extends MessageScorer {
     /**
      * Gets the delta values (change in seconds between each message instance) calculated by the 
      * LastSeenLogginScoreContinuous class. Reformats the delta values so it the deltas are in an integer
-     * array.
+     * array. The deltas are formatted as a list, e.g. "[60, 5, 120]", and parsed in place since
+     * every scored message summary is parsed. The values may be separated by commas and spaces, and
+     * are read as by {@link Long#decode(String)}.
      * @param analyzedMessageSummary The analysis results of a MessageSummary object. Message summaries contain 
      * statistics and information on message instances. i.e. text body message, message id, severity, etc.
      * @return The delta values in an integer array.
      */
-    protected Long[] extractDelta(IAnalyzedMessageSummary ms) {
-        final String rawDelta = ms.getStatistics().getStringStat(
-                LastSeenLoggingScorerContinuous.class.getSimpleName() + "."
-                        + "res");
+    protected long[] extractDelta(IAnalyzedMessageSummary ms) {
+        final String rawDelta = ms.getStatistics().getStringStat(DELTAS_STAT);
         if (rawDelta.equals("[]")) {
             return null;
         }
-        final List<String> stringDelta = Arrays.asList(StringUtils.split(
-                StringUtils.substringBetween(rawDelta, "[", "]"), ", "));
-        final Long[] delta = new Long[stringDelta.size()];
-        for (int i = 0; i < stringDelta.size(); ++i) {
-            delta[i] = Long.decode(stringDelta.get(i));
+        final int start = rawDelta.indexOf('[') + 1;
+        final int end = start == 0 ? -1 : rawDelta.indexOf(']', start);
+        if (end < 0) {
+            throw new NumberFormatException("Invalid deltas " + rawDelta);
+        }
+        int numDeltas = 0;
+        for (int pos = start; pos < end; ++pos) {
+            if (!isDeltaSeparator(rawDelta.charAt(pos))
+                    && (pos == start || isDeltaSeparator(rawDelta.charAt(pos - 1)))) {
+                ++numDeltas;
+            }
+        }
+        final long[] delta = new long[numDeltas];
+        numDeltas = 0;
+        int pos = start;
+        while (pos < end) {
+            if (isDeltaSeparator(rawDelta.charAt(pos))) {
+                ++pos;
+                continue;
+            }
+            int next = pos + 1;
+            while (next < end && !isDeltaSeparator(rawDelta.charAt(next))) {
+                ++next;
+            }
+            delta[numDeltas++] = parseDelta(rawDelta, pos, next);
+            pos = next;
         }
         return delta;
     }
 
+    private static boolean isDeltaSeparator(char c) {
+        return c == ',' || c == ' ';
+    }
+
+    /**
+     * Parse a delta value between the given positions of a string. Decimal values, as written by
+     * LastSeenLoggingScorerContinuous, are parsed in place, and others by {@link Long#decode(String)}.
+     */
+    private static long parseDelta(String rawDelta, int start, int end) {
+        int pos = start;
+        if (rawDelta.charAt(pos) == '-') {
+            ++pos;
+        }
+        final int digits = end - pos;
+        if (digits == 0 || digits > MAX_PARSED_DIGITS || digits > 1 && rawDelta.charAt(pos) == '0') {
+            return Long.decode(rawDelta.substring(start, end));
+        }
+        long value = 0;
+        for (; pos < end; ++pos) {
+            final char c = rawDelta.charAt(pos);
+            if (c < '0' || c > '9') {
+                return Long.decode(rawDelta.substring(start, end));
+            }
+            value = value * 10 + (c - '0');
+        }
+        return rawDelta.charAt(start) == '-' ? -value : value;
+    }
+
     /**
      * At the end of the stream, get all the message ids and run a train for each
      * message id.
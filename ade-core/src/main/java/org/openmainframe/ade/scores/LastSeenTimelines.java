@@ -0,0 +1,197 @@
+/*
+ 
+    Copyright IBM Corp. 2016
+    This file is part of Anomaly Detection Engine for Linux Logs (ADE).
+
+    ADE is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    ADE is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with ADE.  If not, see <http://www.gnu.org/licenses/>.
+ 
+*/
+package org.openmainframe.ade.scores;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+import org.openmainframe.ade.summary.SummarizationProperties;
+
+/**
+ * The previous timeline of each message id, as kept by {@link LastSeenLoggingScorerContinuous} from
+ * one interval to the next: the times, in milliseconds from epoch time, the message id appeared in the
+ * last interval it appeared in, and the time it appeared before that.
+ * <p>
+ * The timelines are kept in primitive arrays keyed by internal message id in an open addressing table.
+ * A timeline is bounded by the timeline resolution of an interval, and its array is reused when the
+ * message id appears again, so the memory used depends only on the number of message ids kept. Message
+ * ids not seen for a while can be evicted with {@link #evictOlderThan(long)}.
+ */
+final class LastSeenTimelines implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The maximal length of a timeline: one time per tick of an interval, and the time before.
+     */
+    static final int MAX_TIMELINE_LENGTH = SummarizationProperties.TIMELINE_RESOLUTION + 1;
+
+    /**
+     * Returned by {@link #getLastTimeBefore(int, long)} when there is no such time.
+     */
+    static final long NO_TIME = Long.MIN_VALUE;
+
+    private static final int EMPTY = -1;
+    private static final int MIN_CAPACITY = 16;
+
+    /**
+     * The internal message ids, or EMPTY, and in the same slots their timelines in ascending order
+     * and the lengths of the timelines.
+     */
+    private int[] m_messageIds;
+    private long[][] m_timelines;
+    private int[] m_lengths;
+    private int m_size;
+
+    LastSeenTimelines() {
+        allocate(MIN_CAPACITY);
+    }
+
+    /**
+     * @return the number of message ids with a timeline.
+     */
+    int size() {
+        return m_size;
+    }
+
+    boolean contains(int messageId) {
+        return m_messageIds[find(messageId)] != EMPTY;
+    }
+
+    /**
+     * @return the latest time of the timeline of a message id that is before the given time, or
+     * {@link #NO_TIME} if there is none.
+     */
+    long getLastTimeBefore(int messageId, long time) {
+        final int slot = find(messageId);
+        if (m_messageIds[slot] == EMPTY) {
+            return NO_TIME;
+        }
+        int idx = Arrays.binarySearch(m_timelines[slot], 0, m_lengths[slot], time);
+        // the index of the first time that is not before the given time
+        idx = idx >= 0 ? idx : -idx - 1;
+        return idx > 0 ? m_timelines[slot][idx - 1] : NO_TIME;
+    }
+
+    /**
+     * Replaces the timeline of a message id.
+     * @param times the times of the timeline, in any order. The array is sorted in place. Duplicates
+     * are ignored, and only the {@value #MAX_TIMELINE_LENGTH} latest times are kept.
+     * @param length the number of times to take from the array, at least one.
+     */
+    void put(int messageId, long[] times, int length) {
+        if (messageId < 0) {
+            throw new IllegalArgumentException("Negative message id " + messageId);
+        }
+        if (length <= 0) {
+            throw new IllegalArgumentException("Empty timeline for message id " + messageId);
+        }
+        int slot = find(messageId);
+        if (m_messageIds[slot] == EMPTY) {
+            if ((m_size + 1) * 2 > m_messageIds.length) {
+                rehash(m_messageIds.length * 2);
+                slot = find(messageId);
+            }
+            m_messageIds[slot] = messageId;
+            ++m_size;
+        }
+
+        long[] timeline = m_timelines[slot];
+        if (timeline == null || timeline.length < Math.min(length, MAX_TIMELINE_LENGTH)) {
+            timeline = new long[Math.min(length, MAX_TIMELINE_LENGTH)];
+            m_timelines[slot] = timeline;
+        }
+        Arrays.sort(times, 0, length);
+        // keep the latest distinct times, filling the timeline from its end
+        int kept = 0;
+        for (int i = length - 1; i >= 0 && kept < timeline.length; --i) {
+            if (i == length - 1 || times[i] != times[i + 1]) {
+                timeline[timeline.length - 1 - kept++] = times[i];
+            }
+        }
+        System.arraycopy(timeline, timeline.length - kept, timeline, 0, kept);
+        m_lengths[slot] = kept;
+    }
+
+    /**
+     * Removes the timelines whose latest time is before the given time.
+     * @return the number of timelines removed.
+     */
+    int evictOlderThan(long time) {
+        int evicted = 0;
+        for (int slot = 0; slot < m_messageIds.length; ++slot) {
+            if (m_messageIds[slot] != EMPTY && m_timelines[slot][m_lengths[slot] - 1] < time) {
+                m_messageIds[slot] = EMPTY;
+                m_timelines[slot] = null;
+                ++evicted;
+            }
+        }
+        if (evicted > 0) {
+            m_size -= evicted;
+            // the probe sequences may be broken, and the table is shrunk if it got sparse
+            int capacity = MIN_CAPACITY;
+            while (capacity < m_size * 4) {
+                capacity <<= 1;
+            }
+            rehash(Math.min(capacity, m_messageIds.length));
+        }
+        return evicted;
+    }
+
+    void clear() {
+        allocate(MIN_CAPACITY);
+        m_size = 0;
+    }
+
+    /**
+     * @return the slot of a message id, or the empty slot it would be put in.
+     */
+    private int find(int messageId) {
+        final int mask = m_messageIds.length - 1;
+        final int hash = messageId * 0x9E3779B9;
+        int slot = (hash ^ (hash >>> 16)) & mask;
+        while (m_messageIds[slot] != EMPTY && m_messageIds[slot] != messageId) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void allocate(int capacity) {
+        m_messageIds = new int[capacity];
+        Arrays.fill(m_messageIds, EMPTY);
+        m_timelines = new long[capacity][];
+        m_lengths = new int[capacity];
+    }
+
+    private void rehash(int capacity) {
+        final int[] messageIds = m_messageIds;
+        final long[][] timelines = m_timelines;
+        final int[] lengths = m_lengths;
+        allocate(capacity);
+        for (int i = 0; i < messageIds.length; ++i) {
+            if (messageIds[i] != EMPTY) {
+                final int slot = find(messageIds[i]);
+                m_messageIds[slot] = messageIds[i];
+                m_timelines[slot] = timelines[i];
+                m_lengths[slot] = lengths[i];
+            }
+        }
+    }
+}
@@ -21,6 +21,8 @@ package org.openmainframe.ade.scores;
 
 import java.io.PrintStream;
 import java.io.Serializable;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Map.Entry;
 import java.util.SortedMap;
 import java.util.TreeMap;
@@ -32,6 +34,8 @@ import org.openmainframe.ade.exceptions.AdeFlowException;
 import org.openmainframe.ade.exceptions.AdeInternalException;
 import org.openmainframe.ade.exceptions.AdeUsageException;
 import org.openmainframe.ade.impl.PropertyAnnotation.Property;
+import org.openmainframe.ade.scoringApi.IStatisticsTrainable;
+import org.openmainframe.ade.scoringApi.ITrainingStatistics;
 import org.openmainframe.ade.scoringApi.MessageScorer;
 import org.openmainframe.ade.scoringApi.StatisticsChart;
 import org.openmainframe.ade.utils.IStructuredOutputWriter;
@@ -39,7 +43,7 @@ import org.openmainframe.ade.utils.IStructuredOutputWriter;
 /**
  * Calculate the log probability and related statistics for normally distributed message instances.
  */
-public class LogNormalScore extends MessageScorer {
+public class LogNormalScore extends MessageScorer implements IStatisticsTrainable {
 
     /**
      * Constants for StatisticsChart.
@@ -104,6 +108,72 @@ public class LogNormalScore extends MessageScorer {
         }
     }
 
+    /**
+     * The training statistics: per message id, the counters of {@link MsgData}, and the number of
+     * intervals it appears in a given number of times out of context. The sum of the logs of the
+     * numbers of appearances is calculated from the latter in training, so that it does not depend
+     * on the order in which intervals are counted and statistics are merged.
+     */
+    static public class TrainingStatistics extends MessageCountStatistics {
+        private static final long serialVersionUID = 1L;
+
+        static final int INTERVAL_COUNT = 0;
+        static final int ALL_COUNT = 1;
+        static final int INTERVAL_ALL_COUNT = 2;
+        static final int MAX_NUM_APPEARANCE = 3;
+
+        private final SortedMap<String, SortedMap<Integer, Integer>> m_numAppearances =
+                new TreeMap<String, SortedMap<Integer, Integer>>();
+
+        public TrainingStatistics() {
+            super(4);
+        }
+
+        /**
+         * Counts an interval a message id appears in the given number of times out of context.
+         */
+        public final void addNumAppearances(String msgId, int numAppearances) {
+            addNumAppearances(msgId, numAppearances, 1);
+        }
+
+        /**
+         * @return the number of intervals a message id appears in out of context, by the number of times it
+         *     appears in them, null if it never appears out of context.
+         */
+        public final SortedMap<Integer, Integer> getNumAppearances(String msgId) {
+            return m_numAppearances.get(msgId);
+        }
+
+        private void addNumAppearances(String msgId, int numAppearances, int intervals) {
+            SortedMap<Integer, Integer> counts = m_numAppearances.get(msgId);
+            if (counts == null) {
+                counts = new TreeMap<Integer, Integer>();
+                m_numAppearances.put(msgId, counts);
+            }
+            final Integer count = counts.get(numAppearances);
+            counts.put(numAppearances, count == null ? intervals : count + intervals);
+        }
+
+        @Override
+        public void merge(ITrainingStatistics other) throws AdeException {
+            super.merge(other);
+            for (Entry<String, SortedMap<Integer, Integer>> msg
+                    : ((TrainingStatistics) other).m_numAppearances.entrySet()) {
+                for (Entry<Integer, Integer> entry : msg.getValue().entrySet()) {
+                    addNumAppearances(msg.getKey(), entry.getKey(), entry.getValue());
+                }
+            }
+        }
+
+        @Override
+        protected void mergeCounters(String msgId, int[] counters, int[] otherCounters) {
+            counters[INTERVAL_COUNT] += otherCounters[INTERVAL_COUNT];
+            counters[ALL_COUNT] += otherCounters[ALL_COUNT];
+            counters[INTERVAL_ALL_COUNT] += otherCounters[INTERVAL_ALL_COUNT];
+            counters[MAX_NUM_APPEARANCE] = Math.max(counters[MAX_NUM_APPEARANCE], otherCounters[MAX_NUM_APPEARANCE]);
+        }
+    }
+
     /**
      * Mapping from message id to its message data.
      */
@@ -134,6 +204,9 @@ public class LogNormalScore extends MessageScorer {
      */
     private Double m_newMessageLambda = null;
 
+    /** The statistics of the intervals of the current training iteration */
+    private transient ITrainingStatistics m_trainingStatistics = null;
+
     /**
      * Retrieves the property value for m_newMessageMeanNumAppear and use it to calculate
      * the new message lambda value.
@@ -173,48 +246,95 @@ public class LogNormalScore extends MessageScorer {
         if (m_trained) {
             throw new AdeInternalException("Already trained");
         }
-        m_msgData = new TreeMap<String, MsgData>();
-        m_totalIntervalCount = 0;
-        m_minLambda = 1.0;
+        m_trainingStatistics = newTrainingStatistics();
+    }
+
+    @Override
+    public void incomingObject(IAnalyzedInterval analyzedInterval) throws AdeException {
+        accumulate(m_trainingStatistics, analyzedInterval);
     }
 
     /**
-     * Create MsgData objects for each message id in an analyzed interval. If the message is not in a cluster, then we 
-     * add to the total log value of the number of messages in an interval, and interval count. For all messages, we keep 
-     * track of the total number of message instances, and the max number of appearances this message instance has appeared 
+     * At the end of the stream, train from the statistics of the intervals.
+     */
+    @Override
+    public void endOfStream() throws AdeException {
+        train(m_trainingStatistics);
+        m_trainingStatistics = null;
+    }
+
+    @Override
+    public ITrainingStatistics newTrainingStatistics() {
+        return new TrainingStatistics();
+    }
+
+    /**
+     * Count the message ids of an analyzed interval. If the message is not in a cluster, then we count
+     * its number of appearances, and the interval. For all messages, we keep track of the total number of
+     * message instances, and the max number of appearances this message instance has appeared 
      * over all intervals.
+     * @param statistics the statistics to add the interval to.
      * @param analyzedInterval contains interval summary
      */
     @Override
-    public void incomingObject(IAnalyzedInterval analyzedInterval) throws AdeException {
+    public void accumulate(ITrainingStatistics statistics, IAnalyzedInterval analyzedInterval) throws AdeException {
+        final TrainingStatistics stats = (TrainingStatistics) statistics;
         for (IAnalyzedMessageSummary ams : analyzedInterval.getAnalyzedMessages()) {
             final String id = ams.getMessageId();
+            final int numAppearances = ams.getNumberOfAppearances();
 
-            MsgData data = m_msgData.get(id);
-            if (data == null) {
-                data = new MsgData();
-                m_msgData.put(id, data);
-            }
+            final int[] counters = stats.getCounters(id);
             if (!isClustered(ams)) {
-                data.m_totalLogCounts += Math.log(ams.getNumberOfAppearances());
-                data.m_intervalCount++;
+                stats.addNumAppearances(id, numAppearances);
+                counters[TrainingStatistics.INTERVAL_COUNT]++;
             }
-            data.m_allCount += ams.getNumberOfAppearances();
-            data.m_intervalAllCount++;
-            if (data.m_maxNumAppearance < ams.getNumberOfAppearances()) {
-                data.m_maxNumAppearance = ams.getNumberOfAppearances();
+            counters[TrainingStatistics.ALL_COUNT] += numAppearances;
+            counters[TrainingStatistics.INTERVAL_ALL_COUNT]++;
+            if (counters[TrainingStatistics.MAX_NUM_APPEARANCE] < numAppearances) {
+                counters[TrainingStatistics.MAX_NUM_APPEARANCE] = numAppearances;
             }
         }
-        ++m_totalIntervalCount;
+        stats.addInterval();
     }
+
+    @Override
+    public Collection<String> getTrainingInputScorers() {
+        if (m_baseScorer == null) {
+            return Collections.emptyList();
+        }
+        return Collections.singletonList(m_baseScorer);
+    }
+
     /**
-     * At the end of the stream, for all the message data we've collected,
-     * we calculate the lamba value and determine if the message data
-     * is a "bad fit" i.e. the log probability is greater than or equal to some 
+     * For all the message data of the statistics, we calculate the lamba value and determine if
+     * the message data is a "bad fit" i.e. the log probability is greater than or equal to some 
      * threshold.
+     * @param statistics the statistics of all the training intervals.
      */
     @Override
-    public void endOfStream() throws AdeException {
+    public void train(ITrainingStatistics statistics) throws AdeException {
+        if (m_trained) {
+            throw new AdeInternalException("Already trained");
+        }
+        final TrainingStatistics stats = (TrainingStatistics) statistics;
+        m_msgData = new TreeMap<String, MsgData>();
+        for (Entry<String, int[]> entry : stats.getAllCounters().entrySet()) {
+            final int[] counters = entry.getValue();
+            final MsgData data = new MsgData();
+            final SortedMap<Integer, Integer> numAppearances = stats.getNumAppearances(entry.getKey());
+            if (numAppearances != null) {
+                for (Entry<Integer, Integer> count : numAppearances.entrySet()) {
+                    data.m_totalLogCounts += count.getValue() * Math.log(count.getKey());
+                }
+            }
+            data.m_intervalCount = counters[TrainingStatistics.INTERVAL_COUNT];
+            data.m_allCount = counters[TrainingStatistics.ALL_COUNT];
+            data.m_intervalAllCount = counters[TrainingStatistics.INTERVAL_ALL_COUNT];
+            data.m_maxNumAppearance = counters[TrainingStatistics.MAX_NUM_APPEARANCE];
+            m_msgData.put(entry.getKey(), data);
+        }
+        m_totalIntervalCount = stats.getIntervalCount();
+        m_minLambda = 1.0;
         for (MsgData data : m_msgData.values()) {
             if (data.m_totalLogCounts > 0) {
                 data.m_lambda = data.m_totalLogCounts / data.m_intervalCount;
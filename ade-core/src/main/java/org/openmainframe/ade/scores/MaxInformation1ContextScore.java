@@ -20,11 +20,12 @@
 package org.openmainframe.ade.scores;
 
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
-import java.util.Map.Entry;
-import java.util.Set;
+import java.util.List;
 
+import org.openmainframe.ade.core.IntPairCounter;
 import org.openmainframe.ade.data.IAnalyzedInterval;
 import org.openmainframe.ade.data.IAnalyzedMessageSummary;
 import org.openmainframe.ade.exceptions.AdeException;
@@ -40,7 +41,10 @@ public class MaxInformation1ContextScore extends MessageScorer {
 
         private String m_key;
         private static final long serialVersionUID = 1L;
-        private HashMap<String, Integer> m_coOccurance;
+        /** The dense index of the message id, used during training */
+        private transient int m_index;
+        /** The message internal id, breaking ties between equally good pairs during training */
+        private transient int m_internalId;
         private int m_totalCount;
         private String m_bestPair;
         private Double[] m_probsWithoutPair;
@@ -48,10 +52,11 @@ public class MaxInformation1ContextScore extends MessageScorer {
         private double m_entropy;
         private Double m_infoGain;
 
-        public MsgData(String key) {
+        public MsgData(String key, int index, int internalId) {
             super();
             m_key = key;
-            m_coOccurance = new HashMap<String, Integer>();
+            m_index = index;
+            m_internalId = internalId;
             m_probsWithPair = new Double[2];
             m_probsWithoutPair = new Double[2];
             m_totalCount = 0;
@@ -62,49 +67,49 @@ public class MaxInformation1ContextScore extends MessageScorer {
         }
 
         public void endOfStream() {
-            m_totalCount = m_coOccurance.get(getKey());
+            m_totalCount = getCount(m_index);
             m_entropy = calcEntropy(((double) m_totalCount) / m_totalIntervals);
         }
 
+        /**
+         * Finds the co-occurring message that leaves the least conditional entropy, i.e. with the top
+         * info gain. Equally good pairs are common, e.g. messages that always appear together, and the
+         * one with the lowest message internal id is kept, so the choice does not depend on the order
+         * the pairs are visited in.
+         */
         public String locateBestPair() throws AdeInternalException {
-            // go over all the matrix, and calculate the infoGain for each pair.  remember the top infoGain. 
-            Double minCondEntropy = Double.MAX_VALUE;
-            String bestKey = null;
-            Double conditionalEntropy = null;
-            for (String otherKey : keySet()) {
-                if (otherKey.equals(getKey())) {
+            double minCondEntropy = Double.MAX_VALUE;
+            int bestIndex = -1;
+            for (int otherIndex : m_coOccurrence.getRowColumns(m_index)) {
+                if (otherIndex == m_index) {
                     continue;
                 }
-                conditionalEntropy = calcConditionalEntropy(otherKey);
+                final double conditionalEntropy = calcConditionalEntropy(otherIndex);
 
-                if (conditionalEntropy < minCondEntropy) {
-                    bestKey = otherKey;
+                if (conditionalEntropy < minCondEntropy
+                        || conditionalEntropy == minCondEntropy && bestIndex >= 0
+                        && m_trainData.get(otherIndex).m_internalId < m_trainData.get(bestIndex).m_internalId) {
+                    bestIndex = otherIndex;
                     minCondEntropy = conditionalEntropy;
                 }
             }
 
-            setBestPair(bestKey, conditionalEntropy);
-            return bestKey;
-        }
-
-        // sets the best pair and the relevant probabilities.
-        @SuppressWarnings("unused")
-        public void setBestPair(String key) {
-            double pairEntropy = calcConditionalEntropy(key);
-            setBestPair(key, pairEntropy);
+            setBestPair(bestIndex, minCondEntropy);
+            return m_bestPair;
         }
 
         // sets the best pair and the relevant probabilities.
-        public void setBestPair(String key, Double pairEntropy) {
-            this.m_bestPair = key;
-
-            if (key == null) {
+        private void setBestPair(int index, double pairEntropy) {
+            if (index < 0) {
+                this.m_bestPair = null;
                 setProbsWithMate(getTotalCount(), m_totalIntervals);
                 setProbsWithoutMate(getTotalCount(), m_totalIntervals);
                 m_infoGain = 0.0;
             } else {
-                Integer coOccor = m_coOccurance.get(key);
-                Integer totalCountBestPair = m_data.get(key).getTotalCount();
+                final MsgData bestPair = m_trainData.get(index);
+                this.m_bestPair = bestPair.getKey();
+                final int coOccor = getCount(index);
+                final int totalCountBestPair = bestPair.getTotalCount();
                 setProbsWithMate(coOccor, totalCountBestPair);
                 setProbsWithoutMate(getTotalCount() - coOccor, m_totalIntervals - totalCountBestPair);
                 m_infoGain = (getEntropy() - pairEntropy) / getEntropy() * 100.0;
@@ -114,22 +119,19 @@ public class MaxInformation1ContextScore extends MessageScorer {
         /*
          * calc the joined entropy of 
          */
-        private double calcJoinedEntropy(String otherKey) {
-            //      data.
-            //      ,
-            //      
-
-            double p1 = getCount(otherKey).doubleValue() / m_totalIntervals;
-            double p2 = (((double) getTotalCount()) - m_coOccurance.get(otherKey)) / m_totalIntervals;
-            double p3 = (((double) m_data.get(otherKey).getTotalCount()) - m_coOccurance.get(otherKey)) / m_totalIntervals;
+        private double calcJoinedEntropy(int otherIndex) {
+            final int coOccor = getCount(otherIndex);
+            double p1 = ((double) coOccor) / m_totalIntervals;
+            double p2 = (((double) getTotalCount()) - coOccor) / m_totalIntervals;
+            double p3 = (((double) m_trainData.get(otherIndex).getTotalCount()) - coOccor) / m_totalIntervals;
             double p4 = 1 - p1 - p2 - p3;
             return -(p1 * Math.log(p1 + Double.MIN_NORMAL) + p2 * Math.log(p2 + Double.MIN_NORMAL) + p3 * Math.log(p3 + Double.MIN_NORMAL) + p4 * Math.log(p4 + Double.MIN_NORMAL));
         }
 
-        public double calcConditionalEntropy(String otherKey) {
+        public double calcConditionalEntropy(int otherIndex) {
 
-            double entropy = m_data.get(otherKey).getEntropy();
-            return calcJoinedEntropy(otherKey) - entropy;
+            double entropy = m_trainData.get(otherIndex).getEntropy();
+            return calcJoinedEntropy(otherIndex) - entropy;
         }
 
         private double getEntropy() {
@@ -144,8 +146,8 @@ public class MaxInformation1ContextScore extends MessageScorer {
             return m_probsWithPair[see ? 1 : 0];
         }
 
-        public void setProbsWithMate(Integer countSeeGivenSee, Integer totalCountBestPair) {
-            Double probSeeGivenSee = (countSeeGivenSee.doubleValue() + 0.5) / (totalCountBestPair.doubleValue() + 0.5);
+        public void setProbsWithMate(int countSeeGivenSee, int totalCountBestPair) {
+            Double probSeeGivenSee = (((double) countSeeGivenSee) + 0.5) / (((double) totalCountBestPair) + 0.5);
             this.m_probsWithPair[0] = 1 - probSeeGivenSee;
             this.m_probsWithPair[1] = probSeeGivenSee;
         }
@@ -154,8 +156,8 @@ public class MaxInformation1ContextScore extends MessageScorer {
             return m_probsWithoutPair[see ? 1 : 0];
         }
 
-        public void setProbsWithoutMate(Integer countSeeGivenNoSee, Integer totalCountNoBestPair) {
-            Double probSeeGivenNoSee = (countSeeGivenNoSee.doubleValue() + 0.5) / (totalCountNoBestPair.doubleValue() + 0.5);
+        public void setProbsWithoutMate(int countSeeGivenNoSee, int totalCountNoBestPair) {
+            Double probSeeGivenNoSee = (((double) countSeeGivenNoSee) + 0.5) / (((double) totalCountNoBestPair) + 0.5);
             this.m_probsWithoutPair[0] = 1 - probSeeGivenNoSee;
             this.m_probsWithoutPair[1] = probSeeGivenNoSee;
         }
@@ -172,38 +174,8 @@ public class MaxInformation1ContextScore extends MessageScorer {
             return m_totalCount;
         }
 
-        public void addCount(String key) {
-            Integer count = m_coOccurance.get(key);
-            if (count == null) {
-                count = Integer.valueOf(0);
-            }
-            ++count;
-            m_coOccurance.put(key, count);
-
-        }
-
-        public Integer getCount(String key) {
-            Integer count = m_coOccurance.get(key);
-            if (count == null) {
-                count = 0;
-            }
-            return count;
-        }
-
-        @SuppressWarnings("unused")
-        public Set<Entry<String, Integer>> entrySet() {
-            return m_coOccurance.entrySet();
-        }
-
-        public Collection<String> keySet() {
-            return m_coOccurance.keySet();
-        }
-
-        /*
-         * clear data needed only for train.
-         */
-        public void clearTrainData() {
-            m_coOccurance = null;
+        private int getCount(int otherIndex) {
+            return m_coOccurrence.get(m_index, otherIndex);
         }
     }
 
@@ -216,6 +188,14 @@ public class MaxInformation1ContextScore extends MessageScorer {
     private int m_totalIntervals;
     private HashMap<String, MsgData> m_data;
 
+    /*
+     * Training data. The message ids are given dense indices, so that co-occurrences
+     * are counted by index pairs instead of in a map of boxed counters per message id.
+     */
+    private transient HashMap<String, Integer> m_trainIndices;
+    private transient List<MsgData> m_trainData;
+    private transient IntPairCounter m_coOccurrence;
+
     // private 
     public MaxInformation1ContextScore() {
         super();
@@ -226,12 +206,16 @@ public class MaxInformation1ContextScore extends MessageScorer {
         super.reset();
         m_doneTrain = false;
         m_data = null;
+        clearTrainData();
         m_totalIntervals = 0;
     }
 
     @Override
     public void startIteration() throws AdeException {
         m_data = new HashMap<String, MsgData>();
+        m_trainIndices = new HashMap<String, Integer>();
+        m_trainData = new ArrayList<MsgData>();
+        m_coOccurrence = new IntPairCounter();
     }
 
     @Override
@@ -269,11 +253,15 @@ public class MaxInformation1ContextScore extends MessageScorer {
 
     @Override
     public void incomingObject(IAnalyzedInterval obj) throws AdeException {
-        for (IAnalyzedMessageSummary i : obj.getAnalyzedMessages()) {
-            String messageId1 = i.getMessageId();
-            for (IAnalyzedMessageSummary j : obj.getAnalyzedMessages()) {
-                String messageId2 = j.getMessageId();
-                addCoOccurance(messageId1, messageId2);
+        final Collection<IAnalyzedMessageSummary> messages = obj.getAnalyzedMessages();
+        final int[] indices = new int[messages.size()];
+        int count = 0;
+        for (IAnalyzedMessageSummary i : messages) {
+            indices[count++] = getTrainIndex(i);
+        }
+        for (int i = 0; i < count; ++i) {
+            for (int j = 0; j < count; ++j) {
+                m_coOccurrence.add(indices[i], indices[j]);
             }
         }
         ++m_totalIntervals;
@@ -281,13 +269,17 @@ public class MaxInformation1ContextScore extends MessageScorer {
         return;
     }
 
-    private void addCoOccurance(String messageId1, String messageId2) {
-        MsgData m = m_data.get(messageId1);
-        if (m == null) {
-            m = new MsgData(messageId1);
-            m_data.put(messageId1, m);
+    private int getTrainIndex(IAnalyzedMessageSummary ams) throws AdeException {
+        final String messageId = ams.getMessageId();
+        Integer index = m_trainIndices.get(messageId);
+        if (index == null) {
+            index = m_trainData.size();
+            m_trainIndices.put(messageId, index);
+            final MsgData m = new MsgData(messageId, index, ams.getMessageSummary().getMessageInternalId());
+            m_trainData.add(m);
+            m_data.put(messageId, m);
         }
-        m.addCount(messageId2);
+        return index;
     }
 
     private double calcEntropy(double prob) {
@@ -296,16 +288,25 @@ public class MaxInformation1ContextScore extends MessageScorer {
 
     @Override
     public void endOfStream() throws AdeException {
-        for (MsgData data : m_data.values()) {
+        for (MsgData data : m_trainData) {
             data.endOfStream();
         }
-        for (MsgData data : m_data.values()) {
+        for (MsgData data : m_trainData) {
             data.locateBestPair();
-            data.clearTrainData();
         }
+        clearTrainData();
         m_doneTrain = true;
     }
 
+    /*
+     * clear data needed only for train.
+     */
+    private void clearTrainData() {
+        m_trainIndices = null;
+        m_trainData = null;
+        m_coOccurrence = null;
+    }
+
     @Override
     public void printMessageUserData(IStructuredOutputWriter out, String msgId) throws Exception {
         MsgData data;
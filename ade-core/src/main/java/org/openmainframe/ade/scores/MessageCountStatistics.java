@@ -0,0 +1,99 @@
+/*
+ 
+    Copyright IBM Corp. 2016
+    This file is part of Anomaly Detection Engine for Linux Logs (ADE).
+
+    ADE is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    ADE is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with ADE.  If not, see <http://www.gnu.org/licenses/>.
+ 
+*/
+package org.openmainframe.ade.scores;
+
+import java.util.Collections;
+import java.util.Map.Entry;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import org.openmainframe.ade.exceptions.AdeException;
+import org.openmainframe.ade.exceptions.AdeInternalException;
+import org.openmainframe.ade.scoringApi.ITrainingStatistics;
+
+/**
+ * Training statistics made of the number of training intervals, and a fixed number of int counters
+ * per message id. Merging adds the counters, unless a subclass merges some of them otherwise.
+ */
+public class MessageCountStatistics implements ITrainingStatistics {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int m_counterCount;
+    private int m_intervalCount = 0;
+    private final SortedMap<String, int[]> m_counters = new TreeMap<String, int[]>();
+
+    /**
+     * @param counterCount the number of counters of each message id.
+     */
+    public MessageCountStatistics(int counterCount) {
+        m_counterCount = counterCount;
+    }
+
+    public final void addInterval() {
+        ++m_intervalCount;
+    }
+
+    public final int getIntervalCount() {
+        return m_intervalCount;
+    }
+
+    /**
+     * @return the counters of a message id, which are added as zeros if it was not counted yet.
+     */
+    public final int[] getCounters(String msgId) {
+        int[] res = m_counters.get(msgId);
+        if (res == null) {
+            res = new int[m_counterCount];
+            m_counters.put(msgId, res);
+        }
+        return res;
+    }
+
+    /**
+     * @return the counters of all the message ids, by message id.
+     */
+    public final SortedMap<String, int[]> getAllCounters() {
+        return Collections.unmodifiableSortedMap(m_counters);
+    }
+
+    @Override
+    public void merge(ITrainingStatistics other) throws AdeException {
+        if (other.getClass() != getClass()
+                || ((MessageCountStatistics) other).m_counterCount != m_counterCount) {
+            throw new AdeInternalException("Cannot merge " + other.getClass().getName() + " into "
+                    + getClass().getName());
+        }
+        final MessageCountStatistics stats = (MessageCountStatistics) other;
+        m_intervalCount += stats.m_intervalCount;
+        for (Entry<String, int[]> entry : stats.m_counters.entrySet()) {
+            mergeCounters(entry.getKey(), getCounters(entry.getKey()), entry.getValue());
+        }
+    }
+
+    /**
+     * Merges the counters of a message id in other statistics into its counters in these ones.
+     */
+    protected void mergeCounters(String msgId, int[] counters, int[] otherCounters) {
+        for (int i = 0; i < m_counterCount; ++i) {
+            counters[i] += otherCounters[i];
+        }
+    }
+}
@@ -21,6 +21,8 @@ package org.openmainframe.ade.scores;
 
 import java.io.PrintStream;
 import java.io.Serializable;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Map.Entry;
 import java.util.SortedMap;
 import java.util.TreeMap;
@@ -32,11 +34,13 @@ import org.openmainframe.ade.exceptions.AdeFlowException;
 import org.openmainframe.ade.exceptions.AdeInternalException;
 import org.openmainframe.ade.impl.PropertyAnnotation.Property;
 import org.openmainframe.ade.impl.utils.MathUtils;
+import org.openmainframe.ade.scoringApi.IStatisticsTrainable;
+import org.openmainframe.ade.scoringApi.ITrainingStatistics;
 import org.openmainframe.ade.scoringApi.MessageScorer;
 import org.openmainframe.ade.scoringApi.StatisticsChart;
 import org.openmainframe.ade.utils.IStructuredOutputWriter;
 
-public class PoissonScore extends MessageScorer {
+public class PoissonScore extends MessageScorer implements IStatisticsTrainable {
 
     public static final String LOG_PROB = "logProb";
     public static final String LOG_PROB_T = "logProbT";
@@ -73,6 +77,9 @@ public class PoissonScore extends MessageScorer {
     private double m_minLambda;
     static private MathUtils m_logFactorials = new MathUtils();
 
+    /** The statistics of the intervals of the current training iteration */
+    private transient ITrainingStatistics m_trainingStatistics = null;
+
     @Override
     protected void reset() throws AdeException {
         super.reset();
@@ -90,33 +97,67 @@ public class PoissonScore extends MessageScorer {
         if (m_trained) {
             throw new AdeInternalException("Already trained");
         }
-        m_msgData = new TreeMap<String, MsgData>();
-        m_totalIntervalCount = 0;
-        m_minLambda = 1;
+        m_trainingStatistics = newTrainingStatistics();
     }
 
     @Override
     public void incomingObject(IAnalyzedInterval analyzedInterval) throws AdeException {
-        for (IAnalyzedMessageSummary ams : analyzedInterval.getAnalyzedMessages()) {
-            final String id = ams.getMessageId();
+        accumulate(m_trainingStatistics, analyzedInterval);
+    }
 
-            MsgData data = m_msgData.get(id);
-            if (data == null) {
-                data = new MsgData();
-                m_msgData.put(id, data);
-            }
+    @Override
+    public void endOfStream() throws AdeException {
+        train(m_trainingStatistics);
+        m_trainingStatistics = null;
+    }
+
+    /**
+     * The statistics are, per message id, the counters of {@link MsgData}: the number of instances
+     * and of intervals out of context, and in all intervals.
+     */
+    @Override
+    public ITrainingStatistics newTrainingStatistics() {
+        return new MessageCountStatistics(4);
+    }
+
+    @Override
+    public void accumulate(ITrainingStatistics statistics, IAnalyzedInterval analyzedInterval) throws AdeException {
+        final MessageCountStatistics stats = (MessageCountStatistics) statistics;
+        for (IAnalyzedMessageSummary ams : analyzedInterval.getAnalyzedMessages()) {
+            final int[] counters = stats.getCounters(ams.getMessageId());
             if (!isClustered(ams)) {
-                data.m_count += ams.getNumberOfAppearances();
-                data.m_intervalCount++;
+                counters[0] += ams.getNumberOfAppearances();
+                counters[1]++;
             }
-            data.m_allCount += ams.getNumberOfAppearances();
-            data.m_intervalAllCount++;
+            counters[2] += ams.getNumberOfAppearances();
+            counters[3]++;
         }
-        ++m_totalIntervalCount;
+        stats.addInterval();
     }
 
     @Override
-    public void endOfStream() throws AdeException {
+    public Collection<String> getTrainingInputScorers() {
+        return Collections.singletonList(m_baseScorerName);
+    }
+
+    @Override
+    public void train(ITrainingStatistics statistics) throws AdeException {
+        if (m_trained) {
+            throw new AdeInternalException("Already trained");
+        }
+        final MessageCountStatistics stats = (MessageCountStatistics) statistics;
+        m_msgData = new TreeMap<String, MsgData>();
+        for (Entry<String, int[]> entry : stats.getAllCounters().entrySet()) {
+            final int[] counters = entry.getValue();
+            final MsgData data = new MsgData();
+            data.m_count = counters[0];
+            data.m_intervalCount = counters[1];
+            data.m_allCount = counters[2];
+            data.m_intervalAllCount = counters[3];
+            m_msgData.put(entry.getKey(), data);
+        }
+        m_totalIntervalCount = stats.getIntervalCount();
+        m_minLambda = 1;
         for (MsgData data : m_msgData.values()) {
             if (data.m_count > 0) {
                 data.m_lambda = (double) data.m_count / m_totalIntervalCount;
@@ -20,6 +20,10 @@
 
 import java.io.PrintStream;
 import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map.Entry;
 import java.util.SortedMap;
 import java.util.TreeMap;
 
@@ -29,11 +33,13 @@ import org.openmainframe.ade.data.IMessageSummary;
 import org.openmainframe.ade.exceptions.AdeException;
 import org.openmainframe.ade.exceptions.AdeFlowException;
 import org.openmainframe.ade.exceptions.AdeInternalException;
+import org.openmainframe.ade.scoringApi.IStatisticsTrainable;
+import org.openmainframe.ade.scoringApi.ITrainingStatistics;
 import org.openmainframe.ade.scoringApi.MessageScorer;
 import org.openmainframe.ade.scoringApi.StatisticsChart;
 import org.openmainframe.ade.utils.IStructuredOutputWriter;
 
-public class RarityScore extends MessageScorer {
+public class RarityScore extends MessageScorer implements IStatisticsTrainable {
 
     public static final String FULL_PROB = "fullProb";
     public static final String BERNOULLI_COUNT = "bernoulliCount";
@@ -61,6 +67,11 @@ public class RarityScore extends MessageScorer {
         double[] m_probs;
         public double m_bernoulliProb;
         public Double m_maxProb;
+
+        public String toString() {
+            return String.format("count=%d bernoulliProb=%f maxProb=%f probs=%s", m_count, m_bernoulliProb,
+                    m_maxProb, Arrays.toString(m_probs));
+        }
     }
 
     private SortedMap<String, MsgData> m_msgData = null;
@@ -70,6 +81,9 @@ public class RarityScore extends MessageScorer {
     private double m_neverSeenProb;
     private double m_logProbEmpty;
 
+    /** The statistics of the intervals of the current training iteration */
+    private transient ITrainingStatistics m_trainingStatistics = null;
+
     @Override
     public boolean needsAnotherIteration() throws AdeException {
         return !m_trained;
@@ -91,28 +105,59 @@ public class RarityScore extends MessageScorer {
         if (m_trained) {
             throw new AdeInternalException("Already trained");
         }
-        m_msgData = new TreeMap<String, MsgData>();
-        m_totalIntervalCount = 0;
+        m_trainingStatistics = newTrainingStatistics();
     }
 
     @Override
     public void incomingObject(IAnalyzedInterval analyzedInterval) throws AdeException {
+        accumulate(m_trainingStatistics, analyzedInterval);
+    }
+
+    @Override
+    public void endOfStream() throws AdeException {
+        train(m_trainingStatistics);
+        m_trainingStatistics = null;
+    }
+
+    /**
+     * The statistics are, per message id, the number of intervals it appears in followed by
+     * the histogram of its discretized counts.
+     */
+    @Override
+    public ITrainingStatistics newTrainingStatistics() {
+        return new MessageCountStatistics(MAXDB + 2);
+    }
+
+    @Override
+    public void accumulate(ITrainingStatistics statistics, IAnalyzedInterval analyzedInterval) throws AdeException {
+        final MessageCountStatistics stats = (MessageCountStatistics) statistics;
         for (IMessageSummary ms : analyzedInterval.getInterval().getMessageSummaries()) {
-            final String id = ms.getMessageId();
-            MsgData data = m_msgData.get(id);
-            if (data == null) {
-                data = new MsgData();
-                m_msgData.put(id, data);
-            }
-            final int dbNum = descritizeCount(ms);
-            ++data.m_counts[dbNum];
-            ++data.m_count;
+            final int[] counters = stats.getCounters(ms.getMessageId());
+            ++counters[0];
+            ++counters[1 + descritizeCount(ms)];
         }
-        ++m_totalIntervalCount;
+        stats.addInterval();
     }
 
     @Override
-    public void endOfStream() throws AdeException {
+    public Collection<String> getTrainingInputScorers() {
+        return Collections.emptyList();
+    }
+
+    @Override
+    public void train(ITrainingStatistics statistics) throws AdeException {
+        if (m_trained) {
+            throw new AdeInternalException("Already trained");
+        }
+        final MessageCountStatistics stats = (MessageCountStatistics) statistics;
+        m_msgData = new TreeMap<String, MsgData>();
+        for (Entry<String, int[]> entry : stats.getAllCounters().entrySet()) {
+            final MsgData data = new MsgData();
+            data.m_count = entry.getValue()[0];
+            System.arraycopy(entry.getValue(), 1, data.m_counts, 0, MAXDB + 1);
+            m_msgData.put(entry.getKey(), data);
+        }
+        m_totalIntervalCount = stats.getIntervalCount();
         m_logProbEmpty = 0.0;
         for (MsgData data : m_msgData.values()) {
             data.m_probs = new double[MAXDB + 1];
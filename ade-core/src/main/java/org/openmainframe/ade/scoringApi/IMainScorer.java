@@ -20,10 +20,12 @@
 package org.openmainframe.ade.scoringApi;
 
 import java.io.Serializable;
+import java.util.Collection;
 import java.util.List;
 
 import org.openmainframe.ade.data.IAnalyzedInterval;
 import org.openmainframe.ade.data.IInterval;
+import org.openmainframe.ade.data.IPeriod;
 import org.openmainframe.ade.exceptions.AdeException;
 import org.openmainframe.ade.flow.IStreamTarget;
 import org.openmainframe.ade.impl.flow.factory.jaxb.FramingFlowType;
@@ -44,6 +46,18 @@ public interface IMainScorer extends ILearner<IInterval>, Serializable, IModel {
      */
     FramingFlowType getRequiredIntervalFramer() throws AdeException;
 
+    /**
+     * Performs the next iteration by merging the {@link ITrainingStatistics} of the given periods,
+     * rather than by reading their intervals, if all the scorers of the iteration support it.
+     * The statistics are read from the data store, or collected from the intervals of the periods
+     * they are missing for, and stored. 
+     * This method should be called only if {@link #needsAnotherIteration()} returned true.
+     *
+     * @param periods the training periods
+     * @return true if the iteration was performed, false if it requires reading the intervals
+     */
+    boolean trainIterationFromStatistics(Collection<IPeriod> periods) throws AdeException;
+
     /**
      * Perform analysis on given interval
      * 
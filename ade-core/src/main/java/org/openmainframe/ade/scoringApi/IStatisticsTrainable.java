@@ -0,0 +1,50 @@
+/*
+ 
+    Copyright IBM Corp. 2016
+    This file is part of Anomaly Detection Engine for Linux Logs (ADE).
+
+    ADE is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    ADE is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with ADE.  If not, see <http://www.gnu.org/licenses/>.
+ 
+*/
+package org.openmainframe.ade.scoringApi;
+
+import java.util.Collection;
+
+import org.openmainframe.ade.data.IAnalyzedInterval;
+import org.openmainframe.ade.exceptions.AdeException;
+
+/**
+ * A scorer trained in a single iteration, whose model is a function of {@link ITrainingStatistics}
+ * of its training intervals. Training it on a stream of intervals is the same as accumulating them into
+ * statistics and calling {@link #train(ITrainingStatistics)}.
+ */
+public interface IStatisticsTrainable {
+
+    /** @return empty statistics, of no interval */
+    ITrainingStatistics newTrainingStatistics();
+
+    /** Adds a training interval to the given statistics */
+    void accumulate(ITrainingStatistics statistics, IAnalyzedInterval analyzedInterval) throws AdeException;
+
+    /** Trains the scorer from the statistics of all its training intervals */
+    void train(ITrainingStatistics statistics) throws AdeException;
+
+    /**
+     * @return the names of the scorers whose scores {@link #accumulate(ITrainingStatistics, IAnalyzedInterval)}
+     *     reads. When one of them is trained before this scorer, the statistics depend on its model too, and
+     *     are not kept per period.
+     */
+    Collection<String> getTrainingInputScorers();
+
+}
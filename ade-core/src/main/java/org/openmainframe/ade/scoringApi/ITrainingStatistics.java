@@ -0,0 +1,40 @@
+/*
+ 
+    Copyright IBM Corp. 2016
+    This file is part of Anomaly Detection Engine for Linux Logs (ADE).
+
+    ADE is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    ADE is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with ADE.  If not, see <http://www.gnu.org/licenses/>.
+ 
+*/
+package org.openmainframe.ade.scoringApi;
+
+import java.io.Serializable;
+
+import org.openmainframe.ade.exceptions.AdeException;
+
+/**
+ * Sufficient statistics of the training intervals of a scorer: the statistics of two disjoint sets
+ * of intervals can be merged into the statistics of their union. This allows keeping them per period,
+ * and training a scorer by merging the statistics of its periods rather than reading all of their
+ * intervals again.
+ */
+public interface ITrainingStatistics extends Serializable {
+
+    /**
+     * Adds the statistics of other intervals to these ones.
+     * @throws AdeException if the other statistics are not of the same kind.
+     */
+    void merge(ITrainingStatistics other) throws AdeException;
+
+}
@@ -0,0 +1,85 @@
+/*
+ 
+    Copyright IBM Corp. 2016
+    This file is part of Anomaly Detection Engine for Linux Logs (ADE).
+
+    ADE is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    ADE is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with ADE.  If not, see <http://www.gnu.org/licenses/>.
+ 
+*/
+package org.openmainframe.ade.core;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class TestIntPairCounter {
+
+    @Test
+    public void testCountsMatchMap() {
+        final Random random = new Random(7);
+        final IntPairCounter counter = new IntPairCounter();
+        final Map<Long, Integer> expected = new HashMap<Long, Integer>();
+        for (int i = 0; i < 200000; ++i) {
+            final int row = random.nextInt(300);
+            final int column = random.nextInt(i % 2 == 0 ? 10 : 5000);
+            final long key = ((long) row << 32) | column;
+            final Integer previous = expected.get(key);
+            final int count = previous == null ? 1 : previous + 1;
+            expected.put(key, count);
+            assertEquals(count, counter.add(row, column));
+        }
+        assertEquals(expected.size(), counter.size());
+        int rowSizes = 0;
+        for (int row = 0; row < counter.getRowCount(); ++row) {
+            rowSizes += counter.getRowSize(row);
+            for (int column : counter.getRowColumns(row)) {
+                assertEquals(expected.get(((long) row << 32) | column).intValue(), counter.get(row, column));
+            }
+        }
+        assertEquals(expected.size(), rowSizes);
+        assertEquals(0, counter.get(1000, 1));
+        assertEquals(0, counter.get(-1, 1));
+    }
+
+    @Test
+    public void testRowColumnsInFirstCountOrder() {
+        final IntPairCounter counter = new IntPairCounter(2);
+        counter.add(3, 9);
+        counter.add(3, 1);
+        counter.add(0, 0);
+        counter.add(3, 9, 5);
+        counter.add(3, 4);
+        assertArrayEquals(new int[] { 9, 1, 4 }, counter.getRowColumns(3));
+        assertArrayEquals(new int[] { 0 }, counter.getRowColumns(0));
+        assertArrayEquals(new int[0], counter.getRowColumns(2));
+        assertArrayEquals(new int[0], counter.getRowColumns(10));
+        assertEquals(6, counter.get(3, 9));
+        assertEquals(4, counter.getRowCount());
+
+        counter.clear();
+        assertEquals(0, counter.size());
+        assertEquals(0, counter.get(3, 9));
+        assertEquals(0, counter.getRowCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeIndex() {
+        new IntPairCounter().add(0, -1);
+    }
+}
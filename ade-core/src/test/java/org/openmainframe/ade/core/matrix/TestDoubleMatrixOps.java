@@ -0,0 +1,145 @@
+/*
+ 
+    Copyright IBM Corp. 2016
+    This file is part of Anomaly Detection Engine for Linux Logs (ADE).
+
+    ADE is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    ADE is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with ADE.  If not, see <http://www.gnu.org/licenses/>.
+ 
+*/
+package org.openmainframe.ade.core.matrix;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.Random;
+
+import org.junit.Test;
+import org.openmainframe.ade.core.exceptions.AdeCoreIllegalArgumentException;
+
+public class TestDoubleMatrixOps {
+
+    private static final int[][] SIZES = {
+        { 1, 1, 1 }, { 3, 5, 2 }, { 17, 1, 9 }, { 70, 130, 300 }, { 33, 257, 65 },
+    };
+
+    @Test
+    public void testMultiplyMatchesNaive() {
+        final Random random = new Random(1);
+        for (int[] size : SIZES) {
+            final DoubleMatrix a = random(random, size[0], size[1]);
+            final DoubleMatrix b = random(random, size[1], size[2]);
+            final double[][] expected = naiveMultiply(a, b);
+            assertMatrixEquals(expected, DoubleMatrixOps.multiply(a, b));
+            assertMatrixEquals(expected, DoubleMatrixOps.multiply2(a, b, null));
+            // through the generic interface, as views do not expose their storage
+            assertMatrixEquals(expected, DoubleMatrixOps.multiply(DoubleMatrixViews.transpose(DoubleMatrixOps.transpose(a)), b));
+        }
+    }
+
+    @Test
+    public void testMultiplyTransposedMatchesNaive() {
+        final Random random = new Random(2);
+        for (int[] size : SIZES) {
+            final DoubleMatrix a = random(random, size[0], size[1]);
+            final DoubleMatrix b = random(random, size[2], size[1]);
+            assertMatrixEquals(naiveMultiply(a, DoubleMatrixViews.transpose(b)), DoubleMatrixOps.multiplyTransposed(a, b));
+            assertMatrixEquals(naiveMultiply(a, DoubleMatrixViews.transpose(a)), DoubleMatrixOps.multiplyTransposed(a, a));
+        }
+    }
+
+    @Test
+    public void testTranspose() {
+        final DoubleMatrix a = random(new Random(3), 45, 70);
+        final IDoubleMatrix t = DoubleMatrixOps.transpose(a);
+        assertEquals(70, t.getRowNum());
+        assertEquals(45, t.getColNum());
+        assertMatrixEquals(new DoubleMatrix(DoubleMatrixViews.transpose(a)).get2dArray(), t);
+    }
+
+    @Test
+    public void testSpecialValuesMatchNaive() {
+        final DoubleMatrix a = random(new Random(4), 40, 90);
+        final DoubleMatrix b = random(new Random(5), 90, 20);
+        a.set(3, 7, Double.NaN);
+        a.set(5, 8, 0);
+        b.set(8, 2, Double.POSITIVE_INFINITY);
+        b.set(11, 4, -0.0);
+        assertMatrixEquals(naiveMultiply(a, b), DoubleMatrixOps.multiply(a, b));
+    }
+
+    @Test
+    public void testResultMatrices() {
+        final Random random = new Random(6);
+        final DoubleMatrix a = random(random, 30, 30);
+        final DoubleMatrix b = random(random, 30, 30);
+        final double[][] expected = naiveMultiply(a, b);
+
+        final DoubleMatrix res = new DoubleMatrix(30, 30);
+        assertSame(res, DoubleMatrixOps.multiply(a, b, res));
+        assertMatrixEquals(expected, res);
+
+        // the result is one of the operands
+        assertSame(a, DoubleMatrixOps.multiply(a, b, a));
+        assertMatrixEquals(expected, a);
+
+        // the result does not expose its storage
+        final SymmetricDoubleMatrix gram = new SymmetricDoubleMatrix(30);
+        DoubleMatrixOps.multiplyTransposed(b, b, gram);
+        assertMatrixEquals(naiveMultiply(b, DoubleMatrixViews.transpose(b)), gram);
+    }
+
+    @Test(expected = AdeCoreIllegalArgumentException.class)
+    public void testResultSizeMismatch() {
+        DoubleMatrixOps.multiply(new DoubleMatrix(2, 3), new DoubleMatrix(3, 4), new DoubleMatrix(2, 3));
+    }
+
+    @Test(expected = AdeCoreIllegalArgumentException.class)
+    public void testOperandSizeMismatch() {
+        DoubleMatrixOps.multiplyTransposed(new DoubleMatrix(2, 3), new DoubleMatrix(3, 4));
+    }
+
+    static DoubleMatrix random(Random random, int n, int m) {
+        final DoubleMatrix res = new DoubleMatrix(n, m);
+        for (int i = 0; i < n; ++i) {
+            for (int j = 0; j < m; ++j) {
+                res.set(i, j, random.nextGaussian());
+            }
+        }
+        return res;
+    }
+
+    /** The product as computed before the kernels, one dot product per cell. */
+    private static double[][] naiveMultiply(IDoubleMatrix a, IDoubleMatrix b) {
+        final double[][] res = new double[a.getRowNum()][b.getColNum()];
+        for (int i = 0; i < a.getRowNum(); ++i) {
+            for (int j = 0; j < b.getColNum(); ++j) {
+                res[i][j] = DoubleVectorOps.dotProduct(a.getRow(i), b.getCol(j));
+            }
+        }
+        return res;
+    }
+
+    /** The kernels add the products in the same order, so the results are expected to be identical. */
+    private static void assertMatrixEquals(double[][] expected, IDoubleMatrix actual) {
+        assertEquals(expected.length, actual.getRowNum());
+        for (int i = 0; i < expected.length; ++i) {
+            final double[] row = new double[actual.getColNum()];
+            for (int j = 0; j < row.length; ++j) {
+                row[j] = actual.get(i, j);
+            }
+            assertArrayEquals(expected[i], row, 0);
+        }
+    }
+}
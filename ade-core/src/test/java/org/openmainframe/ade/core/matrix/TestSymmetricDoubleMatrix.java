@@ -0,0 +1,73 @@
+/*
+ 
+    Copyright IBM Corp. 2016
+    This file is part of Anomaly Detection Engine for Linux Logs (ADE).
+
+    ADE is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    ADE is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with ADE.  If not, see <http://www.gnu.org/licenses/>.
+ 
+*/
+package org.openmainframe.ade.core.matrix;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class TestSymmetricDoubleMatrix {
+
+    @Test
+    public void testMatchesFullMatrix() {
+        final Random random = new Random(1);
+        final int n = 57;
+        final SymmetricDoubleMatrix symmetric = new SymmetricDoubleMatrix(n);
+        final DoubleMatrix full = new DoubleMatrix(n, n);
+        for (int k = 0; k < 5000; ++k) {
+            final int i = random.nextInt(n);
+            final int j = random.nextInt(n);
+            final double val = random.nextDouble();
+            symmetric.set(i, j, symmetric.get(i, j) + val);
+            full.set(i, j, full.get(i, j) + val);
+            full.set(j, i, full.get(i, j));
+        }
+        assertEquals(n, symmetric.getRowNum());
+        assertEquals(n, symmetric.getColNum());
+        assertEquals(n * n, symmetric.getLength());
+        final double[][] array = symmetric.get2dArray();
+        for (int i = 0; i < n; ++i) {
+            assertArrayEquals(full.get2dArray()[i], array[i], 0);
+            for (int j = 0; j < n; ++j) {
+                assertEquals(full.get(i, j), symmetric.get(i, j), 0);
+            }
+        }
+        assertEquals(full.get(3, 5), symmetric.get(3 + 5 * n), 0);
+
+        symmetric.setAll(2);
+        assertEquals(2, symmetric.get(n - 1, 0), 0);
+        assertEquals(2 * n * n, symmetric.sum(), 0);
+    }
+
+    @Test
+    public void testEmpty() {
+        final SymmetricDoubleMatrix symmetric = new SymmetricDoubleMatrix(0);
+        assertEquals(0, symmetric.getRowNum());
+        assertEquals(0, symmetric.get2dArray().length);
+    }
+
+    @Test(expected = ArrayIndexOutOfBoundsException.class)
+    public void testIndexOutOfRange() {
+        new SymmetricDoubleMatrix(3).get(0, 3);
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ 
+    Copyright IBM Corp. 2016
+    This file is part of Anomaly Detection Engine for Linux Logs (ADE).
+
+    ADE is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    ADE is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with ADE.  If not, see <http://www.gnu.org/licenses/>.
+ 
+*/
+package org.openmainframe.ade.core.statistics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TestMetricsRegistry {
+
+    @Rule
+    public TemporaryFolder m_folder = new TemporaryFolder();
+
+    @Before
+    public void setUp() {
+        MetricsRegistry.reset();
+        MetricsRegistry.setEnabled(true);
+    }
+
+    @After
+    public void tearDown() {
+        MetricsRegistry.setEnabled(false);
+        MetricsRegistry.reset();
+    }
+
+    @Test
+    public void testDisabledMetricsAreNotUpdated() {
+        MetricsRegistry.setEnabled(false);
+        final Counter counter = MetricsRegistry.counter("test.disabled.counter");
+        final LatencyHistogram histogram = MetricsRegistry.histogram("test.disabled.histogram");
+        final GaugeFamily gauges = MetricsRegistry.gauges("test.disabled.gauges");
+
+        counter.increment();
+        histogram.record(10);
+        histogram.recordSince(MetricsRegistry.startTimer());
+        gauges.set("source", 5);
+
+        assertEquals(MetricsRegistry.NOT_TIMED, MetricsRegistry.startTimer());
+        assertEquals(0, counter.get());
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, gauges.get("source"));
+    }
+
+    @Test
+    public void testSameNameSameMetric() {
+        assertSame(MetricsRegistry.counter("test.same"), MetricsRegistry.counter("test.same"));
+        assertSame(MetricsRegistry.histogram("test.same"), MetricsRegistry.histogram("test.same"));
+        assertSame(MetricsRegistry.gauges("test.same"), MetricsRegistry.gauges("test.same"));
+    }
+
+    @Test
+    public void testConcurrentCounting() throws InterruptedException {
+        final Counter counter = MetricsRegistry.counter("test.concurrent");
+        final int threads = 8;
+        final int increments = 10000;
+        final List<Thread> workers = new ArrayList<Thread>();
+        for (int i = 0; i < threads; ++i) {
+            workers.add(new Thread() {
+                @Override
+                public void run() {
+                    for (int j = 0; j < increments; ++j) {
+                        counter.increment();
+                    }
+                }
+            });
+        }
+        for (Thread worker : workers) {
+            worker.start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        assertEquals(threads * increments, counter.get());
+    }
+
+    @Test
+    public void testHistogramBucketsCoverAllValues() {
+        long previousUpperBound = -1;
+        for (long value : new long[] { 0, 1, 31, 32, 33, 63, 64, 1000, 123456789, Long.MAX_VALUE }) {
+            final int bucket = LatencyHistogram.bucketOf(value);
+            final long upperBound = LatencyHistogram.bucketUpperBound(bucket);
+            assertTrue("value " + value + " above its bucket", value <= upperBound);
+            assertTrue("buckets not monotonic at " + value, upperBound >= previousUpperBound);
+            // relative error below 1/16
+            assertTrue("bucket too wide at " + value, upperBound - value <= Math.max(0, value / 16));
+            previousUpperBound = upperBound;
+        }
+    }
+
+    @Test
+    public void testHistogramStatistics() {
+        final LatencyHistogram histogram = MetricsRegistry.histogram("test.percentiles");
+        for (long i = 1; i <= 1000; ++i) {
+            histogram.record(i * 1000);
+        }
+        assertEquals(1000, histogram.getCount());
+        assertEquals(1000000, histogram.getMax());
+        assertEquals(500500.0, histogram.getMean(), 1e-9);
+        assertWithin(500000, histogram.getPercentile(50));
+        assertWithin(990000, histogram.getPercentile(99));
+        assertEquals(1000000, histogram.getPercentile(100));
+    }
+
+    @Test
+    public void testGaugesPerSource() {
+        final GaugeFamily gauges = MetricsRegistry.gauges("test.gauges");
+        gauges.add("sys1", 2);
+        gauges.add("sys1", 3);
+        gauges.set("sys2", 7);
+        assertEquals(5, gauges.get("sys1"));
+        assertEquals(Long.valueOf(7), MetricsRegistry.getGaugeValues().get("test.gauges[sys2]"));
+    }
+
+    @Test
+    public void testTimingStatisticsRecordedAsHistogram() {
+        TimingStatistics.start("testMeasure");
+        TimingStatistics.end("testMeasure");
+        assertEquals(1, MetricsRegistry.histogram(MetricsRegistry.TIMING_PREFIX + "testMeasure").getCount());
+    }
+
+    @Test
+    public void testDump() throws IOException {
+        MetricsRegistry.counter("test.dump.counter").add(42);
+        MetricsRegistry.histogram("test.dump.histogram").record(2000);
+        final File file = new File(m_folder.getRoot(), "metrics.txt");
+        MetricsReporter.dump(file);
+        final String dump = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+        assertTrue(dump, dump.contains("test.dump.counter\t42"));
+        assertTrue(dump, dump.contains("test.dump.histogram\t1\t2.0"));
+    }
+
+    private static void assertWithin(long expected, long actual) {
+        assertTrue("expected about " + expected + " but was " + actual,
+                actual >= expected && actual <= expected + expected / 16);
+    }
+}
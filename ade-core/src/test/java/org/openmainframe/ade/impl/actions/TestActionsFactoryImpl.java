@@ -0,0 +1,69 @@
+/*
+ 
+    Copyright IBM Corp. 2016
+    This file is part of Anomaly Detection Engine for Linux Logs (ADE).
+
+    ADE is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    ADE is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with ADE.  If not, see <http://www.gnu.org/licenses/>.
+ 
+*/
+package org.openmainframe.ade.impl.actions;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+import org.openmainframe.ade.impl.data.TextClusteringComponentModel;
+
+public class TestActionsFactoryImpl {
+    private final ActionsFactoryImpl m_factory = new ActionsFactoryImpl();
+
+    @Test
+    public void testNotRetainedByDefault() {
+        assertNotSame(m_factory.getTextClusteringModel(true), m_factory.getTextClusteringModel(true));
+    }
+
+    @Test
+    public void testRetainedPerThread() throws InterruptedException {
+        m_factory.setRetainTextClusteringModel(true);
+        final TextClusteringComponentModel model = m_factory.getTextClusteringModel(true);
+        assertTrue(model.isUpdatingDataStore());
+        assertSame(model, m_factory.getTextClusteringModel(true));
+
+        /* Models not linked to the datastore are never retained */
+        final TextClusteringComponentModel unlinked = m_factory.getTextClusteringModel(false);
+        assertFalse(unlinked.isUpdatingDataStore());
+        assertNotSame(unlinked, m_factory.getTextClusteringModel(false));
+
+        /* Another thread gets its own model */
+        final AtomicReference<TextClusteringComponentModel> otherModel =
+                new AtomicReference<TextClusteringComponentModel>();
+        final Thread other = new Thread() {
+            @Override
+            public void run() {
+                otherModel.set(m_factory.getTextClusteringModel(true));
+            }
+        };
+        other.start();
+        other.join();
+        assertNotSame(model, otherModel.get());
+        assertSame(model, m_factory.getTextClusteringModel(true));
+
+        m_factory.setRetainTextClusteringModel(false);
+        assertNotSame(model, m_factory.getTextClusteringModel(true));
+    }
+}
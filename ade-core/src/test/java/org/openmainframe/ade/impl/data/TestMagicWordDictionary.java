@@ -0,0 +1,77 @@
+/*
+ 
+    Copyright IBM Corp. 2016
+    This file is part of Anomaly Detection Engine for Linux Logs (ADE).
+
+    ADE is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    ADE is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with ADE.  If not, see <http://www.gnu.org/licenses/>.
+ 
+*/
+package org.openmainframe.ade.impl.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.openmainframe.ade.exceptions.AdeException;
+import org.openmainframe.ade.exceptions.AdeUsageException;
+
+public class TestMagicWordDictionary {
+
+    @Rule
+    public TemporaryFolder m_folder = new TemporaryFolder();
+
+    @Test
+    public void testWholeWordsIgnoringCase() throws AdeException {
+        final MagicWordDictionary dictionary = new MagicWordDictionary(Arrays.asList("start", "started", "Error"));
+        assertTrue(dictionary.contains("start"));
+        assertTrue(dictionary.contains("STARTED"));
+        assertTrue(dictionary.contains("error"));
+        assertFalse(dictionary.contains("star"));
+        assertFalse(dictionary.contains("starts"));
+        assertFalse(dictionary.contains("restart"));
+        assertFalse(dictionary.contains(""));
+        assertFalse(dictionary.contains("errör"));
+        // only ASCII letters are case folded, the long s is not an s
+        assertFalse(dictionary.contains("\u017ftart"));
+    }
+
+    @Test
+    public void testDuplicatesIgnoringCase() throws AdeException {
+        final MagicWordDictionary dictionary = new MagicWordDictionary(Arrays.asList("stop", "STOP", "exit"));
+        assertEquals(Arrays.asList("stop", "exit"), dictionary.getWords());
+    }
+
+    @Test(expected = AdeUsageException.class)
+    public void testNonAsciiWord() throws AdeException {
+        new MagicWordDictionary(Arrays.asList("arrêt"));
+    }
+
+    @Test
+    public void testLoad() throws AdeException, IOException {
+        final File file = m_folder.newFile("magicWords.txt");
+        Files.write(file.toPath(), Arrays.asList("# magic words", "", "  panic ", "oops"), StandardCharsets.UTF_8);
+        final MagicWordDictionary dictionary = MagicWordDictionary.load(file);
+        assertEquals(Arrays.asList("panic", "oops"), dictionary.getWords());
+        assertTrue(dictionary.contains("Panic"));
+    }
+}
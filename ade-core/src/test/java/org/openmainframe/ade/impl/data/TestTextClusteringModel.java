@@ -0,0 +1,336 @@
+/*
+ 
+    Copyright IBM Corp. 2016
+    This file is part of Anomaly Detection Engine for Linux Logs (ADE).
+
+    ADE is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    ADE is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with ADE.  If not, see <http://www.gnu.org/licenses/>.
+ 
+*/
+package org.openmainframe.ade.impl.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+import org.openmainframe.ade.Ade;
+import org.openmainframe.ade.dbUtils.DriverType;
+import org.openmainframe.ade.exceptions.AdeException;
+import org.openmainframe.ade.impl.dataStore.DataStoreTextClusteringModelsImpl;
+import org.openmainframe.ade.impl.dataStore.TableManager;
+import org.openmainframe.ade.impl.dataStore.TextClusterTimeStampWriter;
+import org.openmainframe.ade.impl.dbUtils.Database;
+import org.openmainframe.ade.impl.dbUtils.DerbyDatabase;
+import org.openmainframe.ade.impl.dbUtils.H2Database;
+import org.openmainframe.ade.impl.dbUtils.MyJDBCConnection;
+import org.openmainframe.ade.impl.summary.LevenshteinTextSummary;
+import org.openmainframe.ade.utils.patches.Version;
+
+/**
+ * Uploaders adding the clusters of the same messages concurrently, each with a model of its own
+ * as in separate processes, must agree on a single cluster per message.
+ */
+@RunWith(Parameterized.class)
+public class TestTextClusteringModel {
+
+    private static final int TYPES = 30;
+    private static final int VARIANTS = 3;
+    private static final int THRESHOLD = 2;
+
+    /** A constant threshold, as the threshold of the Levenshtein distance is shared by all threads */
+    private static final IThresholdSetter THRESHOLD_SETTER = new IThresholdSetter() {
+        @Override
+        public int getThreshold(int numWordsA, int numWordsB) {
+            return THRESHOLD;
+        }
+    };
+
+    private final Database m_db;
+
+    public TestTextClusteringModel(Database db) {
+        m_db = db;
+    }
+
+    @Parameters
+    public static Collection<Object[]> databases() {
+        return Arrays.asList(new Object[][] { { new DerbyDatabase() }, { new H2Database() } });
+    }
+
+    @BeforeClass
+    public static void setup() throws Exception {
+        final Ade ade = mock(Ade.class, RETURNS_DEEP_STUBS);
+        when(ade.getConfigProperties().database().getDatabaseDriver()).thenReturn("derby");
+        when(ade.getConfigProperties().database().getDriverType()).thenReturn(DriverType.DERBY);
+        when(ade.getConfigProperties().database().getDatabaseSchema()).thenReturn(null);
+        when(ade.getDbVersion()).thenReturn(new Version(1, 0));
+        when(ade.getConfigProperties().debug().isDebugMessageIdGeneration()).thenReturn(-1);
+        Ade.create(ade);
+
+        LevenshteinTextSummary.setThreshold(THRESHOLD);
+    }
+
+    @Before
+    public void createTables() throws Exception {
+        MyJDBCConnection.close();
+        MyJDBCConnection.setDbConnectionProperties(m_db.getUrl(), m_db.getUser(), m_db.getPassword());
+        m_db.dropDatabase();
+        m_db.createDatabase();
+
+        new TableManager().createAll();
+        final Statement stmt = MyJDBCConnection.getConnection().createStatement();
+        stmt.executeUpdate("insert into COMPONENT_IDS (COMPONENT_ID) values ('kernel')");
+        stmt.executeUpdate("insert into COMPONENT_IDS (COMPONENT_ID) values ('sshd')");
+        stmt.close();
+    }
+
+    /** A message of a type, far from the messages of the other types */
+    private static String message(int type, int variant) {
+        return "alpha" + type + " beta" + type + " gamma" + type + " delta" + type + " value" + variant;
+    }
+
+    /**
+     * Clusters all the messages of all the types in a random order, and returns the cluster ids of
+     * the types.
+     */
+    private static Callable<int[]> uploader(final String component, final int componentId, final long seed,
+            final CountDownLatch start) {
+        return new Callable<int[]>() {
+            @Override
+            public int[] call() throws Exception {
+                final List<String> messages = new ArrayList<String>();
+                for (int type = 0; type < TYPES; type++) {
+                    for (int variant = 0; variant < VARIANTS; variant++) {
+                        messages.add(type + ":" + message(type, variant));
+                    }
+                }
+                Collections.shuffle(messages, new Random(seed));
+
+                final int[] clusterIds = new int[TYPES];
+                try {
+                    start.await();
+                    final DataStoreTextClusteringModelsImpl dsTextClustering = new DataStoreTextClusteringModelsImpl();
+                    final TextClusteringModel model = new TextClusteringModel(component, componentId, true,
+                            new TextClusteringComponentModel(true), dsTextClustering,
+                            new TextClusterTimeStampWriter(dsTextClustering, 0), THRESHOLD_SETTER);
+                    for (String message : messages) {
+                        final int separator = message.indexOf(':');
+                        final int type = Integer.parseInt(message.substring(0, separator));
+                        final TextClusterData cluster = model.getOrAddCluster(message.substring(separator + 1),
+                                new Date(1458000000000L));
+                        if (clusterIds[type] == 0) {
+                            clusterIds[type] = cluster.getClusterId();
+                        } else {
+                            assertEquals("Cluster of type " + type, clusterIds[type], cluster.getClusterId());
+                        }
+                    }
+                } finally {
+                    MyJDBCConnection.close();
+                }
+                return clusterIds;
+            }
+        };
+    }
+
+    private static int countClusters(int componentId) throws Exception {
+        final Connection con = MyJDBCConnection.getConnection();
+        final Statement stmt = con.createStatement();
+        try {
+            final ResultSet rs = stmt.executeQuery("select count(*) from TEXT_CLUSTERS where COMPONENT_INTERNAL_ID = "
+                    + componentId);
+            rs.next();
+            return rs.getInt(1);
+        } finally {
+            stmt.close();
+        }
+    }
+
+    @Test
+    public void testSingleUploader() throws Exception {
+        final int[] clusterIds = uploader("kernel", 1, 1, new CountDownLatch(0)).call();
+        assertEquals(TYPES, countClusters(1));
+        assertEquals(TYPES, clusterIdsOf(clusterIds).size());
+
+        /* A new model reads the clusters rather than adding them again */
+        assertEquals(Arrays.toString(clusterIds), Arrays.toString(uploader("kernel", 1, 2, new CountDownLatch(0)).call()));
+        assertEquals(TYPES, countClusters(1));
+    }
+
+    @Test
+    public void testConcurrentUploaders() throws Exception {
+        final int kernelUploaders = 4;
+        final int sshdUploaders = 2;
+        final CountDownLatch start = new CountDownLatch(1);
+        final ExecutorService executor = Executors.newFixedThreadPool(kernelUploaders + sshdUploaders);
+        final List<Future<int[]>> kernel = new ArrayList<Future<int[]>>();
+        final List<Future<int[]>> sshd = new ArrayList<Future<int[]>>();
+        try {
+            for (int i = 0; i < kernelUploaders; i++) {
+                kernel.add(executor.submit(uploader("kernel", 1, i, start)));
+            }
+            for (int i = 0; i < sshdUploaders; i++) {
+                sshd.add(executor.submit(uploader("sshd", 2, 100 + i, start)));
+            }
+            start.countDown();
+
+            final String kernelClusterIds = Arrays.toString(kernel.get(0).get());
+            for (Future<int[]> future : kernel) {
+                assertEquals(kernelClusterIds, Arrays.toString(future.get()));
+            }
+            final String sshdClusterIds = Arrays.toString(sshd.get(0).get());
+            for (Future<int[]> future : sshd) {
+                assertEquals(sshdClusterIds, Arrays.toString(future.get()));
+            }
+        } finally {
+            executor.shutdown();
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        }
+        assertEquals(TYPES, countClusters(1));
+        assertEquals(TYPES, countClusters(2));
+    }
+
+    /**
+     * A connection whose commits are rolled back by the database, with SQL state 40001, a number of times.
+     */
+    private static final class RollingBackConnection implements InvocationHandler {
+        private final Connection m_connection;
+        private int m_rollbacksLeft;
+
+        private RollingBackConnection(Connection connection, int rollbacks) {
+            m_connection = connection;
+            m_rollbacksLeft = rollbacks;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if ("setAutoCommit".equals(method.getName()) && (Boolean) args[0] && !m_connection.getAutoCommit()
+                    && m_rollbacksLeft > 0) {
+                --m_rollbacksLeft;
+                m_connection.rollback();
+                m_connection.setAutoCommit(true);
+                throw new SQLException("Transaction rolled back at commit", "40001");
+            }
+            try {
+                return method.invoke(m_connection, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+
+    private RollingBackConnection useRollingBackConnection(int rollbacks) throws Exception {
+        final RollingBackConnection handler = new RollingBackConnection(
+                DriverManager.getConnection(m_db.getUrl(), m_db.getUser(), m_db.getPassword()), rollbacks);
+        MyJDBCConnection.setConnection((Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[] { Connection.class }, handler));
+        return handler;
+    }
+
+    private static TextClusteringModel newModel() throws AdeException {
+        final DataStoreTextClusteringModelsImpl dsTextClustering = new DataStoreTextClusteringModelsImpl();
+        return new TextClusteringModel("kernel", 1, true, new TextClusteringComponentModel(true), dsTextClustering,
+                new TextClusterTimeStampWriter(dsTextClustering, 0), THRESHOLD_SETTER);
+    }
+
+    private static int storedClusterId() throws Exception {
+        final Statement stmt = MyJDBCConnection.getConnection().createStatement();
+        try {
+            final ResultSet rs = stmt.executeQuery("select TEXT_CLUSTER_INTERNAL_ID from TEXT_CLUSTERS");
+            rs.next();
+            return rs.getInt(1);
+        } finally {
+            stmt.close();
+        }
+    }
+
+    @Test
+    public void testCommitRolledBackIsRetried() throws Exception {
+        try {
+            final RollingBackConnection connection = useRollingBackConnection(2);
+            final TextClusteringModel model = newModel();
+            final int clusterId = model.getOrAddCluster(message(0, 0), new Date(1458000000000L)).getClusterId();
+
+            assertEquals(0, connection.m_rollbacksLeft);
+            assertEquals(1, countClusters(1));
+            assertEquals(storedClusterId(), clusterId);
+            assertEquals(clusterId, model.getOrAddCluster(message(0, 1), new Date(1458000000000L)).getClusterId());
+            assertEquals(clusterId, newModel().getOrAddCluster(message(0, 2), new Date(1458000000000L))
+                    .getClusterId());
+        } finally {
+            MyJDBCConnection.close();
+        }
+    }
+
+    @Test
+    public void testCommitRolledBackTooOftenFails() throws Exception {
+        try {
+            final RollingBackConnection connection = useRollingBackConnection(Integer.MAX_VALUE);
+            final TextClusteringModel model = newModel();
+            try {
+                model.getOrAddCluster(message(0, 0), new Date(1458000000000L));
+                fail("Expected the addition of the cluster to fail");
+            } catch (AdeException e) {
+                // expected
+            }
+            assertEquals(0, countClusters(1));
+
+            /* The cluster rolled back at commit is not known to the model */
+            connection.m_rollbacksLeft = 0;
+            final int clusterId = model.getOrAddCluster(message(0, 1), new Date(1458000000000L)).getClusterId();
+            assertEquals(1, countClusters(1));
+            assertEquals(storedClusterId(), clusterId);
+        } finally {
+            MyJDBCConnection.close();
+        }
+    }
+
+    private static List<Integer> clusterIdsOf(int[] clusterIds) {
+        final List<Integer> res = new ArrayList<Integer>();
+        for (int clusterId : clusterIds) {
+            if (!res.contains(clusterId)) {
+                res.add(clusterId);
+            }
+        }
+        return res;
+    }
+}
@@ -0,0 +1,183 @@
+/*
+ 
+    Copyright IBM Corp. 2016
+    This file is part of Anomaly Detection Engine for Linux Logs (ADE).
+
+    ADE is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    ADE is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with ADE.  If not, see <http://www.gnu.org/licenses/>.
+ 
+*/
+package org.openmainframe.ade.impl.dataStore;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.sql.Statement;
+import java.util.Date;
+
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.openmainframe.ade.Ade;
+import org.openmainframe.ade.data.ISource;
+import org.openmainframe.ade.dbUtils.DriverType;
+import org.openmainframe.ade.exceptions.AdeException;
+import org.openmainframe.ade.impl.data.PeriodImpl;
+import org.openmainframe.ade.impl.dbUtils.Database;
+import org.openmainframe.ade.impl.dbUtils.DerbyDatabase;
+import org.openmainframe.ade.impl.dbUtils.MyJDBCConnection;
+import org.openmainframe.ade.utils.patches.Version;
+
+public class TestDataStorePeriodsImpl {
+
+    private static final long DAY = 24 * 60 * 60 * 1000L;
+    private static final Date START = new Date(1448150400000L);
+    private static final Date END = new Date(START.getTime() + DAY);
+    private static final long EXPIRY_MILLIS = 200L;
+
+    private static final Database db = new DerbyDatabase();
+
+    private ISource m_source;
+    private DataStorePeriodsImpl m_periods;
+
+    @BeforeClass
+    public static void setup() throws Exception {
+        final Ade ade = mock(Ade.class, RETURNS_DEEP_STUBS);
+        when(ade.getConfigProperties().database().getDatabaseDriver()).thenReturn("derby");
+        when(ade.getConfigProperties().database().getDriverType()).thenReturn(DriverType.DERBY);
+        when(ade.getConfigProperties().database().getDatabaseSchema()).thenReturn(null);
+        when(ade.getDbVersion()).thenReturn(new Version(1, 0));
+        Ade.create(ade);
+    }
+
+    @Before
+    public void createTables() throws Exception {
+        MyJDBCConnection.close();
+        MyJDBCConnection.setDbConnectionProperties(db.getUrl(), db.getUser(), db.getPassword());
+        db.dropDatabase();
+        db.createDatabase();
+        new TableManager().createAll();
+        executeUpdate("insert into SOURCES (SOURCE_ID) values ('host1')");
+        m_source = mock(ISource.class);
+        when(m_source.getSourceInternalId()).thenReturn(1);
+        m_periods = new DataStorePeriodsImpl();
+    }
+
+    private static void executeUpdate(String sql) throws Exception {
+        final Statement stmt = MyJDBCConnection.getConnection().createStatement();
+        try {
+            stmt.executeUpdate(sql);
+        } finally {
+            stmt.close();
+        }
+    }
+
+    @Test
+    public void testMissThenHit() throws Exception {
+        assertNull(m_periods.getPeriodImpl(m_source, START, END));
+        assertEquals(1, m_periods.getPeriodCache().getMissCount());
+
+        final PeriodImpl added = m_periods.getOrAddPeriod(m_source, START, END);
+        assertNotNull(added);
+        assertSame("Assert the added period is cached", added, m_periods.getPeriodImpl(m_source, START, END));
+        assertSame(added, m_periods.getOrAddPeriod(m_source, START, END));
+        assertEquals(2, m_periods.getPeriodCache().getHitCount());
+
+        final DataStorePeriodsImpl other = new DataStorePeriodsImpl();
+        final PeriodImpl read = other.getPeriodImpl(m_source, START, END);
+        assertEquals("Assert a miss reads the period from the database", added.getInternalId(), read.getInternalId());
+        assertSame(read, other.getPeriodImpl(m_source, START, END));
+    }
+
+    @Test
+    public void testDeleteEvicts() throws Exception {
+        final PeriodImpl added = m_periods.getOrAddPeriod(m_source, START, END);
+        m_periods.deletePeriod(added);
+
+        assertEquals(0, m_periods.getPeriodCache().size());
+        assertNull(m_periods.getPeriodImpl(m_source, START, END));
+    }
+
+    @Test
+    public void testPeriodDeletedByAnotherProcess() throws Exception {
+        final DataStorePeriodsImpl periods = new DataStorePeriodsImpl(new PeriodCache(EXPIRY_MILLIS));
+        final PeriodImpl added = periods.getOrAddPeriod(m_source, START, END);
+        executeUpdate("delete from PERIODS where PERIOD_INTERNAL_ID=" + added.getInternalId());
+        assertSame("Assert a hit does not go to the database", added, periods.getOrAddPeriod(m_source, START, END));
+
+        Thread.sleep(2 * EXPIRY_MILLIS);
+        final PeriodImpl readded = periods.getOrAddPeriod(m_source, START, END);
+        assertNotEquals("Assert the deleted period is not returned once expired",
+                added.getInternalId(), readded.getInternalId());
+        assertSame(readded, periods.getPeriodImpl(m_source, START, END));
+    }
+
+    @Test
+    public void testPreloadPeriods() throws Exception {
+        executeUpdate("insert into SOURCES (SOURCE_ID) values ('host2')");
+        final ISource source2 = mock(ISource.class);
+        when(source2.getSourceInternalId()).thenReturn(2);
+        final DataStorePeriodsImpl other = new DataStorePeriodsImpl();
+        final PeriodImpl added = other.getOrAddPeriod(m_source, START, END);
+        final PeriodImpl added2 = other.getOrAddPeriod(source2, START, END);
+        other.getOrAddPeriod(m_source, END, new Date(END.getTime() + DAY));
+
+        assertEquals(2, m_periods.preloadPeriods(START, END));
+        assertEquals(added.getInternalId(), m_periods.getPeriodImpl(m_source, START, END).getInternalId());
+        assertEquals(added2.getInternalId(), m_periods.getPeriodImpl(source2, START, END).getInternalId());
+        assertEquals(0, m_periods.getPeriodCache().getMissCount());
+    }
+
+    @Test
+    public void testMissPreloadsRange() throws Exception {
+        executeUpdate("insert into SOURCES (SOURCE_ID) values ('host2')");
+        final ISource source2 = mock(ISource.class);
+        when(source2.getSourceInternalId()).thenReturn(2);
+        final DataStorePeriodsImpl other = new DataStorePeriodsImpl();
+        final PeriodImpl added2 = other.getOrAddPeriod(source2, START, END);
+
+        final PeriodImpl added = m_periods.getOrAddPeriod(m_source, START, END);
+        assertEquals("Assert the periods of the other sources were preloaded", 2, m_periods.getPeriodCache().size());
+        final long misses = m_periods.getPeriodCache().getMissCount();
+        assertEquals(added2.getInternalId(), m_periods.getOrAddPeriod(source2, START, END).getInternalId());
+        assertSame(added, m_periods.getOrAddPeriod(m_source, START, END));
+        assertEquals(misses, m_periods.getPeriodCache().getMissCount());
+    }
+
+    @Test
+    public void testFailedUpdateEvicts() throws Exception {
+        final PeriodImpl added = m_periods.getOrAddPeriod(m_source, START, END);
+        final StringBuilder comment = new StringBuilder();
+        for (int i = 0; i < 300; ++i) {
+            comment.append('x');
+        }
+        added.setComment(comment.toString());
+        try {
+            m_periods.updatePeriodMetaData(added);
+            fail("Expected the update of a too long comment to fail");
+        } catch (AdeException e) {
+            // expected
+        }
+
+        final PeriodImpl read = m_periods.getPeriodImpl(m_source, START, END);
+        assertEquals(added.getInternalId(), read.getInternalId());
+        assertNull("Assert the unsaved change is not cached", read.getComment());
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ 
+    Copyright IBM Corp. 2016
+    This file is part of Anomaly Detection Engine for Linux Logs (ADE).
+
+    ADE is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    ADE is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with ADE.  If not, see <http://www.gnu.org/licenses/>.
+ 
+*/
+package org.openmainframe.ade.impl.dataStore;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.sql.Statement;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.openmainframe.ade.Ade;
+import org.openmainframe.ade.dbUtils.DriverType;
+import org.openmainframe.ade.impl.data.PeriodSummary;
+import org.openmainframe.ade.impl.dbUtils.Database;
+import org.openmainframe.ade.impl.dbUtils.DerbyDatabase;
+import org.openmainframe.ade.impl.dbUtils.MyJDBCConnection;
+import org.openmainframe.ade.impl.scoringApi.PeriodTrainingStatistics;
+import org.openmainframe.ade.scores.MessageCountStatistics;
+import org.openmainframe.ade.utils.patches.Version;
+
+public class TestDataStoreTrainingStatistics {
+
+    private static final String KEY = "org.openmainframe.ade.scores.BernoulliScore/minutes*6";
+
+    private static final Database db = new DerbyDatabase();
+
+    private DataStoreTrainingStatistics m_dsStatistics;
+    private PeriodSummary m_periodSummary;
+
+    @BeforeClass
+    public static void setup() throws Exception {
+        final Ade ade = mock(Ade.class, RETURNS_DEEP_STUBS);
+        when(ade.getConfigProperties().database().getDatabaseDriver()).thenReturn("derby");
+        when(ade.getConfigProperties().database().getDriverType()).thenReturn(DriverType.DERBY);
+        when(ade.getConfigProperties().database().getDatabaseSchema()).thenReturn(null);
+        when(ade.getDbVersion()).thenReturn(new Version(1, 0));
+        Ade.create(ade);
+    }
+
+    @Before
+    public void createTables() throws Exception {
+        MyJDBCConnection.close();
+        MyJDBCConnection.setDbConnectionProperties(db.getUrl(), db.getUser(), db.getPassword());
+        db.dropDatabase();
+        db.createDatabase();
+        new TableManager().createAll();
+        executeUpdate("insert into SOURCES (SOURCE_ID) values ('host1')");
+        executeUpdate("insert into PERIODS (SOURCE_INTERNAL_ID, START_TIME, END_TIME) values "
+                + "(1, '2015-11-22 00:00:00', '2015-11-23 00:00:00')");
+        executeUpdate("insert into PERIOD_SUMMARIES (PERIOD_INTERNAL_ID, SUMMARY_TYPE_INTERNAL_ID) values (1, 1)");
+
+        m_dsStatistics = new DataStoreTrainingStatistics();
+        m_periodSummary = new PeriodSummary(1, null, null);
+    }
+
+    private static void executeUpdate(String sql) throws Exception {
+        final Statement stmt = MyJDBCConnection.getConnection().createStatement();
+        try {
+            stmt.executeUpdate(sql);
+        } finally {
+            stmt.close();
+        }
+    }
+
+    private static PeriodTrainingStatistics newStatistics(String msgId, int count) {
+        final MessageCountStatistics stats = new MessageCountStatistics(1);
+        stats.getCounters(msgId)[0] = count;
+        stats.addInterval();
+        final PeriodTrainingStatistics res = new PeriodTrainingStatistics(stats);
+        res.addTimeSpan(1000L, 2000L);
+        return res;
+    }
+
+    @Test
+    public void testStoreAndRead() throws Exception {
+        assertTrue(m_dsStatistics.isAvailable());
+        assertTrue(m_dsStatistics.getStatistics(m_periodSummary).isEmpty());
+
+        m_dsStatistics.storeStatistics(m_periodSummary, KEY, newStatistics("kernel_1", 3));
+        m_dsStatistics.storeStatistics(m_periodSummary, KEY, newStatistics("kernel_2", 5));
+
+        final Map<String, PeriodTrainingStatistics> read = m_dsStatistics.getStatistics(m_periodSummary);
+        assertEquals(1, read.size());
+        final MessageCountStatistics stats = (MessageCountStatistics) read.get(KEY).getStatistics();
+        assertEquals(1, stats.getIntervalCount());
+        assertEquals(1, stats.getAllCounters().size());
+        assertArrayEquals(new int[] { 5 }, stats.getAllCounters().get("kernel_2"));
+        assertEquals(Long.valueOf(1000L), read.get(KEY).getStartTime());
+        assertEquals(Long.valueOf(2000L), read.get(KEY).getEndTime());
+    }
+
+    @Test
+    public void testDelete() throws Exception {
+        m_dsStatistics.storeStatistics(m_periodSummary, KEY, newStatistics("kernel_1", 3));
+        m_dsStatistics.deleteStatistics(m_periodSummary.getInternalId());
+        assertTrue(m_dsStatistics.getStatistics(m_periodSummary).isEmpty());
+
+        // the statistics are deleted with their period
+        m_dsStatistics.storeStatistics(m_periodSummary, KEY, newStatistics("kernel_1", 3));
+        executeUpdate("delete from PERIODS");
+        assertTrue(m_dsStatistics.getStatistics(m_periodSummary).isEmpty());
+    }
+
+    /**
+     * Databases created by earlier versions have no statistics table, until it is added by
+     * creating the missing tables.
+     */
+    @Test
+    public void testMissingTable() throws Exception {
+        executeUpdate("drop table " + SQL.PERIOD_TRAINING_STATISTICS);
+        final DataStoreTrainingStatistics dsStatistics = new DataStoreTrainingStatistics();
+        assertFalse(dsStatistics.isAvailable());
+        dsStatistics.deleteStatistics(m_periodSummary.getInternalId());
+
+        assertEquals(1, new TableManager().createMissingTables());
+        assertTrue(new DataStoreTrainingStatistics().isAvailable());
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ 
+    Copyright IBM Corp. 2016
+    This file is part of Anomaly Detection Engine for Linux Logs (ADE).
+
+    ADE is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    ADE is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with ADE.  If not, see <http://www.gnu.org/licenses/>.
+ 
+*/
+package org.openmainframe.ade.impl.dataStore;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.openmainframe.ade.exceptions.AdeException;
+import org.openmainframe.ade.exceptions.AdeUsageException;
+
+public class TestLruCache {
+
+    private static final LruCache.Weigher<String, String> LENGTH_WEIGHER = new LruCache.Weigher<String, String>() {
+        @Override
+        public long weigh(String key, String value) {
+            return value.length();
+        }
+    };
+
+    private static final class CountingLoader implements LruCache.Loader<String, String> {
+        private final AtomicInteger m_loads = new AtomicInteger();
+
+        @Override
+        public String load(String key) throws AdeException {
+            m_loads.incrementAndGet();
+            return key.toUpperCase();
+        }
+    }
+
+    @Test
+    public void testEvictsLeastRecentlyUsed() throws Exception {
+        final LruCache<String, String> cache = new LruCache<String, String>(2);
+        cache.put("a", "A");
+        cache.put("b", "B");
+        /* a becomes the most recently used */
+        assertEquals("A", cache.getIfPresent("a"));
+        cache.put("c", "C");
+
+        assertEquals("A", cache.getIfPresent("a"));
+        assertNull(cache.getIfPresent("b"));
+        assertEquals("C", cache.getIfPresent("c"));
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictionCount());
+        assertEquals(3, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    public void testWeightBound() throws Exception {
+        final LruCache<String, String> cache = new LruCache<String, String>(100, 10, LENGTH_WEIGHER);
+        cache.put("a", "aaaa");
+        cache.put("b", "bbbb");
+        assertEquals(8, cache.getWeight());
+        cache.put("c", "cccc");
+        assertNull(cache.getIfPresent("a"));
+        assertEquals(8, cache.getWeight());
+
+        /* A value heavier than the bound is still kept, alone */
+        cache.put("d", "dddddddddddddddd");
+        assertEquals(1, cache.size());
+        assertEquals(16, cache.getWeight());
+        cache.invalidate("d");
+        assertEquals(0, cache.getWeight());
+    }
+
+    @Test
+    public void testLoadsMissingValuesOnce() throws Exception {
+        final LruCache<String, String> cache = new LruCache<String, String>(10);
+        final CountingLoader loader = new CountingLoader();
+        assertEquals("A", cache.get("a", loader));
+        assertEquals("A", cache.get("a", loader));
+        assertEquals(1, loader.m_loads.get());
+        assertEquals(1, cache.getLoadCount());
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    public void testConcurrentRequestsShareALoad() throws Exception {
+        final LruCache<String, String> cache = new LruCache<String, String>(10);
+        final int threads = 8;
+        final CountDownLatch started = new CountDownLatch(threads);
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger loads = new AtomicInteger();
+        final LruCache.Loader<String, String> slowLoader = new LruCache.Loader<String, String>() {
+            @Override
+            public String load(String key) throws AdeException {
+                loads.incrementAndGet();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new AdeUsageException("Interrupted", e);
+                }
+                return new String("value");
+            }
+        };
+
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            final List<Future<String>> futures = new ArrayList<Future<String>>();
+            for (int i = 0; i < threads; i++) {
+                futures.add(executor.submit(new Callable<String>() {
+                    @Override
+                    public String call() throws Exception {
+                        started.countDown();
+                        return cache.get("key", slowLoader);
+                    }
+                }));
+            }
+            started.await();
+            Thread.sleep(100);
+            release.countDown();
+
+            final String value = futures.get(0).get();
+            for (Future<String> future : futures) {
+                assertSame(value, future.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(1, loads.get());
+        assertEquals(1, cache.getLoadCount());
+    }
+
+    @Test
+    public void testFailedLoadIsNotCached() throws Exception {
+        final LruCache<String, String> cache = new LruCache<String, String>(10);
+        try {
+            cache.get("a", new LruCache.Loader<String, String>() {
+                @Override
+                public String load(String key) throws AdeException {
+                    throw new AdeUsageException("Missing model file");
+                }
+            });
+            fail("The exception of the loader was not thrown");
+        } catch (AdeUsageException e) {
+            assertEquals("Missing model file", e.getMessage());
+        }
+        assertEquals(0, cache.size());
+        assertEquals("A", cache.get("a", new CountingLoader()));
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ 
+    Copyright IBM Corp. 2016
+    This file is part of Anomaly Detection Engine for Linux Logs (ADE).
+
+    ADE is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    ADE is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with ADE.  If not, see <http://www.gnu.org/licenses/>.
+ 
+*/
+package org.openmainframe.ade.impl.dataStore;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Date;
+
+import org.junit.Test;
+import org.openmainframe.ade.impl.data.PeriodImpl;
+import org.openmainframe.ade.impl.data.SourceImpl;
+
+public class TestPeriodCache {
+
+    private static final long DAY = 24 * 60 * 60 * 1000L;
+
+    private static PeriodImpl period(int id, int source, long start) {
+        return new PeriodImpl(id, new SourceImpl(source), false, 0, null, new Date(start), new Date(start + DAY));
+    }
+
+    @Test
+    public void testHitAndMiss() {
+        final PeriodCache cache = new PeriodCache();
+        final PeriodImpl p1 = period(1, 1, 0);
+        cache.put(p1);
+
+        assertSame(p1, cache.get(1, new Date(0), new Date(DAY)));
+        assertNull("Assert another source misses", cache.get(2, new Date(0), new Date(DAY)));
+        assertNull("Assert another start time misses", cache.get(1, new Date(DAY), new Date(2 * DAY)));
+        assertNull("Assert another end time misses", cache.get(1, new Date(0), new Date(2 * DAY)));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(3, cache.getMissCount());
+    }
+
+    @Test
+    public void testPutReplaces() {
+        final PeriodCache cache = new PeriodCache();
+        cache.put(period(1, 1, 0));
+        final PeriodImpl p2 = period(2, 1, 0);
+        cache.put(p2);
+
+        assertSame(p2, cache.get(1, new Date(0), new Date(DAY)));
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void testRemove() {
+        final PeriodCache cache = new PeriodCache();
+        final PeriodImpl p1 = period(1, 1, 0);
+        cache.put(p1);
+        cache.put(period(2, 1, DAY));
+        cache.put(period(3, 2, 0));
+
+        cache.remove(p1);
+        assertNull(cache.get(1, new Date(0), new Date(DAY)));
+        assertEquals(2, cache.size());
+
+        cache.removeSource(1);
+        assertNull(cache.get(1, new Date(DAY), new Date(2 * DAY)));
+        assertEquals(1, cache.size());
+
+        cache.clear();
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testExpiry() throws InterruptedException {
+        final PeriodCache cache = new PeriodCache(50);
+        cache.put(period(1, 1, 0));
+        Thread.sleep(100);
+
+        assertNull("Assert an expired period misses", cache.get(1, new Date(0), new Date(DAY)));
+        assertEquals("Assert an expired period is removed", 0, cache.size());
+    }
+
+    @Test
+    public void testMarkPreloaded() throws InterruptedException {
+        final PeriodCache cache = new PeriodCache(50);
+        assertTrue(cache.markPreloaded(new Date(0)));
+        assertFalse("Assert a preloaded range is not loaded again", cache.markPreloaded(new Date(0)));
+        assertTrue(cache.markPreloaded(new Date(DAY)));
+
+        Thread.sleep(100);
+        assertTrue("Assert an expired range is loaded again", cache.markPreloaded(new Date(0)));
+
+        cache.clear();
+        assertTrue("Assert a cleared range is loaded again", cache.markPreloaded(new Date(DAY)));
+    }
+
+    @Test
+    public void testBounded() {
+        final PeriodCache cache = new PeriodCache();
+        for (int i = 0; i <= PeriodCache.MAX_ENTRIES; ++i) {
+            cache.put(period(i + 1, 1, i * DAY));
+        }
+        assertEquals("Assert a full cache is cleared before adding", 1, cache.size());
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ 
+    Copyright IBM Corp. 2016
+    This file is part of Anomaly Detection Engine for Linux Logs (ADE).
+
+    ADE is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    ADE is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with ADE.  If not, see <http://www.gnu.org/licenses/>.
+ 
+*/
+package org.openmainframe.ade.impl.dataStore;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+
+import org.apache.wink.json4j.JSONObject;
+import org.junit.Test;
+
+public class TestPeriodDataFile {
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        final JSONObject header = new JSONObject();
+        header.put(PeriodDataFile.HEADER_SOURCE_ID, "hosté");
+        header.put(PeriodDataFile.HEADER_MESSAGE_IDS, new JSONObject().put("7", "kernel_12"));
+
+        final PeriodDataFile.IntervalRecord interval = new PeriodDataFile.IntervalRecord();
+        interval.m_serialNum = 3;
+        interval.m_numUniqueMessageIds = 42;
+        interval.m_startTime = 1458000000000L;
+        interval.m_classification = 1;
+        interval.m_adeVersion = "1.0.4";
+        interval.m_coverageFactor = 0.75;
+
+        final PeriodDataFile.MessageSummaryRecord full = new PeriodDataFile.MessageSummaryRecord();
+        full.m_serialNum = 3;
+        full.m_messageInternalId = 7;
+        full.m_numMessages = 100;
+        full.m_severity = 2;
+        full.m_criticalWordsScore = 5;
+        full.m_textSummary = "link down on eth*";
+        full.m_textSample = "link down on eth0 – retrying";
+        full.m_encodedTimeVector = "AAAB";
+
+        final PeriodDataFile.MessageSummaryRecord sparse = new PeriodDataFile.MessageSummaryRecord();
+        sparse.m_serialNum = 4;
+        sparse.m_messageInternalId = 7;
+        sparse.m_numMessages = 1;
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (PeriodDataFile.Writer writer = new PeriodDataFile.Writer(out, header)) {
+            writer.writePeriodSummary(2);
+            writer.writeInterval(interval);
+            interval.m_coverageFactor = null;
+            writer.writeInterval(interval);
+            writer.writeMessageSummary(full);
+            writer.writeMessageSummary(sparse);
+            writer.finish();
+        }
+
+        try (PeriodDataFile.Reader reader = new PeriodDataFile.Reader(new ByteArrayInputStream(out.toByteArray()))) {
+            assertEquals("hosté", reader.getHeader().getString(PeriodDataFile.HEADER_SOURCE_ID));
+            assertEquals("kernel_12",
+                    reader.getHeader().getJSONObject(PeriodDataFile.HEADER_MESSAGE_IDS).getString("7"));
+
+            assertEquals(PeriodDataFile.TAG_PERIOD_SUMMARY, reader.nextTag());
+            assertEquals(2, reader.readPeriodSummary());
+
+            final PeriodDataFile.IntervalRecord readInterval = new PeriodDataFile.IntervalRecord();
+            assertEquals(PeriodDataFile.TAG_INTERVAL, reader.nextTag());
+            reader.readInterval(readInterval);
+            assertEquals(3, readInterval.m_serialNum);
+            assertEquals(42, readInterval.m_numUniqueMessageIds);
+            assertEquals(1458000000000L, readInterval.m_startTime);
+            assertEquals(1, readInterval.m_classification);
+            assertEquals("1.0.4", readInterval.m_adeVersion);
+            assertEquals(0.75, readInterval.m_coverageFactor, 0);
+            assertEquals(PeriodDataFile.TAG_INTERVAL, reader.nextTag());
+            reader.readInterval(readInterval);
+            assertNull(readInterval.m_coverageFactor);
+
+            final PeriodDataFile.MessageSummaryRecord readSummary = new PeriodDataFile.MessageSummaryRecord();
+            assertEquals(PeriodDataFile.TAG_MESSAGE_SUMMARY, reader.nextTag());
+            reader.readMessageSummary(readSummary);
+            assertEquals(3, readSummary.m_serialNum);
+            assertEquals(7, readSummary.m_messageInternalId);
+            assertEquals(100, readSummary.m_numMessages);
+            assertEquals(2, readSummary.m_severity);
+            assertEquals(Integer.valueOf(5), readSummary.m_criticalWordsScore);
+            assertEquals(full.m_textSummary, readSummary.m_textSummary);
+            assertEquals(full.m_textSample, readSummary.m_textSample);
+            assertEquals("AAAB", readSummary.m_encodedTimeVector);
+
+            assertEquals(PeriodDataFile.TAG_MESSAGE_SUMMARY, reader.nextTag());
+            reader.readMessageSummary(readSummary);
+            assertEquals(4, readSummary.m_serialNum);
+            assertNull(readSummary.m_criticalWordsScore);
+            assertNull(readSummary.m_textSummary);
+            assertNull(readSummary.m_textSample);
+            assertNull(readSummary.m_encodedTimeVector);
+
+            assertEquals(PeriodDataFile.TAG_END, reader.nextTag());
+        }
+    }
+
+    @Test(expected = EOFException.class)
+    public void testTruncatedFile() throws Exception {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (PeriodDataFile.Writer writer = new PeriodDataFile.Writer(out, new JSONObject())) {
+            writer.writePeriodSummary(1);
+        }
+        try (PeriodDataFile.Reader reader = new PeriodDataFile.Reader(new ByteArrayInputStream(out.toByteArray()))) {
+            assertEquals(PeriodDataFile.TAG_PERIOD_SUMMARY, reader.nextTag());
+            reader.readPeriodSummary();
+            reader.nextTag();
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testNotAPeriodFile() throws Exception {
+        new PeriodDataFile.Reader(new ByteArrayInputStream("not a period file".getBytes("UTF-8"))).close();
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ 
+    Copyright IBM Corp. 2016
+    This file is part of Anomaly Detection Engine for Linux Logs (ADE).
+
+    ADE is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    ADE is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with ADE.  If not, see <http://www.gnu.org/licenses/>.
+ 
+*/
+package org.openmainframe.ade.impl.dataStore;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Timestamp;
+
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.openmainframe.ade.Ade;
+import org.openmainframe.ade.dbUtils.DriverType;
+import org.openmainframe.ade.impl.dbUtils.Database;
+import org.openmainframe.ade.impl.dbUtils.DerbyDatabase;
+import org.openmainframe.ade.impl.dbUtils.MyJDBCConnection;
+import org.openmainframe.ade.utils.patches.Version;
+
+public class TestPeriodRetention {
+
+    private static final String[] DAYS = { "2015-11-22", "2015-11-23", "2015-11-24", "2015-11-25" };
+    private static final int INTERVALS = 5;
+    private static final int MESSAGES = 3;
+
+    private static final Database db = new DerbyDatabase();
+
+    private DataStorePeriodsImpl m_periods;
+
+    @BeforeClass
+    public static void setup() throws Exception {
+        final Ade ade = mock(Ade.class, RETURNS_DEEP_STUBS);
+        when(ade.getConfigProperties().database().getDatabaseDriver()).thenReturn("derby");
+        when(ade.getConfigProperties().database().getDriverType()).thenReturn(DriverType.DERBY);
+        when(ade.getConfigProperties().database().getDatabaseSchema()).thenReturn(null);
+        when(ade.getDbVersion()).thenReturn(new Version(1, 0));
+        Ade.create(ade);
+    }
+
+    /**
+     * Uploads a period for each of the first three days, with a single period summary.
+     */
+    @Before
+    public void createTables() throws Exception {
+        MyJDBCConnection.close();
+        MyJDBCConnection.setDbConnectionProperties(db.getUrl(), db.getUser(), db.getPassword());
+        db.dropDatabase();
+        db.createDatabase();
+        new TableManager().createAll();
+        executeUpdate("insert into SOURCES (SOURCE_ID) values ('host1')");
+        for (int period = 1; period < DAYS.length; ++period) {
+            executeUpdate("insert into PERIODS (SOURCE_INTERNAL_ID, START_TIME, END_TIME) values (1, '"
+                    + DAYS[period - 1] + " 00:00:00', '" + DAYS[period] + " 00:00:00')");
+            executeUpdate("insert into PERIOD_SUMMARIES (PERIOD_INTERNAL_ID, SUMMARY_TYPE_INTERNAL_ID) values ("
+                    + period + ", 1)");
+            for (int interval = 0; interval < INTERVALS; ++interval) {
+                executeUpdate("insert into INTERVALS (PERIOD_SUMMARY_INTERNAL_ID, INTERVAL_SERIAL_NUM, "
+                        + "NUM_UNIQUE_MESSAGE_IDS, INTERVAL_START_TIME, CLASSIFICATION_INTERNAL_ID, ADE_VERSION) "
+                        + "values (" + period + ", " + interval + ", " + MESSAGES + ", 0, 0, '1.0')");
+                for (int msg = 0; msg < MESSAGES; ++msg) {
+                    executeUpdate("insert into MESSAGE_SUMMARIES (PERIOD_SUMMARY_INTERNAL_ID, INTERVAL_SERIAL_NUM, "
+                            + "MESSAGE_INTERNAL_ID, NUM_MESSAGES, TEXT_SUMMARY, TEXT_SAMPLE, SEVERITY) values ("
+                            + period + ", " + interval + ", " + msg + ", 2, 'link *', 'link down', 0)");
+                }
+            }
+        }
+        m_periods = new DataStorePeriodsImpl();
+    }
+
+    private static void executeUpdate(String sql) throws Exception {
+        final Statement stmt = MyJDBCConnection.getConnection().createStatement();
+        try {
+            stmt.executeUpdate(sql);
+        } finally {
+            stmt.close();
+        }
+    }
+
+    private static int count(String sql) throws Exception {
+        final Statement stmt = MyJDBCConnection.getConnection().createStatement();
+        try {
+            final ResultSet rs = stmt.executeQuery(sql);
+            rs.next();
+            return rs.getInt(1);
+        } finally {
+            stmt.close();
+        }
+    }
+
+    private static Timestamp endOfDay(int day) {
+        return Timestamp.valueOf(DAYS[day + 1] + " 00:00:00");
+    }
+
+    @Test
+    public void testPurgeAndCompact() throws Exception {
+        final PeriodRetention retention = new PeriodRetention(m_periods, endOfDay(0), endOfDay(1), null, 2);
+        retention.run();
+        assertEquals(1, retention.getPurgedPeriods());
+        assertEquals(INTERVALS * MESSAGES, retention.getDeletedMessageSummaries());
+        assertEquals(1, retention.getCompactedPeriods());
+        assertEquals(INTERVALS * MESSAGES, retention.getCompactedMessageSummaries());
+
+        assertEquals(2, count("select count(*) from PERIODS"));
+        assertEquals(0, count("select count(*) from MESSAGE_SUMMARIES where PERIOD_SUMMARY_INTERNAL_ID=1"));
+        assertEquals(0, count("select count(*) from INTERVALS where PERIOD_SUMMARY_INTERNAL_ID=1"));
+
+        // the compacted period keeps what training reads
+        assertEquals(INTERVALS, count("select count(*) from INTERVALS where PERIOD_SUMMARY_INTERNAL_ID=2"));
+        assertEquals(2 * INTERVALS * MESSAGES,
+                count("select sum(NUM_MESSAGES) from MESSAGE_SUMMARIES where PERIOD_SUMMARY_INTERNAL_ID=2"));
+        assertEquals(0, count("select count(*) from MESSAGE_SUMMARIES where PERIOD_SUMMARY_INTERNAL_ID=2 "
+                + "and (TEXT_SUMMARY is not null or TEXT_SAMPLE is not null)"));
+        assertEquals(INTERVALS * MESSAGES, count("select count(*) from MESSAGE_SUMMARIES where "
+                + "PERIOD_SUMMARY_INTERNAL_ID=3 and TEXT_SUMMARY is not null and TEXT_SAMPLE is not null"));
+
+        final PeriodRetention again = new PeriodRetention(m_periods, endOfDay(0), endOfDay(1), null, 2);
+        again.run();
+        assertEquals(0, again.getPurgedPeriods());
+        assertEquals(0, again.getCompactedPeriods());
+    }
+
+    @Test
+    public void testNoRetention() throws Exception {
+        final PeriodRetention retention = new PeriodRetention(m_periods, null, null, null, 2);
+        retention.run();
+        assertEquals(3, count("select count(*) from PERIODS"));
+        assertEquals(3 * INTERVALS * MESSAGES, count("select count(*) from MESSAGE_SUMMARIES "
+                + "where TEXT_SUMMARY is not null"));
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ 
+    Copyright IBM Corp. 2016
+    This file is part of Anomaly Detection Engine for Linux Logs (ADE).
+
+    ADE is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    ADE is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with ADE.  If not, see <http://www.gnu.org/licenses/>.
+ 
+*/
+package org.openmainframe.ade.impl.dataStore;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.sql.Statement;
+
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.openmainframe.ade.Ade;
+import org.openmainframe.ade.dbUtils.DriverType;
+import org.openmainframe.ade.impl.dbUtils.Database;
+import org.openmainframe.ade.impl.dbUtils.DerbyDatabase;
+import org.openmainframe.ade.impl.dbUtils.MyJDBCConnection;
+import org.openmainframe.ade.utils.patches.Version;
+
+public class TestTableManager {
+
+    private static final Database db = new DerbyDatabase();
+
+    private TableManager m_tableManager;
+
+    @BeforeClass
+    public static void setup() throws Exception {
+        final Ade ade = mock(Ade.class, RETURNS_DEEP_STUBS);
+        when(ade.getConfigProperties().database().getDatabaseDriver()).thenReturn("derby");
+        when(ade.getConfigProperties().database().getDriverType()).thenReturn(DriverType.DERBY);
+        when(ade.getConfigProperties().database().getDatabaseSchema()).thenReturn(null);
+        when(ade.getDbVersion()).thenReturn(new Version(1, 0));
+        Ade.create(ade);
+    }
+
+    @Before
+    public void createTables() throws Exception {
+        MyJDBCConnection.close();
+        MyJDBCConnection.setDbConnectionProperties(db.getUrl(), db.getUser(), db.getPassword());
+        db.dropDatabase();
+        db.createDatabase();
+        m_tableManager = new TableManager();
+        m_tableManager.createAll();
+    }
+
+    private static void executeUpdate(String sql) throws Exception {
+        final Statement stmt = MyJDBCConnection.getConnection().createStatement();
+        try {
+            stmt.executeUpdate(sql);
+        } finally {
+            stmt.close();
+        }
+    }
+
+    @Test
+    public void testCreateMissingIndices() throws Exception {
+        assertEquals(0, m_tableManager.createMissingIndices());
+        executeUpdate("drop index periods_by_source_internal_id_start_time");
+        assertEquals(1, m_tableManager.createMissingIndices());
+        assertEquals(0, m_tableManager.createMissingIndices());
+    }
+
+    @Test
+    public void testDropObsoleteIndices() throws Exception {
+        assertEquals(0, m_tableManager.dropObsoleteIndices());
+        /* Derby does not create the obsolete index over its own columns, as the index of the
+         * foreign key already covers them, so it is created over another column */
+        executeUpdate("create index message_summaries_by_period_summary_internal_id"
+                + " on MESSAGE_SUMMARIES (INTERVAL_SERIAL_NUM)");
+        assertEquals(1, m_tableManager.dropObsoleteIndices());
+        assertEquals(0, m_tableManager.dropObsoleteIndices());
+        assertEquals(0, m_tableManager.createMissingIndices());
+
+        /* The index can be created again once dropped */
+        executeUpdate("create index message_summaries_by_period_summary_internal_id"
+                + " on MESSAGE_SUMMARIES (INTERVAL_SERIAL_NUM)");
+    }
+}
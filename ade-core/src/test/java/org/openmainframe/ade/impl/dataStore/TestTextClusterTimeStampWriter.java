@@ -0,0 +1,156 @@
+/*
+ 
+    Copyright IBM Corp. 2016
+    This file is part of Anomaly Detection Engine for Linux Logs (ADE).
+
+    ADE is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    ADE is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with ADE.  If not, see <http://www.gnu.org/licenses/>.
+ 
+*/
+package org.openmainframe.ade.impl.dataStore;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Date;
+
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.openmainframe.ade.Ade;
+import org.openmainframe.ade.dbUtils.DriverType;
+import org.openmainframe.ade.exceptions.AdeException;
+import org.openmainframe.ade.impl.dbUtils.Database;
+import org.openmainframe.ade.impl.dbUtils.DerbyDatabase;
+import org.openmainframe.ade.impl.dbUtils.MyJDBCConnection;
+import org.openmainframe.ade.utils.patches.Version;
+
+public class TestTextClusterTimeStampWriter {
+
+    private static final long DAY = 24 * 60 * 60 * 1000L;
+    private static final long DAY0 = 1448150400000L;
+
+    private static final Database db = new DerbyDatabase();
+
+    private DataStoreTextClusteringModelsImpl m_dsTextClustering;
+    private int m_first;
+    private int m_second;
+
+    @BeforeClass
+    public static void setup() throws Exception {
+        final Ade ade = mock(Ade.class, RETURNS_DEEP_STUBS);
+        when(ade.getConfigProperties().database().getDatabaseDriver()).thenReturn("derby");
+        when(ade.getConfigProperties().database().getDriverType()).thenReturn(DriverType.DERBY);
+        when(ade.getConfigProperties().database().getDatabaseSchema()).thenReturn(null);
+        when(ade.getDbVersion()).thenReturn(new Version(1, 0));
+        Ade.create(ade);
+    }
+
+    @Before
+    public void createTables() throws Exception {
+        MyJDBCConnection.close();
+        MyJDBCConnection.setDbConnectionProperties(db.getUrl(), db.getUser(), db.getPassword());
+        db.dropDatabase();
+        db.createDatabase();
+        new TableManager().createAll();
+        final Statement stmt = MyJDBCConnection.getConnection().createStatement();
+        stmt.executeUpdate("insert into COMPONENT_IDS (COMPONENT_ID) values ('kernel')");
+        stmt.close();
+
+        m_dsTextClustering = new DataStoreTextClusteringModelsImpl();
+        m_first = m_dsTextClustering.storeTextCluster("link down", 1, new Date(DAY0));
+        m_second = m_dsTextClustering.storeTextCluster("link up", 1, new Date(DAY0));
+    }
+
+    private static long getLastObserved(int clusterId) throws Exception {
+        final Statement stmt = MyJDBCConnection.getConnection().createStatement();
+        try {
+            final ResultSet rs = stmt.executeQuery(
+                    "select LAST_OBSERVED from TEXT_CLUSTERS where TEXT_CLUSTER_INTERNAL_ID = " + clusterId);
+            rs.next();
+            return rs.getTimestamp(1).getTime();
+        } finally {
+            stmt.close();
+        }
+    }
+
+    @Test
+    public void testCoalescedUpdates() throws Exception {
+        final TextClusterTimeStampWriter writer = new TextClusterTimeStampWriter(m_dsTextClustering, 60 * 60 * 1000L);
+        writer.update(m_first, new Date(DAY0 + DAY));
+        writer.update(m_first, new Date(DAY0 + 3 * DAY));
+        writer.update(m_first, new Date(DAY0 + 2 * DAY));
+        writer.update(m_second, new Date(DAY0 + DAY));
+
+        writer.flushIfDue();
+        assertEquals(2, writer.getPendingCount());
+        assertEquals(DAY0, getLastObserved(m_first));
+
+        writer.flush();
+        assertEquals(0, writer.getPendingCount());
+        assertEquals(DAY0 + 3 * DAY, getLastObserved(m_first));
+        assertEquals(DAY0 + DAY, getLastObserved(m_second));
+        assertEquals(4, writer.getUpdateCount());
+        assertEquals(1, writer.getFlushCount());
+
+        writer.flush();
+        assertEquals(1, writer.getFlushCount());
+    }
+
+    @Test
+    public void testWriteThrough() throws Exception {
+        final TextClusterTimeStampWriter writer = new TextClusterTimeStampWriter(m_dsTextClustering, 0);
+        writer.update(m_first, new Date(DAY0 + DAY));
+        writer.flushIfDue();
+        assertEquals(0, writer.getPendingCount());
+        assertEquals(DAY0 + DAY, getLastObserved(m_first));
+    }
+
+    @Test
+    public void testTimeStampNeverMovesBack() throws Exception {
+        final TextClusterTimeStampWriter writer = new TextClusterTimeStampWriter(m_dsTextClustering, 0);
+        writer.update(m_first, new Date(DAY0 + 2 * DAY));
+        writer.flush();
+
+        // a delayed update of another writer
+        final TextClusterTimeStampWriter other = new TextClusterTimeStampWriter(m_dsTextClustering, 0);
+        other.update(m_first, new Date(DAY0 + DAY));
+        other.flush();
+        assertEquals(DAY0 + 2 * DAY, getLastObserved(m_first));
+    }
+
+    @Test
+    public void testFailedFlushStaysPending() throws Exception {
+        final TextClusterTimeStampWriter writer = new TextClusterTimeStampWriter(m_dsTextClustering, 0);
+        writer.update(m_first, new Date(DAY0 + DAY));
+        final Statement stmt = MyJDBCConnection.getConnection().createStatement();
+        stmt.executeUpdate("rename table TEXT_CLUSTERS to TEXT_CLUSTERS_AWAY");
+        try {
+            writer.flush();
+            fail("The flush should fail without the table");
+        } catch (AdeException e) {
+            assertEquals(1, writer.getPendingCount());
+        }
+        stmt.executeUpdate("rename table TEXT_CLUSTERS_AWAY to TEXT_CLUSTERS");
+        stmt.close();
+
+        writer.flush();
+        assertEquals(0, writer.getPendingCount());
+        assertEquals(DAY0 + DAY, getLastObserved(m_first));
+    }
+}
@@ -0,0 +1,230 @@
+/*
+ 
+    Copyright IBM Corp. 2016
+    This file is part of Anomaly Detection Engine for Linux Logs (ADE).
+
+    ADE is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    ADE is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with ADE.  If not, see <http://www.gnu.org/licenses/>.
+ 
+*/
+package org.openmainframe.ade.impl.dbUtils;
+
+import static org.junit.Assert.*;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class ConnectionPoolTest {
+
+    private static final Database db = new DerbyDatabase();
+
+    private static final String QUERY = "VALUES 1";
+
+    @Before
+    public void setup() throws Exception {
+        db.dropDatabase();
+        db.createDatabase();
+    }
+
+    @Test
+    public void testClosedConnectionIsReused() throws Exception {
+        final ConnectionPool pool = new ConnectionPool(db.getUrl(), db.getUser(), db.getPassword(), 2, 8);
+
+        final Connection c1 = pool.getConnection(false);
+        c1.close();
+        assertTrue("Assert the returned handle reports closed", c1.isClosed());
+
+        final Connection c2 = pool.getConnection(false);
+        assertNotSame("Assert each borrow gets a new handle", c1, c2);
+        assertFalse("Assert connection 2 is not closed", c2.isClosed());
+        c2.close();
+
+        assertEquals("Assert a single physical connection was opened", 1, pool.getCreatedCount());
+        assertEquals(2, pool.getBorrowCount());
+        assertEquals(1, pool.getReuseCount());
+        assertEquals(1, pool.getIdleCount());
+        assertEquals(0, pool.getActiveCount());
+    }
+
+    @Test(expected = SQLException.class)
+    public void testClosedHandleRefusesCalls() throws Exception {
+        final ConnectionPool pool = new ConnectionPool(db.getUrl(), db.getUser(), db.getPassword(), 1, 8);
+        final Connection c1 = pool.getConnection(false);
+        c1.close();
+        c1.createStatement();
+    }
+
+    @Test
+    public void testStatementCacheHit() throws Exception {
+        final ConnectionPool pool = new ConnectionPool(db.getUrl(), db.getUser(), db.getPassword(), 1, 8);
+
+        Connection con = pool.getConnection(false);
+        final PreparedStatement ps1 = ConnectionPool.prepareStatement(con, QUERY);
+        assertEquals(1, executeScalar(ps1));
+        ConnectionPool.releaseStatement(con, QUERY, ps1);
+        con.close();
+
+        con = pool.getConnection(false);
+        final PreparedStatement ps2 = ConnectionPool.prepareStatement(con, QUERY);
+        assertSame("Assert the cached statement is reused across borrows", ps1, ps2);
+        assertEquals(1, executeScalar(ps2));
+        ConnectionPool.releaseStatement(con, QUERY, ps2);
+        con.close();
+
+        assertEquals(1, pool.getStatementCacheHits());
+        assertEquals(1, pool.getStatementCacheMisses());
+    }
+
+    @Test
+    public void testCheckedOutStatementIsNotShared() throws Exception {
+        final ConnectionPool pool = new ConnectionPool(db.getUrl(), db.getUser(), db.getPassword(), 1, 8);
+
+        final Connection con = pool.getConnection(false);
+        final PreparedStatement ps1 = ConnectionPool.prepareStatement(con, QUERY);
+        final PreparedStatement ps2 = ConnectionPool.prepareStatement(con, QUERY);
+        assertNotSame(ps1, ps2);
+
+        ConnectionPool.releaseStatement(con, QUERY, ps1);
+        ConnectionPool.releaseStatement(con, QUERY, ps2);
+        assertTrue("Assert the duplicate statement was closed", ps2.isClosed());
+        assertFalse(ps1.isClosed());
+        con.close();
+    }
+
+    @Test
+    public void testStatementClosedAfterReleaseIsNotReused() throws Exception {
+        final ConnectionPool pool = new ConnectionPool(db.getUrl(), db.getUser(), db.getPassword(), 1, 8);
+
+        final Connection con = pool.getConnection(false);
+        final PreparedStatement ps1 = ConnectionPool.prepareStatement(con, QUERY);
+        ConnectionPool.releaseStatement(con, QUERY, ps1);
+        ps1.close();
+
+        final PreparedStatement ps2 = ConnectionPool.prepareStatement(con, QUERY);
+        assertNotSame(ps1, ps2);
+        assertEquals(1, executeScalar(ps2));
+        ConnectionPool.releaseStatement(con, QUERY, ps2);
+        con.close();
+    }
+
+    @Test
+    public void testStatementCacheEvictsLeastRecentlyUsed() throws Exception {
+        final ConnectionPool pool = new ConnectionPool(db.getUrl(), db.getUser(), db.getPassword(), 1, 1);
+
+        final Connection con = pool.getConnection(false);
+        final PreparedStatement ps1 = ConnectionPool.prepareStatement(con, "VALUES 1");
+        final PreparedStatement ps2 = ConnectionPool.prepareStatement(con, "VALUES 2");
+        ConnectionPool.releaseStatement(con, "VALUES 1", ps1);
+        ConnectionPool.releaseStatement(con, "VALUES 2", ps2);
+        con.close();
+
+        assertTrue("Assert the eldest statement was closed", ps1.isClosed());
+        assertFalse(ps2.isClosed());
+        assertEquals(1, pool.getStatementCacheEvictions());
+    }
+
+    @Test
+    public void testInvalidateAllClosesConnections() throws Exception {
+        final ConnectionPool pool = new ConnectionPool(db.getUrl(), db.getUser(), db.getPassword(), 2, 8);
+
+        final Connection idle = pool.getConnection(false);
+        final Connection lent = pool.getConnection(false);
+        idle.close();
+
+        pool.invalidateAll();
+        assertEquals(0, pool.getIdleCount());
+
+        lent.close();
+        assertEquals("Assert a stale connection is not returned to the pool", 0, pool.getIdleCount());
+
+        final Connection fresh = pool.getConnection(false);
+        assertEquals(3, pool.getCreatedCount());
+        fresh.close();
+    }
+
+    @Test
+    public void testPoolIsBounded() throws Exception {
+        final ConnectionPool pool = new ConnectionPool(db.getUrl(), db.getUser(), db.getPassword(), 1, 8);
+        final Connection c1 = pool.getConnection(false);
+
+        final CountDownLatch started = new CountDownLatch(1);
+        final AtomicReference<Connection> borrowed = new AtomicReference<Connection>();
+        final Thread waiter = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                started.countDown();
+                try {
+                    borrowed.set(pool.getConnection(false));
+                } catch (SQLException e) {
+                    fail(e.getMessage());
+                }
+            }
+        });
+        waiter.start();
+        started.await();
+        waiter.join(500);
+        assertNull("Assert the second borrower waits while the pool is exhausted", borrowed.get());
+
+        c1.close();
+        waiter.join(TimeUnit.SECONDS.toMillis(10));
+        assertNotNull("Assert the second borrower got the returned connection", borrowed.get());
+        assertEquals(1, pool.getCreatedCount());
+        assertEquals(1, pool.getWaitCount());
+        borrowed.get().close();
+    }
+
+    @Test
+    public void testExhaustedPoolNamesBorrowers() throws Exception {
+        final ConnectionPool pool = new ConnectionPool(db.getUrl(), db.getUser(), db.getPassword(), 1, 8);
+        pool.setBorrowTimeout(200);
+
+        final Thread holder = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    pool.getConnection(false);
+                } catch (SQLException e) {
+                    fail(e.getMessage());
+                }
+            }
+        }, "leaking-holder");
+        holder.start();
+        holder.join();
+
+        try {
+            pool.getConnection(false);
+            fail("Expected the exhausted pool to fail");
+        } catch (SQLException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("Connection pool exhausted"));
+            assertTrue(e.getMessage(), e.getMessage().contains("leaking-holder (dead)"));
+        }
+    }
+
+    private static int executeScalar(PreparedStatement ps) throws SQLException {
+        final ResultSet rs = ps.executeQuery();
+        try {
+            assertTrue(rs.next());
+            return rs.getInt(1);
+        } finally {
+            rs.close();
+        }
+    }
+}
@@ -23,10 +23,12 @@ import static org.junit.Assert.*;
 
 import java.sql.Connection;
 import java.sql.DriverManager;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.junit.Before;
 import org.junit.BeforeClass;
 import org.junit.Test;
+import org.openmainframe.ade.exceptions.AdeException;
 import org.openmainframe.ade.exceptions.AdeInternalException;
 import org.openmainframe.ade.impl.dbUtils.MyJDBCConnection;
 
@@ -46,6 +48,42 @@ public class MyJDBCConnectionTest {
         db.dropDatabase();
     }
 
+    @Test
+    public void testConnectionOfEndedThreadIsReturnedToPool() throws Exception {
+        db.createDatabase();
+        MyJDBCConnection.close();
+        MyJDBCConnection.setPoolProperties(1, 8);
+        try {
+            checkConnectionOfEndedThreadIsReturned();
+        } finally {
+            MyJDBCConnection.setPoolProperties(ConnectionPool.DEFAULT_MAX_SIZE,
+                    ConnectionPool.DEFAULT_STATEMENT_CACHE_SIZE);
+        }
+    }
+
+    private void checkConnectionOfEndedThreadIsReturned() throws Exception {
+        final AtomicReference<Connection> leaked = new AtomicReference<Connection>();
+        final Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    leaked.set(MyJDBCConnection.getConnection());
+                } catch (AdeException e) {
+                    fail(e.getMessage());
+                }
+            }
+        });
+        thread.start();
+        thread.join();
+        assertNotNull(leaked.get());
+        MyJDBCConnection.getConnectionPool().setBorrowTimeout(1000);
+
+        final Connection conn = MyJDBCConnection.getConnection();
+        assertTrue("Assert the ended thread's connection was returned", leaked.get().isClosed());
+        assertFalse(conn.isClosed());
+        assertEquals(1, MyJDBCConnection.getConnectionPool().getActiveCount());
+    }
+
     @Test
     public void testInitConnectionWithCreateNoExceptions() throws Exception {
         MyJDBCConnection.initConnection(true);
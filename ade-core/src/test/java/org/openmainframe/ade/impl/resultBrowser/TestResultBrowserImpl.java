@@ -0,0 +1,191 @@
+/*
+ 
+    Copyright IBM Corp. 2016
+    This file is part of Anomaly Detection Engine for Linux Logs (ADE).
+
+    ADE is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    ADE is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with ADE.  If not, see <http://www.gnu.org/licenses/>.
+ 
+*/
+package org.openmainframe.ade.impl.resultBrowser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.openmainframe.ade.Ade;
+import org.openmainframe.ade.data.IAnalyzedInterval;
+import org.openmainframe.ade.dbUtils.DriverType;
+import org.openmainframe.ade.exceptions.AdeInternalException;
+import org.openmainframe.ade.impl.dataStore.DataStoreSqlImpl;
+import org.openmainframe.ade.impl.dbUtils.Database;
+import org.openmainframe.ade.impl.dbUtils.DerbyDatabase;
+import org.openmainframe.ade.impl.dbUtils.MyJDBCConnection;
+import org.openmainframe.ade.impl.flow.factory.jaxb.FramingFlowType;
+import org.openmainframe.ade.resultBrowser.ResultBrowser;
+import org.openmainframe.ade.utils.patches.Version;
+
+public class TestResultBrowserImpl {
+
+    private static final Database db = new DerbyDatabase();
+
+    private static final long DAY = 24 * 60 * 60 * 1000L;
+    private static final long INTERVAL = 10 * 60 * 1000L;
+    private static final long DAY1 = 1458000000000L - 1458000000000L % DAY;
+    private static final long DAY2 = DAY1 + DAY;
+    private static final long DAY3 = DAY2 + DAY;
+
+    private static Ade ade;
+
+    private FramingFlowType m_framingFlowType;
+    private Connection m_con;
+    private ResultBrowser m_resultBrowser;
+
+    @BeforeClass
+    public static void setup() throws Exception {
+        MyJDBCConnection.setDbConnectionProperties(db.getUrl(), db.getUser(), db.getPassword());
+
+        ade = mock(Ade.class, RETURNS_DEEP_STUBS);
+        when(ade.getConfigProperties().database().getDatabaseDriver()).thenReturn("derby");
+        when(ade.getConfigProperties().database().getDriverType()).thenReturn(DriverType.DERBY);
+        when(ade.getConfigProperties().database().getDatabaseSchema()).thenReturn(null);
+        when(ade.getConfigProperties().getOverrideVersionCheck()).thenReturn(true);
+        when(ade.getDbVersion()).thenReturn(new Version(1, 0));
+
+        Ade.create(ade);
+    }
+
+    @Before
+    public void createDatabase() throws Exception {
+        db.dropDatabase();
+        new DataStoreSqlImpl(ade, null, null, null, null, null, null, null, null, null, true);
+
+        m_framingFlowType = new FramingFlowType();
+        m_framingFlowType.setDatabaseId(1);
+        m_framingFlowType.setDuration(INTERVAL);
+
+        m_con = MyJDBCConnection.getConnection();
+        final Statement stmt = m_con.createStatement();
+        stmt.executeUpdate("insert into SOURCES (SOURCE_ID) values ('host1'), ('host2'), ('it''s')");
+        stmt.close();
+
+        final int host1Day1 = addPeriod(1, DAY1);
+        final int host1Day2 = addPeriod(1, DAY2);
+        addPeriod(1, DAY3);
+        final int host2Day1 = addPeriod(2, DAY1);
+
+        addResult(host1Day1, DAY1 + 142 * INTERVAL, 142, 5.0);
+        addResult(host1Day1, DAY1 + 143 * INTERVAL, 143, 50.0);
+        addResult(host1Day2, DAY2, 0, 1.0);
+        addResult(host1Day2, DAY2 + INTERVAL, 1, 70.0);
+        addResult(host1Day2, DAY2 + 2 * INTERVAL, 2, 3.0);
+        addResult(host2Day1, DAY1, 0, 99.0);
+        if (!m_con.getAutoCommit()) {
+            m_con.commit();
+        }
+        m_resultBrowser = ResultBrowser.create(m_con);
+    }
+
+    private int addPeriod(int sourceInternalId, long start) throws Exception {
+        final PreparedStatement ps = m_con.prepareStatement("insert into PERIODS (SOURCE_INTERNAL_ID, START_TIME, END_TIME) values (?,?,?)",
+                Statement.RETURN_GENERATED_KEYS);
+        ps.setInt(1, sourceInternalId);
+        ps.setTimestamp(2, new Timestamp(start));
+        ps.setTimestamp(3, new Timestamp(start + DAY));
+        ps.executeUpdate();
+        final ResultSet rs = ps.getGeneratedKeys();
+        rs.next();
+        final int periodInternalId = rs.getInt(1);
+        ps.close();
+
+        final Statement stmt = m_con.createStatement();
+        stmt.executeUpdate("insert into PERIOD_SUMMARIES (PERIOD_INTERNAL_ID, SUMMARY_TYPE_INTERNAL_ID) values ("
+                + periodInternalId + ", " + m_framingFlowType.getDatabaseId() + ")");
+        stmt.close();
+        return periodInternalId;
+    }
+
+    private void addResult(int periodInternalId, long start, int serialNum, double score) throws Exception {
+        final PreparedStatement ps = m_con.prepareStatement("insert into ANALYSIS_RESULTS (PERIOD_INTERNAL_ID, START_TIME, INTERVAL_SERIAL_NUM, "
+                + "INTERVAL_SCORE, NUM_UNIQUE_MESSAGE_IDS, ADE_VERSION, MODEL_INTERNAL_ID) values (?,?,?,?,?,?,?)");
+        int pos = 1;
+        ps.setInt(pos++, periodInternalId);
+        ps.setLong(pos++, start);
+        ps.setInt(pos++, serialNum);
+        ps.setDouble(pos++, score);
+        ps.setInt(pos++, 1);
+        ps.setString(pos++, "1.0.4");
+        ps.setInt(pos++, 1);
+        ps.executeUpdate();
+        ps.close();
+    }
+
+    private static double[] scores(List<IAnalyzedInterval> intervals) throws AdeInternalException {
+        final double[] res = new double[intervals.size()];
+        for (int i = 0; i < res.length; ++i) {
+            res[i] = intervals.get(i).getScore();
+        }
+        return res;
+    }
+
+    @Test
+    public void testRangeAcrossPeriods() throws Exception {
+        final List<IAnalyzedInterval> intervals = m_resultBrowser.getAnalyzedIntervals(1,
+                new Date(DAY1 + 143 * INTERVAL), new Date(DAY2 + 2 * INTERVAL), 0, m_framingFlowType);
+        assertEquals("[50.0, 1.0, 70.0]", Arrays.toString(scores(intervals)));
+        assertEquals(DAY1 + 143 * INTERVAL, intervals.get(0).getIntervalStartTime());
+        assertEquals(DAY1 + 144 * INTERVAL, intervals.get(0).getIntervalEndTime());
+        assertEquals(0, intervals.get(1).getSerialNum());
+    }
+
+    @Test
+    public void testRangeMinScore() throws Exception {
+        final List<IAnalyzedInterval> intervals = m_resultBrowser.getAnalyzedIntervals(1,
+                new Date(DAY1), new Date(DAY3 + DAY), 50, m_framingFlowType);
+        assertEquals("[50.0, 70.0]", Arrays.toString(scores(intervals)));
+        assertEquals(0, m_resultBrowser.getAnalyzedIntervals(1, new Date(DAY3), new Date(DAY3 + DAY), 0, m_framingFlowType).size());
+    }
+
+    @Test
+    public void testRangeMatchesPeriods() throws Exception {
+        for (long day : new long[] { DAY1, DAY2, DAY3 }) {
+            assertEquals(Arrays.toString(scores(m_resultBrowser.getAnalyzedIntervals(1, new Date(day), m_framingFlowType))),
+                    Arrays.toString(scores(m_resultBrowser.getAnalyzedIntervals(1, new Date(day), new Date(day + DAY),
+                            Double.NEGATIVE_INFINITY, m_framingFlowType))));
+        }
+    }
+
+    @Test
+    public void testLastPeriodAndSources() throws Exception {
+        assertEquals(DAY2, m_resultBrowser.getLastPeriodForSource(1).getTime());
+        assertEquals(DAY1, m_resultBrowser.getLastPeriodForSource(2).getTime());
+        assertNull(m_resultBrowser.getLastPeriodForSource(3));
+        assertEquals("[host1, host2]", m_resultBrowser.getAllAnalyzedSources().toString());
+        assertEquals(3, m_resultBrowser.getSourceMetaData("it's").getInternalId());
+        assertNull(m_resultBrowser.getSourceMetaData("host3"));
+    }
+}
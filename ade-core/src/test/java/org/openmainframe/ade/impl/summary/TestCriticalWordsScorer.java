@@ -0,0 +1,115 @@
+/*
+ 
+    Copyright IBM Corp. 2016
+    This file is part of Anomaly Detection Engine for Linux Logs (ADE).
+
+    ADE is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    ADE is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with ADE.  If not, see <http://www.gnu.org/licenses/>.
+ 
+*/
+package org.openmainframe.ade.impl.summary;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TestCriticalWordsScorer {
+
+    private static final List<String> WORDS = Arrays.asList("ERROR", "failed", "Abend", "err", "Échec");
+
+    @Rule
+    public TemporaryFolder m_folder = new TemporaryFolder();
+
+    /**
+     * The score the critical words used to be matched with, by splitting the text into lower case tokens.
+     */
+    private static int tokenScore(Set<String> words, String text) {
+        int score = 0;
+        for (String token : text.split("\\s+")) {
+            if (words.contains(token.toLowerCase())) {
+                score++;
+            }
+        }
+        return score;
+    }
+
+    @Test
+    public void testWholeTokens() {
+        final CriticalWordsScorer scorer = new CriticalWordsScorer(WORDS);
+        assertEquals(0, scorer.calcScore(null));
+        assertEquals(0, scorer.calcScore(""));
+        assertEquals(0, scorer.calcScore("   "));
+        assertEquals(1, scorer.calcScore("error"));
+        assertEquals(2, scorer.calcScore("  Error:\tERROR \r\n Failed"));
+        assertEquals(1, scorer.calcScore("error: disk errors, ERR"));
+        assertEquals(0, scorer.calcScore("terror erro failedd abend0"));
+        assertEquals(1, scorer.calcScore("éCHEC de connexion"));
+    }
+
+    @Test
+    public void testMatchesTokenSplitting() {
+        final Set<String> words = new HashSet<String>();
+        for (String word : WORDS) {
+            words.add(word.toLowerCase());
+        }
+        final CriticalWordsScorer scorer = new CriticalWordsScorer(WORDS);
+        final String[] pieces = { "error", "ERR", "failed", "Abend", "échec", "errorr", "x", ":", " ", "\t", "  ", "\n" };
+        final Random random = new Random(1);
+        final StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 10000; ++i) {
+            text.setLength(0);
+            final int length = random.nextInt(12);
+            for (int j = 0; j < length; ++j) {
+                text.append(pieces[random.nextInt(pieces.length)]);
+            }
+            assertEquals(text.toString(), tokenScore(words, text.toString()), scorer.calcScore(text.toString()));
+        }
+    }
+
+    @Test
+    public void testPhrases() {
+        final CriticalWordsScorer scorer = new CriticalWordsScorer(
+                Arrays.asList("out of memory", "memory", "link down", "down link"));
+        assertEquals(2, scorer.calcScore("Out  of\tmemory"));
+        assertEquals(0, scorer.calcScore("out of memory-pool"));
+        assertEquals(1, scorer.calcScore("without of memory"));
+        assertEquals(2, scorer.calcScore("link down link"));
+        assertEquals(0, scorer.calcScore("link downlink"));
+    }
+
+    @Test
+    public void testFile() throws Exception {
+        final File file = m_folder.newFile("criticalWords.txt");
+        writeLines(file, "# a comment", "ERROR   ", "", "  FATAL\t", "out of memory");
+        final CriticalWordsScorer scorer = new CriticalWordsScorer(file.getPath());
+        assertEquals(3, scorer.calcScore("FATAL ERROR out of memory"));
+        assertEquals(0, scorer.calcScore("# a comment"));
+        assertEquals(0, scorer.calcScore("  leading whitespace"));
+    }
+
+    private static void writeLines(File file, String... lines) throws IOException {
+        Files.write(file.toPath(), Arrays.asList(lines), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,219 @@
+/*
+ 
+    Copyright IBM Corp. 2016
+    This file is part of Anomaly Detection Engine for Linux Logs (ADE).
+
+    ADE is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    ADE is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with ADE.  If not, see <http://www.gnu.org/licenses/>.
+ 
+*/
+package org.openmainframe.ade.scores;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.openmainframe.ade.data.IAnalyzedInterval;
+import org.openmainframe.ade.data.IAnalyzedMessageSummary;
+import org.openmainframe.ade.data.IInterval;
+import org.openmainframe.ade.data.IMessageSummary;
+import org.openmainframe.ade.exceptions.AdeException;
+import org.openmainframe.ade.scores.AbstractClusteringScorer.ClusterStatus;
+import org.openmainframe.ade.scoringApi.StatisticsChart;
+
+/**
+ * Checks that ClusteringContextScore gives the same scores as the implementation it replaced, kept as
+ * ReferenceClusteringContextScore, when both are trained and analyze the same intervals.
+ */
+public class TestClusteringContextScore {
+
+    private static final int TRAINING_INTERVALS = 300;
+    private static final int ANALYZED_INTERVALS = 200;
+    private static final int GROUPS = 6;
+    private static final int GROUP_SIZE = 5;
+    private static final int NOISE_MESSAGE_IDS = 12;
+
+    private static final Set<ClusterStatus> CONTEXT_STATUSES = EnumSet.of(ClusterStatus.NEW,
+            ClusterStatus.UNCLUSTERED, ClusterStatus.IN_CONTEXT, ClusterStatus.OUT_OF_CONTEXT);
+
+    private static List<IAnalyzedInterval> s_training;
+    private static List<IAnalyzedInterval> s_analyzed;
+
+    @BeforeClass
+    public static void createIntervals() throws AdeException {
+        final Random random = new Random(4711);
+        s_training = createIntervals(random, TRAINING_INTERVALS, false);
+        s_analyzed = createIntervals(random, ANALYZED_INTERVALS, true);
+    }
+
+    /**
+     * Messages of a group tend to appear together, so the groups become clusters. Noise messages appear
+     * independently, some too rarely to be clustered. The analyzed intervals also have messages that were
+     * never seen in training.
+     */
+    private static List<IAnalyzedInterval> createIntervals(Random random, int count, boolean withNewMessages)
+            throws AdeException {
+        final List<IAnalyzedInterval> intervals = new ArrayList<IAnalyzedInterval>();
+        for (int i = 0; i < count; ++i) {
+            final List<IAnalyzedMessageSummary> summaries = new ArrayList<IAnalyzedMessageSummary>();
+            for (int g = 0; g < GROUPS; ++g) {
+                if (random.nextInt(4) == 0) {
+                    for (int m = 0; m < GROUP_SIZE; ++m) {
+                        if (random.nextInt(5) != 0) {
+                            summaries.add(mockSummary(g * GROUP_SIZE + m));
+                        }
+                    }
+                }
+            }
+            for (int m = 0; m < NOISE_MESSAGE_IDS; ++m) {
+                if (random.nextInt(3 + m * 20) == 0) {
+                    summaries.add(mockSummary(GROUPS * GROUP_SIZE + m));
+                }
+            }
+            if (withNewMessages && random.nextInt(3) == 0) {
+                summaries.add(mockSummary(GROUPS * GROUP_SIZE + NOISE_MESSAGE_IDS + random.nextInt(5)));
+            }
+            intervals.add(mockInterval(summaries));
+        }
+        return intervals;
+    }
+
+    @Test
+    public void testTrainedModel() throws Exception {
+        final ClusteringContextScore scorer = new ClusteringContextScore();
+        final ReferenceClusteringContextScore reference = new ReferenceClusteringContextScore();
+        train(scorer);
+        train(reference);
+
+        assertTrue("Assert the groups were clustered", scorer.getNumClusters() > 1);
+        assertEquals(reference.getMessageClustersByInternalId(), scorer.getMessageClustersByInternalId());
+        final Set<ClusterStatus> statuses = assertSameScores(reference, scorer);
+        assertEquals("Assert the intervals cover every status", CONTEXT_STATUSES, statuses);
+
+        assertSameScores(reference, (ClusteringContextScore) deserialize(serialize(scorer)));
+    }
+
+    @Test
+    public void testSetClusters() throws Exception {
+        final SortedMap<String, Integer> seenIds = new TreeMap<String, Integer>();
+        final Map<Integer, Integer> clusters = new HashMap<Integer, Integer>();
+        for (int id = 0; id < GROUPS * GROUP_SIZE + NOISE_MESSAGE_IDS; ++id) {
+            seenIds.put(messageId(id), internalId(id));
+            if (id < GROUPS * GROUP_SIZE) {
+                clusters.put(internalId(id), id / GROUP_SIZE);
+            }
+        }
+        final ClusteringContextScore scorer = new ClusteringContextScore();
+        final ReferenceClusteringContextScore reference = new ReferenceClusteringContextScore();
+        scorer.setClusters(seenIds, clusters, GROUPS);
+        reference.setClusters(seenIds, clusters, GROUPS);
+
+        assertEquals(CONTEXT_STATUSES, assertSameScores(reference, scorer));
+    }
+
+    private static void train(AbstractClusteringScorer scorer) throws AdeException {
+        scorer.setArguments(new HashMap<String, Object>());
+        while (scorer.needsAnotherIteration()) {
+            scorer.startIteration();
+            scorer.beginOfStream();
+            for (IAnalyzedInterval interval : s_training) {
+                scorer.incomingObject(interval);
+            }
+            scorer.endOfStream();
+        }
+    }
+
+    /**
+     * Scores every message of the analyzed intervals with both scorers, and returns the statuses seen.
+     */
+    private static Set<ClusterStatus> assertSameScores(AbstractClusteringScorer reference,
+            AbstractClusteringScorer scorer) throws AdeException {
+        final Set<ClusterStatus> statuses = EnumSet.noneOf(ClusterStatus.class);
+        for (IAnalyzedInterval interval : s_analyzed) {
+            for (IAnalyzedMessageSummary ams : interval.getAnalyzedMessages()) {
+                final StatisticsChart expected = reference.getScore(ams, interval);
+                final StatisticsChart actual = scorer.getScore(ams, interval);
+                assertEquals(ams.getMessageId(), expected.getAllStatisticsSorted(), actual.getAllStatisticsSorted());
+                statuses.add(ClusterStatus.valueOf(actual.getStringStat(AbstractClusteringScorer.STATUS)));
+            }
+        }
+        return statuses;
+    }
+
+    private static String messageId(int id) {
+        return "kernel_" + id;
+    }
+
+    /**
+     * Internal ids are sparse, as in a data store that has messages of other sources.
+     */
+    private static int internalId(int id) {
+        return 3 * id + 1;
+    }
+
+    private static IAnalyzedMessageSummary mockSummary(int id) throws AdeException {
+        final IMessageSummary summary = mock(IMessageSummary.class);
+        when(summary.getMessageId()).thenReturn(messageId(id));
+        when(summary.getMessageInternalId()).thenReturn(internalId(id));
+        when(summary.getNumMessageInstances()).thenReturn(1);
+        final IAnalyzedMessageSummary analyzed = mock(IAnalyzedMessageSummary.class);
+        when(analyzed.getMessageId()).thenReturn(messageId(id));
+        when(analyzed.getMessageSummary()).thenReturn(summary);
+        return analyzed;
+    }
+
+    private static IAnalyzedInterval mockInterval(List<IAnalyzedMessageSummary> analyzed) throws AdeException {
+        final Collection<IMessageSummary> summaries = new ArrayList<IMessageSummary>();
+        for (IAnalyzedMessageSummary ams : analyzed) {
+            summaries.add(ams.getMessageSummary());
+        }
+        final IInterval interval = mock(IInterval.class);
+        when(interval.getMessageSummaries()).thenReturn(summaries);
+        final IAnalyzedInterval analyzedInterval = mock(IAnalyzedInterval.class);
+        when(analyzedInterval.getAnalyzedMessages()).thenReturn(analyzed);
+        when(analyzedInterval.getInterval()).thenReturn(interval);
+        return analyzedInterval;
+    }
+
+    private static byte[] serialize(Object object) throws Exception {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(object);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static Object deserialize(byte[] bytes) throws Exception {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return in.readObject();
+        }
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ 
+    Copyright IBM Corp. 2016
+    This file is part of Anomaly Detection Engine for Linux Logs (ADE).
+
+    ADE is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    ADE is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with ADE.  If not, see <http://www.gnu.org/licenses/>.
+ 
+*/
+package org.openmainframe.ade.scores;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.lang.reflect.Field;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.commons.lang3.StringUtils;
+import org.junit.Before;
+import org.junit.Test;
+import org.openmainframe.ade.data.IAnalyzedInterval;
+import org.openmainframe.ade.data.IAnalyzedMessageSummary;
+import org.openmainframe.ade.scoringApi.IScorer;
+import org.openmainframe.ade.scoringApi.StatisticsChart;
+
+public class TestLastSeenScorer {
+
+    private static final String MESSAGE_ID = "kernel_3";
+    private static final double DELTA = 1e-12;
+
+    private LastSeenScorer m_scorer;
+
+    /**
+     * Trains the scorer on 400 deltas of the same message id: 300 of 60 seconds and 100 of 120 seconds.
+     */
+    @Before
+    public void train() throws Exception {
+        m_scorer = new LastSeenScorer();
+        m_scorer.startIteration();
+        m_scorer.beginOfStream();
+        final IAnalyzedInterval interval = mockInterval(mockSummary(MESSAGE_ID, "[60, 60, 60, 120]"));
+        for (int i = 0; i < 100; ++i) {
+            m_scorer.incomingObject(interval);
+        }
+        m_scorer.endOfStream();
+    }
+
+    @Test
+    public void testScores() throws Exception {
+        assertLogProb(0, m_scorer, "[60, 60]");
+        assertLogProb(Math.log(3), m_scorer, "[60, 120]");
+        // never seen
+        assertLogProb(Math.log(600), m_scorer, "[7]");
+        // 20 was never seen, but 100 + 20 was
+        final String[] perTickScores = StringUtils.split(StringUtils.strip(
+                score(m_scorer, MESSAGE_ID, "[100, 20]").getStringStat("PerTickScores"), "[]"), ", ");
+        assertEquals(2, perTickScores.length);
+        assertEquals(Math.log(600), Double.parseDouble(perTickScores[0]), DELTA);
+        assertEquals(Math.log(3), Double.parseDouble(perTickScores[1]), DELTA);
+        assertEquals(0, score(m_scorer, "kernel_4", "[60]").getDoubleStat(IScorer.LOG_PROB), DELTA);
+    }
+
+    @Test
+    public void testSerializedModel() throws Exception {
+        final LastSeenScorer scorer = (LastSeenScorer) deserialize(serialize(m_scorer));
+        assertLogProb(0, scorer, "[60, 60]");
+        assertLogProb(Math.log(3), scorer, "[60, 120]");
+        assertLogProb(Math.log(600), scorer, "[7]");
+    }
+
+    /**
+     * Models serialized by earlier versions keep the point scores in a map, which is converted when
+     * the model is read.
+     */
+    @Test
+    public void testLegacySerializedModel() throws Exception {
+        final Object bounder = getField(m_scorer, "m_lastSeen", Map.class).get(MESSAGE_ID);
+        final long[] scoredPoints = getField(bounder, "m_scoredPoints", long[].class);
+        final double[] scores = getField(bounder, "m_scores", double[].class);
+        final TreeMap<Long, Double> pointScores = new TreeMap<Long, Double>();
+        for (int i = 0; i < scoredPoints.length; ++i) {
+            pointScores.put(scoredPoints[i], scores[i]);
+        }
+        setField(bounder, "m_pointScores", pointScores);
+        setField(bounder, "m_scoredPoints", null);
+        setField(bounder, "m_scores", null);
+
+        final LastSeenScorer scorer = (LastSeenScorer) deserialize(serialize(m_scorer));
+        assertLogProb(0, scorer, "[60, 60]");
+        assertLogProb(Math.log(3), scorer, "[60, 120]");
+        assertLogProb(Math.log(600), scorer, "[7]");
+        final Object readBounder = getField(scorer, "m_lastSeen", Map.class).get(MESSAGE_ID);
+        assertNull(getField(readBounder, "m_pointScores", TreeMap.class));
+    }
+
+    /**
+     * Deltas are parsed as they were with Long.decode, so that hex, octal and signed values and
+     * values separated by spaces are still read.
+     */
+    @Test
+    public void testLegacyDeltaSyntax() throws Exception {
+        assertDeltas("[60, 120]", 60, 120);
+        assertDeltas("[0x3c, #3C, 074, +60, -60]", 60, 60, 60, 60, -60);
+        assertDeltas("[60 ,120]", 60, 120);
+        assertDeltas("[60,,120]", 60, 120);
+        assertDeltas("[60 120]", 60, 120);
+        assertDeltas("[0, 9223372036854775807, -9223372036854775808]", 0, Long.MAX_VALUE, Long.MIN_VALUE);
+        assertDeltas("[ ]");
+        assertNull(m_scorer.extractDelta(mockSummary(MESSAGE_ID, "[]")));
+        assertLogProb(Math.log(3), m_scorer, "[0x3c 0x78]");
+    }
+
+    @Test(expected = NumberFormatException.class)
+    public void testInvalidDelta() throws Exception {
+        m_scorer.extractDelta(mockSummary(MESSAGE_ID, "[60, 1a]"));
+    }
+
+    private void assertDeltas(String deltas, long... expected) throws Exception {
+        assertArrayEquals(expected, m_scorer.extractDelta(mockSummary(MESSAGE_ID, deltas)));
+    }
+
+    private static void assertLogProb(double expected, LastSeenScorer scorer, String deltas) throws Exception {
+        assertEquals(expected, score(scorer, MESSAGE_ID, deltas).getDoubleStat(IScorer.LOG_PROB), DELTA);
+    }
+
+    private static StatisticsChart score(LastSeenScorer scorer, String messageId, String deltas) throws Exception {
+        return scorer.getScore(mockSummary(messageId, deltas), null);
+    }
+
+    private static IAnalyzedMessageSummary mockSummary(String messageId, String deltas) throws Exception {
+        final StatisticsChart statistics = new StatisticsChart();
+        statistics.setStat(LastSeenLoggingScorerContinuous.class.getSimpleName() + ".res", deltas);
+        final IAnalyzedMessageSummary summary = mock(IAnalyzedMessageSummary.class);
+        when(summary.getMessageId()).thenReturn(messageId);
+        when(summary.getStatistics()).thenReturn(statistics);
+        return summary;
+    }
+
+    private static IAnalyzedInterval mockInterval(IAnalyzedMessageSummary summary) {
+        final IAnalyzedInterval interval = mock(IAnalyzedInterval.class);
+        when(interval.getAnalyzedMessages()).thenReturn(Collections.singletonList(summary));
+        return interval;
+    }
+
+    private static byte[] serialize(Object object) throws Exception {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(object);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static Object deserialize(byte[] bytes) throws Exception {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return in.readObject();
+        }
+    }
+
+    private static <T> T getField(Object object, String name, Class<T> type) throws Exception {
+        final Field field = object.getClass().getDeclaredField(name);
+        field.setAccessible(true);
+        return type.cast(field.get(object));
+    }
+
+    private static void setField(Object object, String name, Object value) throws Exception {
+        final Field field = object.getClass().getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(object, value);
+    }
+}
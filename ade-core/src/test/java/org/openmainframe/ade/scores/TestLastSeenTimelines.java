@@ -0,0 +1,83 @@
+/*
+ 
+    Copyright IBM Corp. 2016
+    This file is part of Anomaly Detection Engine for Linux Logs (ADE).
+
+    ADE is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    ADE is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with ADE.  If not, see <http://www.gnu.org/licenses/>.
+ 
+*/
+package org.openmainframe.ade.scores;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class TestLastSeenTimelines {
+
+    @Test
+    public void testLastTimeBefore() {
+        final LastSeenTimelines timelines = new LastSeenTimelines();
+        assertFalse(timelines.contains(7));
+        assertEquals(LastSeenTimelines.NO_TIME, timelines.getLastTimeBefore(7, 1000));
+
+        timelines.put(7, new long[] { 300, 100, 200, 200 }, 4);
+        assertTrue(timelines.contains(7));
+        assertEquals(300, timelines.getLastTimeBefore(7, 1000));
+        assertEquals(100, timelines.getLastTimeBefore(7, 200));
+        assertEquals(200, timelines.getLastTimeBefore(7, 201));
+        assertEquals(LastSeenTimelines.NO_TIME, timelines.getLastTimeBefore(7, 100));
+
+        // replaced, not appended
+        timelines.put(7, new long[] { 500 }, 1);
+        assertEquals(LastSeenTimelines.NO_TIME, timelines.getLastTimeBefore(7, 400));
+        assertEquals(500, timelines.getLastTimeBefore(7, 501));
+        assertEquals(1, timelines.size());
+    }
+
+    @Test
+    public void testKeepsLatestTimes() {
+        final int length = LastSeenTimelines.MAX_TIMELINE_LENGTH + 10;
+        final long[] times = new long[length];
+        for (int i = 0; i < length; ++i) {
+            times[i] = i;
+        }
+        final LastSeenTimelines timelines = new LastSeenTimelines();
+        timelines.put(1, times, length);
+        assertEquals(length - 1, timelines.getLastTimeBefore(1, Long.MAX_VALUE));
+        assertEquals(10, timelines.getLastTimeBefore(1, 11));
+        assertEquals(LastSeenTimelines.NO_TIME, timelines.getLastTimeBefore(1, 10));
+    }
+
+    @Test
+    public void testEviction() {
+        final LastSeenTimelines timelines = new LastSeenTimelines();
+        for (int id = 0; id < 1000; ++id) {
+            timelines.put(id, new long[] { id, id * 10 }, 2);
+        }
+        assertEquals(1000, timelines.size());
+
+        assertEquals(500, timelines.evictOlderThan(5000));
+        assertEquals(500, timelines.size());
+        for (int id = 0; id < 1000; ++id) {
+            assertEquals(id >= 500, timelines.contains(id));
+        }
+        assertEquals(9990, timelines.getLastTimeBefore(999, 10000));
+
+        timelines.clear();
+        assertEquals(0, timelines.size());
+        assertFalse(timelines.contains(999));
+    }
+}
@@ -0,0 +1,205 @@
+/*
+ 
+    Copyright IBM Corp. 2016
+    This file is part of Anomaly Detection Engine for Linux Logs (ADE).
+
+    ADE is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    ADE is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with ADE.  If not, see <http://www.gnu.org/licenses/>.
+ 
+*/
+package org.openmainframe.ade.scores;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.openmainframe.ade.data.IAnalyzedInterval;
+import org.openmainframe.ade.data.IAnalyzedMessageSummary;
+import org.openmainframe.ade.data.IMessageSummary;
+import org.openmainframe.ade.exceptions.AdeException;
+import org.openmainframe.ade.scoringApi.MessageScorer;
+import org.openmainframe.ade.scoringApi.StatisticsChart;
+
+/**
+ * Checks MaxInformation1ContextScore against the implementation it replaced, kept as
+ * ReferenceMaxInformation1ContextScore, when both are trained and score the same intervals. Where the
+ * reference had equally good pairs, the pair with the lowest message internal id is expected.
+ */
+public class TestMaxInformation1ContextScore {
+
+    private static final int TRAINING_INTERVALS = 400;
+    private static final int ANALYZED_INTERVALS = 200;
+    private static final int GROUPS = 4;
+    private static final int GROUP_SIZE = 4;
+    private static final int TWINS = 3;
+    private static final int NOISE_MESSAGE_IDS = 12;
+    private static final int MESSAGE_IDS = GROUPS * GROUP_SIZE + TWINS + NOISE_MESSAGE_IDS;
+
+    private static List<IAnalyzedInterval> s_training;
+    private static List<IAnalyzedInterval> s_analyzed;
+
+    @BeforeClass
+    public static void createIntervals() throws AdeException {
+        final Random random = new Random(1234);
+        s_training = createIntervals(random, TRAINING_INTERVALS);
+        s_analyzed = createIntervals(random, ANALYZED_INTERVALS);
+    }
+
+    /**
+     * Messages of a group tend to appear together. The twins always appear together, so each of them has
+     * equally good pairs. Noise messages appear independently. The messages are listed in a random order.
+     */
+    private static List<IAnalyzedInterval> createIntervals(Random random, int count) throws AdeException {
+        final List<IAnalyzedInterval> intervals = new ArrayList<IAnalyzedInterval>();
+        for (int i = 0; i < count; ++i) {
+            final List<IAnalyzedMessageSummary> summaries = new ArrayList<IAnalyzedMessageSummary>();
+            for (int g = 0; g < GROUPS; ++g) {
+                if (random.nextInt(3) == 0) {
+                    for (int m = 0; m < GROUP_SIZE; ++m) {
+                        if (random.nextInt(4) != 0) {
+                            summaries.add(mockSummary(g * GROUP_SIZE + m));
+                        }
+                    }
+                }
+            }
+            if (random.nextInt(4) == 0) {
+                for (int m = 0; m < TWINS; ++m) {
+                    summaries.add(mockSummary(GROUPS * GROUP_SIZE + m));
+                }
+            }
+            for (int m = 0; m < NOISE_MESSAGE_IDS; ++m) {
+                if (random.nextInt(2 + m * 10) == 0) {
+                    summaries.add(mockSummary(GROUPS * GROUP_SIZE + TWINS + m));
+                }
+            }
+            Collections.shuffle(summaries, random);
+            intervals.add(mockInterval(summaries));
+        }
+        return intervals;
+    }
+
+    @Test
+    public void testSameBestPairs() throws Exception {
+        final MaxInformation1ContextScore scorer = new MaxInformation1ContextScore();
+        final ReferenceMaxInformation1ContextScore reference = new ReferenceMaxInformation1ContextScore();
+        train(scorer);
+        train(reference);
+
+        int ties = 0;
+        int compared = 0;
+        for (int id = 0; id < MESSAGE_IDS; ++id) {
+            final IAnalyzedMessageSummary ams = mockSummary(id);
+            final IAnalyzedInterval alone = mockInterval(Collections.singletonList(ams));
+            final String expectedPair = lowestInternalId(reference.getBestPairs(messageId(id)));
+            final String actualPair = scorer.getScore(ams, alone).getStringStat("bestPair");
+            assertEquals(messageId(id), expectedPair, actualPair);
+            if (reference.getBestPairs(messageId(id)).size() > 1) {
+                ++ties;
+            } else {
+                compared += assertSameScores(reference, scorer, messageId(id));
+            }
+        }
+        assertTrue("Assert equally good pairs were met", ties >= TWINS);
+        assertTrue("Assert scores were compared", compared > ANALYZED_INTERVALS);
+    }
+
+    @Test
+    public void testUnknownMessage() throws Exception {
+        final MaxInformation1ContextScore scorer = new MaxInformation1ContextScore();
+        train(scorer);
+
+        final IAnalyzedMessageSummary ams = mockSummary(MESSAGE_IDS);
+        final StatisticsChart score = scorer.getScore(ams, mockInterval(Collections.singletonList(ams)));
+        assertNull(score.getStringStat("bestPair"));
+        assertEquals(1.0, score.getDoubleStat(MessageScorer.MAIN), 0.0);
+    }
+
+    private static void train(MessageScorer scorer) throws AdeException {
+        scorer.setArguments(new HashMap<String, Object>());
+        while (scorer.needsAnotherIteration()) {
+            scorer.startIteration();
+            scorer.beginOfStream();
+            for (IAnalyzedInterval interval : s_training) {
+                scorer.incomingObject(interval);
+            }
+            scorer.endOfStream();
+        }
+    }
+
+    /**
+     * Scores the given message id in every analyzed interval it appears in with both scorers, and returns
+     * the number of intervals it was scored in.
+     */
+    private static int assertSameScores(MessageScorer reference, MessageScorer scorer, String messageId)
+            throws AdeException {
+        int scored = 0;
+        for (IAnalyzedInterval interval : s_analyzed) {
+            for (IAnalyzedMessageSummary ams : interval.getAnalyzedMessages()) {
+                if (ams.getMessageId().equals(messageId)) {
+                    final StatisticsChart expected = reference.getScore(ams, interval);
+                    final StatisticsChart actual = scorer.getScore(ams, interval);
+                    assertEquals(messageId, expected.getAllStatisticsSorted(), actual.getAllStatisticsSorted());
+                    ++scored;
+                }
+            }
+        }
+        return scored;
+    }
+
+    private static String lowestInternalId(SortedSet<String> messageIds) {
+        final TreeSet<Integer> ids = new TreeSet<Integer>();
+        for (String messageId : messageIds) {
+            ids.add(Integer.parseInt(messageId.substring(messageId.indexOf('_') + 1)));
+        }
+        return ids.isEmpty() ? null : messageId(ids.first());
+    }
+
+    /**
+     * Message ids do not sort as their internal ids, so that ties are not broken by message id by chance.
+     */
+    private static String messageId(int id) {
+        return "kernel_" + id;
+    }
+
+    private static int internalId(int id) {
+        return 3 * id + 1;
+    }
+
+    private static IAnalyzedMessageSummary mockSummary(int id) throws AdeException {
+        final IMessageSummary summary = mock(IMessageSummary.class);
+        when(summary.getMessageId()).thenReturn(messageId(id));
+        when(summary.getMessageInternalId()).thenReturn(internalId(id));
+        final IAnalyzedMessageSummary analyzed = mock(IAnalyzedMessageSummary.class);
+        when(analyzed.getMessageId()).thenReturn(messageId(id));
+        when(analyzed.getMessageSummary()).thenReturn(summary);
+        return analyzed;
+    }
+
+    private static IAnalyzedInterval mockInterval(List<IAnalyzedMessageSummary> analyzed) throws AdeException {
+        final IAnalyzedInterval analyzedInterval = mock(IAnalyzedInterval.class);
+        when(analyzedInterval.getAnalyzedMessages()).thenReturn(analyzed);
+        return analyzedInterval;
+    }
+}
@@ -0,0 +1,197 @@
+/*
+ 
+    Copyright IBM Corp. 2016
+    This file is part of Anomaly Detection Engine for Linux Logs (ADE).
+
+    ADE is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    ADE is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with ADE.  If not, see <http://www.gnu.org/licenses/>.
+ 
+*/
+package org.openmainframe.ade.scores;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.openmainframe.ade.data.IAnalyzedInterval;
+import org.openmainframe.ade.data.IAnalyzedMessageSummary;
+import org.openmainframe.ade.data.IInterval;
+import org.openmainframe.ade.data.IMessageSummary;
+import org.openmainframe.ade.exceptions.AdeException;
+import org.openmainframe.ade.scoringApi.IScorer;
+import org.openmainframe.ade.scoringApi.IStatisticsTrainable;
+import org.openmainframe.ade.scoringApi.ITrainingStatistics;
+import org.openmainframe.ade.scoringApi.MessageScorer;
+import org.openmainframe.ade.scoringApi.StatisticsChart;
+import org.openmainframe.ade.scores.AbstractClusteringScorer.ClusterStatus;
+
+/**
+ * Checks that a model trained from merged per-period training statistics is identical to the
+ * model trained by streaming all the intervals of the periods.
+ */
+public class TestTrainingStatistics {
+
+    private static final String CLUSTERING_SCORER = "ClusteringContextScore";
+    private static final int PERIODS = 5;
+    private static final int INTERVALS_PER_PERIOD = 40;
+    private static final int MESSAGE_IDS = 30;
+
+    private static List<List<IAnalyzedInterval>> s_periods;
+
+    @BeforeClass
+    public static void createPeriods() throws AdeException {
+        final Random random = new Random(4711);
+        s_periods = new ArrayList<List<IAnalyzedInterval>>();
+        for (int p = 0; p < PERIODS; ++p) {
+            final List<IAnalyzedInterval> intervals = new ArrayList<IAnalyzedInterval>();
+            for (int i = 0; i < INTERVALS_PER_PERIOD; ++i) {
+                final List<IAnalyzedMessageSummary> summaries = new ArrayList<IAnalyzedMessageSummary>();
+                for (int m = 0; m < MESSAGE_IDS; ++m) {
+                    // lower message ids are more frequent, some appear in a single period only
+                    if (random.nextInt(MESSAGE_IDS) >= m && (m % 7 != 3 || p == 2)) {
+                        final int numAppearances = 1 + (int) Math.round(Math.exp(random.nextGaussian() + m % 4));
+                        final ClusterStatus status = ClusterStatus.values()[random.nextInt(ClusterStatus.values().length)];
+                        summaries.add(mockSummary("kernel_" + m, numAppearances, status));
+                    }
+                }
+                intervals.add(mockInterval(summaries));
+            }
+            s_periods.add(intervals);
+        }
+    }
+
+    @Test
+    public void testBernoulliScore() throws Exception {
+        assertSameModel(new BernoulliScore(), new BernoulliScore(), Collections.<String, Object> emptyMap());
+    }
+
+    @Test
+    public void testFullBernoulliClusterAwareScore() throws Exception {
+        assertSameModel(new FullBernoulliClusterAwareScore(), new FullBernoulliClusterAwareScore(),
+                Collections.<String, Object> singletonMap("ClusteringScorer", CLUSTERING_SCORER));
+    }
+
+    @Test
+    public void testRarityScore() throws Exception {
+        assertSameModel(new RarityScore(), new RarityScore(), Collections.<String, Object> emptyMap());
+    }
+
+    @Test
+    public void testPoissonScore() throws Exception {
+        assertSameModel(new PoissonScore(), new PoissonScore(),
+                Collections.<String, Object> singletonMap("baseScorer", CLUSTERING_SCORER));
+    }
+
+    @Test
+    public void testLogNormalScore() throws Exception {
+        assertSameModel(new LogNormalScore(), new LogNormalScore(), Collections.<String, Object> emptyMap());
+        assertSameModel(new LogNormalScore(), new LogNormalScore(),
+                Collections.<String, Object> singletonMap("baseScorer", CLUSTERING_SCORER));
+    }
+
+    /**
+     * Trains the first scorer by streaming the intervals of all the periods and the second one from
+     * the statistics of each period, stored and merged in reverse order, and compares the serialized
+     * models.
+     */
+    private static <T extends MessageScorer & IStatisticsTrainable> void assertSameModel(T streamed, T merged,
+            Map<String, Object> props) throws Exception {
+        streamed.setArguments(new HashMap<String, Object>(props));
+        merged.setArguments(new HashMap<String, Object>(props));
+
+        streamed.startIteration();
+        streamed.beginOfStream();
+        for (List<IAnalyzedInterval> period : s_periods) {
+            for (IAnalyzedInterval interval : period) {
+                streamed.incomingObject(interval);
+            }
+        }
+        streamed.endOfStream();
+
+        final List<byte[]> stored = new ArrayList<byte[]>();
+        for (List<IAnalyzedInterval> period : s_periods) {
+            final ITrainingStatistics stats = merged.newTrainingStatistics();
+            for (IAnalyzedInterval interval : period) {
+                merged.accumulate(stats, interval);
+            }
+            stored.add(serialize(stats));
+        }
+        Collections.reverse(stored);
+        final ITrainingStatistics stats = merged.newTrainingStatistics();
+        for (byte[] bytes : stored) {
+            stats.merge((ITrainingStatistics) deserialize(bytes));
+        }
+        merged.train(stats);
+
+        assertEquals(PERIODS * INTERVALS_PER_PERIOD, ((MessageCountStatistics) stats).getIntervalCount());
+        assertArrayEquals(streamed.getClass().getSimpleName() + " " + props, serialize(streamed), serialize(merged));
+    }
+
+    private static IAnalyzedMessageSummary mockSummary(String messageId, int numAppearances, ClusterStatus status)
+            throws AdeException {
+        final StatisticsChart statistics = new StatisticsChart();
+        statistics.setStat(CLUSTERING_SCORER + "." + IScorer.MAIN, status == ClusterStatus.IN_CONTEXT ? 0.0 : 1.0);
+        statistics.setStat(CLUSTERING_SCORER + "." + AbstractClusteringScorer.STATUS, status.name());
+        final IMessageSummary summary = mock(IMessageSummary.class);
+        when(summary.getMessageId()).thenReturn(messageId);
+        when(summary.getNumMessageInstances()).thenReturn(numAppearances);
+        final IAnalyzedMessageSummary analyzed = mock(IAnalyzedMessageSummary.class);
+        when(analyzed.getMessageId()).thenReturn(messageId);
+        when(analyzed.getNumberOfAppearances()).thenReturn(numAppearances);
+        when(analyzed.getMessageSummary()).thenReturn(summary);
+        when(analyzed.getStatistics()).thenReturn(statistics);
+        return analyzed;
+    }
+
+    private static IAnalyzedInterval mockInterval(List<IAnalyzedMessageSummary> analyzed) throws AdeException {
+        final Collection<IMessageSummary> summaries = new ArrayList<IMessageSummary>();
+        for (IAnalyzedMessageSummary ams : analyzed) {
+            summaries.add(ams.getMessageSummary());
+        }
+        final IInterval interval = mock(IInterval.class);
+        when(interval.getMessageSummaries()).thenReturn(summaries);
+        final IAnalyzedInterval analyzedInterval = mock(IAnalyzedInterval.class);
+        when(analyzedInterval.getAnalyzedMessages()).thenReturn(analyzed);
+        when(analyzedInterval.getInterval()).thenReturn(interval);
+        return analyzedInterval;
+    }
+
+    private static byte[] serialize(Object object) throws Exception {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(object);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static Object deserialize(byte[] bytes) throws Exception {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return in.readObject();
+        }
+    }
+}
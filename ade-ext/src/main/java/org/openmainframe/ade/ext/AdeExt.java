@@ -19,11 +19,15 @@
 */
 package org.openmainframe.ade.ext;
 
+import java.io.File;
+
 import org.openmainframe.ade.Ade;
 import org.openmainframe.ade.exceptions.AdeException;
 import org.openmainframe.ade.exceptions.AdeInternalException;
+import org.openmainframe.ade.ext.os.parser.LinuxMessageTextPreprocessor;
 import org.openmainframe.ade.ext.utils.AdeOutputDirectoriesManager;
 import org.openmainframe.ade.ext.utils.AdeExtConfigProperties;
+import org.openmainframe.ade.impl.data.MagicWordDictionary;
 
 /** A singleton object concentrating AdeExt resources */
 public class AdeExt {
@@ -33,6 +37,7 @@ public class AdeExt {
     private Ade a_ade;
     private AdeOutputDirectoriesManager m_outputDirectoriesManager;
     private AdeExtConfigProperties m_configProperties;
+    private MagicWordDictionary m_magicWordDictionary;
 
     /** Create the AdeExt singleton object.
      *  When creating it, the Ade object should already be created
@@ -65,6 +70,12 @@ public class AdeExt {
         a_ade = ade;
         m_configProperties = new AdeExtConfigProperties(a_ade.getSetupFilePath());
         m_outputDirectoriesManager = new AdeOutputDirectoriesManager(a_ade.getConfigProperties().getOutputPath());
+        final String magicWordsFile = m_configProperties.getMagicWordsFile();
+        if (magicWordsFile != null) {
+            m_magicWordDictionary = MagicWordDictionary.load(new File(magicWordsFile));
+        } else {
+            m_magicWordDictionary = LinuxMessageTextPreprocessor.getDefaultMagicWords();
+        }
     }
 
     /** Return an object that manages the output directories */
@@ -77,6 +88,11 @@ public class AdeExt {
         return m_configProperties;
     }
 
+    /** Returns the magic words dictionary shared by all message text preprocessors */
+    public MagicWordDictionary getMagicWordDictionary() {
+        return m_magicWordDictionary;
+    }
+
     /** Closes Ext specific resources */
     public void close() throws AdeException {
 
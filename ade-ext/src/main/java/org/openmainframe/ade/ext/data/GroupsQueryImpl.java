@@ -24,10 +24,13 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.regex.Pattern;
 
 import org.openmainframe.ade.Ade;
@@ -113,9 +116,23 @@ public final class GroupsQueryImpl {
      * @return the name of the group that was assigned to the given source.
      */
     public static String updateSourcesAnalysisGroup(String sourceName) {
-        final DetermineSourceGroupAtomic atomicAction = new DetermineSourceGroupAtomic(sourceName);
-        ExtDataStoreUtils.executeAtomicTransaction(atomicAction);
-        return atomicAction.getAssignedGroupName();
+        return updateSourcesAnalysisGroups(Collections.singletonList(sourceName)).get(sourceName);
+    }
+
+    /**
+     * Updates the analysis groups of several sources in the database, evaluating
+     * the group rules once and committing all the updates in a single atomic transaction.
+     *
+     * @param sourceNames The names of the sources whose analysis group should be updated.
+     * @return the name of the group that was assigned to each source. Sources that could not 
+     * be assigned, e.g. because they are not in the database, are missing from the map.
+     */
+    public static Map<String, String> updateSourcesAnalysisGroups(Collection<String> sourceNames) {
+        final DetermineSourceGroupAtomic atomicAction = new DetermineSourceGroupAtomic(sourceNames);
+        if (!sourceNames.isEmpty()) {
+            ExtDataStoreUtils.executeAtomicTransaction(atomicAction);
+        }
+        return atomicAction.getAssignedGroupNames();
     }
     
     /**
@@ -417,27 +434,27 @@ public final class GroupsQueryImpl {
     }
 
     /**
-     * Class to atomically update a given sources' group in the SOURCES table.
+     * Class to atomically update the given sources' group in the SOURCES table.
      */
     private static class DetermineSourceGroupAtomic extends AbstractGroupsUpdateAtomic {
-        private final String sourceName;
+        private final Collection<String> sourceNames;
 
         /**
-         * The name of the group that was assigned to this source, this will be null if the
+         * The names of the groups that were assigned to the sources, this will be empty if the
          * atomic action has not yet been performed.
          */
-        private String assignedGroupName;       
+        private final Map<String, String> assignedGroupNames = new HashMap<String, String>();
 
 	private boolean mySQL;
 
         /**
          * The explicit value constructor for calling the parent constructor
-         * and initializing the source name.
-         * @param sourceName the source name.
+         * and initializing the source names.
+         * @param sourceNames the source names.
          */
-        public DetermineSourceGroupAtomic(String sourceName) {
+        public DetermineSourceGroupAtomic(Collection<String> sourceNames) {
             super();
-            this.sourceName = sourceName;
+            this.sourceNames = sourceNames;
 	    try {
 	        final String driver = Ade.getAde().getConfigProperties().database().getDatabaseDriver();
 
@@ -474,7 +491,7 @@ public final class GroupsQueryImpl {
                                 + SOURCES_TABLE + " INNER JOIN " + MANAGED_SYSTEMS_TABLE
                                 + " ON SOURCES.SOURCE_INTERNAL_ID=MANAGED_SYSTEMS.SOURCE_INTERNAL_ID WHERE "
                                 + "UPPER(" + MANAGED_SYSTEMS_TABLE + ".OPERATING_SYSTEM)='LINUX'"
-                                + " AND SOURCES.SOURCE_ID='" + sourceName + "'", 
+                                + " AND SOURCES.SOURCE_ID IN (" + toSqlList(sourceNames) + ")", 
                                 ResultSet.TYPE_SCROLL_INSENSITIVE, ResultSet.CONCUR_READ_ONLY);
                 final ResultSet sourcesResult = sourceListStatement.executeQuery();
 
@@ -502,11 +519,25 @@ public final class GroupsQueryImpl {
 
         @Override
         protected void setSourcesGroup(String sourceName, String modelName) {
-            this.assignedGroupName = modelName;
+            assignedGroupNames.put(sourceName, modelName);
         }
 
-        public String getAssignedGroupName() {
-            return assignedGroupName;
+        public Map<String, String> getAssignedGroupNames() {
+            return assignedGroupNames;
+        }
+
+        /**
+         * Returns the given strings as a comma separated list of SQL string literals.
+         */
+        private static String toSqlList(Collection<String> strings) {
+            final StringBuilder res = new StringBuilder();
+            for (String s : strings) {
+                if (res.length() > 0) {
+                    res.append(',');
+                }
+                res.append('\'').append(s.replace("'", "''")).append('\'');
+            }
+            return res.toString();
         }
     }
     
@@ -61,7 +61,8 @@ public class ManagedSystemInfo {
 
     private static final Logger logger = LoggerFactory.getLogger(ManagedSystemInfo.class);
 
-    private int m_gmtOffset;
+    /* Updated by the parsing thread, and stored by the source registration thread */
+    private volatile int m_gmtOffset;
     private String m_osName;
     private ManagedSystemInfo m_dbqueryManagedSystem = null;
 
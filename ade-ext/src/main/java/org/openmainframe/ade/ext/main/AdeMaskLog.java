@@ -22,17 +22,27 @@
  */
 package org.openmainframe.ade.ext.main;
 
+import java.io.BufferedOutputStream;
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
-import java.io.FileWriter;
+import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.util.Calendar;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
 
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.CommandLineParser;
@@ -61,10 +71,18 @@ import org.openmainframe.ade.ext.os.parser.SparklogLineParser;
 import org.openmainframe.ade.ext.service.AdeExtMessageHandler;
 import org.openmainframe.ade.ext.os.AdeExtPropertiesFactory;
 import org.openmainframe.ade.ext.os.AdeExtProperties;
+import org.openmainframe.ade.utils.AdeFileUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-/** Main to mask private information in a log */
+/**
+ * Main to mask private information in a log.
+ * 
+ * The log is masked in chunks of lines by a pool of threads, and the masked chunks are
+ * written in their original order. Input and output files whose name ends with .gz are
+ * read and written compressed. The masking of a line depends on the line only, so the
+ * output does not depend on the number of threads.
+ */
 public class AdeMaskLog extends ExtControlProgram {
 
 	/**
@@ -72,16 +90,27 @@ public class AdeMaskLog extends ExtControlProgram {
 	 */
 	private File mOutputFile;
 	private File mInputFile;
+
 	/**
-	 * The parser for a line of Linux syslogs.
+	 * The number of lines masked together by a thread.
 	 */
-	private static LinuxSyslogLineParser[] mLineParsers;
+	private static final int CHUNK_LINES = 1024;
 
-	private static SparklogLineParser[] mSparkLineParsers;
+	/**
+	 * The maximal number of chunks read ahead of the writer, per thread.
+	 */
+	private static final int CHUNKS_IN_FLIGHT_PER_THREAD = 4;
 
-	private static Pattern validIPV4Pattern;
-	private static Pattern validIPV6Pattern;
-	private static Pattern validEmailPattern;
+	private static final String GZIP_SUFFIX = ".gz";
+
+	/**
+	 * The parsers for a line of Linux syslogs or Spark logs, one set per masking thread.
+	 */
+	private final ThreadLocal<LineParsers> mLineParsers = new ThreadLocal<LineParsers>();
+
+	private static final Pattern validIPV4Pattern;
+	private static final Pattern validIPV6Pattern;
+	private static final Pattern validEmailPattern;
 	private static final String IPV4PATTERN = "(([01]?\\d\\d?|2[0-4]\\d|25[0-5])\\.){3}([01]?\\d\\d?|2[0-4]\\d|25[0-5])";
 	private static final String IPV6PATTERN = "([0-9a-f]{1,4}:){7}([0-9a-f]){1,4}";
 
@@ -92,12 +121,31 @@ public class AdeMaskLog extends ExtControlProgram {
 			+ "\\.[0-2]?[0-5]?[0-5]\\.[0-2]?[0-5]?[0-5])|((([a-zA-Z0-9\\-])+\\.)"
 			+ "+([a-zA-Z\\-])+))$";
 
+	/**
+	 * Patterns splitting the message text into tokens, and tokens at delimiters.
+	 */
+	private static final Pattern TOKEN_SEPARATOR_PATTERN = Pattern.compile("\\s+");
+	private static final Pattern TOKEN_DELIMITER_PATTERN = Pattern.compile("[:|=|<|>|(|)|\\[|\\]]");
+
+	static {
+		validIPV4Pattern = Pattern.compile(IPV4PATTERN,
+				Pattern.CASE_INSENSITIVE);
+		validIPV6Pattern = Pattern.compile(IPV6PATTERN,
+				Pattern.CASE_INSENSITIVE);
+		validEmailPattern = Pattern.compile(EMAILlPATTERN);
+		// pattern source: <a
+		// href="http://regxlib.com/REDetails.aspx?regexp_id=26" target="_blank"
+		// rel="nofollow">http://regxlib.com/REDetails.aspx?regexp_id=26</a>
+	}
+
 	private String mSystemName = null;
 	private String mCompanyName = null;
 	private String mCompanyNameNew = null;
 	private Boolean mMaskTCPIPAddress = true;
 	private Boolean mMaskEmailAddress = true;
 	private String localHost = "127.0.0.1";
+	private int mThreads = Runtime.getRuntime().availableProcessors();
+	private boolean mIsSpark;
 
 	Options options = new Options();
 	/**
@@ -166,6 +214,16 @@ public class AdeMaskLog extends ExtControlProgram {
 				.create('e');
 		options.addOption(emailAddressMaskOpt);
 
+		Option threadsOpt = OptionBuilder
+				.withLongOpt("threads")
+				.hasArg(true)
+				.withArgName("THREADS")
+				.isRequired(false)
+				.withDescription(
+						"Number of threads masking the log, default is the number of processors")
+				.create('j');
+		options.addOption(threadsOpt);
+
 		CommandLineParser parser = new GnuParser();
 		CommandLine line = null;
 
@@ -226,6 +284,17 @@ public class AdeMaskLog extends ExtControlProgram {
 		if (line.hasOption(emailAddressMaskOpt.getLongOpt())) {
 			mMaskEmailAddress = false;
 		}
+
+		if (line.hasOption(threadsOpt.getLongOpt())) {
+			try {
+				mThreads = Integer.parseInt(line.getOptionValue(threadsOpt.getLongOpt()));
+			} catch (NumberFormatException e) {
+				throw new AdeUsageException("Invalid number of threads", e);
+			}
+			if (mThreads <= 0) {
+				throw new AdeUsageException("Number of threads must be positive");
+			}
+		}
 	}
 
 	/**
@@ -245,51 +314,48 @@ public class AdeMaskLog extends ExtControlProgram {
 
 	protected boolean doControlLogic() throws AdeException {
 
-		createParsers();
-		createPattern();
+		mIsSpark = isSpark();
+		setParserProperties();
 
-		FileInputStream fis = null;
-		FileWriter fos = null;
+		final ExecutorService executor = Executors.newFixedThreadPool(mThreads);
+		final Deque<Future<List<String>>> maskedChunks = new ArrayDeque<Future<List<String>>>();
+		final int maxChunksInFlight = mThreads * CHUNKS_IN_FLIGHT_PER_THREAD;
+		BufferedReader br = null;
+		BufferedWriter bw = null;
 		try {
 			// open input file
 			// open output file
-			fis = new FileInputStream(mInputFile);
-			fos = new FileWriter(mOutputFile, false);
-
-			// Construct BufferedReader from InputStreamReader
-			// Construct BufferedWriter from OutputStreamWriter
-			BufferedReader br = new BufferedReader(new InputStreamReader(fis));
-			BufferedWriter bw = new BufferedWriter(fos);
-
-			// read first record of file
-			String line = null;
-			line = br.readLine();
-
-			// process all records in file
-			while (line != null) {
-				String writeLine = generateMaskedLine(line);
-				bw.write(writeLine);
-				bw.write(System.lineSeparator());
-				line = br.readLine();
-
+			br = AdeFileUtils.openLogFile(mInputFile);
+			bw = openOutputFile(mOutputFile);
+
+			// read the file in chunks, masked by the threads while the
+			// previous chunks are written
+			List<String> chunk = readChunk(br);
+			while (!chunk.isEmpty()) {
+				maskedChunks.addLast(executor.submit(new MaskChunkTask(chunk)));
+				while (maskedChunks.size() >= maxChunksInFlight) {
+					writeChunk(bw, maskedChunks.removeFirst());
+				}
+				chunk = readChunk(br);
+			}
+			while (!maskedChunks.isEmpty()) {
+				writeChunk(bw, maskedChunks.removeFirst());
 			}
-			
+
 			// close 
-			br.close();
 			bw.close();
-		} catch (FileNotFoundException e) {
-			logger.error("File not found exception", e);
-			throw new AdeUsageException(e.getMessage());
+			bw = null;
 		} catch (IOException e) {
 			logger.error("IO exception", e);
 			throw new AdeInternalException(e.getMessage());
 		} finally {
+			executor.shutdownNow();
 			try {
-				if (fis != null) {
-					fis.close();
+				if (br != null) {
+					br.close();
 				}
-				if (fos != null) {
-					fos.close();
+				if (bw != null) {
+					bw.close();
 				}
 			} catch (IOException e) {
 				logger.error("IO exception during close", e);
@@ -301,60 +367,144 @@ public class AdeMaskLog extends ExtControlProgram {
 	}
 
 	/**
-	 * Create Pattern to find email and IP address
+	 * Open the output file, compressed if its name ends with .gz
+	 * 
+	 * @param file
+	 * @return
+	 * @throws AdeUsageException
 	 */
-	private static void createPattern() {
-
-		validIPV4Pattern = Pattern.compile(IPV4PATTERN,
-				Pattern.CASE_INSENSITIVE);
-		validIPV6Pattern = Pattern.compile(IPV6PATTERN,
-				Pattern.CASE_INSENSITIVE);
-		validEmailPattern = Pattern.compile(EMAILlPATTERN);
-		// pattern source: <a
-		// href="http://regxlib.com/REDetails.aspx?regexp_id=26" target="_blank"
-		// rel="nofollow">http://regxlib.com/REDetails.aspx?regexp_id=26</a>
-
+	private static BufferedWriter openOutputFile(File file) throws AdeUsageException {
+		try {
+			OutputStream os = new BufferedOutputStream(new FileOutputStream(file, false));
+			if (file.getName().endsWith(GZIP_SUFFIX)) {
+				os = new GZIPOutputStream(os);
+			}
+			return new BufferedWriter(new OutputStreamWriter(os, StandardCharsets.UTF_8));
+		} catch (IOException e) {
+			logger.error("File not found exception", e);
+			throw new AdeUsageException(e.getMessage());
+		}
 	}
 
 	/**
-	 * Create Parser for Linux log
+	 * Read the next chunk of lines
 	 * 
-	 * @throws AdeInternalException
+	 * @param br
+	 * @return the lines, empty at the end of the file
+	 * @throws IOException
+	 */
+	private static List<String> readChunk(BufferedReader br) throws IOException {
+		final List<String> chunk = new ArrayList<String>(CHUNK_LINES);
+		String line;
+		while (chunk.size() < CHUNK_LINES && (line = br.readLine()) != null) {
+			chunk.add(line);
+		}
+		return chunk;
+	}
+
+	/**
+	 * Wait for a chunk to be masked and write it
 	 * 
+	 * @param bw
+	 * @param maskedChunk
+	 * @throws IOException
+	 * @throws AdeException
 	 */
-	private static void createParsers() throws AdeInternalException {
+	private static void writeChunk(BufferedWriter bw, Future<List<String>> maskedChunk)
+			throws IOException, AdeException {
+		final List<String> lines;
+		try {
+			lines = maskedChunk.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new AdeInternalException("Interrupted while masking the log", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof AdeException) {
+				throw (AdeException) e.getCause();
+			}
+			throw new AdeInternalException("Failed masking the log", e.getCause());
+		}
+		for (String writeLine : lines) {
+			bw.write(writeLine);
+			bw.write(System.lineSeparator());
+		}
+	}
 
-		AdeExtOperatingSystemType m_osType;
-		AdeExtProperties linuxProperties;
-		AdeExtPropertiesFactory adeExtPropertiesFactory = new AdeExtPropertiesFactory();
-		m_osType = AdeExtOperatingSystemType.LINUX;
-		linuxProperties = adeExtPropertiesFactory.getAdeExtProperties(m_osType);
+	/**
+	 * Mask a chunk of lines, with the parsers of the current thread
+	 */
+	private final class MaskChunkTask implements Callable<List<String>> {
+		private final List<String> mChunk;
 
-		// create parser
+		private MaskChunkTask(List<String> chunk) {
+			mChunk = chunk;
+		}
 
-		try {
+		@Override
+		public List<String> call() throws AdeException {
+			LineParsers parsers = mLineParsers.get();
+			if (parsers == null) {
+				parsers = new LineParsers(mIsSpark);
+				mLineParsers.set(parsers);
+			}
+			final List<String> masked = new ArrayList<String>(mChunk.size());
+			for (String line : mChunk) {
+				masked.add(generateMaskedLine(parsers, line));
+			}
+			return masked;
+		}
+	}
 
-			if (isSpark()){
+	/**
+	 * The parsers of a masking thread. Parsers keep the last parsed line, so they are not shared.
+	 */
+	private static final class LineParsers {
+		/**
+		 * The parser for a line of Linux syslogs.
+		 */
+		private final LinuxSyslogLineParser[] mLinuxLineParsers;
+
+		private final SparklogLineParser[] mSparkLineParsers;
+
+		private LineParsers(boolean isSpark) throws AdeException {
+			if (isSpark) {
 				mSparkLineParsers = new SparklogLineParser[] {
 					new SparklogParser(),
 				};
-				SparklogParser.setAdeExtProperties((LinuxAdeExtProperties) linuxProperties);
-			}
-			else{
-				mLineParsers = new LinuxSyslogLineParser[] {
+				mLinuxLineParsers = null;
+			} else {
+				mLinuxLineParsers = new LinuxSyslogLineParser[] {
 					new LinuxSyslog5424ParserBase(),
 					new LinuxSyslog3164ParserWithMark(),
 					new LinuxSyslog3164ParserWithCompAndPid(),
 					new LinuxSyslog3164ParserFreeForm(), };
-					LinuxSyslog3164ParserBase
-					.setAdeExtProperties((LinuxAdeExtProperties) linuxProperties);
-					((LinuxAdeExtProperties) linuxProperties).setYear(java.util.Calendar
-					.getInstance().get(Calendar.YEAR));
+				mSparkLineParsers = null;
 			}
-			
-		} catch (AdeException e) {
-			logger.error("Failure during parser construction", e);
-			throw new AdeInternalException("Parser construction failure");
+		}
+	}
+
+	/**
+	 * Set the properties of the parsers of Linux log, shared by the parsers
+	 * of all threads
+	 * 
+	 */
+	private void setParserProperties() {
+
+		AdeExtOperatingSystemType m_osType;
+		AdeExtProperties linuxProperties;
+		AdeExtPropertiesFactory adeExtPropertiesFactory = new AdeExtPropertiesFactory();
+		m_osType = AdeExtOperatingSystemType.LINUX;
+		linuxProperties = adeExtPropertiesFactory.getAdeExtProperties(m_osType);
+
+		// the year is not set: the masked line does not depend on the message
+		// time, and the year setters keep a per source state that the threads
+		// would share
+		if (mIsSpark){
+			SparklogParser.setAdeExtProperties((LinuxAdeExtProperties) linuxProperties);
+		}
+		else{
+			LinuxSyslog3164ParserBase
+			.setAdeExtProperties((LinuxAdeExtProperties) linuxProperties);
 		}
 	}
 
@@ -364,13 +514,13 @@ public class AdeMaskLog extends ExtControlProgram {
 	 * @param line
 	 * @return
 	 */
-	private String generateMaskedLine(String currentLine) throws AdeException{
+	private String generateMaskedLine(LineParsers parsers, String currentLine) throws AdeException{
 		boolean gotLine;
 		String outline;
 
 		// Spark logs
-		if (isSpark()){
-			for (SparklogLineParser lineParser : mSparkLineParsers) {
+		if (mIsSpark){
+			for (SparklogLineParser lineParser : parsers.mSparkLineParsers) {
 				gotLine = lineParser.parseLine(currentLine);
 				if (gotLine) {
 					String oldSystemName = lineParser.getSource();
@@ -383,7 +533,7 @@ public class AdeMaskLog extends ExtControlProgram {
 		}
 
 		// Linux Syslogs
-		for (LinuxSyslogLineParser lineParser : mLineParsers) {
+		for (LinuxSyslogLineParser lineParser : parsers.mLinuxLineParsers) {
 			gotLine = lineParser.parseLine(currentLine);
 			if (gotLine) {
 				String oldSystemName = lineParser.getSource();
@@ -425,6 +575,9 @@ public class AdeMaskLog extends ExtControlProgram {
 	 * @return
 	 */
 	private String maskCompanyName(String currentLine) {
+		if (mCompanyName == null) {
+			return currentLine;
+		}
 		return currentLine.replace(mCompanyName, mCompanyNameNew);
 	}
 	/**
@@ -433,12 +586,11 @@ public class AdeMaskLog extends ExtControlProgram {
 	 * @return
 	 */
 	private String maskIPAddress(String oldText) {
-		String[] textTokens = oldText.split("\\s+");
+		String[] textTokens = TOKEN_SEPARATOR_PATTERN.split(oldText);
 		int tokenCount = textTokens.length;
 		String newText = oldText;
-		String delims = "[:|=|<|>|(|)|\\[|\\]]";
 		for (int j = 0; j < tokenCount; j++) {
-			String[] strippedToken = textTokens[j].split(delims);
+			String[] strippedToken = TOKEN_DELIMITER_PATTERN.split(textTokens[j]);
 			int strippedTokenCount = strippedToken.length;
 			for (int k = 0; k < strippedTokenCount; k++) {
 				if (isIpAddress(strippedToken[k])) {
@@ -460,13 +612,12 @@ public class AdeMaskLog extends ExtControlProgram {
 	 *            after processing
 	 */
 	private String maskEmail(String currentLine, String oldText, String newText) {
-		String[] textTokens = oldText.split("\\s+");
+		String[] textTokens = TOKEN_SEPARATOR_PATTERN.split(oldText);
 		int tokenCount = textTokens.length;
 		String newLine;
 		String localEmail = "myEmail@gmail.com";
-		String delims = "[:|=|<|>|(|)|\\[|\\]]";
 		for (int j = 0; j < tokenCount; j++) {
-			String[] strippedToken = textTokens[j].split(delims);
+			String[] strippedToken = TOKEN_DELIMITER_PATTERN.split(textTokens[j]);
 			int strippedTokenCount = strippedToken.length;
 			for (int k = 0; k < strippedTokenCount; k++) {
 				if (isValidEmail(strippedToken[k])) {
@@ -479,7 +630,9 @@ public class AdeMaskLog extends ExtControlProgram {
 	}
 
 	private String maskSystemName(String currentLine, String oldSystemName) {
-
+		if (mSystemName == null) {
+			return currentLine;
+		}
 		return currentLine.replace(oldSystemName, mSystemName);
 	}
 
@@ -0,0 +1,732 @@
+/*
+ 
+    Copyright IBM Corp. 2016
+    This file is part of Anomaly Detection Engine for Linux Logs (ADE).
+
+    ADE is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    ADE is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with ADE.  If not, see <http://www.gnu.org/licenses/>.
+ 
+*/
+package org.openmainframe.ade.ext.main;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.CommandLineParser;
+import org.apache.commons.cli.GnuParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.OptionBuilder;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import org.openmainframe.ade.dataStore.IDataStoreModels;
+import org.openmainframe.ade.exceptions.AdeException;
+import org.openmainframe.ade.exceptions.AdeInternalException;
+import org.openmainframe.ade.exceptions.AdeUsageException;
+import org.openmainframe.ade.ext.main.helper.AdeExtRequestType;
+import org.openmainframe.ade.ext.main.helper.UploadOrAnalyze;
+import org.openmainframe.ade.ext.utils.ArgumentConstants;
+import org.openmainframe.ade.impl.dbUtils.MyJDBCConnection;
+import org.openmainframe.ade.models.IModelMetaData;
+import org.openmainframe.ade.scoringApi.IMainScorer;
+
+/**
+ * Long running process that performs Upload and Analyze jobs taken from a spool directory.
+ * 
+ * <p>A single Upload or Analyze run spends much of its time starting up: reading the flow layout, connecting to the
+ * database, and reading the dictionaries, the text clusters of each component and the model of each analysis group.
+ * The daemon does this once and keeps it for all the jobs it performs. The default model of an analysis group is
+ * looked up in the database for each interval, so a newly trained model is used from the next interval on, and the
+ * text clusters added by other processes are read as they are detected. Each time it looks for new jobs, the daemon
+ * also checks whether a new default model was trained for an analysis group; if so it loads the new model ahead of
+ * the next interval, and drops the model it replaced from memory.
+ * 
+ * <p>A job is submitted by placing a file with the <code>.job</code> suffix in the <code>incoming</code> directory
+ * of the spool. It should be written under another name and then renamed, so that it is never read half written.
+ * The first line of the file is the request, <code>upload</code> or <code>analyze</code>, and each following line is
+ * one argument of the request, as it would be given on the command line. Empty lines and lines starting with
+ * <code>#</code> are ignored. For example:
+ * <pre>
+ * analyze
+ * -f
+ * /var/log/ade/messages-2016030110.gz
+ * -s
+ * host1
+ * </pre>
+ * 
+ * <p>The job file is moved to <code>running</code> while it is performed, then to <code>done</code>, or to
+ * <code>failed</code> together with a <code>.err</code> file holding the reason. Creating a file named
+ * <code>stop</code> in the spool directory stops the daemon once the running jobs are done.
+ * 
+ * <p>Up to <code>--jobs</code> jobs are performed concurrently, each by its own worker thread. Jobs are started
+ * oldest first, and the jobs of each source are performed one at a time, in the order they were submitted: an
+ * Analyze job restricted to a source with <code>-s</code> only waits for the earlier jobs of that source, while
+ * the other jobs may hold messages of any source, so they wait for all earlier jobs and all later jobs wait for
+ * them.
+ * 
+ * <p>Each running job uses up to {@value #CONNECTIONS_PER_JOB} database connections at once: the worker thread
+ * performing its flow and the thread registering its new sources each hold a connection for the whole job, and
+ * each may borrow one more while it updates the sources. The daemon itself holds one more connection for looking up
+ * new models. The number of jobs is therefore limited by the connection pool size,
+ * <code>ade.database.connectionPoolSize</code>: the default is lowered to fit in the pool, and a larger
+ * <code>--jobs</code> is rejected.
+ */
+public class AnalysisDaemon extends ExtControlProgram {
+    /**
+     * Input options
+     */
+    private static final String OPTION_SPOOL = "spool";
+    private static final String OPTION_POLL = "poll";
+    private static final String OPTION_ONCE = "once";
+    private static final String OPTION_JOBS = "jobs";
+
+    private static final int DEFAULT_POLL_SECONDS = 10;
+    private static final int MAX_DEFAULT_JOBS = 4;
+
+    /**
+     * The database connections a running job may hold at once, and the ones held by the daemon itself.
+     */
+    static final int CONNECTIONS_PER_JOB = 4;
+    static final int DAEMON_CONNECTIONS = 1;
+    private static final long MILLIS_IN_SECOND = 1000L;
+
+    /**
+     * The layout of the spool directory
+     */
+    static final String INCOMING_DIR = "incoming";
+    static final String RUNNING_DIR = "running";
+    static final String DONE_DIR = "done";
+    static final String FAILED_DIR = "failed";
+    static final String STOP_FILE = "stop";
+    static final String JOB_SUFFIX = ".job";
+    static final String ERROR_SUFFIX = ".err";
+
+    private static final String REQUEST_UPLOAD = "upload";
+    private static final String REQUEST_ANALYZE = "analyze";
+
+    /**
+     * The options of Analyze restricting it to a source
+     */
+    private static final String SOURCES_SHORT_OPTION = "-s";
+    private static final String SOURCES_LONG_OPTION = "--sources";
+    private static final String ALL_SOURCES = "all";
+
+    /**
+     * A job read from the spool directory, with the sources it may hold messages of.
+     */
+    static final class Job {
+        private final String m_name;
+        private final UploadOrAnalyze m_program;
+        private final List<String> m_args;
+        private final String m_source;
+
+        /**
+         * @param source the only source the job holds messages of, or null if it may hold messages of any source.
+         */
+        Job(String name, UploadOrAnalyze program, List<String> args, String source) {
+            m_name = name;
+            m_program = program;
+            m_args = args;
+            m_source = source;
+        }
+
+        String getName() {
+            return m_name;
+        }
+
+        /**
+         * @return the only source the job holds messages of, or null if it may hold messages of any source.
+         */
+        String getSource() {
+            return m_source;
+        }
+    }
+
+    /**
+     * Creates the worker threads. A worker keeps its database connection for all its jobs, and returns it once
+     * stopped.
+     */
+    private final class WorkerThreadFactory implements ThreadFactory {
+        private final List<Thread> m_threads = new ArrayList<Thread>();
+
+        @Override
+        public synchronized Thread newThread(final Runnable r) {
+            final Thread thread = new Thread("ade-daemon-worker-" + (m_threads.size() + 1)) {
+                @Override
+                public void run() {
+                    try {
+                        r.run();
+                    } finally {
+                        try {
+                            MyJDBCConnection.close();
+                        } catch (AdeException e) {
+                            logger.warn("Failed closing the connection of " + getName(), e);
+                        }
+                    }
+                }
+            };
+            m_threads.add(thread);
+            return thread;
+        }
+
+        /**
+         * Wait for the threads created to end, once the workers were shut down.
+         */
+        void join() {
+            final List<Thread> threads;
+            synchronized (this) {
+                threads = new ArrayList<Thread>(m_threads);
+            }
+            boolean interrupted = false;
+            for (Thread thread : threads) {
+                while (thread.isAlive()) {
+                    try {
+                        thread.join();
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    }
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * The spool directory
+     */
+    private File m_spoolDir;
+
+    /**
+     * Time to wait between two looks for new jobs
+     */
+    private long m_pollMillis = DEFAULT_POLL_SECONDS * MILLIS_IN_SECOND;
+
+    /**
+     * If true, stop once there are no more jobs to perform.
+     */
+    private boolean m_once;
+
+    /**
+     * The number of jobs performed concurrently
+     */
+    private int m_maxJobs;
+
+    /**
+     * The id of the default model of each analysis group, as last loaded.
+     */
+    private final Map<String, Integer> m_defaultModelIds = new HashMap<String, Integer>();
+
+    /**
+     * Guards the running jobs and the counters, and is notified when a job ends.
+     */
+    private final Object m_lock = new Object();
+
+    /**
+     * The jobs being performed
+     */
+    private final List<Job> m_runningJobs = new ArrayList<Job>();
+
+    private int m_doneJobs;
+    private int m_failedJobs;
+
+    /**
+     * The entry point of the AnalysisDaemon
+     * 
+     * @param args
+     * @throws AdeException
+     */
+    public static void main(String[] args) throws AdeException {
+        final AnalysisDaemon daemon = new AnalysisDaemon();
+        try {
+            daemon.run(args);
+        } catch (AdeUsageException e) {
+            daemon.getMessageHandler().handleUserException(e);
+        } catch (AdeInternalException e) {
+            daemon.getMessageHandler().handleAdeInternalException(e);
+        } catch (AdeException e) {
+            daemon.getMessageHandler().handleAdeException(e);
+        } catch (Throwable e) {
+            daemon.getMessageHandler().handleUnexpectedException(e);
+        } finally {
+            daemon.quietCleanup();
+        }
+    }
+
+    /**
+     * Constructor
+     */
+    AnalysisDaemon() {
+        super(AdeExtRequestType.DAEMON);
+    }
+
+    /**
+     * Parse the input arguments
+     */
+    @Override
+    protected final void parseArgs(String[] args) throws AdeException {
+        final Options options = new Options();
+
+        OptionBuilder.withArgName(OPTION_SPOOL);
+        OptionBuilder.withLongOpt(OPTION_SPOOL);
+        OptionBuilder.isRequired(true);
+        OptionBuilder.hasArg();
+        OptionBuilder.withDescription("The spool directory the jobs are taken from.");
+        options.addOption(OptionBuilder.create("s"));
+
+        OptionBuilder.withArgName(OPTION_POLL);
+        OptionBuilder.withLongOpt(OPTION_POLL);
+        OptionBuilder.isRequired(false);
+        OptionBuilder.hasArg();
+        OptionBuilder.withDescription("Seconds to wait between two looks for new jobs. Default is "
+                + DEFAULT_POLL_SECONDS + ".");
+        options.addOption(OptionBuilder.create("p"));
+
+        OptionBuilder.withArgName(OPTION_ONCE);
+        OptionBuilder.withLongOpt(OPTION_ONCE);
+        OptionBuilder.isRequired(false);
+        OptionBuilder.withDescription("Perform the jobs waiting in the spool directory, then stop.");
+        options.addOption(OptionBuilder.create("o"));
+
+        OptionBuilder.withArgName(OPTION_JOBS);
+        OptionBuilder.withLongOpt(OPTION_JOBS);
+        OptionBuilder.isRequired(false);
+        OptionBuilder.hasArg();
+        OptionBuilder.withDescription("The number of jobs performed concurrently. Default is the number of "
+                + "processors, up to " + MAX_DEFAULT_JOBS + " and to the jobs the connection pool can serve.");
+        options.addOption(OptionBuilder.create("j"));
+
+        final CommandLine line;
+        try {
+            line = new GnuParser().parse(options, args);
+        } catch (ParseException e) {
+            new HelpFormatter().printHelp(getClass().getSimpleName(), options);
+            throw new AdeUsageException("Argument Parsing failed", e);
+        }
+
+        m_spoolDir = new File(line.getOptionValue(OPTION_SPOOL));
+        if (line.hasOption(OPTION_POLL)) {
+            final String poll = line.getOptionValue(OPTION_POLL);
+            try {
+                m_pollMillis = Integer.parseInt(poll) * MILLIS_IN_SECOND;
+            } catch (NumberFormatException e) {
+                throw new AdeUsageException("Invalid poll interval: " + poll, e);
+            }
+            if (m_pollMillis <= 0) {
+                throw new AdeUsageException("The poll interval must be positive: " + poll);
+            }
+        }
+        final int poolSize = a_ade.getConfigProperties().database().getConnectionPoolSize();
+        final int poolJobs = getMaxJobs(poolSize);
+        if (poolJobs <= 0) {
+            throw new AdeUsageException("The connection pool size " + poolSize + " is too small, at least "
+                    + (DAEMON_CONNECTIONS + CONNECTIONS_PER_JOB) + " connections are needed");
+        }
+        if (line.hasOption(OPTION_JOBS)) {
+            final String jobs = line.getOptionValue(OPTION_JOBS);
+            try {
+                m_maxJobs = Integer.parseInt(jobs);
+            } catch (NumberFormatException e) {
+                throw new AdeUsageException("Invalid number of jobs: " + jobs, e);
+            }
+            if (m_maxJobs <= 0) {
+                throw new AdeUsageException("The number of jobs must be positive: " + jobs);
+            }
+            if (m_maxJobs > poolJobs) {
+                throw new AdeUsageException("The connection pool size " + poolSize + " allows at most " + poolJobs
+                        + " jobs, " + jobs + " were asked for. Increase ade.database.connectionPoolSize.");
+            }
+        } else {
+            m_maxJobs = Math.min(Math.min(MAX_DEFAULT_JOBS, Runtime.getRuntime().availableProcessors()), poolJobs);
+        }
+        m_once = line.hasOption(OPTION_ONCE);
+    }
+
+    /**
+     * Return the number of jobs that may run at once without waiting for database connections.
+     * 
+     * @param poolSize the maximal number of connections of the pool.
+     */
+    static int getMaxJobs(int poolSize) {
+        return (poolSize - DAEMON_CONNECTIONS) / CONNECTIONS_PER_JOB;
+    }
+
+    /**
+     * Perform the jobs of the spool directory until asked to stop.
+     */
+    @Override
+    protected final boolean doControlLogic() throws AdeException {
+        for (String dir : Arrays.asList(INCOMING_DIR, RUNNING_DIR, DONE_DIR, FAILED_DIR)) {
+            final File subDir = new File(m_spoolDir, dir);
+            if (!subDir.isDirectory() && !subDir.mkdirs()) {
+                throw new AdeUsageException("Cannot create the spool directory " + subDir.getPath());
+            }
+        }
+        failInterruptedJobs();
+
+        a_ade.getActionsFactory().setRetainTextClusteringModel(true);
+        final IDataStoreModels<IMainScorer> models = a_ade.getDataStore().models();
+        reloadModels(models);
+
+        final WorkerThreadFactory workerThreads = new WorkerThreadFactory();
+        final ExecutorService workers = Executors.newFixedThreadPool(m_maxJobs, workerThreads);
+        logger.info("Waiting for jobs in " + m_spoolDir.getAbsolutePath() + ", performing up to " + m_maxJobs
+                + " jobs concurrently");
+
+        try {
+            boolean stop = false;
+            while (!stop) {
+                final int endedJobs;
+                synchronized (m_lock) {
+                    endedJobs = m_doneJobs + m_failedJobs;
+                }
+                stop = isStopRequested();
+                boolean pending = false;
+                if (!stop) {
+                    try {
+                        reloadModels(models);
+                    } catch (AdeException e) {
+                        logger.error("Failed looking for new models", e);
+                    }
+                    pending = startJobs(workers);
+                }
+                synchronized (m_lock) {
+                    if (m_once && !pending && m_runningJobs.isEmpty()) {
+                        stop = true;
+                    }
+                    if (!stop && endedJobs == m_doneJobs + m_failedJobs) {
+                        /* Look again when a job ends, or once the poll interval elapsed */
+                        m_lock.wait(m_pollMillis);
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            /* Let the running jobs end */
+            workers.shutdown();
+            workerThreads.join();
+        }
+
+        logger.info("Stopping. Jobs done: " + m_doneJobs + ", jobs failed: " + m_failedJobs);
+        return true;
+    }
+
+    /**
+     * Start the pending jobs that may run now, while workers are available. A job may run once no earlier job of
+     * its sources is running or pending.
+     * 
+     * @return whether jobs are left pending.
+     */
+    private boolean startJobs(ExecutorService workers) throws AdeException {
+        final List<Job> earlierJobs;
+        synchronized (m_lock) {
+            earlierJobs = new ArrayList<Job>(m_runningJobs);
+        }
+        boolean pending = false;
+        for (File file : getPendingJobs(new File(m_spoolDir, INCOMING_DIR))) {
+            final Job job;
+            try {
+                job = readJob(file);
+            } catch (AdeException e) {
+                logger.error("Job " + file.getName() + " is not valid", e);
+                moveTo(file, FAILED_DIR);
+                writeError(file.getName(), e.getMessage());
+                synchronized (m_lock) {
+                    ++m_failedJobs;
+                }
+                continue;
+            }
+
+            final File running;
+            synchronized (m_lock) {
+                if (m_runningJobs.size() >= m_maxJobs) {
+                    return true;
+                }
+                if (!canStart(job, earlierJobs)) {
+                    earlierJobs.add(job);
+                    pending = true;
+                    continue;
+                }
+                running = moveTo(file, RUNNING_DIR);
+                m_runningJobs.add(job);
+            }
+            earlierJobs.add(job);
+            workers.execute(new Runnable() {
+                @Override
+                public void run() {
+                    performJob(job, running);
+                }
+            });
+        }
+        return pending;
+    }
+
+    /**
+     * Returns whether the given job may start, given the jobs of the same sources that were submitted before it
+     * and are still running or pending.
+     */
+    static boolean canStart(Job job, List<Job> earlierJobs) {
+        for (Job earlier : earlierJobs) {
+            if (job.getSource() == null || earlier.getSource() == null
+                    || job.getSource().equalsIgnoreCase(earlier.getSource())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Load the default model of each analysis group whose default model changed since last called, and drop
+     * the model it replaced from the models kept in memory.
+     */
+    final void reloadModels(IDataStoreModels<?> models) throws AdeException {
+        final Set<String> groups = new TreeSet<String>();
+        for (IModelMetaData modelMetaData : models.getModelList()) {
+            if (modelMetaData.getGroupName() != null) {
+                groups.add(modelMetaData.getGroupName());
+            }
+        }
+        groups.addAll(m_defaultModelIds.keySet());
+
+        for (String group : groups) {
+            final IModelMetaData defaultModel = models.loadDefaultModelMetaData(group);
+            final Integer modelId = defaultModel == null ? null : defaultModel.getModelInternalId();
+            final Integer previousModelId = m_defaultModelIds.get(group);
+            if (modelId == null ? previousModelId == null : modelId.equals(previousModelId)) {
+                continue;
+            }
+            if (modelId != null) {
+                logger.info("Loading model " + modelId + " of analysis group " + group);
+                models.loadDefaultModel(group);
+                m_defaultModelIds.put(group, modelId);
+            } else {
+                m_defaultModelIds.remove(group);
+            }
+            if (previousModelId != null) {
+                logger.info("Dropping model " + previousModelId + " of analysis group " + group);
+                models.evictModel(previousModelId);
+            }
+        }
+    }
+
+    /**
+     * Returns the jobs waiting in the given directory, oldest first. Jobs submitted at the same time are
+     * ordered by name.
+     */
+    static List<File> getPendingJobs(File incomingDir) {
+        final File[] files = incomingDir.listFiles(new FileFilter() {
+            @Override
+            public boolean accept(File file) {
+                return file.isFile() && file.getName().endsWith(JOB_SUFFIX);
+            }
+        });
+        if (files == null) {
+            return Collections.emptyList();
+        }
+        final List<File> jobs = new ArrayList<File>(Arrays.asList(files));
+        Collections.sort(jobs, new Comparator<File>() {
+            @Override
+            public int compare(File a, File b) {
+                final int res = Long.compare(a.lastModified(), b.lastModified());
+                if (res != 0) {
+                    return res;
+                }
+                return a.getName().compareTo(b.getName());
+            }
+        });
+        return jobs;
+    }
+
+    /**
+     * Returns the Upload or Analyze program requested by a job file, and sets its arguments in the given list.
+     * 
+     * @throws AdeUsageException if the job file is not valid.
+     */
+    static UploadOrAnalyze readJob(File job, List<String> args) throws AdeException {
+        final List<String> lines;
+        try {
+            lines = Files.readAllLines(job.toPath(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new AdeInternalException("Failed reading job " + job.getPath(), e);
+        }
+
+        String request = null;
+        for (String line : lines) {
+            final String arg = line.trim();
+            if (arg.isEmpty() || arg.startsWith("#")) {
+                continue;
+            }
+            if (request == null) {
+                request = arg;
+                continue;
+            }
+            if ("-h".equals(arg) || "--help".equals(arg)) {
+                throw new AdeUsageException("Help cannot be requested by a job");
+            }
+            if (ArgumentConstants.STDIN.equalsIgnoreCase(arg) || "-".equals(arg)) {
+                throw new AdeUsageException("A job cannot read the standard input");
+            }
+            args.add(arg);
+        }
+
+        if (REQUEST_UPLOAD.equalsIgnoreCase(request)) {
+            return new Upload();
+        } else if (REQUEST_ANALYZE.equalsIgnoreCase(request)) {
+            return new Analyze();
+        }
+        throw new AdeUsageException("Unknown request in job " + job.getName() + ": " + request
+                + ". Supported requests are " + REQUEST_UPLOAD + " and " + REQUEST_ANALYZE);
+    }
+
+    /**
+     * Reads a job file, and returns the job it requests.
+     * 
+     * @throws AdeUsageException if the job file is not valid.
+     */
+    static Job readJob(File file) throws AdeException {
+        final List<String> args = new ArrayList<String>();
+        final UploadOrAnalyze program = readJob(file, args);
+        String source = null;
+        if (program instanceof Analyze) {
+            for (int i = 0; i < args.size(); ++i) {
+                final String arg = args.get(i);
+                if ((SOURCES_SHORT_OPTION.equals(arg) || SOURCES_LONG_OPTION.equals(arg)) && i + 1 < args.size()) {
+                    source = args.get(i + 1);
+                } else if (arg.startsWith(SOURCES_LONG_OPTION + "=")) {
+                    source = arg.substring(SOURCES_LONG_OPTION.length() + 1);
+                }
+            }
+            if (ALL_SOURCES.equalsIgnoreCase(source)) {
+                source = null;
+            }
+        }
+        return new Job(file.getName(), program, args, source);
+    }
+
+    /**
+     * Perform a single job, and move it to the done or failed directory. Called by a worker thread.
+     */
+    private void performJob(Job job, File running) {
+        boolean done = false;
+        try {
+            final String error = runJob(job);
+            if (error == null) {
+                moveTo(running, DONE_DIR);
+                done = true;
+                logger.info("Job " + job.getName() + " done");
+            } else {
+                moveTo(running, FAILED_DIR);
+                writeError(job.getName(), error);
+            }
+        } catch (AdeException e) {
+            logger.error("Failed completing job " + job.getName(), e);
+        } finally {
+            synchronized (m_lock) {
+                if (done) {
+                    ++m_doneJobs;
+                } else {
+                    ++m_failedJobs;
+                }
+                m_runningJobs.remove(job);
+                m_lock.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Run the program of a job.
+     * 
+     * @return null if the job succeeded, the reason it failed otherwise.
+     */
+    private String runJob(Job job) {
+        logger.info("Starting job " + job.getName());
+        try {
+            if (!job.m_program.run(job.m_args.toArray(new String[job.m_args.size()]))) {
+                return "The job failed. See the Ade log for more details.";
+            }
+            return null;
+        } catch (AdeException e) {
+            logger.error("Job " + job.getName() + " failed", e);
+            return e.getMessage();
+        } catch (RuntimeException e) {
+            logger.error("Job " + job.getName() + " failed", e);
+            return e.toString();
+        } finally {
+            /* Release the reader and the source registration thread of the job, also when it failed */
+            job.m_program.closeInput();
+        }
+    }
+
+    /**
+     * Jobs left in the running directory were interrupted when the daemon last stopped. They may have been
+     * partially performed, so they are not performed again but reported as failed.
+     */
+    private void failInterruptedJobs() throws AdeException {
+        for (File job : getPendingJobs(new File(m_spoolDir, RUNNING_DIR))) {
+            logger.warn("Job " + job.getName() + " was interrupted");
+            moveTo(job, FAILED_DIR);
+            writeError(job.getName(), "The job was interrupted");
+        }
+    }
+
+    /**
+     * Returns true, and removes the stop file, if a stop was requested.
+     */
+    private boolean isStopRequested() {
+        final File stopFile = new File(m_spoolDir, STOP_FILE);
+        if (!stopFile.exists()) {
+            return false;
+        }
+        if (!stopFile.delete()) {
+            logger.warn("Failed deleting " + stopFile.getPath());
+        }
+        return true;
+    }
+
+    private File moveTo(File file, String dir) throws AdeException {
+        final File target = new File(new File(m_spoolDir, dir), file.getName());
+        try {
+            Files.move(file.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            throw new AdeInternalException("Failed moving " + file.getPath() + " to " + target.getPath(), e);
+        }
+        return target;
+    }
+
+    private void writeError(String jobName, String error) throws AdeException {
+        final File errorFile = new File(new File(m_spoolDir, FAILED_DIR), jobName + ERROR_SUFFIX);
+        try {
+            Files.write(errorFile.toPath(), String.valueOf(error).getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new AdeInternalException("Failed writing " + errorFile.getPath(), e);
+        }
+    }
+}
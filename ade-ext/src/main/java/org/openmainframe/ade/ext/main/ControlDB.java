@@ -19,6 +19,10 @@
 */
 package org.openmainframe.ade.ext.main;
 
+import java.util.Date;
+
+import org.openmainframe.ade.AdeInternal;
+import org.openmainframe.ade.IAdeConfigProperties;
 import org.openmainframe.ade.dataStore.IDataStore;
 import org.openmainframe.ade.exceptions.AdeException;
 import org.openmainframe.ade.exceptions.AdeInternalException;
@@ -26,6 +30,8 @@ import org.openmainframe.ade.exceptions.AdeUsageException;
 import org.openmainframe.ade.ext.main.helper.AdeExtRequestType;
 import org.openmainframe.ade.ext.service.AdeExtMessageHandler;
 import org.openmainframe.ade.ext.utils.TableManagerExt;
+import org.openmainframe.ade.impl.dataStore.PeriodRetention;
+import org.openmainframe.ade.impl.dataStore.TableManager;
 
 /** Main for a utility allowing simple db operations */
 public class ControlDB extends org.openmainframe.ade.main.ControlDB {
@@ -111,6 +117,10 @@ public class ControlDB extends org.openmainframe.ade.main.ControlDB {
                 }
                 doDml(m_myArgs[1]);
                 break;
+            case Upgrade:
+                return doUpgrade();
+            case Retention:
+                return doRetention();
             default:
                 throw new AdeInternalException("Cannot handle " + operator);
             }
@@ -129,6 +139,11 @@ public class ControlDB extends org.openmainframe.ade.main.ControlDB {
         DeleteData("delete"),
         //Executes a query and prints its content
         Query("query"), Dml("dml"),
+        //Upgrades a database created by an earlier version: creates the missing tables and indexes,
+        //and drops replaced indexes
+        Upgrade("upgrade"),
+        //Deletes and compacts old periods, as configured
+        Retention("retention"),
         //Delete the database tables, and keep the database
         Drop("drop"), Patch11("patch11"), Patch15("patch15"), Patch16("patch16"), Patch18("patch18"),
         // Unknown operator
@@ -170,6 +185,8 @@ public class ControlDB extends org.openmainframe.ade.main.ControlDB {
         System.err.println("\tcontroldb drop");
         System.err.println("\tcontroldb query <sql>");
         System.err.println("\tcontroldb dml <sql>");
+        System.err.println("\tcontroldb upgrade");
+        System.err.println("\tcontroldb retention");
         System.err.println("");
         System.err.flush();
         throw new AdeUsageException(errorMsg);
@@ -195,6 +212,50 @@ public class ControlDB extends org.openmainframe.ade.main.ControlDB {
         return true;
     }
 
+    /**
+     * Upgrade a database created by an earlier version of Ade: create the tables of derived data
+     * and the indexes of the Ade tables that are missing from it, and drop the indexes of earlier
+     * versions that the new ones replace. Run it once after installing a new version.
+     * 
+     * @return
+     * @throws AdeException
+     */
+    protected boolean doUpgrade() throws AdeException {
+        System.out.println("Upgrading database, creating missing tables and indexes: "
+                + a_ade.getConfigProperties().database().getDatabaseUrl());
+        final TableManager tableManager = new TableManager();
+        final int createdTables = tableManager.createMissingTables();
+        final int created = tableManager.createMissingIndices();
+        final int dropped = tableManager.dropObsoleteIndices();
+        System.out.println("Created " + createdTables + " tables and " + created + " indexes, dropped "
+                + dropped + " obsolete indexes.");
+        return true;
+    }
+
+    /**
+     * Delete the periods older than the configured retention, archiving them if configured,
+     * and compact the message summaries of the periods older than the configured compaction age.
+     * 
+     * @return
+     * @throws AdeException
+     */
+    protected boolean doRetention() throws AdeException {
+        final IAdeConfigProperties config = a_ade.getConfigProperties();
+        if (config.getRetentionPurgeAfterDays() == 0 && config.getRetentionCompactAfterDays() == 0) {
+            throw new AdeUsageException("No retention is configured. Set ade.retention.purgeAfterDays "
+                    + "and/or ade.retention.compactAfterDays");
+        }
+        System.out.println("Applying the retention to database: " + config.database().getDatabaseUrl());
+        final PeriodRetention retention = PeriodRetention.fromConfiguration(
+                AdeInternal.getAdeImpl().getDataStore().periods(), config, new Date());
+        retention.run();
+        System.out.println("Deleted " + retention.getPurgedPeriods() + " periods with "
+                + retention.getDeletedMessageSummaries() + " message summaries, compacted "
+                + retention.getCompactedMessageSummaries() + " message summaries of "
+                + retention.getCompactedPeriods() + " periods.");
+        return true;
+    }
+
     /**
      * Delete all the database tables.
      * 
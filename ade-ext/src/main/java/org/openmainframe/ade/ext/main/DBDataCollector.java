@@ -23,12 +23,18 @@ package org.openmainframe.ade.ext.main;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.sql.ResultSet;
 import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.zip.GZIPOutputStream;
 
 import org.openmainframe.ade.exceptions.AdeException;
 import org.openmainframe.ade.exceptions.AdeInternalException;
@@ -36,7 +42,7 @@ import org.openmainframe.ade.exceptions.AdeUsageException;
 import org.openmainframe.ade.ext.main.DatabaseManager;
 import org.openmainframe.ade.ext.service.AdeExtInternalException;
 import org.openmainframe.ade.ext.service.AdeExtUsageException;
-import org.openmainframe.ade.ext.utils.NativeCommand;
+import org.openmainframe.ade.ext.utils.TarArchiveWriter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -91,6 +97,17 @@ public abstract class DBDataCollector {
      */
     public static final String ARCHIVED_COMPRESSED_FILE_EXTENSION = ".tgz";
 
+    /**
+     * The Java system property setting the maximal number of tables exported
+     * at the same time.  Defaults to the number of processors.
+     */
+    private static final String EXPORT_THREADS_PROPERTY = "ade.dbExportThreads";
+
+    /**
+     * The buffer size of the compressed archive stream.
+     */
+    private static final int ARCHIVE_BUFFER_SIZE = 256 * 1024;
+
     /**
      * The logger for this class.
      */
@@ -315,39 +332,68 @@ public abstract class DBDataCollector {
     }
 
     /**
-     * Creates a gzipped archive of the exported DB tables.
+     * Exports DB tables to flat files in the FFDC DB directory, several tables at a time,
+     * each on its own connection.  A manifest describing the exported columns is written
+     * next to the files, so that ImportDBTables can load them back.
+     *
+     * @param tableNames the tables to export
+     * @param selectedColumns the comma separated columns to export, for the tables that
+     *        should not be exported with all their columns
+     * @return the number of exported rows
+     * @throws AdeException if there is a problem in exporting any of the tables
+     */
+    protected final long exportTables(List<String> tableNames, Map<String, String> selectedColumns) throws AdeException {
+        final DatabaseManager dbManager = DatabaseManager.getDatabaseManager(propertiesFileName);
+        final DBTableExporter exporter = new DBTableExporter(new DBTableExporter.ConnectionFactory() {
+            @Override
+            public Connection openConnection() throws AdeException {
+                return dbManager.openConnection();
+            }
+        }, Integer.getInteger(EXPORT_THREADS_PROPERTY, Runtime.getRuntime().availableProcessors()),
+                DBTableExporter.DEFAULT_FETCH_SIZE);
+
+        return exporter.export(tableNames, selectedColumns, new File(ffdcDirectoryName));
+    }
+
+    /**
+     * Creates a gzipped tar archive of the exported DB tables.
+     * <p>
+     * The archive is written in Java rather than by a native tar command, and holds the
+     * directory dbffdc with the exported files, the manifest first.  It can be extracted
+     * with tar -xzf, or loaded back into a DB with ImportDBTables.
      *  
      * @throws Exception if there is a problem in creating the archive
      */
     protected final long archiveExportedDBTables() throws Exception {
-        /*
-         * Execute tar with gzip compression command in native environment
-         * 
-         * Command is:
-         * 
-         * tar -czf $archiveddbdir/foo.tgz -C $backupdbdir db/ 
-         * creates gzipped tar archive of the directory bar located in $backupdbdir 
-         * called foo.tgz to be created in $archiveddbdir.
-         * 
-         * tar -xzf foo.tgz -C bar/ extract gzipped foo.tgz after
-         * changing directory to bar
-         */
-        final NativeCommand nativeCommand = new NativeCommand();
         final String compressedArchivedDBFileName = getArchivedCompressedDBName();
-        final String command = "tar -zcvf " + compressedArchivedDBFileName
-                + " -C "
-                + ffdcRootDirectoryName
-                + " "
-                + DB_FFDC_SUB_DIRECTORY_NAME;
-
-        logger.debug("Archiving exported DB tables using command \"" + command + "\"");
-
-        final int rc = nativeCommand.exec(command);
+        final File ffdcDir = new File(ffdcDirectoryName);
+        final File[] files = ffdcDir.listFiles();
+        if (files == null) {
+            throw new AdeExtInternalException("FFDC DB directory " + ffdcDirectoryName + " could not be listed.");
+        }
+        Arrays.sort(files, new Comparator<File>() {
+            @Override
+            public int compare(File a, File b) {
+                final boolean isManifestA = a.getName().equals(DBTableExporter.MANIFEST_FILE_NAME);
+                final boolean isManifestB = b.getName().equals(DBTableExporter.MANIFEST_FILE_NAME);
+                if (isManifestA != isManifestB) {
+                    return isManifestA ? -1 : 1;
+                }
+                return a.getName().compareTo(b.getName());
+            }
+        });
 
-        if (rc != 0) {
-            final String failureReason = nativeCommand.getCommandOutput();
+        logger.debug("Archiving exported DB tables to " + compressedArchivedDBFileName);
 
-            throw new Exception(failureReason);
+        try (TarArchiveWriter tar = new TarArchiveWriter(new GZIPOutputStream(
+                new FileOutputStream(compressedArchivedDBFileName), ARCHIVE_BUFFER_SIZE))) {
+            tar.putDirectory(DB_FFDC_SUB_DIRECTORY_NAME);
+            for (File f : files) {
+                if (f.isFile()) {
+                    logger.debug("Archiving " + f.getName() + ", " + f.length() + " bytes.");
+                    tar.putFile(DB_FFDC_SUB_DIRECTORY_NAME + "/" + f.getName(), f);
+                }
+            }
         }
 
         /*
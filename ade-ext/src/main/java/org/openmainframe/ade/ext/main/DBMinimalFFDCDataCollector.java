@@ -20,10 +20,9 @@
 
 package org.openmainframe.ade.ext.main;
 
-import java.io.File;
 import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collections;
 
 import org.openmainframe.ade.exceptions.AdeException;
 import org.openmainframe.ade.ext.service.AdeExtInternalException;
@@ -81,11 +80,6 @@ public class DBMinimalFFDCDataCollector extends DBDataCollector {
      */
     private static String[] MINIMAL_TABLES_TO_DUMP = { MODELS_TABLE_NAME, SOURCES_TABLE_NAME, PERIODS_TABLE_NAME, MESSAGE_IDS_TABLE_NAME };
 
-    /**
-     * Query to export a table to a flat file.
-     */
-    private static final String DB_QUERY_TO_EXPORT_DB_FILE = "CALL SYSCS_UTIL.SYSCS_EXPORT_TABLE (?,?,?,?,?,?)";
-
     /**
      * The logger for this class.
      */
@@ -174,45 +168,7 @@ public class DBMinimalFFDCDataCollector extends DBDataCollector {
      */
     protected final void captureMinimalDBData(Connection con) throws AdeException {
         logger.debug("Starting to export tables to DB.");
-        PreparedStatement ps = null;
 
-        String tableName = null;
-        try {
-            for (int i = 0; i < MINIMAL_TABLES_TO_DUMP.length; i++) {
-                tableName = MINIMAL_TABLES_TO_DUMP[i];
-                final String ffdcFileName = formFFDCDBExportedTableFileName(tableName);
-                final File f = new File(ffdcFileName);
-
-                /*
-                 * If the exported file is there, delete it, otherwise the DB
-                 * query to export will fail.
-                 */
-                if (f.exists()) {
-                    f.delete();
-                }
-
-                logger.debug("Exporting table  " + tableName);
-                ps = con.prepareStatement(DB_QUERY_TO_EXPORT_DB_FILE);
-                ps.setString(1, null);
-                ps.setString(2, tableName);
-                ps.setString(3, ffdcFileName);
-                ps.setString(4, ",");
-                ps.setString(5, null);
-                ps.setString(6, null);
-                ps.execute();
-            }
-        } catch (SQLException e) {
-            throw new AdeExtInternalException("Got an SQL exception", e);
-        } catch (Exception e) {
-            throw new AdeExtInternalException("Exception in exporting DB table, tableName=" + tableName, e);
-        } finally {
-            if (ps != null) {
-                try {
-                    ps.close();
-                } catch (SQLException e) {
-                    logger.debug("Exception in closing statement.", e);
-                }
-            }
-        }
+        exportTables(Arrays.asList(MINIMAL_TABLES_TO_DUMP), Collections.<String, String> emptyMap());
     }
 }
\ No newline at end of file
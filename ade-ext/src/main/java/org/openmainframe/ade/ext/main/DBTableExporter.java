@@ -0,0 +1,387 @@
+/*
+ 
+    Copyright IBM Corp. 2016
+    This file is part of Anomaly Detection Engine for Linux Logs (ADE).
+
+    ADE is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    ADE is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with ADE.  If not, see <http://www.gnu.org/licenses/>.
+ 
+*/
+package org.openmainframe.ade.ext.main;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openmainframe.ade.exceptions.AdeException;
+import org.openmainframe.ade.ext.service.AdeExtInternalException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Dumps DB tables to flat files, several tables at a time.
+ * <p>
+ * Each table is read by its own thread, on its own connection, with a large fetch size,
+ * and is streamed to the file TABLE.dat of the target directory. The files use the
+ * format of Derby's SYSCS_UTIL.SYSCS_EXPORT_TABLE: comma separated columns, character
+ * columns delimited by double quotes with embedded double quotes doubled, and NULL
+ * columns left empty. A manifest describing the columns of every exported table is
+ * written next to them, so that DBTableImporter can load the files back.
+ */
+final class DBTableExporter {
+    /**
+     * Opens the connections used to read the tables.
+     */
+    interface ConnectionFactory {
+        /**
+         * @return a new connection, closed by the caller.
+         * @throws AdeException if a connection cannot be opened.
+         */
+        Connection openConnection() throws AdeException;
+    }
+
+    /**
+     * The name of the manifest file written next to the exported tables.
+     */
+    static final String MANIFEST_FILE_NAME = "manifest.properties";
+
+    /**
+     * The extension of the exported table files.
+     */
+    static final String TABLE_FILE_EXTENSION = ".dat";
+
+    /**
+     * Manifest keys. The tables key lists the exported tables, the other keys are
+     * prefixed by the table name and a dot.
+     */
+    static final String MANIFEST_TABLES = "tables";
+    static final String MANIFEST_COLUMNS = "columns";
+    static final String MANIFEST_TYPES = "types";
+    static final String MANIFEST_TYPE_NAMES = "typeNames";
+    static final String MANIFEST_ROWS = "rows";
+
+    /**
+     * The separator of lists in the manifest. Column types contain commas, as in DECIMAL(5,2).
+     */
+    static final String MANIFEST_LIST_SEPARATOR = ";";
+
+    /**
+     * The number of rows fetched from the DB in a single round trip.
+     */
+    static final int DEFAULT_FETCH_SIZE = 10000;
+
+    /**
+     * The number of rows between progress reports of a single table.
+     */
+    private static final long PROGRESS_REPORT_ROWS = 1000000;
+
+    private static final int WRITE_BUFFER_SIZE = 256 * 1024;
+
+    /**
+     * The logger for this class.
+     */
+    private static final Logger logger = LoggerFactory.getLogger(DBTableExporter.class);
+
+    private final ConnectionFactory m_connectionFactory;
+    private final int m_threads;
+    private final int m_fetchSize;
+
+    private final AtomicInteger m_tablesDone = new AtomicInteger();
+    private final AtomicLong m_rowsDone = new AtomicLong();
+
+    /**
+     * @param connectionFactory opens the connection of each exported table.
+     * @param threads the maximal number of tables exported at the same time.
+     * @param fetchSize the number of rows fetched from the DB in a single round trip.
+     */
+    DBTableExporter(ConnectionFactory connectionFactory, int threads, int fetchSize) {
+        m_connectionFactory = connectionFactory;
+        m_threads = Math.max(1, threads);
+        m_fetchSize = fetchSize;
+    }
+
+    /**
+     * Exports tables, and writes the manifest describing them.
+     *
+     * @param tableNames the tables to export.
+     * @param selectedColumns the columns to export per table, as a comma separated list.
+     *        Tables not in the map are exported with all their columns.
+     * @param directory the directory to write the files to.
+     * @return the total number of rows exported.
+     * @throws AdeException if exporting any of the tables fails.
+     */
+    long export(List<String> tableNames, Map<String, String> selectedColumns, File directory) throws AdeException {
+        m_tablesDone.set(0);
+        m_rowsDone.set(0);
+        final long startTime = System.currentTimeMillis();
+        final int threads = Math.min(m_threads, Math.max(1, tableNames.size()));
+        logger.info("Exporting " + tableNames.size() + " tables using " + threads + " threads.");
+
+        final ExecutorService executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            private final AtomicInteger m_count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable r) {
+                final Thread thread = new Thread(r, "ade-db-export-" + m_count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+
+        final List<Future<Properties>> futures = new ArrayList<Future<Properties>>(tableNames.size());
+        final Properties manifest = new Properties();
+        try {
+            for (String tableName : tableNames) {
+                futures.add(executor.submit(new ExportTableTask(tableName, selectedColumns.get(tableName),
+                        new File(directory, tableName + TABLE_FILE_EXTENSION), tableNames.size())));
+            }
+            for (Future<Properties> future : futures) {
+                manifest.putAll(getResult(future));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        manifest.setProperty(MANIFEST_TABLES, join(tableNames));
+        writeManifest(manifest, new File(directory, MANIFEST_FILE_NAME));
+
+        logger.info("Exported " + tableNames.size() + " tables, " + m_rowsDone.get() + " rows in "
+                + (System.currentTimeMillis() - startTime) + " ms.");
+        return m_rowsDone.get();
+    }
+
+    private static Properties getResult(Future<Properties> future) throws AdeException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AdeExtInternalException("Interrupted exporting DB tables", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof AdeException) {
+                throw (AdeException) e.getCause();
+            }
+            throw new AdeExtInternalException("Exporting DB table failed", e.getCause());
+        }
+    }
+
+    private static void writeManifest(Properties manifest, File file) throws AdeException {
+        try (OutputStream out = new FileOutputStream(file)) {
+            manifest.store(out, "ADE DB export");
+        } catch (IOException e) {
+            throw new AdeExtInternalException("Failed writing " + file.getPath(), e);
+        }
+    }
+
+    /**
+     * Exports a single table, and returns its manifest entries.
+     */
+    private final class ExportTableTask implements Callable<Properties> {
+        private final String m_tableName;
+        private final String m_columns;
+        private final File m_file;
+        private final int m_tableCount;
+
+        private ExportTableTask(String tableName, String columns, File file, int tableCount) {
+            m_tableName = tableName;
+            m_columns = columns == null ? "*" : columns;
+            m_file = file;
+            m_tableCount = tableCount;
+        }
+
+        @Override
+        public Properties call() throws AdeException {
+            final long startTime = System.currentTimeMillis();
+            final Properties entries = new Properties();
+            long rows = 0;
+            try (Connection con = m_connectionFactory.openConnection();
+                    Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(m_file),
+                            StandardCharsets.UTF_8), WRITE_BUFFER_SIZE)) {
+                /* Some drivers only honor the fetch size within a transaction. */
+                con.setAutoCommit(false);
+                con.setReadOnly(true);
+                try (Statement statement = con.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                    statement.setFetchSize(m_fetchSize);
+                    try (ResultSet rs = statement.executeQuery("SELECT " + m_columns + " FROM " + m_tableName)) {
+                        final ResultSetMetaData metaData = rs.getMetaData();
+                        final int columnCount = metaData.getColumnCount();
+                        final boolean[] isNumeric = describeColumns(metaData, entries);
+                        final StringBuilder line = new StringBuilder();
+                        while (rs.next()) {
+                            line.setLength(0);
+                            for (int i = 1; i <= columnCount; ++i) {
+                                if (i > 1) {
+                                    line.append(',');
+                                }
+                                final String value = rs.getString(i);
+                                if (value != null) {
+                                    if (isNumeric[i - 1]) {
+                                        line.append(value);
+                                    } else {
+                                        appendQuoted(line, value);
+                                    }
+                                }
+                            }
+                            line.append('\n');
+                            out.append(line);
+                            if (++rows % PROGRESS_REPORT_ROWS == 0) {
+                                logger.info("Exported " + rows + " rows of table " + m_tableName);
+                            }
+                        }
+                    }
+                } finally {
+                    con.rollback();
+                }
+            } catch (SQLException e) {
+                throw new AdeExtInternalException("Failed exporting table " + m_tableName, e);
+            } catch (IOException e) {
+                throw new AdeExtInternalException("Failed writing " + m_file.getPath(), e);
+            }
+            entries.setProperty(m_tableName + "." + MANIFEST_ROWS, Long.toString(rows));
+
+            final long totalRows = m_rowsDone.addAndGet(rows);
+            logger.info("Exported table " + m_tableName + ", " + rows + " rows in "
+                    + (System.currentTimeMillis() - startTime) + " ms (" + m_tablesDone.incrementAndGet()
+                    + " of " + m_tableCount + " tables, " + totalRows + " rows).");
+            return entries;
+        }
+
+        /**
+         * Adds the manifest entries describing the columns of the table.
+         * @return which columns are numeric, and are therefore written without delimiters.
+         */
+        private boolean[] describeColumns(ResultSetMetaData metaData, Properties entries) throws SQLException {
+            final int columnCount = metaData.getColumnCount();
+            final boolean[] isNumeric = new boolean[columnCount];
+            final List<String> names = new ArrayList<String>(columnCount);
+            final List<String> types = new ArrayList<String>(columnCount);
+            final List<String> typeNames = new ArrayList<String>(columnCount);
+            for (int i = 1; i <= columnCount; ++i) {
+                final int type = metaData.getColumnType(i);
+                isNumeric[i - 1] = isNumeric(type);
+                names.add(metaData.getColumnName(i));
+                types.add(Integer.toString(type));
+                typeNames.add(columnDefinition(metaData, i));
+            }
+            entries.setProperty(m_tableName + "." + MANIFEST_COLUMNS, join(names));
+            entries.setProperty(m_tableName + "." + MANIFEST_TYPES, join(types));
+            entries.setProperty(m_tableName + "." + MANIFEST_TYPE_NAMES, join(typeNames));
+            return isNumeric;
+        }
+    }
+
+    /**
+     * @return the SQL type of a column, with its length or precision where the type needs one.
+     */
+    private static String columnDefinition(ResultSetMetaData metaData, int column) throws SQLException {
+        final String typeName = metaData.getColumnTypeName(column);
+        switch (metaData.getColumnType(column)) {
+            case Types.CHAR:
+            case Types.VARCHAR:
+            case Types.NCHAR:
+            case Types.NVARCHAR:
+                return typeName + "(" + metaData.getPrecision(column) + ")";
+            case Types.DECIMAL:
+            case Types.NUMERIC:
+                return typeName + "(" + metaData.getPrecision(column) + "," + metaData.getScale(column) + ")";
+            default:
+                return typeName;
+        }
+    }
+
+    static boolean isNumeric(int type) {
+        switch (type) {
+            case Types.TINYINT:
+            case Types.SMALLINT:
+            case Types.INTEGER:
+            case Types.BIGINT:
+            case Types.REAL:
+            case Types.FLOAT:
+            case Types.DOUBLE:
+            case Types.DECIMAL:
+            case Types.NUMERIC:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static void appendQuoted(StringBuilder line, String value) {
+        line.append('"');
+        for (int i = 0; i < value.length(); ++i) {
+            final char c = value.charAt(i);
+            if (c == '"') {
+                line.append('"');
+            }
+            line.append(c);
+        }
+        line.append('"');
+    }
+
+    private static String join(List<String> values) {
+        final StringBuilder joined = new StringBuilder();
+        for (String value : values) {
+            if (joined.length() > 0) {
+                joined.append(MANIFEST_LIST_SEPARATOR);
+            }
+            joined.append(value);
+        }
+        return joined.toString();
+    }
+
+    /**
+     * @return the tables in a manifest, in the order they were exported.
+     */
+    static List<String> getManifestTables(Properties manifest) {
+        final String tables = manifest.getProperty(MANIFEST_TABLES);
+        if (tables == null || tables.isEmpty()) {
+            return Collections.emptyList();
+        }
+        final List<String> tableNames = new ArrayList<String>();
+        for (String tableName : tables.split(MANIFEST_LIST_SEPARATOR)) {
+            tableNames.add(tableName);
+        }
+        return tableNames;
+    }
+
+    /**
+     * @return a list valued entry of a table in a manifest, or null if missing.
+     */
+    static String[] getManifestList(Properties manifest, String tableName, String key) {
+        final String value = manifest.getProperty(tableName + "." + key);
+        return value == null ? null : value.split(MANIFEST_LIST_SEPARATOR, -1);
+    }
+}
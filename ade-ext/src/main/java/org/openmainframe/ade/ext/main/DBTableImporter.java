@@ -0,0 +1,363 @@
+/*
+ 
+    Copyright IBM Corp. 2016
+    This file is part of Anomaly Detection Engine for Linux Logs (ADE).
+
+    ADE is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    ADE is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with ADE.  If not, see <http://www.gnu.org/licenses/>.
+ 
+*/
+package org.openmainframe.ade.ext.main;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import org.openmainframe.ade.exceptions.AdeException;
+import org.openmainframe.ade.ext.service.AdeExtInternalException;
+import org.openmainframe.ade.ext.service.AdeExtUsageException;
+import org.openmainframe.ade.ext.utils.TarArchiveReader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Loads DB tables exported by DBTableExporter back into a DB, reading them straight
+ * from the archive.
+ * <p>
+ * Tables missing from the target DB are created from the column types recorded in the
+ * manifest, without keys or identity columns, so that the rows keep their original ids.
+ * Existing tables are appended to, so they must accept explicit values for all the
+ * exported columns. The rows are inserted in batches, and each table is committed once
+ * loaded.
+ */
+final class DBTableImporter {
+    /**
+     * The default number of rows inserted in a single batch.
+     */
+    static final int DEFAULT_BATCH_SIZE = 1000;
+
+    /**
+     * The number of rows between progress reports of a single table.
+     */
+    private static final long PROGRESS_REPORT_ROWS = 1000000;
+
+    private static final int READ_BUFFER_SIZE = 256 * 1024;
+
+    /**
+     * The logger for this class.
+     */
+    private static final Logger logger = LoggerFactory.getLogger(DBTableImporter.class);
+
+    private final Connection m_connection;
+    private final int m_batchSize;
+
+    /**
+     * @param connection the connection to the target DB.
+     * @param batchSize the number of rows inserted in a single batch.
+     */
+    DBTableImporter(Connection connection, int batchSize) {
+        m_connection = connection;
+        m_batchSize = Math.max(1, batchSize);
+    }
+
+    /**
+     * Loads all the tables of a tar archive written by DBDataCollector.
+     *
+     * @param archive the uncompressed tar archive stream.
+     * @return the total number of rows loaded.
+     * @throws AdeException if the archive is invalid or loading any of the tables fails.
+     */
+    long importArchive(InputStream archive) throws AdeException {
+        final long startTime = System.currentTimeMillis();
+        final TarArchiveReader reader = new TarArchiveReader(archive);
+        Properties manifest = null;
+        int tablesDone = 0;
+        long totalRows = 0;
+        try {
+            String name;
+            while ((name = reader.nextEntry()) != null) {
+                if (reader.isDirectory()) {
+                    continue;
+                }
+                final String fileName = name.substring(name.lastIndexOf('/') + 1);
+                if (fileName.equals(DBTableExporter.MANIFEST_FILE_NAME)) {
+                    manifest = new Properties();
+                    manifest.load(reader.getInputStream());
+                } else if (fileName.endsWith(DBTableExporter.TABLE_FILE_EXTENSION)) {
+                    if (manifest == null) {
+                        throw new AdeExtUsageException("Archive has no " + DBTableExporter.MANIFEST_FILE_NAME
+                                + " ahead of the table files, it was not written by this version of ADE.");
+                    }
+                    final String tableName = fileName.substring(0,
+                            fileName.length() - DBTableExporter.TABLE_FILE_EXTENSION.length());
+                    final long rows = importTable(tableName, manifest, reader.getInputStream());
+                    totalRows += rows;
+                    logger.info("Imported table " + tableName + ", " + rows + " rows (" + ++tablesDone
+                            + " of " + DBTableExporter.getManifestTables(manifest).size() + " tables, "
+                            + totalRows + " rows).");
+                }
+            }
+        } catch (IOException e) {
+            throw new AdeExtInternalException("Failed reading the DB archive", e);
+        }
+        logger.info("Imported " + tablesDone + " tables, " + totalRows + " rows in "
+                + (System.currentTimeMillis() - startTime) + " ms.");
+        return totalRows;
+    }
+
+    /**
+     * Loads a single table file.
+     * @return the number of rows loaded.
+     */
+    private long importTable(String tableName, Properties manifest, InputStream in) throws AdeException {
+        final String[] columns = DBTableExporter.getManifestList(manifest, tableName, DBTableExporter.MANIFEST_COLUMNS);
+        final String[] typeStrings = DBTableExporter.getManifestList(manifest, tableName, DBTableExporter.MANIFEST_TYPES);
+        final String[] typeNames = DBTableExporter.getManifestList(manifest, tableName,
+                DBTableExporter.MANIFEST_TYPE_NAMES);
+        if (columns == null || typeStrings == null || typeNames == null) {
+            logger.warn("Table " + tableName + " is not described by the manifest, skipped.");
+            return 0;
+        }
+        final int[] types = new int[typeStrings.length];
+        for (int i = 0; i < types.length; ++i) {
+            types[i] = Integer.parseInt(typeStrings[i]);
+        }
+
+        final boolean autoCommit = getAutoCommit();
+        long rows = 0;
+        try {
+            if (!tableExists(tableName)) {
+                createTable(tableName, columns, typeNames);
+            }
+            m_connection.setAutoCommit(false);
+
+            final StringBuilder insert = new StringBuilder("INSERT INTO ").append(tableName).append(" (");
+            final StringBuilder values = new StringBuilder(") VALUES (");
+            for (int i = 0; i < columns.length; ++i) {
+                if (i > 0) {
+                    insert.append(", ");
+                    values.append(", ");
+                }
+                insert.append(columns[i]);
+                values.append('?');
+            }
+            insert.append(values).append(')');
+
+            final RowReader rowReader = new RowReader(new BufferedReader(
+                    new InputStreamReader(in, StandardCharsets.UTF_8), READ_BUFFER_SIZE), columns.length);
+            try (PreparedStatement ps = m_connection.prepareStatement(insert.toString())) {
+                String[] row;
+                while ((row = rowReader.next()) != null) {
+                    for (int i = 0; i < row.length; ++i) {
+                        bind(ps, i + 1, types[i], row[i]);
+                    }
+                    ps.addBatch();
+                    if (++rows % m_batchSize == 0) {
+                        ps.executeBatch();
+                    }
+                    if (rows % PROGRESS_REPORT_ROWS == 0) {
+                        logger.info("Imported " + rows + " rows of table " + tableName);
+                    }
+                }
+                if (rows % m_batchSize != 0) {
+                    ps.executeBatch();
+                }
+            }
+            m_connection.commit();
+        } catch (SQLException | IOException | IllegalArgumentException e) {
+            rollback();
+            throw new AdeExtInternalException("Failed importing table " + tableName + " at row " + (rows + 1), e);
+        } finally {
+            restoreAutoCommit(autoCommit);
+        }
+        return rows;
+    }
+
+    private boolean tableExists(String tableName) {
+        try (Statement statement = m_connection.createStatement()) {
+            statement.executeQuery("SELECT 1 FROM " + tableName + " WHERE 1 = 0").close();
+            return true;
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private void createTable(String tableName, String[] columns, String[] typeNames) throws SQLException {
+        final StringBuilder create = new StringBuilder("CREATE TABLE ").append(tableName).append(" (");
+        for (int i = 0; i < columns.length; ++i) {
+            if (i > 0) {
+                create.append(", ");
+            }
+            create.append(columns[i]).append(' ').append(typeNames[i]);
+        }
+        create.append(')');
+        logger.debug("Creating table: " + create);
+        try (Statement statement = m_connection.createStatement()) {
+            statement.executeUpdate(create.toString());
+        }
+    }
+
+    /**
+     * Binds a column value, as written by DBTableExporter.
+     */
+    private static void bind(PreparedStatement ps, int index, int type, String value) throws SQLException {
+        if (value == null) {
+            ps.setNull(index, type);
+            return;
+        }
+        switch (type) {
+            case Types.TINYINT:
+            case Types.SMALLINT:
+            case Types.INTEGER:
+                ps.setInt(index, Integer.parseInt(value));
+                break;
+            case Types.BIGINT:
+                ps.setLong(index, Long.parseLong(value));
+                break;
+            case Types.REAL:
+            case Types.FLOAT:
+            case Types.DOUBLE:
+                ps.setDouble(index, Double.parseDouble(value));
+                break;
+            case Types.DECIMAL:
+            case Types.NUMERIC:
+                ps.setBigDecimal(index, new BigDecimal(value));
+                break;
+            case Types.TIMESTAMP:
+                ps.setTimestamp(index, Timestamp.valueOf(value));
+                break;
+            case Types.DATE:
+                ps.setDate(index, Date.valueOf(value));
+                break;
+            case Types.TIME:
+                ps.setTime(index, Time.valueOf(value));
+                break;
+            case Types.BOOLEAN:
+            case Types.BIT:
+                ps.setBoolean(index, Boolean.parseBoolean(value));
+                break;
+            default:
+                ps.setString(index, value);
+                break;
+        }
+    }
+
+    private boolean getAutoCommit() throws AdeException {
+        try {
+            return m_connection.getAutoCommit();
+        } catch (SQLException e) {
+            throw new AdeExtInternalException("Failed reading the connection auto commit mode", e);
+        }
+    }
+
+    private void restoreAutoCommit(boolean autoCommit) {
+        try {
+            m_connection.setAutoCommit(autoCommit);
+        } catch (SQLException e) {
+            logger.error("Failed restoring the connection auto commit mode.", e);
+        }
+    }
+
+    private void rollback() {
+        try {
+            m_connection.rollback();
+        } catch (SQLException e) {
+            logger.error("Failed rolling back the import.", e);
+        }
+    }
+
+    /**
+     * Parses the rows of an exported table file: comma separated columns, with character
+     * columns delimited by double quotes, which may contain commas, new lines and doubled
+     * double quotes. An empty column that is not delimited is NULL.
+     */
+    static final class RowReader {
+        private final Reader m_in;
+        private final int m_columnCount;
+        private final StringBuilder m_value = new StringBuilder();
+
+        RowReader(Reader in, int columnCount) {
+            m_in = in;
+            m_columnCount = columnCount;
+        }
+
+        /**
+         * @return the columns of the next row, or null at the end of the file.
+         * @throws IOException if reading fails or the row does not have the expected number of columns.
+         */
+        String[] next() throws IOException {
+            int c = m_in.read();
+            if (c == -1) {
+                return null;
+            }
+            final List<String> row = new ArrayList<String>(m_columnCount);
+            while (true) {
+                m_value.setLength(0);
+                boolean quoted = false;
+                if (c == '"') {
+                    quoted = true;
+                    while (true) {
+                        c = m_in.read();
+                        if (c == -1) {
+                            throw new IOException("Unterminated quoted column");
+                        }
+                        if (c == '"') {
+                            c = m_in.read();
+                            if (c != '"') {
+                                break;
+                            }
+                        }
+                        m_value.append((char) c);
+                    }
+                } else {
+                    while (c != ',' && c != '\n' && c != '\r' && c != -1) {
+                        m_value.append((char) c);
+                        c = m_in.read();
+                    }
+                }
+                row.add(quoted || m_value.length() > 0 ? m_value.toString() : null);
+
+                if (c == ',') {
+                    c = m_in.read();
+                    continue;
+                }
+                if (c == '\r') {
+                    c = m_in.read();
+                }
+                if (c != '\n' && c != -1) {
+                    throw new IOException("Unexpected character after a quoted column: " + (char) c);
+                }
+                break;
+            }
+            if (row.size() != m_columnCount) {
+                throw new IOException("Expected " + m_columnCount + " columns, found " + row.size());
+            }
+            return row.toArray(new String[row.size()]);
+        }
+    }
+}
@@ -262,6 +262,19 @@ public class DatabaseManager {
      * @throws AdeException if there is a problem in constructing a DB connection instance
      */
     private void initConnection() throws AdeException {
+        dbConnection = openConnection();
+    }
+
+    /**
+     * Opens a new connection to the DB, independent of the singleton connection.
+     * <p>
+     * This is used by utilities that work on several tables at the same time, each
+     * on its own connection.  The caller is responsible for closing the connection.
+     *
+     * @return a new DB connection
+     * @throws AdeException if there is a problem in constructing a DB connection instance
+     */
+    public Connection openConnection() throws AdeException {
         if (!dbPropertiesInitialized) {
             throw new AdeInternalException("DB configuration is undefined.");
         }
@@ -278,9 +291,9 @@ public class DatabaseManager {
 
         try {
             if (dbUserName == null || dbUserPassword == null) {
-                dbConnection = DriverManager.getConnection(dbURL);
+                return DriverManager.getConnection(dbURL);
             } else {
-                dbConnection = DriverManager.getConnection(dbURL, dbUserName, dbUserPassword);
+                return DriverManager.getConnection(dbURL, dbUserName, dbUserPassword);
             }
         } catch (SQLException e) {
             throw new AdeInternalException("Failed obtaining connection.", e);
@@ -20,18 +20,14 @@
 
 package org.openmainframe.ade.ext.main;
 
-import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileOutputStream;
-import java.io.IOException;
-import java.io.OutputStreamWriter;
-import java.io.Writer;
-import java.nio.charset.StandardCharsets;
 import java.sql.Connection;
-import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.sql.ResultSet;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 import org.openmainframe.ade.exceptions.AdeException;
 import org.openmainframe.ade.ext.service.AdeExtInternalException;
@@ -56,6 +52,9 @@ import org.slf4j.LoggerFactory;
  * 
  * Removal of these columns significantly reduces the disk space required to
  * export the contents of MESSAGE_SUMMARIES table.
+ * 
+ * The tables are exported concurrently, and archived into a gzipped tarball
+ * that can be loaded back into a DB with ImportDBTables.
  */
 public class ExportAllDBTables extends DBDataCollector {
 	/**
@@ -78,11 +77,6 @@ public class ExportAllDBTables extends DBDataCollector {
 	 */
 	private static final String DB_QUERY_FOR_FILENAMES = "SELECT TABLENAME FROM sys.sysschemas s, sys.systables t  WHERE s.schemaid = t.schemaid AND schemaname = 'DBUSER' ";
 
-	/**
-	 * The query to export a DB table to a flat file.
-	 */
-	private static final String DB_QUERY_TO_EXPORT_DB_FILE = "CALL SYSCS_UTIL.SYSCS_EXPORT_TABLE (?,?,?,?,?,?)";
-
 	/**
 	 * The logger for this class.
 	 */
@@ -173,7 +167,8 @@ public class ExportAllDBTables extends DBDataCollector {
 	}
 
 	/**
-	 * Exports all tables into flat files.
+	 * Exports all tables into flat files. The tables are exported several at a
+	 * time, each on its own connection, by DBTableExporter.
 	 * 
 	 * @param con
 	 *            connection to DB
@@ -188,57 +183,20 @@ public class ExportAllDBTables extends DBDataCollector {
 		 * Read off all table names
 		 */
 		final String fileNamesQueryStr = DB_QUERY_FOR_FILENAMES;
+		final List<String> tableNames = new ArrayList<String>();
 
 		Statement statement = null;
 		ResultSet rs = null;
-		PreparedStatement ps = null;
 
 		try {
 			statement = getStatement(con);
 			rs = executeQuery(statement, fileNamesQueryStr);
 
 			while (rs != null && rs.next()) {
-				final String tableName = rs.getString(1);
-				final String ffdcFileName = formFFDCDBExportedTableFileName(tableName);
-				final File f = new File(ffdcFileName);
-
-				/*
-				 * If the exported file is there, delete it, otherwise the DB
-				 * query to export will fail.
-				 */
-				if (f.exists()) {
-					f.delete();
-				}
-
-				/*
-				 * All tables other than message summaries will be exported as
-				 * is.
-				 */
-				if (!tableName.equals(MESSAGE_SUMMARIES_TABLE)) {
-					logger.debug("Exporting table  " + tableName + " to file "
-							+ ffdcFileName);
-					ps = con.prepareStatement(DB_QUERY_TO_EXPORT_DB_FILE);
-					ps.setString(1, null);
-					ps.setString(2, tableName);
-					ps.setString(3, ffdcFileName);
-					ps.setString(4, ",");
-					ps.setString(5, null);
-					ps.setString(6, null);
-					ps.execute();
-				} else {
-					/*
-					 * Special treatment for the monster.
-					 * 
-					 * We will export only a subset of MESSAGE_SUMMARIES table,
-					 * that is, we will throw away three columns.
-					 */
-					readMessageSummariesTable(con);
-				}
+				tableNames.add(rs.getString(1));
 			}
 		} catch (SQLException e) {
 			throw new AdeExtInternalException("Got an SQL exception=" + e);
-		} catch (AdeException e) {
-			throw e;
 		} finally {
 			if (rs != null) {
 				try {
@@ -255,77 +213,16 @@ public class ExportAllDBTables extends DBDataCollector {
 					logger.error("Exception in closing statement.", e);
 				}
 			}
-
-			if (ps != null) {
-				try {
-					ps.close();
-				} catch (SQLException e) {
-					logger.error("Exception in closing statement.", e);
-				}
-			}
 		}
 
-	}
-
-	/**
-	 * Exports the contents of the MESSAGE_SUMMARIES table by excluding
-	 * TEXT_SUMMARY, TEXT_SAMPLE, and CRITICAL_WORDS_SCORE. Discarding these
-	 * columns helps cut down the size of the content significantly. Also, these
-	 * columns are not needed for problem analysis.
-	 * 
-	 * @param con
-	 *            connection to DB
-	 * @throws AdeException
-	 *             if there is an issue in exporting MESSAGE_SUMMARIES table
-	 */
-	private void readMessageSummariesTable(Connection con) throws AdeException {
-		FileOutputStream fos = null;
-		Writer w = null;
-		PreparedStatement s = null;
-		try {
-			/*
-			 * PERIOD_SUMMARY_INTERNAL_ID INTERVAL_SERIAL_NUM
-			 * MESSAGE_INTERNAL_ID NUM_MESSAGES TEXT_SUMMARY TEXT_SAMPLE
-			 * CRITICAL_WORDS_SCORE
-			 */
-			final String outputFileName = formFFDCDBExportedTableFileName(MESSAGE_SUMMARIES_TABLE);
-			fos = new FileOutputStream(outputFileName);
-			w = new BufferedWriter(new OutputStreamWriter(fos,
-					StandardCharsets.UTF_8));
-		    s = con.prepareStatement("SELECT "
-					+ SELECTED_COLUMNS + " FROM " + MESSAGE_SUMMARIES_TABLE);
-			final ResultSet resultSet = s.executeQuery();
-			while (resultSet.next()) {
-				final int periodSummaryInternalID = resultSet.getInt(1);
-				final int intervalSerialNum = resultSet.getInt(2);
-				final int messageIntervalId = resultSet.getInt(3);
-				final int numMessages = resultSet.getInt(4);
-				w.write(periodSummaryInternalID + "," + intervalSerialNum + ","
-						+ messageIntervalId + "," + numMessages + "\n");
-
-			}
-
-		} catch (SQLException e) {
-			throw new AdeExtInternalException("SQLException caught: " + e, e);
-		} catch (IOException e) {
-			throw new AdeExtInternalException("IOException caught: " + e, e);
-		} finally {
-			try {
-				if (s != null){
-					s.close();
-				}
-				if (w != null) {
-					w.flush();
-					w.close();
-				}
-				if (fos != null) {
-					fos.close();
-				}
-			} catch (SQLException e) {
-				logger.error("SQLException caught during close: " + e, e);	
-			} catch (IOException e) {
-				logger.error("IOException caught during close: " + e, e);
-			}
-		}
+		/*
+		 * All tables other than message summaries will be exported as is.
+		 * 
+		 * Special treatment for the monster: we will export only a subset of
+		 * MESSAGE_SUMMARIES table, that is, we will throw away the text
+		 * columns.
+		 */
+		exportTables(tableNames, Collections.singletonMap(
+				MESSAGE_SUMMARIES_TABLE, SELECTED_COLUMNS));
 	}
 }
\ No newline at end of file
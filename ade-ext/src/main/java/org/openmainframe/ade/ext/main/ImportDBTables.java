@@ -0,0 +1,127 @@
+/*
+ 
+    Copyright IBM Corp. 2016
+    This file is part of Anomaly Detection Engine for Linux Logs (ADE).
+
+    ADE is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    ADE is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with ADE.  If not, see <http://www.gnu.org/licenses/>.
+ 
+*/
+package org.openmainframe.ade.ext.main;
+
+import java.io.BufferedInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.Connection;
+import java.util.zip.GZIPInputStream;
+
+import org.openmainframe.ade.exceptions.AdeException;
+import org.openmainframe.ade.ext.service.AdeExtInternalException;
+import org.openmainframe.ade.ext.service.AdeExtUsageException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * This utility class loads the DB tables exported by ExportAllDBTables or
+ * DBMinimalFFDCDataCollector back into a DB, so that a diagnostics snapshot
+ * can be analyzed with SQL.
+ * <p>
+ * The tables are read straight from the compressed archive. Tables that do not
+ * exist in the target DB are created from the column types recorded at export
+ * time, so the snapshot is best loaded into an empty DB.
+ */
+public class ImportDBTables extends DBDataCollector {
+    /**
+     * The number of rows loaded.
+     */
+    private long rowCount;
+
+    /**
+     * The buffer size of the compressed archive stream.
+     */
+    private static final int ARCHIVE_BUFFER_SIZE = 256 * 1024;
+
+    /**
+     * The logger for this class.
+     */
+    private static final Logger logger = LoggerFactory.getLogger(ImportDBTables.class);
+
+    /**
+     * This program will be executed as follows:
+     *
+     * java -cp $ADE_CLASSPATH org.openmainframe.ade.ext.main.ImportDBTables $FFDC_DIR
+     *
+     * The only input to this program is the location of the FFDC directory
+     * holding the dbffdc.tgz archive. The target DB is the one configured in the
+     * properties file.
+     *
+     * @param args arguments to the program
+     */
+    public static void main(String[] args) {
+        final ImportDBTables importTables = new ImportDBTables();
+        try {
+            final boolean hasRunSuccessfully = importTables.run(args);
+            if (hasRunSuccessfully) {
+                logger.info("DB tables imported successfully, " + importTables.getRowCount() + " rows.");
+            } else {
+                logger.info("DB tables could not be imported.");
+            }
+        } catch (AdeException e) {
+            logger.error("Importing DB tables from flat files failed.", e);
+        }
+    }
+
+    /**
+     * Instantiates a default instance.
+     */
+    public ImportDBTables() {
+        super();
+    }
+
+    /**
+     * Returns the number of rows loaded.
+     *
+     * @return the number of rows
+     */
+    public final long getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Loads the tables of the FFDC DB archive.
+     *
+     * @param con connection to the target DB
+     * @throws AdeException if there is a problem in loading the tables
+     */
+    protected final void collectFFDCDBData(Connection con) throws AdeException {
+        final String archiveName = getArchivedCompressedDBName();
+        logger.info("Importing DB tables from " + archiveName);
+
+        try (InputStream in = new GZIPInputStream(new BufferedInputStream(new FileInputStream(archiveName),
+                ARCHIVE_BUFFER_SIZE), ARCHIVE_BUFFER_SIZE)) {
+            rowCount = new DBTableImporter(con, DBTableImporter.DEFAULT_BATCH_SIZE).importArchive(in);
+        } catch (IOException e) {
+            throw new AdeExtUsageException("Failed reading " + archiveName, e);
+        }
+
+        /*
+         * The tables are read from the archive, the workspace directory is not used.
+         */
+        final String workspaceDirectory = getFFDCDBWorkspaceDirectory(new String[0]);
+        if (workspaceDirectory == null) {
+            throw new AdeExtInternalException("FFDC DB directory is undefined.");
+        }
+        deleteDBFFDCFiles(workspaceDirectory);
+    }
+}
@@ -23,6 +23,7 @@ import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.Option;
 import org.apache.commons.cli.OptionBuilder;
 import org.apache.commons.cli.Options;
+import org.openmainframe.ade.exceptions.AdeUsageException;
 import org.openmainframe.ade.ext.os.AdeExtProperties;
 
 /**
@@ -101,5 +102,11 @@ public abstract class AdeExtOptions {
 
     public abstract void addPlatformSpecificOptions(Options options);
 
-    public abstract boolean readOptions(CommandLine line, AdeExtProperties adeExtProperties);
+    /**
+     * Reads the platform specific options into the given properties.
+     * @return false if an option is not handled.
+     * @throws AdeUsageException if an option has an invalid value.
+     */
+    public abstract boolean readOptions(CommandLine line, AdeExtProperties adeExtProperties)
+            throws AdeUsageException;
 }
@@ -25,6 +25,6 @@ package org.openmainframe.ade.ext.main.helper;
 
 public enum AdeExtRequestType {
     UPLOAD, ANALYZE, TRAIN, CONTROL_DB, GENERATE_MESSAGE_STATISTICS, 
-    CHECK_LINUX_MESSAGES,UPDATE_GROUPS, UTILITIES, MASK_LOG;
+    CHECK_LINUX_MESSAGES,UPDATE_GROUPS, UTILITIES, MASK_LOG, DAEMON;
 
 }
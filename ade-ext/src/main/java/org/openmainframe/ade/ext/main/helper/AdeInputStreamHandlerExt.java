@@ -19,13 +19,16 @@
 */
 package org.openmainframe.ade.ext.main.helper;
 
+import java.io.Closeable;
 import java.io.File;
+import java.io.IOException;
 import java.io.InputStream;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.Properties;
 
 import org.apache.commons.io.FilenameUtils;
+import org.apache.commons.io.input.CloseShieldInputStream;
 import org.openmainframe.ade.AdeInputStream;
 import org.openmainframe.ade.AdeMessageReader;
 import org.openmainframe.ade.exceptions.AdeException;
@@ -33,12 +36,15 @@ import org.openmainframe.ade.ext.os.AdeExtProperties;
 import org.openmainframe.ade.impl.data.FileSeperator;
 import org.openmainframe.ade.impl.flow.modules.AdeInputStreamHandler;
 import org.openmainframe.ade.utils.AdeFileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * The AdeInputStreamHandlerExt handles AdeInputStream for all the Linux
  * operating system types.
  */
 public class AdeInputStreamHandlerExt extends AdeInputStreamHandler {
+    private static final Logger logger = LoggerFactory.getLogger(AdeInputStreamHandlerExt.class);
 
     /**
      * The AdeExt properties that will be used for processing
@@ -76,10 +82,12 @@ public class AdeInputStreamHandlerExt extends AdeInputStreamHandler {
         /* Retrieve the name of the file. */
         final String name = getNameForStdin();
         final String parseReportFilename = getParseReportFilename(name);
-        a_adeInputStream = new AdeInputStreamExt(System.in, props, m_adeExtProperties, parseReportFilename);
+        /* Closing the reader must not close STDIN */
+        a_adeInputStream = new AdeInputStreamExt(new CloseShieldInputStream(System.in), props, m_adeExtProperties,
+                parseReportFilename);
 
         /* Send the stream for further processing */
-        incomingObject(a_adeInputStream);
+        processAndClose(a_adeInputStream);
     }
 
     /**
@@ -99,14 +107,58 @@ public class AdeInputStreamHandlerExt extends AdeInputStreamHandler {
         final String filename = FilenameUtils.getPath(file.getAbsolutePath()) + file.getName();
         final String parseReportFilename = getParseReportFilename(filename);
 
-        a_adeInputStream = new AdeInputStreamExt(is, props, m_adeExtProperties, parseReportFilename);
+        try {
+            a_adeInputStream = new AdeInputStreamExt(is, props, m_adeExtProperties, parseReportFilename);
+        } catch (AdeException e) {
+            closeQuietly(is);
+            throw e;
+        } catch (RuntimeException e) {
+            closeQuietly(is);
+            throw e;
+        }
 
         /* Indicate this is a new file, this will allow an interval broken into 
          * to log files. */
-        incomingSeparator(new FileSeperator(file.getName()));
+        try {
+            incomingSeparator(new FileSeperator(file.getName()));
+        } catch (AdeException e) {
+            closeQuietly(a_adeInputStream.getReader());
+            throw e;
+        }
 
         /* Send the stream for further processing */
-        incomingObject(a_adeInputStream);
+        processAndClose(a_adeInputStream);
+    }
+
+    /**
+     * Send the messages of the stream for further processing, then close its reader, which closes the
+     * stream and releases the resources of the reader. The reader is closed also when the processing
+     * fails, so that a long running process does not accumulate them.
+     */
+    private void processAndClose(AdeInputStream stream) throws AdeException {
+        try {
+            incomingObject(stream);
+        } finally {
+            closeQuietly(getReader(stream));
+        }
+    }
+
+    /**
+     * Close the reader of the stream last processed, if any. Closing a reader again does nothing, so this
+     * may be called once the processing ended, whether it succeeded or not.
+     */
+    public final void close() {
+        if (a_adeInputStream != null) {
+            closeQuietly(a_adeInputStream.getReader());
+        }
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            logger.warn("Failed closing the input stream", e);
+        }
     }
 
     /**
@@ -25,6 +25,7 @@ import java.util.List;
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.OptionBuilder;
 import org.apache.commons.cli.Options;
+import org.openmainframe.ade.exceptions.AdeUsageException;
 import org.openmainframe.ade.ext.os.LinuxAdeExtProperties;
 import org.openmainframe.ade.ext.os.AdeExtProperties;
 
@@ -44,7 +45,7 @@ public class LinuxOptions extends AdeExtOptions{
     }
     
     @Override
-    public boolean readOptions(CommandLine line, AdeExtProperties linuxProperties){
+    public boolean readOptions(CommandLine line, AdeExtProperties linuxProperties) throws AdeUsageException {
         boolean readOptionsSuccessful = true;
         /* All the required parameters for Linux */
         List<String> requiredParameterList = new ArrayList<String>();
@@ -69,16 +70,26 @@ public class LinuxOptions extends AdeExtOptions{
                 /* Process each option */
                 if (optionName.equalsIgnoreCase(OPTION_YEAR)) {
                     String m_year = line.getOptionValue(OPTION_YEAR);
-                    int y = Integer.parseInt(m_year);
+                    int y;
+                    try {
+                        y = Integer.parseInt(m_year);
+                    } catch (NumberFormatException e) {
+                        throw new AdeUsageException("the year entered " + m_year + " is not a number", e);
+                    }
 
                     if (y < 1970 || y > 2999) {
-                        System.out.println("the year entered " + m_year + " appears to be wrong");
-                        System.exit(-3);
+                        throw new AdeUsageException("the year entered " + m_year + " appears to be wrong");
                     }
 
                     ((LinuxAdeExtProperties) linuxProperties).setYear(y);
                 } else if (optionName.equalsIgnoreCase(AdeExtOptions.OPTION_GMT_OFFSET)) {
-                    long gmtOffset = Long.parseLong(inputParameterValue);
+                    long gmtOffset;
+                    try {
+                        gmtOffset = Long.parseLong(inputParameterValue);
+                    } catch (NumberFormatException e) {
+                        throw new AdeUsageException("the GMT offset entered " + inputParameterValue
+                                + " is not a number", e);
+                    }
                     ((LinuxAdeExtProperties) linuxProperties).setGmtOffset(gmtOffset);
                     ((LinuxAdeExtProperties) linuxProperties).setIsGmtOffsetDefined(true);
                 } else {
@@ -50,28 +50,32 @@ import org.slf4j.LoggerFactory;
  */
 abstract public class UploadOrAnalyze extends ExtControlProgram {
     /**
-     * A reference to this object, which should be singleton
+     * A reference to the object run by this thread. A long running process may run several objects
+     * concurrently, each in its own thread, and the threads started by a run inherit its object.
      */
-    private static UploadOrAnalyze s_uploadOrAnalyzeObject;
+    private static final InheritableThreadLocal<UploadOrAnalyze> s_uploadOrAnalyzeObject =
+            new InheritableThreadLocal<UploadOrAnalyze>();
 
     public static AdeExtOperatingSystemType getAdeOSType() {
-        return s_uploadOrAnalyzeObject.getAdeExtOperatingSystemType();
+        return s_uploadOrAnalyzeObject.get().getAdeExtOperatingSystemType();
     }
 
     public static boolean isInputSourceSTDIN() {
-        if (s_uploadOrAnalyzeObject == null) {
+        final UploadOrAnalyze uploadOrAnalyzeObject = s_uploadOrAnalyzeObject.get();
+        if (uploadOrAnalyzeObject == null) {
             return false;
         }
 
-        return (s_uploadOrAnalyzeObject.getInputSource() == INPUT_SOURCE.STDIN);
+        return (uploadOrAnalyzeObject.getInputSource() == INPUT_SOURCE.STDIN);
     }
 
     public static AdeExtRequestType getAdeRequestType() {
-        if (s_uploadOrAnalyzeObject == null) {
+        final UploadOrAnalyze uploadOrAnalyzeObject = s_uploadOrAnalyzeObject.get();
+        if (uploadOrAnalyzeObject == null) {
             return null;
         }
 
-        return s_uploadOrAnalyzeObject.getRequestType();
+        return uploadOrAnalyzeObject.getRequestType();
     }
 
     /**
@@ -114,13 +118,18 @@ abstract public class UploadOrAnalyze extends ExtControlProgram {
      */
     protected AdeExtProperties m_adeExtProperties;
 
+    /**
+     * The handler reading the input, once created
+     */
+    private AdeInputStreamHandlerExt m_streamHandler;
+
     /**
      * Constructor
      */
     protected UploadOrAnalyze(AdeExtRequestType requestType) {
         super(requestType);
         logger = LoggerFactory.getLogger(this.getClass().getName());
-        s_uploadOrAnalyzeObject = this;
+        s_uploadOrAnalyzeObject.set(this);
     }
 
     /**
@@ -133,6 +142,9 @@ abstract public class UploadOrAnalyze extends ExtControlProgram {
      * @throws AdeException
      */
     protected CommandLine parseArgs(Options subClassOptions, String[] args) throws AdeException {
+        /* This object may have been created by another thread than the one running it */
+        s_uploadOrAnalyzeObject.set(this);
+
         CommandLineParser parser = new GnuParser();
         OptionsFactory optionsFactory = new OptionsFactory();
         AdeExtPropertiesFactory adeExtPropertiesFactory = new AdeExtPropertiesFactory();
@@ -155,8 +167,8 @@ abstract public class UploadOrAnalyze extends ExtControlProgram {
          */
         if (line.hasOption('h')) {
             new HelpFormatter().printHelp(this.getClass().getSimpleName(), options);
-            closeAll();
-            System.exit(0);
+            /* Stop without running, and without an error message */
+            throw new AdeUsageException(null);
         }
 
         /**
@@ -309,23 +321,28 @@ abstract public class UploadOrAnalyze extends ExtControlProgram {
         if (streamHandler == null) {
             throw new AdeInternalException("Stream Handler does not exist for operating system type " + m_osType);
         }
-        streamHandler.addTarget(miTarget);
-        streamHandler.beginOfStream();
-        streamHandler.sendDiscontinuitySeperator();
-
-        /* Process the input log messages */
-        if (m_inputSource == INPUT_SOURCE.LOGDIR) {
-            for (File file : m_inputDir.listFiles(getFilenameFilter())) {
-                streamHandler.incomingStreamFromFile(file);
+        m_streamHandler = streamHandler;
+        try {
+            streamHandler.addTarget(miTarget);
+            streamHandler.beginOfStream();
+            streamHandler.sendDiscontinuitySeperator();
+
+            /* Process the input log messages */
+            if (m_inputSource == INPUT_SOURCE.LOGDIR) {
+                for (File file : m_inputDir.listFiles(getFilenameFilter())) {
+                    streamHandler.incomingStreamFromFile(file);
+                }
+            } else if (m_inputSource == INPUT_SOURCE.LOGFILE) {
+                streamHandler.incomingStreamFromFile(m_inputFile);
+            } else {
+                /* the only option left is STDIN */
+                streamHandler.incomingStreamFromSTDIN();
             }
-        } else if (m_inputSource == INPUT_SOURCE.LOGFILE) {
-            streamHandler.incomingStreamFromFile(m_inputFile);
-        } else {
-            /* the only option left is STDIN */
-            streamHandler.incomingStreamFromSTDIN();
-        }
 
-        streamHandler.endOfStream();
+            streamHandler.endOfStream();
+        } finally {
+            closeInput();
+        }
         String lastNewlySeenSourceId = m_adeExtProperties.getLastNewlySeenSourceId();
         
         /* Write the runtimeModelData to a file, only if we have identified a source */
@@ -337,6 +354,16 @@ abstract public class UploadOrAnalyze extends ExtControlProgram {
         return true;
     }
 
+    /**
+     * Close the input read by this run, and release the resources of its reader, if not done yet. A long
+     * running process calls this once the run ended, whether it succeeded or not.
+     */
+    public final void closeInput() {
+        if (m_streamHandler != null) {
+            m_streamHandler.close();
+        }
+    }
+
     /**
      * Output an usageError together with a Help Message
      * @param errorMsg
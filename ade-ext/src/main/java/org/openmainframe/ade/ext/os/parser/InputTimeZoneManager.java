@@ -19,8 +19,8 @@
 */
 package org.openmainframe.ade.ext.os.parser;
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.joda.time.DateTime;
 import org.openmainframe.ade.Ade;
@@ -35,9 +35,9 @@ import org.openmainframe.ade.exceptions.AdeInternalException;
  */
 public final class InputTimeZoneManager {
     /**
-     * A map from the source ID to dateTime object.
+     * A map from the source ID to dateTime object. Updated by the readers running concurrently in the process.
      */
-    private static Map<String, DateTime> s_sourceToTimeZoneMap = new HashMap<String, DateTime>();
+    private static Map<String, DateTime> s_sourceToTimeZoneMap = new ConcurrentHashMap<String, DateTime>();
 
     /**
      * The default GMT Offset from setup.props.
@@ -65,7 +65,7 @@ public final class InputTimeZoneManager {
      * value will be null since the time-zone is always GMT.
      */
     public static void updateTimezone(String sourceId, DateTime dateTime) {
-        if (dateTime != null) {
+        if (sourceId != null && dateTime != null) {
             s_sourceToTimeZoneMap.put(sourceId, dateTime);
         }
     }
@@ -80,7 +80,7 @@ public final class InputTimeZoneManager {
      * @throws AdeException 
      */
     public static String getTimezone(String sourceId) throws AdeException {
-        final DateTime dateTime = s_sourceToTimeZoneMap.get(sourceId);
+        final DateTime dateTime = sourceId == null ? null : s_sourceToTimeZoneMap.get(sourceId);
         if (dateTime != null) {
             final long offsetInMillis = dateTime.getZone().getOffset(dateTime.getMillis());
             String timeZoneString = String.format("%02d:%02d",
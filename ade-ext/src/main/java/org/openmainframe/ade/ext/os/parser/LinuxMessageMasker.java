@@ -0,0 +1,414 @@
+/*
+ 
+    Copyright IBM Corp. 2016
+    This file is part of Anomaly Detection Engine for Linux Logs (ADE).
+
+    ADE is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    ADE is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with ADE.  If not, see <http://www.gnu.org/licenses/>.
+ 
+*/
+package org.openmainframe.ade.ext.os.parser;
+
+import java.util.regex.Pattern;
+
+/**
+ * Masks the variable parts of Linux message texts: e-mail addresses, IPv4 and IPv6 addresses, hex
+ * strings and numbers are replaced by representatives, and blanks are collapsed and trimmed.
+ *
+ * The masking is defined by the chain of regular expressions in {@link #maskWithPatterns(String)},
+ * applied one after the other. {@link #mask(String)} computes the same result in a single scan of the
+ * message: all the masked values consist of the characters [a-zA-Z0-9_.+@-], and the representatives
+ * are surrounded by blanks, so each maximal run of these characters ("chunk") is masked independently
+ * of the rest of the message, by applying the expressions in order to the chunk only. Chunks without
+ * '@' or '.' can only contain hex strings and numbers, which are masked word by word.
+ *
+ * Regular expression word boundaries and line terminators depend on Unicode character properties,
+ * so messages with non ASCII characters are masked by the regular expressions themselves.
+ */
+public final class LinuxMessageMasker {
+    /**
+     * Replacement value for e-mail addresses of root.
+     */
+    private static final String ROOT_EMAIL_REPRESENTATIVE = " %%%root@EMAIL%%% ";
+    /**
+     * Replacement value for e-mail addresses.
+     */
+    private static final String EMAIL_REPRESENTATIVE = " %%%EMAIL%%% ";
+
+    /**
+     * A 2d array "mapping" replacement values (at index replacements[i][1]) for certain regular expressions
+     * (at index replacements[i][0]) where i = 0 is an email address with root name, i = 1 is any email address,
+     * i = 2 are IPv6 addresses, i = 3 are IPv4 addresses, i = 4 are HEX numbers of minimum length 7,
+     * i = 5 are random numbers with minimum length 4, i = 6 and i = 7 are tab replacements.
+     */
+    private static final String[][] replacements = {
+            { "\\b(root)@([a-zA-Z_0-9]+[.])+[a-zA-Z_0-9]*{2,}\\b", ROOT_EMAIL_REPRESENTATIVE },
+            { "\\b([a-zA-Z.0-9][a-zA-Z0-9_.+-]*)@([a-zA-Z_0-9]+[.])+[a-zA-Z_0-9]*{2,}\\b", EMAIL_REPRESENTATIVE },
+            { "\\b(?:(?:25[0-5]|2[0-4][0-9]|[01]?[0-9][0-9]?)\\.){5}(?:25[0-5]|2[0-4][0-9]|[01]?[0-9][0-9]?)\\b",
+                LinuxMessageTextPreprocessor.IPV6_REPRESENTATIVE },
+            { "\\b(?:(?:25[0-5]|2[0-4][0-9]|[01]?[0-9][0-9]?)\\.){3}(?:25[0-5]|2[0-4][0-9]|[01]?[0-9][0-9]?)\\b",
+                LinuxMessageTextPreprocessor.IPV4_REPRESENTATIVE },
+            { "\\b[0-9A-F]{7,}\\b", LinuxMessageTextPreprocessor.NUMBER_REPRESENTATIVE },
+            { "\\b[0-9]{4,}\\b", LinuxMessageTextPreprocessor.NUMBER_REPRESENTATIVE },
+            { "[ \t]+", " " },
+            { "(^[ \t])|([ \t]$)", "" },
+    };
+
+    /**
+     * The compiled regular expressions of {@link #replacements}.
+     */
+    private static final Pattern[] m_replacementPatterns = new Pattern[replacements.length];
+
+    static {
+        for (int i = 0; i < replacements.length; ++i) {
+            m_replacementPatterns[i] = Pattern.compile(replacements[i][0]);
+        }
+    }
+
+    /**
+     * The masking steps of a chunk, in the order of {@link #replacements}.
+     */
+    private static final int ROOT_EMAIL = 0;
+    private static final int EMAIL = 1;
+    private static final int IPV6 = 2;
+    private static final int IPV4 = 3;
+    private static final int NUMBERS = 4;
+
+    /**
+     * Minimal length of masked hex strings and numbers.
+     */
+    private static final int MIN_HEX_LENGTH = 7;
+    private static final int MIN_NUMBER_LENGTH = 4;
+
+    private LinuxMessageMasker() {
+        // Utility class
+    }
+
+    /**
+     * Masks a message text in a single scan. The result is identical to {@link #maskWithPatterns(String)}.
+     * @param in The message text string.
+     * @return The masked message text string.
+     */
+    public static String mask(String in) {
+        final int length = in.length();
+        final StringBuilder out = new StringBuilder(length + 16);
+        int i = 0;
+        while (i < length) {
+            final char c = in.charAt(i);
+            if (c >= 0x80) {
+                return maskWithPatterns(in);
+            }
+            if (isChunkChar(c)) {
+                int end = i;
+                boolean hasAt = false;
+                boolean hasDot = false;
+                char ch;
+                while (end < length && isChunkChar(ch = in.charAt(end))) {
+                    hasAt |= ch == '@';
+                    hasDot |= ch == '.';
+                    ++end;
+                }
+                final int firstStep = hasAt ? ROOT_EMAIL : (hasDot ? IPV6 : NUMBERS);
+                maskChunk(in, i, end, firstStep, out);
+                i = end;
+            } else if (c == ' ' || c == '\t') {
+                appendBlank(out);
+                ++i;
+            } else {
+                out.append(c);
+                ++i;
+            }
+        }
+        removeTrailingBlank(out);
+        return out.toString();
+    }
+
+    /**
+     * Masks a message text by applying the chain of regular expressions. This is the definition of the
+     * masking, used for message texts that {@link #mask(String)} does not scan by itself.
+     * @param in The message text string.
+     * @return The masked message text string.
+     */
+    public static String maskWithPatterns(String in) {
+        String out = in;
+        for (int i = 0; i < replacements.length; ++i) {
+            out = m_replacementPatterns[i].matcher(out).replaceAll(replacements[i][1]);
+        }
+        return out;
+    }
+
+    /**
+     * Masks the chunk characters s[from, to), starting from the given step. The parts of the chunk not
+     * replaced by a step are masked by the following steps.
+     */
+    private static void maskChunk(String s, int from, int to, int step, StringBuilder out) {
+        switch (step) {
+            case ROOT_EMAIL:
+                maskRootEmails(s, from, to, out);
+                break;
+            case EMAIL:
+                maskEmails(s, from, to, out);
+                break;
+            case IPV6:
+                maskIpAddresses(s, from, to, 6, IPV6, out);
+                break;
+            case IPV4:
+                maskIpAddresses(s, from, to, 4, IPV4, out);
+                break;
+            default:
+                maskNumbers(s, from, to, out);
+                break;
+        }
+    }
+
+    /**
+     * \b(root)@([a-zA-Z_0-9]+[.])+[a-zA-Z_0-9]*\b
+     */
+    private static void maskRootEmails(String s, int from, int to, StringBuilder out) {
+        int start = from;
+        int p = from;
+        while (p + 5 < to) {
+            if (s.startsWith("root@", p) && isBoundary(s, from, p)) {
+                final int end = domainEnd(s, p + 5, to);
+                if (end >= 0) {
+                    maskChunk(s, start, p, EMAIL, out);
+                    appendRepresentative(out, ROOT_EMAIL_REPRESENTATIVE);
+                    start = p = end;
+                    continue;
+                }
+            }
+            ++p;
+        }
+        maskChunk(s, start, to, EMAIL, out);
+    }
+
+    /**
+     * \b([a-zA-Z.0-9][a-zA-Z0-9_.+-]*)@([a-zA-Z_0-9]+[.])+[a-zA-Z_0-9]*\b
+     */
+    private static void maskEmails(String s, int from, int to, StringBuilder out) {
+        int start = from;
+        int p = from;
+        while (p < to) {
+            if (!isEmailStartChar(s.charAt(p)) || !isBoundary(s, from, p)) {
+                ++p;
+                continue;
+            }
+            int at = p + 1;
+            while (at < to && isEmailChar(s.charAt(at))) {
+                ++at;
+            }
+            if (at < to) {
+                // s[at] is '@', the local part of any address starting before it must end there
+                final int end = domainEnd(s, at + 1, to);
+                if (end >= 0) {
+                    maskChunk(s, start, p, IPV6, out);
+                    appendRepresentative(out, EMAIL_REPRESENTATIVE);
+                    start = p = end;
+                    continue;
+                }
+            }
+            p = at + 1;
+        }
+        maskChunk(s, start, to, IPV6, out);
+    }
+
+    /**
+     * Returns the end of the domain part of an e-mail address starting at i,
+     * ([a-zA-Z_0-9]+[.])+[a-zA-Z_0-9]*\b, or -1 if there is none.
+     */
+    private static int domainEnd(String s, int i, int to) {
+        int labels = 0;
+        int lastDot = -1;
+        int j = i;
+        while (true) {
+            int r = j;
+            while (r < to && isWordChar(s.charAt(r))) {
+                ++r;
+            }
+            if (r > j && r < to && s.charAt(r) == '.') {
+                ++labels;
+                lastDot = r;
+                j = r + 1;
+            } else if (labels == 0) {
+                return -1;
+            } else if (r > j) {
+                return r;
+            } else {
+                // no word after the last dot, so the last label is matched as the trailing word instead
+                return labels > 1 ? lastDot : -1;
+            }
+        }
+    }
+
+    /**
+     * \b(?:(?:25[0-5]|2[0-4][0-9]|[01]?[0-9][0-9]?)\.){octets-1}(?:25[0-5]|2[0-4][0-9]|[01]?[0-9][0-9]?)\b
+     */
+    private static void maskIpAddresses(String s, int from, int to, int octets, int step, StringBuilder out) {
+        final String representative = step == IPV6 ? LinuxMessageTextPreprocessor.IPV6_REPRESENTATIVE
+                : LinuxMessageTextPreprocessor.IPV4_REPRESENTATIVE;
+        int start = from;
+        int p = from;
+        while (p < to) {
+            if (isDigit(s.charAt(p)) && isBoundary(s, from, p)) {
+                final int end = ipAddressEnd(s, p, to, octets);
+                if (end >= 0) {
+                    maskChunk(s, start, p, step + 1, out);
+                    appendRepresentative(out, representative);
+                    start = p = end;
+                    continue;
+                }
+            }
+            ++p;
+        }
+        maskChunk(s, start, to, step + 1, out);
+    }
+
+    /**
+     * Returns the end of the IP address of the given number of octets starting at p, or -1 if there is none.
+     */
+    private static int ipAddressEnd(String s, int p, int to, int octets) {
+        int j = p;
+        for (int k = 1; ; ++k) {
+            int r = j;
+            while (r < to && isDigit(s.charAt(r))) {
+                ++r;
+            }
+            if (!isOctet(s, j, r)) {
+                return -1;
+            }
+            if (k == octets) {
+                return (r < to && isWordChar(s.charAt(r))) ? -1 : r;
+            }
+            if (r == to || s.charAt(r) != '.') {
+                return -1;
+            }
+            j = r + 1;
+        }
+    }
+
+    /**
+     * Whether the digits s[from, to) are matched by 25[0-5]|2[0-4][0-9]|[01]?[0-9][0-9]?
+     */
+    private static boolean isOctet(String s, int from, int to) {
+        switch (to - from) {
+            case 1:
+            case 2:
+                return true;
+            case 3:
+                final char c0 = s.charAt(from);
+                final char c1 = s.charAt(from + 1);
+                return c0 == '0' || c0 == '1' || (c0 == '2' && (c1 <= '4' || (c1 == '5' && s.charAt(from + 2) <= '5')));
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * \b[0-9A-F]{7,}\b and then \b[0-9]{4,}\b, that is, words of at least 7 upper case hex digits
+     * or at least 4 digits.
+     */
+    private static void maskNumbers(String s, int from, int to, StringBuilder out) {
+        int p = from;
+        while (p < to) {
+            final char c = s.charAt(p);
+            if (!isWordChar(c)) {
+                out.append(c);
+                ++p;
+                continue;
+            }
+            boolean isHex = true;
+            boolean isNumber = true;
+            int end = p;
+            char ch;
+            while (end < to && isWordChar(ch = s.charAt(end))) {
+                if (!isDigit(ch)) {
+                    isNumber = false;
+                    if (ch < 'A' || ch > 'F') {
+                        isHex = false;
+                    }
+                }
+                ++end;
+            }
+            final int wordLength = end - p;
+            if ((isHex && wordLength >= MIN_HEX_LENGTH) || (isNumber && wordLength >= MIN_NUMBER_LENGTH)) {
+                appendRepresentative(out, LinuxMessageTextPreprocessor.NUMBER_REPRESENTATIVE);
+            } else {
+                out.append(s, p, end);
+            }
+            p = end;
+        }
+    }
+
+    /**
+     * Whether there is a word boundary before s[p], where s[from] is preceded by a non word character.
+     */
+    private static boolean isBoundary(String s, int from, int p) {
+        final boolean wordBefore = p > from && isWordChar(s.charAt(p - 1));
+        return wordBefore != isWordChar(s.charAt(p));
+    }
+
+    private static boolean isChunkChar(char c) {
+        return isWordChar(c) || c == '.' || c == '@' || c == '+' || c == '-';
+    }
+
+    private static boolean isEmailStartChar(char c) {
+        return c != '_' && (isWordChar(c) || c == '.');
+    }
+
+    private static boolean isEmailChar(char c) {
+        return isWordChar(c) || c == '.' || c == '+' || c == '-';
+    }
+
+    private static boolean isWordChar(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || isDigit(c) || c == '_';
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    /**
+     * Appends a representative, which is surrounded by single blanks.
+     */
+    private static void appendRepresentative(StringBuilder out, String representative) {
+        appendBlank(out);
+        out.append(representative, 1, representative.length() - 1);
+        appendBlank(out);
+    }
+
+    /**
+     * Appends a blank, collapsing consecutive blanks and dropping leading ones: [ \t]+ and ^[ \t]
+     */
+    private static void appendBlank(StringBuilder out) {
+        final int length = out.length();
+        if (length > 0 && out.charAt(length - 1) != ' ') {
+            out.append(' ');
+        }
+    }
+
+    /**
+     * Removes the trailing blank: [ \t]$, where $ also matches before a line terminator ending the text.
+     */
+    private static void removeTrailingBlank(StringBuilder out) {
+        final int length = out.length();
+        if (length >= 1 && out.charAt(length - 1) == ' ') {
+            out.setLength(length - 1);
+        } else if (length >= 2 && out.charAt(length - 2) == ' '
+                && (out.charAt(length - 1) == '\n' || out.charAt(length - 1) == '\r')) {
+            out.deleteCharAt(length - 2);
+        } else if (length >= 3 && out.charAt(length - 3) == ' '
+                && out.charAt(length - 2) == '\r' && out.charAt(length - 1) == '\n') {
+            out.deleteCharAt(length - 3);
+        }
+    }
+}
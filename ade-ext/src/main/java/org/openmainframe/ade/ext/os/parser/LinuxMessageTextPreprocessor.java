@@ -19,6 +19,9 @@
 */
 package org.openmainframe.ade.ext.os.parser;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -27,8 +30,10 @@ import org.openmainframe.ade.data.IMessageInstance;
 import org.openmainframe.ade.data.IMessageTextPreprprocessor;
 import org.openmainframe.ade.exceptions.AdeException;
 import org.openmainframe.ade.exceptions.AdeInternalException;
+import org.openmainframe.ade.exceptions.AdeUsageException;
 import org.openmainframe.ade.impl.data.TextClusteringComponentModel;
 import org.openmainframe.ade.impl.data.IThresholdSetter;
+import org.openmainframe.ade.impl.data.MagicWordDictionary;
 import org.openmainframe.ade.utils.Pair;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -60,21 +65,17 @@ public class LinuxMessageTextPreprocessor implements IMessageTextPreprprocessor
      */
     public static final String NUMBER_REPRESENTATIVE = " %%%NUMBER%%% ";
     /**
-     * A 2d array "mapping" replacement values (at index replacements[i][1]) for certain regular expressions
-     * (at index replacements[i][0]) where i = 0 is an email address with root name, i = 1 is any email address,
-     * i = 2 are IPv4 addresses, i = 3 are IPv6 addresses, i = 4 are HEX numbers of minimum length 7,
-     * i = 5 are random numbers with minimum length 4, i = 6 and i = 7 are tab replacements.
+     * The default magic words, used when no magic words file is configured. The "ed" forms of
+     * exception, begin and terminat are kept for compatibility with the former regular expression.
      */
-    private static final String[][] replacements = {
-            { "\\b(root)@([a-zA-Z_0-9]+[.])+[a-zA-Z_0-9]*{2,}\\b", " %%%root@EMAIL%%% " },
-            { "\\b([a-zA-Z.0-9][a-zA-Z0-9_.+-]*)@([a-zA-Z_0-9]+[.])+[a-zA-Z_0-9]*{2,}\\b", " %%%EMAIL%%% " },
-            { "\\b(?:(?:25[0-5]|2[0-4][0-9]|[01]?[0-9][0-9]?)\\.){5}(?:25[0-5]|2[0-4][0-9]|[01]?[0-9][0-9]?)\\b", IPV6_REPRESENTATIVE },
-            { "\\b(?:(?:25[0-5]|2[0-4][0-9]|[01]?[0-9][0-9]?)\\.){3}(?:25[0-5]|2[0-4][0-9]|[01]?[0-9][0-9]?)\\b", IPV4_REPRESENTATIVE },
-            { "\\b[0-9A-F]{7,}\\b", " %%%NUMBER%%% " },
-            { "\\b[0-9]{4,}\\b", " %%%NUMBER%%% " },
-            { "[ \t]+", " " },
-            { "(^[ \t])|([ \t]$)", "" },
-    };
+    public static final List<String> DEFAULT_MAGIC_WORDS = Collections.unmodifiableList(Arrays.asList(
+            "start", "started", "end", "ended", "fail", "failed", "exception", "exceptioned",
+            "finish", "finished", "exit", "exited", "begin", "begined", "terminat", "terminated",
+            "enable", "enabled", "disable", "disabled", "error", "failure", "stop", "stopped", "root"));
+    /**
+     * The dictionary of the default magic words.
+     */
+    private static final MagicWordDictionary s_defaultMagicWords = createDefaultMagicWords();
     /**
      * Regex for sudo command.
      */
@@ -99,6 +100,11 @@ public class LinuxMessageTextPreprocessor implements IMessageTextPreprprocessor
      * Puppet-agent pattern object.
      */
     private static final Pattern m_puppetAgentPattern = Pattern.compile(PUPPET_AGENT_REGEXP);
+
+    /**
+     * The magic words.
+     */
+    private final MagicWordDictionary m_magicWords;
     
     /**
      * The default thresholdSetter for sudo and cron commands.
@@ -131,6 +137,36 @@ public class LinuxMessageTextPreprocessor implements IMessageTextPreprprocessor
      */
     private static final Pattern m_cronEXECSPattern = Pattern.compile(CRON_EXECS_REGEXP);
 
+    /**
+     * Constructs a preprocessor with the default magic words.
+     */
+    public LinuxMessageTextPreprocessor() {
+        this(s_defaultMagicWords);
+    }
+
+    /**
+     * Constructs a preprocessor with the given magic words.
+     * @param magicWords The magic words dictionary.
+     */
+    public LinuxMessageTextPreprocessor(MagicWordDictionary magicWords) {
+        m_magicWords = magicWords;
+    }
+
+    /**
+     * @return The dictionary of the default magic words.
+     */
+    public static MagicWordDictionary getDefaultMagicWords() {
+        return s_defaultMagicWords;
+    }
+
+    private static MagicWordDictionary createDefaultMagicWords() {
+        try {
+            return new MagicWordDictionary(DEFAULT_MAGIC_WORDS);
+        } catch (AdeUsageException e) {
+            throw new IllegalStateException("Invalid default magic words", e);
+        }
+    }
+
     /**
      * Called by the Linux parser to replace substrings in the input.
      * @param in String value that contains the message text.
@@ -150,18 +186,14 @@ public class LinuxMessageTextPreprocessor implements IMessageTextPreprprocessor
     }
 
     /**
-     * Processes the string without outputting the input message. The string
-     * is processed by going through the "replacements" array and effectively
-     * replacing all occurrences of specified regular expressions. 
+     * Processes the string without outputting the input message. E-mail addresses,
+     * IP addresses, hex strings and numbers are masked and blanks are collapsed, by
+     * {@link LinuxMessageMasker}.
      * @param in The message text string.
      * @return The processed message text string.
      */
     public final String processStringWithoutTrace(String in) {
-        String out = in;
-        for (int i = 0; i < replacements.length; ++i) {
-            out = out.replaceAll(replacements[i][0], replacements[i][1]);
-        }
-        return out;
+        return LinuxMessageMasker.mask(in);
     }
 
     /**
@@ -170,26 +202,7 @@ public class LinuxMessageTextPreprocessor implements IMessageTextPreprprocessor
      */
     @Override
     public final boolean isMagicWord(String in) {
-        return in.matches("^(?i)\\b(("
-                + "start"
-                + "|end"
-                + "|fail"
-                + "|exception"
-                + "|finish"
-                + "|exit"
-                + "|begin"
-                + "|terminat"
-                + ")(ed)?)"
-                + "|enable"
-                + "|enabled"
-                + "|disable"
-                + "|disabled"
-                + "|error"
-                + "|failure"
-                + "|stop"
-                + "|stopped"
-                + "|root"
-                + "\\b$");
+        return m_magicWords.contains(in);
     }
 
     /**
@@ -44,11 +44,6 @@ public abstract class LinuxSyslog3164ParserBase extends LinuxSyslogLineParser {
      */
     static final Logger s_logger = LoggerFactory.getLogger(LinuxSyslog3164ParserBase.class);
 
-    /**
-     * The end of today, when the parser was first loaded.
-     */
-    private static DateTime END_OF_TODAY = null;
-
     /**
      * The input time-zone specified in setup.props.
      */
@@ -107,6 +102,12 @@ public abstract class LinuxSyslog3164ParserBase extends LinuxSyslogLineParser {
      * The current year.
      */
     private final int curYear;
+
+    /**
+     * The end of today, when the parser was created. A long running process creates new parsers for each
+     * input, so that the year of the messages is not guessed from a stale date.
+     */
+    private final DateTime endOfToday;
     
     /*
      * Setup an array of DateTimeFormatter objects that can parse the dates in a
@@ -132,8 +133,9 @@ public abstract class LinuxSyslog3164ParserBase extends LinuxSyslogLineParser {
             m_LinuxAdeExtProperties = linuxAdeExtProperties;
         }
 
-        /* Set the start of today and timezone*/
-        initializeTimeZoneAndStartOfToday();
+        /* Set the timezone and the end of today */
+        initializeTimeZone();
+        endOfToday = DateTime.now().withZone(OUTPUT_TIME_ZONE).plusDays(1).withTimeAtStartOfDay();
     }
     
     /**
@@ -145,13 +147,23 @@ public abstract class LinuxSyslog3164ParserBase extends LinuxSyslogLineParser {
     }
     
     /**
-     * Set the AdeExt properties file.
+     * Set the AdeExt properties file used by the parsers constructed without one.
      * @param linuxAdeExtProperties The properties file that contains the configuration and properties information.
      */
     public static void setAdeExtProperties(LinuxAdeExtProperties linuxAdeExtProperties) {
         s_linuxAdeExtProperties = linuxAdeExtProperties;
     }
 
+    /**
+     * Returns the AdeExt properties of this parser, or the ones set for the parsers constructed without one.
+     */
+    private LinuxAdeExtProperties getYearProperties() {
+        if (m_LinuxAdeExtProperties != null) {
+            return m_LinuxAdeExtProperties;
+        }
+        return s_linuxAdeExtProperties;
+    }
+
     /**
      * Returns the year stored in AdeExt properties file.
      * @return the year as an int value.
@@ -209,13 +221,14 @@ public abstract class LinuxSyslog3164ParserBase extends LinuxSyslogLineParser {
                 /* Year must be set after all the time is normalized to the timezone */
                 dt = dt.withYear(curYear);
 
-                if (s_linuxAdeExtProperties.isYearDefined()) {
-                    yearSetter = LinuxSyslogYearSetter.getYearSetter(source);
+                final LinuxAdeExtProperties linuxAdeExtProperties = getYearProperties();
+                if (linuxAdeExtProperties.isYearDefined()) {
+                    yearSetter = LinuxSyslogYearSetter.getYearSetter(linuxAdeExtProperties, source);
 
                     /* If years is defined, then, use the defined year as a starting year */
                     final int yearToUse = yearSetter.getDesiredYear(dt);
                     dt = dt.withYear(yearToUse);
-                } else if (dt.isAfter(END_OF_TODAY)) {
+                } else if (dt.isAfter(endOfToday)) {
                     /* Set DateTime to previous year */
                     dt = dt.withYear(curYear - 1);
                 } else {
@@ -239,24 +252,18 @@ public abstract class LinuxSyslog3164ParserBase extends LinuxSyslogLineParser {
     }
 
     /**
-     * Set the END_OF_TODAY value and time-zone values. The time-zone values are taken from the Ade
-     * configuration properties. End_OF_TODAY value is retrieved by getting the current date-time, 
-     * adjust time-zone, add an additional day and set the time to the start of the day.
+     * Set the time-zone values. The time-zone values are taken from the Ade configuration properties.
      * Note: These only need to be set once.
      * @throws AdeException
      */
-    private static void initializeTimeZoneAndStartOfToday() throws AdeException {
+    private static void initializeTimeZone() throws AdeException {
         synchronized (LinuxSyslog3164ParserBase.class) {
-            if (END_OF_TODAY == null) {
+            if (OUTPUT_TIME_ZONE == null) {
                 final IAdeConfigProperties adeConfig = Ade.getAde().getConfigProperties();
                 final TimeZone timeZone = adeConfig.getInputTimeZone();
                 final TimeZone outputTimezone = adeConfig.getOutputTimeZone();
                 INPUT_TIME_ZONE = DateTimeZone.forOffsetMillis(timeZone.getRawOffset());
                 OUTPUT_TIME_ZONE = DateTimeZone.forOffsetMillis(outputTimezone.getRawOffset());
-                END_OF_TODAY = DateTime.now();
-                END_OF_TODAY = END_OF_TODAY.withZone(OUTPUT_TIME_ZONE);
-                END_OF_TODAY = END_OF_TODAY.plusDays(1);
-                END_OF_TODAY = END_OF_TODAY.withTimeAtStartOfDay();
             }
         }
     }
@@ -21,8 +21,10 @@ package org.openmainframe.ade.ext.os.parser;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.WeakHashMap;
 
 import org.joda.time.DateTime;
+import org.openmainframe.ade.ext.os.LinuxAdeExtProperties;
 import org.openmainframe.ade.impl.utils.DateTimeUtils;
 
 /**
@@ -40,9 +42,12 @@ public class LinuxSyslogYearSetter {
     static final private long INCREMENT_DAYS_LIMIT_IN_MILLIS = 365L * 86400000L - DECREMENT_DAYS_ALLOWANCE_IN_MILLIS;
 
     /**
-     * The Hashmap that maps source to yearSetter. Each source has its own yearSetter.
+     * Maps the properties of each run to the yearSetters of its sources. Each source has its own yearSetter
+     * within a run, so that the years given to a run do not carry over to the runs that follow it in the same
+     * process. The properties are weakly referenced, so that the yearSetters are dropped once the run is over.
      */
-    static private Map<String, LinuxSyslogYearSetter> map = new HashMap<String, LinuxSyslogYearSetter>();
+    static private final Map<LinuxAdeExtProperties, Map<String, LinuxSyslogYearSetter>> map =
+            new WeakHashMap<LinuxAdeExtProperties, Map<String, LinuxSyslogYearSetter>>();
 
     /**
      * The date of the last seen message.
@@ -71,16 +76,23 @@ public class LinuxSyslogYearSetter {
     
     /**
      * Returns the LinuxSyslogYearSetter object. If there is no existing yearSetter for the 
-     * passed in source then a new one is made otherwise, return what is in the hashMap.
+     * passed in source in the given run then a new one is made, starting from the year of the run,
+     * otherwise, return what is in the map.
+     * @param linuxAdeExtProperties the properties of the run.
      * @param source the source name string value.
      * @return the LinuxSyslogYearSetter object.
      */
-    static public LinuxSyslogYearSetter getYearSetter(String source) {
-        LinuxSyslogYearSetter yearSetter = map.get(source);
+    static public synchronized LinuxSyslogYearSetter getYearSetter(LinuxAdeExtProperties linuxAdeExtProperties,
+            String source) {
+        Map<String, LinuxSyslogYearSetter> yearSetters = map.get(linuxAdeExtProperties);
+        if (yearSetters == null) {
+            yearSetters = new HashMap<String, LinuxSyslogYearSetter>();
+            map.put(linuxAdeExtProperties, yearSetters);
+        }
+        LinuxSyslogYearSetter yearSetter = yearSetters.get(source);
         if (yearSetter == null) {
-            yearSetter = new LinuxSyslogYearSetter(source,
-                    LinuxSyslog3164ParserBase.getAdeExtPropertiesYear());
-            map.put(source, yearSetter);
+            yearSetter = new LinuxSyslogYearSetter(source, linuxAdeExtProperties.getYear());
+            yearSetters.put(source, yearSetter);
         }
         return yearSetter;
     }
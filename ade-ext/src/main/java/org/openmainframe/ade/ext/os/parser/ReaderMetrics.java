@@ -0,0 +1,67 @@
+/*
+ 
+    Copyright IBM Corp. 2016
+    This file is part of Anomaly Detection Engine for Linux Logs (ADE).
+
+    ADE is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    ADE is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with ADE.  If not, see <http://www.gnu.org/licenses/>.
+ 
+*/
+package org.openmainframe.ade.ext.os.parser;
+
+import java.util.Date;
+
+import org.openmainframe.ade.core.statistics.Counter;
+import org.openmainframe.ade.core.statistics.GaugeFamily;
+import org.openmainframe.ade.core.statistics.LatencyHistogram;
+import org.openmainframe.ade.core.statistics.MetricsRegistry;
+
+/**
+ * The runtime metrics of a message reader, in the {@link MetricsRegistry}, named
+ * "reader.&lt;reader&gt;.&lt;metric&gt;". All readers of the same kind share their metrics.
+ */
+final class ReaderMetrics {
+
+    /** Lines read from the input */
+    final Counter m_lines;
+    /** Messages returned, wrapper and suppressed messages excluded */
+    final Counter m_messages;
+    /** Lines no parser could parse */
+    final Counter m_errorLines;
+    /** Time to assign a message id to a parsed line, by text clustering */
+    final LatencyHistogram m_messageIdTime;
+    /** Messages returned per source */
+    final GaugeFamily m_sourceMessages;
+    /** Time stamp of the last message returned per source, in milliseconds */
+    final GaugeFamily m_sourceLastMessageTime;
+
+    /** @param reader the kind of reader, e.g. "linux" */
+    ReaderMetrics(String reader) {
+        final String prefix = "reader." + reader + ".";
+        m_lines = MetricsRegistry.counter(prefix + "lines");
+        m_messages = MetricsRegistry.counter(prefix + "messages");
+        m_errorLines = MetricsRegistry.counter(prefix + "errorLines");
+        m_messageIdTime = MetricsRegistry.histogram(prefix + "messageIdTime");
+        m_sourceMessages = MetricsRegistry.gauges(prefix + "sourceMessages");
+        m_sourceLastMessageTime = MetricsRegistry.gauges(prefix + "sourceLastMessageTime");
+    }
+
+    /** Records a message returned by the reader */
+    void messageRead(String sourceId, Date msgTime) {
+        m_messages.increment();
+        if (MetricsRegistry.isEnabled()) {
+            m_sourceMessages.add(sourceId, 1);
+            m_sourceLastMessageTime.set(sourceId, msgTime.getTime());
+        }
+    }
+}
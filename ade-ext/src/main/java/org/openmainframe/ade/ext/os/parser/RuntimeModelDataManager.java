@@ -98,6 +98,11 @@ public class RuntimeModelDataManager {
      */
     private static final int S_CURRENT_RUNTIME_MODEL_DATA_VERSION = 2;
 
+    /**
+     * Held while writing the runtimeModelData.
+     */
+    private static final Object s_writeLock = new Object();
+
     /**
      * The file where the runtimeModelData was read.
      */
@@ -124,11 +129,18 @@ public class RuntimeModelDataManager {
      * we last wrote the RuntimeModelData. Then when writing out the data, we write the version, current time stamp,
      * the number of entries, and the data as byte array. After the data has successfully been written to the
      * temporary file we rename it to the real file name. At the end, we log information if writing the model data to
-     * file was successful or not.
+     * file was successful or not. Analyses running concurrently in the same process write the same data, to
+     * the same file when it is stored at the JVM level, so they write it one at a time.
      * @param sourceId the source name.
      * @throws AdeException 
      */
     public final void writeModelDataToFile(String sourceId) throws AdeException {
+        synchronized (s_writeLock) {
+            writeModelDataToFileLocked(sourceId);
+        }
+    }
+
+    private void writeModelDataToFileLocked(String sourceId) throws AdeException {
         if (UploadOrAnalyze.getAdeRequestType() != AdeExtRequestType.ANALYZE) {
             logger.warn("Skip writing RuntimeModelData, because it's request type is: " + UploadOrAnalyze.getAdeRequestType());
             return;
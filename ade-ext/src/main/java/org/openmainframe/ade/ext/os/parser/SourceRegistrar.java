@@ -0,0 +1,432 @@
+/*
+ 
+    Copyright IBM Corp. 2016
+    This file is part of Anomaly Detection Engine for Linux Logs (ADE).
+
+    ADE is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    ADE is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with ADE.  If not, see <http://www.gnu.org/licenses/>.
+ 
+*/
+package org.openmainframe.ade.ext.os.parser;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.openmainframe.ade.Ade;
+import org.openmainframe.ade.data.IMessageInstance;
+import org.openmainframe.ade.data.ISource;
+import org.openmainframe.ade.dataStore.IDataStoreSources;
+import org.openmainframe.ade.exceptions.AdeException;
+import org.openmainframe.ade.exceptions.AdeInternalException;
+import org.openmainframe.ade.ext.data.GroupsQueryImpl;
+import org.openmainframe.ade.ext.data.ManagedSystemInfo;
+import org.openmainframe.ade.ext.stats.MessageRateStats;
+import org.openmainframe.ade.impl.dbUtils.MyJDBCConnection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Registers the sources newly seen by a message reader: reads their RuntimeModelData, adds them to
+ * the SOURCES table, updates their MANAGED_SYSTEMS information and evaluates the analysis group rules.
+ *
+ * When asynchronous, the registration is done by a background thread, so that parsing is not stalled
+ * while new sources are registered. Sources seen while a registration is in progress are registered
+ * together, in a single analysis group transaction. The messages of a source are buffered by the
+ * reader until the registration of the source completes, and are then returned in their original order.
+ * Messages of sources already registered are not held back.
+ *
+ * All methods, except the registration itself, must be called by the parsing thread. The reader must
+ * call {@link #close()} when it is closed, also when it stops before the end of its stream, so that the
+ * registration thread and its database connection are released.
+ */
+class SourceRegistrar {
+    /**
+     * The default logger for this class.
+     */
+    private static final Logger logger = LoggerFactory.getLogger(SourceRegistrar.class);
+
+    /**
+     * The parsing side of a message reader, which reads the messages passed through the registrar.
+     */
+    interface MessageSource {
+        /**
+         * @return the next message parsed from the input stream, or null at the end of the stream.
+         */
+        IMessageInstance readNextMessageInstance() throws IOException, AdeException;
+
+        /**
+         * @return whether the message last parsed is the generated message of a wrapper message.
+         */
+        boolean isWrapperMessage();
+
+        /**
+         * Called once the end of the stream is reached and all messages were returned.
+         */
+        void endOfStream() throws AdeException;
+    }
+
+    /**
+     * A message held back until the registration of its source completes.
+     */
+    private static final class BufferedMessage {
+        private final IMessageInstance m_messageInstance;
+        private final boolean m_isWrapperMessage;
+
+        private BufferedMessage(IMessageInstance messageInstance, boolean isWrapperMessage) {
+            m_messageInstance = messageInstance;
+            m_isWrapperMessage = isWrapperMessage;
+        }
+
+        IMessageInstance getMessageInstance() {
+            return m_messageInstance;
+        }
+
+        /** Whether the message is the generated message of a wrapper message */
+        boolean isWrapperMessage() {
+            return m_isWrapperMessage;
+        }
+    }
+
+    /**
+     * A source whose registration is in progress, with its buffered messages.
+     */
+    private static final class PendingSource {
+        private final String m_sourceId;
+        private final List<BufferedMessage> m_messages = new ArrayList<BufferedMessage>();
+        private final CountDownLatch m_done = new CountDownLatch(1);
+        private volatile String m_analysisGroup;
+        private volatile Throwable m_failure;
+
+        private PendingSource(String sourceId) {
+            m_sourceId = sourceId;
+        }
+
+        private void complete(String analysisGroup, Throwable failure) {
+            m_analysisGroup = analysisGroup;
+            m_failure = failure;
+            m_done.countDown();
+        }
+
+        private boolean isDone() {
+            return m_done.getCount() == 0;
+        }
+    }
+
+    /**
+     * Seconds to wait for the registration thread to end when closing.
+     */
+    private static final long CLOSE_TIMEOUT_SECONDS = 60;
+
+    /**
+     * The system information stored for each new source, or null if none.
+     */
+    private final ManagedSystemInfo m_info;
+
+    /**
+     * The maximal number of messages buffered for a single source. When exceeded,
+     * the parsing thread waits for the registration of the source.
+     */
+    private final int m_maxBufferedMessages;
+
+    /**
+     * The registration thread, or null if registering synchronously.
+     */
+    private final ExecutorService m_executor;
+
+    /**
+     * The sources waiting to be picked up by the registration thread.
+     */
+    private final BlockingQueue<PendingSource> m_newSources = new LinkedBlockingQueue<PendingSource>();
+
+    /**
+     * The sources whose registration is in progress, in the order they were first seen.
+     */
+    private final Map<String, PendingSource> m_pending = new LinkedHashMap<String, PendingSource>();
+
+    /**
+     * Buffered messages of registered sources, waiting to be returned.
+     */
+    private final Deque<BufferedMessage> m_ready = new ArrayDeque<BufferedMessage>();
+
+    /**
+     * Whether the end of the input stream was reached.
+     */
+    private boolean m_endOfStream = false;
+
+    /**
+     * Whether the message last returned by {@link #readMessageInstance(MessageSource)} is the generated
+     * message of a wrapper message.
+     */
+    private boolean m_isWrapperMessage = false;
+
+    /**
+     * Constructor.
+     * @param info the system information to store for each new source, or null if none.
+     * @param async whether to register the sources in a background thread.
+     * @param maxBufferedMessages the maximal number of messages buffered for a source whose registration
+     *     is in progress.
+     */
+    SourceRegistrar(ManagedSystemInfo info, boolean async, int maxBufferedMessages) {
+        m_info = info;
+        m_maxBufferedMessages = maxBufferedMessages;
+        if (async) {
+            m_executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    final Thread thread = new Thread(r, "ade-source-registration");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        } else {
+            m_executor = null;
+        }
+    }
+
+    /**
+     * Returns the next message of the given source, holding back the messages of the sources whose
+     * registration is in progress. The messages of each source are returned in their original order.
+     * @return the next message, or null at the end of the stream, once all messages were returned.
+     * @throws AdeException if the registration of a source failed.
+     */
+    IMessageInstance readMessageInstance(MessageSource source) throws IOException, AdeException {
+        while (true) {
+            final BufferedMessage ready = nextReady(m_endOfStream);
+            if (ready != null) {
+                m_isWrapperMessage = ready.isWrapperMessage();
+                return ready.getMessageInstance();
+            }
+            if (m_endOfStream) {
+                close();
+                source.endOfStream();
+                return null;
+            }
+            final IMessageInstance messageInstance = source.readNextMessageInstance();
+            if (messageInstance == null) {
+                m_endOfStream = true;
+            } else if (isPending(messageInstance.getSourceId())) {
+                buffer(messageInstance, source.isWrapperMessage());
+            } else {
+                m_isWrapperMessage = source.isWrapperMessage();
+                return messageInstance;
+            }
+        }
+    }
+
+    /**
+     * @return whether the message last returned by {@link #readMessageInstance(MessageSource)} is the
+     *     generated message of a wrapper message.
+     */
+    boolean isWrapperMessage() {
+        return m_isWrapperMessage;
+    }
+
+    /**
+     * Registers a new source. When synchronous, returns once the registration is complete.
+     * @param sourceId the source id.
+     * @throws AdeException if registering synchronously and the registration failed.
+     */
+    void register(String sourceId) throws AdeException {
+        final PendingSource pendingSource = new PendingSource(sourceId);
+        if (m_executor == null) {
+            registerBatch(Collections.singletonList(pendingSource));
+            completeRegistration(pendingSource);
+            return;
+        }
+        m_pending.put(sourceId, pendingSource);
+        m_newSources.add(pendingSource);
+        m_executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final List<PendingSource> batch = new ArrayList<PendingSource>();
+                m_newSources.drainTo(batch);
+                if (!batch.isEmpty()) {
+                    registerBatch(batch);
+                }
+            }
+        });
+    }
+
+    /**
+     * @return true if the registration of the given source is in progress, in which case its messages
+     *     must be buffered.
+     */
+    boolean isPending(String sourceId) {
+        return m_pending.containsKey(sourceId);
+    }
+
+    /**
+     * Buffers a message of a source whose registration is in progress. If too many messages are
+     * buffered for the source, waits for its registration to complete.
+     * @throws AdeException if the registration of the source failed.
+     */
+    private void buffer(IMessageInstance messageInstance, boolean isWrapperMessage) throws AdeException {
+        final PendingSource pendingSource = m_pending.get(messageInstance.getSourceId());
+        pendingSource.m_messages.add(new BufferedMessage(messageInstance, isWrapperMessage));
+        if (pendingSource.m_messages.size() >= m_maxBufferedMessages) {
+            logger.info("Waiting for the registration of source " + pendingSource.m_sourceId + ", with "
+                    + pendingSource.m_messages.size() + " messages buffered");
+            awaitRegistration(pendingSource);
+            releaseCompleted();
+        }
+    }
+
+    /**
+     * Returns the next buffered message whose source registration has completed.
+     * @param wait whether to wait for the registrations in progress if no message is ready.
+     * @return the next message, or null if none is ready, or if waiting, none is buffered at all.
+     * @throws AdeException if the registration of a source failed.
+     */
+    private BufferedMessage nextReady(boolean wait) throws AdeException {
+        if (m_ready.isEmpty() && !m_pending.isEmpty()) {
+            if (wait) {
+                awaitRegistration(m_pending.values().iterator().next());
+            }
+            releaseCompleted();
+        }
+        return m_ready.poll();
+    }
+
+    /**
+     * Stops the registration thread, once the registrations in progress are done, and returns its
+     * database connection to the pool. Waits for the thread to end, so that a long running process
+     * has the connection back before it reads its next input. Does nothing if already closed.
+     */
+    void close() {
+        if (m_executor == null || m_executor.isShutdown()) {
+            return;
+        }
+        m_executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    MyJDBCConnection.close();
+                } catch (AdeException e) {
+                    logger.warn("Failed closing the source registration connection", e);
+                }
+            }
+        });
+        m_executor.shutdown();
+        try {
+            if (!m_executor.awaitTermination(CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                logger.warn("The source registration thread did not end within " + CLOSE_TIMEOUT_SECONDS
+                        + " seconds");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Moves the messages of the sources whose registration completed, in the order the sources were
+     * first seen, to the ready messages.
+     */
+    private void releaseCompleted() throws AdeException {
+        final Iterator<PendingSource> it = m_pending.values().iterator();
+        while (it.hasNext()) {
+            final PendingSource pendingSource = it.next();
+            if (pendingSource.isDone()) {
+                it.remove();
+                completeRegistration(pendingSource);
+                m_ready.addAll(pendingSource.m_messages);
+            }
+        }
+    }
+
+    /**
+     * Completes the registration of a source on the parsing thread.
+     * @throws AdeException if the registration failed.
+     */
+    private void completeRegistration(PendingSource pendingSource) throws AdeException {
+        final Throwable failure = pendingSource.m_failure;
+        if (failure instanceof AdeException) {
+            throw (AdeException) failure;
+        } else if (failure != null) {
+            throw new AdeInternalException("Failed registering source " + pendingSource.m_sourceId, failure);
+        }
+        MessageRateStats.addSourceAndAnalysisGroup(pendingSource.m_sourceId, pendingSource.m_analysisGroup);
+        logger.trace("Datastore updated for Linux system: " + pendingSource.m_sourceId);
+    }
+
+    private static void awaitRegistration(PendingSource pendingSource) throws AdeException {
+        try {
+            pendingSource.m_done.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AdeInternalException("Interrupted waiting for the registration of source "
+                    + pendingSource.m_sourceId, e);
+        }
+    }
+
+    /**
+     * Registers the given sources, and completes their registration.
+     */
+    private void registerBatch(List<PendingSource> batch) {
+        final List<String> sourceIds = new ArrayList<String>(batch.size());
+        for (PendingSource pendingSource : batch) {
+            sourceIds.add(pendingSource.m_sourceId);
+        }
+        try {
+            final Map<String, String> analysisGroups = registerSources(sourceIds);
+            for (PendingSource pendingSource : batch) {
+                pendingSource.complete(analysisGroups.get(pendingSource.m_sourceId), null);
+            }
+        } catch (Throwable t) {
+            logger.error("Failed registering sources " + sourceIds, t);
+            for (PendingSource pendingSource : batch) {
+                pendingSource.complete(null, t);
+            }
+        }
+    }
+
+    /**
+     * Adds the given sources to the data store, and evaluates their analysis groups.
+     * @return the analysis group of each source.
+     */
+    Map<String, String> registerSources(List<String> sourceIds) throws AdeException {
+        final IDataStoreSources dataStoreSources = Ade.getAde().getDataStore().sources();
+        for (String sourceId : sourceIds) {
+            /* Read the RuntimeModelData from file. */
+            final RuntimeModelDataManager runtimeModelDataManager = new RuntimeModelDataManager();
+            runtimeModelDataManager.readModelDataFromFile(sourceId);
+
+            /* Provide a mapping between source to analysisGroup. */
+            dataStoreSources.addSourceAndAnalysisGroup(sourceId,
+                    LinuxSyslogMessageReader.UNASSIGNED_ANALYSIS_GROUP_ID);
+
+            final ISource source = dataStoreSources.getOrAddSource(sourceId);
+            if (m_info != null) {
+                /* Add m_info to the database.  It's only added when SysInfo is available. */
+                m_info.updateDataStore(source);
+            }
+        }
+
+        /* Update the analysis groups by calling an atomic method that evaluates analysis group rules,
+         * and commits to the database in an atomic transaction. */
+        return GroupsQueryImpl.updateSourcesAnalysisGroups(sourceIds);
+    }
+}
@@ -37,23 +37,22 @@ import org.openmainframe.ade.Ade;
 import org.openmainframe.ade.AdeInputStream;
 import org.openmainframe.ade.AdeMessageReader;
 import org.openmainframe.ade.actions.IParsingQualityReporter;
+import org.openmainframe.ade.core.statistics.MetricsRegistry;
 import org.openmainframe.ade.data.IDataFactory;
 import org.openmainframe.ade.data.DataType;
 import org.openmainframe.ade.data.IMessageInstance;
 import org.openmainframe.ade.data.ISource;
-import org.openmainframe.ade.dataStore.IDataStoreSources;
 import org.openmainframe.ade.exceptions.AdeException;
 import org.openmainframe.ade.exceptions.AdeInternalException;
 import org.openmainframe.ade.exceptions.AdeParsingException;
 import org.openmainframe.ade.exceptions.AdeUsageException;
 import org.openmainframe.ade.ext.AdeExt;
-import org.openmainframe.ade.ext.data.GroupsQueryImpl;
 import org.openmainframe.ade.ext.data.ManagedSystemInfo;
 import org.openmainframe.ade.ext.main.helper.AdeExtRequestType;
 import org.openmainframe.ade.ext.os.LinuxAdeExtProperties;
-import org.openmainframe.ade.ext.stats.MessageRateStats;
 import org.openmainframe.ade.ext.stats.MessagesWithParseErrorStats;
 import org.openmainframe.ade.ext.stats.MessagesWithUnexpectedSource;
+import org.openmainframe.ade.ext.utils.AdeExtConfigProperties;
 import org.openmainframe.ade.ext.utils.ExtFileUtils;
 import org.openmainframe.ade.impl.data.TextClusteringComponentModel;
 import org.openmainframe.ade.impl.data.TextClusteringModel;
@@ -108,6 +107,11 @@ public class SparklogMessageReader extends AdeMessageReader {
      * The default logger for this class.
      */
     private static final Logger logger = LoggerFactory.getLogger(SparklogMessageReader.class);
+
+    /**
+     * Runtime metrics of the spark log readers.
+     */
+    private static final ReaderMetrics s_metrics = new ReaderMetrics("spark");
     /**
      * Object to create and keep track of textual clusters.
      */
@@ -205,6 +209,31 @@ public class SparklogMessageReader extends AdeMessageReader {
      */
     private IParsingQualityReporter m_parsingQualityReport = null;
 
+    /**
+     * Registers the newly seen sources, and buffers their messages while they are being registered.
+     */
+    private SourceRegistrar m_sourceRegistrar;
+
+    /**
+     * The messages parsed by this reader, as read by the SourceRegistrar.
+     */
+    private final SourceRegistrar.MessageSource m_messageSource = new SourceRegistrar.MessageSource() {
+        @Override
+        public IMessageInstance readNextMessageInstance() throws IOException, AdeException {
+            return SparklogMessageReader.this.readNextMessageInstance();
+        }
+
+        @Override
+        public boolean isWrapperMessage() {
+            return m_isWrapperMessage;
+        }
+
+        @Override
+        public void endOfStream() throws AdeException {
+            m_textClusteringComponentModel.flushTimeStamps();
+        }
+    };
+
     /**
      * Constructs a reader for a given input stream and initializes member variables.
      * @param stream Input stream for parsing.
@@ -218,7 +247,7 @@ public class SparklogMessageReader extends AdeMessageReader {
         m_dataFactory = Ade.getAde().getDataFactory();
 
         m_textClusteringComponentModel = Ade.getAde().getActionsFactory().getTextClusteringModel(true);
-        m_messageTextPreprocessor = new LinuxMessageTextPreprocessor();
+        m_messageTextPreprocessor = new LinuxMessageTextPreprocessor(AdeExt.getAdeExt().getMagicWordDictionary());
         m_textClusteringComponentModel.setMessageTextPreprocessor(m_messageTextPreprocessor);
 
         initializeOtherInformation(adeExtProperties, parseReportFilename);
@@ -233,10 +262,35 @@ public class SparklogMessageReader extends AdeMessageReader {
      * through all possible line parsers and find one that can capture the current line. If one is found
      * we generate a message id and process the source id. Then we return the message instance. If one is
      * not found then we log this as an error.
+     * Messages of a source whose registration is still in progress are held back by the
+     * SourceRegistrar, and returned once the registration completes.
      * @return MessageInstance object that stores all the necessary information of a message.
      */
     @Override
     public final IMessageInstance readMessageInstance() throws IOException, AdeException {
+        final IMessageInstance messageInstance = m_sourceRegistrar.readMessageInstance(m_messageSource);
+        m_isWrapperMessage = m_sourceRegistrar.isWrapperMessage();
+        return messageInstance;
+    }
+
+    /**
+     * Closes the reader, and releases the source registration thread. Called also when the reading
+     * stops before the end of the stream.
+     */
+    @Override
+    public final void close() throws IOException {
+        try {
+            m_sourceRegistrar.close();
+        } finally {
+            super.close();
+        }
+    }
+
+    /**
+     * Reads the next message from the input stream.
+     * @return the next message, or null at the end of the stream.
+     */
+    private IMessageInstance readNextMessageInstance() throws IOException, AdeException {
         String currentLine;
         boolean gotLine = false;
         boolean unexpectedSource = false;        
@@ -259,7 +313,9 @@ public class SparklogMessageReader extends AdeMessageReader {
             for (SparklogLineParser lineParser : m_lineParsers) {
                 gotLine = lineParser.parseLine(currentLine);
                 if (gotLine) {
+                    final long messageIdStart = MetricsRegistry.startTimer();
                     String msgId = getMessageId(lineParser);
+                    s_metrics.m_messageIdTime.recordSince(messageIdStart);
                     DateTime dateTime = handleDateTime(lineParser);
                     final String sourceId = getAndProcessSourceId(lineParser.getSource());
                     if (sourceId == null) {
@@ -282,6 +338,7 @@ public class SparklogMessageReader extends AdeMessageReader {
                     /* Setting the messageInstanceWaiting to null, which would stop wrappers such as SUDO or CRON
                        to be passed to ade. */              
                     m_messageInstanceWaiting = null;              
+                    s_metrics.messageRead(sourceId, lineParser.getMsgTime());
                     return m_prevMessageInstance;
                 }
             }
@@ -293,6 +350,7 @@ public class SparklogMessageReader extends AdeMessageReader {
                     final MessagesWithParseErrorStats stats = MessagesWithParseErrorStats.getParserErrorStats();
                     stats.addMessage(currentLine);
                     m_errorLineCount++;
+                    s_metrics.m_errorLines.increment();
                 }
             }
         }
@@ -342,6 +400,9 @@ public class SparklogMessageReader extends AdeMessageReader {
                 throw new AdeParsingException("Failed reading from log file", e);
             }
         }
+        if (currentLine != null) {
+            s_metrics.m_lines.increment();
+        }
         return currentLine;
     }
     
@@ -451,34 +512,14 @@ public class SparklogMessageReader extends AdeMessageReader {
                 }
             }
 
-            /* Update database to add the source, then update m_info with the source. */
-            final IDataStoreSources dataStoreSources = Ade.getAde().getDataStore().sources();
-
             /* For Linux, the sourceId is the same as source. */
             sourceId = source;
             m_lastNewlySeenSourceId = sourceId;
             m_adeExtProperties.setLastNewlySeenSourceId(m_lastNewlySeenSourceId);
 
-            /* Read the RuntimeModelData from file. */
-            final RuntimeModelDataManager runtimeModelDataManager = new RuntimeModelDataManager();
-            runtimeModelDataManager.readModelDataFromFile(source);
-
-            /* Provide a mapping between source to analysisGroup. */
-            dataStoreSources.addSourceAndAnalysisGroup(sourceId, UNASSIGNED_ANALYSIS_GROUP_ID);
-
-            final ISource S = dataStoreSources.getOrAddSource(source);
-            if (m_info != null) {
-                /* Add m_info to the database.  It's only added when SysInfo is available. */
-                m_info.updateDataStore(S);
-            }
-
-            /* Update the analysis group by calling an atomic method that evaluates analysis group rules, 
-             * and commits to the database in an atomic transaction. */
-            final String analysisGroup = GroupsQueryImpl.updateSourcesAnalysisGroup(sourceId);
-            MessageRateStats.addSourceAndAnalysisGroup(sourceId, analysisGroup);
-
-            logger.trace("Datastore updated for Linux system: " + source
-                    + ", that maps to sourceId: " + sourceId);
+            /* Read the RuntimeModelData, add the source and its m_info to the database and
+             * update its analysis group. This may complete in the background. */
+            m_sourceRegistrar.register(sourceId);
 
             /* Add the source to the mapping */
             sourceToSourceIdMap.put(source, sourceId);
@@ -501,11 +542,10 @@ public class SparklogMessageReader extends AdeMessageReader {
     private void initializeOtherInformation(LinuxAdeExtProperties adeExtProperties, String parseReportFilename)
             throws AdeException {
         m_parserStartTime = System.nanoTime();
+        m_adeExtProperties = adeExtProperties;
         m_lineParsers = new SparklogLineParser[] {
-                new SparklogParser(),
+                new SparklogParser(m_adeExtProperties),
         };
-        m_adeExtProperties = adeExtProperties;
-        SparklogParserBase.setAdeExtProperties(m_adeExtProperties);
         setParsingQualityReporterIfRequested(parseReportFilename);
         try {
             if (m_adeExtProperties.isGmtOffsetDefined()) {
@@ -516,6 +556,9 @@ public class SparklogMessageReader extends AdeMessageReader {
         } catch (IllegalArgumentException e) {
             throw new AdeUsageException("Invalid SysInfo argument(s)", e);
         }
+        final AdeExtConfigProperties configProperties = AdeExt.getAdeExt().getConfigProperties();
+        m_sourceRegistrar = new SourceRegistrar(m_info, configProperties.isAsyncSourceRegistration(),
+                configProperties.getSourceRegistrationBufferSize());
     }
 
     /**
@@ -143,7 +143,7 @@ public abstract class SparklogParserBase extends SparklogLineParser {
     }
     
     /**
-     * Set the AdeExt properties file.
+     * Set the AdeExt properties file used by the parsers constructed without one.
      * @param linuxAdeExtProperties The properties file that contains the configuration and properties information.
      */
     public static void setAdeExtProperties(LinuxAdeExtProperties linuxAdeExtProperties) {
@@ -95,7 +95,7 @@ public class ExtAnalyzedIntervalV2FullXmlStorer extends ExtendedAnalyzedInterval
 
         /* Overwrite the Namespace Schema location */
         try {
-            s_marshaller.setProperty(Marshaller.JAXB_NO_NAMESPACE_SCHEMA_LOCATION, "xslt/AnalyzedInterval.xsd");
+            s_marshaller.get().setProperty(Marshaller.JAXB_NO_NAMESPACE_SCHEMA_LOCATION, "xslt/AnalyzedInterval.xsd");
         } catch (PropertyException e) {
             throw new AdeInternalException("failed to set formatted output for JAXB Marshaller object", e);
         }
@@ -119,9 +119,9 @@ public class ExtJaxbAnalyzedIntervalV2XmlStorer extends ExtendedAnalyzedInterval
     public static final String XML_INTERVAL_V2_XSD = "/xml/AdeCoreIntervalV2.xsd";
 
     /**
-     * The marshaller object
+     * The marshaller object of each thread. A marshaller is not thread safe, and is kept only once fully set up.
      */
-    protected static Marshaller s_marshaller;
+    protected static final ThreadLocal<Marshaller> s_marshaller = new ThreadLocal<Marshaller>();
 
     /**
      * The XML Version
@@ -191,7 +191,7 @@ public class ExtJaxbAnalyzedIntervalV2XmlStorer extends ExtendedAnalyzedInterval
      */
     @Override
     public void beginOfStream() throws AdeException, AdeFlowException {
-        if (s_marshaller == null) {
+        if (s_marshaller.get() == null) {
             JAXBContext jaxbContext;
             try {
                 jaxbContext = JAXBContext.newInstance(ADEEXT_JAXB_CONTEXT);
@@ -199,15 +199,16 @@ public class ExtJaxbAnalyzedIntervalV2XmlStorer extends ExtendedAnalyzedInterval
                 throw new AdeInternalException("failed to create JAXBContext object for package "
                         + Arrays.toString(ADEEXT_JAXB_CONTEXT), e);
             }
+            final Marshaller marshaller;
             try {
-                s_marshaller = jaxbContext.createMarshaller();
+                marshaller = jaxbContext.createMarshaller();
             } catch (JAXBException e) {
                 throw new AdeInternalException("failed to create JAXB Marshaller object", e);
             }
             try {
-                s_marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, m_formatXMLOutput);
-                s_marshaller.setProperty(Marshaller.JAXB_FRAGMENT, Boolean.TRUE);
-                s_marshaller.setProperty(Marshaller.JAXB_NO_NAMESPACE_SCHEMA_LOCATION, XML_INTERVAL_V2_XSD);
+                marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, m_formatXMLOutput);
+                marshaller.setProperty(Marshaller.JAXB_FRAGMENT, Boolean.TRUE);
+                marshaller.setProperty(Marshaller.JAXB_NO_NAMESPACE_SCHEMA_LOCATION, XML_INTERVAL_V2_XSD);
 
             } catch (PropertyException e) {
                 throw new AdeInternalException("failed to set formatted output for JAXB Marshaller object", e);
@@ -229,7 +230,8 @@ public class ExtJaxbAnalyzedIntervalV2XmlStorer extends ExtendedAnalyzedInterval
                 throw new AdeInternalException("failed to create URL from Schema path: "
                         + intervalSchema.getAbsolutePath(), e);
             }
-            s_marshaller.setSchema(schema);
+            marshaller.setSchema(schema);
+            s_marshaller.set(marshaller);
         }
         m_xmlMetaData = new XMLMetaDataRetriever();
     }
@@ -304,7 +306,7 @@ public class ExtJaxbAnalyzedIntervalV2XmlStorer extends ExtendedAnalyzedInterval
         msgSummary.setNumNewMsg(numberOfNewMessages);
         jaxbInterval.setMsgSummary(msgSummary);
 
-        writeToXML(analyzedInterval, jaxbInterval, s_marshaller);
+        writeToXML(analyzedInterval, jaxbInterval, s_marshaller.get());
     }
 
     /**
@@ -143,9 +143,9 @@ public class ExtJaxbAnalyzedPeriodV2XmlStorer extends AnalyzedIntervalOutputer {
     private static final String MISSING_INTERVAL_REASON_NO_CONNECTION = "not connected";
 
     /**
-     * The marshaller object
+     * The marshaller object of each thread. A marshaller is not thread safe, and is kept only once fully set up.
      */
-    protected static Marshaller s_marshaller;
+    protected static final ThreadLocal<Marshaller> s_marshaller = new ThreadLocal<Marshaller>();
 
     /**
      * The XML Version
@@ -376,7 +376,7 @@ public class ExtJaxbAnalyzedPeriodV2XmlStorer extends AnalyzedIntervalOutputer {
      */
     @Override
     public void beginOfStream() throws AdeException, AdeFlowException {
-        if (s_marshaller == null) {
+        if (s_marshaller.get() == null) {
             JAXBContext jaxbContext;
             try {
                 jaxbContext = JAXBContext.newInstance(ADEEXT_JAXB_CONTEXT);
@@ -384,15 +384,16 @@ public class ExtJaxbAnalyzedPeriodV2XmlStorer extends AnalyzedIntervalOutputer {
                 throw new AdeInternalException("failed to create JAXBContext object for package "
                         + Arrays.toString(ADEEXT_JAXB_CONTEXT), e);
             }
+            final Marshaller marshaller;
             try {
-                s_marshaller = jaxbContext.createMarshaller();
+                marshaller = jaxbContext.createMarshaller();
             } catch (JAXBException e) {
                 throw new AdeInternalException("failed to create JAXB Marshaller object", e);
             }
             try {
-                s_marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, m_formatXMLOutput);
-                s_marshaller.setProperty(Marshaller.JAXB_FRAGMENT, Boolean.TRUE);
-                s_marshaller.setProperty(Marshaller.JAXB_NO_NAMESPACE_SCHEMA_LOCATION, XML_PLEX_V2_XSD);
+                marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, m_formatXMLOutput);
+                marshaller.setProperty(Marshaller.JAXB_FRAGMENT, Boolean.TRUE);
+                marshaller.setProperty(Marshaller.JAXB_NO_NAMESPACE_SCHEMA_LOCATION, XML_PLEX_V2_XSD);
             } catch (PropertyException e) {
                 throw new AdeInternalException("failed to set formatted output for JAXB Marshaller object", e);
             }
@@ -413,7 +414,8 @@ public class ExtJaxbAnalyzedPeriodV2XmlStorer extends AnalyzedIntervalOutputer {
                 throw new AdeInternalException("failed to create URL from Schema path: "
                         + systemSchema.getAbsolutePath(), e);
             }
-            s_marshaller.setSchema(schema);
+            marshaller.setSchema(schema);
+            s_marshaller.set(marshaller);
         }
 
         /* Retrieve the Model Data Here.  Force refresh, in case the Model's Analysis Group Change without impacting
@@ -617,7 +619,7 @@ public class ExtJaxbAnalyzedPeriodV2XmlStorer extends AnalyzedIntervalOutputer {
         }
 
         /* Write out the XML */
-        writeToXML(systems, s_marshaller);
+        writeToXML(systems, s_marshaller.get());
     }
 
     /**
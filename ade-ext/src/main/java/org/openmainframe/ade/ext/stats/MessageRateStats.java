@@ -19,10 +19,12 @@
 */
 package org.openmainframe.ade.ext.stats;
 
-import java.util.Collection;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.openmainframe.ade.Ade;
 import org.openmainframe.ade.exceptions.AdeException;
@@ -44,12 +46,20 @@ import org.joda.time.format.DateTimeFormatter;
  * Statistics will be generated by combining a subset of these 10 minutes interval.  
  * 
  * For example, for 120 minutes interval, we might want statistics for every 10, 20, 30, 60 and 120 minutes.
+ * 
+ * The message IDs seen in an interval are interned to consecutive indices, and the 10 minutes counts of
+ * each are kept in a row of a single int array, which is reused from one interval to the next.  Counting
+ * a message is a map lookup and an array increment, with no allocation once its message ID is interned.
+ * 
+ * The updates of a source are serialized on its stats object, so the readers of different sources do not
+ * contend.  A report copies the overall statistics while holding the lock, and formats and logs the copy
+ * after releasing it.
  */
 public class MessageRateStats {
     /**
      * A map from Source to Analysis Group
      */
-    private static Map<String, String> s_sourceToAnalysisGroupMap = new HashMap<String, String>();
+    private static final ConcurrentMap<String, String> s_sourceToAnalysisGroupMap = new ConcurrentHashMap<String, String>();
 
     public static void addSourceAndAnalysisGroup(String sourceName, String analysisGroupName) {
         s_sourceToAnalysisGroupMap.put(sourceName, analysisGroupName);
@@ -58,7 +68,7 @@ public class MessageRateStats {
     /**
      * A map containing the message Rate Stats 
      */
-    private static Map<String, MessageRateStats> s_sourceToMsgRatesStatsMap = new HashMap<String, MessageRateStats>();
+    private static final ConcurrentMap<String, MessageRateStats> s_sourceToMsgRatesStatsMap = new ConcurrentHashMap<String, MessageRateStats>();
 
     public static MessageRateStats getMessageRateStatsForSource(String source) throws AdeException {
         MessageRateStats stats;
@@ -77,8 +87,14 @@ public class MessageRateStats {
         stats = s_sourceToMsgRatesStatsMap.get(name);
 
         if (stats == null) {
-            stats = new MessageRateStats(name);
-            s_sourceToMsgRatesStatsMap.put(name, stats);
+            /* Created once, as the constructor logs the settings */
+            synchronized (s_sourceToMsgRatesStatsMap) {
+                stats = s_sourceToMsgRatesStatsMap.get(name);
+                if (stats == null) {
+                    stats = new MessageRateStats(name);
+                    s_sourceToMsgRatesStatsMap.put(name, stats);
+                }
+            }
         }
 
         return stats;
@@ -89,9 +105,7 @@ public class MessageRateStats {
      * @throws AdeException 
      */
     public static void generateReportForAllSources() throws AdeException {
-        final Collection<MessageRateStats> statsSourceCollection = s_sourceToMsgRatesStatsMap.values();
-
-        for (MessageRateStats statsForASource : statsSourceCollection) {
+        for (MessageRateStats statsForASource : s_sourceToMsgRatesStatsMap.values()) {
             statsForASource.generateReport();
         }
     }
@@ -162,10 +176,20 @@ public class MessageRateStats {
      */
     private static final DateTimeFormatter s_dateTimeFormatter = DateTimeFormat.forPattern("MM/dd/yyyy HH:mm:ss");
 
+    /**
+     * Value of m_messageInputTime before the first message
+     */
+    private static final long NO_MESSAGE = Long.MIN_VALUE;
+
+    /**
+     * Initial number of message rows of the count array
+     */
+    private static final int INITIAL_MESSAGE_ROWS = 64;
+
     /**
      * The outputTimeZone defined in the conf file.
      */
-    private static DateTimeZone s_outTimeZone;
+    private DateTimeZone m_outTimeZone;
 
     /**
      * The frequency where reports are generated
@@ -179,9 +203,9 @@ public class MessageRateStats {
     private DateTime m_processingStartDateTime;
 
     /**
-     * The input time of the most recent message
+     * The input time of the most recent message, NO_MESSAGE before the first one
      */
-    private DateTime m_messageInputDateTime;
+    private long m_messageInputTime = NO_MESSAGE;
 
     /**
      * Logger
@@ -219,16 +243,36 @@ public class MessageRateStats {
     private long m_beginOfNextInterval = 0;
 
     /**
-     * The current index of the 10MinutesMsgCountArray 
+     * The current index of the 10 minutes slots 
      */
     private int m_currentIndex10MinutesMsgCountArray = 0;
 
     /**
-     * A map from Msg ID to the MsgStats object.
+     * A map from Msg ID to its index in this interval, i.e. its row of the count array.
      */
-    private Map<String, MessageStats> m_msgIdToMsgStatsMap = new HashMap<String, MessageRateStats.MessageStats>();
+    private final Map<String, Integer> m_msgIdToIndexMap = new HashMap<String, Integer>();
     private final static int MAX_MESSAGE_STATS_TO_KEEP = 1000;
-    private static int s_maxMsgToKeep = 1000;
+    private int m_maxMsgToKeep = 1000;
+
+    /**
+     * The 10 minutes counts of the messages of this interval, a row of m_numberOf10MinutesSlotsToKeep
+     * slots per message index.  Grows up to m_maxMsgToKeep rows.
+     */
+    private int[] m_10MinutesMsgCounts;
+
+    /**
+     * Whether the message of an index is a 2nd message, i.e. a wrapped one.
+     */
+    private boolean[] m_isMsg2;
+
+    /**
+     * The sums of the sub intervals of the current interval, for each sub interval size, reused by
+     * endOfIntervalProcessing().
+     */
+    private long[][] m_subIntervalMsg1UniqueMsgIdCounts;
+    private long[][] m_subIntervalMsg1TotalMsgCounts;
+    private long[][] m_subIntervalMsg2UniqueMsgIdCounts;
+    private long[][] m_subIntervalMsg2TotalMsgCounts;
 
     /**
      * The source this stats object represents
@@ -256,7 +300,32 @@ public class MessageRateStats {
 
         getConfiguration(numberOf10MinutesIntervalToKeep, intervalSizeList);
 
-        if (intervalSizeList.length == 0) {
+        init();
+    }
+
+    /**
+     * Constructor with explicit configuration
+     * @param source 
+     * @throws AdeException 
+     */
+    MessageRateStats(String source, short numberOf10MinutesSlotsToKeep, short[] intervalSizeList, int maxMsgToKeep,
+            ReportFrequency reportFrequency, DateTimeZone outTimeZone) throws AdeException {
+        m_source = source;
+        m_numberOf10MinutesSlotsToKeep = numberOf10MinutesSlotsToKeep;
+        m_subIntervalSizeList = intervalSizeList;
+        m_maxMsgToKeep = maxMsgToKeep;
+        m_reportFrequency = reportFrequency;
+        m_outTimeZone = outTimeZone;
+
+        init();
+    }
+
+    /**
+     * Verify the configuration and allocate the arrays.
+     * @throws AdeException 
+     */
+    private void init() throws AdeException {
+        if (m_subIntervalSizeList.length == 0) {
             final String msg = "tenMinutesIntervalSizeList has a size of 0";
             logger.warn(msg);
             throw new AdeExtUsageException(msg);
@@ -272,6 +341,22 @@ public class MessageRateStats {
             }
         }
 
+        final int rows = Math.max(0, Math.min(INITIAL_MESSAGE_ROWS, m_maxMsgToKeep));
+        m_10MinutesMsgCounts = new int[rows * m_numberOf10MinutesSlotsToKeep];
+        m_isMsg2 = new boolean[rows];
+
+        m_subIntervalMsg1UniqueMsgIdCounts = new long[m_subIntervalSizeList.length][];
+        m_subIntervalMsg1TotalMsgCounts = new long[m_subIntervalSizeList.length][];
+        m_subIntervalMsg2UniqueMsgIdCounts = new long[m_subIntervalSizeList.length][];
+        m_subIntervalMsg2TotalMsgCounts = new long[m_subIntervalSizeList.length][];
+        for (int i = 0; i < m_subIntervalSizeList.length; i++) {
+            final int numberOfSubIntervals = m_numberOf10MinutesSlotsToKeep / m_subIntervalSizeList[i];
+            m_subIntervalMsg1UniqueMsgIdCounts[i] = new long[numberOfSubIntervals];
+            m_subIntervalMsg1TotalMsgCounts[i] = new long[numberOfSubIntervals];
+            m_subIntervalMsg2UniqueMsgIdCounts[i] = new long[numberOfSubIntervals];
+            m_subIntervalMsg2TotalMsgCounts[i] = new long[numberOfSubIntervals];
+        }
+
         /* Initialize the OverStats object for each requested interval size. */
         initOverallStatsForAllIntervals();
     }
@@ -282,12 +367,12 @@ public class MessageRateStats {
      */
     private void getConfiguration(short numberOf10MinutesSlotsToKeep, short[] intervalSizeList) throws AdeException {
         final TimeZone outJavaTimeZone = Ade.getAde().getConfigProperties().getOutputTimeZone();
-        s_outTimeZone = DateTimeZone.forOffsetMillis(outJavaTimeZone.getRawOffset());
+        m_outTimeZone = DateTimeZone.forOffsetMillis(outJavaTimeZone.getRawOffset());
 
         /* Set the number of messages to keep */
-        s_maxMsgToKeep = AdeExt.getAdeExt().getConfigProperties().getMsgRateMsgToKeep();
-        if (s_maxMsgToKeep == -1) {
-            s_maxMsgToKeep = MAX_MESSAGE_STATS_TO_KEEP;
+        m_maxMsgToKeep = AdeExt.getAdeExt().getConfigProperties().getMsgRateMsgToKeep();
+        if (m_maxMsgToKeep == -1) {
+            m_maxMsgToKeep = MAX_MESSAGE_STATS_TO_KEEP;
         }
 
         /* Set the report frequency */
@@ -323,48 +408,67 @@ public class MessageRateStats {
         logger.info("Tracking Message Rate for " + m_source + " for "
                 + m_numberOf10MinutesSlotsToKeep + " ten minutes slots"
                 + " reportFreq=" + m_reportFrequency.toString()
-                + " maxMsgToKeep=" + s_maxMsgToKeep
+                + " maxMsgToKeep=" + m_maxMsgToKeep
                 + " 10MinIntervals=" + bldtrace.toString());
     }
 
+    /**
+     * @return the input time as a date time of the output time zone
+     */
+    private DateTime toOutputDateTime(long inputTime) {
+        return new DateTime(inputTime).withZone(m_outTimeZone);
+    }
+
     /**
      * Add a message to the collection
      * @throws AdeException 
      */
     public void markLoggerStarting(long nextMessageInputTime) throws AdeException {
-        if (m_messageInputDateTime == null) {
+        final String reportString;
+        synchronized (this) {
+            reportString = getLoggerUnavailableReport(nextMessageInputTime);
+        }
+        if (reportString != null) {
+            statsLogger.info(reportString);
+        }
+    }
+
+    /**
+     * @return the line reporting the ten minutes intervals the logger was unavailable before the
+     * next message, or null if there are none.
+     */
+    private String getLoggerUnavailableReport(long nextMessageInputTime) {
+        if (m_messageInputTime == NO_MESSAGE) {
             /* This is the first time we process a process for this source, and this message indicate the logger
              * just started.  No logging needed. */
-            return;
+            return null;
         }
 
         /* Find the starting of the next ten minutes interval for the previous message. */
-        long prevMessageInputTime = m_messageInputDateTime.getMillis();
+        long prevMessageInputTime = m_messageInputTime;
         if (prevMessageInputTime % TEN_MINUTES > 0) {
 
             prevMessageInputTime = TEN_MINUTES * (prevMessageInputTime / TEN_MINUTES) + TEN_MINUTES;
         }
-        final DateTime prevMessageDateTime = new DateTime(prevMessageInputTime).withZone(s_outTimeZone);
 
         /* Find the end of the 10 minutes interval before the next message */
         nextMessageInputTime = TEN_MINUTES * (nextMessageInputTime / TEN_MINUTES);
-        final DateTime nextMessageDateTime = new DateTime(nextMessageInputTime).withZone(s_outTimeZone);
 
         /* Find the number of 10 minutes interval being skipped */
         final long skippedInterval = (nextMessageInputTime - prevMessageInputTime) / TEN_MINUTES;
 
         /* Note: Skipped Interval could be less than 0, if the next Message and pre Message are within
          * the same 10 minutes interval.   */
-        if (skippedInterval > 0) {
-            /* Write out the message, using the previous message's timestamp */
-            final DateTime dateTime = m_messageInputDateTime;
-            final String dateStr = s_dateTimeFormatter.print(dateTime);
-            final String reportString = m_source + ", " + dateStr
-                    + ", Logger Unavailable For (10 min intervals)=" + skippedInterval
-                    + ", emptyIntervalStart=" + s_dateTimeFormatter.print(prevMessageDateTime)
-                    + ", emptyIntervalEnd=" + s_dateTimeFormatter.print(nextMessageDateTime);
-            statsLogger.info(reportString);
+        if (skippedInterval <= 0) {
+            return null;
         }
+
+        /* Write out the message, using the previous message's timestamp */
+        final String dateStr = s_dateTimeFormatter.print(toOutputDateTime(m_messageInputTime));
+        return m_source + ", " + dateStr
+                + ", Logger Unavailable For (10 min intervals)=" + skippedInterval
+                + ", emptyIntervalStart=" + s_dateTimeFormatter.print(toOutputDateTime(prevMessageInputTime))
+                + ", emptyIntervalEnd=" + s_dateTimeFormatter.print(toOutputDateTime(nextMessageInputTime));
     }
 
     /**
@@ -372,27 +476,46 @@ public class MessageRateStats {
      * @throws AdeException 
      */
     public void addMessage(String msgId, long inputTime, boolean isWrapperMessage) throws AdeException {
-        m_messageInputDateTime = new DateTime(inputTime).withZone(s_outTimeZone);
+        final Report report;
+        synchronized (this) {
+            report = addMessageAndGetReport(msgId, inputTime, isWrapperMessage);
+        }
+        if (report != null) {
+            report.write();
+        }
+    }
+
+    /**
+     * Add a message to the counts.
+     * @return the report due at the end of the interval the message closes, if any.
+     */
+    private Report addMessageAndGetReport(String msgId, long inputTime, boolean isWrapperMessage) {
+        m_messageInputTime = inputTime;
 
         /* Update the time/index as needed */
-        determineAndProcessEndOfInterval(inputTime);
+        final Report report = determineAndProcessEndOfInterval(inputTime);
 
-        /* Look up the msgRateStats for the msgId.  If not exist, add it */
-        MessageStats msgRateStats = m_msgIdToMsgStatsMap.get(msgId);
-        if (msgRateStats == null) {
+        /* Look up the index of the msgId.  If not exist, add it */
+        final Integer msgIndex = m_msgIdToIndexMap.get(msgId);
+        final int index;
+        if (msgIndex != null) {
+            index = msgIndex;
+        } else {
             /* The number of entry allowed to add to the HashMap is limited,
              * this is to control memory consumption.  
              * 
              * The goal for this Message Rate tracker is to determine 
              * if there are "enough" unique messages, if there are more than 
-             * 1000 in 2 hours, it already satisfied our needs.Was
+             * 1000 in 2 hours, it already satisfied our needs.
              */
-            if (m_msgIdToMsgStatsMap.size() >= s_maxMsgToKeep) {
-                return;
+            if (m_msgIdToIndexMap.size() >= m_maxMsgToKeep) {
+                return report;
             }
 
-            msgRateStats = new MessageStats(msgId, m_numberOf10MinutesSlotsToKeep, isWrapperMessage);
-            m_msgIdToMsgStatsMap.put(msgId, msgRateStats);
+            index = m_msgIdToIndexMap.size();
+            ensureMessageRows(index + 1);
+            m_isMsg2[index] = isWrapperMessage;
+            m_msgIdToIndexMap.put(msgId, index);
         }
 
         /* The inputTime is guarantee to be in the current interval or before. 
@@ -409,56 +532,72 @@ public class MessageRateStats {
             /* Only if the message is > begin of interval, then we will add it.
              * This will allow message go back in time at most 2 hours.
              */
-            msgRateStats.addMessage(m_currentIndex10MinutesMsgCountArray);
+            final int slot = index * m_numberOf10MinutesSlotsToKeep + m_currentIndex10MinutesMsgCountArray;
+
+            /* Limit the count to MAX, so that it will not wrap over */
+            if (m_10MinutesMsgCounts[slot] < Integer.MAX_VALUE) {
+                m_10MinutesMsgCounts[slot]++;
+            }
         }
 
+        return report;
+    }
+
+    /**
+     * Grow the count arrays to hold at least the given number of messages.  The arrays are doubled,
+     * so that growing is rare, and never shrink.
+     */
+    private void ensureMessageRows(int rows) {
+        final int currentRows = m_isMsg2.length;
+        if (rows <= currentRows) {
+            return;
+        }
+        final int newRows = (int) Math.min(Math.max((long) rows, 2L * currentRows), (long) m_maxMsgToKeep);
+        m_10MinutesMsgCounts = Arrays.copyOf(m_10MinutesMsgCounts, newRows * m_numberOf10MinutesSlotsToKeep);
+        m_isMsg2 = Arrays.copyOf(m_isMsg2, newRows);
     }
 
     /**
      * Manage the time, and set the proper index.
-     * @throws AdeException 
+     * @return the report due at the end of the interval, if any.
      */
-    private void determineAndProcessEndOfInterval(long inputTime) throws AdeException {
+    private Report determineAndProcessEndOfInterval(long inputTime) {
         if (m_beginOfInterval == 0) {
             /* Determine the beginning of interval */
             m_beginOfInterval = (inputTime / m_numberOf10MinutesSlotsToKeep / TEN_MINUTES) * m_numberOf10MinutesSlotsToKeep * TEN_MINUTES;
             m_beginOfNextInterval = m_beginOfInterval + m_numberOf10MinutesSlotsToKeep * TEN_MINUTES;
 
             /* Keep the last report time and when this process started */
-            m_lastReportDateTimeBegin = new DateTime(m_beginOfInterval).withZone(s_outTimeZone);
-            m_lastReportDateTimeBegin = m_lastReportDateTimeBegin.withTimeAtStartOfDay();
+            m_lastReportDateTimeBegin = toOutputDateTime(m_beginOfInterval).withTimeAtStartOfDay();
 
-            m_processingStartDateTime = new DateTime(m_lastReportDateTimeBegin.getMillis()).withZone(s_outTimeZone);
-        } else {
-            boolean isNewInterval = false;
+            m_processingStartDateTime = toOutputDateTime(m_lastReportDateTimeBegin.getMillis());
+            return null;
+        }
 
-            /* Message's input time is greater than current interval */
-            if (inputTime >= m_beginOfNextInterval) {
-                endOfIntervalProcessing(inputTime);
-                isNewInterval = true;
-                m_beginOfInterval = m_beginOfNextInterval;
-                m_beginOfNextInterval = m_beginOfInterval + m_numberOf10MinutesSlotsToKeep * TEN_MINUTES;
+        /* Message's input time is not past the current interval */
+        if (inputTime < m_beginOfNextInterval) {
+            return null;
+        }
 
-                /* Reset the count array index to 0 */
-                m_currentIndex10MinutesMsgCountArray = 0;
-            }
+        endOfIntervalProcessing();
+        m_beginOfInterval = m_beginOfNextInterval;
+        m_beginOfNextInterval = m_beginOfInterval + m_numberOf10MinutesSlotsToKeep * TEN_MINUTES;
 
-            /* if the inputTime is still greater than the next interval, 
-             * continue to find the beginning of next interval. */
-            while (inputTime >= m_beginOfNextInterval) {
-                endOfIntervalProcessing(inputTime);
+        /* Reset the count array index to 0 */
+        m_currentIndex10MinutesMsgCountArray = 0;
 
-                /* We don't call endOfIntervalProcessing() here, because those interval missed 
-                 * are considered no data and shouldn't affect the stddev calculation. */
-                m_beginOfInterval = m_beginOfNextInterval;
-                m_beginOfNextInterval = m_beginOfInterval + m_numberOf10MinutesSlotsToKeep * TEN_MINUTES;
-            }
+        /* if the inputTime is still greater than the next interval, 
+         * continue to find the beginning of next interval. */
+        while (inputTime >= m_beginOfNextInterval) {
+            /* The intervals missed have no data, they are added as intervals with zero counts. */
+            endOfIntervalProcessing();
 
-            if (isNewInterval) {
-                /* If it's time to generate report, then generate the report */
-                generateReportIfNeeded(inputTime);
-            }
+            m_beginOfInterval = m_beginOfNextInterval;
+            m_beginOfNextInterval = m_beginOfInterval + m_numberOf10MinutesSlotsToKeep * TEN_MINUTES;
         }
+
+        /* If it's time to generate report, then generate the report */
+        return generateReportIfNeeded(inputTime);
     }
 
     /**
@@ -470,74 +609,56 @@ public class MessageRateStats {
      * to the "overallStats" object for 10 minutes interval (same for 20, 30 minutes).
      * 
      * These overallStats will get reset once a report is generated and outputted.
-     * @param inputTime 
-     * @throws AdeException 
      */
-    private void endOfIntervalProcessing(long inputTime) throws AdeException {
-        /* Initialize an array to keep track of the subInterval statistics */
-        final long[][] arrayOfSubIntervalMsg1UniqueMsgIdCount = new long[m_subIntervalSizeList.length][];
-        final long[][] arrayOfSubIntervalMsg1TotalMsgCount = new long[m_subIntervalSizeList.length][];
-
-        final long[][] arrayOfSubIntervalMsg2UniqueMsgIdCount = new long[m_subIntervalSizeList.length][];
-        final long[][] arrayOfSubIntervalMsg2TotalMsgCount = new long[m_subIntervalSizeList.length][];
+    private void endOfIntervalProcessing() {
+        final int numberOfMessages = m_msgIdToIndexMap.size();
+        final int slots = m_numberOf10MinutesSlotsToKeep;
 
         for (int i = 0; i < m_subIntervalSizeList.length; i++) {
-            final short intervalCount = m_subIntervalSizeList[i];
-            arrayOfSubIntervalMsg1UniqueMsgIdCount[i] = new long[m_numberOf10MinutesSlotsToKeep / intervalCount];
-            arrayOfSubIntervalMsg1TotalMsgCount[i] = new long[m_numberOf10MinutesSlotsToKeep / intervalCount];
-
-            arrayOfSubIntervalMsg2UniqueMsgIdCount[i] = new long[m_numberOf10MinutesSlotsToKeep / intervalCount];
-            arrayOfSubIntervalMsg2TotalMsgCount[i] = new long[m_numberOf10MinutesSlotsToKeep / intervalCount];
-        }
-
-        /* Go through all messages */
-        final Collection<MessageStats> msgStatsCollection = m_msgIdToMsgStatsMap.values();
-        for (MessageStats msgStats : msgStatsCollection) {
-            for (int i = 0; i < m_subIntervalSizeList.length; i++) {
-                final short subIntervalSize = m_subIntervalSizeList[i];
-
-                final long[] intervalCountArray = msgStats.getCountBasedOnIntervalSize(subIntervalSize);
-
-                /* Determine number of the subInterval has message */
-                for (int j = 0; j < intervalCountArray.length; j++) {
-                    final long intervalCount = intervalCountArray[j];
-
-                    if (msgStats.isMsg1()) {
-                        /* Total Message Count */
-                        arrayOfSubIntervalMsg1TotalMsgCount[i][j] += intervalCount;
-
-                        /* Unique Message Count */
-                        if (intervalCount > 0) {
-                            /* Increase the count array, once per message per interval if 
-                             * the message appears at least once.
-                             */
-                            arrayOfSubIntervalMsg1UniqueMsgIdCount[i][j]++;
-                        }
-                    } else {
-                        /* Total Message Count */
-                        arrayOfSubIntervalMsg2TotalMsgCount[i][j] += intervalCount;
-
-                        /* Unique Message Count */
-                        if (intervalCount > 0) {
-                            /* Increase the count array, once per message per interval if 
-                             * the message appears at least once.
-                             */
-                            arrayOfSubIntervalMsg2UniqueMsgIdCount[i][j]++;
-                        }
+            final short subIntervalSize = m_subIntervalSizeList[i];
+            final long[] msg1UniqueMsgIdCounts = m_subIntervalMsg1UniqueMsgIdCounts[i];
+            final long[] msg1TotalMsgCounts = m_subIntervalMsg1TotalMsgCounts[i];
+            final long[] msg2UniqueMsgIdCounts = m_subIntervalMsg2UniqueMsgIdCounts[i];
+            final long[] msg2TotalMsgCounts = m_subIntervalMsg2TotalMsgCounts[i];
+            Arrays.fill(msg1UniqueMsgIdCounts, 0);
+            Arrays.fill(msg1TotalMsgCounts, 0);
+            Arrays.fill(msg2UniqueMsgIdCounts, 0);
+            Arrays.fill(msg2TotalMsgCounts, 0);
+
+            /* Go through all messages */
+            for (int msg = 0; msg < numberOfMessages; msg++) {
+                final long[] uniqueMsgIdCounts = m_isMsg2[msg] ? msg2UniqueMsgIdCounts : msg1UniqueMsgIdCounts;
+                final long[] totalMsgCounts = m_isMsg2[msg] ? msg2TotalMsgCounts : msg1TotalMsgCounts;
+
+                /* Sum up every N slots of the message's row */
+                int slot = msg * slots;
+                for (int j = 0; j < uniqueMsgIdCounts.length; j++) {
+                    long intervalCount = 0;
+                    for (int k = 0; k < subIntervalSize; k++) {
+                        intervalCount += m_10MinutesMsgCounts[slot++];
+                    }
+
+                    /* Total Message Count */
+                    totalMsgCounts[j] += intervalCount;
+
+                    /* Unique Message Count */
+                    if (intervalCount > 0) {
+                        /* Increase the count array, once per message per interval if 
+                         * the message appears at least once.
+                         */
+                        uniqueMsgIdCounts[j]++;
                     }
                 }
             }
+
+            /* Add the statistics from the interval to the overallStats*/
+            m_overallStatsForAllIntervals[i].addStats(msg1UniqueMsgIdCounts, msg1TotalMsgCounts,
+                    msg2UniqueMsgIdCounts, msg2TotalMsgCounts);
         }
 
         /* Clear the list of msg that we are tracking. */
-        m_msgIdToMsgStatsMap.clear();
-
-        /* Add the statistics from the interval to the overallStats*/
-        for (int i = 0; i < m_subIntervalSizeList.length; i++) {
-            m_overallStatsForAllIntervals[i].addStats(
-                    arrayOfSubIntervalMsg1UniqueMsgIdCount[i], arrayOfSubIntervalMsg1TotalMsgCount[i],
-                    arrayOfSubIntervalMsg2UniqueMsgIdCount[i], arrayOfSubIntervalMsg2TotalMsgCount[i]);
-        }
+        Arrays.fill(m_10MinutesMsgCounts, 0, numberOfMessages * slots, 0);
+        m_msgIdToIndexMap.clear();
     }
 
     /**
@@ -555,15 +676,15 @@ public class MessageRateStats {
     }
 
     /**
-     * Output the overallStats to logger
-     * @throws AdeException 
+     * Take the report of the overallStats if needed
+     * @return the report, or null if none is due.
      */
-    private void generateReportIfNeeded(long inputTime) throws AdeException {
-        final DateTime inputDateTimeStartOfDay = new DateTime(inputTime).withZone(s_outTimeZone).withTimeAtStartOfDay();
+    private Report generateReportIfNeeded(long inputTime) {
+        final DateTime inputDateTimeStartOfDay = toOutputDateTime(inputTime).withTimeAtStartOfDay();
         final int daysSinceLastReported = Days.daysBetween(m_lastReportDateTimeBegin, inputDateTimeStartOfDay).getDays();
         if (daysSinceLastReported < 1) {
             /* Do not need report if the days is less than 1 day */
-            return;
+            return null;
         }
 
         boolean createReport = false;
@@ -609,16 +730,19 @@ public class MessageRateStats {
                 break;
         }
 
-        /* Write out the report */
-        if (createReport) {
-            generateReport(getYesterdayEndOfDay(inputDateTimeStartOfDay));
-            m_lastReportDateTimeBegin = inputDateTimeStartOfDay;
+        if (!createReport) {
+            return null;
+        }
 
-            /* Reset all the data */
-            if (resetData) {
-                initOverallStatsForAllIntervals();
-            }
+        /* Take the report */
+        final Report report = takeReport(s_dateTimeFormatter.print(getYesterdayEndOfDay(inputDateTimeStartOfDay)));
+        m_lastReportDateTimeBegin = inputDateTimeStartOfDay;
+
+        /* Reset all the data */
+        if (resetData) {
+            initOverallStatsForAllIntervals();
         }
+        return report;
     }
 
     /**
@@ -643,11 +767,15 @@ public class MessageRateStats {
          * 
          * When this is called, the timestamp of the message last seen will be used.
          */
-        if (m_messageInputDateTime != null) {
-            generateReport(m_messageInputDateTime);
-        } else {
-            generateReport("EndOfFile_No_Date");
+        final Report report;
+        synchronized (this) {
+            if (m_messageInputTime != NO_MESSAGE) {
+                report = takeReport(s_dateTimeFormatter.print(toOutputDateTime(m_messageInputTime)));
+            } else {
+                report = takeReport("EndOfFile_No_Date");
+            }
         }
+        report.write();
     }
 
     /**
@@ -657,101 +785,67 @@ public class MessageRateStats {
      */
     public void generateReport(DateTime dateTime) throws AdeException {
         final String dateStr = s_dateTimeFormatter.print(dateTime);
-        generateReport(dateStr);
+        final Report report;
+        synchronized (this) {
+            report = takeReport(dateStr);
+        }
+        report.write();
     }
 
     /**
-     * Generate a report
-     * @throws AdeException 
+     * Take a copy of the overallStats, to be written without holding the lock of this object.
      */
-    private void generateReport(String dateStr) throws AdeException {
-        /* Write the log for parsing errors */
-        MessagesWithParseErrorStats.getParserErrorStats().writeToLog();
-
-        final String reportString = m_source + ", " + dateStr + ", ";
-        for (OverallStats overallStats : m_overallStatsForAllIntervals) {
-            final String trace = reportString + " " + overallStats.toString();
-            statsLogger.info(trace);
+    private Report takeReport(String dateStr) {
+        final OverallStats[] overallStats = new OverallStats[m_overallStatsForAllIntervals.length];
+        for (int i = 0; i < overallStats.length; i++) {
+            overallStats[i] = new OverallStats(m_overallStatsForAllIntervals[i]);
         }
+        return new Report(m_source + ", " + dateStr + ", ", overallStats);
+    }
+
+    /**
+     * @return a copy of the overallStats, for the tests.
+     */
+    synchronized OverallStats[] getOverallStats() {
+        return takeReport("").m_overallStats;
     }
 
     @Override
-    public String toString() {
-        final DateTime beginOfIntervalDateTime = new DateTime(m_beginOfInterval).withZone(s_outTimeZone);
+    public synchronized String toString() {
+        final DateTime beginOfIntervalDateTime = toOutputDateTime(m_beginOfInterval);
 
         String trace = "source=" + m_source + " curIndex=" + m_currentIndex10MinutesMsgCountArray;
-        trace += " inputDateTime=" + m_messageInputDateTime;
+        trace += " inputDateTime=" + (m_messageInputTime != NO_MESSAGE ? toOutputDateTime(m_messageInputTime) : null);
         trace += " lastReportDateTimeStartOfDay=" + m_lastReportDateTimeBegin;
         trace += "\n beginProcessingDateTime=" + m_processingStartDateTime;
         trace += " beginInterval=" + beginOfIntervalDateTime;
         return trace;
     }
 
-    private static class MessageStats {
-        private String m_msgId;
-        private int[] m_10MinutesMsgCountArray;
-        private boolean m_isMsg2;
-
-        /**
-         * Create a new object for a message
-         */
-        public MessageStats(String msgId, int numberOf10MinutesInterval, boolean isMsg2) {
-            m_msgId = msgId;
-            m_10MinutesMsgCountArray = new int[numberOf10MinutesInterval];
-            m_isMsg2 = isMsg2;
-        }
-
-        /**
-         * Indicate a new occurrance of this message
-         */
-        public void addMessage(int index) {
-            /* Limit the count to MAX, so that it will not wrap over */
-            if (m_10MinutesMsgCountArray[index] < Integer.MAX_VALUE) {
-                m_10MinutesMsgCountArray[index]++;
-            }
-        }
-
-        /**
-         * Given a requested interval size (10, 20 minutes), generate a count of occurrence for 
-         * that interval.
-         * 
-         * @return
-         */
-        public long[] getCountBasedOnIntervalSize(short numberOf10MinutesSlotPerSubInterval) {
-            final int numberOfSubIntervals = m_10MinutesMsgCountArray.length / numberOf10MinutesSlotPerSubInterval;
-            final long[] subIntervals = new long[numberOfSubIntervals];
-
-            /* Sum up every N entry in the array */
-            for (int i = 0; i < subIntervals.length; i++) {
-                long value = 0;
-                for (int j = 0; j < numberOf10MinutesSlotPerSubInterval; j++) {
-                    final int tenMinutesArrayIndex = i * numberOf10MinutesSlotPerSubInterval + j;
-                    value += m_10MinutesMsgCountArray[tenMinutesArrayIndex];
-                }
-
-                subIntervals[i] = value;
-            }
+    /**
+     * A report taken from the overallStats
+     */
+    private static class Report {
+        private final String m_reportString;
+        private final OverallStats[] m_overallStats;
 
-            return subIntervals;
+        Report(String reportString, OverallStats[] overallStats) {
+            m_reportString = reportString;
+            m_overallStats = overallStats;
         }
 
         /**
-         * Whether this message is 2nd message
-         * @return
+         * Write the report to the logger
+         * @throws AdeException 
          */
-        public boolean isMsg1() {
-            return !m_isMsg2;
-        }
+        void write() throws AdeException {
+            /* Write the log for parsing errors */
+            MessagesWithParseErrorStats.getParserErrorStats().writeToLog();
 
-        @Override
-        public String toString() {
-            StringBuilder bldstr = new StringBuilder(m_msgId);
-            for (int i = 0; i < m_10MinutesMsgCountArray.length; i++) {
-                final int count = m_10MinutesMsgCountArray[i];
-                bldstr.append(", i" + i + "=" + count);
+            for (OverallStats overallStats : m_overallStats) {
+                final String trace = m_reportString + " " + overallStats.toString();
+                statsLogger.info(trace);
             }
-
-            return bldstr.toString();
         }
     }
 
@@ -806,6 +900,23 @@ public class MessageRateStats {
             m_intervalSizeRepresented = intervalSizeRepresented;
         }
 
+        /**
+         * Copy constructor
+         * @param other
+         */
+        public OverallStats(OverallStats other) {
+            m_intervalSizeRepresented = other.m_intervalSizeRepresented;
+            m_numberOfIntervals = other.m_numberOfIntervals;
+            m_intervalWithZeroCounts = other.m_intervalWithZeroCounts;
+            m_msg1TotalCount = other.m_msg1TotalCount;
+            m_msg2TotalCount = other.m_msg2TotalCount;
+            m_sumOfMsg1UniqueMsgIdCount = other.m_sumOfMsg1UniqueMsgIdCount;
+            m_sumOfMsg2UniqueMsgIdCount = other.m_sumOfMsg2UniqueMsgIdCount;
+            m_sumOfMsg1UniqueMsgIdCountSquare = other.m_sumOfMsg1UniqueMsgIdCountSquare;
+            m_minMsg1UniqueMsgIdCount = other.m_minMsg1UniqueMsgIdCount;
+            m_maxMsg1UniqueMsgIdCount = other.m_maxMsg1UniqueMsgIdCount;
+        }
+
         /**
          * Add an array of stats
          * @param intervalSize
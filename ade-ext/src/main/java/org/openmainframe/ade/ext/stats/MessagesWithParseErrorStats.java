@@ -38,13 +38,29 @@ import org.joda.time.Days;
 import org.joda.time.format.DateTimeFormat;
 import org.joda.time.format.DateTimeFormatter;
 
+/**
+ * Keeps track of the most frequent representations (line prefixes) of lines that could
+ * not be parsed, and writes them to the log.
+ * <p>
+ * The representations are counted with the Space-Saving algorithm, in a fixed number of
+ * counters kept in a Stream-Summary: counters of equal count share a bucket, and the
+ * buckets are linked in increasing order of count. Counting a representation that has a
+ * counter moves the counter to the next bucket. A new representation takes the counter of
+ * the minimum count, which is at the head of the first bucket, and continues its count.
+ * Both are O(1), so a burst of distinct malformed lines costs the same per line as any
+ * other input. Any representation that occurs more than once per number of counters lines
+ * is guaranteed to have a counter.
+ * <p>
+ * Lines may be added by several reader threads. The representation of a line is computed
+ * before taking the lock of the counters.
+ */
 public class MessagesWithParseErrorStats {
     /**
-     * A hashmap to keep track of stats objects
+     * The singleton
      */
     static private MessagesWithParseErrorStats stats = null;
 
-    public static MessagesWithParseErrorStats getParserErrorStats() throws AdeException {
+    public static synchronized MessagesWithParseErrorStats getParserErrorStats() throws AdeException {
         if (stats == null) {
             stats = new MessagesWithParseErrorStats();
         }
@@ -84,28 +100,39 @@ public class MessagesWithParseErrorStats {
     final static int REPRESENTATION_TOKEN_COUNT_FOR_GENERAL = 10;
 
     /**
-     * Maximum number of messages to keep, and the number of message
-     * before cleanup will happen.
+     * Maximum number of messages to keep, and the number of additional counters
+     * that let new representations compete with the kept ones.
      */
     final static int DEFAULT_NUMBER_OF_PARSE_ERROR_TO_KEEP = 100;
-    final static int DEFAULT_NUMBER_OF_PARSE_ERROR_ADDITIONAL_FOR_CLEANUP = 20;
+    final static int DEFAULT_NUMBER_OF_PARSE_ERROR_ADDITIONAL_COUNTERS = 20;
     private int m_numberOfParseErrorToKeepMax = 100;
-    private int m_numberOfParseErrorToRunCleanup = 110;
+    private int m_numberOfCounters = 120;
+
+    /**
+     * Maximum length of a message representation, so that the counters take fixed memory
+     * even for long lines without spaces.
+     */
+    final static int MAX_REPRESENTATION_LENGTH = 1024;
 
     /**
      * Number of days different before considering the message are different
-     * during cleanup.
+     * when ordering the report.
      */
     final static int DEFAULT_NUMBER_OF_DAYS_TO_CONSIDER_CLEANUP_PRIORITY = 2;
     static private int m_numberOfDaysToConsiderCleanupPriority = 2;
 
     /**
-     * A mapping from MsgRep to Msg Stats
+     * A mapping from MsgRep to its counter. Guarded by this.
+     */
+    private final Map<String, MessageStats> m_msgRepToMsgStatsMap;
+
+    /**
+     * The bucket of the minimum count, the head of the bucket list. Guarded by this.
      */
-    private Map<String, MessageStats> m_msgRepToMsgStatsMap;
+    private CountBucket m_minBucket = null;
 
     /**
-     * Whether there are new errors
+     * Whether there are new errors. Guarded by this.
      */
     private boolean isThereNewErrors = true;
 
@@ -114,31 +141,40 @@ public class MessagesWithParseErrorStats {
      * @throws AdeException 
      */
     private MessagesWithParseErrorStats() throws AdeException {
-        m_msgRepToMsgStatsMap = new HashMap<String, MessagesWithParseErrorStats.MessageStats>();
+        this(AdeExt.getAdeExt().getConfigProperties().getParseErrorsToKeep(),
+                AdeExt.getAdeExt().getConfigProperties().getParseErrorDaysToTolerate());
+    }
 
+    /**
+     * Constructor with explicit configuration
+     * @param numberOfParseErrorToKeep number of representations to keep, negative for the default
+     * @param numberOfDaysToTolerate days within which the report orders by count, negative for the default
+     */
+    MessagesWithParseErrorStats(int numberOfParseErrorToKeep, int numberOfDaysToTolerate) {
         /* Set the numberOfParseErrorToKeep */
-        m_numberOfParseErrorToKeepMax = AdeExt.getAdeExt().getConfigProperties().getParseErrorsToKeep();
+        m_numberOfParseErrorToKeepMax = numberOfParseErrorToKeep;
         if (m_numberOfParseErrorToKeepMax < 0) {
-            m_numberOfParseErrorToKeepMax = 100;
+            m_numberOfParseErrorToKeepMax = DEFAULT_NUMBER_OF_PARSE_ERROR_TO_KEEP;
         }
 
-        /* Set the number of Parse Error that will trigger cleanup */
+        /* Set the number of counters */
         if (m_numberOfParseErrorToKeepMax == 0) {
-            m_numberOfParseErrorToRunCleanup = 0;
+            m_numberOfCounters = 0;
         } else {
-            m_numberOfParseErrorToRunCleanup = m_numberOfParseErrorToKeepMax
-                    + DEFAULT_NUMBER_OF_PARSE_ERROR_ADDITIONAL_FOR_CLEANUP;
+            m_numberOfCounters = m_numberOfParseErrorToKeepMax
+                    + DEFAULT_NUMBER_OF_PARSE_ERROR_ADDITIONAL_COUNTERS;
         }
+        m_msgRepToMsgStatsMap = new HashMap<String, MessagesWithParseErrorStats.MessageStats>(m_numberOfCounters * 2);
 
-        /* Set the numberOfParseErrorToKeep */
-        m_numberOfDaysToConsiderCleanupPriority = AdeExt.getAdeExt().getConfigProperties().getParseErrorDaysToTolerate();
+        /* Set the numberOfDaysToTolerate */
+        m_numberOfDaysToConsiderCleanupPriority = numberOfDaysToTolerate;
         if (m_numberOfDaysToConsiderCleanupPriority < 0) {
             m_numberOfDaysToConsiderCleanupPriority = DEFAULT_NUMBER_OF_DAYS_TO_CONSIDER_CLEANUP_PRIORITY;
         }
 
         logger.info("Tracking Parser Error Objects: "
                 + ", parseErrorToKeep=" + m_numberOfParseErrorToKeepMax
-                + ", parseErrorToRunCleanup=" + m_numberOfParseErrorToRunCleanup
+                + ", parseErrorCounters=" + m_numberOfCounters
                 + ", numberOfDaysToTolerate=" + m_numberOfDaysToConsiderCleanupPriority);
     }
 
@@ -146,46 +182,91 @@ public class MessagesWithParseErrorStats {
      * Add messages
      */
     public void addMessage(String line) {
-        isThereNewErrors = true;
-
         /* Only keep parse error if the Max is > 0 */
         if (m_numberOfParseErrorToKeepMax > 0) {
             final String msgRep = getMessageRepresentation(line);
-            MessageStats msgStats = m_msgRepToMsgStatsMap.get(msgRep);
-            if (msgStats == null) {
-                msgStats = new MessageStats(msgRep);
-                m_msgRepToMsgStatsMap.put(msgStats.getMessageRepresentation(), msgStats);
+            synchronized (this) {
+                isThereNewErrors = true;
+                count(msgRep);
+            }
+        } else {
+            synchronized (this) {
+                isThereNewErrors = true;
             }
-
-            msgStats.occurred();
-            cleanupMapIfNeeded();
         }
     }
 
     /**
-     * Clean up the map
+     * Count an occurrence of a representation, taking over the counter of the minimum
+     * count if it has none and all counters are in use.
      */
-    private void cleanupMapIfNeeded() {
-        final int numberOfMsgKept = m_msgRepToMsgStatsMap.size();
-
-        if (numberOfMsgKept > m_numberOfParseErrorToRunCleanup) {
-            /* During overflow, write it to the log */
-            writeToLog();
-
-            /* Perform cleanup */
-            final List<MessageStats> statsArray = new ArrayList<MessageStats>(m_msgRepToMsgStatsMap.values());
-            Collections.sort(statsArray);
+    private void count(String msgRep) {
+        MessageStats msgStats = m_msgRepToMsgStatsMap.get(msgRep);
+        if (msgStats == null) {
+            if (m_msgRepToMsgStatsMap.size() < m_numberOfCounters) {
+                msgStats = new MessageStats(msgRep);
+                if (m_minBucket == null || m_minBucket.m_count != 0) {
+                    final CountBucket bucket = new CountBucket(0);
+                    bucket.m_next = m_minBucket;
+                    if (m_minBucket != null) {
+                        m_minBucket.m_prev = bucket;
+                    }
+                    m_minBucket = bucket;
+                }
+                m_minBucket.append(msgStats);
+            } else {
+                msgStats = m_minBucket.m_head;
+                m_msgRepToMsgStatsMap.remove(msgStats.getMessageRepresentation());
+                msgStats.reuse(msgRep);
+            }
+            m_msgRepToMsgStatsMap.put(msgRep, msgStats);
+        }
+        msgStats.occurred();
+        increment(msgStats);
+    }
 
-            /* Remove the first few Stats from the beginning of the list, until we reach the max */
-            for (MessageStats stats : statsArray) {
-                final String msgRep = stats.getMessageRepresentation();
-                m_msgRepToMsgStatsMap.remove(msgRep);
+    /**
+     * Move a counter to the bucket of the next count, at its tail, so that the head of
+     * each bucket is its least recently counted representation.
+     */
+    private void increment(MessageStats msgStats) {
+        final CountBucket bucket = msgStats.m_bucket;
+        final int count = bucket.m_count + 1;
+        CountBucket next = bucket.m_next;
+        if (next == null || next.m_count != count) {
+            next = new CountBucket(count);
+            next.m_prev = bucket;
+            next.m_next = bucket.m_next;
+            if (bucket.m_next != null) {
+                bucket.m_next.m_prev = next;
+            }
+            bucket.m_next = next;
+        }
+        bucket.remove(msgStats);
+        if (bucket.m_head == null) {
+            /* Unlink the empty bucket */
+            if (bucket.m_prev == null) {
+                m_minBucket = next;
+            } else {
+                bucket.m_prev.m_next = next;
+            }
+            next.m_prev = bucket.m_prev;
+        }
+        next.append(msgStats);
+    }
 
-                if (m_msgRepToMsgStatsMap.size() <= m_numberOfParseErrorToKeepMax) {
-                    break;
-                }
+    /**
+     * @return the counted representations, in the order of the report
+     */
+    synchronized List<MessageStats> getMessageStats() {
+        final List<MessageStats> statsArray = new ArrayList<MessageStats>(m_msgRepToMsgStatsMap.size());
+        for (CountBucket bucket = m_minBucket; bucket != null; bucket = bucket.m_next) {
+            for (MessageStats msgStats = bucket.m_head; msgStats != null; msgStats = msgStats.m_nextInBucket) {
+                statsArray.add(msgStats.copy());
             }
         }
+        Collections.sort(statsArray);
+        return statsArray;
     }
 
     /**
@@ -243,7 +324,7 @@ public class MessagesWithParseErrorStats {
             }
         }
 
-        ret = line.substring(0, pos);
+        ret = line.substring(0, Math.min(pos, MAX_REPRESENTATION_LENGTH));
 
         return ret;
     }
@@ -252,32 +333,33 @@ public class MessagesWithParseErrorStats {
      * Write the content of this to a log file.
      */
     public void writeToLog() {
-        if (isThereNewErrors) {
-            if (m_msgRepToMsgStatsMap.size() == 0) {
-                /* Don't need any message if there were no error */
-                statslogger.info("No Parser Errors on: " + s_dateTimeFormatter.print(DateTime.now()));
-            } else {
-                /* Only output this if there are new errors */
-
-                final List<MessageStats> statsArray = new ArrayList<MessageStats>(m_msgRepToMsgStatsMap.values());
-                Collections.sort(statsArray);
-
-                statslogger.info("Parser Errors as of: " + s_dateTimeFormatter.print(DateTime.now()));
-                StringBuilder bldout = new StringBuilder("");
-                for (MessageStats stats : statsArray) {
-                    final String newStr = stats.toString();
-                    if ((newStr.length() + bldout.toString().length()) >= (Integer.MAX_VALUE / 2)) {
-                        statslogger.info(bldout.toString());
-                        bldout.append("");
-                    }
-                    bldout.append("\n" + newStr);
-                }
-                statslogger.info(bldout.toString());
-
+        final List<MessageStats> statsArray;
+        synchronized (this) {
+            if (!isThereNewErrors) {
+                return;
             }
-
             /* Set isThereNewErrors to false. */
             isThereNewErrors = false;
+            statsArray = getMessageStats();
+        }
+        if (statsArray.isEmpty()) {
+            /* Don't need any message if there were no error */
+            statslogger.info("No Parser Errors on: " + s_dateTimeFormatter.print(DateTime.now()));
+        } else {
+            /* Only output this if there are new errors */
+
+            statslogger.info("Parser Errors as of: " + s_dateTimeFormatter.print(DateTime.now()));
+            StringBuilder bldout = new StringBuilder("");
+            for (MessageStats stats : statsArray) {
+                final String newStr = stats.toString();
+                if ((newStr.length() + bldout.toString().length()) >= (Integer.MAX_VALUE / 2)) {
+                    statslogger.info(bldout.toString());
+                    bldout.append("");
+                }
+                bldout.append("\n" + newStr);
+            }
+            statslogger.info(bldout.toString());
+
         }
     }
 
@@ -300,6 +382,13 @@ public class MessagesWithParseErrorStats {
          */
         private long m_lastAdded;
 
+        /**
+         * The bucket of the Space-Saving count of this counter, and the neighbors in it.
+         */
+        private CountBucket m_bucket;
+        private MessageStats m_prevInBucket;
+        private MessageStats m_nextInBucket;
+
         /**
          * Constructor
          * @param msgRep
@@ -308,6 +397,25 @@ public class MessagesWithParseErrorStats {
             m_msgRep = msgRep;
         }
 
+        /**
+         * Take over the counter for another representation. The occurrences are counted
+         * from now on, while the Space-Saving count continues.
+         */
+        private void reuse(String msgRep) {
+            m_msgRep = msgRep;
+            m_occurrance = 0;
+        }
+
+        /**
+         * @return a copy of the counted values, outside of the buckets
+         */
+        private MessageStats copy() {
+            final MessageStats res = new MessageStats(m_msgRep);
+            res.m_occurrance = m_occurrance;
+            res.m_lastAdded = m_lastAdded;
+            return res;
+        }
+
         /**
          * Indicate that the message rep has occurred.
          */
@@ -400,6 +508,49 @@ public class MessagesWithParseErrorStats {
         }
     }
 
+    /**
+     * The counters of an equal Space-Saving count, linked in the order they reached it.
+     */
+    private static final class CountBucket {
+        private final int m_count;
+        private MessageStats m_head;
+        private MessageStats m_tail;
+        private CountBucket m_prev;
+        private CountBucket m_next;
+
+        private CountBucket(int count) {
+            m_count = count;
+        }
+
+        private void append(MessageStats msgStats) {
+            msgStats.m_bucket = this;
+            msgStats.m_prevInBucket = m_tail;
+            msgStats.m_nextInBucket = null;
+            if (m_tail == null) {
+                m_head = msgStats;
+            } else {
+                m_tail.m_nextInBucket = msgStats;
+            }
+            m_tail = msgStats;
+        }
+
+        private void remove(MessageStats msgStats) {
+            if (msgStats.m_prevInBucket == null) {
+                m_head = msgStats.m_nextInBucket;
+            } else {
+                msgStats.m_prevInBucket.m_nextInBucket = msgStats.m_nextInBucket;
+            }
+            if (msgStats.m_nextInBucket == null) {
+                m_tail = msgStats.m_prevInBucket;
+            } else {
+                msgStats.m_nextInBucket.m_prevInBucket = msgStats.m_prevInBucket;
+            }
+            msgStats.m_bucket = null;
+            msgStats.m_prevInBucket = null;
+            msgStats.m_nextInBucket = null;
+        }
+    }
+
     /**
      * Main
      * @param argv
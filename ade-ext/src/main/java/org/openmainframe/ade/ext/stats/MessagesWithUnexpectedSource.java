@@ -46,13 +46,14 @@ public final class MessagesWithUnexpectedSource {
     private static Map<String, SourceStatisticsForMessage> sourceToStatisticsMap = new HashMap<String, MessagesWithUnexpectedSource.SourceStatisticsForMessage>();
 
     /**
-     * Add a message that belongs to an unexpected source.
+     * Add a message that belongs to an unexpected source. Synchronized, as readers running concurrently
+     * in the same process share the statistics.
      * 
      * @param source
      * @param timestamp
      * @param message
      */
-    public static void addMessage(String source, long msgTimestamp, String message) {
+    public static synchronized void addMessage(String source, long msgTimestamp, String message) {
         /* Get the sourceStatisticsForMessage object.  If it doesn't expect, create one */
         SourceStatisticsForMessage sourceStatisticsForMessage = sourceToStatisticsMap.get(source);
         if (sourceStatisticsForMessage == null) {
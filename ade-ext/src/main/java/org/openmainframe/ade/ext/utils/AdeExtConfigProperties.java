@@ -49,9 +49,13 @@ public class AdeExtConfigProperties {
     private static final String MSG_RATE_MERGE_SOURCE = "adeext.msgRateMergeSource";
     private static final String STATS_ROOT_DIR = "adeext.statsRootDir";
     private static final String USE_SPARK = "adeext.useSparkLogs";
+    private static final String ASYNC_SOURCE_REGISTRATION = "adeext.asyncSourceRegistration";
+    private static final String SOURCE_REGISTRATION_BUFFER_SIZE = "adeext.sourceRegistrationBufferSize";
+    private static final String MAGIC_WORDS_FILE = "adeext.magicWordsFile";
   
     /* Constants for config property default values */
     private static final String DEFAULT_STATS_ROOT_DIR = "output/ade-stats";
+    private static final int DEFAULT_SOURCE_REGISTRATION_BUFFER_SIZE = 10000;
 
     /* Member variables */
     private final String m_rmiServerCodeBase;
@@ -68,6 +72,9 @@ public class AdeExtConfigProperties {
     private final boolean m_isMsgRateMergeSource;
     private final String m_statsRootDir;
     private final boolean m_useSparkLogs;
+    private final boolean m_isAsyncSourceRegistration;
+    private final int m_sourceRegistrationBufferSize;
+    private final String m_magicWordsFile;
 
     /**
      * Set the AdeExtConfigProperties from the specified property file.
@@ -172,6 +179,22 @@ public class AdeExtConfigProperties {
             m_useSparkLogs = false;
         }
 
+        /* Whether new sources are registered in the background, while their messages are buffered */
+        if (m_props.containsKey(ASYNC_SOURCE_REGISTRATION)) {
+            m_isAsyncSourceRegistration = m_props.getBooleanProperty(ASYNC_SOURCE_REGISTRATION);
+        } else {
+            m_isAsyncSourceRegistration = true;
+        }
+
+        m_sourceRegistrationBufferSize = m_props.getIntProperty(SOURCE_REGISTRATION_BUFFER_SIZE,
+                DEFAULT_SOURCE_REGISTRATION_BUFFER_SIZE);
+        if (m_sourceRegistrationBufferSize <= 0) {
+            throw new AdeUsageException(SOURCE_REGISTRATION_BUFFER_SIZE + " must be positive");
+        }
+
+        /* File of magic words replacing the default ones, one word per line */
+        m_magicWordsFile = m_props.getStringProperty(MAGIC_WORDS_FILE, null);
+
         m_props.verifyAllPropertiesUsed();
     }
 
@@ -240,6 +263,21 @@ public class AdeExtConfigProperties {
         return m_useSparkLogs;
     }
 
+    /** Whether new sources are registered by a background thread instead of the parsing thread */
+    public final boolean isAsyncSourceRegistration() {
+        return m_isAsyncSourceRegistration;
+    }
+
+    /** The maximal number of messages buffered for a new source while it is being registered */
+    public final int getSourceRegistrationBufferSize() {
+        return m_sourceRegistrationBufferSize;
+    }
+
+    /** The file of magic words replacing the default ones, or null if the default ones are used */
+    public final String getMagicWordsFile() {
+        return m_magicWordsFile;
+    }
+
     /**
      * Returns the root directory where statistics are written.
      * 
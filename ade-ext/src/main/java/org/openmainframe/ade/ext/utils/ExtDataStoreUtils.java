@@ -20,13 +20,14 @@
 package org.openmainframe.ade.ext.utils;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.SQLNonTransientConnectionException;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.openmainframe.ade.Ade;
@@ -67,6 +68,11 @@ public final class ExtDataStoreUtils {
     private static final String DERBY_JDBC_TYPE = "jdbc:derby"; 
     private static Logger logger = LoggerFactory.getLogger(ExtDataStoreUtils.class);
 
+    /* The pooled Connection each open Statement was created from.  Statement.getConnection()
+     * returns the underlying physical Connection, which must not be closed directly, so
+     * cleanup() closes the pooled Connection recorded here instead. */
+    private static final Map<Statement, Connection> s_statementConnections = new IdentityHashMap<Statement, Connection>();
+
     private ExtDataStoreUtils() {
         //private constructor
     }
@@ -240,7 +246,8 @@ public final class ExtDataStoreUtils {
      * number of reasons).
      *
      * Note that this is *not* the persistent "Core" Connection provided via the Ade
-     * singleton instance within the current JVM, but rather a short-lived one which
+     * singleton instance within the current JVM, but rather a short-lived one (borrowed
+     * from the core connection pool, and returned to it when closed) which
      * is used/useful for a one-off database usage (hence scope == private), and should
      * likely not be surfaced to ExtDataStoreUtils callers, in case they would fail to
      * understand and exercise their cleanup responsibilities for the Connection.
@@ -249,11 +256,9 @@ public final class ExtDataStoreUtils {
      */
     private static synchronized Connection getConnection() {
 
-        Connection C;
+        Connection C = null;
         final IAdeConfigProperties config = getAdeConfigProperties(); 
         final String databaseUrl = getDatabaseUrl(config); 
-        final String connectionUserid = getDbConnectionUserid(config); 
-        final String connectionPassword = getDbConnectionPassword(config); 
 
         logger.trace("getConnection() -->entry");
         if (databaseUrl.isEmpty()) {
@@ -264,16 +269,10 @@ public final class ExtDataStoreUtils {
         logger.trace(String.format("getConnection() using databaseUrl: %s", databaseUrl)); 
 
         try {
-            //* Determine if user+pwd configured
-            if (connectionUserid.isEmpty()) {
-                logger.info(String.format("getConnection() -> DriverManager.getConnection(%s)",
-                        databaseUrl));
-                C = DriverManager.getConnection(databaseUrl); 
-            } else {
-                logger.info(String.format("getConnection() -> DrverManager.getConnection( %s, %s, <pwd> )",
-                        databaseUrl, connectionUserid, connectionPassword)); 
-                C = DriverManager.getConnection(databaseUrl, connectionUserid, connectionPassword); 
-            }
+            //* Borrow from the core connection pool; closing C returns it to the pool
+            logger.info(String.format("getConnection() -> MyJDBCConnection.borrowConnection() for %s",
+                    databaseUrl));
+            C = MyJDBCConnection.borrowConnection();
             
             // Allows dirty reads 
             C.setTransactionIsolation(Connection.TRANSACTION_READ_UNCOMMITTED); 
@@ -283,11 +282,18 @@ public final class ExtDataStoreUtils {
             }
         } catch (SQLNonTransientConnectionException e) {
             handleConnectFailure(e, databaseUrl); 
+        } catch (AdeException e) {
+            if (e.getCause() instanceof SQLNonTransientConnectionException) {
+                handleConnectFailure((SQLNonTransientConnectionException) e.getCause(), databaseUrl);
+            } else {
+                handleConnectFailure(e);
+            }
         } catch (Throwable t) {
             handleConnectFailure(t); 
         }
 
-        //* just in case 
+        //* just in case (return a borrowed but unusable Connection to the pool)
+        cleanup(C);
         C = null; 
         logger.error("getConnection() <--exit (no connection)"); 
         return null;
@@ -304,19 +310,22 @@ public final class ExtDataStoreUtils {
      *
      * @return - JDBC Statement object
      */
-    private static Statement getStatement() {
+    private static synchronized Statement getStatement() {
 
         Statement S = null;
+        Connection C = null;
         logger.trace("getStatement() -->entry");
         try {
-            final Connection C = getConnection();
+            C = getConnection();
             if (C != null) {
                 S = C.createStatement(ResultSet.TYPE_SCROLL_INSENSITIVE, ResultSet.CONCUR_READ_ONLY); // order-sensitive
+                s_statementConnections.put(S, C);
             } else {
                 logger.error("getStatement() could not create jdbc STATEMENT");
             }
         } catch (Throwable t) {
             surfaceThrowable("getStatement() called Connection.createStatement()", t);
+            cleanup(C);
         }
         logger.trace("getStatement() <--exit");
 
@@ -682,7 +691,10 @@ public final class ExtDataStoreUtils {
         
         if (S != null) {
             try {
-                C = S.getConnection();
+                C = s_statementConnections.remove(S);
+                if (C == null) {
+                    C = S.getConnection();
+                }
             } catch (Throwable t) {
                 surfaceThrowable("cleanup() called Statement.getConnection()", t);
             }
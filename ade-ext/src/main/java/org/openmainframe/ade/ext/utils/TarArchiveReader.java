@@ -0,0 +1,221 @@
+/*
+ 
+    Copyright IBM Corp. 2016
+    This file is part of Anomaly Detection Engine for Linux Logs (ADE).
+
+    ADE is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    ADE is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with ADE.  If not, see <http://www.gnu.org/licenses/>.
+ 
+*/
+package org.openmainframe.ade.ext.utils;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads a tar archive sequentially, without extracting it to disk. Supports the ustar and
+ * the old tar formats, which covers archives written by TarArchiveWriter and by a native tar
+ * command for short entry names.
+ *
+ * Usage: call nextEntry() to move to the next entry, and read its contents from getInputStream().
+ */
+public final class TarArchiveReader implements Closeable {
+    private final InputStream m_in;
+    private final byte[] m_header = new byte[TarArchiveWriter.BLOCK_SIZE];
+
+    private String m_name;
+    private boolean m_isDirectory;
+    private long m_size;
+
+    /**
+     * The number of bytes of the current entry not read yet, including the padding.
+     */
+    private long m_remaining;
+
+    private final InputStream m_entryStream = new InputStream() {
+        private long entryRemaining() {
+            return m_remaining - padding(m_size);
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (entryRemaining() <= 0) {
+                return -1;
+            }
+            final int b = m_in.read();
+            if (b == -1) {
+                throw new EOFException("Truncated tar entry " + m_name);
+            }
+            --m_remaining;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            final long available = entryRemaining();
+            if (available <= 0) {
+                return -1;
+            }
+            final int read = m_in.read(b, off, (int) Math.min(len, available));
+            if (read == -1) {
+                throw new EOFException("Truncated tar entry " + m_name);
+            }
+            m_remaining -= read;
+            return read;
+        }
+
+        @Override
+        public void close() {
+            /* The archive stream stays open. */
+        }
+    };
+
+    /**
+     * @param in the stream to read the archive from. It is closed when the reader is closed.
+     */
+    public TarArchiveReader(InputStream in) {
+        m_in = in;
+    }
+
+    /**
+     * Moves to the next entry, skipping what is left of the current one.
+     * @return the name of the next entry, or null at the end of the archive.
+     * @throws IOException if reading fails or the archive is corrupted.
+     */
+    public String nextEntry() throws IOException {
+        skipFully(m_remaining);
+        m_remaining = 0;
+        m_name = null;
+
+        if (!readHeader()) {
+            return null;
+        }
+        final long expectedChecksum = parseOctal(TarArchiveWriter.CHECKSUM_OFFSET, TarArchiveWriter.CHECKSUM_LENGTH);
+        for (int i = 0; i < TarArchiveWriter.CHECKSUM_LENGTH; ++i) {
+            m_header[TarArchiveWriter.CHECKSUM_OFFSET + i] = ' ';
+        }
+        if (TarArchiveWriter.checksum(m_header) != expectedChecksum) {
+            throw new IOException("Corrupted tar header");
+        }
+
+        int nameLength = 0;
+        while (nameLength < TarArchiveWriter.NAME_LENGTH && m_header[nameLength] != 0) {
+            ++nameLength;
+        }
+        m_name = new String(m_header, 0, nameLength, StandardCharsets.UTF_8);
+        m_size = parseOctal(TarArchiveWriter.SIZE_OFFSET, TarArchiveWriter.SIZE_LENGTH);
+        final byte type = m_header[TarArchiveWriter.TYPE_OFFSET];
+        m_isDirectory = type == TarArchiveWriter.TYPE_DIRECTORY || m_name.endsWith("/");
+        m_remaining = m_size + padding(m_size);
+        return m_name;
+    }
+
+    /**
+     * @return the name of the current entry.
+     */
+    public String getName() {
+        return m_name;
+    }
+
+    /**
+     * @return true if the current entry is a directory.
+     */
+    public boolean isDirectory() {
+        return m_isDirectory;
+    }
+
+    /**
+     * @return the size of the current entry in bytes.
+     */
+    public long getSize() {
+        return m_size;
+    }
+
+    /**
+     * @return a stream over the contents of the current entry. Closing it does not close the archive.
+     */
+    public InputStream getInputStream() {
+        return m_entryStream;
+    }
+
+    @Override
+    public void close() throws IOException {
+        m_in.close();
+    }
+
+    /**
+     * Reads the next header block.
+     * @return false at the end of archive marker, or at the end of the stream.
+     */
+    private boolean readHeader() throws IOException {
+        int pos = 0;
+        while (pos < m_header.length) {
+            final int read = m_in.read(m_header, pos, m_header.length - pos);
+            if (read == -1) {
+                if (pos == 0) {
+                    return false;
+                }
+                throw new EOFException("Truncated tar header");
+            }
+            pos += read;
+        }
+        for (byte b : m_header) {
+            if (b != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private long parseOctal(int offset, int length) throws IOException {
+        long value = 0;
+        final int end = offset + length;
+        int pos = offset;
+        while (pos < end && m_header[pos] == ' ') {
+            ++pos;
+        }
+        for (; pos < end; ++pos) {
+            final byte b = m_header[pos];
+            if (b == 0 || b == ' ') {
+                break;
+            }
+            if (b < '0' || b > '7') {
+                throw new IOException("Corrupted tar header");
+            }
+            value = (value << 3) + (b - '0');
+        }
+        return value;
+    }
+
+    private void skipFully(long count) throws IOException {
+        long remaining = count;
+        while (remaining > 0) {
+            final long skipped = m_in.skip(remaining);
+            if (skipped > 0) {
+                remaining -= skipped;
+            } else if (m_in.read() == -1) {
+                throw new EOFException("Truncated tar entry " + m_name);
+            } else {
+                --remaining;
+            }
+        }
+    }
+
+    private static long padding(long size) {
+        final int remainder = (int) (size % TarArchiveWriter.BLOCK_SIZE);
+        return remainder == 0 ? 0 : TarArchiveWriter.BLOCK_SIZE - remainder;
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ 
+    Copyright IBM Corp. 2016
+    This file is part of Anomaly Detection Engine for Linux Logs (ADE).
+
+    ADE is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    ADE is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with ADE.  If not, see <http://www.gnu.org/licenses/>.
+ 
+*/
+package org.openmainframe.ade.ext.utils;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes a tar archive in the POSIX ustar format, so that archives can be created without
+ * running a native tar command. Archives written by this class can be read by any tar
+ * implementation, and by TarArchiveReader.
+ *
+ * Only directories and regular files are supported. Entry names are limited to 100 bytes,
+ * and entry sizes to 8 GB, the limits of the plain ustar header.
+ */
+public final class TarArchiveWriter implements Closeable {
+    /**
+     * The size of a tar block. Headers and entry contents are padded to a multiple of it.
+     */
+    static final int BLOCK_SIZE = 512;
+
+    static final int NAME_LENGTH = 100;
+    static final int MODE_OFFSET = 100;
+    static final int SIZE_OFFSET = 124;
+    static final int SIZE_LENGTH = 12;
+    static final int MTIME_OFFSET = 136;
+    static final int CHECKSUM_OFFSET = 148;
+    static final int CHECKSUM_LENGTH = 8;
+    static final int TYPE_OFFSET = 156;
+    static final int MAGIC_OFFSET = 257;
+
+    static final byte TYPE_FILE = '0';
+    static final byte TYPE_DIRECTORY = '5';
+
+    private static final long MAX_SIZE = 077777777777L;
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
+    private final OutputStream m_out;
+    private final byte[] m_buffer = new byte[COPY_BUFFER_SIZE];
+    private boolean m_closed;
+
+    /**
+     * @param out the stream to write the archive to. It is closed when the archive is closed.
+     */
+    public TarArchiveWriter(OutputStream out) {
+        m_out = out;
+    }
+
+    /**
+     * Adds a directory entry.
+     * @param name the name of the directory in the archive, e.g. "dbffdc/".
+     * @throws IOException if writing fails or the name is too long.
+     */
+    public void putDirectory(String name) throws IOException {
+        writeHeader(name.endsWith("/") ? name : name + "/", TYPE_DIRECTORY, 0, 0755, System.currentTimeMillis());
+    }
+
+    /**
+     * Adds a regular file entry with the contents of a file.
+     * @param name the name of the file in the archive.
+     * @param file the file to copy into the archive.
+     * @throws IOException if reading the file or writing fails, or the file changed while being copied.
+     */
+    public void putFile(String name, File file) throws IOException {
+        final long size = file.length();
+        writeHeader(name, TYPE_FILE, size, 0644, file.lastModified());
+        long remaining = size;
+        try (InputStream in = new FileInputStream(file)) {
+            int read;
+            while (remaining > 0
+                    && (read = in.read(m_buffer, 0, (int) Math.min(m_buffer.length, remaining))) != -1) {
+                m_out.write(m_buffer, 0, read);
+                remaining -= read;
+            }
+        }
+        if (remaining != 0) {
+            throw new IOException("File " + file.getPath() + " was truncated while archiving it");
+        }
+        pad(size);
+    }
+
+    /**
+     * Writes the end of archive marker and closes the underlying stream.
+     */
+    @Override
+    public void close() throws IOException {
+        if (m_closed) {
+            return;
+        }
+        m_closed = true;
+        try {
+            m_out.write(new byte[2 * BLOCK_SIZE]);
+        } finally {
+            m_out.close();
+        }
+    }
+
+    private void writeHeader(String name, byte type, long size, int mode, long modifiedMillis) throws IOException {
+        final byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        if (nameBytes.length > NAME_LENGTH) {
+            throw new IOException("Tar entry name is too long: " + name);
+        }
+        if (size > MAX_SIZE) {
+            throw new IOException("Tar entry " + name + " is too large: " + size + " bytes");
+        }
+        final byte[] header = new byte[BLOCK_SIZE];
+        System.arraycopy(nameBytes, 0, header, 0, nameBytes.length);
+        writeOctal(header, MODE_OFFSET, 8, mode);
+        writeOctal(header, MODE_OFFSET + 8, 8, 0);
+        writeOctal(header, MODE_OFFSET + 16, 8, 0);
+        writeOctal(header, SIZE_OFFSET, SIZE_LENGTH, size);
+        writeOctal(header, MTIME_OFFSET, 12, modifiedMillis / 1000);
+        header[TYPE_OFFSET] = type;
+        final byte[] magic = ("ustar\u0000" + "00").getBytes(StandardCharsets.US_ASCII);
+        System.arraycopy(magic, 0, header, MAGIC_OFFSET, magic.length);
+
+        /* The checksum is computed with the checksum field filled with spaces. */
+        for (int i = 0; i < CHECKSUM_LENGTH; ++i) {
+            header[CHECKSUM_OFFSET + i] = ' ';
+        }
+        writeOctal(header, CHECKSUM_OFFSET, CHECKSUM_LENGTH - 1, checksum(header));
+        m_out.write(header);
+    }
+
+    private void pad(long size) throws IOException {
+        final int remainder = (int) (size % BLOCK_SIZE);
+        if (remainder != 0) {
+            m_out.write(new byte[BLOCK_SIZE - remainder]);
+        }
+    }
+
+    /**
+     * Writes a NUL terminated, zero padded octal number into a header field.
+     */
+    private static void writeOctal(byte[] header, int offset, int length, long value) {
+        final String octal = Long.toOctalString(value);
+        final int digits = length - 1;
+        int pos = offset;
+        for (int i = octal.length(); i < digits; ++i) {
+            header[pos++] = '0';
+        }
+        for (int i = 0; i < octal.length(); ++i) {
+            header[pos++] = (byte) octal.charAt(i);
+        }
+        header[pos] = 0;
+    }
+
+    static long checksum(byte[] header) {
+        long sum = 0;
+        for (byte b : header) {
+            sum += b & 0xff;
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,195 @@
+/*
+ 
+    Copyright IBM Corp. 2016
+    This file is part of Anomaly Detection Engine for Linux Logs (ADE).
+
+    ADE is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    ADE is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with ADE.  If not, see <http://www.gnu.org/licenses/>.
+ 
+*/
+package org.openmainframe.ade.ext.main;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.TimeZone;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.openmainframe.ade.Ade;
+import org.openmainframe.ade.exceptions.AdeUsageException;
+import org.openmainframe.ade.ext.AdeExt;
+import org.openmainframe.ade.ext.main.helper.AdeExtRequestType;
+import org.openmainframe.ade.utils.patches.Version;
+
+public class TestAdeMaskLog {
+
+    /**
+     * More lines than fit in a few chunks, so several chunks are masked at once.
+     */
+    private static final int LINES = 5000;
+
+    @ClassRule
+    public static final TemporaryFolder s_folder = new TemporaryFolder();
+
+    private static File s_input;
+    private static File s_gzInput;
+
+    @BeforeClass
+    public static void setUp() throws Exception {
+        final File setupFile = s_folder.newFile("setup.props");
+        final OutputStream os = new FileOutputStream(setupFile);
+        try {
+            new Properties().store(os, null);
+        } finally {
+            os.close();
+        }
+
+        final Ade ade = mock(Ade.class, RETURNS_DEEP_STUBS);
+        when(ade.getConfigProperties().database().getDatabaseDriver()).thenReturn("derby");
+        when(ade.getConfigProperties().getOverrideVersionCheck()).thenReturn(true);
+        when(ade.getConfigProperties().getInputTimeZone()).thenReturn(TimeZone.getTimeZone("UTC"));
+        when(ade.getConfigProperties().getOutputTimeZone()).thenReturn(TimeZone.getTimeZone("UTC"));
+        when(ade.getConfigProperties().getOutputPath()).thenReturn(s_folder.getRoot().getPath());
+        when(ade.getDbVersion()).thenReturn(new Version(1, 0));
+        when(ade.getSetupFilePath()).thenReturn(setupFile.getPath());
+        Ade.create(ade);
+        AdeExt.create(ade);
+
+        final List<String> lines = new ArrayList<String>();
+        for (int i = 0; i < LINES; ++i) {
+            if (i % 100 == 99) {
+                lines.add("not a syslog line " + i);
+            } else {
+                lines.add("Jan 20 10:00:" + String.format("%02d", i % 60) + " host" + i % 7 + " sshd[" + i
+                        + "]: Accepted key for user" + i + "@acme.com from 10.1." + i % 256 + ".7 at Acme site " + i);
+            }
+        }
+        s_input = s_folder.newFile("input.log");
+        writeLines(new FileOutputStream(s_input), lines);
+        s_gzInput = s_folder.newFile("input.log.gz");
+        writeLines(new GZIPOutputStream(new FileOutputStream(s_gzInput)), lines);
+    }
+
+    private static void writeLines(OutputStream os, List<String> lines) throws IOException {
+        final Writer writer = new OutputStreamWriter(os, StandardCharsets.UTF_8);
+        try {
+            for (String line : lines) {
+                writer.write(line);
+                writer.write(System.lineSeparator());
+            }
+        } finally {
+            writer.close();
+        }
+    }
+
+    private static List<String> readLines(File file) throws IOException {
+        InputStream is = new FileInputStream(file);
+        if (file.getName().endsWith(".gz")) {
+            is = new GZIPInputStream(is);
+        }
+        final BufferedReader reader = new BufferedReader(new InputStreamReader(is, StandardCharsets.UTF_8));
+        try {
+            final List<String> lines = new ArrayList<String>();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lines.add(line);
+            }
+            return lines;
+        } finally {
+            reader.close();
+        }
+    }
+
+    private static List<String> mask(File input, String output, String... options) throws Exception {
+        final File outputFile = new File(s_folder.getRoot(), output);
+        final List<String> args = new ArrayList<String>();
+        args.add("-f");
+        args.add(input.getPath());
+        args.add("-o");
+        args.add(outputFile.getPath());
+        for (String option : options) {
+            args.add(option);
+        }
+
+        final AdeMaskLog maskLog = new AdeMaskLog(AdeExtRequestType.MASK_LOG);
+        maskLog.parseArgs(args.toArray(new String[args.size()]));
+        assertTrue(maskLog.doControlLogic());
+        return readLines(outputFile);
+    }
+
+    @Test
+    public void testOutputDoesNotDependOnThreadsOrCompression() throws Exception {
+        final List<String> expected = mask(s_input, "j1.log", "-s", "masked", "-c", "Acme", "Corp", "-j", "1");
+        assertEquals(LINES, expected.size());
+        assertEquals("Jan 20 10:00:01 masked sshd[1]: Accepted key for myEmail@gmail.com from 127.0.0.1 at Corp site 1",
+                expected.get(1));
+        assertEquals("not a syslog line 99", expected.get(99));
+
+        assertEquals(expected, mask(s_input, "j4.log", "-s", "masked", "-c", "Acme", "Corp", "-j", "4"));
+        assertEquals(expected, mask(s_gzInput, "j1.log.gz", "-s", "masked", "-c", "Acme", "Corp", "-j", "1"));
+        assertEquals(expected, mask(s_gzInput, "j4.log.gz", "-s", "masked", "-c", "Acme", "Corp", "-j", "4"));
+        assertEquals("Assert a plain input gives a compressed output", expected,
+                mask(s_input, "plain-to-gz.log.gz", "-s", "masked", "-c", "Acme", "Corp", "-j", "4"));
+    }
+
+    @Test
+    public void testMissingSystemAndCompanyNamesAreNotReplaced() throws Exception {
+        final List<String> masked = mask(s_input, "nonames.log", "-j", "4");
+        assertEquals(LINES, masked.size());
+        assertEquals("Jan 20 10:00:01 host1 sshd[1]: Accepted key for myEmail@gmail.com from 127.0.0.1 at Acme site 1",
+                masked.get(1));
+
+        final List<String> onlySystem = mask(s_input, "system.log", "-s", "masked", "-j", "1");
+        assertEquals("Jan 20 10:00:01 masked sshd[1]: Accepted key for myEmail@gmail.com from 127.0.0.1 at Acme site 1",
+                onlySystem.get(1));
+
+        final List<String> onlyCompany = mask(s_input, "company.log", "-c", "Acme", "Corp", "-j", "1");
+        assertEquals("Jan 20 10:00:01 host1 sshd[1]: Accepted key for myEmail@gmail.com from 127.0.0.1 at Corp site 1",
+                onlyCompany.get(1));
+    }
+
+    @Test
+    public void testUnmaskedAddresses() throws Exception {
+        final List<String> masked = mask(s_gzInput, "unmasked.log", "-t", "-e", "-j", "4");
+        assertEquals(readLines(s_input), masked);
+        assertFalse(masked.get(1).contains("127.0.0.1"));
+    }
+
+    @Test(expected = AdeUsageException.class)
+    public void testInvalidThreads() throws Exception {
+        mask(s_input, "invalid.log", "-j", "0");
+    }
+}
@@ -0,0 +1,186 @@
+/*
+ 
+    Copyright IBM Corp. 2016
+    This file is part of Anomaly Detection Engine for Linux Logs (ADE).
+
+    ADE is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    ADE is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with ADE.  If not, see <http://www.gnu.org/licenses/>.
+ 
+*/
+package org.openmainframe.ade.ext.main;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.openmainframe.ade.dataStore.IDataStoreModels;
+import org.openmainframe.ade.exceptions.AdeException;
+import org.openmainframe.ade.exceptions.AdeUsageException;
+import org.openmainframe.ade.models.IModelMetaData;
+import org.openmainframe.ade.scoringApi.IMainScorer;
+
+public class TestAnalysisDaemon {
+    @Rule
+    public TemporaryFolder m_folder = new TemporaryFolder();
+
+    @Test
+    public void testReadJob() throws IOException, AdeException {
+        final File job = writeJob("a.job", 0, "# hourly run", "analyze", "", "-f", "/var/log/messages.gz",
+                "  -s  ", "host1");
+        final List<String> args = new ArrayList<String>();
+        assertTrue(AnalysisDaemon.readJob(job, args) instanceof Analyze);
+        assertEquals(Arrays.asList("-f", "/var/log/messages.gz", "-s", "host1"), args);
+
+        args.clear();
+        assertTrue(AnalysisDaemon.readJob(writeJob("b.job", 0, "UPLOAD", "-d", "/var/log"), args) instanceof Upload);
+        assertEquals(Arrays.asList("-d", "/var/log"), args);
+    }
+
+    @Test(expected = AdeUsageException.class)
+    public void testUnknownRequest() throws IOException, AdeException {
+        AnalysisDaemon.readJob(writeJob("a.job", 0, "train"), new ArrayList<String>());
+    }
+
+    @Test(expected = AdeUsageException.class)
+    public void testStdinRejected() throws IOException, AdeException {
+        AnalysisDaemon.readJob(writeJob("a.job", 0, "upload", "-f", "stdin"), new ArrayList<String>());
+    }
+
+    @Test(expected = AdeUsageException.class)
+    public void testHelpRejected() throws IOException, AdeException {
+        AnalysisDaemon.readJob(writeJob("a.job", 0, "analyze", "-h"), new ArrayList<String>());
+    }
+
+    @Test
+    public void testPendingJobsOrder() throws IOException {
+        final long now = System.currentTimeMillis();
+        writeJob("c.job", now - 1000, "upload");
+        writeJob("b.job", now - 3000, "upload");
+        writeJob("a.job", now - 1000, "upload");
+        writeJob("d.tmp", now - 5000, "upload");
+
+        final List<String> names = new ArrayList<String>();
+        for (File job : AnalysisDaemon.getPendingJobs(m_folder.getRoot())) {
+            names.add(job.getName());
+        }
+        assertEquals(Arrays.asList("b.job", "a.job", "c.job"), names);
+        assertTrue(AnalysisDaemon.getPendingJobs(new File(m_folder.getRoot(), "missing")).isEmpty());
+    }
+
+    @Test
+    public void testJobSource() throws IOException, AdeException {
+        assertEquals("host1", AnalysisDaemon.readJob(writeJob("a.job", 0, "analyze", "-f", "x.gz", "-s", "host1"))
+                .getSource());
+        assertEquals("host2", AnalysisDaemon.readJob(writeJob("b.job", 0, "analyze", "--sources=host2", "-d", "logs"))
+                .getSource());
+        assertNull(AnalysisDaemon.readJob(writeJob("c.job", 0, "analyze", "-f", "x.gz", "-s", "all")).getSource());
+        assertNull(AnalysisDaemon.readJob(writeJob("d.job", 0, "analyze", "-f", "x.gz")).getSource());
+        /* An upload holds the messages of all the sources of its input */
+        assertNull(AnalysisDaemon.readJob(writeJob("e.job", 0, "upload", "-f", "x.gz")).getSource());
+    }
+
+    @Test
+    public void testCanStart() {
+        final AnalysisDaemon.Job host1 = job("host1");
+        final AnalysisDaemon.Job host2 = job("host2");
+        final AnalysisDaemon.Job all = job(null);
+
+        assertTrue(AnalysisDaemon.canStart(host1, Collections.<AnalysisDaemon.Job>emptyList()));
+        assertTrue(AnalysisDaemon.canStart(all, Collections.<AnalysisDaemon.Job>emptyList()));
+        assertTrue(AnalysisDaemon.canStart(host1, Arrays.asList(host2)));
+        assertFalse(AnalysisDaemon.canStart(job("HOST1"), Arrays.asList(host2, host1)));
+        assertFalse(AnalysisDaemon.canStart(host1, Arrays.asList(all)));
+        assertFalse(AnalysisDaemon.canStart(all, Arrays.asList(host2)));
+    }
+
+    @Test
+    public void testMaxJobs() {
+        assertEquals(3, AnalysisDaemon.getMaxJobs(16));
+        assertEquals(1, AnalysisDaemon.getMaxJobs(5));
+        assertEquals(0, AnalysisDaemon.getMaxJobs(4));
+    }
+
+    @Test
+    public void testReloadModels() throws AdeException {
+        @SuppressWarnings("unchecked")
+        final IDataStoreModels<IMainScorer> models = mock(IDataStoreModels.class);
+        final IModelMetaData model1 = model(1, "groupA");
+        final IModelMetaData model2 = model(2, "groupB");
+        when(models.getModelList()).thenReturn(Arrays.asList(model1, model2));
+        when(models.loadDefaultModelMetaData("groupA")).thenReturn(model1);
+        when(models.loadDefaultModelMetaData("groupB")).thenReturn(null);
+
+        final AnalysisDaemon daemon = new AnalysisDaemon();
+        daemon.reloadModels(models);
+        verify(models).loadDefaultModel("groupA");
+        verify(models, never()).loadDefaultModel("groupB");
+
+        /* Nothing changed */
+        daemon.reloadModels(models);
+        verify(models, times(1)).loadDefaultModel("groupA");
+        verify(models, never()).evictModel(1);
+
+        /* A new model was trained for groupA */
+        final IModelMetaData model3 = model(3, "groupA");
+        when(models.getModelList()).thenReturn(Arrays.asList(model1, model2, model3));
+        when(models.loadDefaultModelMetaData("groupA")).thenReturn(model3);
+        daemon.reloadModels(models);
+        verify(models, times(2)).loadDefaultModel("groupA");
+        verify(models).evictModel(1);
+
+        /* The models of groupA were deleted */
+        when(models.getModelList()).thenReturn(Arrays.asList(model2));
+        when(models.loadDefaultModelMetaData("groupA")).thenReturn(null);
+        daemon.reloadModels(models);
+        verify(models).evictModel(3);
+        verify(models, times(2)).loadDefaultModel("groupA");
+    }
+
+    private static AnalysisDaemon.Job job(String source) {
+        return new AnalysisDaemon.Job(source + ".job", null, Collections.<String>emptyList(), source);
+    }
+
+    private static IModelMetaData model(int id, String group) {
+        final IModelMetaData model = mock(IModelMetaData.class);
+        when(model.getModelInternalId()).thenReturn(id);
+        when(model.getGroupName()).thenReturn(group);
+        return model;
+    }
+
+    private File writeJob(String name, long lastModified, String... lines) throws IOException {
+        final File job = new File(m_folder.getRoot(), name);
+        Files.write(job.toPath(), Arrays.asList(lines), StandardCharsets.UTF_8);
+        if (lastModified > 0) {
+            assertTrue(job.setLastModified(lastModified));
+        }
+        return job;
+    }
+}
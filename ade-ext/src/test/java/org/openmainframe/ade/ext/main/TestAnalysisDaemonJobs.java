@@ -0,0 +1,274 @@
+/*
+ 
+    Copyright IBM Corp. 2016
+    This file is part of Anomaly Detection Engine for Linux Logs (ADE).
+
+    ADE is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    ADE is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with ADE.  If not, see <http://www.gnu.org/licenses/>.
+ 
+*/
+package org.openmainframe.ade.ext.main;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPOutputStream;
+
+import org.joda.time.DateTime;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.openmainframe.ade.Ade;
+import org.openmainframe.ade.exceptions.AdeException;
+import org.openmainframe.ade.ext.utils.TableManagerExt;
+import org.openmainframe.ade.impl.dbUtils.ConnectionPool;
+import org.openmainframe.ade.impl.dbUtils.MyJDBCConnection;
+
+/**
+ * Runs the AnalysisDaemon on real jobs, against an in-memory Derby database.
+ */
+public class TestAnalysisDaemonJobs {
+    @ClassRule
+    public static final TemporaryFolder s_folder = new TemporaryFolder();
+
+    private static final int LOG_LINES = 300;
+    private static final long TIMEOUT_MILLIS = 60000L;
+    private static final long POLL_MILLIS = 100L;
+
+    @BeforeClass
+    public static void setUp() throws IOException, AdeException {
+        final File conf = new File("../ade-assembly/src/main/conf").getCanonicalFile();
+        final Properties props = new Properties();
+        final InputStream is = new FileInputStream(new File(conf, "setup.props"));
+        try {
+            props.load(is);
+        } finally {
+            is.close();
+        }
+        props.remove("ade.databaseUser");
+        props.remove("ade.databasePassword");
+        props.setProperty("ade.useSparkLogs", "false");
+        props.setProperty("adeext.useSparkLogs", "false");
+        props.setProperty("adeext.runtimeModelDataStoreAtSource", "false");
+        props.setProperty("ade.flowLayoutFile", new File(conf, "xml/FlowLayout.xml").getPath());
+        props.setProperty("ade.flowLayoutFileSpark", new File(conf, "xml/FlowLayoutSpark.xml").getPath());
+        props.setProperty("ade.outputPath", s_folder.newFolder("output").getPath() + File.separator);
+        props.setProperty("ade.analysisOutputPath", new File(s_folder.getRoot(), "output/continuous").getPath());
+        props.setProperty("ade.xml.xsltDir", new File(conf, "xml").getPath());
+        props.setProperty("ade.criticalWords.file", new File(conf, "criticalWords.txt").getPath());
+        props.setProperty("ade.inputTimeZone", "GMT+00:00");
+        props.setProperty("ade.outputTimeZone", "GMT");
+        props.setProperty("ade.dataStoreType", "SQL");
+        props.setProperty("ade.databaseUrl", "jdbc:derby:memory:daemonJobs;create=true");
+        props.setProperty("ade.databaseDriver", "org.apache.derby.jdbc.EmbeddedDriver");
+        props.setProperty("ade.periodMode", "DAILY");
+        final File setup = s_folder.newFile("setup.props");
+        final OutputStream os = new FileOutputStream(setup);
+        try {
+            props.store(os, null);
+        } finally {
+            os.close();
+        }
+
+        Ade.create(setup.getPath());
+        Ade.getAde().createDataStore();
+        new TableManagerExt().createTables();
+    }
+
+    /**
+     * Jobs failing in the middle of their input, or on their arguments, must not hold database connections or
+     * threads, so that the daemon keeps performing jobs after many failures.
+     */
+    @Test
+    public void testFailingJobs() throws IOException, AdeException {
+        final File spool = s_folder.newFolder("failingSpool");
+        final int failingJobs = 2 * ConnectionPool.DEFAULT_MAX_SIZE;
+        for (int i = 0; i < failingJobs; ++i) {
+            final File log = writeTruncatedLog("broken" + i + ".log.gz", "broken" + i);
+            if (i % 2 == 0) {
+                writeJob(spool, String.format("broken%02d.job", i), "upload", "-f", log.getPath());
+            } else {
+                writeJob(spool, String.format("broken%02d.job", i), "analyze", "-f", log.getPath(), "-s",
+                        "broken" + i);
+            }
+        }
+        writeJob(spool, "year.job", "upload", "-f", writeLog("year.log", "year1").getPath(), "-years", "1900");
+        writeJob(spool, "last.job", "upload", "-f", writeLog("last.log", "last1").getPath());
+
+        final int activeConnections = MyJDBCConnection.getConnectionPool().getActiveCount();
+        assertTrue(new AnalysisDaemon().run(new String[] { "-s", spool.getPath(), "-o", "-j", "2" }));
+
+        final Set<String> failed = list(new File(spool, AnalysisDaemon.FAILED_DIR));
+        for (int i = 0; i < failingJobs; ++i) {
+            assertTrue(failed.contains(String.format("broken%02d.job", i)));
+            assertTrue(failed.contains(String.format("broken%02d.job", i) + AnalysisDaemon.ERROR_SUFFIX));
+        }
+        assertTrue(failed.contains("year.job"));
+        assertEquals(2 * (failingJobs + 1), failed.size());
+        assertEquals(new TreeSet<String>(Arrays.asList("last.job")), list(new File(spool, AnalysisDaemon.DONE_DIR)));
+        assertTrue(list(new File(spool, AnalysisDaemon.RUNNING_DIR)).isEmpty());
+        assertTrue(list(new File(spool, AnalysisDaemon.INCOMING_DIR)).isEmpty());
+
+        assertEquals(activeConnections, MyJDBCConnection.getConnectionPool().getActiveCount());
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            assertFalse(thread.getName(), thread.getName().startsWith("ade-source-registration"));
+            assertFalse(thread.getName(), thread.getName().startsWith("ade-daemon-worker"));
+        }
+    }
+
+    /**
+     * More jobs than the connection pool can serve are rejected, rather than left waiting for connections.
+     */
+    @Test
+    public void testTooManyJobs() throws IOException, AdeException {
+        final File spool = s_folder.newFolder("tooManySpool");
+        final int poolJobs = AnalysisDaemon.getMaxJobs(ConnectionPool.DEFAULT_MAX_SIZE);
+        assertFalse(new AnalysisDaemon().run(new String[] { "-s", spool.getPath(), "-o", "-j",
+            Integer.toString(poolJobs + 1) }));
+        assertFalse(new File(spool, AnalysisDaemon.INCOMING_DIR).exists());
+    }
+
+    /**
+     * Two jobs of the same source submitted in a row to a running daemon: the second job opens no database
+     * connection, and uses none of the arguments of the first job.
+     */
+    @Test
+    public void testJobsInARow() throws IOException, InterruptedException, SQLException, AdeException {
+        final File spool = s_folder.newFolder("rowSpool");
+        final File done = new File(spool, AnalysisDaemon.DONE_DIR);
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        final Thread daemonThread = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    new AnalysisDaemon().run(new String[] { "-s", spool.getPath(), "-p", "1", "-j", "1" });
+                    MyJDBCConnection.close();
+                } catch (Throwable e) {
+                    failure.set(e);
+                }
+            }
+        };
+        final ConnectionPool pool = MyJDBCConnection.getConnectionPool();
+        final int activeConnections = pool.getActiveCount();
+        daemonThread.start();
+        try {
+            writeJob(spool, "1.job", "upload", "-f", writeLog("row1.log", "row1").getPath(), "-years", "2015");
+            awaitFile(new File(done, "1.job"));
+            final long createdConnections = pool.getCreatedCount();
+
+            writeJob(spool, "2.job", "upload", "-f", writeLog("row2.log", "row1").getPath());
+            awaitFile(new File(done, "2.job"));
+            assertEquals(createdConnections, pool.getCreatedCount());
+        } finally {
+            new File(spool, AnalysisDaemon.STOP_FILE).createNewFile();
+            daemonThread.join(TIMEOUT_MILLIS);
+        }
+        assertFalse(daemonThread.isAlive());
+        assertNull(failure.get());
+        assertTrue(list(new File(spool, AnalysisDaemon.FAILED_DIR)).isEmpty());
+        assertEquals(activeConnections, pool.getActiveCount());
+
+        /* The year given to the first job is not used by the second one */
+        final Set<Integer> years = new TreeSet<Integer>();
+        final Calendar calendar = Calendar.getInstance(TimeZone.getTimeZone("GMT"));
+        try (Statement statement = MyJDBCConnection.getConnection().createStatement();
+                ResultSet rs = statement.executeQuery("select p.START_TIME from PERIODS p, SOURCES s"
+                        + " where p.SOURCE_INTERNAL_ID = s.SOURCE_INTERNAL_ID and s.SOURCE_ID = 'row1'")) {
+            while (rs.next()) {
+                calendar.setTime(rs.getTimestamp(1));
+                years.add(calendar.get(Calendar.YEAR));
+            }
+        }
+        assertEquals(new TreeSet<Integer>(Arrays.asList(2015, new DateTime().getYear())), years);
+    }
+
+    private static void awaitFile(File file) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (!file.exists()) {
+            assertTrue("Timed out waiting for " + file.getPath(), System.currentTimeMillis() < deadline);
+            Thread.sleep(POLL_MILLIS);
+        }
+    }
+
+    private static Set<String> list(File dir) {
+        return new TreeSet<String>(Arrays.asList(dir.list()));
+    }
+
+    private static void writeJob(File spool, String name, String... lines) throws IOException {
+        final File incoming = new File(spool, AnalysisDaemon.INCOMING_DIR);
+        assertTrue(incoming.isDirectory() || incoming.mkdirs());
+        /* Written under another name and then renamed, so that the daemon never reads it half written */
+        final Path temp = Files.write(new File(incoming, name + ".tmp").toPath(), Arrays.asList(lines),
+                StandardCharsets.UTF_8);
+        Files.move(temp, new File(incoming, name).toPath(), StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static List<String> logLines(String host) {
+        final List<String> lines = new ArrayList<String>();
+        for (int i = 0; i < LOG_LINES; ++i) {
+            lines.add(String.format("Mar  1 %02d:%02d:%02d %s sshd[%d]: Accepted key for user%d from 10.1.%d.7",
+                    10 + i / 60, i % 60, i % 60, host, i, i % 5, i % 256));
+        }
+        return lines;
+    }
+
+    private static File writeLog(String name, String host) throws IOException {
+        final File file = s_folder.newFile(name);
+        Files.write(file.toPath(), logLines(host), StandardCharsets.UTF_8);
+        return file;
+    }
+
+    /**
+     * Writes a compressed log cut in the middle, so that reading it fails once parsing started.
+     */
+    private static File writeTruncatedLog(String name, String host) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final GZIPOutputStream gz = new GZIPOutputStream(bytes);
+        for (int i = 0; i < 10; ++i) {
+            for (String line : logLines(host)) {
+                gz.write((line + " " + (line.hashCode() * 31L + i) + "\n").getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        gz.close();
+        final byte[] data = bytes.toByteArray();
+        final File file = s_folder.newFile(name);
+        Files.write(file.toPath(), Arrays.copyOf(data, data.length / 2));
+        return file;
+    }
+}
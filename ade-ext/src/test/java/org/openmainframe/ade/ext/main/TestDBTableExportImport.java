@@ -0,0 +1,171 @@
+/*
+ 
+    Copyright IBM Corp. 2016
+    This file is part of Anomaly Detection Engine for Linux Logs (ADE).
+
+    ADE is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    ADE is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with ADE.  If not, see <http://www.gnu.org/licenses/>.
+ 
+*/
+package org.openmainframe.ade.ext.main;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.openmainframe.ade.exceptions.AdeException;
+import org.openmainframe.ade.ext.service.AdeExtInternalException;
+import org.openmainframe.ade.ext.utils.TarArchiveWriter;
+
+public class TestDBTableExportImport {
+    private static final String SOURCE_URL = "jdbc:derby:memory:exportSource";
+    private static final String TARGET_URL = "jdbc:derby:memory:exportTarget";
+    private static final int SUMMARY_ROWS = 2500;
+
+    @Rule
+    public TemporaryFolder m_folder = new TemporaryFolder();
+
+    private Connection m_source;
+    private Connection m_target;
+
+    @Before
+    public void setUp() throws SQLException {
+        m_source = DriverManager.getConnection(SOURCE_URL + ";create=true");
+        m_target = DriverManager.getConnection(TARGET_URL + ";create=true");
+        try (Statement statement = m_source.createStatement()) {
+            statement.executeUpdate("CREATE TABLE SOURCES (SOURCE_INTERNAL_ID INTEGER NOT NULL "
+                    + "GENERATED ALWAYS AS IDENTITY, SOURCE_ID CHAR(20) NOT NULL, DESCRIPTION VARCHAR(100), "
+                    + "FIRST_SEEN TIMESTAMP, SCORE DOUBLE)");
+            statement.executeUpdate("CREATE TABLE MESSAGE_SUMMARIES (PERIOD_SUMMARY_INTERNAL_ID INTEGER NOT NULL, "
+                    + "MESSAGE_INTERNAL_ID INTEGER NOT NULL, NUM_MESSAGES BIGINT, TEXT_SAMPLE VARCHAR(1000))");
+        }
+        try (PreparedStatement ps = m_source.prepareStatement(
+                "INSERT INTO SOURCES (SOURCE_ID, DESCRIPTION, FIRST_SEEN, SCORE) VALUES (?, ?, ?, ?)")) {
+            addSource(ps, "plain", "a plain source", Timestamp.valueOf("2016-03-01 10:20:30.123"), 0.5);
+            addSource(ps, "quoted", "says \"hello\", twice", null, -1e-7);
+            addSource(ps, "multi line", "first line\nsecond line\r\n", Timestamp.valueOf("2016-03-02 00:00:00"), 1e300);
+            addSource(ps, "empty", "", null, null);
+            addSource(ps, "nulls", null, null, 3.0);
+        }
+        try (PreparedStatement ps = m_source.prepareStatement("INSERT INTO MESSAGE_SUMMARIES VALUES (?, ?, ?, ?)")) {
+            for (int i = 0; i < SUMMARY_ROWS; ++i) {
+                ps.setInt(1, i / 100);
+                ps.setInt(2, i);
+                ps.setLong(3, 10000000000L + i);
+                ps.setString(4, "sample " + i);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+    }
+
+    @After
+    public void tearDown() throws SQLException {
+        m_source.close();
+        m_target.close();
+        dropDatabase(SOURCE_URL);
+        dropDatabase(TARGET_URL);
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        final File directory = m_folder.newFolder("dbffdc");
+        final DBTableExporter exporter = new DBTableExporter(new DBTableExporter.ConnectionFactory() {
+            @Override
+            public Connection openConnection() throws AdeException {
+                try {
+                    return DriverManager.getConnection(SOURCE_URL);
+                } catch (SQLException e) {
+                    throw new AdeExtInternalException("Failed connecting", e);
+                }
+            }
+        }, 2, 100);
+        final long rows = exporter.export(Arrays.asList("SOURCES", "MESSAGE_SUMMARIES"),
+                Collections.singletonMap("MESSAGE_SUMMARIES",
+                        "PERIOD_SUMMARY_INTERNAL_ID, MESSAGE_INTERNAL_ID, NUM_MESSAGES"), directory);
+        assertEquals(5 + SUMMARY_ROWS, rows);
+
+        final ByteArrayOutputStream archive = new ByteArrayOutputStream();
+        try (TarArchiveWriter tar = new TarArchiveWriter(archive)) {
+            tar.putDirectory("dbffdc");
+            tar.putFile("dbffdc/" + DBTableExporter.MANIFEST_FILE_NAME,
+                    new File(directory, DBTableExporter.MANIFEST_FILE_NAME));
+            tar.putFile("dbffdc/SOURCES.dat", new File(directory, "SOURCES.dat"));
+            tar.putFile("dbffdc/MESSAGE_SUMMARIES.dat", new File(directory, "MESSAGE_SUMMARIES.dat"));
+        }
+
+        final DBTableImporter importer = new DBTableImporter(m_target, 1000);
+        assertEquals(5 + SUMMARY_ROWS, importer.importArchive(new ByteArrayInputStream(archive.toByteArray())));
+
+        final String sourcesQuery = "SELECT SOURCE_INTERNAL_ID, SOURCE_ID, DESCRIPTION, FIRST_SEEN, SCORE "
+                + "FROM SOURCES ORDER BY SOURCE_INTERNAL_ID";
+        assertEquals(query(m_source, sourcesQuery), query(m_target, sourcesQuery));
+        final String summariesQuery = "SELECT PERIOD_SUMMARY_INTERNAL_ID, MESSAGE_INTERNAL_ID, NUM_MESSAGES "
+                + "FROM MESSAGE_SUMMARIES ORDER BY MESSAGE_INTERNAL_ID";
+        assertEquals(query(m_source, summariesQuery), query(m_target, summariesQuery));
+    }
+
+    private static void addSource(PreparedStatement ps, String sourceId, String description, Timestamp firstSeen,
+            Double score) throws SQLException {
+        ps.setString(1, sourceId);
+        ps.setString(2, description);
+        ps.setTimestamp(3, firstSeen);
+        if (score == null) {
+            ps.setNull(4, java.sql.Types.DOUBLE);
+        } else {
+            ps.setDouble(4, score);
+        }
+        ps.executeUpdate();
+    }
+
+    private static List<List<Object>> query(Connection con, String sql) throws SQLException {
+        final List<List<Object>> rows = new ArrayList<List<Object>>();
+        try (Statement statement = con.createStatement(); ResultSet rs = statement.executeQuery(sql)) {
+            final int columnCount = rs.getMetaData().getColumnCount();
+            while (rs.next()) {
+                final List<Object> row = new ArrayList<Object>(columnCount);
+                for (int i = 1; i <= columnCount; ++i) {
+                    row.add(rs.getObject(i));
+                }
+                rows.add(row);
+            }
+        }
+        return rows;
+    }
+
+    private static void dropDatabase(String url) {
+        try {
+            DriverManager.getConnection(url + ";drop=true");
+        } catch (SQLException e) {
+            /* Dropping a database always reports an exception. */
+        }
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ 
+    Copyright IBM Corp. 2016
+    This file is part of Anomaly Detection Engine for Linux Logs (ADE).
+
+    ADE is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    ADE is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with ADE.  If not, see <http://www.gnu.org/licenses/>.
+ 
+*/
+package org.openmainframe.ade.ext.os.parser;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class TestLinuxMessageMasker {
+
+    @Test
+    public void testMaskedValues() {
+        assertMasked("mail from %%%root@EMAIL%%% sent", "mail from root@host.example.com sent");
+        assertMasked("mail from %%%EMAIL%%% sent", "mail from john.doe+x@host.example.com sent");
+        assertMasked("connect from %%%IPV4%%% port %%%NUMBER%%%", "connect from 192.168.1.254 port 22345");
+        assertMasked("addr %%%IPV6%%%", "addr 10.0.0.1.2.3");
+        assertMasked("block %%%NUMBER%%% at 00ff12a", "block DEADBEEF at 00ff12a");
+        assertMasked("pid 123 of %%%NUMBER%%%", "pid 123 of 4567");
+        assertMasked("a b c", " \t a \t\tb c\t ");
+    }
+
+    @Test
+    public void testEdgeCases() {
+        assertEquivalent("root@a.b.");
+        assertEquivalent("root@a..b");
+        assertEquivalent("xroot@a.b root@a ._root@a.b .x@y.z x.@y.z_ -a@b.c");
+        assertEquivalent("1.2.3.4.5 1.2.3.4.5.6.7 256.1.1.1 1.2.3.4a 01.002.3.4 1.2.3.4.");
+        assertEquivalent("ABCDEF0 ABCDEFG 0123 123 12345_ab _1234 1234-5678");
+        assertEquivalent("x 1.2.3.4 \n");
+        assertEquivalent("x 1.2.3.4 \r\n");
+        assertEquivalent("x \r");
+        assertEquivalent("x \n\n");
+        assertEquivalent("\n ");
+        assertEquivalent(" ");
+        assertEquivalent("");
+        assertEquivalent("café 1234 résumé@a.b   ");
+    }
+
+    @Test
+    public void testRandomMessages() {
+        final String alphabet = "roto@@..._+-:/%aAFz0125689 \t\n\r";
+        final Random random = new Random(20160331L);
+        final StringBuilder message = new StringBuilder();
+        for (int i = 0; i < 100000; ++i) {
+            message.setLength(0);
+            final int length = random.nextInt(40);
+            for (int j = 0; j < length; ++j) {
+                if (random.nextInt(8) == 0) {
+                    message.append("root@");
+                } else {
+                    message.append(alphabet.charAt(random.nextInt(alphabet.length())));
+                }
+            }
+            assertEquivalent(message.toString());
+        }
+    }
+
+    private static void assertMasked(String expected, String in) {
+        assertEquals(expected, LinuxMessageMasker.mask(in));
+        assertEquals(expected, LinuxMessageMasker.maskWithPatterns(in));
+    }
+
+    private static void assertEquivalent(String in) {
+        assertEquals("Masking \"" + in + "\"", LinuxMessageMasker.maskWithPatterns(in), LinuxMessageMasker.mask(in));
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ 
+    Copyright IBM Corp. 2016
+    This file is part of Anomaly Detection Engine for Linux Logs (ADE).
+
+    ADE is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    ADE is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with ADE.  If not, see <http://www.gnu.org/licenses/>.
+ 
+*/
+package org.openmainframe.ade.ext.os.parser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+
+public class TestLinuxMessageTextPreprocessor {
+
+    /**
+     * The regular expression the default magic words replace.
+     */
+    private static final Pattern MAGIC_WORD_PATTERN = Pattern.compile("^(?i)\\b(("
+            + "start|end|fail|exception|finish|exit|begin|terminat)(ed)?)"
+            + "|enable|enabled|disable|disabled|error|failure|stop|stopped|root\\b$");
+
+    @Test
+    public void testDefaultMagicWordsMatchRegex() {
+        final LinuxMessageTextPreprocessor preprocessor = new LinuxMessageTextPreprocessor();
+        for (String word : LinuxMessageTextPreprocessor.DEFAULT_MAGIC_WORDS) {
+            assertTrue(word, preprocessor.isMagicWord(word));
+        }
+        final String[] tokens = { "Started", "STOPPED", "ended", "endeded", "terminate", "terminated",
+            "exceptioned", "failures", "root", "root:", "(error)", "error.", "enable", "enableded", "begined",
+            "restart", "exit1", "", "%%%NUMBER%%%", "Stöp", "fail ed" };
+        for (String token : tokens) {
+            assertEquals(token, MAGIC_WORD_PATTERN.matcher(token).matches(), preprocessor.isMagicWord(token));
+        }
+    }
+}
@@ -0,0 +1,283 @@
+/*
+ 
+    Copyright IBM Corp. 2016
+    This file is part of Anomaly Detection Engine for Linux Logs (ADE).
+
+    ADE is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    ADE is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with ADE.  If not, see <http://www.gnu.org/licenses/>.
+ 
+*/
+package org.openmainframe.ade.ext.os.parser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.openmainframe.ade.data.IMessageInstance;
+import org.openmainframe.ade.exceptions.AdeException;
+import org.openmainframe.ade.exceptions.AdeInternalException;
+import org.openmainframe.ade.impl.dbUtils.ConnectionPool;
+import org.openmainframe.ade.impl.dbUtils.MyJDBCConnection;
+
+public class TestSourceRegistrar {
+
+    private static final long TIMEOUT_SECONDS = 10;
+
+    /**
+     * A registrar whose registration of the "blocked" source waits for the gate to open.
+     */
+    private static class TestRegistrar extends SourceRegistrar {
+        private final List<List<String>> m_batches = Collections.synchronizedList(new ArrayList<List<String>>());
+        private final CountDownLatch m_gate = new CountDownLatch(1);
+        private final CountDownLatch m_blockedStarted = new CountDownLatch(1);
+        private final Map<String, CountDownLatch> m_registered = new HashMap<String, CountDownLatch>();
+        private volatile boolean m_useConnection = false;
+
+        TestRegistrar(boolean async, int maxBufferedMessages, String... sourceIds) {
+            super(null, async, maxBufferedMessages);
+            for (String sourceId : sourceIds) {
+                m_registered.put(sourceId, new CountDownLatch(1));
+            }
+        }
+
+        @Override
+        Map<String, String> registerSources(List<String> sourceIds) throws AdeException {
+            m_batches.add(new ArrayList<String>(sourceIds));
+            if (m_useConnection) {
+                MyJDBCConnection.getConnection();
+            }
+            if (sourceIds.contains("blocked")) {
+                m_blockedStarted.countDown();
+                await(m_gate);
+            }
+            if (sourceIds.contains("bad")) {
+                throw new AdeInternalException("Failed registering bad");
+            }
+            final Map<String, String> groups = new HashMap<String, String>();
+            for (String sourceId : sourceIds) {
+                groups.put(sourceId, "group");
+                m_registered.get(sourceId).countDown();
+            }
+            return groups;
+        }
+    }
+
+    /**
+     * Messages parsed from a stream. The first message of each source registers the source, as the
+     * readers do.
+     */
+    private static class TestSource implements SourceRegistrar.MessageSource {
+        private final TestRegistrar m_registrar;
+        private final List<IMessageInstance> m_messages = new ArrayList<IMessageInstance>();
+        private final Set<String> m_seen = new HashSet<String>();
+        private final Map<IMessageInstance, CountDownLatch> m_waitBefore = new HashMap<IMessageInstance, CountDownLatch>();
+        private int m_next = 0;
+        private boolean m_endOfStream = false;
+        private volatile boolean m_openGateAtEnd = true;
+
+        TestSource(TestRegistrar registrar, IMessageInstance... messages) {
+            m_registrar = registrar;
+            m_messages.addAll(Arrays.asList(messages));
+        }
+
+        @Override
+        public IMessageInstance readNextMessageInstance() throws IOException, AdeException {
+            if (m_next == m_messages.size()) {
+                if (m_openGateAtEnd) {
+                    m_registrar.m_gate.countDown();
+                }
+                return null;
+            }
+            final IMessageInstance messageInstance = m_messages.get(m_next++);
+            final CountDownLatch latch = m_waitBefore.get(messageInstance);
+            if (latch != null) {
+                await(latch);
+            }
+            if (m_seen.add(messageInstance.getSourceId())) {
+                m_registrar.register(messageInstance.getSourceId());
+            }
+            return messageInstance;
+        }
+
+        @Override
+        public boolean isWrapperMessage() {
+            return false;
+        }
+
+        @Override
+        public void endOfStream() {
+            m_endOfStream = true;
+        }
+    }
+
+    private static IMessageInstance message(String sourceId) {
+        final IMessageInstance messageInstance = mock(IMessageInstance.class);
+        when(messageInstance.getSourceId()).thenReturn(sourceId);
+        return messageInstance;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue("Timed out", latch.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            fail("Interrupted");
+        }
+    }
+
+    private static List<IMessageInstance> readAll(TestRegistrar registrar, TestSource source) throws Exception {
+        final List<IMessageInstance> res = new ArrayList<IMessageInstance>();
+        IMessageInstance messageInstance;
+        while ((messageInstance = registrar.readMessageInstance(source)) != null) {
+            res.add(messageInstance);
+        }
+        return res;
+    }
+
+    @Test
+    public void testSourcesSeenDuringRegistrationAreBatchedAndOrdered() throws Exception {
+        final TestRegistrar registrar = new TestRegistrar(true, 100, "blocked", "b", "c");
+        final IMessageInstance a1 = message("blocked");
+        final IMessageInstance b1 = message("b");
+        final IMessageInstance a2 = message("blocked");
+        final IMessageInstance c1 = message("c");
+        final IMessageInstance b2 = message("b");
+        final TestSource source = new TestSource(registrar, a1, b1, a2, c1, b2);
+        source.m_waitBefore.put(b1, registrar.m_blockedStarted);
+
+        assertEquals(Arrays.asList(a1, a2, b1, b2, c1), readAll(registrar, source));
+        assertTrue(source.m_endOfStream);
+        assertEquals(Arrays.asList(Arrays.asList("blocked"), Arrays.asList("b", "c")), registrar.m_batches);
+        assertNull("Assert reading past the end returns null", registrar.readMessageInstance(source));
+    }
+
+    @Test
+    public void testRegisteredSourceIsNotHeldBack() throws Exception {
+        final TestRegistrar registrar = new TestRegistrar(true, 100, "k", "blocked");
+        final IMessageInstance k1 = message("k");
+        final IMessageInstance a1 = message("blocked");
+        final IMessageInstance k2 = message("k");
+        final TestSource source = new TestSource(registrar, k1, a1, k2);
+        source.m_openGateAtEnd = false;
+        source.m_waitBefore.put(a1, registrar.m_registered.get("k"));
+
+        assertSame(k1, registrar.readMessageInstance(source));
+        assertSame("Assert a message of a registered source is returned while another source is pending",
+                k2, registrar.readMessageInstance(source));
+        assertEquals(1, registrar.m_gate.getCount());
+
+        registrar.m_gate.countDown();
+        assertSame(a1, registrar.readMessageInstance(source));
+        assertNull(registrar.readMessageInstance(source));
+    }
+
+    @Test
+    public void testFullBufferWaitsForRegistration() throws Exception {
+        final TestRegistrar registrar = new TestRegistrar(true, 2, "blocked");
+        final IMessageInstance a1 = message("blocked");
+        final IMessageInstance a2 = message("blocked");
+        final IMessageInstance a3 = message("blocked");
+        final TestSource source = new TestSource(registrar, a1, a2, a3);
+        source.m_waitBefore.put(a3, registrar.m_gate);
+
+        final Thread opener = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(200);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                registrar.m_gate.countDown();
+            }
+        });
+        opener.start();
+        assertEquals(Arrays.asList(a1, a2, a3), readAll(registrar, source));
+        opener.join();
+    }
+
+    @Test
+    public void testSynchronousRegistration() throws Exception {
+        final TestRegistrar registrar = new TestRegistrar(false, 2, "a", "b");
+        final IMessageInstance a1 = message("a");
+        final IMessageInstance b1 = message("b");
+        final IMessageInstance a2 = message("a");
+
+        assertEquals(Arrays.asList(a1, b1, a2), readAll(registrar, new TestSource(registrar, a1, b1, a2)));
+        assertEquals(Arrays.asList(Arrays.asList("a"), Arrays.asList("b")), registrar.m_batches);
+    }
+
+    @Test
+    public void testFailedRegistrationIsReported() throws Exception {
+        final TestRegistrar registrar = new TestRegistrar(true, 100, "bad");
+        final TestSource source = new TestSource(registrar, message("bad"), message("bad"));
+        try {
+            readAll(registrar, source);
+            fail("Expected the failed registration to be reported");
+        } catch (AdeInternalException e) {
+            assertEquals("Failed registering bad", e.getMessage());
+        } finally {
+            registrar.close();
+        }
+    }
+
+    @Test
+    public void testAbandonedReaderReturnsConnection() throws Exception {
+        MyJDBCConnection.close();
+        MyJDBCConnection.setDbConnectionProperties("jdbc:derby:memory:sourceRegistrar;create=true", null, null);
+        MyJDBCConnection.setPoolProperties(ConnectionPool.DEFAULT_MAX_SIZE, ConnectionPool.DEFAULT_STATEMENT_CACHE_SIZE);
+        try {
+            for (int reader = 0; reader < 3; ++reader) {
+                final TestRegistrar registrar = new TestRegistrar(true, 100, "k", "blocked");
+                registrar.m_useConnection = true;
+                final IMessageInstance a1 = message("blocked");
+                final TestSource source = new TestSource(registrar, message("k"), a1, message("k"));
+                source.m_openGateAtEnd = false;
+                source.m_waitBefore.put(a1, registrar.m_registered.get("k"));
+
+                // stop reading while a registration is in progress, as a failing reader does
+                registrar.readMessageInstance(source);
+                registrar.m_gate.countDown();
+                registrar.close();
+            }
+
+            final ConnectionPool pool = MyJDBCConnection.getConnectionPool();
+            final long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS);
+            while (pool.getActiveCount() > 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+            }
+            assertEquals("Assert the registration threads returned their connections", 0, pool.getActiveCount());
+            assertFalse(pool.getCreatedCount() == 0);
+        } finally {
+            MyJDBCConnection.setDbConnectionProperties(null, null, null);
+        }
+    }
+}
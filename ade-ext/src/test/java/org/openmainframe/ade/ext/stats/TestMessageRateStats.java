@@ -0,0 +1,154 @@
+/*
+ 
+    Copyright IBM Corp. 2016
+    This file is part of Anomaly Detection Engine for Linux Logs (ADE).
+
+    ADE is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    ADE is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with ADE.  If not, see <http://www.gnu.org/licenses/>.
+ 
+*/
+package org.openmainframe.ade.ext.stats;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.junit.Test;
+import org.openmainframe.ade.ext.stats.MessageRateStats.OverallStats;
+import org.openmainframe.ade.ext.stats.MessageRateStats.ReportFrequency;
+
+public class TestMessageRateStats {
+
+    private static final long MINUTE = 60 * 1000L;
+    private static final long HOUR = 60 * MINUTE;
+    private static final short[] SUB_INTERVALS = {1, 2, 3, 6, 12 };
+
+    /* Aligned on the two hours intervals, at the start of a day, so no report is due within a few hours */
+    private static final long START = new DateTime(2016, 3, 1, 0, 0, DateTimeZone.UTC).getMillis();
+
+    private static MessageRateStats createStats(int maxMsgToKeep) throws Exception {
+        return new MessageRateStats("host", (short) 12, SUB_INTERVALS, maxMsgToKeep, ReportFrequency.MONTHLY,
+                DateTimeZone.UTC);
+    }
+
+    @Test
+    public void testCountsOfAnInterval() throws Exception {
+        final MessageRateStats stats = createStats(1000);
+        stats.addMessage("a", START + MINUTE, false);
+        stats.addMessage("a", START + 5 * MINUTE, false);
+        stats.addMessage("b", START + 15 * MINUTE, false);
+        stats.addMessage("a", START + 65 * MINUTE, false);
+        stats.addMessage("w", START + 15 * MINUTE, true);
+
+        /* Nothing is added before the end of the interval */
+        assertEquals(0, stats.getOverallStats()[0].getNumberOfIntervals());
+
+        stats.addMessage("z", START + 2 * HOUR, false);
+        final OverallStats[] overallStats = stats.getOverallStats();
+
+        final OverallStats tenMinutes = overallStats[0];
+        assertEquals(1, tenMinutes.getIntervalSize());
+        assertEquals(12, tenMinutes.getNumberOfIntervals());
+        assertEquals(4, tenMinutes.getMsg1TotalCount());
+        assertEquals(1, tenMinutes.getMsg2TotalCount());
+        /* a in the slots 0 and 6, b in the slot 1 */
+        assertEquals(3, tenMinutes.getMsg1UniqueMsgIdCount());
+        assertEquals(1, tenMinutes.getMsg2UniqueMsgIdCount());
+        assertEquals(9, tenMinutes.getIntervalsWithZeroCount());
+        assertEquals(1, tenMinutes.getMsg1UniqueMsgIdMin());
+        assertEquals(1, tenMinutes.getMsg1UniqueMsgIdMax());
+
+        final OverallStats thirtyMinutes = overallStats[2];
+        assertEquals(4, thirtyMinutes.getNumberOfIntervals());
+        /* a and b in the first 30 minutes, a in the third */
+        assertEquals(3, thirtyMinutes.getMsg1UniqueMsgIdCount());
+        assertEquals(2, thirtyMinutes.getMsg1UniqueMsgIdMax());
+
+        final OverallStats twoHours = overallStats[4];
+        assertEquals(1, twoHours.getNumberOfIntervals());
+        assertEquals(2, twoHours.getMsg1UniqueMsgIdCount());
+        assertEquals(4, twoHours.getMsg1TotalCount());
+    }
+
+    @Test
+    public void testSkippedIntervalsHaveZeroCounts() throws Exception {
+        final MessageRateStats stats = createStats(1000);
+        stats.addMessage("a", START + MINUTE, false);
+        stats.addMessage("a", START + 2 * HOUR + MINUTE, false);
+        stats.addMessage("b", START + 6 * HOUR + MINUTE, false);
+
+        final OverallStats twoHours = stats.getOverallStats()[4];
+        assertEquals(3, twoHours.getNumberOfIntervals());
+        assertEquals(2, twoHours.getMsg1UniqueMsgIdCount());
+        assertEquals(1, twoHours.getIntervalsWithZeroCount());
+    }
+
+    @Test
+    public void testMessagesBeyondTheLimitAreNotCounted() throws Exception {
+        final MessageRateStats stats = createStats(100);
+        for (int i = 0; i < 1000; i++) {
+            stats.addMessage("m" + (i % 200), START + i * 6000L, false);
+        }
+        stats.addMessage("m0", START + 2 * HOUR, false);
+
+        final OverallStats twoHours = stats.getOverallStats()[4];
+        assertEquals(100, twoHours.getMsg1UniqueMsgIdCount());
+        assertEquals(500, twoHours.getMsg1TotalCount());
+
+        /* The messages of the next interval are counted again from scratch */
+        for (int i = 0; i < 150; i++) {
+            stats.addMessage("n" + i, START + 2 * HOUR + MINUTE, false);
+        }
+        stats.addMessage("m0", START + 4 * HOUR, false);
+        assertEquals(200, stats.getOverallStats()[4].getMsg1UniqueMsgIdCount());
+    }
+
+    @Test
+    public void testConcurrentReaders() throws Exception {
+        final MessageRateStats stats = createStats(1000);
+        final int threads = 4;
+        final int messagesPerThread = 20000;
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            final List<Future<Void>> futures = new ArrayList<Future<Void>>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws Exception {
+                        for (int i = 0; i < messagesPerThread; i++) {
+                            stats.addMessage("m" + (i % 50), START + (i % 120) * MINUTE, false);
+                        }
+                        return null;
+                    }
+                }));
+            }
+            for (Future<Void> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        stats.addMessage("m0", START + 2 * HOUR, false);
+
+        final OverallStats twoHours = stats.getOverallStats()[4];
+        assertEquals(50, twoHours.getMsg1UniqueMsgIdCount());
+        assertEquals(threads * messagesPerThread, twoHours.getMsg1TotalCount());
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ 
+    Copyright IBM Corp. 2016
+    This file is part of Anomaly Detection Engine for Linux Logs (ADE).
+
+    ADE is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    ADE is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with ADE.  If not, see <http://www.gnu.org/licenses/>.
+ 
+*/
+package org.openmainframe.ade.ext.stats;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+import org.openmainframe.ade.ext.stats.MessagesWithParseErrorStats.MessageStats;
+
+public class TestMessagesWithParseErrorStats {
+
+    @Test
+    public void testExactCountsInReportOrder() {
+        final MessagesWithParseErrorStats stats = new MessagesWithParseErrorStats(10, 2);
+        for (int i = 0; i < 3; ++i) {
+            stats.addMessage("a b c d e f g h i j k " + i);
+        }
+        stats.addMessage("x y");
+        for (int i = 0; i < 2; ++i) {
+            stats.addMessage("p q");
+        }
+
+        final List<MessageStats> report = stats.getMessageStats();
+        assertEquals(3, report.size());
+        assertEquals("x y", report.get(0).getMessageRepresentation());
+        assertEquals(1, report.get(0).getOccurred());
+        assertEquals("p q", report.get(1).getMessageRepresentation());
+        assertEquals(2, report.get(1).getOccurred());
+        assertEquals("a b c d e f g h i j k", report.get(2).getMessageRepresentation());
+        assertEquals(3, report.get(2).getOccurred());
+    }
+
+    @Test
+    public void testHeavyHittersKeptInBurstOfDistinctLines() {
+        final MessagesWithParseErrorStats stats = new MessagesWithParseErrorStats(10, 2);
+        for (int i = 0; i < 100000; ++i) {
+            if (i % 10 < 3) {
+                stats.addMessage("frequent error " + (i % 10));
+            } else {
+                stats.addMessage("malformed_" + i);
+            }
+        }
+
+        final Map<String, Integer> occurrences = new HashMap<String, Integer>();
+        for (MessageStats msgStats : stats.getMessageStats()) {
+            occurrences.put(msgStats.getMessageRepresentation(), msgStats.getOccurred());
+        }
+        assertEquals(10 + MessagesWithParseErrorStats.DEFAULT_NUMBER_OF_PARSE_ERROR_ADDITIONAL_COUNTERS, occurrences.size());
+        for (int i = 0; i < 3; ++i) {
+            assertEquals(Integer.valueOf(10000), occurrences.get("frequent error " + i));
+        }
+    }
+
+    @Test
+    public void testConcurrentAdds() throws InterruptedException {
+        final MessagesWithParseErrorStats stats = new MessagesWithParseErrorStats(10, 2);
+        final List<Thread> threads = new ArrayList<Thread>();
+        for (int t = 0; t < 4; ++t) {
+            threads.add(new Thread() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < 20000; ++i) {
+                        stats.addMessage("error " + (i % 5));
+                    }
+                }
+            });
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        final List<MessageStats> report = stats.getMessageStats();
+        assertEquals(5, report.size());
+        for (MessageStats msgStats : report) {
+            assertEquals(4 * 20000 / 5, msgStats.getOccurred());
+        }
+    }
+
+    @Test
+    public void testLongRepresentationTruncated() {
+        final MessagesWithParseErrorStats stats = new MessagesWithParseErrorStats(10, 2);
+        final StringBuilder line = new StringBuilder();
+        for (int i = 0; i < 5000; ++i) {
+            line.append('x');
+        }
+        stats.addMessage(line.toString());
+        final String msgRep = stats.getMessageStats().get(0).getMessageRepresentation();
+        assertEquals(MessagesWithParseErrorStats.MAX_REPRESENTATION_LENGTH, msgRep.length());
+        assertTrue(line.toString().startsWith(msgRep));
+    }
+
+    @Test
+    public void testNothingKept() {
+        final MessagesWithParseErrorStats stats = new MessagesWithParseErrorStats(0, 2);
+        stats.addMessage("a b");
+        assertTrue(stats.getMessageStats().isEmpty());
+    }
+}
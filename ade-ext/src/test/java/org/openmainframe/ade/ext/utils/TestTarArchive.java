@@ -0,0 +1,98 @@
+/*
+ 
+    Copyright IBM Corp. 2016
+    This file is part of Anomaly Detection Engine for Linux Logs (ADE).
+
+    ADE is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    ADE is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with ADE.  If not, see <http://www.gnu.org/licenses/>.
+ 
+*/
+package org.openmainframe.ade.ext.utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.Random;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TestTarArchive {
+    @Rule
+    public TemporaryFolder m_folder = new TemporaryFolder();
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        final int[] sizes = { 0, 1, 511, 512, 513, 100000 };
+        final Random random = new Random(20160401L);
+        final byte[][] contents = new byte[sizes.length][];
+        final ByteArrayOutputStream archive = new ByteArrayOutputStream();
+        try (TarArchiveWriter tar = new TarArchiveWriter(archive)) {
+            tar.putDirectory("dir");
+            for (int i = 0; i < sizes.length; ++i) {
+                contents[i] = new byte[sizes[i]];
+                random.nextBytes(contents[i]);
+                final File file = m_folder.newFile("file" + i);
+                Files.write(file.toPath(), contents[i]);
+                tar.putFile("dir/file" + i, file);
+            }
+        }
+        assertEquals(0, archive.size() % 512);
+
+        try (TarArchiveReader reader = new TarArchiveReader(new ByteArrayInputStream(archive.toByteArray()))) {
+            assertEquals("dir/", reader.nextEntry());
+            assertTrue(reader.isDirectory());
+            for (int i = 0; i < sizes.length; ++i) {
+                assertEquals("dir/file" + i, reader.nextEntry());
+                assertFalse(reader.isDirectory());
+                assertEquals(sizes[i], reader.getSize());
+                /* Leave some entries unread, they must be skipped. */
+                if (i % 2 == 0) {
+                    assertArrayEquals(contents[i], readAll(reader.getInputStream()));
+                }
+            }
+            assertNull(reader.nextEntry());
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testNameTooLong() throws IOException {
+        final StringBuilder name = new StringBuilder();
+        for (int i = 0; i < 101; ++i) {
+            name.append('x');
+        }
+        try (TarArchiveWriter tar = new TarArchiveWriter(new ByteArrayOutputStream())) {
+            tar.putFile(name.toString(), m_folder.newFile("file"));
+        }
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final byte[] buffer = new byte[1000];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+}